@@ -12,7 +12,7 @@
 package xj3d.filter;
 
 // External imports
-// None
+import java.util.Arrays;
 
 // Local imports
 import org.web3d.vrml.sav.*;
@@ -33,13 +33,20 @@ import org.web3d.vrml.parser.VRMLFieldReader;
  * The default implementation of all the methods act as pure pass-throughs.
  * Each implementation may override the methods that are necessary for its
  * function.
+ * <p>
+ *
+ * Array values sent in pieces through the {@link ChunkedBinaryContentHandler}
+ * methods are gathered into one array and handed to the matching
+ * <code>fieldValue()</code> method, so a filter only ever needs to override
+ * those. A filter that does not look at field values at all can return true
+ * from {@link #passChunkedValues()} to send the pieces straight on instead.
  *
  * @author Alan Hudson
- * @version $Revision: 1.5 $
+ * @version $Revision: 1.6 $
  */
 public abstract class AbstractFilter
     implements StringContentHandler,
-               BinaryContentHandler,
+               ChunkedBinaryContentHandler,
                RouteHandler,
                ScriptHandler,
                ProtoHandler {
@@ -88,6 +95,24 @@ public abstract class AbstractFilter
     /** How strict to parse */
     protected ParsingType parsingType = ParsingType.STRICT;
 
+    /** True while the pieces of a value are being sent straight on */
+    private boolean passingChunks;
+
+    /** The number of values announced for the value being gathered */
+    private int chunkExpected;
+
+    /** The number of values gathered so far */
+    private int chunkLength;
+
+    /** The gathered integer values, if the pieces are integers */
+    private int[] chunkInts;
+
+    /** The gathered float values, if the pieces are floats */
+    private float[] chunkFloats;
+
+    /** The gathered double values, if the pieces are doubles */
+    private double[] chunkDoubles;
+
     /**
      * Construct a default instance of the field handler
      */
@@ -775,6 +800,161 @@ public abstract class AbstractFilter
         }
     }
 
+    //---------------------------------------------------------------
+    // Methods defined by ChunkedBinaryContentHandler
+    //---------------------------------------------------------------
+
+    /**
+     * Start a field value that will be sent in pieces.
+     *
+     * @param length The total number of values that will be sent, or -1 if
+     *    that is not known
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void startFieldValue(int length)
+        throws SAVException, VRMLException {
+
+        passingChunks = passChunkedValues() &&
+            contentHandler instanceof ChunkedBinaryContentHandler;
+
+        if(passingChunks) {
+            ((ChunkedBinaryContentHandler)contentHandler).startFieldValue(length);
+        } else {
+            chunkExpected = length;
+            chunkLength = 0;
+        }
+    }
+
+    /**
+     * Add the next piece of an array of integers.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void appendFieldValue(int[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+        if(passingChunks) {
+            ((ChunkedBinaryContentHandler)contentHandler).appendFieldValue(value, offset, len);
+            return;
+        }
+
+        if(chunkInts == null)
+            chunkInts = new int[Math.max(chunkExpected, len)];
+        else if(chunkLength + len > chunkInts.length)
+            chunkInts = Arrays.copyOf(chunkInts, Math.max(chunkLength + len, chunkInts.length * 2));
+
+        System.arraycopy(value, offset, chunkInts, chunkLength, len);
+        chunkLength += len;
+    }
+
+    /**
+     * Add the next piece of an array of floats.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void appendFieldValue(float[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+        if(passingChunks) {
+            ((ChunkedBinaryContentHandler)contentHandler).appendFieldValue(value, offset, len);
+            return;
+        }
+
+        if(chunkFloats == null)
+            chunkFloats = new float[Math.max(chunkExpected, len)];
+        else if(chunkLength + len > chunkFloats.length)
+            chunkFloats = Arrays.copyOf(chunkFloats, Math.max(chunkLength + len, chunkFloats.length * 2));
+
+        System.arraycopy(value, offset, chunkFloats, chunkLength, len);
+        chunkLength += len;
+    }
+
+    /**
+     * Add the next piece of an array of doubles.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void appendFieldValue(double[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+        if(passingChunks) {
+            ((ChunkedBinaryContentHandler)contentHandler).appendFieldValue(value, offset, len);
+            return;
+        }
+
+        if(chunkDoubles == null)
+            chunkDoubles = new double[Math.max(chunkExpected, len)];
+        else if(chunkLength + len > chunkDoubles.length)
+            chunkDoubles = Arrays.copyOf(chunkDoubles, Math.max(chunkLength + len, chunkDoubles.length * 2));
+
+        System.arraycopy(value, offset, chunkDoubles, chunkLength, len);
+        chunkLength += len;
+    }
+
+    /**
+     * End the field value that was sent in pieces. When the pieces have
+     * been gathered, the whole array is passed to the matching
+     * <code>fieldValue()</code> method.
+     *
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void endFieldValue()
+        throws SAVException, VRMLException {
+
+        if(passingChunks) {
+            passingChunks = false;
+            ((ChunkedBinaryContentHandler)contentHandler).endFieldValue();
+            chunkedValuePassed();
+            return;
+        }
+
+        int[] ints = chunkInts;
+        float[] floats = chunkFloats;
+        double[] doubles = chunkDoubles;
+        int len = chunkLength;
+
+        chunkInts = null;
+        chunkFloats = null;
+        chunkDoubles = null;
+        chunkLength = 0;
+
+        if(ints != null)
+            fieldValue(ints, len);
+        else if(doubles != null)
+            fieldValue(doubles, len);
+        else
+            fieldValue(floats != null ? floats : new float[0], len);
+    }
+
     //---------------------------------------------------------------
     // Methods defined by ProtoHandler
     //---------------------------------------------------------------
@@ -1133,4 +1313,25 @@ public abstract class AbstractFilter
     public int getLastErrorCode() {
         return lastErrorCode;
     }
+
+    /**
+     * Check to see if array values sent in pieces may be passed straight on
+     * to the next handler. Only a filter that never looks at or changes
+     * field values should return true. The default is false, which gathers
+     * the pieces into one array.
+     *
+     * @return true to send pieces straight on
+     */
+    protected boolean passChunkedValues() {
+        return false;
+    }
+
+    /**
+     * Notification that a value sent in pieces has been passed straight on,
+     * in place of a <code>fieldValue()</code> call. Tidies up the field
+     * that the value ended.
+     */
+    protected void chunkedValuePassed() {
+        fieldStack.pop();
+    }
 }
@@ -45,7 +45,7 @@ import org.web3d.vrml.lang.FieldConstants;
  * function.
  *
  * @author Alan Hudson
- * @version $Revision: 1.5 $
+ * @version $Revision: 1.6 $
  */
 public abstract class BaseFilter extends AbstractFilter {
 
@@ -1311,4 +1311,14 @@ public abstract class BaseFilter extends AbstractFilter {
     public int getLastErrorCode() {
         return lastErrorCode;
     }
+
+    /**
+     * Clear the field from the node marker once a value sent in pieces has
+     * been passed straight on.
+     */
+    @Override
+    protected void chunkedValuePassed() {
+        NodeMarker marker = (NodeMarker)nodeStack.peek();
+        marker.clearFieldData();
+    }
 }
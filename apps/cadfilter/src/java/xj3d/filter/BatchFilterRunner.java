@@ -0,0 +1,580 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package xj3d.filter;
+
+// External imports
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Local imports
+// None
+
+/**
+ * Runs one filter chain over many input files at once, in a single JVM.
+ * <p>
+ *
+ * The input is either a directory, which is searched for files of the
+ * formats that the filter can read, or a manifest file that lists one input
+ * file per line. A manifest line may give the output name after a tab
+ * character, otherwise the output is named after the input. Blank lines and
+ * lines starting with # are ignored. A manifest name of <code>-</code> reads
+ * the list from standard input, so a long running filter process can be fed
+ * work as it arrives and reports when the input is closed.
+ * <p>
+ *
+ * Each file is run through its own copy of the filter chain on a fixed size
+ * pool of threads. Before a file is started, an estimate of the memory it
+ * needs is taken from a shared budget, so that several large files are not
+ * held in memory together. A file that needs more than the whole budget is
+ * run on its own. The result of every file is one of the
+ * {@link FilterExitCodes}. A failure in one file never stops the others,
+ * and the codes are collected into a report printed once all files are
+ * done.
+ * <p>
+ *
+ * <b>Arguments</b>
+ * <ul>
+ * <li><code>-batch</code>: Turns on batch mode. The input is a directory
+ *     or manifest and the output is the directory to write to, or NULL to
+ *     discard the output.</li>
+ * <li><code>-threads n</code>: The number of files run at once. Defaults to
+ *     the number of processors.</li>
+ * <li><code>-outputType ext</code>: The file extension, and so encoding, of
+ *     the output files. Defaults to x3d.</li>
+ * <li><code>-memoryLimit n</code>: The memory budget in megabytes. Defaults
+ *     to three quarters of the maximum heap size.</li>
+ * </ul>
+ * A <code>-maxRunTime</code> argument applies to the whole batch rather
+ * than to each file.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class BatchFilterRunner {
+
+    /** Argument that turns on batch mode */
+    static final String BATCH_ARG = "-batch";
+
+    /** Argument giving the number of threads */
+    private static final String THREADS_ARG = "-threads";
+
+    /** Argument giving the output file extension */
+    private static final String OUTPUT_TYPE_ARG = "-outputType";
+
+    /** Argument giving the memory budget in megabytes */
+    private static final String MEMORY_LIMIT_ARG = "-memoryLimit";
+
+    /** Argument giving the maximum run time in minutes */
+    private static final String MAX_RUN_TIME_ARG = "-maxRunTime";
+
+    /** Manifest name that means read from standard input */
+    private static final String STDIN_MANIFEST = "-";
+
+    /** The default output file extension */
+    private static final String DEFAULT_OUTPUT_TYPE = "x3d";
+
+    /**
+     * Rough multiple of the file size needed in memory to process a file.
+     * Retained exporters and two pass filters hold the whole scene.
+     */
+    private static final int MEMORY_PER_BYTE = 16;
+
+    /** The memory needed per byte for input that is compressed */
+    private static final int MEMORY_PER_COMPRESSED_BYTE = 64;
+
+    /** Memory allowed for any file, however small, in kilobytes */
+    private static final int MIN_FILE_MEMORY = 1_024;
+
+    /** The file extensions that can be read, as lower case */
+    private static final Set<String> INPUT_TYPES;
+
+    /** The input file extensions that are compressed, as lower case */
+    private static final Set<String> COMPRESSED_TYPES;
+
+    /** The names of the filters to run */
+    private final String[] filterNames;
+
+    /** The arguments passed on to each filter chain */
+    private final String[] filterArgs;
+
+    /** The directory to write to, or null to discard the output */
+    private final File outputDir;
+
+    /** The output file extension */
+    private String outputType;
+
+    /** The number of files to run at once */
+    private int numThreads;
+
+    /** The size of the memory budget in kilobytes */
+    private int memoryLimit;
+
+    /** Time limit for the whole batch in milliseconds, or 0 for none */
+    private long maxRunTime;
+
+    /** Memory budget in kilobytes that files take from before running */
+    private Semaphore memory;
+
+    /** Bounds the number of files waiting for a thread */
+    private Semaphore slots;
+
+    /** Count of the files given to the pool */
+    private final AtomicInteger numSubmitted;
+
+    /** Count of files for each exit code, sorted by code */
+    private final Map<Integer, Integer> codeCounts;
+
+    /** Description of each file that did not succeed, in completion order */
+    private final List<String> failures;
+
+    /** Total size of the input files read, in bytes */
+    private long bytesRead;
+
+    /** The exit code of the first file in the input to fail */
+    private int firstFailureCode;
+
+    /** The position in the input of the first file to fail */
+    private int firstFailureIndex;
+
+    static {
+        INPUT_TYPES = new HashSet<>(Arrays.asList(
+            "x3d", "x3dv", "x3db", "x3dz", "x3dvz", "wrl", "wrz", "gz",
+            "stl", "obj", "dae", "ac", "3mf"));
+
+        COMPRESSED_TYPES = new HashSet<>(Arrays.asList(
+            "x3db", "x3dz", "x3dvz", "wrz", "gz", "3mf"));
+    }
+
+    /**
+     * Create a runner for the given filters.
+     *
+     * @param filterNames The names of the filters to run
+     * @param outputDir The directory to write to, or null to discard output
+     * @param args The arguments given to the filter, including the batch ones
+     */
+    BatchFilterRunner(String[] filterNames,
+                      File outputDir,
+                      String[] args) {
+        this.filterNames = filterNames;
+        this.outputDir = outputDir;
+
+        outputType = DEFAULT_OUTPUT_TYPE;
+        numThreads = Runtime.getRuntime().availableProcessors();
+        memoryLimit = (int)(Runtime.getRuntime().maxMemory() / 1_024 * 3 / 4);
+
+        numSubmitted = new AtomicInteger();
+        codeCounts = new TreeMap<>();
+        failures = new ArrayList<>();
+        firstFailureCode = FilterExitCodes.SUCCESS;
+        firstFailureIndex = Integer.MAX_VALUE;
+
+        filterArgs = parseArguments(args);
+    }
+
+    /**
+     * Check to see if the arguments ask for batch mode.
+     *
+     * @param args The arguments given to the filter
+     * @return true if batch mode is wanted
+     */
+    static boolean isBatch(String[] args) {
+        for(String arg : args) {
+            if(arg.equals(BATCH_ARG))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Run every file in the directory or manifest and print the report.
+     *
+     * @param input The directory or manifest file name
+     * @return SUCCESS if all files succeeded, otherwise the exit code of the
+     *    first file in the input that failed
+     */
+    int run(String input) {
+        if(numThreads < 1 || memoryLimit < MIN_FILE_MEMORY)
+            return FilterExitCodes.INVALID_ARGUMENTS;
+
+        if(outputDir != null && !outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.err.println("Unable to create output directory: " + outputDir);
+            return FilterExitCodes.CANNOT_WRITE_OUTPUT_FILE;
+        }
+
+        File in_file = new File(input);
+
+        if(!input.equals(STDIN_MANIFEST) && !in_file.exists()) {
+            System.err.println("Batch input not found: " + input);
+            return FilterExitCodes.FILE_NOT_FOUND;
+        }
+
+        memory = new Semaphore(memoryLimit);
+        slots = new Semaphore(numThreads * 2);
+
+        ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(numThreads,
+                                   numThreads,
+                                   30,
+                                   TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<>(),
+                                   r -> {
+                                       Thread th = new Thread(r, "CDFFilter Batch");
+                                       th.setDaemon(true);
+                                       return th;
+                                   });
+        pool.allowCoreThreadTimeOut(true);
+
+        DeathTimer death_timer = null;
+
+        if(maxRunTime > 0) {
+            death_timer = new DeathTimer(maxRunTime);
+            death_timer.start();
+        }
+
+        long start_time = System.nanoTime();
+        int status = FilterExitCodes.SUCCESS;
+
+        try {
+            if(in_file.isDirectory())
+                submitDirectory(in_file.toPath(), pool);
+            else
+                submitManifest(input, pool);
+        } catch(IOException ioe) {
+            System.err.println("Unable to read batch input: " + ioe);
+            status = FilterExitCodes.INVALID_INPUT_FILE;
+        } catch(InterruptedException ie) {
+            status = FilterExitCodes.ABNORMAL_CRASH;
+        }
+
+        pool.shutdown();
+
+        try {
+            while(!pool.awaitTermination(1, TimeUnit.MINUTES))
+                ;
+        } catch(InterruptedException ie) {
+            status = FilterExitCodes.ABNORMAL_CRASH;
+        }
+
+        long elapsed = System.nanoTime() - start_time;
+
+        if(death_timer != null)
+            death_timer.exit();
+
+        printReport(elapsed);
+
+        if(status != FilterExitCodes.SUCCESS)
+            return status;
+
+        synchronized(this) {
+            return firstFailureCode;
+        }
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Take out the batch arguments, keeping the values they give, and return
+     * the arguments that are left to pass to each filter chain.
+     *
+     * @param args The arguments given to the filter
+     * @return The arguments without the batch ones
+     */
+    private String[] parseArguments(String[] args) {
+        List<String> ret_val = new ArrayList<>();
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch(args[i]) {
+                    case BATCH_ARG:
+                        break;
+
+                    case THREADS_ARG:
+                        numThreads = Integer.parseInt(args[++i]);
+                        break;
+
+                    case OUTPUT_TYPE_ARG:
+                        outputType = args[++i];
+                        break;
+
+                    case MEMORY_LIMIT_ARG:
+                        memoryLimit = Integer.parseInt(args[++i]) * 1_024;
+                        break;
+
+                    case MAX_RUN_TIME_ARG:
+                        maxRunTime = (long)(60000f * Float.parseFloat(args[++i]));
+                        break;
+
+                    default:
+                        ret_val.add(args[i]);
+                }
+            }
+        } catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            numThreads = 0;
+        }
+
+        return ret_val.toArray(new String[ret_val.size()]);
+    }
+
+    /**
+     * Submit every readable file in the directory and the ones below it.
+     * Outputs keep the same relative path under the output directory.
+     *
+     * @param dir The directory to search
+     * @param pool The pool to run the files on
+     */
+    private void submitDirectory(Path dir, ThreadPoolExecutor pool)
+        throws IOException, InterruptedException {
+
+        List<Path> files = new ArrayList<>();
+
+        try(Stream<Path> s = Files.walk(dir)) {
+            s.filter(p -> Files.isRegularFile(p) &&
+                          INPUT_TYPES.contains(getExtension(p.toString())))
+             .sorted()
+             .forEach(files::add);
+        }
+
+        for(Path p : files) {
+            String rel = dir.relativize(p).toString();
+            submit(p.toFile(), replaceExtension(rel), pool);
+        }
+    }
+
+    /**
+     * Submit every file listed in the manifest. Relative input names are
+     * taken from the directory of the manifest.
+     *
+     * @param manifest The manifest file name, or - for standard input
+     * @param pool The pool to run the files on
+     */
+    private void submitManifest(String manifest, ThreadPoolExecutor pool)
+        throws IOException, InterruptedException {
+
+        boolean stdin = manifest.equals(STDIN_MANIFEST);
+        File base_dir = stdin ? null : new File(manifest).getAbsoluteFile().getParentFile();
+
+        Reader rdr = stdin ?
+            new InputStreamReader(System.in, StandardCharsets.UTF_8) :
+            new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8);
+
+        try(BufferedReader br = new BufferedReader(rdr)) {
+            String line;
+
+            while((line = br.readLine()) != null) {
+                line = line.trim();
+
+                if(line.isEmpty() || line.charAt(0) == '#')
+                    continue;
+
+                String in_name = line;
+                String out_name;
+                int tab = line.indexOf('\t');
+
+                if(tab > 0) {
+                    in_name = line.substring(0, tab).trim();
+                    out_name = line.substring(tab + 1).trim();
+                } else {
+                    out_name = replaceExtension(new File(in_name).getName());
+                }
+
+                File in_file = new File(in_name);
+                if(!in_file.isAbsolute() && base_dir != null)
+                    in_file = new File(base_dir, in_name);
+
+                submit(in_file, out_name, pool);
+            }
+        }
+    }
+
+    /**
+     * Wait for room in the memory budget and then give the file to the
+     * pool.
+     *
+     * @param inFile The file to read
+     * @param outName The output name relative to the output directory
+     * @param pool The pool to run the file on
+     */
+    private void submit(File inFile, String outName, ThreadPoolExecutor pool)
+        throws InterruptedException {
+
+        int index = numSubmitted.getAndIncrement();
+        int cost = estimateMemory(inFile);
+
+        slots.acquire();
+        memory.acquire(cost);
+
+        try {
+            pool.execute(() -> {
+                try {
+                    runFile(index, inFile, outName);
+                } finally {
+                    memory.release(cost);
+                    slots.release();
+                }
+            });
+        } catch(RuntimeException re) {
+            memory.release(cost);
+            slots.release();
+            throw re;
+        }
+    }
+
+    /**
+     * Run one file through a new filter chain and record the result. Only a
+     * ThreadDeath is allowed to leave this method.
+     *
+     * @param index The position of the file in the input
+     * @param inFile The file to read
+     * @param outName The output name relative to the output directory
+     */
+    private void runFile(int index, File inFile, String outName) {
+        int status;
+        long size = inFile.length();
+
+        try {
+            if(!inFile.isFile()) {
+                status = FilterExitCodes.FILE_NOT_FOUND;
+            } else if(size == 0) {
+                status = FilterExitCodes.INVALID_INPUT_FILE;
+            } else {
+                String out = null;
+
+                if(outputDir != null) {
+                    File out_file = new File(outputDir, outName);
+                    File parent = out_file.getParentFile();
+
+                    if(!parent.isDirectory())
+                        parent.mkdirs();
+
+                    out = out_file.getPath();
+                }
+
+                CDFFilter filterer = new CDFFilter(false);
+                status = filterer.filter(filterNames, inFile, out, filterArgs);
+            }
+        } catch(Exception e) {
+            System.err.println("Unhandled exception in " + inFile + ": " + e);
+            status = FilterExitCodes.ABNORMAL_CRASH;
+        } catch(OutOfMemoryError oom) {
+            status = FilterExitCodes.OUT_OF_MEMORY;
+        } catch(ThreadDeath td) {
+            throw td;
+        } catch(Error e) {
+            System.err.println("Unhandled error in " + inFile + ": " + e);
+            status = FilterExitCodes.EXCEPTIONAL_ERROR;
+        }
+
+        synchronized(this) {
+            Integer count = codeCounts.get(status);
+            codeCounts.put(status, count == null ? 1 : count + 1);
+
+            if(status == FilterExitCodes.SUCCESS) {
+                bytesRead += size;
+            } else {
+                failures.add(inFile.getPath() + " exit code " + status);
+
+                if(index < firstFailureIndex) {
+                    firstFailureIndex = index;
+                    firstFailureCode = status;
+                }
+            }
+        }
+    }
+
+    /**
+     * Print the totals for the batch to standard out.
+     *
+     * @param elapsed The time the batch took in nanoseconds
+     */
+    private synchronized void printReport(long elapsed) {
+        double secs = elapsed / 1e9;
+        int total = numSubmitted.get();
+        Integer done = codeCounts.get(FilterExitCodes.SUCCESS);
+        int num_done = done == null ? 0 : done;
+
+        System.out.println("Batch report:");
+
+        for(String f : failures)
+            System.out.println("   Failed: " + f);
+
+        for(Map.Entry<Integer, Integer> e : codeCounts.entrySet())
+            System.out.println("   Exit code " + e.getKey() + ": " +
+                               e.getValue() + " files");
+
+        System.out.println("   Files: " + total +
+                           " succeeded: " + num_done +
+                           " failed: " + (total - num_done));
+        System.out.printf("   Time: %.2f s on %d threads, %.2f files/s, %.2f MB/s read%n",
+                          secs,
+                          numThreads,
+                          secs > 0 ? total / secs : 0,
+                          secs > 0 ? bytesRead / secs / (1_024 * 1_024) : 0);
+    }
+
+    /**
+     * Estimate the memory in kilobytes needed to process a file, limited to
+     * the size of the whole budget.
+     *
+     * @param file The file to be read
+     * @return The number of kilobytes to take from the budget
+     */
+    private int estimateMemory(File file) {
+        String ext = getExtension(file.getName());
+        long per_byte = COMPRESSED_TYPES.contains(ext) ?
+            MEMORY_PER_COMPRESSED_BYTE : MEMORY_PER_BYTE;
+
+        long kb = file.length() * per_byte / 1_024;
+
+        return (int)Math.max(MIN_FILE_MEMORY, Math.min(kb, memoryLimit));
+    }
+
+    /**
+     * Swap the extension of the file name for the output one.
+     *
+     * @param name The input file name
+     * @return The output file name
+     */
+    private String replaceExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        int sep = Math.max(name.lastIndexOf('/'), name.lastIndexOf(File.separatorChar));
+
+        if(dot > sep)
+            name = name.substring(0, dot);
+
+        return name + '.' + outputType;
+    }
+
+    /**
+     * Get the lower case extension of a file name.
+     *
+     * @param name The file name
+     * @return The extension without the dot, or an empty string
+     */
+    private static String getExtension(String name) {
+        int dot = name.lastIndexOf('.');
+
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+    }
+}
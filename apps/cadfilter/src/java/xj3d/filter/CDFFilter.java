@@ -53,7 +53,7 @@ import xj3d.filter.exporter.ThreeMFFileExporter;
  * it and writes it out to a file.
  *
  * @author Alan Hudson
- * @version $Revision: 1.57 $
+ * @version $Revision: 1.58 $
  */
 public class CDFFilter {
 
@@ -115,6 +115,9 @@ public class CDFFilter {
                     "   [-exportVersion n] [-compressionMethod n ] [-quantization n ] [-upgrade]\n" +
                     "   [-maxRunTime n] [filter_args] \n" +
                     "\n" +
+                    "       filter [filters] input_dir|manifest|- output_dir -batch [-threads n]\n" +
+                    "   [-outputType ext] [-memoryLimit n] [options] [filter_args]\n" +
+                    "\n" +
                     "  -loglevel type [ALL|WARNINGS|ERRORS|FATAL|NONE]\n" +
                     "                 The minimum level that logs should be written at\n" +
                     "\n" +
@@ -155,7 +158,24 @@ public class CDFFilter {
                     "\n" +
                     " -upgrade\n" +
                     "                 When declared, any VRML style PROTO content that can be\n" +
-                    "                 upgraded to X3D native nodes, will be\n";
+                    "                 upgraded to X3D native nodes, will be\n" +
+                    "\n" +
+                    " -batch\n" +
+                    "                 Filter every file in the input directory, or listed one per\n" +
+                    "                 line in the manifest file or standard input, concurrently.\n" +
+                    "                 Output files are written to the output directory and a\n" +
+                    "                 report of the exit codes is printed at the end\n" +
+                    "\n" +
+                    " -threads n\n" +
+                    "                 Number of files filtered at once in batch mode.\n" +
+                    "                 Default is the number of processors.\n" +
+                    "\n" +
+                    " -outputType ext\n" +
+                    "                 Output file extension in batch mode. Default is x3d.\n" +
+                    "\n" +
+                    " -memoryLimit n\n" +
+                    "                 Megabytes of heap that files being filtered at once may\n" +
+                    "                 use in batch mode. Default is 3/4 of the maximum heap.\n";
 
 
     /**
@@ -207,6 +227,22 @@ public class CDFFilter {
      * Create an instance of the demo class.
      */
     public CDFFilter() {
+        this(true);
+    }
+
+    /**
+     * Create an instance that may skip the setup shared by all instances.
+     * Used by batch mode, where that setup has been done once already and
+     * instances are created while other files are being filtered.
+     *
+     * @param setupGlobals true to set up the URI handling and resources
+     */
+    CDFFilter(boolean setupGlobals) {
+        style = null;
+
+        if(!setupGlobals)
+            return;
+
         I18nManager intl_mgr = I18nManager.getManager();
         intl_mgr.setApplication(APP_NAME, "config.i18n.xj3dResources");
 
@@ -220,8 +256,6 @@ public class CDFFilter {
         content_map.registerType("3mf", "application/xml");
 
         URI.setFileNameMap(content_map);
-
-        style = null;
     }
 
     /**
@@ -1105,7 +1139,8 @@ public class CDFFilter {
                 // that starts with a - The first two items before that are
                 int filter_count = 0;
                 for (String arg : args) {
-                    if (arg.charAt(0) == '-') {
+                    // A lone - is a batch manifest read from standard input
+                    if (arg.charAt(0) == '-' && arg.length() > 1) {
                         break;
                     }
                     filter_count++;
@@ -1142,6 +1177,24 @@ public class CDFFilter {
         }
 
         int status;
+
+        if (BatchFilterRunner.isBatch(filter_args)) {
+            File out_dir = outfile == null ? null : new File(outfile);
+            BatchFilterRunner runner =
+                    new BatchFilterRunner(filters, out_dir, filter_args);
+
+            status = runner.run(filename);
+
+            if (exit) {
+                if (status != 0) {
+                    System.err.println("Exiting with error: " + status);
+                }
+                System.exit(status);
+            }
+
+            return status;
+        }
+
         File fil = new File(filename);
 
         //
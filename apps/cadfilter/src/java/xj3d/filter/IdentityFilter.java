@@ -23,10 +23,11 @@ package xj3d.filter;
  * <p>
  *
  * Effectively this implementation just turns the abstract class into a
- * concrete class without adding any additional implementation.
+ * concrete class without adding any additional implementation. Array values
+ * sent in pieces are passed on in pieces.
  *
  * @author Alan Hudson
- * @version $Revision: 1.7 $
+ * @version $Revision: 1.8 $
  */
 public class IdentityFilter extends BaseFilter {
 
@@ -35,4 +36,19 @@ public class IdentityFilter extends BaseFilter {
      */
     public IdentityFilter() {
     }
+
+    //----------------------------------------------------------
+    // Methods defined by AbstractFilter
+    //----------------------------------------------------------
+
+    /**
+     * Pass array values sent in pieces straight on, unless the field is
+     * being dropped.
+     *
+     * @return true unless calls are suppressed or the field is invalid
+     */
+    @Override
+    protected boolean passChunkedValues() {
+        return !suppressCalls && !insideInvalidField;
+    }
 }
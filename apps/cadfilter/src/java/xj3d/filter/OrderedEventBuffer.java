@@ -0,0 +1,853 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package xj3d.filter;
+
+// External imports
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Local imports
+import org.web3d.vrml.lang.VRMLException;
+
+import org.web3d.vrml.sav.*;
+
+/**
+ * Sits between a filter and the next handler in the chain so that the
+ * filter can hand the work for a node to other threads, while the output
+ * stays in document order.
+ * <p>
+ *
+ * A filter submits a job that does the work and returns the code that
+ * sends the node on. Calls made to this buffer after a job has been
+ * submitted are held, in order, behind the job until it has finished.
+ * Finished jobs at the head of the buffer are sent on whenever the filter
+ * makes another call, so all output happens on the thread that feeds the
+ * filter. While nothing is waiting, calls go straight to the next handler.
+ * <p>
+ *
+ * The number of unfinished jobs is limited, so that a fast parser cannot
+ * queue a whole file of geometry in memory. When the limit is reached the
+ * filter waits for the oldest job. Array values held in the buffer are
+ * copied, as the caller may reuse them.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class OrderedEventBuffer
+    implements StringContentHandler,
+               RouteHandler,
+               ScriptHandler,
+               ProtoHandler {
+
+    /** The number of unfinished jobs allowed per thread */
+    private static final int JOBS_PER_THREAD = 4;
+
+    /** The next handler for content calls */
+    protected final StringContentHandler contentHandler;
+
+    /** The next handler for routes, may be null */
+    private final RouteHandler routeHandler;
+
+    /** The next handler for scripts, may be null */
+    private final ScriptHandler scriptHandler;
+
+    /** The next handler for protos, may be null */
+    private final ProtoHandler protoHandler;
+
+    /** The threads that run the jobs */
+    private final Executor executor;
+
+    /** The most unfinished jobs allowed before waiting */
+    private final int maxPending;
+
+    /** Held calls as Runnables, and jobs as futures, in document order */
+    private final ArrayDeque<Object> queue;
+
+    /** The number of jobs in the queue */
+    private int numPending;
+
+    /** True while the output of a finished job is being sent */
+    private boolean sending;
+
+    /**
+     * Create a buffer in front of the given handlers.
+     *
+     * @param ch The next content handler
+     * @param rh The next route handler, may be null
+     * @param sh The next script handler, may be null
+     * @param ph The next proto handler, may be null
+     * @param executor The threads to run jobs on
+     * @param threads The number of threads the executor has
+     */
+    protected OrderedEventBuffer(StringContentHandler ch,
+                                 RouteHandler rh,
+                                 ScriptHandler sh,
+                                 ProtoHandler ph,
+                                 Executor executor,
+                                 int threads) {
+        contentHandler = ch;
+        routeHandler = rh;
+        scriptHandler = sh;
+        protoHandler = ph;
+
+        this.executor = executor;
+
+        maxPending = Math.max(2, threads * JOBS_PER_THREAD);
+        queue = new ArrayDeque<>();
+    }
+
+    /**
+     * Create a buffer that takes the same kinds of field values as the
+     * next content handler.
+     *
+     * @param ch The next content handler
+     * @param rh The next route handler, may be null
+     * @param sh The next script handler, may be null
+     * @param ph The next proto handler, may be null
+     * @param executor The threads to run jobs on
+     * @param threads The number of threads the executor has
+     * @return The buffer, or null if the content handler does not take
+     *    string values
+     */
+    public static OrderedEventBuffer create(ContentHandler ch,
+                                            RouteHandler rh,
+                                            ScriptHandler sh,
+                                            ProtoHandler ph,
+                                            Executor executor,
+                                            int threads) {
+
+        if(!(ch instanceof StringContentHandler))
+            return null;
+
+        StringContentHandler sch = (StringContentHandler)ch;
+
+        if(ch instanceof BinaryContentHandler)
+            return new Binary(sch, rh, sh, ph, executor, threads);
+
+        return new OrderedEventBuffer(sch, rh, sh, ph, executor, threads);
+    }
+
+    /**
+     * Get the threads that jobs should be run on, for jobs that are built
+     * from other futures.
+     *
+     * @return The executor of this buffer
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Run some work on the buffer's threads and send its output in place.
+     *
+     * @param work Does the work and returns the code that sends the output
+     */
+    public void submit(Supplier<Runnable> work) {
+        submit(CompletableFuture.supplyAsync(work, executor));
+    }
+
+    /**
+     * Send the output of a job in place, once it has finished. Any other
+     * calls made after this one are held until then.
+     *
+     * @param job The job, which gives the code that sends the output
+     */
+    public void submit(CompletableFuture<Runnable> job) {
+        queue.add(job);
+        numPending++;
+
+        drain(maxPending);
+    }
+
+    /**
+     * Wait for every job and send all the held calls.
+     *
+     * @throws SAVException A held call failed
+     * @throws VRMLException A job or a held call failed
+     */
+    public void flush() throws SAVException, VRMLException {
+        drain(0);
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by ContentHandler
+    //----------------------------------------------------------
+
+    /**
+     * Set the document locator of the next handler. Never held.
+     *
+     * @param loc The locator instance to use
+     */
+    @Override
+    public void setDocumentLocator(Locator loc) {
+        contentHandler.setDocumentLocator(loc);
+    }
+
+    /**
+     * Send or hold the start of the document.
+     */
+    @Override
+    public void startDocument(String uri,
+                              String url,
+                              String encoding,
+                              String type,
+                              String version,
+                              String comment)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.startDocument(uri, url, encoding, type, version, comment);
+        else
+            hold(() ->
+                contentHandler.startDocument(uri, url, encoding, type, version, comment));
+    }
+
+    /**
+     * Send or hold a profile declaration.
+     */
+    @Override
+    public void profileDecl(String profileName)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.profileDecl(profileName);
+        else
+            hold(() -> contentHandler.profileDecl(profileName));
+    }
+
+    /**
+     * Send or hold a component declaration.
+     */
+    @Override
+    public void componentDecl(String componentName)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.componentDecl(componentName);
+        else
+            hold(() -> contentHandler.componentDecl(componentName));
+    }
+
+    /**
+     * Send or hold a META declaration.
+     */
+    @Override
+    public void metaDecl(String key, String value)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.metaDecl(key, value);
+        else
+            hold(() -> contentHandler.metaDecl(key, value));
+    }
+
+    /**
+     * Send or hold an IMPORT declaration.
+     */
+    @Override
+    public void importDecl(String inline, String exported, String imported)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.importDecl(inline, exported, imported);
+        else
+            hold(() -> contentHandler.importDecl(inline, exported, imported));
+    }
+
+    /**
+     * Send or hold an EXPORT declaration.
+     */
+    @Override
+    public void exportDecl(String defName, String exported)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.exportDecl(defName, exported);
+        else
+            hold(() -> contentHandler.exportDecl(defName, exported));
+    }
+
+    /**
+     * Wait for every job, then send the end of the document.
+     */
+    @Override
+    public void endDocument() throws SAVException, VRMLException {
+        flush();
+        contentHandler.endDocument();
+    }
+
+    /**
+     * Send or hold the start of a node.
+     */
+    @Override
+    public void startNode(String name, String defName)
+        throws SAVException, VRMLException {
+
+        if(canSend())
+            contentHandler.startNode(name, defName);
+        else
+            hold(() -> contentHandler.startNode(name, defName));
+    }
+
+    /**
+     * Send or hold the end of a node.
+     */
+    @Override
+    public void endNode() throws SAVException, VRMLException {
+        if(canSend())
+            contentHandler.endNode();
+        else
+            hold(contentHandler::endNode);
+    }
+
+    /**
+     * Send or hold the start of a field.
+     */
+    @Override
+    public void startField(String name) throws SAVException, VRMLException {
+        if(canSend())
+            contentHandler.startField(name);
+        else
+            hold(() -> contentHandler.startField(name));
+    }
+
+    /**
+     * Send or hold a USE declaration.
+     */
+    @Override
+    public void useDecl(String defName) throws SAVException, VRMLException {
+        if(canSend())
+            contentHandler.useDecl(defName);
+        else
+            hold(() -> contentHandler.useDecl(defName));
+    }
+
+    /**
+     * Send or hold the end of a field.
+     */
+    @Override
+    public void endField() throws SAVException, VRMLException {
+        if(canSend())
+            contentHandler.endField();
+        else
+            hold(contentHandler::endField);
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by StringContentHandler
+    //----------------------------------------------------------
+
+    /**
+     * Send or hold a string field value.
+     */
+    @Override
+    public void fieldValue(String value) throws SAVException, VRMLException {
+        if(canSend())
+            contentHandler.fieldValue(value);
+        else
+            hold(() -> contentHandler.fieldValue(value));
+    }
+
+    /**
+     * Send or hold a string array field value.
+     */
+    @Override
+    public void fieldValue(String[] values) throws SAVException, VRMLException {
+        if(canSend()) {
+            contentHandler.fieldValue(values);
+        } else {
+            String[] copy = values.clone();
+            hold(() -> contentHandler.fieldValue(copy));
+        }
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by RouteHandler
+    //----------------------------------------------------------
+
+    /**
+     * Send or hold a ROUTE declaration.
+     */
+    @Override
+    public void routeDecl(String srcNodeName,
+                          String srcFieldName,
+                          String destNodeName,
+                          String destFieldName)
+        throws SAVException, VRMLException {
+
+        if(routeHandler == null)
+            return;
+
+        if(canSend())
+            routeHandler.routeDecl(srcNodeName, srcFieldName, destNodeName, destFieldName);
+        else
+            hold(() ->
+                routeHandler.routeDecl(srcNodeName, srcFieldName, destNodeName, destFieldName));
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by ScriptHandler
+    //----------------------------------------------------------
+
+    /**
+     * Send or hold the start of a script.
+     */
+    @Override
+    public void startScriptDecl() throws SAVException, VRMLException {
+        if(scriptHandler == null)
+            return;
+
+        if(canSend())
+            scriptHandler.startScriptDecl();
+        else
+            hold(scriptHandler::startScriptDecl);
+    }
+
+    /**
+     * Send or hold the end of a script.
+     */
+    @Override
+    public void endScriptDecl() throws SAVException, VRMLException {
+        if(scriptHandler == null)
+            return;
+
+        if(canSend())
+            scriptHandler.endScriptDecl();
+        else
+            hold(scriptHandler::endScriptDecl);
+    }
+
+    /**
+     * Send or hold a script field declaration.
+     */
+    @Override
+    public void scriptFieldDecl(int access,
+                                String type,
+                                String name,
+                                Object value)
+        throws SAVException, VRMLException {
+
+        if(scriptHandler == null)
+            return;
+
+        if(canSend())
+            scriptHandler.scriptFieldDecl(access, type, name, value);
+        else
+            hold(() ->
+                scriptHandler.scriptFieldDecl(access, type, name, value));
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by ProtoHandler
+    //----------------------------------------------------------
+
+    /**
+     * Send or hold the start of a proto declaration.
+     */
+    @Override
+    public void startProtoDecl(String name) throws SAVException, VRMLException {
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.startProtoDecl(name);
+        else
+            hold(() -> protoHandler.startProtoDecl(name));
+    }
+
+    /**
+     * Send or hold the end of a proto declaration.
+     */
+    @Override
+    public void endProtoDecl() throws SAVException, VRMLException {
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.endProtoDecl();
+        else
+            hold(protoHandler::endProtoDecl);
+    }
+
+    /**
+     * Send or hold a proto field declaration.
+     */
+    @Override
+    public void protoFieldDecl(int access,
+                               String type,
+                               String name,
+                               Object value)
+        throws SAVException, VRMLException {
+
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.protoFieldDecl(access, type, name, value);
+        else
+            hold(() ->
+                protoHandler.protoFieldDecl(access, type, name, value));
+    }
+
+    /**
+     * Send or hold an IS declaration.
+     */
+    @Override
+    public void protoIsDecl(String fieldName) throws SAVException, VRMLException {
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.protoIsDecl(fieldName);
+        else
+            hold(() -> protoHandler.protoIsDecl(fieldName));
+    }
+
+    /**
+     * Send or hold the start of a proto body.
+     */
+    @Override
+    public void startProtoBody() throws SAVException, VRMLException {
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.startProtoBody();
+        else
+            hold(protoHandler::startProtoBody);
+    }
+
+    /**
+     * Send or hold the end of a proto body.
+     */
+    @Override
+    public void endProtoBody() throws SAVException, VRMLException {
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.endProtoBody();
+        else
+            hold(protoHandler::endProtoBody);
+    }
+
+    /**
+     * Send or hold the start of an EXTERNPROTO declaration.
+     */
+    @Override
+    public void startExternProtoDecl(String name)
+        throws SAVException, VRMLException {
+
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.startExternProtoDecl(name);
+        else
+            hold(() -> protoHandler.startExternProtoDecl(name));
+    }
+
+    /**
+     * Send or hold the end of an EXTERNPROTO declaration.
+     */
+    @Override
+    public void endExternProtoDecl() throws SAVException, VRMLException {
+        if(protoHandler == null)
+            return;
+
+        if(canSend())
+            protoHandler.endExternProtoDecl();
+        else
+            hold(protoHandler::endExternProtoDecl);
+    }
+
+    /**
+     * Send or hold the URIs of an EXTERNPROTO declaration.
+     */
+    @Override
+    public void externProtoURI(String[] values)
+        throws SAVException, VRMLException {
+
+        if(protoHandler == null)
+            return;
+
+        if(canSend()) {
+            protoHandler.externProtoURI(values);
+        } else {
+            String[] copy = values.clone();
+            hold(() -> protoHandler.externProtoURI(copy));
+        }
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Check to see if a call can go straight to the next handler. Sends on
+     * any finished jobs at the head of the buffer first.
+     *
+     * @return true if nothing is waiting to be sent
+     */
+    protected boolean canSend() {
+        if(sending || queue.isEmpty())
+            return true;
+
+        drain(Integer.MAX_VALUE);
+
+        return queue.isEmpty();
+    }
+
+    /**
+     * Hold a call until the jobs before it have been sent.
+     *
+     * @param call The call to make
+     */
+    protected void hold(Runnable call) {
+        queue.add(call);
+    }
+
+    /**
+     * Send the head of the buffer for as long as the head is a held call or
+     * a finished job. Unfinished jobs are waited for while there are more
+     * than the given number of them.
+     *
+     * @param maxJobs The number of unfinished jobs that may be left
+     */
+    @SuppressWarnings("unchecked")
+    private void drain(int maxJobs) {
+        Object head;
+
+        while((head = queue.peek()) != null) {
+            if(head instanceof CompletableFuture) {
+                CompletableFuture<Runnable> job = (CompletableFuture<Runnable>)head;
+
+                if(numPending <= maxJobs && !job.isDone())
+                    return;
+
+                Runnable output = getOutput(job);
+
+                queue.poll();
+                numPending--;
+
+                sending = true;
+                try {
+                    output.run();
+                } finally {
+                    sending = false;
+                }
+            } else {
+                queue.poll();
+                ((Runnable)head).run();
+            }
+        }
+    }
+
+    /**
+     * Wait for a job and get its output, passing on anything it threw.
+     *
+     * @param job The job to wait for
+     * @return The code that sends the output of the job
+     */
+    private static Runnable getOutput(CompletableFuture<Runnable> job) {
+        try {
+            return job.join();
+        } catch(CompletionException ce) {
+            Throwable cause = ce.getCause();
+
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+
+            if(cause instanceof Error)
+                throw (Error)cause;
+
+            throw ce;
+        }
+    }
+
+    /**
+     * A buffer for a next handler that also takes binary field values.
+     */
+    private static class Binary extends OrderedEventBuffer
+        implements BinaryContentHandler {
+
+        /** The next handler for binary values */
+        private final BinaryContentHandler binaryHandler;
+
+        /**
+         * Create a buffer in front of the given handlers.
+         */
+        Binary(StringContentHandler ch,
+               RouteHandler rh,
+               ScriptHandler sh,
+               ProtoHandler ph,
+               Executor executor,
+               int threads) {
+
+            super(ch, rh, sh, ph, executor, threads);
+
+            binaryHandler = (BinaryContentHandler)ch;
+        }
+
+        /**
+         * Send or hold an integer field value.
+         */
+        @Override
+        public void fieldValue(int value) throws SAVException, VRMLException {
+            if(canSend())
+                binaryHandler.fieldValue(value);
+            else
+                hold(() -> binaryHandler.fieldValue(value));
+        }
+
+        /**
+         * Send or hold an integer array field value.
+         */
+        @Override
+        public void fieldValue(int[] value, int len)
+            throws SAVException, VRMLException {
+
+            if(canSend()) {
+                binaryHandler.fieldValue(value, len);
+            } else {
+                int[] copy = Arrays.copyOf(value, len);
+                hold(() -> binaryHandler.fieldValue(copy, len));
+            }
+        }
+
+        /**
+         * Send or hold a boolean field value.
+         */
+        @Override
+        public void fieldValue(boolean value)
+            throws SAVException, VRMLException {
+
+            if(canSend())
+                binaryHandler.fieldValue(value);
+            else
+                hold(() -> binaryHandler.fieldValue(value));
+        }
+
+        /**
+         * Send or hold a boolean array field value.
+         */
+        @Override
+        public void fieldValue(boolean[] value, int len)
+            throws SAVException, VRMLException {
+
+            if(canSend()) {
+                binaryHandler.fieldValue(value, len);
+            } else {
+                boolean[] copy = Arrays.copyOf(value, len);
+                hold(() -> binaryHandler.fieldValue(copy, len));
+            }
+        }
+
+        /**
+         * Send or hold a float field value.
+         */
+        @Override
+        public void fieldValue(float value) throws SAVException, VRMLException {
+            if(canSend())
+                binaryHandler.fieldValue(value);
+            else
+                hold(() -> binaryHandler.fieldValue(value));
+        }
+
+        /**
+         * Send or hold a float array field value.
+         */
+        @Override
+        public void fieldValue(float[] value, int len)
+            throws SAVException, VRMLException {
+
+            if(canSend()) {
+                binaryHandler.fieldValue(value, len);
+            } else {
+                float[] copy = Arrays.copyOf(value, len);
+                hold(() -> binaryHandler.fieldValue(copy, len));
+            }
+        }
+
+        /**
+         * Send or hold a long field value.
+         */
+        @Override
+        public void fieldValue(long value) throws SAVException, VRMLException {
+            if(canSend())
+                binaryHandler.fieldValue(value);
+            else
+                hold(() -> binaryHandler.fieldValue(value));
+        }
+
+        /**
+         * Send or hold a long array field value.
+         */
+        @Override
+        public void fieldValue(long[] value, int len)
+            throws SAVException, VRMLException {
+
+            if(canSend()) {
+                binaryHandler.fieldValue(value, len);
+            } else {
+                long[] copy = Arrays.copyOf(value, len);
+                hold(() -> binaryHandler.fieldValue(copy, len));
+            }
+        }
+
+        /**
+         * Send or hold a double field value.
+         */
+        @Override
+        public void fieldValue(double value) throws SAVException, VRMLException {
+            if(canSend())
+                binaryHandler.fieldValue(value);
+            else
+                hold(() -> binaryHandler.fieldValue(value));
+        }
+
+        /**
+         * Send or hold a double array field value.
+         */
+        @Override
+        public void fieldValue(double[] value, int len)
+            throws SAVException, VRMLException {
+
+            if(canSend()) {
+                binaryHandler.fieldValue(value, len);
+            } else {
+                double[] copy = Arrays.copyOf(value, len);
+                hold(() -> binaryHandler.fieldValue(copy, len));
+            }
+        }
+
+        /**
+         * Send or hold a string array field value with a length.
+         */
+        @Override
+        public void fieldValue(String[] value, int len)
+            throws SAVException, VRMLException {
+
+            if(canSend()) {
+                binaryHandler.fieldValue(value, len);
+            } else {
+                String[] copy = Arrays.copyOf(value, len);
+                hold(() -> binaryHandler.fieldValue(copy, len));
+            }
+        }
+    }
+}
@@ -30,7 +30,7 @@ import org.j3d.util.IntHashMap;
  * coordinate array. Used with the ReindexFilter.
  *
  * @author Rex Melton
- * @version $Revision: 1.7 $
+ * @version $Revision: 1.8 $
  */
 class CoordinateProcessor {
 
@@ -124,6 +124,19 @@ class CoordinateProcessor {
                 replacement[i] = i;
             }
             num_vertex -= sortedDupes.length;
+
+            // complete the initialization of the replacement indices array,
+            // here rather than per index array so that the processor is not
+            // changed by processIndices() and can be shared between threads
+            int[] key_idx = indexMap.keySet();
+            for (int i = 0; i < key_idx.length; i++) {
+                int key = key_idx[i];
+
+                Set<Integer> redundants = indexMap.get(key);
+                for (int idx : redundants) {
+                    replacement[idx] = key;
+                }
+            }
         }
 
         long end_time = System.currentTimeMillis();
@@ -169,19 +182,6 @@ class CoordinateProcessor {
 
         long start_time = System.currentTimeMillis();
 
-        // complete the initialization of the replacement indices array
-        int[] key_idx = indexMap.keySet();
-        int key;
-        Set<Integer> redundants;
-        for (int i = 0; i < key_idx.length; i++) {
-            key = key_idx[i];
-
-            redundants = indexMap.get(key);
-            for (int idx : redundants) {
-                replacement[idx] = key;
-            }
-        }
-
         // walk through the array of indices
         int orig_value;
         int rep_value;
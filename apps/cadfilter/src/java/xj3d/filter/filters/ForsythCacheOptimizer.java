@@ -12,7 +12,11 @@
 
 package xj3d.filter.filters;
 
-import java.util.ArrayList;
+// External imports
+import java.util.Arrays;
+
+// Local imports
+// None
 
 /**
  * Vertex cache optimization.  Order vertices in the best order to
@@ -20,6 +24,11 @@ import java.util.ArrayList;
  *
  * Uses Forsyth method.  See this posting about it:
  *    http://home.comcast.net/~tom_forsyth/papers/fast_vert_cache_opt.html
+ * <p>
+ *
+ * The per vertex state is held in plain int and float arrays, and the score
+ * tables are shared, so an instance holds no state between calls and may be
+ * used from several threads at once.
  */
 public class ForsythCacheOptimizer {
 	private static final float CACHE_DECAY_POWER = 1.5f;
@@ -27,17 +36,42 @@ public class ForsythCacheOptimizer {
 	private static final float VALENCE_BOOST_SCALE = 2.0f;
 	private static final float VALENCE_BOOST_POWER = 0.5f;
 
-	private int kMaxVertexCacheSize = 64;
-	private int kMaxPrecomputedVertexValenceScores = 64;
-	private float[][] s_vertexCacheScores = new float[kMaxVertexCacheSize+1][kMaxVertexCacheSize];
-	private float[] s_vertexValenceScores = new float[kMaxPrecomputedVertexValenceScores];
+	/** The largest simulated cache size */
+	private static final int MAX_VERTEX_CACHE_SIZE = 64;
+
+	/** The number of face counts that have a precomputed valence score */
+	private static final int MAX_PRECOMPUTED_VALENCE_SCORES = 64;
+
+	/** Cache position of a vertex that is not in the cache */
+	private static final int EVICTED_CACHE_INDEX = Integer.MAX_VALUE;
+
+	/** Score for each position of each size of cache */
+	private static final float[][] VERTEX_CACHE_SCORES =
+		new float[MAX_VERTEX_CACHE_SIZE + 1][MAX_VERTEX_CACHE_SIZE];
+
+	/** Score for each small number of faces still to use a vertex */
+	private static final float[] VERTEX_VALENCE_SCORES =
+		new float[MAX_PRECOMPUTED_VALENCE_SCORES];
+
+	static {
+		for (int cacheSize = 0; cacheSize <= MAX_VERTEX_CACHE_SIZE; ++cacheSize) {
+			for (int cachePos = 0; cachePos < cacheSize; ++cachePos) {
+				VERTEX_CACHE_SCORES[cacheSize][cachePos] =
+					computeVertexCacheScore(cachePos, cacheSize);
+			}
+		}
+
+		for (int valence = 0; valence < MAX_PRECOMPUTED_VALENCE_SCORES; ++valence) {
+			VERTEX_VALENCE_SCORES[valence] = computeVertexValenceScore(valence);
+		}
+	}
 
 	/**
-	 * Cmputer the vertex cache score.
+	 * Compute the vertex cache score.
 	 * Code for computing vertex score was taken, as much as possible
 	 * directly from the original publication(Bogomjakov and Hoppe).
 	 */
-	private float computeVertexCacheScore(int cachePosition, int vertexCacheSize) {
+	private static float computeVertexCacheScore(int cachePosition, int vertexCacheSize) {
 		float score = 0.0f;
 
 		if (cachePosition < 0) {
@@ -61,7 +95,7 @@ public class ForsythCacheOptimizer {
 		return score;
 	}
 
-	private float computeVertexValenceScore(int numActiveFaces) {
+	private static float computeVertexValenceScore(int numActiveFaces) {
 		float score = 0.f;
 
 		// Bonus points for having a low number of tris still to
@@ -72,15 +106,7 @@ public class ForsythCacheOptimizer {
 		return score;
 	}
 
-	private float findVertexCacheScore(int cachePosition, int maxSizeVertexCache) {
-		return s_vertexCacheScores[maxSizeVertexCache][cachePosition];
-	}
-
-	private float findVertexValenceScore(int numActiveTris) {
-		return s_vertexValenceScores[numActiveTris];
-	}
-
-	private float findVertexScore(int numActiveFaces, int cachePosition, int vertexCacheSize) {
+	private static float findVertexScore(int numActiveFaces, int cachePosition, int vertexCacheSize) {
 		if (numActiveFaces == 0) {
 			// No tri needs this vertex!
 			return -1.0f;
@@ -89,11 +115,11 @@ public class ForsythCacheOptimizer {
 		float score = 0.f;
 
 		if (cachePosition < vertexCacheSize) {
-			score += s_vertexCacheScores[vertexCacheSize][cachePosition];
+			score += VERTEX_CACHE_SCORES[vertexCacheSize][cachePosition];
 		}
 
-		if (numActiveFaces < kMaxPrecomputedVertexValenceScores) {
-			score += s_vertexValenceScores[numActiveFaces];
+		if (numActiveFaces < MAX_PRECOMPUTED_VALENCE_SCORES) {
+			score += VERTEX_VALENCE_SCORES[numActiveFaces];
 		} else {
 			score += computeVertexValenceScore(numActiveFaces);
 		}
@@ -104,251 +130,205 @@ public class ForsythCacheOptimizer {
 	/**
 	 * Optimize faces.
 	 *
-     * @param indexList input index list
-     * @param indexCount the number of indices in the list
-     * @param vertexCount the largest index value in indexList
-     * @param newIndexList  preallocated buffer the same size as indexList to hold the optimized index list
-     * @param lruCacheSize  the size of the simulated post-transform cache (max:64)
-     */
-    public void optimizeFaces(int[] indexList, int indexCount, int vertexCount, int[] newIndexList, int lruCacheSize) {
-
-		for (int cacheSize=0; cacheSize <= kMaxVertexCacheSize; ++cacheSize) {
-			for (int cachePos=0; cachePos<cacheSize; ++cachePos) {
-				s_vertexCacheScores[cacheSize][cachePos] = computeVertexCacheScore(cachePos, cacheSize);
-			}
+	 * @param indexList input index list
+	 * @param indexCount the number of indices in the list
+	 * @param vertexCount the largest index value in indexList
+	 * @param newIndexList  preallocated buffer the same size as indexList to hold the optimized index list
+	 * @param lruCacheSize  the size of the simulated post-transform cache (max:64)
+	 */
+	public void optimizeFaces(int[] indexList, int indexCount, int vertexCount, int[] newIndexList, int lruCacheSize) {
+
+		float[] score = new float[vertexCount];
+		int[] activeFaceStart = new int[vertexCount];
+		int[] activeFaceSize = new int[vertexCount];
+		int[] cachePos0 = new int[vertexCount];
+		int[] cachePos1 = new int[vertexCount];
+
+		// compute face count per vertex
+		for (int i = 0; i < indexCount; ++i) {
+			activeFaceSize[indexList[i]]++;
 		}
 
-		for (int valence=0; valence < kMaxPrecomputedVertexValenceScores; ++valence) {
-			s_vertexValenceScores[valence] = computeVertexValenceScore(valence);
+		// allocate face list per vertex
+		int curActiveFaceListPos = 0;
+		for (int i = 0; i < vertexCount; ++i) {
+			cachePos0[i] = EVICTED_CACHE_INDEX;
+			cachePos1[i] = EVICTED_CACHE_INDEX;
+			activeFaceStart[i] = curActiveFaceListPos;
+			curActiveFaceListPos += activeFaceSize[i];
+			score[i] = findVertexScore(activeFaceSize[i], cachePos0[i], lruCacheSize);
+			activeFaceSize[i] = 0;
 		}
 
-		ArrayList<OptimizeVertexData> vertexDataList = new ArrayList<>(vertexCount);
+		int[] activeFaceList = new int[curActiveFaceListPos];
 
-		for(int i=0; i < vertexCount; i++) {
-			vertexDataList.add(new OptimizeVertexData());
+		// fill out face list per vertex
+		for (int i = 0; i < indexCount; i += 3) {
+			for (int j = 0; j < 3; ++j) {
+				int index = indexList[i + j];
+				activeFaceList[activeFaceStart[index] + activeFaceSize[index]] = i;
+				activeFaceSize[index]++;
+			}
 		}
 
-        // compute face count per vertex
-        for (int i=0; i<indexCount; ++i)
-        {
-            int index = indexList[i];
-            OptimizeVertexData vertexData = vertexDataList.get(index);
-            vertexData.activeFaceListSize++;
-        }
+		// processed flag per face, by the position of its first index
+		boolean[] processedFaceList = new boolean[indexCount];
 
-        int kEvictedCacheIndex = Integer.MAX_VALUE;
+		// every face before this one has been processed
+		int firstUnprocessed = 0;
 
-		// allocate face list per vertex
-		int curActiveFaceListPos = 0;
-		for (int i=0; i < vertexCount; ++i) {
-			OptimizeVertexData vertexData = vertexDataList.get(i);
-			vertexData.cachePos0 = kEvictedCacheIndex;
-			vertexData.cachePos1 = kEvictedCacheIndex;
-			vertexData.activeFaceListStart = curActiveFaceListPos;
-			curActiveFaceListPos += vertexData.activeFaceListSize;
-			vertexData.score = findVertexScore(vertexData.activeFaceListSize, vertexData.cachePos0, lruCacheSize);
-			vertexData.activeFaceListSize = 0;
-		}
+		int[] cache0 = new int[MAX_VERTEX_CACHE_SIZE + 3];
+		int[] cache1 = new int[MAX_VERTEX_CACHE_SIZE + 3];
 
-		ArrayList<Integer> activeFaceList = new ArrayList<>(curActiveFaceListPos);
+		int entriesInCache0 = 0;
 
-		for(int i=0; i < curActiveFaceListPos; i++) {
-			activeFaceList.add(0);
-		}
+		int bestFace = 0;
+		float bestScore = -1.0f;
 
-        // fill out face list per vertex
-        for (int i=0; i < indexCount; i += 3) {
-            for (int j=0; j < 3; ++j) {
-                int index = indexList[i+j];
-                OptimizeVertexData vertexData = vertexDataList.get(index);
-                activeFaceList.set(vertexData.activeFaceListStart + vertexData.activeFaceListSize,i);
-                vertexData.activeFaceListSize++;
-            }
-        }
+		float maxValenceScore = findVertexScore(1, EVICTED_CACHE_INDEX, lruCacheSize) * 3.f;
 
+		for (int i = 0; i < indexCount; i += 3) {
+			if (bestScore < 0.f) {
+				// no verts in the cache are used by any unprocessed faces so
+				// search all unprocessed faces for a new starting point
+				while (firstUnprocessed < indexCount && processedFaceList[firstUnprocessed]) {
+					firstUnprocessed += 3;
+				}
 
-		ArrayList<Integer> processedFaceList = new ArrayList<>(indexCount);
+				for (int face = firstUnprocessed; face < indexCount; face += 3) {
+					if (!processedFaceList[face]) {
+						float faceScore = score[indexList[face]] +
+							score[indexList[face + 1]] +
+							score[indexList[face + 2]];
 
-		for(int i=0; i < indexCount; i++) {
-			processedFaceList.add(0);
-		}
+						if (faceScore > bestScore) {
+							bestScore = faceScore;
+							bestFace = face;
 
-		int[] cache0 = new int[(kMaxVertexCacheSize+3)];
-		int[] cache1 = new int[(kMaxVertexCacheSize+3)];
-
-        int entriesInCache0 = 0;
-
-        int bestFace = 0;
-        float bestScore = -1.0f;
-
-        float maxValenceScore = findVertexScore(1, kEvictedCacheIndex, lruCacheSize) * 3.f;
-
-        for (int i = 0; i < indexCount; i += 3) {
-            if (bestScore < 0.f) {
-                // no verts in the cache are used by any unprocessed faces so
-                // search all unprocessed faces for a new starting point
-                for (int j = 0; j < indexCount; j += 3) {
-                    if (processedFaceList.get(j) == 0) {
-                        int face = j;
-                        float faceScore = 0.f;
-                        for (int k=0; k < 3; ++k) {
-                            int index = indexList[face+k];
-                            OptimizeVertexData vertexData = vertexDataList.get(index);
-                            faceScore += vertexData.score;
-                        }
-
-                        if (faceScore > bestScore) {
-                            bestScore = faceScore;
-                            bestFace = face;
-
-                            if (bestScore >= maxValenceScore) {
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-
-//System.out.println("bestScore: " + bestScore + " bestFace: " + bestFace);
-            processedFaceList.set(bestFace, 1);
-//printList("processed face list", processedFaceList);
-            int entriesInCache1 = 0;
-
-            // add bestFace to LRU cache and to newIndexList
-            for (int v = 0; v < 3; ++v) {
-                int index = indexList[bestFace + v];
-                newIndexList[i+v] = index;
-
-                OptimizeVertexData vertexData = vertexDataList.get(index);
-
-                if (vertexData.cachePos1 >= entriesInCache1) {
-					//System.out.println("Add index: " + index + " to cache pos " + entriesInCache1);
-
-                    vertexData.cachePos1 = entriesInCache1;
-                    cache1[entriesInCache1++] = index;
-
-/*
-System.out.println("VertexCache0:");
-for(int ii=0; ii < entriesInCache0; ii++) {
-   System.out.print(cache0[ii] + " ");
-}
+							if (bestScore >= maxValenceScore) {
+								break;
+							}
+						}
+					}
+				}
+			}
 
-System.out.println("\nVertexCache1:");
-for(int ii=0; ii < entriesInCache1; ii++) {
-   System.out.print(cache1[ii] + " ");
-}
-System.out.println();
-*/
-                    if (vertexData.activeFaceListSize == 1) {
-//System.out.println ("dec activeFaceList");
-                        --vertexData.activeFaceListSize;
-                        continue;
-                    }
-                }
-
-//printList("active face list1", activeFaceList);
-
-//System.out.println("best face: " + bestFace);
-				int start = vertexData.activeFaceListStart;
-				int end = vertexData.activeFaceListStart + vertexData.activeFaceListSize;
+			processedFaceList[bestFace] = true;
+			int entriesInCache1 = 0;
+
+			// add bestFace to LRU cache and to newIndexList
+			for (int v = 0; v < 3; ++v) {
+				int index = indexList[bestFace + v];
+				newIndexList[i + v] = index;
+
+				if (cachePos1[index] >= entriesInCache1) {
+					cachePos1[index] = entriesInCache1;
+					cache1[entriesInCache1++] = index;
+
+					if (activeFaceSize[index] == 1) {
+						--activeFaceSize[index];
+						continue;
+					}
+				}
+
+				// remove bestFace from the vertex's active faces by swapping
+				// it with the last one
+				int start = activeFaceStart[index];
+				int end = start + activeFaceSize[index];
 				int found = -1;
 
-				for(int j=start; j < end; j++) {
-					if (activeFaceList.get(j) == bestFace) {
+				for (int j = start; j < end; j++) {
+					if (activeFaceList[j] == bestFace) {
 						found = j;
 						break;
 					}
 				}
 
-//System.out.println("best face found at: " + found);
-				int tmp = activeFaceList.get(found);
-//System.out.println("***swap: " + found + " end: " + end + " tmp: " + tmp);
-
-				activeFaceList.set(found, activeFaceList.get(end-1));
-				activeFaceList.set(end-1, tmp);
-//printList("active face list2", activeFaceList);
-
-                --vertexData.activeFaceListSize;
-                vertexData.score = findVertexScore(vertexData.activeFaceListSize, vertexData.cachePos1, lruCacheSize);
-
-            }
-
-            // move the rest of the old verts in the cache down and compute their new scores
-            for (int c0 = 0; c0 < entriesInCache0; ++c0) {
-                int index = cache0[c0];
-                OptimizeVertexData vertexData = vertexDataList.get(index);
-
-                if (vertexData.cachePos1 >= entriesInCache1) {
-                    vertexData.cachePos1 = entriesInCache1;
-                    cache1[entriesInCache1++] = index;
-                    vertexData.score = findVertexScore(vertexData.activeFaceListSize, vertexData.cachePos1, lruCacheSize);
-                }
-            }
-
-            // find the best scoring triangle in the current cache (including up to 3 that were just evicted)
-            bestScore = -1.f;
-            for (int c1 = 0; c1 < entriesInCache1; ++c1) {
-                int index = cache1[c1];
-                OptimizeVertexData vertexData = vertexDataList.get(index);
-                vertexData.cachePos0 = vertexData.cachePos1;
-                vertexData.cachePos1 = kEvictedCacheIndex;
-                for (int j=0; j < vertexData.activeFaceListSize; ++j) {
-                    int face = activeFaceList.get(vertexData.activeFaceListStart + j);
-                    float faceScore = 0.f;
-                    for (int v=0; v < 3; v++) {
-                        int faceIndex = indexList[face+v];
-                        OptimizeVertexData faceVertexData = vertexDataList.get(faceIndex);
-                        faceScore += faceVertexData.score;
-                    }
-
-                    if (faceScore > bestScore) {
-                        bestScore = faceScore;
-                        bestFace = face;
-                    }
-                }
-            }
-
+				activeFaceList[found] = activeFaceList[end - 1];
+				activeFaceList[end - 1] = bestFace;
 
-			// swap cache0 and cache1
-			// todo: dont realloc
-			int len = cache0.length;
-			int[] tmpCache = new int[len];
-			for(int j=0; j < len; j++) {
-				tmpCache[j] = cache1[j];
+				--activeFaceSize[index];
+				score[index] = findVertexScore(activeFaceSize[index], cachePos1[index], lruCacheSize);
 			}
-			for(int j=0; j < len; j++) {
-				cache1[j] = cache0[j];
+
+			// move the rest of the old verts in the cache down and compute their new scores
+			for (int c0 = 0; c0 < entriesInCache0; ++c0) {
+				int index = cache0[c0];
+
+				if (cachePos1[index] >= entriesInCache1) {
+					cachePos1[index] = entriesInCache1;
+					cache1[entriesInCache1++] = index;
+					score[index] = findVertexScore(activeFaceSize[index], cachePos1[index], lruCacheSize);
+				}
 			}
 
-			for(int j=0; j < len; j++) {
-				cache0[j] = tmpCache[j];
+			// find the best scoring triangle in the current cache (including up to 3 that were just evicted)
+			bestScore = -1.f;
+			for (int c1 = 0; c1 < entriesInCache1; ++c1) {
+				int index = cache1[c1];
+				cachePos0[index] = cachePos1[index];
+				cachePos1[index] = EVICTED_CACHE_INDEX;
+
+				int start = activeFaceStart[index];
+				int end = start + activeFaceSize[index];
+
+				for (int j = start; j < end; ++j) {
+					int face = activeFaceList[j];
+					float faceScore = score[indexList[face]] +
+						score[indexList[face + 1]] +
+						score[indexList[face + 2]];
+
+					if (faceScore > bestScore) {
+						bestScore = faceScore;
+						bestFace = face;
+					}
+				}
 			}
 
-            entriesInCache0 = Math.min(entriesInCache1, lruCacheSize);
-        }
-    }
+			// swap cache0 and cache1
+			int[] tmpCache = cache0;
+			cache0 = cache1;
+			cache1 = tmpCache;
 
-    private void printList(String st, ArrayList list) {
-    	System.out.println("Printing list: " + st + " len: " + list.size());
-            for (Object list1 : list) {
-                System.out.print(list1 + " ");
-            }
-    	System.out.println();
-    }
+			entriesInCache0 = Math.min(entriesInCache1, lruCacheSize);
+		}
+	}
 
-}
+	/**
+	 * Work out the average cache miss ratio of an index list: the number of
+	 * vertices that miss a FIFO post transform cache, per triangle.
+	 *
+	 * @param index The index list, three per triangle
+	 * @param len The number of valid entries in the index list
+	 * @param cacheSize The size of the simulated cache
+	 * @return The number of misses per triangle, 0 if there are no triangles
+	 */
+	public static float calculateACMR(int[] index, int len, int cacheSize) {
+		int numTriangles = len / 3;
+		if (numTriangles == 0)
+			return 0;
+
+		int maxIndex = 0;
+		for (int i = 0; i < len; i++) {
+			maxIndex = Math.max(maxIndex, index[i]);
+		}
 
-class OptimizeVertexData {
-	public float   score;
-	public int activeFaceListStart;
-	public int activeFaceListSize;
-	public int cachePos0;
-	public int cachePos1;
-
-	public OptimizeVertexData() {
-		score = 0f;
-		activeFaceListStart = 0;
-		cachePos0 = 0;
-		cachePos1 = 0;
+		// the time each vertex last entered the cache, -1 if it never has
+		long[] entered = new long[maxIndex + 1];
+		Arrays.fill(entered, -1);
+
+		long misses = 0;
+
+		for (int i = 0; i < len; i++) {
+			int idx = index[i];
+			long time = entered[idx];
+
+			if (time < 0 || misses - time >= cacheSize) {
+				entered[idx] = misses;
+				misses++;
+			}
+		}
+
+		return misses / (float)numTriangles;
 	}
-};
+}
@@ -14,6 +14,7 @@ package xj3d.filter.filters;
 
 // External imports
 import java.util.*;
+import java.util.function.Supplier;
 
 // Local imports
 import org.web3d.vrml.sav.SAVException;
@@ -28,11 +29,16 @@ import xj3d.filter.node.*;
  * Converts a IndexedFaceSet to an IndexedTriangleSet if it can.  Otherwise
  * it will stay as an IFS.
  *
- * Right now this code assumes the IFS is all triangles.  Later versions will
- * actually triangulate the code for you.  Must have trailing -1 on coordIndex.
+ * Polygons are split into fans of triangles, which are then reordered for
+ * the post transform vertex cache.
+ * <p>
+ *
+ * With the <code>-pipeline</code> argument the triangulation and reordering
+ * of each node is done on a pool of threads, while the output keeps the
+ * order of the input.
  *
  * @author Alan Hudson
- * @version $Revision: 1.6 $
+ * @version $Revision: 1.7 $
  */
 public class IFSToITSFilter extends EncodedBaseFilter {
 	/** Flag indicating that we are processing a node that requires translation */
@@ -59,6 +65,40 @@ public class IFSToITSFilter extends EncodedBaseFilter {
 	// Methods defined by ContentHandler
 	//----------------------------------------------------------
 
+	/**
+	 * Declaration of the start of the document. The parameters are all of the
+	 * values that are declared on the header line of the file after the
+	 * <CODE>#</CODE> start. The type string contains the representation of
+	 * the first few characters of the file after the #. This allows us to
+	 * work out if it is VRML97 or the later X3D spec.
+	 *
+	 * @param uri The URI of the file.
+	 * @param url The base URL of the file for resolving relative URIs
+	 *    contained in the file
+	 * @param encoding The encoding of this document - utf8 or binary
+	 * @param type The bytes of the first part of the file header
+	 * @param version The VRML version of this document
+	 * @param comment Any trailing text on this line. If there is none, this
+	 *    is null.
+	 * @throws SAVException This call is taken at the wrong time in the
+	 *   structure of the document
+	 * @throws VRMLException The content provided is invalid for this
+	 *   part of the document or can't be parsed
+	 */
+	@Override
+	public void startDocument(String uri,
+		String url,
+		String encoding,
+		String type,
+		String version,
+		String comment)
+		throws SAVException, VRMLException {
+
+		startOrderedOutput();
+
+		super.startDocument(uri, url, encoding, type, version, comment);
+	}
+
 	/**
 	 * Notification of the start of a node. This is the opening statement of a
 	 * node and it's DEF name. USE declarations are handled in a separate
@@ -121,180 +161,225 @@ public class IFSToITSFilter extends EncodedBaseFilter {
 				// clean up the super's state (before enabling again)
 				super.endNode();
 
-				int[] coordIndex = ifs.coordIndex;
-				int[] normalIndex = ifs.normalIndex;
-				int[] texCoordIndex = ifs.texCoordIndex;
-				Coordinate coord = (Coordinate)ifs.getCoordinate();
-				Normal normal = (Normal)ifs.getNormal();
-				TextureCoordinate texCoord = (TextureCoordinate)ifs.getTextureCoordinate();
-
-				int idx = 0;
-				int[] index = null;
-
-				if (coordIndex != null) {
-
-					int len = coordIndex.length;
-					index = new int[len];
-
-					int p1, p2;
-					int start = coordIndex[0];
-					for (int i = 0; i < len; i++) {
-
-						if (i + 2 >= len) {
-							break;
-						}
-						p1 = coordIndex[i + 1];
-						p2 = coordIndex[i + 2];
-
-
-						if (p1 == -1) {
-							start = p2;
-						}
-						if (p2 == -1) {
-							if (i + 3 >= len) {
-								break;
-							}
-							start = coordIndex[i + 3];
-							i = i + 2;
-							continue;
-						}
-
-						index[idx++] = start;
-						index[idx++] = p1;
-						index[idx++] = p2;
-					}
-				}
+				convert(ifs);
 
-				boolean reorder = true;
+				// return to 'idle' mode
+				intercept = false;
+				encode(false);
+				suppressCalls(false);
+			} else {
+				super.endNode();
+			}
+		} else if (interceptCoordinate) {
+			// a coordinate node outside the scope of an ifs has ended,
+			// stop encoding
+			interceptCoordinate = false;
+			encode(false);
+			super.endNode();
 
-				if (ifs.normalPerVertex != true || ifs.colorPerVertex != true) {
-					reorder = false;
-				}
+		} else {
+            super.endNode();
+        }
+	}
 
-				if (normal != null && normal.defName != null) {
-					if (findUSE(normal.defName))
-						reorder = false;
-				}
+	/**
+	 * Convert the IndexedFaceSet to an IndexedTriangleSet and send it on, or
+	 * send it on as it is if it can't be converted. The triangulation and
+	 * reordering are done on a pipeline thread if there is one.
+	 *
+	 * @param ifs The node to convert
+	 */
+	private void convert(IndexedFaceSet ifs) {
 
-				if (texCoord != null && texCoord.defName != null) {
-					if (findUSE(texCoord.defName))
-						reorder = false;
-				}
+		Coordinate coord = (Coordinate)ifs.getCoordinate();
+		Normal normal = (Normal)ifs.getNormal();
+		TextureCoordinate texCoord = (TextureCoordinate)ifs.getTextureCoordinate();
 
-				//calcACMR(index, idx, cacheLength);
+		boolean reorder = true;
 
-				if (reorder) {
-					reorderIndexForCacheCoherency(index, idx, coord.point, cacheLength);
+		if (ifs.normalPerVertex != true || ifs.colorPerVertex != true) {
+			reorder = false;
+		}
 
-					//calcACMR(index, idx, cacheLength);
+		if (ifs.coordIndex == null || coord == null || coord.point == null) {
+			reorder = false;
+		}
 
-					Normal newNormal = null;
+		if (normal != null && normal.defName != null) {
+			if (findUSE(normal.defName))
+				reorder = false;
+		}
 
-					// Remap other arrays as needed
-					if (normal.vector != null) {
-						int[] origIndex = null;
+		if (texCoord != null && texCoord.defName != null) {
+			if (findUSE(texCoord.defName))
+				reorder = false;
+		}
 
-						if (normalIndex != null)
-							origIndex = normalIndex;
-						else
-							origIndex = coordIndex;
+		if (!reorder) {
+			// push old one along
+			ifs.encode();
+			return;
+		}
+
+		IndexedTriangleSet its = (IndexedTriangleSet)factory.getEncodable(
+			"IndexedTriangleSet",
+			ifs.defName);
+
+		Normal newNormal = null;
+		if (normal != null && normal.vector != null)
+			newNormal = (Normal)factory.getEncodable("Normal", null);
 
-						float[] origVector = normal.vector;
-						float[] newVector = new float[coord.point.length];
+		TextureCoordinate newTexCoord = null;
+		if (texCoord != null && texCoord.point != null)
+			newTexCoord = (TextureCoordinate)factory.getEncodable("TextureCoordinate", null);
 
-						int len = index.length;
-						int newIdx;
-						int oldIdx;
-						int cnt = 0;
+		final Normal outNormal = newNormal;
+		final TextureCoordinate outTexCoord = newTexCoord;
+
+		Supplier<Runnable> work = () -> {
+			buildTriangleSet(ifs, its, outNormal, outTexCoord);
+			return its::encode;
+		};
+
+		if (orderedOutput != null) {
+			orderedOutput.submit(work);
+		} else {
+			work.get().run();
+		}
+	}
 
-						for(int i=0; i < idx; i++) {
-							newIdx = index[i];
-							oldIdx = normalIndex[cnt++];
+	/**
+	 * Split the faces into triangles, reorder them for the vertex cache and
+	 * fill in the new triangle set. Normals and texture coordinates are
+	 * moved to be per coordinate. Only the new nodes are changed, so this may
+	 * be run on a pipeline thread.
+	 *
+	 * @param ifs The node to convert
+	 * @param its The triangle set to fill in
+	 * @param newNormal The normal to fill in, or null if there is none
+	 * @param newTexCoord The texture coordinate to fill in, or null if there
+	 *    is none
+	 */
+	private void buildTriangleSet(IndexedFaceSet ifs,
+								  IndexedTriangleSet its,
+								  Normal newNormal,
+								  TextureCoordinate newTexCoord) {
+
+		int[] coordIndex = ifs.coordIndex;
+		Coordinate coord = (Coordinate)ifs.getCoordinate();
+		int num_coord = coord.point.length / 3;
+
+		// Positions in coordIndex of the corners of each triangle, so that
+		// the normal and texture coordinate indices can be found
+		int[] corners = triangulate(coordIndex);
+		int idx = corners.length;
+
+		int[] index = new int[idx];
+		for (int i = 0; i < idx; i++) {
+			index[i] = coordIndex[corners[i]];
+		}
 
-							// skip -1's
-							if (oldIdx == -1)
-								oldIdx = origIndex[cnt++];
+		if (newNormal != null) {
+			Normal normal = (Normal)ifs.getNormal();
+			newNormal.vector = remap(normal.vector,
+									 3,
+									 ifs.normalIndex,
+									 coordIndex,
+									 corners,
+									 num_coord);
+			newNormal.num_vector = num_coord;
+		}
 
-							newVector[newIdx * 3 + 0] = origVector[oldIdx * 3 + 0];
-							newVector[newIdx * 3 + 1] = origVector[oldIdx * 3 + 1];
-							newVector[newIdx * 3 + 2] = origVector[oldIdx * 3 + 2];
-						}
+		if (newTexCoord != null) {
+			TextureCoordinate texCoord = (TextureCoordinate)ifs.getTextureCoordinate();
+			newTexCoord.point = remap(texCoord.point,
+									  2,
+									  ifs.texCoordIndex,
+									  coordIndex,
+									  corners,
+									  num_coord);
+			newTexCoord.num_point = num_coord;
+		}
 
-						newNormal = (Normal)factory.getEncodable("Normal", null);
-						newNormal.vector = newVector;
-						newNormal.num_vector = newVector.length / 3;
-					}
+		reorderIndexForCacheCoherency(index, idx, coord.point, cacheLength);
 
-					TextureCoordinate newTexCoord = null;
+		its.setValue("index", index, idx);
+		its.setCoordinate(coord);
+		if (newNormal != null)
+			its.setNormal(newNormal);
+		if (newTexCoord != null)
+			its.setTextureCoordinate(newTexCoord);
+	}
 
-					// Remap other arrays as needed
-					if (texCoord != null) {
+	/**
+	 * Split the faces of an index list into fans of triangles. Faces with
+	 * fewer than three corners are dropped.
+	 *
+	 * @param coordIndex The face index list, -1 between faces
+	 * @return The positions in the list of the corners of each triangle
+	 */
+	private static int[] triangulate(int[] coordIndex) {
 
-						int[] origIndex = null;
+		int len = coordIndex.length;
+		int[] corners = new int[len * 3];
+		int num = 0;
+		int start = 0;
 
-						if (texCoordIndex != null)
-							origIndex = texCoordIndex;
-						else
-							origIndex = coordIndex;
+		while (start < len) {
+			int end = start;
+			while (end < len && coordIndex[end] != -1) {
+				end++;
+			}
 
-						float[] origPoint = texCoord.point;
-						float[] newPoint = new float[coord.point.length];
+			for (int i = start + 1; i + 1 < end; i++) {
+				if (num + 3 > corners.length) {
+					corners = Arrays.copyOf(corners, corners.length * 2);
+				}
+				corners[num++] = start;
+				corners[num++] = i;
+				corners[num++] = i + 1;
+			}
 
-						int len = index.length;
-						int newIdx;
-						int oldIdx;
-						int cnt = 0;
+			start = end + 1;
+		}
 
-						for(int i=0; i < idx; i++) {
-							newIdx = index[i];
-							oldIdx = texCoordIndex[cnt++];
+		return Arrays.copyOf(corners, num);
+	}
 
-							// skip -1's
-							if (oldIdx == -1)
-								oldIdx = origIndex[cnt++];
+	/**
+	 * Move the values of an indexed per vertex array so that they are
+	 * indexed by coordinate instead.
+	 *
+	 * @param values The values, size per vertex
+	 * @param size The number of values per vertex
+	 * @param valueIndex The index of the values, or null to use coordIndex
+	 * @param coordIndex The coordinate index of the faces
+	 * @param corners The positions in the index of the triangle corners
+	 * @param numCoord The number of coordinates
+	 * @return The values, one per coordinate
+	 */
+	private static float[] remap(float[] values,
+								 int size,
+								 int[] valueIndex,
+								 int[] coordIndex,
+								 int[] corners,
+								 int numCoord) {
 
-							newPoint[newIdx * 2 + 0] = origPoint[oldIdx * 2 + 0];
-							newPoint[newIdx * 2 + 1] = origPoint[oldIdx * 2 + 1];
-						}
+		int[] origIndex = (valueIndex != null) ? valueIndex : coordIndex;
+		float[] ret_val = new float[numCoord * size];
 
-						newTexCoord = (TextureCoordinate)factory.getEncodable("TextureCoordinate", null);
-						newTexCoord.point = newPoint;
-						newTexCoord.num_point = newPoint.length / 3;
-					}
+		for (int i = 0; i < corners.length; i++) {
+			int pos = corners[i];
+			if (pos >= origIndex.length)
+				continue;
 
-					IndexedTriangleSet its = (IndexedTriangleSet)factory.getEncodable(
-						"IndexedTriangleSet",
-						ifs.defName);
-					its.setValue("index", index, idx);
-					its.setCoordinate(coord);
-					if (newNormal != null)
-						its.setNormal(newNormal);
-					if (newTexCoord != null)
-						its.setTextureCoordinate(newTexCoord);
+			int newIdx = coordIndex[pos];
+			int oldIdx = origIndex[pos];
 
-					// push it along....
-					its.encode();
-				} else {
-					// push old one along
-					ifs.encode();
-				}
-				// return to 'idle' mode
-				intercept = false;
-				encode(false);
-				suppressCalls(false);
-			} else {
-				super.endNode();
-			}
-		} else if (interceptCoordinate) {
-			// a coordinate node outside the scope of an ifs has ended,
-			// stop encoding
-			interceptCoordinate = false;
-			encode(false);
-			super.endNode();
+			System.arraycopy(values, oldIdx * size, ret_val, newIdx * size, size);
+		}
 
-		} else {
-            super.endNode();
-        }
+		return ret_val;
 	}
 
 	/**
@@ -310,35 +395,9 @@ public class IFSToITSFilter extends EncodedBaseFilter {
 		ForsythCacheOptimizer fco = new ForsythCacheOptimizer();
 		int[] newIndex = new int[len];
 
-//		System.out.println("input indices: " + java.util.Arrays.toString(index));
-
 		fco.optimizeFaces(index, len, data.length - 1, newIndex, cacheSize);
 
-//		System.out.println("new indices: " + java.util.Arrays.toString(newIndex));
-
-		for(int i=0; i < len ; i++) {
-			index[i] = newIndex[i];
-		}
-/*
-		int cacheMisses = 0;
-		int numTriangles = len / 3;
-		float acmr;
-
-		VertexCache cache = new VertexCache(cacheSize);
-		Integer idx;
-
-		for(int i=0; i < len; i++) {
-			idx = new Integer(index[i]);
-			if (!cache.contains(idx)) {
-				cacheMisses++;
-				cache.offer(idx);
-			}
-		}
-
-		acmr = cacheMisses / (float) numTriangles;
-//		System.out.println("Tris/Misses/ACMR:\t\t" + numTriangles + "\t" + cacheMisses + "\t" + acmr);
-		System.out.println("\"" + numTriangles + "\",\"" + cacheMisses + "\",\"" + acmr + "\"");
-*/
+		System.arraycopy(newIndex, 0, index, 0, len);
 	}
 
 	/**
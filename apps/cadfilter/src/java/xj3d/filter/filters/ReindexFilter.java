@@ -15,6 +15,7 @@ package xj3d.filter.filters;
 // External imports
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 // Local imports
 import org.web3d.util.SimpleStack;
@@ -41,9 +42,15 @@ import xj3d.filter.node.*;
  * color, normal and texCoord fields will be passed through unmodifed as well.
  * If the coordinate and index arrays are changed, the color, normal and
  * texCoord fields are dropped.
+ * <p>
+ *
+ * With the <code>-pipeline</code> argument the search for duplicate points
+ * and the rebuilding of the index of each node are done on a pool of
+ * threads, while the output keeps the order of the input. A node that uses
+ * the coordinates of an earlier node waits for that node's search.
  *
  * @author Rex Melton
- * @version $Revision: 1.11 $
+ * @version $Revision: 1.12 $
  */
 public class ReindexFilter extends EncodedBaseFilter {
 	
@@ -79,8 +86,8 @@ public class ReindexFilter extends EncodedBaseFilter {
     /** The node that is being intercepted */
     private Encodable node;
 
-    /** Map of DEF names to coord data */
-    private HashMap<String, CoordinateProcessor> coordMap;
+    /** Map of DEF names to coord data, which may still be being worked out */
+    private HashMap<String, CompletableFuture<CoordinateProcessor>> coordMap;
 
     /** Are we in a proto currently? */
     private boolean isProtoInstance;
@@ -151,6 +158,8 @@ public class ReindexFilter extends EncodedBaseFilter {
         String comment)
         throws SAVException, VRMLException {
 
+        startOrderedOutput();
+
         super.startDocument(uri, url, encoding, type, version, comment);
 
         converter = new GeometryConverter(factory);
@@ -284,6 +293,11 @@ public class ReindexFilter extends EncodedBaseFilter {
 		/////////////////////////////////////////////////////////
 		Encodable use = encMap.get(defName);
         if (use != null) {
+			// the node may still be changing in a pipeline job
+			if (orderedOutput != null) {
+				orderedOutput.flush();
+			}
+
 			boolean convert_type = false;
 			String name = use.getNodeName();
 			for (int i = 0; i < NODE.length; i++) {
@@ -367,7 +381,7 @@ public class ReindexFilter extends EncodedBaseFilter {
     //---------------------------------------------------------------
 
     /**
-     * Convert and reindex the node.
+     * Convert and reindex the node, then send it on.
      */
     private void reindex() {
 
@@ -375,93 +389,136 @@ public class ReindexFilter extends EncodedBaseFilter {
         if (geometry == null)
             return;
 
-        float[] point = null;
         Coordinate coord = (Coordinate)geometry.getCoordinate();
+        CompletableFuture<CoordinateProcessor> cp = null;
         if (coord != null) {
 
-            CoordinateProcessor cp = null;
             String useName = coord.useName;
             if (useName != null) {
                 cp = coordMap.get(useName);
             } else {
-                point = coord.point;
+                float[] point = coord.point;
                 if (point != null) {
-                    cp = new CoordinateProcessor(point, errorHandler, epsilon);
+                    if (orderedOutput != null) {
+                        cp = CompletableFuture.supplyAsync(
+                            () -> new CoordinateProcessor(point, errorHandler, epsilon),
+                            orderedOutput.getExecutor());
+                    } else {
+                        cp = CompletableFuture.completedFuture(
+                            new CoordinateProcessor(point, errorHandler, epsilon));
+                    }
                     String defName = coord.defName;
                     if (defName != null) {
                         coordMap.put(defName, cp);
                     }
                 }
             }
-            // It is possible that we don't have coordinate points, in the case
-            // of a node with an empty coordinate list. So, make sure we just
-            // ignore this step if we don't have a processor.
-            if (cp != null && cp.hasDuplicates()) {
-                int[] index = null;
-                switch(interceptIndex) {
-                    case TRIANGLE_FAN:
-                        IndexedTriangleFanSet itfs = (IndexedTriangleFanSet)node;
-                        index = itfs.index;
-                        itfs.setColor(null);
-                        itfs.setNormal(null);
-                        itfs.setTextureCoordinate(null);
-                        break;
-
-                    case TRIANGLE:
-                        IndexedTriangleSet its = (IndexedTriangleSet)node;
-                        index = its.index;
-                        its.setColor(null);
-                        its.setNormal(null);
-                        its.setTextureCoordinate(null);
-                        break;
-
-                    case TRIANGLE_STRIP:
-                        IndexedTriangleStripSet itss = (IndexedTriangleStripSet)node;
-                        index = itss.index;
-                        itss.setColor(null);
-                        itss.setNormal(null);
-                        itss.setTextureCoordinate(null);
-                        break;
-
-                    case LINE:
-                        IndexedLineSet ils = (IndexedLineSet)node;
-                        index = ils.coordIndex;
-                        ils.setColor(null);
-                        //break;
-                }
-                cp.processIndices(index);
-                coord.num_point = cp.getNumCoords();
-
-                if (interceptIndex == TRIANGLE) {
-                    // remove triangles from the index array that contain
-                    // duplicate indices. i.e. they are degenerate.
-                    IndexedTriangleSet its = (IndexedTriangleSet)node;
-                    int num_index = its.num_index;
-                    int num_tri = num_index / 3;
-                    int num_valid_tri = 0;
-                    int dst = 0;
-                    for (int i = 0; i < num_tri; i++) {
-                        int src = i * 3;
-                        int idx0 = index[src];
-                        int idx1 = index[src+1];
-                        int idx2 = index[src+2];
-                        if (!((idx0 == idx1) || (idx1 == idx2) || (idx2 == idx0))) {
-                            // this tri is valid
-                            if (src != dst) {
-                                index[dst++] = idx0;
-                                index[dst++] = idx1;
-                                index[dst++] = idx2;
-                            } else {
-                                dst += 3;
-                            }
-                            num_valid_tri++;
-                        }
+        }
+
+        // It is possible that we don't have coordinate points, in the case
+        // of a node with an empty coordinate list. So, make sure we just
+        // ignore this step if we don't have a processor.
+        if (cp == null) {
+            node.encode();
+            return;
+        }
+
+        final Encodable enc = node;
+        final int type = interceptIndex;
+
+        if (orderedOutput != null) {
+            orderedOutput.submit(cp.thenApplyAsync(
+                proc -> {
+                    reindex(enc, type, coord, proc);
+                    return enc::encode;
+                },
+                orderedOutput.getExecutor()));
+        } else {
+            reindex(enc, type, coord, cp.join());
+            enc.encode();
+        }
+    }
+
+    /**
+     * Rebuild the index of a node for its compacted coordinates. Only the
+     * node and its own coordinate are changed, so this may be run on a
+     * pipeline thread.
+     *
+     * @param enc The node to reindex
+     * @param type Index into the NODE array of the node's type
+     * @param coord The coordinate of the node
+     * @param cp The processor of the coordinate points
+     */
+    private static void reindex(Encodable enc,
+                                int type,
+                                Coordinate coord,
+                                CoordinateProcessor cp) {
+
+        if (cp == null || !cp.hasDuplicates())
+            return;
+
+        int[] index = null;
+        switch(type) {
+            case TRIANGLE_FAN:
+                IndexedTriangleFanSet itfs = (IndexedTriangleFanSet)enc;
+                index = itfs.index;
+                itfs.setColor(null);
+                itfs.setNormal(null);
+                itfs.setTextureCoordinate(null);
+                break;
+
+            case TRIANGLE:
+                IndexedTriangleSet its = (IndexedTriangleSet)enc;
+                index = its.index;
+                its.setColor(null);
+                its.setNormal(null);
+                its.setTextureCoordinate(null);
+                break;
+
+            case TRIANGLE_STRIP:
+                IndexedTriangleStripSet itss = (IndexedTriangleStripSet)enc;
+                index = itss.index;
+                itss.setColor(null);
+                itss.setNormal(null);
+                itss.setTextureCoordinate(null);
+                break;
+
+            case LINE:
+                IndexedLineSet ils = (IndexedLineSet)enc;
+                index = ils.coordIndex;
+                ils.setColor(null);
+                //break;
+        }
+        cp.processIndices(index);
+        coord.num_point = cp.getNumCoords();
+
+        if (type == TRIANGLE) {
+            // remove triangles from the index array that contain
+            // duplicate indices. i.e. they are degenerate.
+            IndexedTriangleSet its = (IndexedTriangleSet)enc;
+            int num_index = its.num_index;
+            int num_tri = num_index / 3;
+            int num_valid_tri = 0;
+            int dst = 0;
+            for (int i = 0; i < num_tri; i++) {
+                int src = i * 3;
+                int idx0 = index[src];
+                int idx1 = index[src+1];
+                int idx2 = index[src+2];
+                if (!((idx0 == idx1) || (idx1 == idx2) || (idx2 == idx0))) {
+                    // this tri is valid
+                    if (src != dst) {
+                        index[dst++] = idx0;
+                        index[dst++] = idx1;
+                        index[dst++] = idx2;
+                    } else {
+                        dst += 3;
                     }
-                    its.num_index = num_valid_tri * 3;
+                    num_valid_tri++;
                 }
             }
+            its.num_index = num_valid_tri * 3;
         }
-        node.encode();
     }
 
     /**
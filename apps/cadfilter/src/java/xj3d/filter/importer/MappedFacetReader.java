@@ -0,0 +1,252 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ *****************************************************************************/
+
+package xj3d.filter.importer;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Local imports
+// None
+
+/**
+ * Reads the facets of a local binary STL file through memory mapped windows,
+ * a block of facets at a time.
+ * <p>
+ *
+ * Only files whose length exactly matches the facet count in the header are
+ * read this way. Anything else, such as ASCII files or binary files with a
+ * wrong count, is left to the general STL reader. The file may be read
+ * more than once, so that the coordinates and normals can be sent as
+ * separate values without holding either for the whole file.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class MappedFacetReader {
+
+    /** Size of the header, including the facet count */
+    private static final int HEADER_SIZE = 84;
+
+    /** Size of each facet record */
+    private static final int FACET_SIZE = 50;
+
+    /** Number of facets mapped at a time, about 50MB */
+    private static final int WINDOW_FACETS = 1 << 20;
+
+    /** The channel the file is mapped from */
+    private final FileChannel channel;
+
+    /** The number of facets in the file */
+    private final int numFacets;
+
+    /** The current window, or null before the first read */
+    private MappedByteBuffer window;
+
+    /** The index of the next facet to read */
+    private int nextFacet;
+
+    /** Holds one triangle when the coordinates are not wanted */
+    private final float[] scratch;
+
+    /**
+     * Create a reader for an opened file.
+     *
+     * @param channel The channel to map the file from
+     * @param numFacets The number of facets in the file
+     */
+    private MappedFacetReader(FileChannel channel, int numFacets) {
+        this.channel = channel;
+        this.numFacets = numFacets;
+
+        scratch = new float[9];
+    }
+
+    /**
+     * Open the file if it is a binary STL file that this class can read.
+     *
+     * @param file The file to open
+     * @return A reader for the file, or null if it is not binary STL with a
+     *    correct facet count
+     * @throws IOException The file could not be opened
+     */
+    static MappedFacetReader open(File file) throws IOException {
+        long len = file.length();
+
+        if(len <= HEADER_SIZE)
+            return null;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel();
+
+        MappedByteBuffer header =
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+
+        long count = header.getInt(HEADER_SIZE - 4) & 0xFFFFFFFFL;
+
+        if(count == 0 ||
+           count > Integer.MAX_VALUE ||
+           HEADER_SIZE + count * FACET_SIZE != len) {
+            raf.close();
+            return null;
+        }
+
+        return new MappedFacetReader(channel, (int)count);
+    }
+
+    /**
+     * Get the number of facets in the file.
+     *
+     * @return A number greater than zero
+     */
+    int getNumFacets() {
+        return numFacets;
+    }
+
+    /**
+     * Go back to the first facet.
+     */
+    void reset() {
+        nextFacet = 0;
+        window = null;
+    }
+
+    /**
+     * Read the next block of facets. Either array may be null if those
+     * values are not wanted. A normal of zero length in the file is replaced
+     * with the (unnormalised) normal of the triangle.
+     *
+     * @param coords Array for 9 coordinate values per facet, or null
+     * @param normals Array for 3 normal values per facet, or null
+     * @param max The largest number of facets to read
+     * @return The number of facets read, 0 at the end of the file
+     * @throws IOException The file could not be mapped
+     */
+    int readFacets(float[] coords, float[] normals, int max)
+        throws IOException {
+
+        int num = Math.min(max, numFacets - nextFacet);
+
+        for(int i = 0; i < num; i++) {
+            if(window == null || !window.hasRemaining())
+                mapWindow();
+
+            nextFacet++;
+
+            float n_x = window.getFloat();
+            float n_y = window.getFloat();
+            float n_z = window.getFloat();
+
+            float[] tri = coords;
+            int idx = i * 9;
+
+            if(coords == null) {
+                tri = scratch;
+                idx = 0;
+            }
+
+            for(int j = 0; j < 9; j++)
+                tri[idx + j] = window.getFloat();
+
+            // Skip the attribute byte count
+            window.position(window.position() + 2);
+
+            if(normals == null)
+                continue;
+
+            if(n_x == 0 && n_y == 0 && n_z == 0) {
+                n_x = crossX(tri, idx);
+                n_y = crossY(tri, idx);
+                n_z = crossZ(tri, idx);
+            }
+
+            normals[i * 3] = n_x;
+            normals[i * 3 + 1] = n_y;
+            normals[i * 3 + 2] = n_z;
+        }
+
+        return num;
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException The file could not be closed
+     */
+    void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Map the window that starts at the next facet.
+     */
+    private void mapWindow() throws IOException {
+        int count = Math.min(WINDOW_FACETS, numFacets - nextFacet);
+        long start = HEADER_SIZE + (long)nextFacet * FACET_SIZE;
+
+        window = channel.map(FileChannel.MapMode.READ_ONLY,
+                             start,
+                             (long)count * FACET_SIZE);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * X component of the cross product of the two edges leaving the first
+     * vertex, worked in double precision as the general reader does.
+     */
+    private static float crossX(float[] c, int i) {
+        double y1 = c[i + 4] - (double)c[i + 1];
+        double z1 = c[i + 5] - (double)c[i + 2];
+        double y2 = c[i + 7] - (double)c[i + 1];
+        double z2 = c[i + 8] - (double)c[i + 2];
+
+        return (float)(y1 * z2 - z1 * y2);
+    }
+
+    /**
+     * Y component of the cross product of the two edges leaving the first
+     * vertex.
+     */
+    private static float crossY(float[] c, int i) {
+        double x1 = c[i + 3] - (double)c[i];
+        double z1 = c[i + 5] - (double)c[i + 2];
+        double x2 = c[i + 6] - (double)c[i];
+        double z2 = c[i + 8] - (double)c[i + 2];
+
+        return (float)(z1 * x2 - x1 * z2);
+    }
+
+    /**
+     * Z component of the cross product of the two edges leaving the first
+     * vertex.
+     */
+    private static float crossZ(float[] c, int i) {
+        double x1 = c[i + 3] - (double)c[i];
+        double y1 = c[i + 4] - (double)c[i + 1];
+        double x2 = c[i + 6] - (double)c[i];
+        double y2 = c[i + 7] - (double)c[i + 1];
+
+        return (float)(x1 * y2 - y1 * x2);
+    }
+}
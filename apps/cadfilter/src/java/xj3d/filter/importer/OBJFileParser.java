@@ -14,19 +14,16 @@ package xj3d.filter.importer;
 
 // External imports
 import java.io.IOException;
-import java.net.URL;
-import java.text.NumberFormat;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import org.j3d.loaders.InvalidFormatException;
-import org.j3d.loaders.obj.OBJFileReader;
-import org.j3d.geom.GeometryData;
 import org.j3d.util.ErrorReporter;
 
 // Local imports
 import org.web3d.vrml.sav.*;
 
-import org.web3d.util.StringArray;
 import org.web3d.vrml.lang.VRMLException;
 
 import xj3d.filter.NonWeb3DFileParser;
@@ -38,10 +35,40 @@ import xj3d.filter.FilterExitCodes;
  * of events.
  * <p>
  *
+ * The file is tokenized as it is read, straight from the bytes of the
+ * stream. Each object or group becomes a Shape holding an IndexedFaceSet,
+ * which is sent as soon as the object ends, so only the faces of one object
+ * are held at a time. Faces may refer to any vertex defined earlier in the
+ * file, so the vertex positions, normals and texture coordinates are kept
+ * for the whole file, as plain float arrays. Each Shape gets only the
+ * vertices its faces use. Normals and texture coordinates are only output
+ * for an object when every one of its faces gives them. If the content
+ * handler takes values in pieces, arrays are sent in pieces rather than
+ * being copied into one array first.
+ *
  * @author Alan Hudson
+ * @version $Revision: 1.2 $
  */
 public class OBJFileParser implements NonWeb3DFileParser {
 
+    /** Size of the buffer the stream is read into */
+    private static final int READ_BUFFER_SIZE = 65_536;
+
+    /** Number of values sent in each piece of a streamed value */
+    private static final int CHUNK_SIZE = 65_536;
+
+    /** Most significant digits of a number that are kept */
+    private static final int MAX_DIGITS = 18;
+
+    /** Most significant digits that a double holds exactly */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /** Powers of ten that a double holds exactly */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     /** The url of the current document */
     private String documentURL;
 
@@ -63,6 +90,138 @@ public class OBJFileParser implements NonWeb3DFileParser {
     /** Reference to our Locator instance to hand to users */
     private Locator locator;
 
+    /** The stream being read */
+    private InputStream stream;
+
+    /** The bytes read from the stream */
+    private byte[] buffer;
+
+    /** The position of the next byte in the buffer */
+    private int bufferPos;
+
+    /** The number of valid bytes in the buffer */
+    private int bufferLimit;
+
+    /** A byte that has been put back, or -2 if there is none */
+    private int pushback;
+
+    /** The line number being read, for error messages */
+    private int lineNumber;
+
+    /** Vertex positions of the whole file, 3 per vertex */
+    private float[] coords;
+
+    /** The number of values in coords */
+    private int numCoords;
+
+    /** Vertex normals of the whole file, 3 per normal */
+    private float[] normals;
+
+    /** The number of values in normals */
+    private int numNormals;
+
+    /** Texture coordinates of the whole file, 2 per coordinate */
+    private float[] texCoords;
+
+    /** The number of values in texCoords */
+    private int numTexCoords;
+
+    /** File wide vertex numbers of the faces of the current object, with -1 after each face */
+    private int[] faceCoords;
+
+    /** File wide normal numbers matching faceCoords, or -1 if not given */
+    private int[] faceNormals;
+
+    /** File wide texture coordinate numbers matching faceCoords, or -1 if not given */
+    private int[] faceTexCoords;
+
+    /** The number of values in the face arrays */
+    private int numFaceValues;
+
+    /** The number of faces in the current object */
+    private int numFaces;
+
+    /** Does every face of the current object give normals */
+    private boolean allNormals;
+
+    /** Does every face of the current object give texture coordinates */
+    private boolean allTexCoords;
+
+    /** Maps vertices to the numbers used by the current Shape */
+    private VertexMap coordMap;
+
+    /** Maps normals to the numbers used by the current Shape */
+    private VertexMap normalMap;
+
+    /** Maps texture coordinates to the numbers used by the current Shape */
+    private VertexMap texCoordMap;
+
+    /** Reused buffer for sending float values in pieces */
+    private float[] chunkBuffer;
+
+    /**
+     * Keeps the file wide numbers of the vertices that one Shape uses and
+     * gives each a number local to the Shape.
+     */
+    private static class VertexMap {
+
+        /** File wide number to local number, or -1 if not used yet */
+        private int[] map;
+
+        /** Local number to file wide number */
+        int[] used;
+
+        /** The number of vertices used */
+        int numUsed;
+
+        /**
+         * Replace the file wide numbers in the array with local numbers.
+         *
+         * @param values The numbers to replace, with -1 left alone
+         * @param num The number of values to replace
+         * @param numVertices The number of vertices in the file so far
+         */
+        void remap(int[] values, int num, int numVertices) {
+            if(map == null || map.length < numVertices) {
+                map = new int[Math.max(numVertices, map == null ? 0 : map.length * 2)];
+                Arrays.fill(map, -1);
+            }
+
+            if(used == null)
+                used = new int[1024];
+
+            for(int i = 0; i < num; i++) {
+                int v = values[i];
+
+                if(v == -1)
+                    continue;
+
+                int local = map[v];
+
+                if(local == -1) {
+                    if(numUsed == used.length)
+                        used = Arrays.copyOf(used, numUsed * 2);
+
+                    local = numUsed++;
+                    map[v] = local;
+                    used[local] = v;
+                }
+
+                values[i] = local;
+            }
+        }
+
+        /**
+         * Forget the vertices used, ready for the next Shape.
+         */
+        void clear() {
+            for(int i = 0; i < numUsed; i++)
+                map[used[i]] = -1;
+
+            numUsed = 0;
+        }
+    }
+
     /**
      * Create a new instance of this parser
      */
@@ -188,18 +347,29 @@ public class OBJFileParser implements NonWeb3DFileParser {
     public List<String> parse(InputSource input, String[] style)
         throws IOException, VRMLException {
 
-        // Not good as this opens a second network connection, rather than
-        // reusing the one that is already open when we checked the MIME type.
-        // Need to recode some of the OBJ parser to deal with this.
-        URL url = new URL(input.getURL());
+        stream = input.getByteStream();
+        buffer = new byte[READ_BUFFER_SIZE];
+        bufferPos = 0;
+        bufferLimit = 0;
+        pushback = -2;
+        lineNumber = 1;
 
-        OBJFileReader reader = null;
-        try {
-            reader = new OBJFileReader(url, false);
-        } catch(InvalidFormatException ife) {
-            throw new FilterProcessingException(ife.getMessage(),
-                FilterExitCodes.INVALID_INPUT_FILE);
-        }
+        coords = new float[3 * 1024];
+        normals = new float[3 * 1024];
+        texCoords = new float[2 * 1024];
+        numCoords = 0;
+        numNormals = 0;
+        numTexCoords = 0;
+
+        faceCoords = new int[4 * 1024];
+        faceNormals = new int[4 * 1024];
+        faceTexCoords = new int[4 * 1024];
+
+        coordMap = new VertexMap();
+        normalMap = new VertexMap();
+        texCoordMap = new VertexMap();
+
+        startObject();
 
         contentHandler.startDocument(input.getURL(),
                                      input.getBaseURL(),
@@ -211,114 +381,570 @@ public class OBJFileParser implements NonWeb3DFileParser {
         contentHandler.profileDecl("Interchange");
         contentHandler.componentDecl("Rendering:3");
 
-        generateIndexedFaceSet(reader);
+        try {
+            while(parseLine())
+                ;
+
+            generateIndexedFaceSet();
+        } finally {
+            stream.close();
+
+            stream = null;
+            buffer = null;
+            coords = null;
+            normals = null;
+            texCoords = null;
+            faceCoords = null;
+            faceNormals = null;
+            faceTexCoords = null;
+            chunkBuffer = null;
+        }
 
         contentHandler.endDocument();
-        reader.close();
 
-        return reader.getParsingMessages();
+        return new ArrayList<>();
     }
 
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
     /**
-     * Generate the coordinate and normal information for the IndexedFaceSet node
-     * based on that read from the OBJ file.
+     * Read one line of the file and act on its statement.
+     *
+     * @return false at the end of the file
      */
-    private void generateIndexedFaceSet(OBJFileReader rdr)
+    private boolean parseLine() throws IOException, VRMLException {
+        int c = skipSpaces();
+
+        if(c == -1)
+            return false;
+
+        int next = (c == '\n') ? c : read();
+
+        switch(c) {
+            case 'v':
+                if(isSpace(next)) {
+                    coords = ensureCapacity(coords, numCoords, 3);
+                    numCoords = addValues(coords, numCoords, 3);
+                } else if(next == 'n' || next == 't') {
+                    int after = read();
+
+                    if(!isSpace(after)) {
+                        unread(after);
+                    } else if(next == 'n') {
+                        normals = ensureCapacity(normals, numNormals, 3);
+                        numNormals = addValues(normals, numNormals, 3);
+                    } else {
+                        texCoords = ensureCapacity(texCoords, numTexCoords, 2);
+                        numTexCoords = addValues(texCoords, numTexCoords, 2);
+                    }
+                }
+                break;
+
+            case 'f':
+                if(isSpace(next))
+                    readFace();
+                break;
+
+            case 'o':
+            case 'g':
+                if(isSpace(next) || next == '\r' || next == '\n' || next == -1) {
+                    generateIndexedFaceSet();
+                    startObject();
+                }
+                break;
+        }
+
+        if(next == '\n' || next == -1)
+            unread(next);
+
+        skipLine();
+
+        return true;
+    }
+
+    /**
+     * Read the numbers of a vertex statement onto the end of one of the
+     * vertex arrays. Texture coordinates may leave out their second value,
+     * which is then zero. Any further values are ignored.
+     *
+     * @param values The array to add to, with room for the values
+     * @param num The number of values in the array
+     * @param size The number of values to read
+     * @return The new number of values in the array
+     */
+    private int addValues(float[] values, int num, int size)
         throws IOException {
 
-        double[] in_normal = new double[3];
-        double[][] in_coords = new double[3][3];
+        for(int i = 0; i < size; i++) {
+            if(i == 1 && size == 2 && atLineEnd())
+                values[num + i] = 0;
+            else
+                values[num + i] = readFloat();
+        }
 
-        GeometryData data = rdr.getNextObject();
-        String name =  null;    // TODO: get object name
+        return num + size;
+    }
 
-        while(data != null) {
-            if (data.coordinates == null || data.coordinates.length == 0 ||
-                data.indexes == null || data.indexes.length == 0) {
-                // empty geometry, skip
-                data = rdr.getNextObject();
-                continue;
+    /**
+     * Make sure an array has room for more values, by doubling its size if
+     * needed.
+     *
+     * @param values The array to check
+     * @param num The number of values in the array
+     * @param size The number of values to be added
+     * @return The array, or a bigger copy of it
+     */
+    private static float[] ensureCapacity(float[] values, int num, int size) {
+        if(num + size <= values.length)
+            return values;
+
+        return Arrays.copyOf(values, values.length * 2);
+    }
+
+    /**
+     * Read a face statement into the face arrays of the current object.
+     * Faces with fewer than three vertices are dropped.
+     */
+    private void readFace() throws IOException {
+        int start = numFaceValues;
+        int num_vertex = numCoords / 3;
+        int num_normal = numNormals / 3;
+        int num_tex = numTexCoords / 2;
+        boolean face_normals = true;
+        boolean face_tex = true;
+
+        while(!atLineEnd()) {
+            int v = readIndex(num_vertex);
+            int vt = -1;
+            int vn = -1;
+            int c = read();
+
+            if(c == '/') {
+                c = read();
+
+                if(c != '/') {
+                    unread(c);
+                    vt = readIndex(num_tex);
+                    c = read();
+                }
+
+                if(c == '/')
+                    vn = readIndex(num_normal);
+                else
+                    unread(c);
+            } else {
+                unread(c);
             }
 
-            contentHandler.startNode("Shape", name);
-            contentHandler.startField("geometry");
-            contentHandler.startNode("IndexedFaceSet", null);
+            face_normals &= vn != -1;
+            face_tex &= vt != -1;
+
+            addFaceValue(v, vn, vt);
+        }
 
+        if(numFaceValues - start < 3) {
+            numFaceValues = start;
+            return;
+        }
 
-            if(contentHandler instanceof BinaryContentHandler) {
-                BinaryContentHandler bch = (BinaryContentHandler)contentHandler;
-                float[] out_coords = new float[1 * 9];
-                float[] out_normals = new float[1 * 3];
-
-                contentHandler.startField("coord");
-                contentHandler.startNode("Coordinate", null);
-                contentHandler.startField("point");
-                bch.fieldValue(data.coordinates, data.coordinates.length);
-                contentHandler.endNode();
-                //contentHandler.endField();
-
-                contentHandler.startField("coordIndex");
-                bch.fieldValue(data.indexes, data.indexes.length);
-
-                if (data.normals != null) {
-                    contentHandler.startField("normal");
-                    contentHandler.startNode("Normal", null);
-                    contentHandler.startField("vector");
-                    bch.fieldValue(data.normals, data.normals.length);
-                    contentHandler.endNode();
-                    //contentHandler.endField();
-                }
+        addFaceValue(-1, -1, -1);
 
-                if (data.normalIndexes != null) {
-                    contentHandler.startField("normalIndex");
-                    bch.fieldValue(data.normalIndexes, data.normalIndexes.length);
-                }
+        allNormals &= face_normals;
+        allTexCoords &= face_tex;
+        numFaces++;
+    }
 
-                if (data.textureCoordinates != null) {
-                    contentHandler.startField("texCoord");
-                    contentHandler.startNode("TextureCoordinate", null);
-                    contentHandler.startField("point");
-                    bch.fieldValue(data.textureCoordinates, data.textureCoordinates.length);
-                    contentHandler.endNode();
-                    //contentHandler.endField();
-                }
+    /**
+     * Add one entry to each of the face arrays, making them bigger if
+     * needed.
+     */
+    private void addFaceValue(int v, int vn, int vt) {
+        if(numFaceValues == faceCoords.length) {
+            int size = faceCoords.length * 2;
+            faceCoords = Arrays.copyOf(faceCoords, size);
+            faceNormals = Arrays.copyOf(faceNormals, size);
+            faceTexCoords = Arrays.copyOf(faceTexCoords, size);
+        }
+
+        faceCoords[numFaceValues] = v;
+        faceNormals[numFaceValues] = vn;
+        faceTexCoords[numFaceValues] = vt;
+        numFaceValues++;
+    }
+
+    /**
+     * Reset the face data for a new object.
+     */
+    private void startObject() {
+        numFaceValues = 0;
+        numFaces = 0;
+        allNormals = true;
+        allTexCoords = true;
+    }
+
+    /**
+     * Send the current object as a Shape holding an IndexedFaceSet. Does
+     * nothing if the object has no faces.
+     */
+    private void generateIndexedFaceSet() throws VRMLException {
+        if(numFaces == 0)
+            return;
+
+        boolean use_normals = allNormals && numNormals > 0;
+        boolean use_tex = allTexCoords && numTexCoords > 0;
+
+        coordMap.remap(faceCoords, numFaceValues, numCoords / 3);
+
+        if(use_normals)
+            normalMap.remap(faceNormals, numFaceValues, numNormals / 3);
+
+        if(use_tex)
+            texCoordMap.remap(faceTexCoords, numFaceValues, numTexCoords / 2);
+
+        contentHandler.startNode("Shape", null);
+        contentHandler.startField("geometry");
+        contentHandler.startNode("IndexedFaceSet", null);
+
+        contentHandler.startField("coord");
+        contentHandler.startNode("Coordinate", null);
+        contentHandler.startField("point");
+        sendVertices(coords, 3, coordMap);
+        contentHandler.endNode();
+
+        contentHandler.startField("coordIndex");
+        sendIndices(faceCoords, numFaceValues);
+
+        if(use_normals) {
+            contentHandler.startField("normal");
+            contentHandler.startNode("Normal", null);
+            contentHandler.startField("vector");
+            sendVertices(normals, 3, normalMap);
+            contentHandler.endNode();
+
+            contentHandler.startField("normalIndex");
+            sendIndices(faceNormals, numFaceValues);
+        }
+
+        if(use_tex) {
+            contentHandler.startField("texCoord");
+            contentHandler.startNode("TextureCoordinate", null);
+            contentHandler.startField("point");
+            sendVertices(texCoords, 2, texCoordMap);
+            contentHandler.endNode();
+
+            contentHandler.startField("texCoordIndex");
+            sendIndices(faceTexCoords, numFaceValues);
+        }
+
+        contentHandler.endNode();
+        contentHandler.endNode();
+
+        coordMap.clear();
+        normalMap.clear();
+        texCoordMap.clear();
+    }
+
+    /**
+     * Send the values of the vertices a Shape uses as the current field
+     * value.
+     *
+     * @param values The vertex values of the whole file
+     * @param size The number of values per vertex
+     * @param vmap The vertices used by the Shape
+     */
+    private void sendVertices(float[] values, int size, VertexMap vmap)
+        throws VRMLException {
+
+        int total = vmap.numUsed * size;
+
+        if(contentHandler instanceof ChunkedBinaryContentHandler) {
+            ChunkedBinaryContentHandler cch =
+                (ChunkedBinaryContentHandler)contentHandler;
+
+            if(chunkBuffer == null)
+                chunkBuffer = new float[CHUNK_SIZE * 6];
+
+            int per_chunk = chunkBuffer.length / size;
+
+            cch.startFieldValue(total);
 
-                if (data.texCoordIndexes != null) {
-                    contentHandler.startField("texCoordIndex");
-                    bch.fieldValue(data.texCoordIndexes, data.texCoordIndexes.length);
+            for(int start = 0; start < vmap.numUsed; start += per_chunk) {
+                int num = Math.min(per_chunk, vmap.numUsed - start);
+
+                for(int i = 0; i < num; i++) {
+                    System.arraycopy(values,
+                                     vmap.used[start + i] * size,
+                                     chunkBuffer,
+                                     i * size,
+                                     size);
                 }
 
-                contentHandler.endNode();
-                //contentHandler.endField();
-                contentHandler.endNode();
+                cch.appendFieldValue(chunkBuffer, 0, num * size);
+            }
+
+            cch.endFieldValue();
+        } else {
+            float[] out = new float[total];
+
+            for(int i = 0; i < vmap.numUsed; i++)
+                System.arraycopy(values, vmap.used[i] * size, out, i * size, size);
+
+            if(contentHandler instanceof BinaryContentHandler) {
+                ((BinaryContentHandler)contentHandler).fieldValue(out, total);
             } else {
-                StringContentHandler sch = (StringContentHandler)contentHandler;
-                StringArray out_coords = new StringArray();
-                StringArray out_normals = new StringArray();
-
-                NumberFormat formatter = NumberFormat.getInstance();
-                formatter.setMaximumFractionDigits(5);
-
-                contentHandler.startField("coord");
-                contentHandler.startNode("Coordinate", null);
-                contentHandler.startField("point");
-                sch.fieldValue(out_coords.toArray());
-                contentHandler.endNode();
-                //contentHandler.endField();
-
-                contentHandler.startField("normal");
-                contentHandler.startNode("Normal", null);
-                contentHandler.startField("vector");
-                sch.fieldValue(out_normals.toArray());
-                contentHandler.endNode();
-                //contentHandler.endField();
-
-                contentHandler.endNode();
-                //contentHandler.endField();
-                contentHandler.endNode();
+                String[] str = new String[total];
+                for(int i = 0; i < total; i++)
+                    str[i] = Float.toString(out[i]);
+
+                ((StringContentHandler)contentHandler).fieldValue(str);
             }
+        }
+    }
+
+    /**
+     * Send the first values of an index array as the current field value.
+     *
+     * @param values The index values
+     * @param num The number of values to send
+     */
+    private void sendIndices(int[] values, int num) throws VRMLException {
+        if(contentHandler instanceof ChunkedBinaryContentHandler) {
+            ChunkedBinaryContentHandler cch =
+                (ChunkedBinaryContentHandler)contentHandler;
+
+            cch.startFieldValue(num);
+
+            for(int start = 0; start < num; start += CHUNK_SIZE)
+                cch.appendFieldValue(values, start, Math.min(CHUNK_SIZE, num - start));
 
-            data = rdr.getNextObject();
+            cch.endFieldValue();
+        } else if(contentHandler instanceof BinaryContentHandler) {
+            ((BinaryContentHandler)contentHandler).fieldValue(Arrays.copyOf(values, num), num);
+        } else {
+            String[] str = new String[num];
+            for(int i = 0; i < num; i++)
+                str[i] = Integer.toString(values[i]);
+
+            ((StringContentHandler)contentHandler).fieldValue(str);
+        }
+    }
+
+    /**
+     * Read a vertex number from a face and turn it into a zero based number.
+     * Negative numbers count back from the last vertex read.
+     *
+     * @param count The number of vertices of this kind read so far
+     * @return The zero based vertex number
+     */
+    private int readIndex(int count) throws IOException {
+        int c = read();
+        boolean neg = false;
+
+        if(c == '-') {
+            neg = true;
+            c = read();
+        }
+
+        if(c < '0' || c > '9')
+            throw error("Missing vertex number");
+
+        long idx = 0;
+
+        while(c >= '0' && c <= '9') {
+            idx = Math.min(idx * 10 + (c - '0'), Integer.MAX_VALUE);
+            c = read();
+        }
+
+        unread(c);
+
+        long ret_val = neg ? count - idx : idx - 1;
+
+        if(idx == 0 || ret_val < 0 || ret_val >= count)
+            throw error("Vertex number out of range");
+
+        return (int)ret_val;
+    }
+
+    /**
+     * Read a decimal number, as a float. Numbers of up to 15 significant
+     * digits and small exponents are worked out directly, others are
+     * handed to the library parser.
+     */
+    private float readFloat() throws IOException {
+        int c = skipSpaces();
+        boolean neg = false;
+
+        if(c == '-' || c == '+') {
+            neg = c == '-';
+            c = read();
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exp = 0;
+        boolean any = false;
+
+        while(c >= '0' && c <= '9') {
+            any = true;
+
+            if(digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if(mantissa != 0)
+                    digits++;
+            } else {
+                exp++;
+            }
+
+            c = read();
+        }
+
+        if(c == '.') {
+            c = read();
+
+            while(c >= '0' && c <= '9') {
+                any = true;
+
+                if(digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exp--;
+                    if(mantissa != 0)
+                        digits++;
+                }
+
+                c = read();
+            }
         }
+
+        if(!any)
+            throw error("Missing number");
+
+        if(c == 'e' || c == 'E') {
+            c = read();
+            boolean exp_neg = false;
+
+            if(c == '-' || c == '+') {
+                exp_neg = c == '-';
+                c = read();
+            }
+
+            if(c < '0' || c > '9')
+                throw error("Missing exponent");
+
+            int e = 0;
+
+            while(c >= '0' && c <= '9') {
+                e = Math.min(e * 10 + (c - '0'), 100_000);
+                c = read();
+            }
+
+            exp += exp_neg ? -e : e;
+        }
+
+        unread(c);
+
+        double ret_val;
+
+        if(digits <= MAX_EXACT_DIGITS && exp >= -22 && exp <= 22) {
+            ret_val = exp < 0 ?
+                mantissa / POWERS_OF_TEN[-exp] :
+                mantissa * POWERS_OF_TEN[exp];
+        } else {
+            ret_val = Double.parseDouble(mantissa + "E" + exp);
+        }
+
+        return (float)(neg ? -ret_val : ret_val);
+    }
+
+    /**
+     * Check to see if the rest of the line is empty or a comment, without
+     * reading past the end of the line.
+     */
+    private boolean atLineEnd() throws IOException {
+        int c = skipSpaces();
+        unread(c);
+
+        return c == '\n' || c == '#' || c == -1;
+    }
+
+    /**
+     * Skip spaces and tabs, and return the first byte that is not one.
+     */
+    private int skipSpaces() throws IOException {
+        int c = read();
+
+        while(c == ' ' || c == '\t' || c == '\r')
+            c = read();
+
+        return c;
+    }
+
+    /**
+     * Skip to the start of the next line. Lines ending with a backslash are
+     * joined to the next line.
+     */
+    private void skipLine() throws IOException {
+        int c = read();
+        int last = 0;
+
+        while(c != -1 && (c != '\n' || last == '\\')) {
+            if(c == '\n')
+                lineNumber++;
+
+            if(c != '\r')
+                last = c;
+
+            c = read();
+        }
+
+        lineNumber++;
+    }
+
+    /**
+     * Check to see if a byte is a space or tab.
+     */
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Read the next byte of the stream.
+     *
+     * @return The byte, or -1 at the end of the stream
+     */
+    private int read() throws IOException {
+        if(pushback != -2) {
+            int c = pushback;
+            pushback = -2;
+            return c;
+        }
+
+        if(bufferPos == bufferLimit) {
+            bufferLimit = stream.read(buffer, 0, buffer.length);
+            bufferPos = 0;
+
+            if(bufferLimit <= 0) {
+                bufferLimit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[bufferPos++] & 0xFF;
+    }
+
+    /**
+     * Put back a byte so that the next read returns it.
+     */
+    private void unread(int c) {
+        pushback = c;
+    }
+
+    /**
+     * Create the exception for a problem at the current line.
+     */
+    private FilterProcessingException error(String msg) {
+        return new FilterProcessingException(msg + " at line " + lineNumber,
+                                             FilterExitCodes.INVALID_INPUT_FILE);
     }
 }
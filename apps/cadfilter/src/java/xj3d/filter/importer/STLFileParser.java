@@ -13,7 +13,9 @@
 package xj3d.filter.importer;
 
 // External imports
+import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -39,10 +41,19 @@ import xj3d.filter.FilterExitCodes;
  * of events.
  * <p>
  *
+ * Local binary files are streamed from memory mapped windows and never held
+ * in memory as a whole. If the content handler takes values in pieces, the
+ * coordinates and then the normals are sent in blocks of facets, reading
+ * the file once for each. Otherwise they are read straight into arrays of
+ * the exact size. Other STL files go through the general STL file reader.
+ *
  * @author Justin Couch
- * @version Grammar $Revision: 1.12 $
+ * @version Grammar $Revision: 1.13 $
  */
 public class STLFileParser implements NonWeb3DFileParser {
+    /** Number of facets sent in each piece of a streamed value */
+    private static final int CHUNK_FACETS = 16_384;
+
     /** Max triangles in count that we consider possible */
     private static final int MAX_SANE_TRIANGLES = 50_000_000;
     private static final float MAX_SANE_POSITION = 1e11f;
@@ -194,6 +205,24 @@ public class STLFileParser implements NonWeb3DFileParser {
     public List<String> parse(InputSource input, String[] style)
         throws IOException, VRMLException {
 
+        File file = getLocalFile(input.getURL());
+
+        if(file != null && contentHandler instanceof BinaryContentHandler) {
+            MappedFacetReader facets = MappedFacetReader.open(file);
+
+            if(facets != null) {
+                try {
+                    startDocument(input);
+                    generateTriSet(facets);
+                    contentHandler.endDocument();
+                } finally {
+                    facets.close();
+                }
+
+                return new ArrayList<>();
+            }
+        }
+
         // Not good as this opens a second network connection, rather than
         // reusing the one that is already open when we checked the MIME type.
         // Need to recode some of the STL parser to deal with this.
@@ -214,6 +243,28 @@ public class STLFileParser implements NonWeb3DFileParser {
             }
         }
 
+        startDocument(input);
+
+        if (reader != null) {
+            generateTriSet(reader);
+        }
+
+        contentHandler.endDocument();
+        if (reader != null) {
+            reader.close();
+            return reader.getParsingMessages();
+        } else {
+            ArrayList<String> ret = new ArrayList<>();
+            return ret;
+        }
+    }
+
+    /**
+     * Start the document and declare the profile needed for the output.
+     */
+    private void startDocument(InputSource input)
+        throws VRMLException {
+
         contentHandler.startDocument(input.getURL(),
                                      input.getBaseURL(),
                                      "utf8",
@@ -223,19 +274,116 @@ public class STLFileParser implements NonWeb3DFileParser {
 
         contentHandler.profileDecl("Interchange");
         contentHandler.componentDecl("Rendering:3");
+    }
 
-        if (reader != null) {
-            generateTriSet(reader);
+    /**
+     * Get the file a URL refers to, if it is a local file.
+     *
+     * @param url The URL of the document
+     * @return The file, or null if the URL is not a local file
+     */
+    private static File getLocalFile(String url) {
+        if(url == null || !url.startsWith("file:"))
+            return null;
+
+        try {
+            File file = new File(new URL(url).toURI());
+            return file.isFile() ? file : null;
+        } catch(IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
         }
+    }
 
-        contentHandler.endDocument();
-        if (reader != null) {
-            reader.close();
-            return reader.getParsingMessages();
+    /**
+     * Generate the TriangleSet for a binary file read through mapped
+     * windows. The content handler must be a binary one.
+     */
+    private void generateTriSet(MappedFacetReader rdr)
+        throws IOException, VRMLException {
+
+        BinaryContentHandler bch = (BinaryContentHandler)contentHandler;
+        int num_tris = rdr.getNumFacets();
+
+        contentHandler.startNode("Shape", null);
+        contentHandler.startField("geometry");
+        contentHandler.startNode("TriangleSet", null);
+
+        contentHandler.startField("normalPerVertex");
+        bch.fieldValue(false);
+
+        if(contentHandler instanceof ChunkedBinaryContentHandler) {
+            ChunkedBinaryContentHandler cch =
+                (ChunkedBinaryContentHandler)contentHandler;
+
+            contentHandler.startField("coord");
+            contentHandler.startNode("Coordinate", null);
+            contentHandler.startField("point");
+            sendFacetValues(rdr, cch, 9);
+            contentHandler.endNode();
+
+            contentHandler.startField("normal");
+            contentHandler.startNode("Normal", null);
+            contentHandler.startField("vector");
+            sendFacetValues(rdr, cch, 3);
+            contentHandler.endNode();
         } else {
-            ArrayList<String> ret = new ArrayList<>();
-            return ret;
+            if((long)num_tris * 9 > Integer.MAX_VALUE - 8) {
+                throw new FilterProcessingException(
+                    "STL file has too many triangles for a single array",
+                    FilterExitCodes.OUT_OF_MEMORY);
+            }
+
+            float[] out_coords = new float[num_tris * 9];
+            float[] out_normals = new float[num_tris * 3];
+
+            rdr.readFacets(out_coords, out_normals, num_tris);
+
+            contentHandler.startField("coord");
+            contentHandler.startNode("Coordinate", null);
+            contentHandler.startField("point");
+            bch.fieldValue(out_coords, out_coords.length);
+            contentHandler.endNode();
+
+            contentHandler.startField("normal");
+            contentHandler.startNode("Normal", null);
+            contentHandler.startField("vector");
+            bch.fieldValue(out_normals, out_normals.length);
+            contentHandler.endNode();
         }
+
+        contentHandler.endNode();
+        contentHandler.endNode();
+    }
+
+    /**
+     * Read through the whole file sending either the coordinates or the
+     * normals of the facets as one value in pieces.
+     *
+     * @param rdr The reader for the file
+     * @param cch The handler to send the value to
+     * @param perFacet 9 to send coordinates or 3 to send normals
+     */
+    private void sendFacetValues(MappedFacetReader rdr,
+                                 ChunkedBinaryContentHandler cch,
+                                 int perFacet)
+        throws IOException, VRMLException {
+
+        long total = (long)rdr.getNumFacets() * perFacet;
+        float[] buf = new float[CHUNK_FACETS * perFacet];
+
+        rdr.reset();
+        cch.startFieldValue(total > Integer.MAX_VALUE ? -1 : (int)total);
+
+        int num;
+        if(perFacet == 9) {
+            while((num = rdr.readFacets(buf, null, CHUNK_FACETS)) > 0)
+                cch.appendFieldValue(buf, 0, num * 9);
+        } else {
+            while((num = rdr.readFacets(null, buf, CHUNK_FACETS)) > 0)
+                cch.appendFieldValue(buf, 0, num * 3);
+        }
+
+        cch.endFieldValue();
     }
 
     /**
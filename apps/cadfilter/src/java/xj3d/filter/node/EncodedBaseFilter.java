@@ -14,6 +14,7 @@ package xj3d.filter.node;
 
 // External imports
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 // Local imports
 import org.web3d.vrml.sav.*;
@@ -26,15 +27,29 @@ import org.web3d.vrml.lang.VRMLException;
 
 import xj3d.filter.BaseFilter;
 import xj3d.filter.NodeMarker;
+import xj3d.filter.OrderedEventBuffer;
 
 /**
  * A base filter that encodes nodes.
+ * <p>
+ *
+ * Filters that do heavy work on each geometry node can hand that work to a
+ * pool of threads when the <code>-pipeline</code> argument is given, with
+ * <code>-pipelineThreads</code> to set the size of the pool. Such a filter
+ * calls {@link #startOrderedOutput()} as the document starts, and submits
+ * its work to the returned buffer, which keeps the output in order.
  *
  * @author Alan Hudson
- * @version $Revision: 1.5 $
+ * @version $Revision: 1.6 $
  */
 public class EncodedBaseFilter extends BaseFilter {
 
+    /** Argument to hand geometry work to a pool of threads */
+    private static final String PIPELINE = "-pipeline";
+
+    /** Argument for the number of pipeline threads */
+    private static final String PIPELINE_THREADS = "-pipelineThreads";
+
     /** Node wrapper factory */
     protected EncodableFactory factory;
 
@@ -53,6 +68,24 @@ public class EncodedBaseFilter extends BaseFilter {
     /** Should nodes be encoded */
     protected boolean encodeRoutes;
 
+    /** The buffer that keeps pipelined output in order, null if not pipelined */
+    protected OrderedEventBuffer orderedOutput;
+
+    /** Is pipelining asked for */
+    private boolean pipeline;
+
+    /** The number of pipeline threads, 0 for the common pool */
+    private int pipelineThreads;
+
+    /** The pool created for this document, if any */
+    private ForkJoinPool pipelinePool;
+
+    /** The handlers replaced by the ordered output buffer */
+    private ContentHandler savedContentHandler;
+    private RouteHandler savedRouteHandler;
+    private ScriptHandler savedScriptHandler;
+    private ProtoHandler savedProtoHandler;
+
     /**
      * Construct a default instance of the field handler
      */
@@ -112,6 +145,32 @@ System.out.println("Encode change state to: " + val + " for: " + this);
         encodeNodes = val;
     }
 
+    /**
+     * Set the argument parameters to control the filter operation.
+     *
+     * @param args The array of argument parameters.
+     */
+    @Override
+    public void setArguments(String[] args) {
+
+        super.setArguments(args);
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(PIPELINE)) {
+                pipeline = true;
+            } else if (args[i].equals(PIPELINE_THREADS)) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(
+                        "Not enough args for " + PIPELINE_THREADS + ".  " +
+                        "Expecting one more for the number of threads.");
+                }
+
+                pipeline = true;
+                pipelineThreads = Integer.parseInt(args[++i]);
+            }
+        }
+    }
+
     //----------------------------------------------------------
     // Methods defined by ContentHandler
     //----------------------------------------------------------
@@ -173,6 +232,8 @@ System.out.println("Encode change state to: " + val + " for: " + this);
     public void endDocument() throws SAVException, VRMLException {
 
         super.endDocument();
+        endOrderedOutput();
+
         encStack.clear();
         encMap.clear();
 
@@ -695,4 +756,93 @@ System.out.println("Encode change state to: " + val + " for: " + this);
             destNodeName,
             destFieldName);
     }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Put an ordered output buffer in front of the next handlers, if
+     * pipelining was asked for. This must be called before the document
+     * is started here, so that the encodables also send to the buffer.
+     *
+     * @return The buffer, or null if the work should be done in line
+     */
+    protected OrderedEventBuffer startOrderedOutput() {
+        if (!pipeline || orderedOutput != null) {
+            return orderedOutput;
+        }
+
+        ForkJoinPool pool;
+        if (pipelineThreads > 0) {
+            pipelinePool = new ForkJoinPool(pipelineThreads);
+            pool = pipelinePool;
+        } else {
+            pool = ForkJoinPool.commonPool();
+        }
+
+        orderedOutput = OrderedEventBuffer.create(contentHandler,
+                                                  routeHandler,
+                                                  scriptHandler,
+                                                  protoHandler,
+                                                  pool,
+                                                  pool.getParallelism());
+
+        if (orderedOutput == null) {
+            errorHandler.warningReport(
+                "Pipelining not possible with the next handler, " +
+                "geometry will be processed in line", null);
+            shutdownPool();
+            return null;
+        }
+
+        savedContentHandler = contentHandler;
+        savedRouteHandler = routeHandler;
+        savedScriptHandler = scriptHandler;
+        savedProtoHandler = protoHandler;
+
+        contentHandler = orderedOutput;
+        routeHandler = orderedOutput;
+        scriptHandler = orderedOutput;
+        protoHandler = orderedOutput;
+
+        return orderedOutput;
+    }
+
+    /**
+     * Send everything held by the ordered output buffer and put the next
+     * handlers back in place. Does nothing if there is no buffer.
+     */
+    protected void endOrderedOutput() {
+        if (orderedOutput == null) {
+            return;
+        }
+
+        try {
+            orderedOutput.flush();
+        } finally {
+            contentHandler = savedContentHandler;
+            routeHandler = savedRouteHandler;
+            scriptHandler = savedScriptHandler;
+            protoHandler = savedProtoHandler;
+
+            savedContentHandler = null;
+            savedRouteHandler = null;
+            savedScriptHandler = null;
+            savedProtoHandler = null;
+
+            orderedOutput = null;
+            shutdownPool();
+        }
+    }
+
+    /**
+     * Stop the pool created for this document, if there is one.
+     */
+    private void shutdownPool() {
+        if (pipelinePool != null) {
+            pipelinePool.shutdown();
+            pipelinePool = null;
+        }
+    }
 }
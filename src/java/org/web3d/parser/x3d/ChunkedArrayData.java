@@ -0,0 +1,461 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Local imports
+import org.web3d.vrml.export.compressors.FloatPacker;
+
+import org.web3d.vrml.lang.InvalidFieldFormatException;
+
+import org.web3d.vrml.sav.ChunkedBinaryContentHandler;
+
+/**
+ * A compressed array attribute from a binary X3D file whose decoding has
+ * been put off until the value is delivered.
+ * <p>
+ *
+ * The encoding algorithms return one of these in place of the decoded array
+ * when the array is big. The compressed bytes are kept, and the values are
+ * inflated and decoded a piece at a time as they are handed to a
+ * {@link ChunkedBinaryContentHandler}, so the whole decoded array never
+ * exists in the parser. For other content handlers the full array can still
+ * be made with {@link #toArray()}.
+ * <p>
+ *
+ * The decoding gives exactly the same values as the whole array decoders in
+ * the algorithm classes. Each thread keeps one inflater and inflate buffer
+ * that is reused for every array it decodes, so a file full of big arrays
+ * does not make garbage for each one.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.2 $
+ */
+abstract class ChunkedArrayData {
+
+    /** Arrays with at least this many values are decoded in pieces */
+    static final int MIN_CHUNKED_LENGTH = 65536;
+
+    /** The number of values in each piece handed out */
+    private static final int CHUNK_SIZE = 16384;
+
+    /** Size of the buffer that the inflated bytes go into */
+    private static final int INFLATE_BUFFER_SIZE = 32768;
+
+    /** The inflate workspace free for reuse by each thread */
+    private static final ThreadLocal<Workspace> freeWorkspace =
+        new ThreadLocal<>();
+
+    /** Message when the compressed data runs out early */
+    private static final String SHORT_DATA_MSG =
+        "The compressed array data ended before all the values were read";
+
+    /** Message when the compressed data is damaged */
+    private static final String BAD_DATA_MSG =
+        "Invalid compressed array data: ";
+
+    /** The number of values in the array */
+    protected final int length;
+
+    /** The compressed bytes */
+    private final byte[] compressed;
+
+    /** The workspace used by the current pass */
+    private Workspace workspace;
+
+    /** The inflater working on the current pass */
+    private Inflater inflater;
+
+    /** Buffer holding the inflated bytes */
+    private byte[] inflated;
+
+    /** The next byte to read from the inflated buffer */
+    private int inflatedPos;
+
+    /** The number of valid bytes in the inflated buffer */
+    private int inflatedLimit;
+
+    /**
+     * An inflater and the buffer it inflates into.
+     */
+    private static class Workspace {
+
+        /** The inflater, reset between uses */
+        final Inflater inflater = new Inflater(false);
+
+        /** The buffer for inflated bytes */
+        final byte[] buffer = new byte[INFLATE_BUFFER_SIZE];
+    }
+
+    /**
+     * Quantized floats, as written by the
+     * {@link QuantizedzlibFloatArrayAlgorithm}.
+     */
+    private static class QuantizedFloats extends ChunkedArrayData {
+
+        /** The number of bits in each packed value */
+        private final int numBits;
+
+        /** The decoder of the packed values */
+        private final FloatPacker decoder;
+
+        /** Bits read but not yet used */
+        private long bitBuffer;
+
+        /** The number of bits held in bitBuffer */
+        private int bitCount;
+
+        /**
+         * Create the data from the header values and compressed bytes.
+         */
+        QuantizedFloats(int length,
+                        int exponent,
+                        int mantissa,
+                        byte[] compressed) {
+            super(length, compressed);
+
+            numBits = exponent + mantissa + 1;
+            decoder = new FloatPacker(exponent, mantissa);
+        }
+
+        @Override
+        Object toArray() throws IOException {
+            float[] ret_val = new float[length];
+
+            start();
+            decode(ret_val, 0, length);
+            finish();
+
+            return ret_val;
+        }
+
+        @Override
+        void deliver(ChunkedBinaryContentHandler handler) throws IOException {
+            float[] chunk = new float[Math.min(CHUNK_SIZE, length)];
+
+            start();
+            handler.startFieldValue(length);
+
+            for(int i = 0; i < length; i += chunk.length) {
+                int len = Math.min(chunk.length, length - i);
+                decode(chunk, 0, len);
+                handler.appendFieldValue(chunk, 0, len);
+            }
+
+            finish();
+            handler.endFieldValue();
+        }
+
+        /**
+         * Decode the next values in the stream into the array.
+         */
+        private void decode(float[] values, int offset, int len)
+            throws IOException {
+
+            int sign_mask = numBits < 32 ? -1 << numBits : -1 << 31;
+            long value_mask = (1L << numBits) - 1;
+            int top_bit = 1 << (numBits - 1);
+
+            for(int i = offset; i < offset + len; i++) {
+                while(bitCount < numBits) {
+                    bitBuffer = (bitBuffer << 8) | nextByte();
+                    bitCount += 8;
+                }
+
+                bitCount -= numBits;
+
+                int val = (int)((bitBuffer >>> bitCount) & value_mask);
+                bitBuffer &= (1L << bitCount) - 1;
+
+                // Same sign handling as the BitUnpacker
+                if((val & top_bit) != 0)
+                    val |= sign_mask;
+
+                values[i] = decoder.decode(val, true);
+            }
+        }
+
+        @Override
+        protected void start() {
+            super.start();
+
+            bitBuffer = 0;
+            bitCount = 0;
+        }
+    }
+
+    /**
+     * Delta coded ints, as written by the {@link DeltazlibIntArrayAlgorithm}.
+     */
+    private static class DeltaInts extends ChunkedArrayData {
+
+        /** The distance back that each delta is taken from, or 0 for none */
+        private final int span;
+
+        /** The last value seen at each position in the span */
+        private final int[] lastValues;
+
+        /** The index of the next value to decode */
+        private int position;
+
+        /**
+         * Create the data from the header values and compressed bytes.
+         */
+        DeltaInts(int length, int span, byte[] compressed) {
+            super(length, compressed);
+
+            this.span = span;
+            lastValues = span > 0 ? new int[span] : null;
+        }
+
+        @Override
+        Object toArray() throws IOException {
+            int[] ret_val = new int[length];
+
+            start();
+            decode(ret_val, 0, length);
+            finish();
+
+            return ret_val;
+        }
+
+        @Override
+        void deliver(ChunkedBinaryContentHandler handler) throws IOException {
+            int[] chunk = new int[Math.min(CHUNK_SIZE, length)];
+
+            start();
+            handler.startFieldValue(length);
+
+            for(int i = 0; i < length; i += chunk.length) {
+                int len = Math.min(chunk.length, length - i);
+                decode(chunk, 0, len);
+                handler.appendFieldValue(chunk, 0, len);
+            }
+
+            finish();
+            handler.endFieldValue();
+        }
+
+        /**
+         * Decode the next values in the stream into the array.
+         */
+        private void decode(int[] values, int offset, int len)
+            throws IOException {
+
+            for(int i = offset; i < offset + len; i++) {
+                int val = (nextByte() << 24) + (nextByte() << 16) +
+                          (nextByte() << 8) + nextByte() - 1;
+
+                if(span > 0) {
+                    int slot = position % span;
+
+                    if(position >= span)
+                        val += lastValues[slot];
+
+                    lastValues[slot] = val;
+                }
+
+                values[i] = val;
+                position++;
+            }
+        }
+
+        @Override
+        protected void start() {
+            super.start();
+
+            position = 0;
+        }
+    }
+
+    /**
+     * Create the data for the given number of values.
+     *
+     * @param length The number of values in the array
+     * @param compressed The compressed bytes
+     */
+    protected ChunkedArrayData(int length, byte[] compressed) {
+        this.length = length;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Create the data for an array encoded by the
+     * {@link QuantizedzlibFloatArrayAlgorithm}, if it is big enough to be
+     * worth decoding in pieces.
+     *
+     * @param b The buffer holding the encoded value
+     * @param start The index of the first byte of the value
+     * @param len The number of bytes in the value
+     * @return The data, or null if the array should be decoded in one go
+     */
+    static ChunkedArrayData quantizedFloats(byte[] b, int start, int len) {
+        int num_floats = readInt(b, start + 6);
+
+        if(num_floats < MIN_CHUNKED_LENGTH)
+            return null;
+
+        int exponent = b[start] & 127;
+        int mantissa = b[start + 1];
+
+        // Wider values than an int are left to the original decoder
+        if(exponent + mantissa + 1 > 32)
+            return null;
+
+        byte[] data = Arrays.copyOfRange(b, start + 10, start + len);
+
+        return new QuantizedFloats(num_floats, exponent, mantissa, data);
+    }
+
+    /**
+     * Create the data for an array encoded by the
+     * {@link DeltazlibIntArrayAlgorithm}, if it is big enough to be worth
+     * decoding in pieces.
+     *
+     * @param b The buffer holding the encoded value
+     * @param start The index of the first byte of the value
+     * @param len The number of bytes in the value
+     * @return The data, or null if the array should be decoded in one go
+     */
+    static ChunkedArrayData deltaInts(byte[] b, int start, int len) {
+        int num_ints = readInt(b, start);
+
+        if(num_ints < MIN_CHUNKED_LENGTH)
+            return null;
+
+        int span = b[start + 4];
+        byte[] data = Arrays.copyOfRange(b, start + 5, start + len);
+
+        return new DeltaInts(num_ints, span, data);
+    }
+
+    /**
+     * Convenience method to turn algorithm data into a plain array, for the
+     * places that need the whole value at once.
+     *
+     * @param data The data from the attribute
+     * @return The data, decoded if it was held compressed
+     * @throws InvalidFieldFormatException The compressed data is damaged
+     */
+    static Object resolve(Object data) {
+        if(!(data instanceof ChunkedArrayData))
+            return data;
+
+        try {
+            return ((ChunkedArrayData)data).toArray();
+        } catch(IOException ioe) {
+            throw new InvalidFieldFormatException(BAD_DATA_MSG + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Decode the whole array.
+     *
+     * @return An array of primitives holding all the values
+     * @throws IOException The compressed data is damaged
+     */
+    abstract Object toArray() throws IOException;
+
+    /**
+     * Decode the array a piece at a time, sending each piece to the handler.
+     * Everything from the <code>startFieldValue()</code> call through to
+     * <code>endFieldValue()</code> is done here.
+     *
+     * @param handler The handler to send the values to
+     * @throws IOException The compressed data is damaged
+     */
+    abstract void deliver(ChunkedBinaryContentHandler handler)
+        throws IOException;
+
+    /**
+     * Get the number of values in the array.
+     *
+     * @return The length of the decoded array
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Start a new pass over the compressed data. The data may be decoded
+     * more than once.
+     */
+    protected void start() {
+        workspace = freeWorkspace.get();
+
+        if(workspace == null)
+            workspace = new Workspace();
+        else
+            freeWorkspace.set(null);
+
+        inflater = workspace.inflater;
+        inflated = workspace.buffer;
+        inflater.setInput(compressed);
+
+        inflatedPos = 0;
+        inflatedLimit = 0;
+    }
+
+    /**
+     * Hand the inflater back for reuse at the end of a pass.
+     */
+    protected void finish() {
+        inflater.reset();
+        freeWorkspace.set(workspace);
+
+        workspace = null;
+        inflater = null;
+        inflated = null;
+    }
+
+    /**
+     * Read the next inflated byte.
+     *
+     * @return The byte value, from 0 to 255
+     * @throws IOException The data is damaged or ended too soon
+     */
+    protected final int nextByte() throws IOException {
+        while(inflatedPos == inflatedLimit) {
+            try {
+                inflatedLimit = inflater.inflate(inflated);
+                inflatedPos = 0;
+            } catch(DataFormatException dfe) {
+                finish();
+                throw new IOException(dfe.getMessage(), dfe);
+            }
+
+            if(inflatedLimit == 0 &&
+               (inflater.finished() || inflater.needsInput() ||
+                inflater.needsDictionary())) {
+                finish();
+                throw new IOException(SHORT_DATA_MSG);
+            }
+        }
+
+        return inflated[inflatedPos++] & 255;
+    }
+
+    /**
+     * Read a big endian int from the buffer.
+     */
+    private static int readInt(byte[] b, int start) {
+        return ((b[start] & 255) << 24) + ((b[start + 1] & 255) << 16) +
+               ((b[start + 2] & 255) << 8) + (b[start + 3] & 255);
+    }
+}
@@ -73,6 +73,9 @@ public class DeltazlibIntArrayAlgorithm implements EncodingAlgorithm {
     /** The working compression level option for the Deflater */
     protected int compression_level;
 
+    /** Should big arrays be left compressed until they are delivered */
+    private boolean chunkedDecoding;
+
     /**
      * Default Constructor
      */
@@ -90,6 +93,17 @@ public class DeltazlibIntArrayAlgorithm implements EncodingAlgorithm {
         this.compression_level = compression_level;
     }
 
+    /**
+     * Set whether big arrays are returned from decoding as data that is only
+     * decoded when it is delivered to the content handler, rather than as an
+     * int[]. By default they are decoded straight away.
+     *
+     * @param enable true to leave big arrays compressed
+     */
+    public void setChunkedDecoding(boolean enable) {
+        chunkedDecoding = enable;
+    }
+
     @Override
     public void encodeToOutputStream(Object data, OutputStream s) throws IOException {
         if (!(data instanceof int[])) {
@@ -106,6 +120,14 @@ public class DeltazlibIntArrayAlgorithm implements EncodingAlgorithm {
     public final Object decodeFromBytes(byte[] b, int start, int length) throws EncodingAlgorithmException {
         //        System.out.println("Decompress: start: " + start + " len: " + length);
 
+        if(chunkedDecoding) {
+            ChunkedArrayData chunked =
+                ChunkedArrayData.deltaInts(b, start, length);
+
+            if(chunked != null)
+                return chunked;
+        }
+
         try {
             return zlibDecompressIntArray(b, start, length);
         } catch(IOException | DataFormatException e) {
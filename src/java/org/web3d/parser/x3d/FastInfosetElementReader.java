@@ -13,6 +13,8 @@
 package org.web3d.parser.x3d;
 
 // External imports
+import java.io.IOException;
+
 import org.xml.sax.SAXException;
 import org.xml.sax.Attributes;
 
@@ -27,6 +29,7 @@ import org.web3d.util.*;
 import org.web3d.vrml.sav.*;
 
 import org.web3d.vrml.lang.InvalidFieldException;
+import org.web3d.vrml.lang.InvalidFieldFormatException;
 import org.web3d.x3d.jaxp.X3DSAVAdapter;
 import org.web3d.vrml.export.compressors.NodeCompressor;
 //import org.web3d.vrml.export.compressors.TestCompressor;
@@ -38,7 +41,7 @@ import org.web3d.vrml.export.compressors.NodeCompressor;
  * This expects attributes of type TypeAttributes instead of just Attributes.
  *
  * @author Alan Hudson
- * @version $Revision: 1.15 $
+ * @version $Revision: 1.17 $
  */
 class FastInfosetElementReader extends X3DSAVAdapter
     implements PrimitiveTypeContentHandler, EncodingAlgorithmContentHandler {
@@ -145,12 +148,12 @@ class FastInfosetElementReader extends X3DSAVAdapter
 
                         switch (algo) {
                             case EncodingAlgorithmIndexes.INT:
-                                int[] ival = (int[]) atts.getAlgorithmData(idx);
+                                int[] ival = (int[]) ChunkedArrayData.resolve(atts.getAlgorithmData(idx));
                                 currentCompressor.decompress(ival);
                                 currentCompressor.fillData(lastNodeName, bch);
                                 break;
                             case X3DBinaryConstants.DELTA_ZLIB_INT_ARRAY_ALGORITHM_ID:
-                                int[] i4val = (int[]) atts.getAlgorithmData(idx);
+                                int[] i4val = (int[]) ChunkedArrayData.resolve(atts.getAlgorithmData(idx));
                                 currentCompressor.decompress(i4val);
                                 currentCompressor.fillData(lastNodeName, bch);
                                 break;
@@ -248,7 +251,7 @@ class FastInfosetElementReader extends X3DSAVAdapter
 
                         if (atts.getAlgorithmIndex(i) == EncodingAlgorithmIndexes.INT) {
                             // TODO: Assume all INT's are arrays
-                            int[] ival = (int[]) atts.getAlgorithmData(i);
+                            int[] ival = (int[]) ChunkedArrayData.resolve(atts.getAlgorithmData(i));
                             currentCompressor.decompress(ival);
                             currentCompressor.fillData(qName, bch);
 
@@ -410,7 +413,7 @@ class FastInfosetElementReader extends X3DSAVAdapter
                 if((value = attribs.getValue("USE")) != null)
                     is_used = true;
                 else
-                    value = attribs.getValue(VALUE_ATTR);
+                    value = declValue(atts, attribs.getIndex(VALUE_ATTR));
 
                 if(inScript) {
                     if(is_used) {
@@ -462,7 +465,7 @@ class FastInfosetElementReader extends X3DSAVAdapter
             case META_TAG:
                 if(contentHandler != null) {
                     contentHandler.metaDecl(attribs.getValue(NAME_ATTR),
-                                            attribs.getValue("type"));
+                                            attribs.getValue("content"));
                 }
                 break;
 
@@ -621,6 +624,10 @@ class FastInfosetElementReader extends X3DSAVAdapter
                         int val_attr = attribs.getIndex(VALUE_ATTR);
 
                         decodeField(atts,val_attr,bch,attribs.getValue(NAME_ATTR));
+
+                        // Reset the character buffer regardless. If CDATA
+                        // is provided, it always overrides the attribute value
+                        characterDataBuffer.setLength(0);
                     }
                 }
 
@@ -907,6 +914,57 @@ class FastInfosetElementReader extends X3DSAVAdapter
     public void object(String URI, int algorithm, Object o)  throws SAXException {
     }
 
+    /**
+     * Get the value of a field declaration as a string. Script and PROTO
+     * field declarations only take a string, but array values may have been
+     * written with an encoding algorithm, for which there is no string.
+     *
+     * @param atts The attributes of the field element
+     * @param i The index of the value attribute, or -1 if there is none
+     * @return The value as a string, or null if there is none
+     */
+    private String declValue(AttributesHolder atts, int i) {
+        if(i < 0)
+            return null;
+
+        Object data = atts.getAlgorithmData(i);
+
+        if(data == null)
+            return atts.getValue(i);
+
+        data = ChunkedArrayData.resolve(data);
+
+        StringBuilder buf = new StringBuilder();
+
+        if(data instanceof float[]) {
+            float[] fval = (float[])data;
+            for(int j = 0; j < fval.length; j++)
+                buf.append(fval[j]).append(' ');
+        } else if(data instanceof double[]) {
+            double[] dval = (double[])data;
+            for(int j = 0; j < dval.length; j++)
+                buf.append(dval[j]).append(' ');
+        } else if(data instanceof int[]) {
+            int[] ival = (int[])data;
+            for(int j = 0; j < ival.length; j++)
+                buf.append(ival[j]).append(' ');
+        } else if(data instanceof short[]) {
+            short[] sval = (short[])data;
+            for(int j = 0; j < sval.length; j++)
+                buf.append(sval[j]).append(' ');
+        } else if(data instanceof boolean[]) {
+            boolean[] zval = (boolean[])data;
+            for(int j = 0; j < zval.length; j++)
+                buf.append(zval[j] ? "TRUE " : "FALSE ");
+        } else {
+            errorReporter.errorReport("Unsupported field declaration data " +
+                                      data.getClass().getName(), null);
+            return null;
+        }
+
+        return buf.toString().trim();
+    }
+
     /**
      * Decode a field
      */
@@ -932,7 +990,11 @@ class FastInfosetElementReader extends X3DSAVAdapter
             // Handle most correctly now, not sure about byte
             Object o = atts.getAlgorithmData(i);
 
-            if (o instanceof float[]) {
+            if (o instanceof ChunkedArrayData) {
+                bch.startField(att_name);
+                decodeChunkedField((ChunkedArrayData) o, bch);
+                return;
+            } else if (o instanceof float[]) {
                 float[] f2val = (float[]) atts.getAlgorithmData(i);
                 bch.startField(att_name);
                 bch.fieldValue(f2val, f2val.length);
@@ -949,6 +1011,12 @@ class FastInfosetElementReader extends X3DSAVAdapter
                 bch.fieldValue(dval, dval.length);
                 bch.endField();
                 return;
+            } else if (o instanceof boolean[]) {
+                // SFBool is always written as a string, so this is MFBool
+                boolean[] zval = (boolean[]) o;
+                bch.startField(att_name);
+                bch.fieldValue(zval, zval.length);
+                return;
             } else if (o instanceof short[]) {
                 short[] sval = (short[]) atts.getAlgorithmData(i);
                 int alen = sval.length;
@@ -1041,4 +1109,32 @@ class FastInfosetElementReader extends X3DSAVAdapter
             }
         }
     }
+
+    /**
+     * Send a big array that is still compressed to the content handler. If
+     * the handler takes values in pieces it gets them that way, otherwise
+     * the whole array is decoded and sent in one call.
+     */
+    private void decodeChunkedField(ChunkedArrayData data,
+                                    BinaryContentHandler bch) {
+        try {
+            if (bch instanceof ChunkedBinaryContentHandler) {
+                data.deliver((ChunkedBinaryContentHandler) bch);
+                return;
+            }
+
+            Object array = data.toArray();
+
+            if (array instanceof float[]) {
+                float[] fval = (float[]) array;
+                bch.fieldValue(fval, fval.length);
+            } else {
+                int[] ival = (int[]) array;
+                bch.fieldValue(ival, ival.length);
+            }
+        } catch(IOException ioe) {
+            throw new InvalidFieldFormatException(
+                "Invalid compressed array data: " + ioe.getMessage());
+        }
+    }
 }
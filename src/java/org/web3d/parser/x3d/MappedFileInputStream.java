@@ -0,0 +1,235 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Local imports
+// None
+
+/**
+ * An input stream that reads a local file through memory mapped windows
+ * rather than through read calls and a heap buffer.
+ * <p>
+ *
+ * The file is mapped a window at a time so that files bigger than the 2GB
+ * limit of a single mapping can be read. Bytes are copied straight from the
+ * mapping into the reader's array, so there is no intermediate buffer and
+ * no system call for each read. The channel is closed when the stream is,
+ * but the last mapping is only released by the garbage collector, as the
+ * platform gives no way to unmap it sooner.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class MappedFileInputStream extends InputStream {
+
+    /** The default size of each mapped window, 256MB */
+    static final int DEFAULT_WINDOW_SIZE = 256 << 20;
+
+    /** The channel the file is mapped from */
+    private final FileChannel channel;
+
+    /** The length of the file */
+    private final long fileLength;
+
+    /** The size of each window */
+    private final int windowSize;
+
+    /** The current window. Null once the stream is closed */
+    private MappedByteBuffer window;
+
+    /** The file position of the start of the current window */
+    private long windowStart;
+
+    /** The file position of the mark */
+    private long markPosition;
+
+    /**
+     * Open the file for reading with the default window size.
+     *
+     * @param file The file to read
+     * @throws IOException The file could not be opened or mapped
+     */
+    MappedFileInputStream(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Open the file for reading, mapping the given amount at a time.
+     *
+     * @param file The file to read
+     * @param windowSize The number of bytes to map at a time
+     * @throws IOException The file could not be opened or mapped
+     */
+    MappedFileInputStream(File file, int windowSize) throws IOException {
+        this.windowSize = windowSize;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            channel = raf.getChannel();
+            fileLength = channel.size();
+            mapWindow(0);
+        } catch(IOException ioe) {
+            raf.close();
+            throw ioe;
+        }
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by InputStream
+    //----------------------------------------------------------
+
+    @Override
+    public int read() throws IOException {
+        if(!ensureRemaining())
+            return -1;
+
+        return window.get() & 255;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0)
+            return 0;
+
+        if(!ensureRemaining())
+            return -1;
+
+        int count = Math.min(len, window.remaining());
+        window.get(b, off, count);
+
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkOpen();
+
+        long pos = position();
+        long skipped = Math.max(0, Math.min(n, fileLength - pos));
+
+        seek(pos + skipped);
+
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkOpen();
+
+        return (int)Math.min(Integer.MAX_VALUE, fileLength - position());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        if(window != null)
+            markPosition = position();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        checkOpen();
+        seek(markPosition);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Get the length of the file being read.
+     *
+     * @return The length in bytes
+     */
+    long length() {
+        return fileLength;
+    }
+
+    /**
+     * Get the position in the file of the next byte to be read.
+     */
+    private long position() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * Move to the given position in the file, mapping a new window if it is
+     * outside the current one.
+     */
+    private void seek(long pos) throws IOException {
+        if(pos >= windowStart && pos <= windowStart + window.limit())
+            window.position((int)(pos - windowStart));
+        else
+            mapWindow(pos);
+    }
+
+    /**
+     * Make sure there is something left to read, moving on to the next
+     * window if needed.
+     *
+     * @return false if the end of the file has been reached
+     */
+    private boolean ensureRemaining() throws IOException {
+        checkOpen();
+
+        if(window.hasRemaining())
+            return true;
+
+        long next = windowStart + window.limit();
+
+        if(next >= fileLength)
+            return false;
+
+        mapWindow(next);
+
+        return true;
+    }
+
+    /**
+     * Map the window that starts at the given position.
+     */
+    private void mapWindow(long start) throws IOException {
+        long size = Math.min(windowSize, fileLength - start);
+
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+    }
+
+    /**
+     * Throw an exception if the stream has been closed.
+     */
+    private void checkOpen() throws IOException {
+        if(window == null)
+            throw new IOException("Stream closed");
+    }
+}
@@ -0,0 +1,549 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+// None
+
+// Local imports
+// None
+
+/**
+ * Hand written scanner for the common numeric field types, used as a fast
+ * path in front of the JavaCC field parser.
+ * <p>
+ *
+ * The scanner reads the numbers straight out of the string into a primitive
+ * array of exactly the right size. It makes no token objects and holds no
+ * state, so any number of threads may use it at once. The values returned
+ * are exactly those the JavaCC parser would produce.
+ * <p>
+ *
+ * Only the plain form of a field is handled: numbers separated by white
+ * space or commas, optionally inside one pair of square brackets. Anything
+ * else, such as comments, hex floats, number suffixes or a malformed value,
+ * makes the scanner give up and return null. The caller then uses the
+ * JavaCC parser, which deals with the unusual forms and produces the error
+ * messages. Numbers that cannot be converted exactly with the fast
+ * arithmetic are handed to the Java library conversion instead.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+final class NumericFieldScanner {
+
+    /** The largest mantissa that a double holds exactly, 2^53 */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** The most significant digits kept in the mantissa */
+    private static final int MAX_DIGITS = 18;
+
+    /** Powers of ten that a double holds exactly */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+        1e21, 1e22
+    };
+
+    /** The low bits of a double that are lost when it becomes a float */
+    private static final long FLOAT_LOST_BITS = (1L << 29) - 1;
+
+    /** The lost bits of a double lying half way between two floats */
+    private static final long FLOAT_HALF_WAY = 1L << 28;
+
+    /** Value that marks a number the fast arithmetic can't convert */
+    private static final double NOT_EXACT = Double.NaN;
+
+    /** Private constructor as this only has static methods */
+    private NumericFieldScanner() {
+    }
+
+    /**
+     * Scan a field made of float values.
+     *
+     * @param value The raw field value
+     * @param tupleSize The number of values in each item of the field
+     * @param needOne true if the field must have at least one item
+     * @param colour true if the values must lie between 0 and 1
+     * @return The values, or null if the JavaCC parser must be used
+     */
+    static float[] scanFloats(String value,
+                              int tupleSize,
+                              boolean needOne,
+                              boolean colour) {
+        int end = bodyEnd(value);
+
+        if(end < 0)
+            return null;
+
+        int start = bodyStart(value, end);
+        int count = countTokens(value, start, end);
+
+        if(count < 0 || !checkCount(count, tupleSize, needOne))
+            return null;
+
+        float[] ret_val = new float[count];
+        int pos = start;
+
+        for(int i = 0; i < count; i++) {
+            pos = skipSeparators(value, pos, end);
+
+            int token_end = tokenEnd(value, pos, end);
+
+            if(!validStart(value, pos, token_end))
+                return null;
+
+            double d = convert(value, pos, token_end);
+            float f;
+
+            if(Double.isNaN(d)) {
+                f = slowFloat(value, pos, token_end);
+
+                if(Float.isNaN(f))
+                    return null;
+            } else {
+                f = toFloat(d);
+
+                if(Float.isNaN(f))
+                    f = slowFloat(value, pos, token_end);
+
+                if(Float.isNaN(f))
+                    return null;
+            }
+
+            if(colour && (f > 1 || f < 0))
+                return null;
+
+            ret_val[i] = f;
+            pos = token_end;
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Scan a field made of double values.
+     *
+     * @param value The raw field value
+     * @param tupleSize The number of values in each item of the field
+     * @param needOne true if the field must have at least one item
+     * @return The values, or null if the JavaCC parser must be used
+     */
+    static double[] scanDoubles(String value, int tupleSize, boolean needOne) {
+        int end = bodyEnd(value);
+
+        if(end < 0)
+            return null;
+
+        int start = bodyStart(value, end);
+        int count = countTokens(value, start, end);
+
+        if(count < 0 || !checkCount(count, tupleSize, needOne))
+            return null;
+
+        double[] ret_val = new double[count];
+        int pos = start;
+
+        for(int i = 0; i < count; i++) {
+            pos = skipSeparators(value, pos, end);
+
+            int token_end = tokenEnd(value, pos, end);
+
+            if(!validStart(value, pos, token_end))
+                return null;
+
+            double d = convert(value, pos, token_end);
+
+            if(Double.isNaN(d)) {
+                try {
+                    d = Double.parseDouble(value.substring(pos, token_end));
+                } catch(NumberFormatException nfe) {
+                    return null;
+                }
+            }
+
+            ret_val[i] = d;
+            pos = token_end;
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Scan a field made of int values. Decimal values and unsigned hex values
+     * starting with 0x are handled.
+     *
+     * @param value The raw field value
+     * @param minCount The fewest values the field may have
+     * @param allowBrackets true if the values may be inside square brackets
+     * @return The values, or null if the JavaCC parser must be used
+     */
+    static int[] scanInts(String value, int minCount, boolean allowBrackets) {
+        int end = bodyEnd(value);
+
+        if(end < 0)
+            return null;
+
+        int start = bodyStart(value, end);
+
+        if(!allowBrackets &&
+           ((start > 0 && value.charAt(start - 1) == '[') ||
+            (end < value.length() && value.charAt(end) == ']')))
+            return null;
+
+        int count = countTokens(value, start, end);
+
+        if(count < minCount)
+            return null;
+
+        int[] ret_val = new int[count];
+        int pos = start;
+
+        for(int i = 0; i < count; i++) {
+            pos = skipSeparators(value, pos, end);
+
+            int token_end = tokenEnd(value, pos, end);
+
+            if(!validStart(value, pos, token_end))
+                return null;
+
+            long v = convertInt(value, pos, token_end);
+
+            if(v == Long.MIN_VALUE)
+                return null;
+
+            ret_val[i] = (int)v;
+            pos = token_end;
+        }
+
+        return ret_val;
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Check the number of values makes whole items.
+     */
+    private static boolean checkCount(int count, int tupleSize, boolean needOne) {
+        if(needOne && count == 0)
+            return false;
+
+        return (count % tupleSize) == 0;
+    }
+
+    /**
+     * Find the end of the values, before any closing bracket. A closing
+     * bracket may only be followed by white space.
+     *
+     * @return The index just past the values, or -1 to give up
+     */
+    private static int bodyEnd(String value) {
+        int end = value.length();
+
+        while(end > 0 && isSeparator(value.charAt(end - 1)))
+            end--;
+
+        if(end > 0 && value.charAt(end - 1) == ']')
+            end--;
+
+        return end;
+    }
+
+    /**
+     * Find the start of the values, after any opening bracket.
+     */
+    private static int bodyStart(String value, int end) {
+        int pos = skipSeparators(value, 0, end);
+
+        if(pos < end && value.charAt(pos) == '[')
+            pos++;
+
+        return pos;
+    }
+
+    /**
+     * Count the values, checking that each only holds characters the
+     * scanner understands.
+     *
+     * @return The number of values, or -1 to give up
+     */
+    private static int countTokens(String value, int start, int end) {
+        int count = 0;
+        boolean in_token = false;
+
+        for(int i = start; i < end; i++) {
+            char ch = value.charAt(i);
+
+            if(isSeparator(ch)) {
+                in_token = false;
+            } else if((ch >= '0' && ch <= '9') || ch == '.' || ch == '-' ||
+                      ch == '+' || ch == 'e' || ch == 'E' || ch == 'x' ||
+                      (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F')) {
+                if(!in_token) {
+                    count++;
+                    in_token = true;
+                }
+            } else {
+                // Brackets in the middle, comments, strings and anything
+                // else is left to the JavaCC parser.
+                return -1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Check for the characters treated as white space in a field.
+     */
+    private static boolean isSeparator(char ch) {
+        return ch == ' ' || ch == ',' || ch == '\n' || ch == '\r' ||
+               ch == '\t' || ch == '\f';
+    }
+
+    /**
+     * Move past white space and commas.
+     */
+    private static int skipSeparators(String value, int pos, int end) {
+        while(pos < end && isSeparator(value.charAt(pos)))
+            pos++;
+
+        return pos;
+    }
+
+    /**
+     * Find the end of the value starting at the given position.
+     */
+    private static int tokenEnd(String value, int pos, int end) {
+        while(pos < end && !isSeparator(value.charAt(pos)))
+            pos++;
+
+        return pos;
+    }
+
+    /**
+     * Check that a value starts the way the JavaCC number token does: an
+     * optional minus sign, an optional point and then a digit.
+     */
+    private static boolean validStart(String value, int pos, int end) {
+        if(pos < end && value.charAt(pos) == '-')
+            pos++;
+
+        if(pos < end && value.charAt(pos) == '.')
+            pos++;
+
+        if(pos == end)
+            return false;
+
+        char ch = value.charAt(pos);
+
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Convert a decimal number with the exact fast path. The result is the
+     * correctly rounded double of the text.
+     *
+     * @return The value, or NaN if the text is not a plain decimal number or
+     *    can't be converted exactly this way
+     */
+    private static double convert(String value, int pos, int end) {
+        boolean negative = false;
+
+        if(value.charAt(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seen_digit = false;
+        boolean seen_point = false;
+
+        for(; pos < end; pos++) {
+            char ch = value.charAt(pos);
+
+            if(ch >= '0' && ch <= '9') {
+                seen_digit = true;
+
+                if(mantissa == 0 && ch == '0') {
+                    // Leading zeros are not significant
+                    if(seen_point)
+                        exponent--;
+                    continue;
+                }
+
+                if(digits == MAX_DIGITS)
+                    return NOT_EXACT;
+
+                mantissa = mantissa * 10 + (ch - '0');
+                digits++;
+
+                if(seen_point)
+                    exponent--;
+            } else if(ch == '.' && !seen_point) {
+                seen_point = true;
+            } else {
+                break;
+            }
+        }
+
+        if(!seen_digit)
+            return NOT_EXACT;
+
+        if(pos < end) {
+            char ch = value.charAt(pos);
+
+            if(ch != 'e' && ch != 'E')
+                return NOT_EXACT;
+
+            pos++;
+
+            boolean exp_negative = false;
+
+            if(pos < end && (value.charAt(pos) == '-' || value.charAt(pos) == '+')) {
+                exp_negative = value.charAt(pos) == '-';
+                pos++;
+            }
+
+            if(pos == end)
+                return NOT_EXACT;
+
+            int exp_value = 0;
+
+            for(; pos < end; pos++) {
+                ch = value.charAt(pos);
+
+                if(ch < '0' || ch > '9' || exp_value > 10000)
+                    return NOT_EXACT;
+
+                exp_value = exp_value * 10 + (ch - '0');
+            }
+
+            exponent += exp_negative ? -exp_value : exp_value;
+        }
+
+        double ret_val;
+
+        if(mantissa == 0) {
+            ret_val = 0;
+        } else if(mantissa >= MAX_EXACT_MANTISSA ||
+                  exponent > 22 || exponent < -22) {
+            return NOT_EXACT;
+        } else if(exponent >= 0) {
+            ret_val = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            ret_val = mantissa / POWERS_OF_TEN[-exponent];
+        }
+
+        return negative ? -ret_val : ret_val;
+    }
+
+    /**
+     * Round a correctly rounded double to a float. This is only the same as
+     * converting the original text if the double is not exactly half way
+     * between two floats, and the result is a normal float.
+     *
+     * @return The float, or NaN if the text must be converted directly
+     */
+    private static float toFloat(double d) {
+        if(d == 0)
+            return (float)d;
+
+        double abs = Math.abs(d);
+
+        if(abs < Float.MIN_NORMAL || abs > Float.MAX_VALUE)
+            return Float.NaN;
+
+        long bits = Double.doubleToRawLongBits(d);
+
+        if((bits & FLOAT_LOST_BITS) == FLOAT_HALF_WAY)
+            return Float.NaN;
+
+        return (float)d;
+    }
+
+    /**
+     * Convert a float value using the Java library.
+     *
+     * @return The float, or NaN if the text is not a valid number
+     */
+    private static float slowFloat(String value, int pos, int end) {
+        try {
+            return Float.parseFloat(value.substring(pos, end));
+        } catch(NumberFormatException nfe) {
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * Convert an int value in the same way as the JavaCC parser.
+     *
+     * @return The value, or Long.MIN_VALUE to give up
+     */
+    private static long convertInt(String value, int pos, int end) {
+        int len = end - pos;
+
+        if(len > 2 && value.charAt(pos) == '0' && value.charAt(pos + 1) == 'x') {
+            // Sixteen digits may overflow a long, which the JavaCC parser
+            // reports as an error.
+            if(len > 17)
+                return Long.MIN_VALUE;
+
+            long ret_val = 0;
+
+            for(int i = pos + 2; i < end; i++) {
+                int digit = Character.digit(value.charAt(i), 16);
+
+                if(digit < 0)
+                    return Long.MIN_VALUE;
+
+                ret_val = (ret_val << 4) | digit;
+            }
+
+            return (int)ret_val;
+        }
+
+        boolean negative = false;
+
+        if(value.charAt(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        if(pos == end || end - pos > 10)
+            return Long.MIN_VALUE;
+
+        long ret_val = 0;
+
+        for(int i = pos; i < end; i++) {
+            char ch = value.charAt(i);
+
+            if(ch < '0' || ch > '9')
+                return Long.MIN_VALUE;
+
+            ret_val = ret_val * 10 + (ch - '0');
+        }
+
+        if(negative)
+            ret_val = -ret_val;
+
+        if(ret_val < Integer.MIN_VALUE || ret_val > Integer.MAX_VALUE)
+            return Long.MIN_VALUE;
+
+        return ret_val;
+    }
+}
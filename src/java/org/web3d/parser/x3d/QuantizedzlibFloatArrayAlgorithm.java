@@ -73,6 +73,9 @@ public class QuantizedzlibFloatArrayAlgorithm implements EncodingAlgorithm {
     /** The tolerance to use when quantizing floats. */
     private float tolerance;
 
+    /** Should big arrays be left compressed until they are delivered */
+    private boolean chunkedDecoding;
+
     public QuantizedzlibFloatArrayAlgorithm() {
         this.tolerance = NOERROR;
     }
@@ -82,6 +85,17 @@ public class QuantizedzlibFloatArrayAlgorithm implements EncodingAlgorithm {
 
     }
 
+    /**
+     * Set whether big arrays are returned from decoding as data that is only
+     * decoded when it is delivered to the content handler, rather than as a
+     * float[]. By default they are decoded straight away.
+     *
+     * @param enable true to leave big arrays compressed
+     */
+    public void setChunkedDecoding(boolean enable) {
+        chunkedDecoding = enable;
+    }
+
     @Override
     public void encodeToOutputStream(Object data, OutputStream s) throws IOException {
         if (!(data instanceof float[])) {
@@ -106,6 +120,14 @@ public class QuantizedzlibFloatArrayAlgorithm implements EncodingAlgorithm {
 */
 //        System.out.println("Decompress: start: " + start + " len: " + length);
 
+        if(chunkedDecoding) {
+            ChunkedArrayData chunked =
+                ChunkedArrayData.quantizedFloats(b, start, length);
+
+            if(chunked != null)
+                return chunked;
+        }
+
         try {
             return CompressionTools.dequantizeFloatArrayInflater(b, start, length, true);
         } catch(IOException e) {
@@ -19,10 +19,15 @@ import org.jvnet.fastinfoset.EncodingAlgorithm;
 import org.jvnet.fastinfoset.sax.FastInfosetReader;
 
 import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.Map;
 import java.util.HashMap;
 
 // Application specific imports
+import org.web3d.util.PropertyTools;
 import org.web3d.vrml.lang.*;
 import org.web3d.vrml.sav.*;
 
@@ -35,6 +40,21 @@ import org.xml.sax.SAXNotSupportedException;
 
 /**
  * A binary parser using FastInfoset to decode files.
+ * <p>
+ *
+ * When the document URL is a local file the file is read through memory
+ * mapped windows rather than the stream that was given, which saves the
+ * copying and read calls of the stream classes on big files.
+ * <p>
+ *
+ * <b>Properties</b>
+ * <p>
+ * The following properties are used by this class
+ * <ul>
+ * <li><code>org.web3d.parser.x3d.binary.mapFiles</code> Boolean. Set to
+ *     false to always read from the given stream. Defaults to true.
+ * </li>
+ * </ul>
  *
  * @author Alan Hudson
  * @version $Id: $
@@ -59,6 +79,16 @@ public class X3DBinaryParser implements X3DRelaxedParserConstants {
     /** Increment size for the string array buffer */
     private static final int DEFAULT_ARRAY_INC = 1024;
 
+    /** Property for turning off the memory mapping of local files */
+    private static final String MAP_FILES_PROP =
+        "org.web3d.parser.x3d.binary.mapFiles";
+
+    /** Files smaller than this are read from the stream as given */
+    private static final long MIN_MAPPED_SIZE = 1 << 20;
+
+    /** Should local files be memory mapped */
+    private static final boolean mapFiles;
+
     /** X3D specific element reader */
     private FastInfosetElementReader fer;
 
@@ -125,6 +155,10 @@ public class X3DBinaryParser implements X3DRelaxedParserConstants {
     /** The Reader to read from */
     private Reader reader;
 
+    static {
+        mapFiles = PropertyTools.fetchSystemProperty(MAP_FILES_PROP, true);
+    }
+
     /**
      * Create a new parser instance that has all of the handlers set to the
      * given references. These can be overridden with the set methods below.
@@ -229,6 +263,7 @@ public class X3DBinaryParser implements X3DRelaxedParserConstants {
     public final void ReInit(InputStream is) {
         // TODO: XSBC only accepts readers currently
         reader = new InputStreamReader(is);
+        this.is = new BufferedInputStream(is);
 
         fer = new FastInfosetElementReader();
         fr = getSAXParser();
@@ -436,8 +471,11 @@ public class X3DBinaryParser implements X3DRelaxedParserConstants {
      * @throws org.web3d.parser.x3d.ParseException
      */
     public void Scene() throws ParseException {
+        MappedFileInputStream mapped_stream = openMappedFile();
+
         try {
-            InputSource inputSource = new InputSource(is);
+            InputSource inputSource =
+                new InputSource(mapped_stream != null ? mapped_stream : is);
 
             fr.parse(inputSource);
 
@@ -453,9 +491,74 @@ public class X3DBinaryParser implements X3DRelaxedParserConstants {
             pe.initCause(se);
 
             throw pe;
+        } finally {
+            if(mapped_stream != null) {
+                try {
+                    mapped_stream.close();
+                } catch(IOException ioe) {
+                    // Nothing more can be done with it
+                }
+            }
         }
     }
 
+    /**
+     * Open the document as a memory mapped file, if it is a big enough local
+     * .x3db file and mapping is turned on. The stream given may hold other
+     * content than the file named by the URL, such as a snapshot of a text
+     * file, so only files with the binary extension are mapped. Compressed
+     * files are left to the given stream, which has already been set up to
+     * decompress them.
+     *
+     * @return The mapped stream or null to use the given stream
+     */
+    private MappedFileInputStream openMappedFile() {
+        if(!mapFiles || documentURL == null ||
+           !documentURL.startsWith("file:") || !documentURL.endsWith(".x3db"))
+            return null;
+
+        final File file;
+
+        try {
+            file = new File(new URI(documentURL));
+        } catch(URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+
+        return AccessController.doPrivileged((PrivilegedAction<MappedFileInputStream>) () -> {
+            MappedFileInputStream ret_val = null;
+
+            try {
+                if(!file.isFile() || file.length() < MIN_MAPPED_SIZE)
+                    return null;
+
+                ret_val = new MappedFileInputStream(file);
+
+                // GZIP magic number
+                ret_val.mark(2);
+                boolean gzipped = ret_val.read() == 0x1F && ret_val.read() == 0x8B;
+                ret_val.reset();
+
+                if(gzipped) {
+                    ret_val.close();
+                    ret_val = null;
+                }
+            } catch(IOException | SecurityException e) {
+                if(ret_val != null) {
+                    try {
+                        ret_val.close();
+                    } catch(IOException ioe) {
+                        // Ignored, falling back to the stream anyway
+                    }
+                }
+
+                ret_val = null;
+            }
+
+            return ret_val;
+        });
+    }
+
     /**
      * Get a SAXDocument Parser.
      */
@@ -485,10 +588,18 @@ public class X3DBinaryParser implements X3DRelaxedParserConstants {
             errorHandler.errorReport("Can't setup external vocabulary?", se);
         }
 
+        // Big compressed arrays are only decoded as they are handed to the
+        // content handler, a piece at a time where it can take them.
+        DeltazlibIntArrayAlgorithm int_algorithm = new DeltazlibIntArrayAlgorithm();
+        int_algorithm.setChunkedDecoding(true);
+
+        QuantizedzlibFloatArrayAlgorithm float_algorithm = new QuantizedzlibFloatArrayAlgorithm();
+        float_algorithm.setChunkedDecoding(true);
+
         Map<String, EncodingAlgorithm> algorithms = new HashMap<>();
         algorithms.put(ByteEncodingAlgorithm.ALGORITHM_URI, new ByteEncodingAlgorithm());
-        algorithms.put(DeltazlibIntArrayAlgorithm.ALGORITHM_URI, new DeltazlibIntArrayAlgorithm());
-        algorithms.put(QuantizedzlibFloatArrayAlgorithm.ALGORITHM_URI, new QuantizedzlibFloatArrayAlgorithm());
+        algorithms.put(DeltazlibIntArrayAlgorithm.ALGORITHM_URI, int_algorithm);
+        algorithms.put(QuantizedzlibFloatArrayAlgorithm.ALGORITHM_URI, float_algorithm);
         algorithms.put(QuantizedzlibFloatArrayAlgorithm2.ALGORITHM_URI, new QuantizedzlibFloatArrayAlgorithm2());
         parser.setRegisteredEncodingAlgorithms(algorithms);
 
@@ -27,8 +27,14 @@ import org.web3d.vrml.sav.Locator;
  * them into Java primitive types.
  * <p>
  *
+ * The plain forms of the common numeric MF fields are first read by a
+ * {@link NumericFieldScanner}, which needs neither the parser nor the lock,
+ * so many threads can read large coordinate and index arrays at once. Any
+ * value the scanner does not handle, including every invalid value, goes
+ * through the JavaCC parser as before.
+ *
  * @author Justin Couch
- * @version $Revision: 1.16 $
+ * @version $Revision: 1.17 $
  */
 public class X3DFieldReader implements VRMLFieldReader {
 
@@ -212,6 +218,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public int[] MFInt32(String value) throws InvalidFieldFormatException {
+        int[] fast_val = NumericFieldScanner.scanInts(value, 0, true);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         int[] ret_val = null;
@@ -426,6 +437,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFFloat(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 1, false, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -535,6 +551,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public double[] MFDouble(String value) throws InvalidFieldFormatException {
+        double[] fast_val = NumericFieldScanner.scanDoubles(value, 1, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         double[] ret_val = null;
@@ -917,6 +938,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFVec2f(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 2, true, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -1062,6 +1088,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public double[] MFVec2d(String value) throws InvalidFieldFormatException {
+        double[] fast_val = NumericFieldScanner.scanDoubles(value, 2, true);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         double[] ret_val = null;
@@ -1224,6 +1255,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFVec3f(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 3, true, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -1377,6 +1413,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public double[] MFVec3d(String value) throws InvalidFieldFormatException {
+        double[] fast_val = NumericFieldScanner.scanDoubles(value, 3, true);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         double[] ret_val = null;
@@ -1541,6 +1582,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFVec4f(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 4, true, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -1703,6 +1749,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public double[] MFVec4d(String value) throws InvalidFieldFormatException {
+        double[] fast_val = NumericFieldScanner.scanDoubles(value, 4, true);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         double[] ret_val = null;
@@ -1871,6 +1922,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFRotation(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 4, true, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -2138,6 +2194,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFColor(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 3, true, true);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -2308,6 +2369,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public float[] MFColorRGBA(String value) throws InvalidFieldFormatException {
+        float[] fast_val = NumericFieldScanner.scanFloats(value, 4, true, true);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         float[] ret_val = null;
@@ -2457,6 +2523,11 @@ public class X3DFieldReader implements VRMLFieldReader {
      */
     @Override
     public int[] MFImage(String value) throws InvalidFieldFormatException {
+        int[] fast_val = NumericFieldScanner.scanInts(value, 3, false);
+
+        if(fast_val != null)
+            return fast_val;
+
         StringReader input = new StringReader(value);
 
         int[] ret_val = null;
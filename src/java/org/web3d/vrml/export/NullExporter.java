@@ -21,7 +21,7 @@ import org.web3d.vrml.sav.*;
  *
  * @author Alan Hudson
  */
-public class NullExporter extends Exporter implements BinaryContentHandler {
+public class NullExporter extends Exporter implements ChunkedBinaryContentHandler {
     /**
      * Create a new exporter for the given spec version
      *
@@ -486,6 +486,85 @@ public class NullExporter extends Exporter implements BinaryContentHandler {
 
     }
 
+    //----------------------------------------------------------
+    // ChunkedBinaryContentHandler methods
+    //----------------------------------------------------------
+
+    /**
+     * Start a field value that will be sent in pieces.
+     *
+     * @param length The total number of values that will be sent
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    public void startFieldValue(int length)
+        throws SAVException, VRMLException {
+
+    }
+
+    /**
+     * Add the next piece of an array of integers.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    public void appendFieldValue(int[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+    }
+
+    /**
+     * Add the next piece of an array of floats.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    public void appendFieldValue(float[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+    }
+
+    /**
+     * Add the next piece of an array of doubles.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    public void appendFieldValue(double[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+    }
+
+    /**
+     * End the field value that was sent in pieces.
+     *
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    public void endFieldValue()
+        throws SAVException, VRMLException {
+
+    }
+
     //-----------------------------------------------------------------------
     //Methods for interface RouteHandler
     //-----------------------------------------------------------------------
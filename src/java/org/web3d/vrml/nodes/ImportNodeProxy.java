@@ -919,8 +919,14 @@ public class ImportNodeProxy
 
         // If we haven't mapped it previously, just ignore the callback and
         // don't pass anything on.
-        if(local_idx != null)
-            fieldChangedFlags.put(local_idx, Boolean.TRUE);
+        if(local_idx == null)
+            return;
+
+        fieldChangedFlags.put(local_idx, Boolean.TRUE);
+
+        // Routers that only look at nodes they are told about need to hear
+        // of the change in terms of the proxy's own field.
+        fireFieldChanged(local_idx);
     }
 
     //----------------------------------------------------------
@@ -51,7 +51,7 @@ import org.web3d.vrml.lang.VRMLFieldDeclaration;
  * </ul>
  *
  * @author Justin Couch
- * @version $Revision: 1.14 $
+ * @version $Revision: 1.15 $
  */
 public interface VRMLScriptNodeType
     extends VRMLChildNodeType, VRMLSingleExternalNodeType {
@@ -126,6 +126,42 @@ public interface VRMLScriptNodeType
      */
    void eventsProcessed();
 
+    /**
+     * Check to see if the user script code may be run away from the event
+     * model thread. This is only true when directOutput and mustEvaluate are
+     * both FALSE, the script has no SFNode or MFNode fields other than an
+     * empty metadata field and the script code itself does not call the
+     * browser.
+     *
+     * @return true if the script code is independent of the rest of the scene
+     */
+   boolean isSelfContained();
+
+    /**
+     * The first half of {@link #processEvents()}. Send the pending events to
+     * the user script code, but do not pass on any changed outputs. May be
+     * called from another thread if the script is self contained.
+     *
+     * @return true if {@link #updateEventOuts()} needs to be called
+     */
+   boolean sendScriptEvents();
+
+    /**
+     * The first half of {@link #eventsProcessed()}. Call
+     * <code>eventsProcessed()</code> on the user script code, but do not pass
+     * on any changed outputs. May be called from another thread if the script
+     * is self contained.
+     */
+   void scriptEventsProcessed();
+
+    /**
+     * The second half of {@link #processEvents()} and
+     * {@link #eventsProcessed()}. Pass the outputs changed by the user script
+     * code on to the fields of this node. Always called on the event model
+     * thread.
+     */
+   void updateEventOuts();
+
     /**
      * Notification that the script can now call the initialize() method on the
      * user script code. If this is called accidentally when there is no user
@@ -1228,6 +1228,7 @@ public class ProtoBuilder
                                                 majorVersion,
                                                 minorVersion,
                                                 protoCreator);
+        proto.setDocumentLocator(locator);
 
         // by spec, a new proto will trash the previous definition. Do it now.
         // Problem with current proto is that what if this is the start of a
@@ -20,6 +20,7 @@ import org.j3d.util.IntHashMap;
 // Local imports
 import org.web3d.vrml.lang.*;
 import org.web3d.vrml.nodes.*;
+import org.web3d.vrml.sav.DefaultLocator;
 import org.web3d.vrml.sav.Locator;
 
 /**
@@ -120,6 +121,7 @@ public class PrototypeDecl extends AbstractProto
         imports = new HashMap<>();
         defs = new HashMap<>();
         protos = new ArrayList<>();
+        locator = new DefaultLocator();
     }
 
     //----------------------------------------------------------
@@ -273,6 +275,16 @@ public class PrototypeDecl extends AbstractProto
     // Local methods for general consumption.
     //----------------------------------------------------------
 
+    /**
+     * Set the document locator used to give the position of errors in the
+     * IS declarations. Without one, errors have no position.
+     *
+     * @param loc The locator instance to use, or null for none
+     */
+    public void setDocumentLocator(Locator loc) {
+        locator = (loc == null) ? new DefaultLocator() : loc;
+    }
+
     /**
      * Add a nested proto or externproto declaration to this proto.
      *
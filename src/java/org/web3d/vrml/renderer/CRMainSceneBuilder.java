@@ -13,6 +13,7 @@
 package org.web3d.vrml.renderer;
 
 // External imports
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,13 +43,25 @@ import org.web3d.vrml.parser.VRMLFieldReader;
  * to provide a single method - startNode(), although they are free to override
  * any that they wish. It is strongly recommended that the overridden method be
  * called on this class too to make sure state does not get out of alignment.
+ * <p>
+ *
+ * Large numeric field values, such as the coordinates of a CAD model, may be
+ * parsed on other threads while the document carries on being read. The
+ * values are set in their node before any later value or child node is, or
+ * when the node ends. See {@link ParallelFieldParser} for the properties
+ * that turn this on.
+ * <p>
+ *
+ * Big binary array values may arrive in pieces through the
+ * {@link ChunkedBinaryContentHandler} calls. The pieces are gathered into a
+ * single array that is set in the node when the value ends.
  *
  * @author Justin Couch
- * @version $Revision: 1.60 $
+ * @version $Revision: 1.62 $
  */
 public abstract class CRMainSceneBuilder
     implements StringContentHandler,
-               BinaryContentHandler,
+               ChunkedBinaryContentHandler,
                ProtoHandler,
                ScriptHandler,
                RouteHandler {
@@ -208,6 +221,24 @@ public abstract class CRMainSceneBuilder
     /** The start time of parsing */
     private long startTime;
 
+    /** Parser for large field values that runs alongside the document */
+    private ParallelFieldParser parallelParser;
+
+    /** The expected length of the value being sent in pieces, or -1 */
+    private int chunkedLength;
+
+    /** The number of values of the current chunked value received so far */
+    private int chunkedCount;
+
+    /** The int values gathered from the pieces, if they are ints */
+    private int[] chunkedInts;
+
+    /** The float values gathered from the pieces, if they are floats */
+    private float[] chunkedFloats;
+
+    /** The double values gathered from the pieces, if they are doubles */
+    private double[] chunkedDoubles;
+
     /**
      * Create a scene builder with the given node factory. If the factory
      * reference is null then the default factory will be used.
@@ -235,6 +266,8 @@ public abstract class CRMainSceneBuilder
         nodeStack = new VRMLNodeType[STACK_START_SIZE];
         childIndexStack = new int[STACK_START_SIZE];
 
+        parallelParser = new ParallelFieldParser();
+
         errorReporter = DefaultErrorReporter.getDefaultReporter();
     }
 
@@ -294,6 +327,7 @@ public abstract class CRMainSceneBuilder
             locator = new DefaultLocator();
 
         startTime = System.currentTimeMillis();
+        parallelParser.clear();
         topOfStack = 0;
         currentFieldIndex = 0;
         worldURL = url;
@@ -665,6 +699,10 @@ public abstract class CRMainSceneBuilder
                 inStatic = false;
         }
 
+        // Set any field values that were parsed in parallel before the
+        // node is finished with.
+        parallelParser.complete(currentNode);
+
         // Pop the object off the top of the stack now.
         nodeStack[topOfStack--] = null;
         currentNode = nodeStack[topOfStack];
@@ -705,6 +743,15 @@ public abstract class CRMainSceneBuilder
 
         currentFieldIndex = index;
         childIndexStack[topOfStack] = index;
+
+        // Child nodes are set in the parent as they start, so any values
+        // being parsed in parallel have to be set before that.
+        int field_type =
+            nodeStack[topOfStack].getFieldDeclaration(index).getFieldType();
+
+        if((field_type == FieldConstants.SFNODE) ||
+           (field_type == FieldConstants.MFNODE))
+            parallelParser.complete(nodeStack[topOfStack]);
     }
 
     /**
@@ -745,6 +792,25 @@ public abstract class CRMainSceneBuilder
                                             " Line: " + locator.getLineNumber() +
                                             " Column: " + locator.getColumnNumber());
 
+        // Large numeric values may be parsed alongside the rest of the
+        // document. They are set before any later value or child node is,
+        // or when the node ends, so the node sees the values in document
+        // order.
+        int field_type = decl.getFieldType();
+
+        if(ParallelFieldParser.shouldDefer(field_type, value)) {
+            parallelParser.submit(currentNode,
+                                  currentFieldIndex,
+                                  field_type,
+                                  value,
+                                  majorVersion,
+                                  minorVersion,
+                                  locator);
+            return;
+        }
+
+        parallelParser.complete(currentNode);
+
         // Now parse the string if we have to. We then use the setValue call
         // because that will ensure that all the IS referenced fields will be
         // updated with these values as well.
@@ -798,6 +864,8 @@ public abstract class CRMainSceneBuilder
                                             " Line: " + locator.getLineNumber() +
                                             " Column: " + locator.getColumnNumber());
 
+        parallelParser.complete(currentNode);
+
         try {
             parseField(currentNode,
                        currentFieldIndex,
@@ -1162,6 +1230,162 @@ public abstract class CRMainSceneBuilder
         currentNode.setValue(currentFieldIndex, value, len);
     }
 
+    //----------------------------------------------------------
+    // Methods defined by ChunkedBinaryContentHandler
+    //----------------------------------------------------------
+
+    /**
+     * Start a field value that will be sent in pieces.
+     *
+     * @param length The total number of values that will be sent, or -1 if
+     *    that is not known
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void startFieldValue(int length)
+        throws SAVException, VRMLException {
+
+        chunkedLength = length;
+        chunkedCount = 0;
+        chunkedInts = null;
+        chunkedFloats = null;
+        chunkedDoubles = null;
+    }
+
+    /**
+     * Add the next piece of an array of integers.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void appendFieldValue(int[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+        if(ignoreNodeCounter > 0)
+            return;
+
+        int size = chunkedSize(chunkedInts == null ? 0 : chunkedInts.length,
+                               len);
+
+        if(chunkedInts == null)
+            chunkedInts = new int[size];
+        else if(size > chunkedInts.length)
+            chunkedInts = Arrays.copyOf(chunkedInts, size);
+
+        System.arraycopy(value, offset, chunkedInts, chunkedCount, len);
+        chunkedCount += len;
+    }
+
+    /**
+     * Add the next piece of an array of floats.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void appendFieldValue(float[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+        if(ignoreNodeCounter > 0)
+            return;
+
+        int size = chunkedSize(chunkedFloats == null ? 0 : chunkedFloats.length,
+                               len);
+
+        if(chunkedFloats == null)
+            chunkedFloats = new float[size];
+        else if(size > chunkedFloats.length)
+            chunkedFloats = Arrays.copyOf(chunkedFloats, size);
+
+        System.arraycopy(value, offset, chunkedFloats, chunkedCount, len);
+        chunkedCount += len;
+    }
+
+    /**
+     * Add the next piece of an array of doubles.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void appendFieldValue(double[] value, int offset, int len)
+        throws SAVException, VRMLException {
+
+        if(ignoreNodeCounter > 0)
+            return;
+
+        int size = chunkedSize(chunkedDoubles == null ? 0 : chunkedDoubles.length,
+                               len);
+
+        if(chunkedDoubles == null)
+            chunkedDoubles = new double[size];
+        else if(size > chunkedDoubles.length)
+            chunkedDoubles = Arrays.copyOf(chunkedDoubles, size);
+
+        System.arraycopy(value, offset, chunkedDoubles, chunkedCount, len);
+        chunkedCount += len;
+    }
+
+    /**
+     * End the field value started with {@link #startFieldValue(int)}, setting
+     * the gathered values in the node.
+     *
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    @Override
+    public void endFieldValue()
+        throws SAVException, VRMLException {
+
+        int[] i_val = chunkedInts;
+        float[] f_val = chunkedFloats;
+        double[] d_val = chunkedDoubles;
+
+        chunkedInts = null;
+        chunkedFloats = null;
+        chunkedDoubles = null;
+
+        if(ignoreNodeCounter > 0)
+            return;
+        else if(badFieldName)
+            badFieldName = false;
+
+        try {
+            if(i_val != null)
+                currentNode.setValue(currentFieldIndex, i_val, chunkedCount);
+            else if(f_val != null)
+                currentNode.setValue(currentFieldIndex, f_val, chunkedCount);
+            else if(d_val != null)
+                currentNode.setValue(currentFieldIndex, d_val, chunkedCount);
+        } catch(FieldException fe) {
+            VRMLFieldDeclaration decl =
+                currentNode.getFieldDeclaration(currentFieldIndex);
+            fe.setFieldName(decl.getName());
+            throw fe;
+        }
+    }
+
     //----------------------------------------------------------
     // Methods defined by ProtoHandler
     //----------------------------------------------------------
@@ -1594,6 +1818,8 @@ public abstract class CRMainSceneBuilder
      * The flags set about what to load are <i>not</i> reset by this method.
      */
     public void reset() {
+        parallelParser.clear();
+
         inScript = false;
         badFieldName = false;
 
@@ -1718,6 +1944,27 @@ public abstract class CRMainSceneBuilder
         }
     }
 
+    /**
+     * Work out the size the chunked value array needs to be to take another
+     * piece. When the full length was given up front, the array is made that
+     * size straight away so it never needs to be copied.
+     *
+     * @param current The current size of the array, 0 if there is none
+     * @param len The number of values in the next piece
+     * @return The size the array should be
+     */
+    private int chunkedSize(int current, int len) {
+        int needed = chunkedCount + len;
+
+        if(needed <= current)
+            return current;
+
+        if(chunkedLength >= needed)
+            return chunkedLength;
+
+        return Math.max(needed, current + (current >> 1));
+    }
+
     /**
      * Convenience method to parse a field string and set it in the destination
      * node.
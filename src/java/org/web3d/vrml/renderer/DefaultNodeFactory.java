@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -37,6 +38,9 @@ import org.web3d.vrml.lang.*;
 import org.web3d.vrml.nodes.VRMLNodeType;
 import org.web3d.vrml.nodes.VRMLProtoInstance;
 
+import org.web3d.vrml.renderer.norender.NRNodeSuppliers;
+import org.web3d.vrml.renderer.ogl.OGLNodeSuppliers;
+
 /**
  * Implementation of the {@link org.web3d.vrml.lang.VRMLNodeFactory}
  * that produces implementations of the nodes and can be customised for a
@@ -81,12 +85,25 @@ import org.web3d.vrml.nodes.VRMLProtoInstance;
  * implementor. In addition, it contains the definition of the maximum level
  * supported by that component and the list of nodes that are provided at each
  * level.
+ * <p>
+ *
+ * <b>Node Creation</b>
+ * <p>
+ *
+ * Nodes are created through a table of {@link NodeSupplier}s for each
+ * renderer, keyed by the implementation class name. The tables of the
+ * OpenGL and null renderers are filled the first time a factory for that
+ * renderer is used, and others may be added with
+ * {@link #registerNodeSupplier(String, String, NodeSupplier)}. A node whose
+ * class has no supplier is created by finding the class and calling its
+ * constructor through reflection, as before.
+ * <p>
  *
  * This class is longer a singleton.  setProfile was clearing the supported nodes
  * each time.  This meant multiple threads with different profiles got messed up.
  *
  * @author Justin Couch
- * @version $Revision: 2.9 $
+ * @version $Revision: 2.10 $
  */
 public class DefaultNodeFactory
     implements VRMLNodeFactory, Cloneable {
@@ -193,6 +210,9 @@ public class DefaultNodeFactory
     /** Mapping of un-qualified node names to constructor instances */
     private static final Map<Float, Map<String, Map<String, Constructor<?>>>> globalConstructorMap;
 
+    /** Mapping of un-qualified node names to supplier instances */
+    private static final Map<Float, Map<String, Map<String, NodeSupplier>>> globalNodeSupplierMap;
+
     /** Flat list of all profiles (ProfileInfo[]). Only set if someone asks for it */
     private static final Map<Float, ProfileInfo[]> globalProfileList;
 
@@ -216,6 +236,12 @@ public class DefaultNodeFactory
     /** The map of the renderer to the instance of this factory */
     private static final Map<String, VRMLNodeFactory> factoryInstances;
 
+    /**
+     * Map of the renderer ID to the node suppliers of that renderer, keyed
+     * by fully qualified class name.
+     */
+    private static final Map<String, Map<String, NodeSupplier>> rendererSuppliers;
+
     // globals that are filled in during runtime
 
     /** The renderer in use by this instance */
@@ -245,6 +271,12 @@ public class DefaultNodeFactory
     /** Mapping of un-qualified node names to constructor instances */
     private Map<String, Constructor<?>> constructorMap;
 
+    /** Mapping of un-qualified node names to supplier instances */
+    private Map<String, NodeSupplier> nodeSupplierMap;
+
+    /** The suppliers for the renderer, keyed by class name */
+    private final Map<String, NodeSupplier> suppliers;
+
     /** Flat list of all profiles. Only set if someone asks for it */
     private ProfileInfo[] profileList;
 
@@ -293,6 +325,7 @@ public class DefaultNodeFactory
     static {
         // First load the profile information basics.
         factoryInstances = new HashMap<>();
+        rendererSuppliers = new HashMap<>();
 
         globalAvailableProfileNames = new HashMap<>();
         globalRendererPrefixMap = new HashMap<>();
@@ -305,6 +338,7 @@ public class DefaultNodeFactory
         // These contain a second level of mapping with renderer
         globalNodeClassMap = new HashMap<>();
         globalConstructorMap = new HashMap<>();
+        globalNodeSupplierMap = new HashMap<>();
 
         globalProfileList = new HashMap<>();
         globalComponentList = new HashMap<>();
@@ -321,6 +355,7 @@ public class DefaultNodeFactory
     protected DefaultNodeFactory(String rendererID) {
         renderer = rendererID;
         constructorArgs = new Object[1];
+        suppliers = getRendererSuppliers(rendererID);
 
         errorReporter = DefaultErrorReporter.getDefaultReporter();
         currentValidNodes = new HashSet<>();
@@ -380,6 +415,7 @@ public class DefaultNodeFactory
                 globalNodeNameLevelMap.put(specVersion, new HashMap<>());
                 globalNodeClassMap.put(specVersion, new HashMap<>());
                 globalConstructorMap.put(specVersion, new HashMap<>());
+                globalNodeSupplierMap.put(specVersion, new HashMap<>());
                 globalInvalidProfiles.put(specVersion, new HashSet<>());
                 globalInvalidComponents.put(specVersion, new HashSet<>());
                 globalNodeNameComponentMap.put(specVersion, new HashMap<>());
@@ -414,6 +450,15 @@ public class DefaultNodeFactory
                 globalConstructorMap.put(specVersion, renderer_constructor_map);
             }
 
+            Map<String, Map<String, NodeSupplier>> renderer_supplier_map =
+                globalNodeSupplierMap.get(specVersion);
+
+            nodeSupplierMap = renderer_supplier_map.get(renderer);
+            if (nodeSupplierMap == null) {
+                nodeSupplierMap = new ConcurrentHashMap<>();
+                renderer_supplier_map.put(renderer, nodeSupplierMap);
+            }
+
             invalidProfiles = globalInvalidProfiles.get(specVersion);
             invalidComponents = globalInvalidComponents.get(specVersion);
             nodeNameComponentMap = globalNodeNameComponentMap.get(specVersion);
@@ -730,6 +775,15 @@ public class DefaultNodeFactory
             throw new UnsupportedNodeException("\n  " + errorUnsupportedNodeException);
         }
 
+        NodeSupplier supplier = findSupplier(nodeName);
+
+        if(supplier != null) {
+            VRMLNode ret_val = supplier.create();
+            ret_val.setVersion(majorVersion, minorVersion, staticNode);
+
+            return ret_val;
+        }
+
         VRMLNode ret_val = null;
 
         try {
@@ -792,6 +846,15 @@ public class DefaultNodeFactory
         if(!ci.getName().equals(component))
             throw new UnsupportedNodeException(nodeName);
 
+        NodeSupplier supplier = findSupplier(nodeName);
+
+        if(supplier != null) {
+            ret_val = supplier.create();
+            ret_val.setVersion(majorVersion, minorVersion, staticNode);
+
+            return ret_val;
+        }
+
         StringBuilder buf = new StringBuilder(ci.getPackage(renderer));
 
         try {
@@ -846,6 +909,17 @@ public class DefaultNodeFactory
         VRMLNode ret_val = null;
         String node_name = node.getVRMLNodeName();
 
+        if(node instanceof VRMLNodeType) {
+            NodeSupplier supplier = findSupplier(node_name);
+
+            if(supplier != null && supplier.canCopy()) {
+                ret_val = supplier.copy((VRMLNodeType)node);
+                ret_val.setVersion(majorVersion, minorVersion, staticNode);
+
+                return ret_val;
+            }
+        }
+
         ComponentInfo ci = nodeNameComponentMap.get(node_name);
 
         StringBuilder buf = new StringBuilder(ci.getPackage(renderer));
@@ -923,6 +997,25 @@ public class DefaultNodeFactory
     public static void clearCachedInfo() {
         globalNodeClassMap.clear();
         globalConstructorMap.clear();
+
+        for(Map<String, Map<String, NodeSupplier>> map: globalNodeSupplierMap.values())
+            map.clear();
+    }
+
+    /**
+     * Register the supplier of a node implementation class, so that the
+     * factories for the renderer create it without reflection. Used for
+     * classes of custom components. Must be called before the first node
+     * of the class is created.
+     *
+     * @param rendererID The ID of the renderer the class belongs to
+     * @param className The fully qualified name of the class
+     * @param supplier The supplier of instances of the class
+     */
+    public static void registerNodeSupplier(String rendererID,
+                                            String className,
+                                            NodeSupplier supplier) {
+        getRendererSuppliers(rendererID).put(className, supplier);
     }
 
     //----------------------------------------------------------
@@ -967,6 +1060,7 @@ public class DefaultNodeFactory
 
         fac.nodeClassMap = globalNodeClassMap.get(specVersion).get(renderer);
         fac.constructorMap = globalConstructorMap.get(specVersion).get(renderer);
+        fac.nodeSupplierMap = globalNodeSupplierMap.get(specVersion).get(renderer);
         fac.invalidProfiles = globalInvalidProfiles.get(specVersion);
         fac.invalidComponents = globalInvalidComponents.get(specVersion);
         fac.nodeNameComponentMap = globalNodeNameComponentMap.get(specVersion);
@@ -978,6 +1072,68 @@ public class DefaultNodeFactory
     // Internal convenience methods.
     //----------------------------------------------------------
 
+    /**
+     * Fetch the table of node suppliers for a renderer, filling it with
+     * the renderer's own nodes the first time.
+     *
+     * @param rendererID The ID of the renderer
+     * @return The map of class names to suppliers
+     */
+    private static Map<String, NodeSupplier> getRendererSuppliers(String rendererID) {
+        synchronized(rendererSuppliers) {
+            Map<String, NodeSupplier> ret_val = rendererSuppliers.get(rendererID);
+
+            if(ret_val == null) {
+                ret_val = new ConcurrentHashMap<>();
+
+                switch(rendererID) {
+                    case NULL_RENDERER:
+                        NRNodeSuppliers.addSuppliers(ret_val);
+                        break;
+
+                    case OPENGL_RENDERER:
+                        OGLNodeSuppliers.addSuppliers(ret_val);
+                        break;
+                }
+
+                rendererSuppliers.put(rendererID, ret_val);
+            }
+
+            return ret_val;
+        }
+    }
+
+    /**
+     * Locate the supplier of the node's implementation class. Null is
+     * returned if the class has no registered supplier, in which case it is
+     * created by reflection.
+     *
+     * @param name The name of the node to locate
+     * @return The supplier or null if there is none
+     */
+    private NodeSupplier findSupplier(String name) {
+        NodeSupplier ret_val = nodeSupplierMap.get(name);
+
+        if(ret_val == null) {
+            ComponentInfo ci = nodeNameComponentMap.get(name);
+            String pkg = (ci != null) ? ci.getPackage(renderer) : null;
+
+            if(pkg != null) {
+                StringBuilder buf = new StringBuilder(pkg);
+                buf.append('.');
+                buf.append(namePrefix);
+                buf.append(name);
+
+                ret_val = suppliers.get(buf.toString());
+
+                if(ret_val != null)
+                    nodeSupplierMap.put(name, ret_val);
+            }
+        }
+
+        return ret_val;
+    }
+
     /**
      * Convenience method to locate a class from all the available
      * profiles, given just the node name. If none can be found, it returns
@@ -0,0 +1,89 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer;
+
+// External imports
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Local imports
+import org.web3d.vrml.lang.VRMLNode;
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+/**
+ * The means of creating one node implementation class without reflection,
+ * used by {@link DefaultNodeFactory}.
+ * <p>
+ *
+ * A supplier holds a function for the no-argument constructor of the class
+ * and, if it has one, a function for the copy constructor used for proto
+ * and clone copies. Registering these lets the factory create nodes with a
+ * plain call rather than a class lookup and reflective constructor call.
+ * The functions should be written as lambdas, such as
+ * <code>() -&gt; new OGLBox()</code>, rather than constructor references.
+ * A lambda body is only linked when it is first run, so registering a
+ * renderer's nodes does not load the classes of nodes that are never used.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class NodeSupplier {
+
+    /** Creates a new default instance of the node */
+    private final Supplier<VRMLNode> creator;
+
+    /** Creates a copy of another node, or null if there is no copy constructor */
+    private final Function<VRMLNodeType, VRMLNode> copier;
+
+    /**
+     * Create a supplier for a node class.
+     *
+     * @param creator Function that calls the no-argument constructor
+     * @param copier Function that calls the copy constructor, or null if
+     *    the class does not have one
+     */
+    public NodeSupplier(Supplier<VRMLNode> creator,
+                        Function<VRMLNodeType, VRMLNode> copier) {
+        this.creator = creator;
+        this.copier = copier;
+    }
+
+    /**
+     * Create a new instance of the node with its default field values.
+     *
+     * @return The new node
+     */
+    public VRMLNode create() {
+        return creator.get();
+    }
+
+    /**
+     * Check to see if this supplier can make copies of nodes.
+     *
+     * @return true if {@link #copy(VRMLNodeType)} may be called
+     */
+    public boolean canCopy() {
+        return copier != null;
+    }
+
+    /**
+     * Create a new instance of the node with the field values copied from
+     * another node.
+     *
+     * @param node The node to copy the field values from
+     * @return The new node
+     */
+    public VRMLNode copy(VRMLNodeType node) {
+        return copier.apply(node);
+    }
+}
@@ -0,0 +1,432 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer;
+
+// External imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Local imports
+import org.web3d.util.PropertyTools;
+
+import org.web3d.vrml.lang.FieldConstants;
+import org.web3d.vrml.lang.FieldException;
+import org.web3d.vrml.lang.VRMLException;
+
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+import org.web3d.vrml.parser.FieldParserFactory;
+import org.web3d.vrml.parser.VRMLFieldReader;
+
+import org.web3d.vrml.sav.Locator;
+
+/**
+ * Parses large numeric field values on a shared pool of worker threads,
+ * while the document parser carries on with the rest of the file.
+ * <p>
+ *
+ * The scene builder hands over the string values of big numeric MF fields,
+ * such as the <code>point</code> and <code>coordIndex</code> attributes of
+ * a CAD model. Results are set in the node in the order the values were
+ * given. The builder collects them when the node ends, and also before it
+ * sets any other value in the node or starts a field that holds child
+ * nodes. The node therefore sees exactly the same sequence of
+ * <code>setValue()</code> calls as when parsing in line, and values given
+ * one after the other, such as all the attributes of an X3D element, are
+ * parsed at the same time. Each value is parsed with its own field reader
+ * whose locator holds the line and column the value came from, so any error
+ * is reported at the place in the file it was found.
+ * <p>
+ *
+ * <b>Properties</b>
+ * <p>
+ * The following properties are used by this class
+ * <ul>
+ * <li><code>org.web3d.vrml.renderer.field.parallelSize</code> The length in
+ *     characters above which a field value is parsed on the pool. Defaults
+ *     to 0, which turns parallel parsing off.
+ * </li>
+ * <li><code>org.web3d.vrml.renderer.field.parallelThreads</code> The number
+ *     of threads in the shared pool. Defaults to the number of processors.
+ * </li>
+ * </ul>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class ParallelFieldParser {
+
+    /** Property defining the value length to parse in parallel */
+    private static final String SIZE_PROP =
+        "org.web3d.vrml.renderer.field.parallelSize";
+
+    /** Property defining the number of parser threads */
+    private static final String THREADS_PROP =
+        "org.web3d.vrml.renderer.field.parallelThreads";
+
+    /** Message when a background parse fails in an unexpected way */
+    private static final String INTERNAL_ERROR_MSG =
+        "Internal error in parsing field: ";
+
+    /** The value length above which values are parsed in parallel */
+    private static volatile int parallelSize;
+
+    /** The pool shared by all the scene builders. Created on first use */
+    private static ExecutorService pool;
+
+    /**
+     * A locator that always gives the position of a single field value.
+     */
+    private static class FixedLocator implements Locator {
+
+        /** The line the value started on */
+        private final int line;
+
+        /** The column the value started on */
+        private final int column;
+
+        /**
+         * Create a locator for the given position.
+         *
+         * @param line The line number
+         * @param column The column number
+         */
+        FixedLocator(int line, int column) {
+            this.line = line;
+            this.column = column;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return column;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return line;
+        }
+    }
+
+    /**
+     * A field value waiting for its result.
+     */
+    private static class PendingField {
+
+        /** The node the value belongs to */
+        final VRMLNodeType node;
+
+        /** The index of the field in the node */
+        final int index;
+
+        /** The parsed value, an array of primitives */
+        final Future<Object> result;
+
+        /**
+         * Create a record of a value being parsed.
+         */
+        PendingField(VRMLNodeType node, int index, Future<Object> result) {
+            this.node = node;
+            this.index = index;
+            this.result = result;
+        }
+    }
+
+    /** Values waiting to be set, in the order they were given */
+    private final List<PendingField> pendingFields;
+
+    static {
+        parallelSize = PropertyTools.fetchSystemProperty(SIZE_PROP, 0);
+    }
+
+    /**
+     * Create a new, empty, parser.
+     */
+    ParallelFieldParser() {
+        pendingFields = new ArrayList<>();
+    }
+
+    /**
+     * Change the value length above which values are parsed in parallel.
+     * The starting value comes from the system property.
+     *
+     * @param size The length in characters, or 0 to turn parallel parsing
+     *    off
+     */
+    static void setParallelSize(int size) {
+        parallelSize = size;
+    }
+
+    /**
+     * Check to see if the value should be parsed in parallel. Only the
+     * numeric MF types are, as they are the ones that get big.
+     *
+     * @param fieldType The type of the field from FieldConstants
+     * @param value The string value of the field
+     * @return true if the value should be handed to {@link #submit}
+     */
+    static boolean shouldDefer(int fieldType, String value) {
+        if(parallelSize <= 0 || value.length() < parallelSize)
+            return false;
+
+        switch(fieldType) {
+            case FieldConstants.MFINT32:
+            case FieldConstants.MFFLOAT:
+            case FieldConstants.MFDOUBLE:
+            case FieldConstants.MFTIME:
+            case FieldConstants.MFVEC2F:
+            case FieldConstants.MFVEC3F:
+            case FieldConstants.MFVEC4F:
+            case FieldConstants.MFVEC2D:
+            case FieldConstants.MFVEC3D:
+            case FieldConstants.MFVEC4D:
+            case FieldConstants.MFROTATION:
+            case FieldConstants.MFCOLOR:
+            case FieldConstants.MFCOLORRGBA:
+            case FieldConstants.MFIMAGE:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Start parsing a field value on the pool.
+     *
+     * @param node The node the value belongs to
+     * @param index The index of the field in the node
+     * @param fieldType The type of the field from FieldConstants
+     * @param value The string value of the field
+     * @param major The major version of the spec the file uses
+     * @param minor The minor version of the spec the file uses
+     * @param loc The locator giving the current position in the file
+     */
+    void submit(VRMLNodeType node,
+                int index,
+                final int fieldType,
+                final String value,
+                final int major,
+                final int minor,
+                Locator loc) {
+
+        final Locator fixed_loc =
+            new FixedLocator(loc.getLineNumber(), loc.getColumnNumber());
+
+        Future<Object> result = getPool().submit(() -> {
+            FieldParserFactory fac = FieldParserFactory.getFieldParserFactory();
+            VRMLFieldReader reader = fac.newFieldParser(major, minor);
+            reader.setDocumentLocator(fixed_loc);
+
+            return parse(reader, fieldType, value.trim());
+        });
+
+        pendingFields.add(new PendingField(node, index, result));
+    }
+
+    /**
+     * Wait for all the values of the node and set them, in the order they
+     * were given. The values of a node are always the last ones in the list,
+     * as the values of any child nodes were completed when the children
+     * ended.
+     *
+     * @param node The node to complete
+     * @throws FieldException A value could not be parsed or set
+     * @throws VRMLException The parse failed for some other reason
+     */
+    void complete(VRMLNodeType node) throws VRMLException {
+        if(pendingFields.isEmpty())
+            return;
+
+        int first = pendingFields.size();
+
+        while(first > 0 && pendingFields.get(first - 1).node == node)
+            first--;
+
+        List<PendingField> fields = pendingFields.subList(first,
+                                                          pendingFields.size());
+
+        try {
+            for(PendingField pf : fields) {
+                Object array = waitFor(pf);
+
+                try {
+                    setValue(pf.node, pf.index, array);
+                } catch(FieldException fe) {
+                    fe.setFieldName(pf.node.getFieldDeclaration(pf.index).getName());
+                    throw fe;
+                }
+            }
+        } finally {
+            // Anything after an error is of no use either
+            for(PendingField pf : fields)
+                pf.result.cancel(false);
+
+            fields.clear();
+        }
+    }
+
+    /**
+     * Throw away everything waiting, such as after a failed parse.
+     */
+    void clear() {
+        for(PendingField pf : pendingFields)
+            pf.result.cancel(false);
+
+        pendingFields.clear();
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Wait for the result of a value, rethrowing any parse error.
+     */
+    private Object waitFor(PendingField pf) throws VRMLException {
+        boolean interrupted = false;
+
+        try {
+            while(true) {
+                try {
+                    return pf.result.get();
+                } catch(InterruptedException ie) {
+                    interrupted = true;
+                } catch(ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    String name = pf.node.getFieldDeclaration(pf.index).getName();
+
+                    if(cause instanceof FieldException) {
+                        FieldException fe = (FieldException)cause;
+                        fe.setFieldName(name);
+                        throw fe;
+                    }
+
+                    VRMLException ve = new VRMLException(INTERNAL_ERROR_MSG + name);
+                    ve.initCause(cause);
+                    throw ve;
+                }
+            }
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Parse a value with the given reader.
+     *
+     * @return An array of primitives, or null if the value is empty
+     */
+    private static Object parse(VRMLFieldReader reader,
+                                int fieldType,
+                                String value) {
+        if(value.length() == 0)
+            return null;
+
+        switch(fieldType) {
+            case FieldConstants.MFINT32:
+                return reader.MFInt32(value);
+
+            case FieldConstants.MFFLOAT:
+                return reader.MFFloat(value);
+
+            case FieldConstants.MFDOUBLE:
+                return reader.MFDouble(value);
+
+            case FieldConstants.MFTIME:
+                return reader.MFTime(value);
+
+            case FieldConstants.MFVEC2F:
+                return reader.MFVec2f(value);
+
+            case FieldConstants.MFVEC3F:
+                return reader.MFVec3f(value);
+
+            case FieldConstants.MFVEC4F:
+                return reader.MFVec4f(value);
+
+            case FieldConstants.MFVEC2D:
+                return reader.MFVec2d(value);
+
+            case FieldConstants.MFVEC3D:
+                return reader.MFVec3d(value);
+
+            case FieldConstants.MFVEC4D:
+                return reader.MFVec4d(value);
+
+            case FieldConstants.MFROTATION:
+                return reader.MFRotation(value);
+
+            case FieldConstants.MFCOLOR:
+                return reader.MFColor(value);
+
+            case FieldConstants.MFCOLORRGBA:
+                return reader.MFColorRGBA(value);
+
+            case FieldConstants.MFIMAGE:
+                return reader.MFImage(value);
+
+            default:
+                throw new IllegalArgumentException("Unhandled field type " +
+                                                   fieldType);
+        }
+    }
+
+    /**
+     * Set a parsed array in the node.
+     */
+    private static void setValue(VRMLNodeType node, int index, Object array) {
+        if(array instanceof int[]) {
+            int[] i_val = (int[])array;
+            node.setValue(index, i_val, i_val.length);
+        } else if(array instanceof float[]) {
+            float[] f_val = (float[])array;
+            node.setValue(index, f_val, f_val.length);
+        } else if(array instanceof double[]) {
+            double[] d_val = (double[])array;
+            node.setValue(index, d_val, d_val.length);
+        }
+    }
+
+    /**
+     * Get the shared pool, creating it if needed.
+     */
+    private static synchronized ExecutorService getPool() {
+        if(pool == null) {
+            int threads = PropertyTools.fetchSystemProperty(THREADS_PROP,
+                Runtime.getRuntime().availableProcessors());
+
+            ThreadPoolExecutor tpe =
+                new ThreadPoolExecutor(threads,
+                                       threads,
+                                       30,
+                                       TimeUnit.SECONDS,
+                                       new LinkedBlockingQueue<>(),
+                                       r -> {
+                                           Thread th = new Thread(r, "Xj3D Field Parser");
+                                           th.setDaemon(true);
+                                           return th;
+                                       });
+            tpe.allowCoreThreadTimeOut(true);
+            pool = tpe;
+        }
+
+        return pool;
+    }
+}
@@ -33,7 +33,7 @@ import org.web3d.vrml.lang.VRMLException;
  * static setup.
  *
  * @author Justin Couch, Alan Hudson
- * @version $Revision: 1.16 $
+ * @version $Revision: 1.17 $
  */
 public abstract class BaseIndexedGeometryNode
     extends BaseComponentGeometryNode {
@@ -139,31 +139,25 @@ public abstract class BaseIndexedGeometryNode
 
         super.copy(node);
 
+        // The index arrays are shared with the source rather than copied.
+        // Setting an index replaces the array rather than writing into it,
+        // so neither node can see the other's changes.
+
         try {
             int index = node.getFieldIndex("colorIndex");
             VRMLFieldData field = node.getFieldValue(index);
 
             if(field.numElements != 0) {
-                vfColorIndex = new int[field.numElements];
+                vfColorIndex = field.intArrayValues;
                 numColorIndex = field.numElements;
-                System.arraycopy(field.intArrayValues,
-                                 0,
-                                 vfColorIndex,
-                                 0,
-                                 field.numElements);
             }
 
             index = node.getFieldIndex("coordIndex");
             field = node.getFieldValue(index);
 
             if(field.numElements != 0) {
-                vfCoordIndex = new int[field.numElements];
+                vfCoordIndex = field.intArrayValues;
                 numCoordIndex = field.numElements;
-                System.arraycopy(field.intArrayValues,
-                                 0,
-                                 vfCoordIndex,
-                                 0,
-                                 field.numElements);
             }
 
             index = node.getFieldIndex("normalIndex");
@@ -172,13 +166,8 @@ public abstract class BaseIndexedGeometryNode
                 field = node.getFieldValue(index);
 
                 if(field.numElements != 0) {
-                    vfNormalIndex = new int[field.numElements];
+                    vfNormalIndex = field.intArrayValues;
                     numNormalIndex = field.numElements;
-                    System.arraycopy(field.intArrayValues,
-                                     0,
-                                     vfNormalIndex,
-                                     0,
-                                     field.numElements);
                 }
             }
 
@@ -187,13 +176,8 @@ public abstract class BaseIndexedGeometryNode
                 field = node.getFieldValue(index);
 
                 if(field.numElements != 0) {
-                    vfTexCoordIndex = new int[field.numElements];
+                    vfTexCoordIndex = field.intArrayValues;
                     numTexCoordIndex = field.numElements;
-                    System.arraycopy(field.intArrayValues,
-                                     0,
-                                     vfTexCoordIndex,
-                                     0,
-                                     field.numElements);
                 }
             }
         } catch(VRMLException ve) {
@@ -30,7 +30,7 @@ import org.web3d.vrml.lang.VRMLException;
  * <p>
  *
  * @author Justin Couch
- * @version $Revision: 1.11 $
+ * @version $Revision: 1.12 $
  */
 public abstract class BaseIndexedTriangleGeometryNode
     extends BaseComponentGeometryNode {
@@ -66,6 +66,9 @@ public abstract class BaseIndexedTriangleGeometryNode
     /** Number of valid values in vfIndex */
     protected int numIndex;
 
+    /** Is vfIndex shared with a copy of this node */
+    private boolean indexShared;
+
     /** Userdata kept in the triangle geometry */
     protected GeometryData geomData;
 
@@ -102,13 +105,18 @@ public abstract class BaseIndexedTriangleGeometryNode
             VRMLFieldData field = node.getFieldValue(index);
 
             if(field.numElements != 0) {
-                vfIndex = new int[field.numElements];
                 numIndex = field.numElements;
-                System.arraycopy(field.intArrayValues,
-                                 0,
-                                 vfIndex,
-                                 0,
-                                 field.numElements);
+
+                // Shared until either node is given a new index
+                if(node instanceof BaseIndexedTriangleGeometryNode) {
+                    vfIndex = field.intArrayValues;
+                    indexShared = true;
+                    ((BaseIndexedTriangleGeometryNode)node).indexShared = true;
+                } else {
+                    vfIndex = new int[numIndex];
+                    System.arraycopy(field.intArrayValues, 0, vfIndex, 0,
+                                     numIndex);
+                }
             }
         } catch(VRMLException ve) {
             throw new IllegalArgumentException(ve.getMessage());
@@ -568,8 +576,10 @@ public abstract class BaseIndexedTriangleGeometryNode
      * @param numValid The number of valid values to copy from the array
      */
     protected void setIndex(int[] value, int numValid) {
-        if(vfIndex.length < numValid)
+        if(vfIndex.length < numValid || indexShared) {
             vfIndex = new int[numValid];
+            indexShared = false;
+        }
 
         System.arraycopy(value, 0, vfIndex, 0, numValid);
         numIndex = numValid;
@@ -3720,41 +3720,49 @@ public class BaseEspduTransform extends BaseGroupingNode
                                 vfArticulationParameterValue0 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE0_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE0_CHANGED);
                                 break;
                             case 1:
                                 vfArticulationParameterValue1 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE1_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE1_CHANGED);
                                 break;
                             case 2:
                                 vfArticulationParameterValue2 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE2_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE2_CHANGED);
                                 break;
                             case 3:
                                 vfArticulationParameterValue3 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE3_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE3_CHANGED);
                                 break;
                             case 4:
                                 vfArticulationParameterValue4 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE4_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE4_CHANGED);
                                 break;
                             case 5:
                                 vfArticulationParameterValue5 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE5_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE5_CHANGED);
                                 break;
                             case 6:
                                 vfArticulationParameterValue6 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE6_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE6_CHANGED);
                                 break;
                             case 7:
                                 vfArticulationParameterValue7 =
                                         vfArticulationParameterArray[i];
                                 hasChanged[FIELD_ARTICULATION_PARAMETER_VALUE7_CHANGED] = true;
+                                fireFieldChanged(FIELD_ARTICULATION_PARAMETER_VALUE7_CHANGED);
                                 break;
                         }
                     }
@@ -39,7 +39,7 @@ import org.web3d.vrml.renderer.common.nodes.BaseGeometricPropertyNode;
  * either form.
  *
  * @author Justin Couch
- * @version $Revision: 1.13 $
+ * @version $Revision: 1.14 $
  */
 public class BaseColorRGBA extends BaseGeometricPropertyNode
     implements VRMLColorNodeType {
@@ -74,6 +74,9 @@ public class BaseColorRGBA extends BaseGeometricPropertyNode
     /** actual length of vfColor */
     protected int numColor;
 
+    /** Is vfColor shared with a copy of this node */
+    private boolean colorShared;
+
     // Static constructor
     static {
         nodeFields = new int[] { FIELD_METADATA };
@@ -127,12 +130,19 @@ public class BaseColorRGBA extends BaseGeometricPropertyNode
         try {
             int index = node.getFieldIndex("color");
             VRMLFieldData field = node.getFieldValue(index);
-            if (field.numElements != 0) {
-                vfColor = new float[field.numElements * 4];
-                System.arraycopy(field.floatArrayValues, 0, vfColor, 0,
-                               field.numElements * 4);
-
+            if(field.numElements != 0) {
                 numColor = field.numElements * 4;
+
+                // Shared until either node is given new colours
+                if(node instanceof BaseColorRGBA) {
+                    vfColor = field.floatArrayValues;
+                    colorShared = true;
+                    ((BaseColorRGBA)node).colorShared = true;
+                } else {
+                    vfColor = new float[numColor];
+                    System.arraycopy(field.floatArrayValues, 0, vfColor, 0,
+                                     numColor);
+                }
             }
         } catch(VRMLException ve) {
             throw new IllegalArgumentException(ve.getMessage());
@@ -163,8 +173,10 @@ public class BaseColorRGBA extends BaseGeometricPropertyNode
      */
     @Override
     public void setColor(float[] newColor, int numValid) {
-        if(numValid > vfColor.length)
+        if(numValid > vfColor.length || colorShared) {
             vfColor = new float[numValid];
+            colorShared = false;
+        }
 
         System.arraycopy(newColor,0, vfColor, 0, numValid);
         numColor = numValid;
@@ -38,7 +38,7 @@ import org.web3d.vrml.renderer.common.nodes.BaseGeometricPropertyNode;
  * either form.
  *
  * @author Alan Hudson
- * @version $Revision: 1.17 $
+ * @version $Revision: 1.18 $
  */
 public abstract class BaseCoordinate extends BaseGeometricPropertyNode
     implements VRMLCoordinateNodeType {
@@ -69,6 +69,9 @@ public abstract class BaseCoordinate extends BaseGeometricPropertyNode
     /** actual length of vfPoint */
     protected int numPoint;
 
+    /** Is vfPoint shared with a copy of this node */
+    private boolean pointShared;
+
     // Static constructor
     static {
         nodeFields = new int[] { FIELD_METADATA };
@@ -122,11 +125,20 @@ public abstract class BaseCoordinate extends BaseGeometricPropertyNode
             int index = node.getFieldIndex("point");
             VRMLFieldData field = node.getFieldValue(index);
             if(field.numElements != 0) {
-                vfPoint = new float[field.numElements * 3];
-                System.arraycopy(field.floatArrayValues, 0, vfPoint, 0,
-                                 field.numElements * 3);
-
                 numPoint = field.numElements * 3;
+
+                // Nodes of the same kind share the values until one of them
+                // is given new ones. Each instance of a proto copies the same
+                // body, so this saves holding the values in every instance.
+                if(node instanceof BaseCoordinate) {
+                    vfPoint = field.floatArrayValues;
+                    pointShared = true;
+                    ((BaseCoordinate)node).pointShared = true;
+                } else {
+                    vfPoint = new float[numPoint];
+                    System.arraycopy(field.floatArrayValues, 0, vfPoint, 0,
+                                     numPoint);
+                }
             }
         } catch(VRMLException ve) {
             throw new IllegalArgumentException(ve.getMessage());
@@ -147,8 +159,10 @@ public abstract class BaseCoordinate extends BaseGeometricPropertyNode
      */
     @Override
     public void setPoint(float[] newPoint, int numValid) {
-        if(numValid > vfPoint.length)
+        if(numValid > vfPoint.length || pointShared) {
             vfPoint = new float[numValid];
+            pointShared = false;
+        }
 
         numPoint = numValid;
         System.arraycopy(newPoint,0, vfPoint, 0, numPoint);
@@ -49,7 +49,7 @@ import org.web3d.vrml.renderer.common.nodes.BaseGeometricPropertyNode;
  * </pre>
  *
  * @author Alan Hudson
- * @version $Revision: 1.13 $
+ * @version $Revision: 1.14 $
  */
 public abstract class BaseNormal extends BaseGeometricPropertyNode
     implements VRMLNormalNodeType {
@@ -80,6 +80,9 @@ public abstract class BaseNormal extends BaseGeometricPropertyNode
     /** actual length of vfVector */
     protected int numVector;
 
+    /** Is vfVector shared with a copy of this node */
+    private boolean vectorShared;
+
     // Static constructor
     static {
         nodeFields = new int[] { FIELD_METADATA };
@@ -134,13 +137,18 @@ public abstract class BaseNormal extends BaseGeometricPropertyNode
             int index = node.getFieldIndex("vector");
             VRMLFieldData field = node.getFieldValue(index);
             if(field.numElements != 0) {
-                vfVector = new float[field.numElements * 3];
-                System.arraycopy(field.floatArrayValues,
-                                 0,
-                                 vfVector,
-                                 0,
-                                 field.numElements * 3);
                 numVector = field.numElements * 3;
+
+                // Shared until either node is given new vectors
+                if(node instanceof BaseNormal) {
+                    vfVector = field.floatArrayValues;
+                    vectorShared = true;
+                    ((BaseNormal)node).vectorShared = true;
+                } else {
+                    vfVector = new float[numVector];
+                    System.arraycopy(field.floatArrayValues, 0, vfVector, 0,
+                                     numVector);
+                }
             }
         } catch(VRMLException ve) {
             throw new IllegalArgumentException(ve.getMessage());
@@ -162,8 +170,10 @@ public abstract class BaseNormal extends BaseGeometricPropertyNode
      */
     @Override
     public void setVector(float[] newVector, int numValid) {
-        if(numValid > vfVector.length)
+        if(numValid > vfVector.length || vectorShared) {
             vfVector = new float[numValid];
+            vectorShared = false;
+        }
 
         numVector = numValid;
         System.arraycopy(newVector,0, vfVector, 0, numVector);
@@ -214,6 +214,9 @@ public abstract class BaseCollidableNode extends AbstractNode
 
         hasChanged[FIELD_TRANSLATION] = true;
         hasChanged[FIELD_ROTATION] = true;
+
+        fireFieldChanged(FIELD_TRANSLATION);
+        fireFieldChanged(FIELD_ROTATION);
     }
 
     /**
@@ -41,7 +41,7 @@ import org.web3d.vrml.util.URLChecker;
  * that a script can have fields added and removed on demand.
  *
  * @author Justin Couch
- * @version $Revision: 1.52 $
+ * @version $Revision: 1.53 $
  */
 public abstract class BaseScript extends AbstractDynamicFieldNode
     implements VRMLScriptNodeType {
@@ -159,6 +159,12 @@ public abstract class BaseScript extends AbstractDynamicFieldNode
     /** The actual executable code */
     private ScriptWrapper realScript;
 
+    /**
+     * Set when any field other than metadata, including inputs and outputs,
+     * holds nodes
+     */
+    private boolean hasNodeFields;
+
     /** Execution space that this script belongs to */
     private VRMLExecutionSpace execSpace;
 
@@ -603,11 +609,8 @@ System.err.println(getClass().getName() + ".notifyExternProtoLoaded() not yet im
      */
     @Override
     public void processEvents() {
-        if((realScript != null) && realScript.sendEvents()) {
-            eventOutProcessingInProgress = true;
-            realScript.updateEventOuts();
-            eventOutProcessingInProgress = false;
-        }
+        if(sendScriptEvents())
+            updateEventOuts();
     }
 
     /**
@@ -617,9 +620,54 @@ System.err.println(getClass().getName() + ".notifyExternProtoLoaded() not yet im
      */
     @Override
     public void eventsProcessed() {
-        if(realScript != null) {
+        scriptEventsProcessed();
+        updateEventOuts();
+    }
+
+    /**
+     * Check to see if the user script code may be run away from the event
+     * model thread. This is only true when directOutput and mustEvaluate are
+     * both FALSE, the script has no SFNode or MFNode fields of its own, has
+     * no metadata node and the script code itself does not call the browser.
+     *
+     * @return true if the script code is independent of the rest of the scene
+     */
+    @Override
+    public boolean isSelfContained() {
+        return (realScript != null) && !vfDirectOutput && !vfMustEvaluate &&
+               !hasNodeFields && (vfMetadata == null) &&
+               realScript.isSelfContained();
+    }
+
+    /**
+     * The first half of {@link #processEvents()}. Send the pending events to
+     * the user script code, but do not pass on any changed outputs.
+     *
+     * @return true if {@link #updateEventOuts()} needs to be called
+     */
+    @Override
+    public boolean sendScriptEvents() {
+        return (realScript != null) && realScript.sendEvents();
+    }
+
+    /**
+     * The first half of {@link #eventsProcessed()}. Call
+     * <code>eventsProcessed()</code> on the user script code, but do not pass
+     * on any changed outputs.
+     */
+    @Override
+    public void scriptEventsProcessed() {
+        if(realScript != null)
             realScript.eventsProcessed();
+    }
 
+    /**
+     * Pass the outputs changed by the user script code on to the fields of
+     * this node.
+     */
+    @Override
+    public void updateEventOuts() {
+        if(realScript != null) {
             eventOutProcessingInProgress = true;
             realScript.updateEventOuts();
             eventOutProcessingInProgress = false;
@@ -692,17 +740,20 @@ System.err.println(getClass().getName() + ".notifyExternProtoLoaded() not yet im
             fieldChangedMap.put(i, Boolean.FALSE);
 
             access_type = decl.getAccessType();
-
-            if((access_type == FieldConstants.EVENTIN) ||
-               (access_type == FieldConstants.EVENTOUT))
-                continue;
-
             field_type = decl.getFieldType();
 
             if((field_type != FieldConstants.MFNODE) &&
                (field_type != FieldConstants.SFNODE))
                 continue;
 
+            // The metadata field is checked as the script runs
+            if(i != FIELD_METADATA)
+                hasNodeFields = true;
+
+            if((access_type == FieldConstants.EVENTIN) ||
+               (access_type == FieldConstants.EVENTOUT))
+                continue;
+
             Object value = fieldValueMap.get(i);
 
             if(value instanceof VRMLNodeType) {
@@ -38,7 +38,7 @@ import org.web3d.vrml.renderer.common.nodes.BaseGeometricPropertyNode;
  * either form.
  *
  * @author Alan Hudson
- * @version $Revision: 1.17 $
+ * @version $Revision: 1.18 $
  */
 public abstract class BaseTextureCoordinate extends BaseGeometricPropertyNode
     implements VRMLTextureCoordinateNodeType {
@@ -74,6 +74,9 @@ public abstract class BaseTextureCoordinate extends BaseGeometricPropertyNode
     /** Number of valid values in vfPoint */
     protected int numPoint;
 
+    /** Is vfPoint shared with a copy of this node */
+    private boolean pointShared;
+
     //----------------------------------------------------------
     // Methods internal to NRTextureCoordinate
     //----------------------------------------------------------
@@ -133,13 +136,18 @@ public abstract class BaseTextureCoordinate extends BaseGeometricPropertyNode
             int index = node.getFieldIndex("point");
             VRMLFieldData field = node.getFieldValue(index);
             if(field.numElements != 0) {
-                vfPoint = new float[field.numElements * 2];
-                System.arraycopy(field.floatArrayValues,
-                                 0,
-                                 vfPoint,
-                                 0,
-                                 field.numElements * 2);
                 numPoint = field.numElements * 2;
+
+                // Shared until either node is given new points
+                if(node instanceof BaseTextureCoordinate) {
+                    vfPoint = field.floatArrayValues;
+                    pointShared = true;
+                    ((BaseTextureCoordinate)node).pointShared = true;
+                } else {
+                    vfPoint = new float[numPoint];
+                    System.arraycopy(field.floatArrayValues, 0, vfPoint, 0,
+                                     numPoint);
+                }
             }
         } catch(VRMLException ve) {
             throw new IllegalArgumentException(ve.getMessage());
@@ -196,8 +204,10 @@ public abstract class BaseTextureCoordinate extends BaseGeometricPropertyNode
         if(setNum != 0)
             throw new ArrayIndexOutOfBoundsException();
 
-        if(numValid > vfPoint.length)
+        if(numValid > vfPoint.length || pointShared) {
             vfPoint = new float[numValid];
+            pointShared = false;
+        }
 
         numPoint = numValid;
         System.arraycopy(newPoint,0, vfPoint, 0, numPoint);
@@ -1051,6 +1051,7 @@ System.out.println("Forcing internalStartTime to t, why: " + t);
                 vfFraction = (f == 0) ? 1 : (float)f;
 
                 hasChanged[FIELD_FRACTION] = true;
+                fireFieldChanged(FIELD_FRACTION);
 
                 vfIsPaused = false;
                 pausedTime = 0;
@@ -0,0 +1,759 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.norender;
+
+// External imports
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Local imports
+import org.web3d.vrml.lang.VRMLNode;
+
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+import org.web3d.vrml.renderer.NodeSupplier;
+
+import org.web3d.vrml.renderer.norender.nodes.cadgeometry.NRCADAssembly;
+import org.web3d.vrml.renderer.norender.nodes.cadgeometry.NRCADFace;
+import org.web3d.vrml.renderer.norender.nodes.cadgeometry.NRCADLayer;
+import org.web3d.vrml.renderer.norender.nodes.cadgeometry.NRCADPart;
+import org.web3d.vrml.renderer.norender.nodes.cadgeometry.NRIndexedQuadSet;
+import org.web3d.vrml.renderer.norender.nodes.cadgeometry.NRQuadSet;
+
+import org.web3d.vrml.renderer.norender.nodes.core.NRMetadataBoolean;
+import org.web3d.vrml.renderer.norender.nodes.core.NRMetadataDouble;
+import org.web3d.vrml.renderer.norender.nodes.core.NRMetadataFloat;
+import org.web3d.vrml.renderer.norender.nodes.core.NRMetadataInteger;
+import org.web3d.vrml.renderer.norender.nodes.core.NRMetadataSet;
+import org.web3d.vrml.renderer.norender.nodes.core.NRMetadataString;
+import org.web3d.vrml.renderer.norender.nodes.core.NRWorldInfo;
+import org.web3d.vrml.renderer.norender.nodes.core.NRWorldRoot;
+
+import org.web3d.vrml.renderer.norender.nodes.dis.NRDISEntityManager;
+import org.web3d.vrml.renderer.norender.nodes.dis.NREspduTransform;
+
+import org.web3d.vrml.renderer.norender.nodes.enveffects.NRBackground;
+import org.web3d.vrml.renderer.norender.nodes.enveffects.NRFog;
+import org.web3d.vrml.renderer.norender.nodes.enveffects.NRFogCoordinate;
+import org.web3d.vrml.renderer.norender.nodes.enveffects.NRLocalFog;
+import org.web3d.vrml.renderer.norender.nodes.enveffects.NRTextureBackground;
+
+import org.web3d.vrml.renderer.norender.nodes.environment.NRProximitySensor;
+import org.web3d.vrml.renderer.norender.nodes.environment.NRVisibilitySensor;
+
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRBooleanFilter;
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRBooleanSequencer;
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRBooleanToggle;
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRBooleanTrigger;
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRIntegerSequencer;
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRIntegerTrigger;
+import org.web3d.vrml.renderer.norender.nodes.eventutils.NRTimeTrigger;
+
+import org.web3d.vrml.renderer.norender.nodes.extensions.NRGamepadSensor;
+import org.web3d.vrml.renderer.norender.nodes.extensions.NRJoystickSensor;
+import org.web3d.vrml.renderer.norender.nodes.extensions.NRWheelSensor;
+
+import org.web3d.vrml.renderer.norender.nodes.geom2d.NRArc2D;
+import org.web3d.vrml.renderer.norender.nodes.geom2d.NRPolyline2D;
+import org.web3d.vrml.renderer.norender.nodes.geom2d.NRPolypoint2D;
+import org.web3d.vrml.renderer.norender.nodes.geom2d.NRRectangle2D;
+import org.web3d.vrml.renderer.norender.nodes.geom2d.NRTriangleSet2D;
+
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRBox;
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRCone;
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRCylinder;
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRElevationGrid;
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRExtrusion;
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRIndexedFaceSet;
+import org.web3d.vrml.renderer.norender.nodes.geom3d.NRSphere;
+
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoCoordinate;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoElevationGrid;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoLOD;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoLocation;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoMetadata;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoOrigin;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoPositionInterpolator;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoTouchSensor;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoTransform;
+import org.web3d.vrml.renderer.norender.nodes.geospatial.NRGeoViewpoint;
+
+import org.web3d.vrml.renderer.norender.nodes.group.NRGroup;
+import org.web3d.vrml.renderer.norender.nodes.group.NRMatrixTransform;
+import org.web3d.vrml.renderer.norender.nodes.group.NRStaticGroup;
+import org.web3d.vrml.renderer.norender.nodes.group.NRSwitch;
+import org.web3d.vrml.renderer.norender.nodes.group.NRTransform;
+
+import org.web3d.vrml.renderer.norender.nodes.hanim.NRHAnimDisplacer;
+import org.web3d.vrml.renderer.norender.nodes.hanim.NRHAnimHumanoid;
+import org.web3d.vrml.renderer.norender.nodes.hanim.NRHAnimJoint;
+import org.web3d.vrml.renderer.norender.nodes.hanim.NRHAnimSegment;
+import org.web3d.vrml.renderer.norender.nodes.hanim.NRHAnimSite;
+
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRColorInterpolator;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRCoordinateInterpolator;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRCoordinateInterpolator2D;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRNormalInterpolator;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NROrientationInterpolator;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRPositionInterpolator;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRPositionInterpolator2D;
+import org.web3d.vrml.renderer.norender.nodes.interpolator.NRScalarInterpolator;
+
+import org.web3d.vrml.renderer.norender.nodes.layering.NRCustomViewport;
+import org.web3d.vrml.renderer.norender.nodes.layering.NRFixedViewport;
+import org.web3d.vrml.renderer.norender.nodes.layering.NRLayer;
+import org.web3d.vrml.renderer.norender.nodes.layering.NRLayerSet;
+import org.web3d.vrml.renderer.norender.nodes.layering.NRProportionalViewport;
+
+import org.web3d.vrml.renderer.norender.nodes.lighting.NRDirectionalLight;
+import org.web3d.vrml.renderer.norender.nodes.lighting.NRPointLight;
+import org.web3d.vrml.renderer.norender.nodes.lighting.NRSpotLight;
+
+import org.web3d.vrml.renderer.norender.nodes.navigation.NRBillboard;
+import org.web3d.vrml.renderer.norender.nodes.navigation.NRCollision;
+import org.web3d.vrml.renderer.norender.nodes.navigation.NRLOD;
+import org.web3d.vrml.renderer.norender.nodes.navigation.NRNavigationInfo;
+import org.web3d.vrml.renderer.norender.nodes.navigation.NROrthoViewpoint;
+import org.web3d.vrml.renderer.norender.nodes.navigation.NRViewpoint;
+
+import org.web3d.vrml.renderer.norender.nodes.networking.NRAnchor;
+import org.web3d.vrml.renderer.norender.nodes.networking.NRInline;
+import org.web3d.vrml.renderer.norender.nodes.networking.NRLoadSensor;
+
+import org.web3d.vrml.renderer.norender.nodes.nurbs.NRNurbsCurve;
+import org.web3d.vrml.renderer.norender.nodes.nurbs.NRNurbsPatchSurface;
+import org.web3d.vrml.renderer.norender.nodes.nurbs.NRNurbsPositionInterpolator;
+
+import org.web3d.vrml.renderer.norender.nodes.particle.NRExplosionEmitter;
+import org.web3d.vrml.renderer.norender.nodes.particle.NRGravityPhysicsModel;
+import org.web3d.vrml.renderer.norender.nodes.particle.NRParticleSystem;
+import org.web3d.vrml.renderer.norender.nodes.particle.NRPointEmitter;
+import org.web3d.vrml.renderer.norender.nodes.particle.NRPolylineEmitter;
+import org.web3d.vrml.renderer.norender.nodes.particle.NRWindPhysicsModel;
+
+import org.web3d.vrml.renderer.norender.nodes.picking.NRLinePicker;
+import org.web3d.vrml.renderer.norender.nodes.picking.NRPickableGroup;
+import org.web3d.vrml.renderer.norender.nodes.picking.NRPointPicker;
+import org.web3d.vrml.renderer.norender.nodes.picking.NRPrimitivePicker;
+import org.web3d.vrml.renderer.norender.nodes.picking.NRVolumePicker;
+
+import org.web3d.vrml.renderer.norender.nodes.render.NRClipPlane;
+import org.web3d.vrml.renderer.norender.nodes.render.NRColor;
+import org.web3d.vrml.renderer.norender.nodes.render.NRColorRGBA;
+import org.web3d.vrml.renderer.norender.nodes.render.NRCoordinate;
+import org.web3d.vrml.renderer.norender.nodes.render.NRIndexedLineSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRIndexedTriangleFanSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRIndexedTriangleSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRIndexedTriangleStripSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRLineSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRNormal;
+import org.web3d.vrml.renderer.norender.nodes.render.NRPointSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRTriangleFanSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRTriangleSet;
+import org.web3d.vrml.renderer.norender.nodes.render.NRTriangleStripSet;
+
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRBallJoint;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRCollidableOffset;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRCollidableShape;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRCollisionCollection;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRCollisionSensor;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRCollisionSpace;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRContact;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRDoubleAxisHingeJoint;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRMotorJoint;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRRigidBody;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRRigidBodyCollection;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRSingleAxisHingeJoint;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRSliderJoint;
+import org.web3d.vrml.renderer.norender.nodes.rigidphysics.NRUniversalJoint;
+
+import org.web3d.vrml.renderer.norender.nodes.scripting.NRScript;
+
+import org.web3d.vrml.renderer.norender.nodes.sensor.NRCylinderSensor;
+import org.web3d.vrml.renderer.norender.nodes.sensor.NRKeySensor;
+import org.web3d.vrml.renderer.norender.nodes.sensor.NRPlaneSensor;
+import org.web3d.vrml.renderer.norender.nodes.sensor.NRSphereSensor;
+import org.web3d.vrml.renderer.norender.nodes.sensor.NRStringSensor;
+import org.web3d.vrml.renderer.norender.nodes.sensor.NRTouchSensor;
+
+import org.web3d.vrml.renderer.norender.nodes.shape.NRAppearance;
+import org.web3d.vrml.renderer.norender.nodes.shape.NRLineProperties;
+import org.web3d.vrml.renderer.norender.nodes.shape.NRMaterial;
+import org.web3d.vrml.renderer.norender.nodes.shape.NRPointProperties;
+import org.web3d.vrml.renderer.norender.nodes.shape.NRShape;
+
+import org.web3d.vrml.renderer.norender.nodes.sound.NRAudioClip;
+import org.web3d.vrml.renderer.norender.nodes.sound.NRSound;
+
+import org.web3d.vrml.renderer.norender.nodes.surface.NRBorderLayout;
+import org.web3d.vrml.renderer.norender.nodes.surface.NRGridLayout;
+import org.web3d.vrml.renderer.norender.nodes.surface.NRGroupLayout;
+import org.web3d.vrml.renderer.norender.nodes.surface.NRImage2D;
+import org.web3d.vrml.renderer.norender.nodes.surface.NROverlay;
+import org.web3d.vrml.renderer.norender.nodes.surface.NRText2D;
+import org.web3d.vrml.renderer.norender.nodes.surface.NRXYLayout;
+
+import org.web3d.vrml.renderer.norender.nodes.text.NRFontStyle;
+import org.web3d.vrml.renderer.norender.nodes.text.NRText;
+
+import org.web3d.vrml.renderer.norender.nodes.texture.NRImageTexture;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRMovieTexture;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRMultiTexture;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRMultiTextureCoordinate;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRMultiTextureTransform;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRPixelTexture;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRRenderedTexture;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureCoordinate;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureCoordinate3D;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureCoordinate4D;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureCoordinateGenerator;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureProperties;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureTransform;
+import org.web3d.vrml.renderer.norender.nodes.texture.NRTextureTransform3D;
+
+import org.web3d.vrml.renderer.norender.nodes.time.NRTimeSensor;
+
+/**
+ * The table of {@link NodeSupplier}s for every node class of the null renderer.
+ * <p>
+ *
+ * This is used by {@link org.web3d.vrml.renderer.DefaultNodeFactory} so
+ * that nodes can be created and copied without reflection. The table holds
+ * each node named in the component definitions under <code>config</code>
+ * that has an implementation in this renderer. A node added to a component
+ * without an entry here still works, as the factory falls back to finding
+ * the class by reflection, but it should be added here too.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class NRNodeSuppliers {
+
+    /** The package of the cadgeometry nodes */
+    private static final String CADGEOMETRY_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.cadgeometry";
+
+    /** The package of the core nodes */
+    private static final String CORE_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.core";
+
+    /** The package of the dis nodes */
+    private static final String DIS_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.dis";
+
+    /** The package of the enveffects nodes */
+    private static final String ENVEFFECTS_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.enveffects";
+
+    /** The package of the environment nodes */
+    private static final String ENVIRONMENT_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.environment";
+
+    /** The package of the eventutils nodes */
+    private static final String EVENTUTILS_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.eventutils";
+
+    /** The package of the extensions nodes */
+    private static final String EXTENSIONS_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.extensions";
+
+    /** The package of the geom2d nodes */
+    private static final String GEOM2D_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.geom2d";
+
+    /** The package of the geom3d nodes */
+    private static final String GEOM3D_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.geom3d";
+
+    /** The package of the geospatial nodes */
+    private static final String GEOSPATIAL_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.geospatial";
+
+    /** The package of the group nodes */
+    private static final String GROUP_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.group";
+
+    /** The package of the hanim nodes */
+    private static final String HANIM_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.hanim";
+
+    /** The package of the interpolator nodes */
+    private static final String INTERPOLATOR_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.interpolator";
+
+    /** The package of the layering nodes */
+    private static final String LAYERING_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.layering";
+
+    /** The package of the lighting nodes */
+    private static final String LIGHTING_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.lighting";
+
+    /** The package of the navigation nodes */
+    private static final String NAVIGATION_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.navigation";
+
+    /** The package of the networking nodes */
+    private static final String NETWORKING_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.networking";
+
+    /** The package of the nurbs nodes */
+    private static final String NURBS_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.nurbs";
+
+    /** The package of the particle nodes */
+    private static final String PARTICLE_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.particle";
+
+    /** The package of the picking nodes */
+    private static final String PICKING_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.picking";
+
+    /** The package of the render nodes */
+    private static final String RENDER_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.render";
+
+    /** The package of the rigidphysics nodes */
+    private static final String RIGIDPHYSICS_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.rigidphysics";
+
+    /** The package of the scripting nodes */
+    private static final String SCRIPTING_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.scripting";
+
+    /** The package of the sensor nodes */
+    private static final String SENSOR_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.sensor";
+
+    /** The package of the shape nodes */
+    private static final String SHAPE_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.shape";
+
+    /** The package of the sound nodes */
+    private static final String SOUND_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.sound";
+
+    /** The package of the surface nodes */
+    private static final String SURFACE_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.surface";
+
+    /** The package of the text nodes */
+    private static final String TEXT_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.text";
+
+    /** The package of the texture nodes */
+    private static final String TEXTURE_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.texture";
+
+    /** The package of the time nodes */
+    private static final String TIME_PKG =
+        "org.web3d.vrml.renderer.norender.nodes.time";
+
+    /**
+     * Private constructor as this only holds the static table.
+     */
+    private NRNodeSuppliers() {
+    }
+
+    /**
+     * Add the suppliers of all the nodes of this renderer to the map.
+     *
+     * @param suppliers The map to add to, keyed by fully qualified class name
+     */
+    public static void addSuppliers(Map<String, NodeSupplier> suppliers) {
+        add(suppliers, CADGEOMETRY_PKG, "NRCADAssembly",
+            () -> new NRCADAssembly(), n -> new NRCADAssembly(n));
+        add(suppliers, CADGEOMETRY_PKG, "NRCADFace",
+            () -> new NRCADFace(), n -> new NRCADFace(n));
+        add(suppliers, CADGEOMETRY_PKG, "NRCADLayer",
+            () -> new NRCADLayer(), n -> new NRCADLayer(n));
+        add(suppliers, CADGEOMETRY_PKG, "NRCADPart",
+            () -> new NRCADPart(), n -> new NRCADPart(n));
+        add(suppliers, CADGEOMETRY_PKG, "NRIndexedQuadSet",
+            () -> new NRIndexedQuadSet(), n -> new NRIndexedQuadSet(n));
+        add(suppliers, CADGEOMETRY_PKG, "NRQuadSet",
+            () -> new NRQuadSet(), n -> new NRQuadSet(n));
+
+        add(suppliers, CORE_PKG, "NRMetadataBoolean",
+            () -> new NRMetadataBoolean(), n -> new NRMetadataBoolean(n));
+        add(suppliers, CORE_PKG, "NRMetadataDouble",
+            () -> new NRMetadataDouble(), n -> new NRMetadataDouble(n));
+        add(suppliers, CORE_PKG, "NRMetadataFloat",
+            () -> new NRMetadataFloat(), n -> new NRMetadataFloat(n));
+        add(suppliers, CORE_PKG, "NRMetadataInteger",
+            () -> new NRMetadataInteger(), n -> new NRMetadataInteger(n));
+        add(suppliers, CORE_PKG, "NRMetadataSet",
+            () -> new NRMetadataSet(), n -> new NRMetadataSet(n));
+        add(suppliers, CORE_PKG, "NRMetadataString",
+            () -> new NRMetadataString(), n -> new NRMetadataString(n));
+        add(suppliers, CORE_PKG, "NRWorldInfo",
+            () -> new NRWorldInfo(), n -> new NRWorldInfo(n));
+        add(suppliers, CORE_PKG, "NRWorldRoot", () -> new NRWorldRoot(), null);
+
+        add(suppliers, DIS_PKG, "NRDISEntityManager",
+            () -> new NRDISEntityManager(), n -> new NRDISEntityManager(n));
+        add(suppliers, DIS_PKG, "NREspduTransform",
+            () -> new NREspduTransform(), n -> new NREspduTransform(n));
+
+        add(suppliers, ENVEFFECTS_PKG, "NRBackground",
+            () -> new NRBackground(), n -> new NRBackground(n));
+        add(suppliers, ENVEFFECTS_PKG, "NRFog",
+            () -> new NRFog(), n -> new NRFog(n));
+        add(suppliers, ENVEFFECTS_PKG, "NRFogCoordinate",
+            () -> new NRFogCoordinate(), n -> new NRFogCoordinate(n));
+        add(suppliers, ENVEFFECTS_PKG, "NRLocalFog",
+            () -> new NRLocalFog(), n -> new NRLocalFog(n));
+        add(suppliers, ENVEFFECTS_PKG, "NRTextureBackground",
+            () -> new NRTextureBackground(), n -> new NRTextureBackground(n));
+
+        add(suppliers, ENVIRONMENT_PKG, "NRProximitySensor",
+            () -> new NRProximitySensor(), n -> new NRProximitySensor(n));
+        add(suppliers, ENVIRONMENT_PKG, "NRVisibilitySensor",
+            () -> new NRVisibilitySensor(), n -> new NRVisibilitySensor(n));
+
+        add(suppliers, EVENTUTILS_PKG, "NRBooleanFilter",
+            () -> new NRBooleanFilter(), n -> new NRBooleanFilter(n));
+        add(suppliers, EVENTUTILS_PKG, "NRBooleanSequencer",
+            () -> new NRBooleanSequencer(), n -> new NRBooleanSequencer(n));
+        add(suppliers, EVENTUTILS_PKG, "NRBooleanToggle",
+            () -> new NRBooleanToggle(), n -> new NRBooleanToggle(n));
+        add(suppliers, EVENTUTILS_PKG, "NRBooleanTrigger",
+            () -> new NRBooleanTrigger(), n -> new NRBooleanTrigger(n));
+        add(suppliers, EVENTUTILS_PKG, "NRIntegerSequencer",
+            () -> new NRIntegerSequencer(), n -> new NRIntegerSequencer(n));
+        add(suppliers, EVENTUTILS_PKG, "NRIntegerTrigger",
+            () -> new NRIntegerTrigger(), n -> new NRIntegerTrigger(n));
+        add(suppliers, EVENTUTILS_PKG, "NRTimeTrigger",
+            () -> new NRTimeTrigger(), n -> new NRTimeTrigger(n));
+
+        add(suppliers, EXTENSIONS_PKG, "NRGamepadSensor",
+            () -> new NRGamepadSensor(), n -> new NRGamepadSensor(n));
+        add(suppliers, EXTENSIONS_PKG, "NRJoystickSensor",
+            () -> new NRJoystickSensor(), n -> new NRJoystickSensor(n));
+        add(suppliers, EXTENSIONS_PKG, "NRWheelSensor",
+            () -> new NRWheelSensor(), n -> new NRWheelSensor(n));
+
+        add(suppliers, GEOM2D_PKG, "NRArc2D",
+            () -> new NRArc2D(), n -> new NRArc2D(n));
+        add(suppliers, GEOM2D_PKG, "NRPolyline2D",
+            () -> new NRPolyline2D(), n -> new NRPolyline2D(n));
+        add(suppliers, GEOM2D_PKG, "NRPolypoint2D",
+            () -> new NRPolypoint2D(), n -> new NRPolypoint2D(n));
+        add(suppliers, GEOM2D_PKG, "NRRectangle2D",
+            () -> new NRRectangle2D(), n -> new NRRectangle2D(n));
+        add(suppliers, GEOM2D_PKG, "NRTriangleSet2D",
+            () -> new NRTriangleSet2D(), n -> new NRTriangleSet2D(n));
+
+        add(suppliers, GEOM3D_PKG, "NRBox",
+            () -> new NRBox(), n -> new NRBox(n));
+        add(suppliers, GEOM3D_PKG, "NRCone",
+            () -> new NRCone(), n -> new NRCone(n));
+        add(suppliers, GEOM3D_PKG, "NRCylinder",
+            () -> new NRCylinder(), n -> new NRCylinder(n));
+        add(suppliers, GEOM3D_PKG, "NRElevationGrid",
+            () -> new NRElevationGrid(), n -> new NRElevationGrid(n));
+        add(suppliers, GEOM3D_PKG, "NRExtrusion",
+            () -> new NRExtrusion(), n -> new NRExtrusion(n));
+        add(suppliers, GEOM3D_PKG, "NRIndexedFaceSet",
+            () -> new NRIndexedFaceSet(), n -> new NRIndexedFaceSet(n));
+        add(suppliers, GEOM3D_PKG, "NRSphere",
+            () -> new NRSphere(), n -> new NRSphere(n));
+
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoCoordinate",
+            () -> new NRGeoCoordinate(), n -> new NRGeoCoordinate(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoElevationGrid",
+            () -> new NRGeoElevationGrid(), n -> new NRGeoElevationGrid(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoLOD",
+            () -> new NRGeoLOD(), n -> new NRGeoLOD(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoLocation",
+            () -> new NRGeoLocation(), n -> new NRGeoLocation(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoMetadata",
+            () -> new NRGeoMetadata(), n -> new NRGeoMetadata(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoOrigin",
+            () -> new NRGeoOrigin(), n -> new NRGeoOrigin(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoPositionInterpolator",
+            () -> new NRGeoPositionInterpolator(), n -> new NRGeoPositionInterpolator(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoTouchSensor",
+            () -> new NRGeoTouchSensor(), n -> new NRGeoTouchSensor(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoTransform",
+            () -> new NRGeoTransform(), n -> new NRGeoTransform(n));
+        add(suppliers, GEOSPATIAL_PKG, "NRGeoViewpoint",
+            () -> new NRGeoViewpoint(), n -> new NRGeoViewpoint(n));
+
+        add(suppliers, GROUP_PKG, "NRGroup",
+            () -> new NRGroup(), n -> new NRGroup(n));
+        add(suppliers, GROUP_PKG, "NRMatrixTransform",
+            () -> new NRMatrixTransform(), n -> new NRMatrixTransform(n));
+        add(suppliers, GROUP_PKG, "NRStaticGroup",
+            () -> new NRStaticGroup(), n -> new NRStaticGroup(n));
+        add(suppliers, GROUP_PKG, "NRSwitch",
+            () -> new NRSwitch(), n -> new NRSwitch(n));
+        add(suppliers, GROUP_PKG, "NRTransform",
+            () -> new NRTransform(), n -> new NRTransform(n));
+
+        add(suppliers, HANIM_PKG, "NRHAnimDisplacer",
+            () -> new NRHAnimDisplacer(), n -> new NRHAnimDisplacer(n));
+        add(suppliers, HANIM_PKG, "NRHAnimHumanoid",
+            () -> new NRHAnimHumanoid(), n -> new NRHAnimHumanoid(n));
+        add(suppliers, HANIM_PKG, "NRHAnimJoint",
+            () -> new NRHAnimJoint(), n -> new NRHAnimJoint(n));
+        add(suppliers, HANIM_PKG, "NRHAnimSegment",
+            () -> new NRHAnimSegment(), n -> new NRHAnimSegment(n));
+        add(suppliers, HANIM_PKG, "NRHAnimSite",
+            () -> new NRHAnimSite(), n -> new NRHAnimSite(n));
+
+        add(suppliers, INTERPOLATOR_PKG, "NRColorInterpolator",
+            () -> new NRColorInterpolator(), n -> new NRColorInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "NRCoordinateInterpolator",
+            () -> new NRCoordinateInterpolator(), n -> new NRCoordinateInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "NRCoordinateInterpolator2D",
+            () -> new NRCoordinateInterpolator2D(), n -> new NRCoordinateInterpolator2D(n));
+        add(suppliers, INTERPOLATOR_PKG, "NRNormalInterpolator",
+            () -> new NRNormalInterpolator(), n -> new NRNormalInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "NROrientationInterpolator",
+            () -> new NROrientationInterpolator(), n -> new NROrientationInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "NRPositionInterpolator",
+            () -> new NRPositionInterpolator(), n -> new NRPositionInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "NRPositionInterpolator2D",
+            () -> new NRPositionInterpolator2D(), n -> new NRPositionInterpolator2D(n));
+        add(suppliers, INTERPOLATOR_PKG, "NRScalarInterpolator",
+            () -> new NRScalarInterpolator(), n -> new NRScalarInterpolator(n));
+
+        add(suppliers, LAYERING_PKG, "NRCustomViewport",
+            () -> new NRCustomViewport(), n -> new NRCustomViewport(n));
+        add(suppliers, LAYERING_PKG, "NRFixedViewport",
+            () -> new NRFixedViewport(), n -> new NRFixedViewport(n));
+        add(suppliers, LAYERING_PKG, "NRLayer",
+            () -> new NRLayer(), n -> new NRLayer(n));
+        add(suppliers, LAYERING_PKG, "NRLayerSet",
+            () -> new NRLayerSet(), n -> new NRLayerSet(n));
+        add(suppliers, LAYERING_PKG, "NRProportionalViewport",
+            () -> new NRProportionalViewport(), n -> new NRProportionalViewport(n));
+
+        add(suppliers, LIGHTING_PKG, "NRDirectionalLight",
+            () -> new NRDirectionalLight(), n -> new NRDirectionalLight(n));
+        add(suppliers, LIGHTING_PKG, "NRPointLight",
+            () -> new NRPointLight(), n -> new NRPointLight(n));
+        add(suppliers, LIGHTING_PKG, "NRSpotLight",
+            () -> new NRSpotLight(), n -> new NRSpotLight(n));
+
+        add(suppliers, NAVIGATION_PKG, "NRBillboard",
+            () -> new NRBillboard(), n -> new NRBillboard(n));
+        add(suppliers, NAVIGATION_PKG, "NRCollision",
+            () -> new NRCollision(), n -> new NRCollision(n));
+        add(suppliers, NAVIGATION_PKG, "NRLOD",
+            () -> new NRLOD(), n -> new NRLOD(n));
+        add(suppliers, NAVIGATION_PKG, "NRNavigationInfo",
+            () -> new NRNavigationInfo(), n -> new NRNavigationInfo(n));
+        add(suppliers, NAVIGATION_PKG, "NROrthoViewpoint",
+            () -> new NROrthoViewpoint(), n -> new NROrthoViewpoint(n));
+        add(suppliers, NAVIGATION_PKG, "NRViewpoint",
+            () -> new NRViewpoint(), n -> new NRViewpoint(n));
+
+        add(suppliers, NETWORKING_PKG, "NRAnchor",
+            () -> new NRAnchor(), n -> new NRAnchor(n));
+        add(suppliers, NETWORKING_PKG, "NRInline",
+            () -> new NRInline(), n -> new NRInline(n));
+        add(suppliers, NETWORKING_PKG, "NRLoadSensor",
+            () -> new NRLoadSensor(), n -> new NRLoadSensor(n));
+
+        add(suppliers, NURBS_PKG, "NRNurbsCurve",
+            () -> new NRNurbsCurve(), n -> new NRNurbsCurve(n));
+        add(suppliers, NURBS_PKG, "NRNurbsPatchSurface",
+            () -> new NRNurbsPatchSurface(), n -> new NRNurbsPatchSurface(n));
+        add(suppliers, NURBS_PKG, "NRNurbsPositionInterpolator",
+            () -> new NRNurbsPositionInterpolator(), n -> new NRNurbsPositionInterpolator(n));
+
+        add(suppliers, PARTICLE_PKG, "NRExplosionEmitter",
+            () -> new NRExplosionEmitter(), n -> new NRExplosionEmitter(n));
+        add(suppliers, PARTICLE_PKG, "NRGravityPhysicsModel",
+            () -> new NRGravityPhysicsModel(), n -> new NRGravityPhysicsModel(n));
+        add(suppliers, PARTICLE_PKG, "NRParticleSystem",
+            () -> new NRParticleSystem(), n -> new NRParticleSystem(n));
+        add(suppliers, PARTICLE_PKG, "NRPointEmitter",
+            () -> new NRPointEmitter(), n -> new NRPointEmitter(n));
+        add(suppliers, PARTICLE_PKG, "NRPolylineEmitter",
+            () -> new NRPolylineEmitter(), n -> new NRPolylineEmitter(n));
+        add(suppliers, PARTICLE_PKG, "NRWindPhysicsModel",
+            () -> new NRWindPhysicsModel(), n -> new NRWindPhysicsModel(n));
+
+        add(suppliers, PICKING_PKG, "NRLinePicker",
+            () -> new NRLinePicker(), n -> new NRLinePicker(n));
+        add(suppliers, PICKING_PKG, "NRPickableGroup",
+            () -> new NRPickableGroup(), n -> new NRPickableGroup(n));
+        add(suppliers, PICKING_PKG, "NRPointPicker",
+            () -> new NRPointPicker(), n -> new NRPointPicker(n));
+        add(suppliers, PICKING_PKG, "NRPrimitivePicker",
+            () -> new NRPrimitivePicker(), n -> new NRPrimitivePicker(n));
+        add(suppliers, PICKING_PKG, "NRVolumePicker",
+            () -> new NRVolumePicker(), n -> new NRVolumePicker(n));
+
+        add(suppliers, RENDER_PKG, "NRClipPlane",
+            () -> new NRClipPlane(), n -> new NRClipPlane(n));
+        add(suppliers, RENDER_PKG, "NRColor",
+            () -> new NRColor(), n -> new NRColor(n));
+        add(suppliers, RENDER_PKG, "NRColorRGBA",
+            () -> new NRColorRGBA(), n -> new NRColorRGBA(n));
+        add(suppliers, RENDER_PKG, "NRCoordinate",
+            () -> new NRCoordinate(), n -> new NRCoordinate(n));
+        add(suppliers, RENDER_PKG, "NRIndexedLineSet",
+            () -> new NRIndexedLineSet(), n -> new NRIndexedLineSet(n));
+        add(suppliers, RENDER_PKG, "NRIndexedTriangleFanSet",
+            () -> new NRIndexedTriangleFanSet(), n -> new NRIndexedTriangleFanSet(n));
+        add(suppliers, RENDER_PKG, "NRIndexedTriangleSet",
+            () -> new NRIndexedTriangleSet(), n -> new NRIndexedTriangleSet(n));
+        add(suppliers, RENDER_PKG, "NRIndexedTriangleStripSet",
+            () -> new NRIndexedTriangleStripSet(), n -> new NRIndexedTriangleStripSet(n));
+        add(suppliers, RENDER_PKG, "NRLineSet",
+            () -> new NRLineSet(), n -> new NRLineSet(n));
+        add(suppliers, RENDER_PKG, "NRNormal",
+            () -> new NRNormal(), n -> new NRNormal(n));
+        add(suppliers, RENDER_PKG, "NRPointSet",
+            () -> new NRPointSet(), n -> new NRPointSet(n));
+        add(suppliers, RENDER_PKG, "NRTriangleFanSet",
+            () -> new NRTriangleFanSet(), n -> new NRTriangleFanSet(n));
+        add(suppliers, RENDER_PKG, "NRTriangleSet",
+            () -> new NRTriangleSet(), n -> new NRTriangleSet(n));
+        add(suppliers, RENDER_PKG, "NRTriangleStripSet",
+            () -> new NRTriangleStripSet(), n -> new NRTriangleStripSet(n));
+
+        add(suppliers, RIGIDPHYSICS_PKG, "NRBallJoint",
+            () -> new NRBallJoint(), n -> new NRBallJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRCollidableOffset",
+            () -> new NRCollidableOffset(), n -> new NRCollidableOffset(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRCollidableShape",
+            () -> new NRCollidableShape(), n -> new NRCollidableShape(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRCollisionCollection",
+            () -> new NRCollisionCollection(), n -> new NRCollisionCollection(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRCollisionSensor",
+            () -> new NRCollisionSensor(), n -> new NRCollisionSensor(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRCollisionSpace",
+            () -> new NRCollisionSpace(), n -> new NRCollisionSpace(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRContact",
+            () -> new NRContact(), n -> new NRContact(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRDoubleAxisHingeJoint",
+            () -> new NRDoubleAxisHingeJoint(), n -> new NRDoubleAxisHingeJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRMotorJoint",
+            () -> new NRMotorJoint(), n -> new NRMotorJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRRigidBody",
+            () -> new NRRigidBody(), n -> new NRRigidBody(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRRigidBodyCollection",
+            () -> new NRRigidBodyCollection(), n -> new NRRigidBodyCollection(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRSingleAxisHingeJoint",
+            () -> new NRSingleAxisHingeJoint(), n -> new NRSingleAxisHingeJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRSliderJoint",
+            () -> new NRSliderJoint(), n -> new NRSliderJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "NRUniversalJoint",
+            () -> new NRUniversalJoint(), n -> new NRUniversalJoint(n));
+
+        add(suppliers, SCRIPTING_PKG, "NRScript",
+            () -> new NRScript(), n -> new NRScript(n));
+
+        add(suppliers, SENSOR_PKG, "NRCylinderSensor",
+            () -> new NRCylinderSensor(), n -> new NRCylinderSensor(n));
+        add(suppliers, SENSOR_PKG, "NRKeySensor",
+            () -> new NRKeySensor(), n -> new NRKeySensor(n));
+        add(suppliers, SENSOR_PKG, "NRPlaneSensor",
+            () -> new NRPlaneSensor(), n -> new NRPlaneSensor(n));
+        add(suppliers, SENSOR_PKG, "NRSphereSensor",
+            () -> new NRSphereSensor(), n -> new NRSphereSensor(n));
+        add(suppliers, SENSOR_PKG, "NRStringSensor",
+            () -> new NRStringSensor(), n -> new NRStringSensor(n));
+        add(suppliers, SENSOR_PKG, "NRTouchSensor",
+            () -> new NRTouchSensor(), n -> new NRTouchSensor(n));
+
+        add(suppliers, SHAPE_PKG, "NRAppearance",
+            () -> new NRAppearance(), n -> new NRAppearance(n));
+        add(suppliers, SHAPE_PKG, "NRLineProperties",
+            () -> new NRLineProperties(), n -> new NRLineProperties(n));
+        add(suppliers, SHAPE_PKG, "NRMaterial",
+            () -> new NRMaterial(), n -> new NRMaterial(n));
+        add(suppliers, SHAPE_PKG, "NRPointProperties",
+            () -> new NRPointProperties(), n -> new NRPointProperties(n));
+        add(suppliers, SHAPE_PKG, "NRShape",
+            () -> new NRShape(), n -> new NRShape(n));
+
+        add(suppliers, SOUND_PKG, "NRAudioClip",
+            () -> new NRAudioClip(), n -> new NRAudioClip(n));
+        add(suppliers, SOUND_PKG, "NRSound",
+            () -> new NRSound(), n -> new NRSound(n));
+
+        add(suppliers, SURFACE_PKG, "NRBorderLayout",
+            () -> new NRBorderLayout(), n -> new NRBorderLayout(n));
+        add(suppliers, SURFACE_PKG, "NRGridLayout",
+            () -> new NRGridLayout(), n -> new NRGridLayout(n));
+        add(suppliers, SURFACE_PKG, "NRGroupLayout",
+            () -> new NRGroupLayout(), n -> new NRGroupLayout(n));
+        add(suppliers, SURFACE_PKG, "NRImage2D",
+            () -> new NRImage2D(), n -> new NRImage2D(n));
+        add(suppliers, SURFACE_PKG, "NROverlay",
+            () -> new NROverlay(), n -> new NROverlay(n));
+        add(suppliers, SURFACE_PKG, "NRText2D",
+            () -> new NRText2D(), n -> new NRText2D(n));
+        add(suppliers, SURFACE_PKG, "NRXYLayout",
+            () -> new NRXYLayout(), n -> new NRXYLayout(n));
+
+        add(suppliers, TEXT_PKG, "NRFontStyle",
+            () -> new NRFontStyle(), n -> new NRFontStyle(n));
+        add(suppliers, TEXT_PKG, "NRText",
+            () -> new NRText(), n -> new NRText(n));
+
+        add(suppliers, TEXTURE_PKG, "NRImageTexture",
+            () -> new NRImageTexture(), n -> new NRImageTexture(n));
+        add(suppliers, TEXTURE_PKG, "NRMovieTexture",
+            () -> new NRMovieTexture(), n -> new NRMovieTexture(n));
+        add(suppliers, TEXTURE_PKG, "NRMultiTexture",
+            () -> new NRMultiTexture(), n -> new NRMultiTexture(n));
+        add(suppliers, TEXTURE_PKG, "NRMultiTextureCoordinate",
+            () -> new NRMultiTextureCoordinate(), n -> new NRMultiTextureCoordinate(n));
+        add(suppliers, TEXTURE_PKG, "NRMultiTextureTransform",
+            () -> new NRMultiTextureTransform(), n -> new NRMultiTextureTransform(n));
+        add(suppliers, TEXTURE_PKG, "NRPixelTexture",
+            () -> new NRPixelTexture(), n -> new NRPixelTexture(n));
+        add(suppliers, TEXTURE_PKG, "NRRenderedTexture",
+            () -> new NRRenderedTexture(), n -> new NRRenderedTexture(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureCoordinate",
+            () -> new NRTextureCoordinate(), n -> new NRTextureCoordinate(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureCoordinate3D",
+            () -> new NRTextureCoordinate3D(), n -> new NRTextureCoordinate3D(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureCoordinate4D",
+            () -> new NRTextureCoordinate4D(), n -> new NRTextureCoordinate4D(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureCoordinateGenerator",
+            () -> new NRTextureCoordinateGenerator(), n -> new NRTextureCoordinateGenerator(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureProperties",
+            () -> new NRTextureProperties(), n -> new NRTextureProperties(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureTransform",
+            () -> new NRTextureTransform(), n -> new NRTextureTransform(n));
+        add(suppliers, TEXTURE_PKG, "NRTextureTransform3D",
+            () -> new NRTextureTransform3D(), n -> new NRTextureTransform3D(n));
+
+        add(suppliers, TIME_PKG, "NRTimeSensor",
+            () -> new NRTimeSensor(), n -> new NRTimeSensor(n));
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Add one node class to the map.
+     */
+    private static void add(Map<String, NodeSupplier> suppliers,
+                            String pkg,
+                            String className,
+                            Supplier<VRMLNode> creator,
+                            Function<VRMLNodeType, VRMLNode> copier) {
+        suppliers.put(pkg + '.' + className, new NodeSupplier(creator, copier));
+    }
+}
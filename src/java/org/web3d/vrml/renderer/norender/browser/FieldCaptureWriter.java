@@ -0,0 +1,367 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.norender.browser;
+
+// External imports
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.vrml.lang.VRMLFieldDeclaration;
+import org.web3d.vrml.lang.VRMLNode;
+import org.web3d.vrml.nodes.VRMLFieldData;
+import org.web3d.vrml.nodes.VRMLNodeListener;
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+/**
+ * Writes the values of selected node fields to a stream each time they
+ * change.
+ * <p>
+ *
+ * Each capture is named as <code>DEF.field</code>. Changes are only noted as
+ * they happen. The values are written, one line per changed field, when
+ * {@link #writeChanges(double)} is called at the end of a frame, so a field
+ * that changes several times in one frame is only written once. The line
+ * format is comma separated: the simulation time in seconds, the capture
+ * name, then each value of the field. Node values are written as the node
+ * name.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class FieldCaptureWriter {
+
+    /** Message when a DEF name in a capture cannot be found */
+    private static final String NO_DEF_MSG =
+        "No node has the DEF name used by the field capture ";
+
+    /** Message when a field in a capture cannot be found */
+    private static final String NO_FIELD_MSG =
+        "Unknown field in field capture ";
+
+    /** Message when writing fails */
+    private static final String WRITE_ERR_MSG =
+        "Error writing captured field values";
+
+    /**
+     * A single field being watched.
+     */
+    private static class Capture implements VRMLNodeListener {
+
+        /** The name written in the output, DEF.field */
+        final String name;
+
+        /** The DEF name of the node */
+        final String defName;
+
+        /** The name of the field */
+        final String fieldName;
+
+        /** The node being watched, once resolved */
+        VRMLNodeType node;
+
+        /** Index of the field on the node */
+        int fieldIndex;
+
+        /** Number of values per item of the field type */
+        int fieldSize;
+
+        /** Has the field changed since it was last written */
+        boolean changed;
+
+        Capture(String def, String field) {
+            defName = def;
+            fieldName = field;
+            name = def + '.' + field;
+        }
+
+        @Override
+        public void fieldChanged(int index) {
+            if(index == fieldIndex)
+                changed = true;
+        }
+    }
+
+    /** The fields being watched */
+    private List<Capture> captures;
+
+    /** Where to write the values */
+    private Writer output;
+
+    /** Reused to build each output line */
+    private StringBuilder line;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Create a new writer with no captures set.
+     */
+    FieldCaptureWriter() {
+        captures = new ArrayList<>();
+        line = new StringBuilder();
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Register an error reporter for missing nodes and write failures.
+     *
+     * @param reporter The instance to use or null
+     */
+    void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Add a field to watch. It is not resolved until the next call to
+     * {@link #attach(Map)}.
+     *
+     * @param defName The DEF name of the node
+     * @param fieldName The name of the field on the node
+     */
+    void addCapture(String defName, String fieldName) {
+        captures.add(new Capture(defName, fieldName));
+    }
+
+    /**
+     * Check to see if any fields are being watched.
+     *
+     * @return true if there is at least one capture
+     */
+    boolean hasCaptures() {
+        return !captures.isEmpty();
+    }
+
+    /**
+     * Set the stream the values are written to. The stream is not closed by
+     * this class.
+     *
+     * @param out The stream to use, or null to stop writing
+     */
+    void setOutput(Writer out) {
+        output = out;
+    }
+
+    /**
+     * Find the nodes for all the captures in a newly loaded scene and start
+     * listening to them. Captures that cannot be found are reported and then
+     * ignored. The current value of each found field is written on the next
+     * frame.
+     *
+     * @param defMap The DEF names of the scene
+     */
+    void attach(Map<String, VRMLNode> defMap) {
+        detach();
+
+        for(Capture c : captures) {
+            VRMLNode n = defMap.get(c.defName);
+
+            if(!(n instanceof VRMLNodeType)) {
+                errorReporter.warningReport(NO_DEF_MSG + c.name, null);
+                continue;
+            }
+
+            int index = n.getFieldIndex(c.fieldName);
+
+            if(index == -1) {
+                errorReporter.warningReport(NO_FIELD_MSG + c.name, null);
+                continue;
+            }
+
+            VRMLFieldDeclaration decl = n.getFieldDeclaration(index);
+
+            c.node = (VRMLNodeType)n;
+            c.fieldIndex = index;
+            c.fieldSize = decl.getFieldSize();
+            c.changed = true;
+            c.node.addNodeListener(c);
+        }
+    }
+
+    /**
+     * Stop listening to all the nodes from the current scene.
+     */
+    void detach() {
+        for(Capture c : captures) {
+            if(c.node != null) {
+                c.node.removeNodeListener(c);
+                c.node = null;
+            }
+        }
+    }
+
+    /**
+     * Write a line for every watched field that changed since the last
+     * call.
+     *
+     * @param time The simulation time of the frame in seconds
+     */
+    void writeChanges(double time) {
+        if(output == null)
+            return;
+
+        try {
+            for(Capture c : captures) {
+                if(!c.changed || c.node == null)
+                    continue;
+
+                c.changed = false;
+
+                line.setLength(0);
+                line.append(time);
+                line.append(',');
+                line.append(c.name);
+
+                appendValue(c.node.getFieldValue(c.fieldIndex), c.fieldSize);
+
+                line.append('\n');
+                output.write(line.toString());
+            }
+        } catch(IOException ioe) {
+            errorReporter.errorReport(WRITE_ERR_MSG, ioe);
+            output = null;
+        }
+    }
+
+    /**
+     * Append the values of the field data to the current line.
+     *
+     * @param data The field value
+     * @param size The number of values per item
+     */
+    private void appendValue(VRMLFieldData data, int size) {
+        switch(data.dataType) {
+            case VRMLFieldData.BOOLEAN_DATA:
+                line.append(',').append(data.booleanValue);
+                break;
+
+            case VRMLFieldData.INT_DATA:
+                line.append(',').append(data.intValue);
+                break;
+
+            case VRMLFieldData.LONG_DATA:
+                line.append(',').append(data.longValue);
+                break;
+
+            case VRMLFieldData.FLOAT_DATA:
+                line.append(',').append(data.floatValue);
+                break;
+
+            case VRMLFieldData.DOUBLE_DATA:
+                line.append(',').append(data.doubleValue);
+                break;
+
+            case VRMLFieldData.STRING_DATA:
+                line.append(',').append(data.stringValue);
+                break;
+
+            case VRMLFieldData.NODE_DATA:
+                line.append(',');
+                if(data.nodeValue != null)
+                    line.append(data.nodeValue.getVRMLNodeName());
+                break;
+
+            case VRMLFieldData.BOOLEAN_ARRAY_DATA:
+                if(data.booleanArrayValues != null) {
+                    int len = valueCount(data, data.booleanArrayValues.length,
+                                         size);
+                    for(int i = 0; i < len; i++)
+                        line.append(',').append(data.booleanArrayValues[i]);
+                }
+                break;
+
+            case VRMLFieldData.INT_ARRAY_DATA:
+                if(data.intArrayValues != null) {
+                    int len = valueCount(data, data.intArrayValues.length,
+                                         size);
+                    for(int i = 0; i < len; i++)
+                        line.append(',').append(data.intArrayValues[i]);
+                }
+                break;
+
+            case VRMLFieldData.LONG_ARRAY_DATA:
+                if(data.longArrayValues != null) {
+                    int len = valueCount(data, data.longArrayValues.length,
+                                         size);
+                    for(int i = 0; i < len; i++)
+                        line.append(',').append(data.longArrayValues[i]);
+                }
+                break;
+
+            case VRMLFieldData.FLOAT_ARRAY_DATA:
+                if(data.floatArrayValues != null) {
+                    int len = valueCount(data, data.floatArrayValues.length,
+                                         size);
+                    for(int i = 0; i < len; i++)
+                        line.append(',').append(data.floatArrayValues[i]);
+                }
+                break;
+
+            case VRMLFieldData.DOUBLE_ARRAY_DATA:
+                if(data.doubleArrayValues != null) {
+                    int len = valueCount(data, data.doubleArrayValues.length,
+                                         size);
+                    for(int i = 0; i < len; i++)
+                        line.append(',').append(data.doubleArrayValues[i]);
+                }
+                break;
+
+            case VRMLFieldData.STRING_ARRAY_DATA:
+                if(data.stringArrayValues != null) {
+                    int len = valueCount(data, data.stringArrayValues.length,
+                                         size);
+                    for(int i = 0; i < len; i++)
+                        line.append(',').append(data.stringArrayValues[i]);
+                }
+                break;
+
+            case VRMLFieldData.NODE_ARRAY_DATA:
+                if(data.nodeArrayValues != null) {
+                    int len = valueCount(data, data.nodeArrayValues.length,
+                                         1);
+                    for(int i = 0; i < len; i++) {
+                        line.append(',');
+                        if(data.nodeArrayValues[i] != null)
+                            line.append(
+                                data.nodeArrayValues[i].getVRMLNodeName());
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * Work out how many values of an array are valid. Not every node sets
+     * numElements, so when it is missing or does not fit the array the whole
+     * array is used.
+     *
+     * @param data The field value
+     * @param length The length of the array holding the values
+     * @param size The number of values per item
+     * @return The number of values to write
+     */
+    private static int valueCount(VRMLFieldData data, int length, int size) {
+        int len = data.numElements * (size < 1 ? 1 : size);
+
+        return (len <= 0 || len > length) ? length : len;
+    }
+}
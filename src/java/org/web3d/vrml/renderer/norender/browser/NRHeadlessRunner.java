@@ -0,0 +1,688 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.norender.browser;
+
+// External imports
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import org.ietf.uri.ContentHandlerFactory;
+import org.ietf.uri.FileNameMap;
+import org.ietf.uri.URI;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.browser.Xj3DConstants;
+import org.web3d.net.content.VRMLContentHandlerFactory;
+import org.web3d.net.content.VRMLFileNameMap;
+import org.web3d.vrml.lang.VRMLException;
+import org.web3d.vrml.nodes.FrameStateManager;
+import org.web3d.vrml.nodes.VRMLClock;
+import org.web3d.vrml.nodes.VRMLScene;
+import org.web3d.vrml.parser.VRMLParserFactory;
+import org.web3d.vrml.renderer.common.input.DefaultSensorManager;
+import org.web3d.vrml.renderer.norender.NRSceneBuilderFactory;
+import org.web3d.vrml.sav.InputSource;
+import org.web3d.vrml.scripting.ScriptEngine;
+import org.web3d.vrml.scripting.ecmascript.ECMAScriptEngine;
+import org.web3d.vrml.scripting.ecmascript.JavascriptScriptEngine;
+import org.web3d.vrml.scripting.jsai.VRML97ScriptEngine;
+import org.web3d.vrml.scripting.sai.JavaSAIScriptEngine;
+
+import org.xj3d.core.eventmodel.*;
+import org.xj3d.core.loading.*;
+import org.xj3d.impl.core.eventmodel.*;
+import org.xj3d.impl.core.loading.DefaultScriptLoader;
+import org.xj3d.impl.core.loading.DefaultWorldLoaderManager;
+import org.xj3d.impl.core.loading.MemCacheLoadManager;
+
+/**
+ * Runs a world with the null renderer and a virtual clock, as fast as the
+ * machine allows.
+ * <p>
+ *
+ * Every call to {@link #step()} advances the clock by a fixed time step and
+ * evaluates one frame of the event model, so a run gives the same results no
+ * matter how long each frame takes to compute. Nothing is rendered and there
+ * is no user input. Time sensors, interpolators, scripts, physics and the
+ * other node managers run as normal.
+ * <p>
+ *
+ * Selected fields can be written to a stream each frame they change using
+ * {@link #addFieldCapture(String, String)}. After a run,
+ * {@link #getSimulationRate()} gives the number of simulated seconds
+ * computed per second of wall clock time.
+ * <p>
+ *
+ * The router used by the route manager can be chosen by naming a class that
+ * implements {@link RouterFactory} in the
+ * <code>org.xj3d.router.factory.class</code> system property, as with the
+ * browser canvases, or by passing a factory to the constructor. The default
+ * is {@link ListsRouterFactory}.
+ * <p>
+ *
+ * The runner can be used from the command line:
+ * <pre>
+ * java org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner
+ *     [-step ms] [-duration s] [-capture DEF.field]* [-out file] url
+ * </pre>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.2 $
+ */
+public class NRHeadlessRunner {
+
+    /** The default time step in milliseconds, 60 frames a second */
+    public static final int DEFAULT_TIME_STEP = 16;
+
+    /**
+     * Property defining the factory implementation for providing router
+     * instances. This should name a class that implements the
+     * {@link RouterFactory} interface.
+     */
+    public static final String ROUTER_FACTORY_PROP =
+        "org.xj3d.router.factory.class";
+
+    /** Default class for the router factory */
+    private static final String DEFAULT_ROUTER_FACTORY =
+        "org.xj3d.impl.core.eventmodel.ListsRouterFactory";
+
+    /** Message when the router factory class cannot be used */
+    private static final String NO_ROUTER_LOAD_MSG =
+        "The class that you specificed for the router factory is not a " +
+        "valid instance of RouterFactory. Using the default instead: ";
+
+    /** Message when a capture name is not DEF.field */
+    private static final String BAD_CAPTURE_MSG =
+        "Field captures must be of the form DEF.field: ";
+
+    /** Message when the physics manager cannot be created */
+    private static final String NO_PHYSICS_MSG =
+        "Physics libraries not available. Rigid body physics is disabled";
+
+    /** Message when the content of the world did not load in time */
+    private static final String LOAD_TIMEOUT_MSG =
+        "Content still loading after the load timeout, running anyway";
+
+    /** The longest time main waits for the content of the world, in ms */
+    private static final long LOAD_TIMEOUT = 30000;
+
+    /** Time between checks that the content has loaded, in ms */
+    private static final long LOAD_POLL_INTERVAL = 20;
+
+    /** Usage message for the command line */
+    private static final String USAGE_MSG =
+        "Usage: NRHeadlessRunner [-step ms] [-duration s] " +
+        "[-capture DEF.field]* [-out file] url";
+
+    /** The virtual clock */
+    private VirtualTimeSensorManager clock;
+
+    /** The event model being stepped */
+    private EventModelEvaluator eventModel;
+
+    /** The core that holds the scene */
+    private NRUniverse core;
+
+    /** Manager of the world loaders */
+    private WorldLoaderManager worldLoader;
+
+    /** The pool that loads the content of the world */
+    private LoaderThreadPool loaderPool;
+
+    /** Writer of the captured field values */
+    private FieldCaptureWriter captureWriter;
+
+    /** The scripting engines, which each hold their own reporter */
+    private ScriptEngine[] scriptEngines;
+
+    /** The number of frames run since the world was loaded */
+    private long frameCount;
+
+    /** Wall clock time spent stepping, in nanoseconds */
+    private long wallTime;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Create a new runner with the default time step and no world. Content
+     * is loaded with the shared loader thread pool.
+     */
+    public NRHeadlessRunner() {
+        this(LoaderThreadPool.getLoaderThreadPool());
+    }
+
+    /**
+     * Create a new runner with the default time step and no world, that loads
+     * content with the given thread pool. Use this to keep the loading of
+     * several worlds in one JVM apart. The router factory is taken from the
+     * router factory property.
+     *
+     * @param loaderPool The thread pool to load content with
+     */
+    public NRHeadlessRunner(LoaderThreadPool loaderPool) {
+        this(loaderPool, null);
+    }
+
+    /**
+     * Create a new runner with the default time step and no world, that loads
+     * content with the given thread pool and routes events with routers from
+     * the given factory.
+     *
+     * @param loaderPool The thread pool to load content with
+     * @param routerFactory The factory for the routers, or null to use the
+     *    one named by the router factory property
+     */
+    public NRHeadlessRunner(LoaderThreadPool loaderPool,
+                            RouterFactory routerFactory) {
+        this.loaderPool = loaderPool;
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+        captureWriter = new FieldCaptureWriter();
+
+        clock = new VirtualTimeSensorManager();
+        clock.setTickIncrement(DEFAULT_TIME_STEP);
+
+        FrameStateManager fsm = new DefaultFrameStateManager();
+
+        if(routerFactory == null)
+            routerFactory = loadRouterFactory();
+
+        RouteManager rm = new DefaultRouteManager();
+        rm.setRouterFactory(routerFactory);
+
+        ScriptManager s_mgr = new DefaultScriptManager();
+        SensorManager sens_mgr = new DefaultSensorManager(clock);
+
+        // No devices, but the sensor manager needs both managers present
+        sens_mgr.setInputManager(new InputDeviceManager(null));
+        sens_mgr.setKeyDeviceSensorManager(new KeyDeviceSensorManager(null));
+        ContentLoadManager load_mgr = new MemCacheLoadManager(loaderPool);
+
+        eventModel = new DefaultEventModelEvaluator();
+
+        List<NodeManager> node_mgrs = new ArrayList<>();
+        node_mgrs.add(new DefaultNetworkManager());
+        node_mgrs.add(new DefaultHumanoidManager());
+
+        // Physics needs the ODE natives, which a batch machine may not have
+        try {
+            node_mgrs.add(new DefaultRigidBodyPhysicsManager());
+        } catch(LinkageError e) {
+            errorReporter.warningReport(NO_PHYSICS_MSG, null);
+        }
+
+        node_mgrs.add(new DefaultParticleSystemManager());
+
+        NodeManager[] mgr_list = new NodeManager[node_mgrs.size()];
+        node_mgrs.toArray(mgr_list);
+
+        core = new NRUniverse(eventModel, false);
+
+        ViewpointManager vp_mgr = new DefaultViewpointManager(core);
+        LayerManagerFactory lmf = new NRLayerManagerFactory();
+
+        eventModel.initialize(s_mgr,
+                              rm,
+                              sens_mgr,
+                              fsm,
+                              load_mgr,
+                              vp_mgr,
+                              lmf,
+                              new NRLayerRenderingManager(),
+                              mgr_list);
+
+        SceneBuilderFactory builder_fac =
+            new NRSceneBuilderFactory(false,
+                                      true,
+                                      true,
+                                      true,
+                                      true,
+                                      true,
+                                      true);
+
+        VRMLParserFactory parser_fac = VRMLParserFactory.newVRMLParserFactory();
+
+        worldLoader =
+            new DefaultWorldLoaderManager(core, fsm, rm, loaderPool);
+        worldLoader.registerBuilderFactory(Xj3DConstants.NULL_RENDERER,
+                                           builder_fac);
+        worldLoader.registerParserFactory(Xj3DConstants.NULL_RENDERER,
+                                          parser_fac);
+
+        setupProperties();
+
+        ScriptLoader s_loader = new DefaultScriptLoader(loaderPool);
+        s_mgr.setScriptLoader(s_loader);
+
+        ScriptEngine jsai = new VRML97ScriptEngine(core, rm, fsm, worldLoader);
+        ScriptEngine ecma =
+            new JavascriptScriptEngine(core, rm, fsm, worldLoader);
+        ScriptEngine java_sai =
+            new JavaSAIScriptEngine(core, vp_mgr, rm, fsm, worldLoader);
+        ScriptEngine ecma_sai =
+            new ECMAScriptEngine(core, vp_mgr, rm, fsm, worldLoader);
+
+        scriptEngines = new ScriptEngine[] { jsai, ecma, java_sai, ecma_sai };
+
+        for(int i = 0; i < scriptEngines.length; i++)
+            s_loader.registerScriptingEngine(scriptEngines[i]);
+    }
+
+    /**
+     * Register an error reporter with the runner and everything it manages.
+     * Setting a value of null will clear the currently set reporter.
+     *
+     * @param reporter The instance to use or null
+     */
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        eventModel.setErrorReporter(errorReporter);
+        worldLoader.setErrorReporter(errorReporter);
+        core.setErrorReporter(errorReporter);
+        captureWriter.setErrorReporter(errorReporter);
+
+        for(int i = 0; i < scriptEngines.length; i++)
+            scriptEngines[i].setErrorReporter(errorReporter);
+    }
+
+    /**
+     * Set the amount of simulated time each frame covers.
+     *
+     * @param millis The time step in milliseconds
+     * @throws IllegalArgumentException The step was not positive
+     */
+    public void setTimeStep(int millis) {
+        if(millis <= 0)
+            throw new IllegalArgumentException("Time step must be positive");
+
+        clock.setTickIncrement(millis);
+    }
+
+    /**
+     * Get the amount of simulated time each frame covers.
+     *
+     * @return The time step in milliseconds
+     */
+    public int getTimeStep() {
+        return clock.getTickIncrement();
+    }
+
+    /**
+     * Watch a field and write its value each frame that it changes. Must be
+     * called before the world is loaded.
+     *
+     * @param defName The DEF name of the node
+     * @param fieldName The name of the field to watch
+     */
+    public void addFieldCapture(String defName, String fieldName) {
+        captureWriter.addCapture(defName, fieldName);
+    }
+
+    /**
+     * Set the stream that captured fields are written to. The stream is
+     * not flushed or closed by the runner.
+     *
+     * @param out The stream to use, or null to stop writing
+     */
+    public void setCaptureOutput(Writer out) {
+        captureWriter.setOutput(out);
+    }
+
+    /**
+     * Load a world, replacing the current one, and run the frame that
+     * initialises it. The simulation time and counters are reset.
+     *
+     * @param url The URL of the world to load
+     * @throws IOException The file could not be read
+     * @throws VRMLException The file could not be parsed
+     */
+    public void loadWorld(String url) throws IOException, VRMLException {
+        WorldLoader ldr = worldLoader.fetchLoader();
+        VRMLScene scene;
+
+        try {
+            scene = ldr.loadNow(core, new InputSource(url));
+        } finally {
+            worldLoader.releaseLoader(ldr);
+        }
+
+        captureWriter.attach(scene.getDEFNodes());
+        core.setScene(scene, null);
+
+        frameCount = 0;
+        wallTime = 0;
+
+        // The first evaluation swaps in the new scene and resets the clock
+        eventModel.evaluate(clock.getWallTime());
+    }
+
+    /**
+     * Wait until the loader pool has nothing queued or in progress, such as
+     * the scripts, inlines and externprotos of the world just loaded. The
+     * pool has to be seen idle twice in a row, as a request is briefly in
+     * neither the queue nor the progress map while a loader takes it on.
+     * No frames are run while waiting.
+     *
+     * @param timeout The longest time to wait in milliseconds
+     * @return true if the loads finished, false if the time ran out
+     * @throws InterruptedException The wait was interrupted
+     */
+    public boolean waitForLoads(long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        int idle = 0;
+
+        while(idle < 2) {
+            if(System.currentTimeMillis() >= end)
+                return false;
+
+            Thread.sleep(LOAD_POLL_INTERVAL);
+
+            if(loaderPool.getWaitingList().size() == 0 &&
+               loaderPool.getProgressMap().isEmpty())
+                idle++;
+            else
+                idle = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Advance the clock by one time step and evaluate one frame.
+     */
+    public void step() {
+        long start = System.nanoTime();
+
+        clock.tick();
+        eventModel.evaluate(clock.getWallTime());
+        frameCount++;
+
+        wallTime += System.nanoTime() - start;
+
+        if(captureWriter.hasCaptures())
+            captureWriter.writeChanges(getSimulatedSeconds());
+    }
+
+    /**
+     * Run frames until the given amount of simulated time has passed.
+     *
+     * @param seconds The simulated time to run for
+     */
+    public void run(double seconds) {
+        long frames = (long)Math.ceil(seconds * 1000 / clock.getTickIncrement());
+
+        for(long i = 0; i < frames; i++)
+            step();
+    }
+
+    /**
+     * Get the number of frames run since the world was loaded.
+     *
+     * @return The frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the simulated time since the world was loaded.
+     *
+     * @return The time in seconds
+     */
+    public double getSimulatedSeconds() {
+        return frameCount * clock.getTickIncrement() / 1000.0;
+    }
+
+    /**
+     * Get the wall clock time spent stepping frames since the world was
+     * loaded. Time spent writing captured fields is not included.
+     *
+     * @return The time in seconds
+     */
+    public double getWallSeconds() {
+        return wallTime * 1e-9;
+    }
+
+    /**
+     * Get the number of simulated seconds computed per wall clock second.
+     *
+     * @return The rate, or 0 if nothing has run yet
+     */
+    public double getSimulationRate() {
+        return wallTime == 0 ? 0 : getSimulatedSeconds() / getWallSeconds();
+    }
+
+    /**
+     * Clear the current world and release the event model.
+     */
+    public void shutdown() {
+        captureWriter.detach();
+        eventModel.shutdown();
+        core.dispose();
+    }
+
+    /**
+     * Get the core that holds the scene of this runner. External interfaces
+     * such as a network browser server can be attached to it.
+     *
+     * @return The core instance
+     */
+    public NRUniverse getCore() {
+        return core;
+    }
+
+    /**
+     * Get the event model evaluator that this runner steps. The route manager
+     * and its statistics can be reached through it.
+     *
+     * @return The event model instance
+     */
+    public EventModelEvaluator getEventModel() {
+        return eventModel;
+    }
+
+    /**
+     * Get the virtual clock that drives this runner. It ticks once for each
+     * call to {@link #step()}.
+     *
+     * @return The clock instance
+     */
+    public VRMLClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Get the manager of the world loaders used by this runner.
+     *
+     * @return The world loader manager
+     */
+    WorldLoaderManager getWorldLoaderManager() {
+        return worldLoader;
+    }
+
+    /**
+     * Create the router factory named by the router factory property. If the
+     * class cannot be loaded, a warning is issued and the default is used.
+     *
+     * @return The factory instance
+     */
+    private RouterFactory loadRouterFactory() {
+        String classname = AccessController.doPrivileged((PrivilegedAction<String>) () ->
+            System.getProperty(ROUTER_FACTORY_PROP, DEFAULT_ROUTER_FACTORY));
+
+        if(DEFAULT_ROUTER_FACTORY.equals(classname))
+            return new ListsRouterFactory();
+
+        RouterFactory ret_val = AccessController.doPrivileged((PrivilegedAction<RouterFactory>) () -> {
+            try {
+                Class<?> cls = Class.forName(classname);
+                return (RouterFactory)cls.getDeclaredConstructor().newInstance();
+            } catch(ReflectiveOperationException | ClassCastException | LinkageError e) {
+                errorReporter.warningReport(NO_ROUTER_LOAD_MSG + classname, null);
+                return null;
+            }
+        });
+
+        return ret_val != null ? ret_val : new ListsRouterFactory();
+    }
+
+    /**
+     * Set up the content and protocol handlers used by the URI system.
+     */
+    private void setupProperties() {
+        AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
+            if(System.getProperty("uri.content.handler.pkgs") == null)
+                System.setProperty("uri.content.handler.pkgs",
+                                   "vlc.net.content");
+
+            if(System.getProperty("uri.protocol.handler.pkgs") == null)
+                System.setProperty("uri.protocol.handler.pkgs",
+                                   "vlc.net.protocol");
+
+            ContentHandlerFactory c_fac = URI.getContentHandlerFactory();
+
+            if(!(c_fac instanceof VRMLContentHandlerFactory)) {
+                c_fac = new VRMLContentHandlerFactory(core, worldLoader);
+                URI.setContentHandlerFactory(c_fac);
+            }
+
+            FileNameMap fn_map = URI.getFileNameMap();
+
+            if(!(fn_map instanceof VRMLFileNameMap)) {
+                fn_map = new VRMLFileNameMap(fn_map);
+                URI.setFileNameMap(fn_map);
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Run a world from the command line and print the simulation rate.
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        int step = DEFAULT_TIME_STEP;
+        double duration = 10;
+        String out_file = null;
+        String url = null;
+
+        NRHeadlessRunner runner = new NRHeadlessRunner();
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch(args[i]) {
+                    case "-step":
+                        step = Integer.parseInt(args[++i]);
+                        break;
+
+                    case "-duration":
+                        duration = Double.parseDouble(args[++i]);
+                        break;
+
+                    case "-out":
+                        out_file = args[++i];
+                        break;
+
+                    case "-capture":
+                        String cap = args[++i];
+                        int dot = cap.lastIndexOf('.');
+                        if(dot < 1 || dot == cap.length() - 1) {
+                            System.err.println(BAD_CAPTURE_MSG + cap);
+                            System.exit(1);
+                        }
+
+                        runner.addFieldCapture(cap.substring(0, dot),
+                                               cap.substring(dot + 1));
+                        break;
+
+                    default:
+                        url = args[i];
+                }
+            }
+        } catch(ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            url = null;
+        }
+
+        if(url == null) {
+            System.err.println(USAGE_MSG);
+            System.exit(1);
+        }
+
+        File f = new File(url);
+        if(f.exists())
+            url = f.toURI().toString();
+
+        Writer out = null;
+
+        try {
+            if(out_file != null)
+                out = new BufferedWriter(new FileWriter(out_file));
+            else
+                out = new BufferedWriter(new OutputStreamWriter(System.out));
+
+            runner.setTimeStep(step);
+            runner.setCaptureOutput(out);
+            runner.loadWorld(url);
+
+            if(!runner.waitForLoads(LOAD_TIMEOUT))
+                System.err.println(LOAD_TIMEOUT_MSG);
+
+            runner.run(duration);
+            runner.shutdown();
+
+            out.flush();
+
+            System.err.println("Frames: " + runner.getFrameCount());
+            System.err.println("Simulated seconds: " +
+                               runner.getSimulatedSeconds());
+            System.err.println("Wall seconds: " + runner.getWallSeconds());
+            System.err.println("Simulated seconds per wall second: " +
+                               runner.getSimulationRate());
+        } catch(IOException | VRMLException e) {
+            System.err.println("Unable to run " + url + ": " + e.getMessage());
+            System.exit(1);
+        } catch(InterruptedException ie) {
+            System.err.println("Interrupted loading " + url);
+            System.exit(1);
+        } finally {
+            if(out_file != null && out != null) {
+                try {
+                    out.close();
+                } catch(IOException ioe) {
+                    // ignored
+                }
+            }
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,667 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.norender.browser;
+
+// External imports
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.vecmath.AxisAngle4f;
+import javax.vecmath.Vector3f;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+import org.j3d.util.IntHashMap;
+
+import org.web3d.browser.NavigationStateListener;
+import org.web3d.browser.SensorStatusListener;
+import org.web3d.browser.ViewpointStatusListener;
+import org.web3d.browser.Xj3DConstants;
+import org.web3d.vrml.lang.TypeConstants;
+import org.web3d.vrml.lang.VRMLNodeFactory;
+import org.web3d.vrml.nodes.*;
+import org.web3d.vrml.renderer.DefaultNodeFactory;
+
+import org.xj3d.core.eventmodel.BindableNodeListener;
+import org.xj3d.core.eventmodel.BindableNodeManager;
+import org.xj3d.core.eventmodel.LayerManager;
+import org.xj3d.core.eventmodel.SensorManager;
+
+/**
+ * Layer manager for the null renderer.
+ * <p>
+ *
+ * There is no scene graph to render and no user to navigate, so this layer
+ * only keeps the binding stacks for viewpoints, navigation info, backgrounds
+ * and fog so that the event model sees the normal bind and unbind events.
+ * The following restrictions apply:
+ * <ul>
+ * <li>No user navigation is supported.</li>
+ * <li>The user position is always the origin.</li>
+ * <li>No layer sensor manager is registered, so pointing device sensors
+ *     never fire.</li>
+ * </ul>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class NRLayerManager implements LayerManager, BindableNodeListener {
+
+    /** The name of the navigation component */
+    private static final String NAV_COMPONENT = "Navigation";
+
+    /** The name of the environmental effects component */
+    private static final String ENV_COMPONENT = "EnvironmentalEffects";
+
+    /** Error message when the viewpointAdded() call generates an error */
+    private static final String VP_ADD_ERR =
+        "Error sending viewpoint addition notification.";
+
+    /** Error message when the viewpointRemoved() call generates an error */
+    private static final String VP_REMOVE_ERR =
+        "Error sending viewpoint removed notification.";
+
+    /** Error message when the viewpointBound() call generates an error */
+    private static final String VP_BOUND_ERR =
+        "Error sending viewpoint binding notification.";
+
+    /** Error message when the viewpointLayerActive() call generates an error */
+    private static final String VP_ACTIVATE_ERR =
+        "Error sending viewpoint layer activation notification.";
+
+    /** Error message when the viewpointLayerAdded() call generates an error */
+    private static final String VP_LAYER_ADD_ERR =
+        "Error sending viewpoint layer addtion notification.";
+
+    /** Error message when the viewpointLayerRemoved() call generates an error */
+    private static final String VP_LAYER_REMOVE_ERR =
+        "Error sending viewpoint layer removal notification.";
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /** The ID of this layer */
+    private int layerId;
+
+    /** Default viewpoint that exists in every scene */
+    private VRMLViewpointNodeType defaultViewpoint;
+
+    /** Default navigationInfo that exists in every scene */
+    private VRMLNavigationInfoNodeType defaultNavInfo;
+
+    /** Default background that exists in every scene */
+    private VRMLBackgroundNodeType defaultBackground;
+
+    /** Default fog that exists in every scene */
+    private VRMLFogNodeType defaultFog;
+
+    /** The node stack for viewpoints */
+    private BindableNodeManager viewpointStack;
+
+    /** The node stack for navigation information */
+    private BindableNodeManager navInfoStack;
+
+    /** The node stack for backgrounds */
+    private BindableNodeManager backgroundStack;
+
+    /** The node stack for fog */
+    private BindableNodeManager fogStack;
+
+    /** Map of node primary type to the bindable manager for that type */
+    private IntHashMap<BindableNodeManager> bindablesMap;
+
+    /** Clock for setting bindTime information */
+    private VRMLClock clock;
+
+    /** Manager of the global sensor nodes */
+    private SensorManager sensorManager;
+
+    /** Is this layer currently active for navigation purposes? */
+    private boolean navigationEnabled;
+
+    /** The rendering style requested */
+    private int renderingStyle;
+
+    /** The type of viewport this layer has */
+    private int viewportType;
+
+    /** The viewport of this layer, if it has one */
+    private VRMLViewportNodeType viewport;
+
+    /** Listeners for the viewpoint status updates from this layer */
+    private List<ViewpointStatusListener> viewpointStatusListeners;
+
+    /**
+     * Construct a new, empty layer manager.
+     */
+    NRLayerManager() {
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+        bindablesMap = new IntHashMap<>();
+        viewpointStatusListeners = new ArrayList<>();
+
+        renderingStyle = Xj3DConstants.RENDER_SHADED;
+        viewportType = VIEWPORT_FULLWINDOW;
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by LayerManager
+    //----------------------------------------------------------
+
+    /**
+     * Register an error reporter with the engine so that any errors generated
+     * by the loading of script code can be reported in a nice, pretty fashion.
+     * Setting a value of null will clear the currently set reporter. If one
+     * is already set, the new value replaces the old.
+     *
+     * @param reporter The instance to use or null
+     */
+    @Override
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Complete the initialization of the layer manager now. This should be
+     * called after setting the clock and the current error reporter instance.
+     *
+     * @param smgr The sensor manager to start with from the global list
+     */
+    @Override
+    public void initialise(SensorManager smgr) {
+        sensorManager = smgr;
+
+        clock = sensorManager.getVRMLClock();
+
+        viewpointStack = getBindableManager(TypeConstants.ViewpointNodeType);
+        viewpointStack.setNodeChangeListener(this);
+        navInfoStack = getBindableManager(TypeConstants.NavigationInfoNodeType);
+        backgroundStack = getBindableManager(TypeConstants.BackgroundNodeType);
+        fogStack = getBindableManager(TypeConstants.FogNodeType);
+
+        VRMLNodeFactory fac =
+            DefaultNodeFactory.createFactory(DefaultNodeFactory.NULL_RENDERER);
+
+        fac.setSpecVersion(3, 2);
+
+        defaultViewpoint =
+            (VRMLViewpointNodeType)fac.createVRMLNode(NAV_COMPONENT,
+                                                      "Viewpoint",
+                                                      false);
+        defaultViewpoint.setDescription("Default viewpoint");
+        defaultViewpoint.setupFinished();
+
+        defaultNavInfo =
+            (VRMLNavigationInfoNodeType)fac.createVRMLNode(NAV_COMPONENT,
+                                                           "NavigationInfo",
+                                                           false);
+        defaultNavInfo.setupFinished();
+
+        defaultBackground =
+            (VRMLBackgroundNodeType)fac.createVRMLNode(ENV_COMPONENT,
+                                                       "Background",
+                                                       false);
+        defaultBackground.setupFinished();
+
+        defaultFog =
+            (VRMLFogNodeType)fac.createVRMLNode(ENV_COMPONENT, "Fog", false);
+        defaultFog.setFogType(VRMLFogNodeType.FOG_TYPE_DISABLE);
+        defaultFog.setupFinished();
+    }
+
+    /**
+     * Set or reset the layer ID to the new ID value.
+     *
+     * @param id A non-negative ID for the layer
+     */
+    @Override
+    public void setLayerId(int id) {
+        layerId = id;
+    }
+
+    /**
+     * Set the specification version that should be handled by this manager.
+     * The null renderer does not care about the differences in default
+     * bindables, so this is ignored.
+     *
+     * @param major The spec major version number
+     * @param minor The spec minor version number
+     */
+    @Override
+    public void setSpecVersion(int major, int minor) {
+    }
+
+    /**
+     * Change the rendering style that the browser should currently be using.
+     * Nothing is rendered, so the value is only stored.
+     *
+     * @param style One of the RENDER_* constants from LayerRenderingManager
+     */
+    @Override
+    public void setRenderingStyle(int style) {
+        renderingStyle = style;
+    }
+
+    /**
+     * Get the currently set rendering style. The default style is
+     * RENDER_SHADED.
+     *
+     * @return one of the RENDER_ constants from LayerRenderingManager
+     */
+    @Override
+    public int getRenderingStyle() {
+        return renderingStyle;
+    }
+
+    /**
+     * Perform the initial bind for a new scene. This is typically called some
+     * time just after the clear() method with a new scene.
+     */
+    @Override
+    public void initialBind() {
+        double time = clock.getTime();
+
+        viewpointStack.addNode(defaultViewpoint, true);
+        navInfoStack.addNode(defaultNavInfo, true);
+        backgroundStack.addNode(defaultBackground, true);
+        fogStack.addNode((VRMLBindableNodeType)defaultFog, true);
+
+        viewpointStack.getFirstNode().setBind(true, true, time);
+        navInfoStack.getFirstNode().setBind(true, true, time);
+        backgroundStack.getFirstNode().setBind(true, true, time);
+        fogStack.getFirstNode().setBind(true, true, time);
+    }
+
+    /**
+     * Get the bindable node manager for the given node type. If the node type
+     * does not have a bindable manager for it, one will be created.
+     *
+     * @param type The type constant of the node type for the manager
+     * @return The bindable manager for it
+     * @see org.web3d.vrml.lang.TypeConstants
+     */
+    @Override
+    public BindableNodeManager getBindableManager(int type) {
+        BindableNodeManager ret_val = bindablesMap.get(type);
+
+        if(ret_val == null) {
+            ret_val = new BindableNodeManager();
+            ret_val.setErrorReporter(errorReporter);
+            ret_val.setVRMLClock(sensorManager.getVRMLClock());
+            bindablesMap.put(type, ret_val);
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Enable or disable this layer to be currently navigable layer.
+     *
+     * @param state True to enable this layer as navigable
+     */
+    @Override
+    public void setActiveNavigationLayer(boolean state) {
+        navigationEnabled = state;
+
+        if(state) {
+            int size = viewpointStatusListeners.size();
+
+            for(int i = 0; i < size; i++) {
+                try {
+                    ViewpointStatusListener l =
+                        viewpointStatusListeners.get(i);
+
+                    l.viewpointLayerActive(layerId);
+                } catch(Exception e) {
+                    errorReporter.warningReport(VP_ACTIVATE_ERR, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check to see if this is the active navigation layer.
+     *
+     * @return true if this is the currently active layer for navigation
+     */
+    @Override
+    public boolean isActiveNavigationLayer() {
+        return navigationEnabled;
+    }
+
+    /**
+     * Set the desired navigation mode. There is no user, so no mode is valid.
+     *
+     * @param mode The requested mode.
+     * @return false always
+     */
+    @Override
+    public boolean setNavigationMode(String mode) {
+        return false;
+    }
+
+    /**
+     * Get the user's location and orientation. There is no user, so this is
+     * always the origin with no rotation.
+     *
+     * @param pos The current user position
+     * @param ori The current user orientation
+     */
+    @Override
+    public void getUserPosition(Vector3f pos, AxisAngle4f ori) {
+        pos.set(0, 0, 0);
+        ori.set(0, 0, 1, 0);
+    }
+
+    /**
+     * Move the user's location to see the entire world in this layer.
+     * Ignored as there is no user.
+     *
+     * @param animated Should the transistion be animated.
+     */
+    @Override
+    public void fitToWorld(boolean animated) {
+    }
+
+    /**
+     * Set the contents that this layer manages to be the ungrouped nodes
+     * of the scene.
+     *
+     * @param root The root of the world to handle
+     */
+    @Override
+    public void setManagedNodes(VRMLWorldRootNodeType root) {
+        viewportType = VIEWPORT_FULLWINDOW;
+        viewport = null;
+
+        fireLayerAdded();
+    }
+
+    /**
+     * Set the contents that this layer manages the specific layer instance
+     * provided.
+     *
+     * @param layer The root of the layer to handle
+     */
+    @Override
+    public void setManagedLayer(VRMLLayerNodeType layer) {
+        viewportType = layer.getViewportType();
+
+        VRMLNodeType node = layer.getViewport();
+
+        while(node instanceof VRMLProtoInstance)
+            node = ((VRMLProtoInstance)node).getImplementationNode();
+
+        if(node instanceof VRMLViewportNodeType) {
+            viewport = (VRMLViewportNodeType)node;
+        } else {
+            viewport = null;
+
+            if(node != null)
+                viewportType = VIEWPORT_FULLWINDOW;
+        }
+
+        fireLayerAdded();
+    }
+
+    /**
+     * Override the file field of view values. Ignored.
+     *
+     * @param fov The fov in degrees.
+     */
+    @Override
+    public void setHardwareFOV(float fov) {
+    }
+
+    /**
+     * Set whether stereo is enabled for all layers. Ignored.
+     *
+     * @param enabled true to enable stereo
+     */
+    @Override
+    public void setStereoEnabled(boolean enabled) {
+    }
+
+    /**
+     * Shutdown the node manager now. Nothing is held outside this class.
+     */
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * Update the viewing matrix. There is no view, so nothing happens.
+     */
+    @Override
+    public void updateViewMatrix() {
+    }
+
+    /**
+     * Force clearing all currently managed nodes from this manager now. This
+     * is used to indicate that a new world is about to be loaded and
+     * everything should be cleaned out now.
+     */
+    @Override
+    public void clear() {
+        viewport = null;
+        int size = viewpointStatusListeners.size();
+
+        if(navigationEnabled) {
+            for(int i = 0; i < size; i++) {
+                try {
+                    ViewpointStatusListener l =
+                        viewpointStatusListeners.get(i);
+
+                    l.viewpointLayerActive(layerId == 0 ? -1 : 0);
+                } catch(Exception e) {
+                    errorReporter.warningReport(VP_ACTIVATE_ERR, e);
+                }
+            }
+        }
+
+        for(int i = 0; i < size; i++) {
+            try {
+                ViewpointStatusListener l =
+                    viewpointStatusListeners.get(i);
+
+                l.viewpointLayerRemoved(layerId);
+            } catch(Exception e) {
+                errorReporter.warningReport(VP_LAYER_REMOVE_ERR, e);
+            }
+        }
+    }
+
+    /**
+     * Check to see if this is an unmanaged size layer.
+     *
+     * @return One of the VIEWPORT_* constants
+     */
+    @Override
+    public int getViewportType() {
+        return viewportType;
+    }
+
+    /**
+     * Get the Viewport node that this layer uses. If the layer does not have
+     * a viewport set, then it returns null.
+     *
+     * @return The current viewport node instance used by the layer
+     */
+    @Override
+    public VRMLViewportNodeType getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Add a listener for navigation state changes. There is no navigation,
+     * so this is ignored.
+     *
+     * @param l The listener to add
+     */
+    @Override
+    public void addNavigationStateListener(NavigationStateListener l) {
+    }
+
+    /**
+     * Remove a navigation state listener. Ignored.
+     *
+     * @param l The listener to remove
+     */
+    @Override
+    public void removeNavigationStateListener(NavigationStateListener l) {
+    }
+
+    /**
+     * Add a listener for sensor state changes. There is no pointing device,
+     * so this is ignored.
+     *
+     * @param l The listener to add
+     */
+    @Override
+    public void addSensorStatusListener(SensorStatusListener l) {
+    }
+
+    /**
+     * Remove a sensor state listener. Ignored.
+     *
+     * @param l The listener to remove
+     */
+    @Override
+    public void removeSensorStatusListener(SensorStatusListener l) {
+    }
+
+    /**
+     * Add a listener for viewpoint status changes.  A listener can only be
+     * added once. Duplicate requests are ignored.
+     *
+     * @param l The listener to add
+     */
+    @Override
+    public void addViewpointStatusListener(ViewpointStatusListener l) {
+        if((l != null) && !viewpointStatusListeners.contains(l)) {
+            viewpointStatusListeners.add(l);
+
+            l.viewpointLayerAdded(layerId);
+
+            if(navigationEnabled)
+                l.viewpointLayerActive(layerId);
+        }
+    }
+
+    /**
+     * Remove a viewpoint state listener. If the reference is null or not known,
+     * the request is silently ignored.
+     *
+     * @param l The listener to remove
+     */
+    @Override
+    public void removeViewpointStatusListener(ViewpointStatusListener l) {
+        viewpointStatusListeners.remove(l);
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by BindableNodeListener
+    //----------------------------------------------------------
+
+    /**
+     * Notification that a binding stack has requested that this node be now
+     * bound as the active node.
+     *
+     * @param node The source node that is to be bound
+     */
+    @Override
+    public void newNodeBound(VRMLBindableNodeType node) {
+        int size = viewpointStatusListeners.size();
+
+        for(int i = 0; i < size; i++) {
+            try {
+                ViewpointStatusListener l =
+                    viewpointStatusListeners.get(i);
+
+                l.viewpointBound((VRMLViewpointNodeType)node, layerId);
+            } catch(Exception e) {
+                errorReporter.warningReport(VP_BOUND_ERR, e);
+            }
+        }
+    }
+
+    /**
+     * Notification that a new bindable has been added.
+     *
+     * @param node The new node
+     * @param isDefault True if this is a default node instance
+     */
+    @Override
+    public void bindableAdded(VRMLBindableNodeType node, boolean isDefault) {
+        int size = viewpointStatusListeners.size();
+
+        for(int i = 0; i < size; i++) {
+            try {
+                ViewpointStatusListener l =
+                    viewpointStatusListeners.get(i);
+
+                l.viewpointAdded((VRMLViewpointNodeType)node,
+                                 layerId,
+                                 isDefault);
+            } catch(Exception e) {
+                errorReporter.warningReport(VP_ADD_ERR, e);
+            }
+        }
+    }
+
+    /**
+     * Notification that a bindable has been removed.
+     *
+     * @param node The node
+     */
+    @Override
+    public void bindableRemoved(VRMLBindableNodeType node) {
+        int size = viewpointStatusListeners.size();
+
+        for(int i = 0; i < size; i++) {
+            try {
+                ViewpointStatusListener l =
+                    viewpointStatusListeners.get(i);
+
+                l.viewpointRemoved((VRMLViewpointNodeType)node, layerId);
+            } catch(Exception e) {
+                errorReporter.warningReport(VP_REMOVE_ERR, e);
+            }
+        }
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Tell the viewpoint status listeners this layer has been added.
+     */
+    private void fireLayerAdded() {
+        int size = viewpointStatusListeners.size();
+
+        for(int i = 0; i < size; i++) {
+            try {
+                ViewpointStatusListener l =
+                    viewpointStatusListeners.get(i);
+
+                l.viewpointLayerAdded(layerId);
+            } catch(Exception e) {
+                errorReporter.warningReport(VP_LAYER_ADD_ERR, e);
+            }
+        }
+    }
+}
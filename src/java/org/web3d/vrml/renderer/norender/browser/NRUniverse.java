@@ -112,8 +112,22 @@ public class NRUniverse
      *
      * @param eme The event model evaluation processor
      */
-    @SuppressWarnings("unchecked") // cast from an empty Collections Map
     public NRUniverse(EventModelEvaluator eme) {
+        this(eme, true);
+    }
+
+    /**
+     * Construct a default, empty universe that contains no scenegraph and
+     * optionally has no internal frame thread. Without the thread, nothing
+     * happens until the caller calls <code>evaluate()</code> on the event
+     * model itself, which allows the scene to be stepped with a virtual
+     * clock as fast as the machine allows.
+     *
+     * @param eme The event model evaluation processor
+     * @param runFrames true to have the universe drive frames in real time
+     */
+    @SuppressWarnings("unchecked") // cast from an empty Collections Map
+    public NRUniverse(EventModelEvaluator eme, boolean runFrames) {
         eventModel = eme;
         eventModel.setInitListener(NRUniverse.this);
 
@@ -121,9 +135,11 @@ public class NRUniverse
         coreListeners = new ArrayList<>();
         viewpointStatusListeners = new ArrayList<>(1);
 
-        frameManager = new PerFrameManager(eventModel);
-        frameManager.setEnable(false);
-        frameManager.start();
+        if(runFrames) {
+            frameManager = new PerFrameManager(eventModel);
+            frameManager.setEnable(false);
+            frameManager.start();
+        }
 
         frameCycleTime = 0;
         userCycleTime = 0;
@@ -163,7 +179,8 @@ public class NRUniverse
         if (currentScene == null)
             return;
 
-        frameManager.setEnable(false);
+        if(frameManager != null)
+            frameManager.setEnable(false);
 
         if(currentScene != null) {
             fireShutdownEvent();
@@ -179,7 +196,9 @@ public class NRUniverse
         // the clock starts, as per EAI spec.
         VRMLClock clk = eventModel.getVRMLClock();
         clk.resetTimeZero();
-        frameManager.setEnable(true);
+
+        if(frameManager != null)
+            frameManager.setEnable(true);
     }
 
     //----------------------------------------------------------
@@ -529,7 +548,8 @@ public class NRUniverse
         nextScene = scene;
         eventModel.setScene(scene, viewpoint);
 
-        frameManager.setEnable(true);
+        if(frameManager != null)
+            frameManager.setEnable(true);
     }
 
     /**
@@ -697,7 +717,8 @@ public class NRUniverse
      */
     private void clearCurrentWorld() {
 
-        frameManager.setEnable(false);
+        if(frameManager != null)
+            frameManager.setEnable(false);
 
         currentSpace = null;
 
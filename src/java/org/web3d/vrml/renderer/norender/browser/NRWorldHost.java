@@ -0,0 +1,365 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.norender.browser;
+
+// External imports
+import java.io.IOException;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.ietf.uri.ContentHandlerFactory;
+import org.ietf.uri.URI;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.net.content.VRMLContentHandlerFactory;
+import org.web3d.vrml.lang.VRMLException;
+
+import org.xj3d.core.loading.LoaderThreadPool;
+
+/**
+ * Hosts many independent worlds in one JVM and steps them on a shared
+ * work-stealing thread pool.
+ * <p>
+ *
+ * Each world is a {@link NRHeadlessRunner} with its own event model, virtual
+ * clock, time step and metrics. Each world also gets its own
+ * {@link LoaderThreadPool}, so loading or clearing one world never touches
+ * the loads of another, and inlines are built for the world that asked for
+ * them.
+ * <p>
+ *
+ * A world is only ever stepped by one thread at a time, but which thread
+ * that is may change from frame to frame. The host itself is not thread
+ * safe. All calls should be made from one controlling thread.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class NRWorldHost {
+
+    /** The default number of content loader threads for each world */
+    public static final int DEFAULT_LOADER_THREADS = 1;
+
+    /** Message when a world throws an exception while stepping */
+    private static final String STEP_ERR_MSG =
+        "Error stepping hosted world ";
+
+    /**
+     * Steps a range of the worlds, splitting the range until each task holds
+     * a single world.
+     */
+    private class StepAction extends RecursiveAction {
+
+        /** The worlds to step */
+        private final NRHeadlessRunner[] worlds;
+
+        /** The first world of the range */
+        private final int start;
+
+        /** One past the last world of the range */
+        private final int end;
+
+        /** Simulated seconds to run each world for, or 0 for one frame */
+        private final double seconds;
+
+        StepAction(NRHeadlessRunner[] worlds,
+                   int start,
+                   int end,
+                   double seconds) {
+            this.worlds = worlds;
+            this.start = start;
+            this.end = end;
+            this.seconds = seconds;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start == 1) {
+                try {
+                    if(seconds == 0)
+                        worlds[start].step();
+                    else
+                        worlds[start].run(seconds);
+                } catch(Exception e) {
+                    errorReporter.errorReport(STEP_ERR_MSG + start, e);
+                }
+            } else {
+                int mid = (start + end) >>> 1;
+                invokeAll(new StepAction(worlds, start, mid, seconds),
+                          new StepAction(worlds, mid, end, seconds));
+            }
+        }
+    }
+
+    /** The pool the worlds are stepped on */
+    private final ForkJoinPool pool;
+
+    /** The hosted worlds, in the order they were added */
+    private List<NRHeadlessRunner> worlds;
+
+    /** The loader pool of each world, in the same order */
+    private List<LoaderThreadPool> loaderPools;
+
+    /** The content handler factory of each world, in the same order */
+    private List<VRMLContentHandlerFactory> worldFactories;
+
+    /** Picks the content handler factory of the right world */
+    private WorldContentHandlerFactory contentFactory;
+
+    /** The number of loader threads to give each new world */
+    private int loaderThreads;
+
+    /** Counter used to name the loader thread groups */
+    private int worldCounter;
+
+    /** Wall clock time spent stepping all the worlds, in nanoseconds */
+    private long wallTime;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Create a host that steps its worlds on the common fork/join pool.
+     */
+    public NRWorldHost() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a host that steps its worlds on the given pool.
+     *
+     * @param pool The pool to step the worlds on
+     */
+    public NRWorldHost(ForkJoinPool pool) {
+        this.pool = pool;
+
+        worlds = new ArrayList<>();
+        loaderPools = new ArrayList<>();
+        worldFactories = new ArrayList<>();
+        loaderThreads = DEFAULT_LOADER_THREADS;
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        contentFactory =
+            AccessController.doPrivileged(
+                (PrivilegedAction<WorldContentHandlerFactory>) () -> {
+                    ContentHandlerFactory c_fac =
+                        URI.getContentHandlerFactory();
+
+                    if(c_fac instanceof WorldContentHandlerFactory)
+                        return (WorldContentHandlerFactory)c_fac;
+
+                    WorldContentHandlerFactory w_fac =
+                        new WorldContentHandlerFactory(c_fac);
+                    URI.setContentHandlerFactory(w_fac);
+
+                    return w_fac;
+                });
+    }
+
+    /**
+     * Register an error reporter for problems stepping the worlds. It is
+     * also set on every world added after this call.
+     *
+     * @param reporter The instance to use or null
+     */
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Set the number of content loader threads each new world gets.
+     *
+     * @param count The number of threads
+     * @throws IllegalArgumentException The count was not positive
+     */
+    public void setLoaderThreads(int count) {
+        if(count <= 0)
+            throw new IllegalArgumentException("Thread count must be positive");
+
+        loaderThreads = count;
+    }
+
+    /**
+     * Load a new world and add it to the host. The world is loaded on the
+     * calling thread.
+     *
+     * @param url The URL of the world to load
+     * @param timeStep The simulated time of each frame in milliseconds
+     * @return The runner for the world, for captures and metrics
+     * @throws IOException The file could not be read
+     * @throws VRMLException The file could not be parsed
+     */
+    public NRHeadlessRunner addWorld(String url, int timeStep)
+        throws IOException, VRMLException {
+
+        ThreadGroup group =
+            new ThreadGroup("Xj3D World " + worldCounter++ + " Loaders");
+        LoaderThreadPool loader_pool =
+            new LoaderThreadPool(group, loaderThreads);
+
+        NRHeadlessRunner world = new NRHeadlessRunner(loader_pool);
+        world.setErrorReporter(errorReporter);
+        world.setTimeStep(timeStep);
+
+        VRMLContentHandlerFactory fac =
+            new VRMLContentHandlerFactory(world.getCore(),
+                                          world.getWorldLoaderManager());
+        contentFactory.addWorld(group, fac);
+        loader_pool.setThreadGroupListener(contentFactory::replaceWorld);
+
+        try {
+            world.loadWorld(url);
+        } catch(IOException | RuntimeException e) {
+            contentFactory.removeWorld(fac);
+            world.shutdown();
+            loader_pool.shutdown();
+            throw e;
+        }
+
+        worlds.add(world);
+        loaderPools.add(loader_pool);
+        worldFactories.add(fac);
+
+        return world;
+    }
+
+    /**
+     * Remove a world from the host and shut it down. If the world is not
+     * hosted here the request is ignored.
+     *
+     * @param world The world to remove
+     */
+    public void removeWorld(NRHeadlessRunner world) {
+        int index = worlds.indexOf(world);
+
+        if(index == -1)
+            return;
+
+        worlds.remove(index);
+        LoaderThreadPool loader_pool = loaderPools.remove(index);
+        VRMLContentHandlerFactory fac = worldFactories.remove(index);
+
+        contentFactory.removeWorld(fac);
+        world.shutdown();
+        loader_pool.shutdown();
+    }
+
+    /**
+     * Get the number of worlds currently hosted.
+     *
+     * @return The number of worlds
+     */
+    public int getNumWorlds() {
+        return worlds.size();
+    }
+
+    /**
+     * Get the runner of a hosted world.
+     *
+     * @param index The index of the world, in the order added
+     * @return The runner of the world
+     */
+    public NRHeadlessRunner getWorld(int index) {
+        return worlds.get(index);
+    }
+
+    /**
+     * Step every world by one frame of its own time step. Does not return
+     * until all of them are done.
+     */
+    public void stepAll() {
+        execute(0);
+    }
+
+    /**
+     * Run every world for the given amount of its own simulated time. The
+     * worlds run independently, so a world that finishes early frees its
+     * thread for the others.
+     *
+     * @param seconds The simulated time to run each world for
+     */
+    public void runAll(double seconds) {
+        if(seconds > 0)
+            execute(seconds);
+    }
+
+    /**
+     * Get the wall clock time spent in {@link #stepAll()} and
+     * {@link #runAll(double)}.
+     *
+     * @return The time in seconds
+     */
+    public double getWallSeconds() {
+        return wallTime * 1e-9;
+    }
+
+    /**
+     * Get the simulated seconds computed by all the hosted worlds together,
+     * per second of wall clock time.
+     *
+     * @return The rate, or 0 if nothing has run yet
+     */
+    public double getAggregateSimulationRate() {
+        if(wallTime == 0)
+            return 0;
+
+        double total = 0;
+
+        for(NRHeadlessRunner world : worlds)
+            total += world.getSimulatedSeconds();
+
+        return total / getWallSeconds();
+    }
+
+    /**
+     * Remove and shut down all the worlds. The fork/join pool is not shut
+     * down as it may be shared.
+     */
+    public void shutdown() {
+        while(!worlds.isEmpty())
+            removeWorld(worlds.get(worlds.size() - 1));
+    }
+
+    /**
+     * Step or run all the worlds on the pool.
+     *
+     * @param seconds The simulated time to run, or 0 for a single frame
+     */
+    private void execute(double seconds) {
+        int size = worlds.size();
+
+        if(size == 0)
+            return;
+
+        NRHeadlessRunner[] list = new NRHeadlessRunner[size];
+        worlds.toArray(list);
+
+        long start = System.nanoTime();
+
+        pool.invoke(new StepAction(list, 0, size, seconds));
+
+        wallTime += System.nanoTime() - start;
+    }
+}
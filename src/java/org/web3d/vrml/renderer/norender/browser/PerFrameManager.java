@@ -13,7 +13,13 @@
 package org.web3d.vrml.renderer.norender.browser;
 
 // External imports
-// none
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 
 // Local imports
 import org.j3d.util.DefaultErrorReporter;
@@ -21,12 +27,22 @@ import org.j3d.util.ErrorReporter;
 
 import org.xj3d.core.eventmodel.EventModelEvaluator;
 
+import org.xj3d.impl.core.eventmodel.DefaultEventModelEvaluator;
+import org.xj3d.impl.core.eventmodel.FrameProfileCSVWriter;
+import org.xj3d.impl.core.eventmodel.FrameProfiler;
+
 /**
  * The thread that looks after the update issues of every frame.
  * <p>
  *
  * Even as this is a thread, it is not automatically started. The user is
  * required to start it separately.
+ * <p>
+ *
+ * For headless performance runs, setting the system property
+ * <code>org.xj3d.norender.profile.file</code> to a file name turns on the
+ * event model frame profiler and writes the per-frame phase timings to that
+ * file as CSV. The file is completed when the manager is shut down.
  *
  * @author Justin Couch
  * @version $Revision: 1.3 $
@@ -39,6 +55,10 @@ public class PerFrameManager extends Thread {
     /** The amount of time (ms) to sleep between frames if nothing happening */
     private static final long INACTIVE_TIME = 500;
 
+    /** Property naming the CSV file to write frame profiles to */
+    public static final String PROFILE_FILE_PROP =
+        "org.xj3d.norender.profile.file";
+
     /** Message when the scene manager is null */
     private static final String NULL_EVENT_MSG =
         "The event model instance provided is null";
@@ -61,6 +81,9 @@ public class PerFrameManager extends Thread {
     /** The last clock tick. We don't bother sending if the diff is zero */
     private long lastWallTime;
 
+    /** Writer of frame profiles, if one has been requested */
+    private FrameProfileCSVWriter profileWriter;
+
     /**
      * Construct a new manager for the given scene. The manager starts with
      * everything disabled.
@@ -82,6 +105,23 @@ public class PerFrameManager extends Thread {
         shutdown = false;
 
         errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        String file = AccessController.doPrivileged(
+            new PrivilegedAction<String>() {
+                @Override
+                public String run() {
+                    return System.getProperty(PROFILE_FILE_PROP);
+                }
+            });
+
+        if(file != null) {
+            try {
+                setProfileOutput(new BufferedWriter(new FileWriter(file)));
+            } catch(IOException ioe) {
+                errorReporter.warningReport("Unable to open profile file " +
+                                            file, ioe);
+            }
+        }
     }
 
     /**
@@ -118,6 +158,9 @@ public class PerFrameManager extends Thread {
             if(shutdown)
                 break;
         }
+
+        if(profileWriter != null)
+            profileWriter.close();
     }
 
     //----------------------------------------------------------
@@ -150,6 +193,33 @@ public class PerFrameManager extends Thread {
         enabled = state;
     }
 
+    /**
+     * Write the event model frame profile to the given stream as CSV. If the
+     * evaluator does not have a profiler yet, one is created. The stream is
+     * closed when the manager shuts down. Only the default evaluator can be
+     * profiled, so for other evaluators the request is ignored.
+     *
+     * @param out The stream to write to
+     */
+    public void setProfileOutput(Writer out) {
+        if(!(eventModel instanceof DefaultEventModelEvaluator))
+            return;
+
+        DefaultEventModelEvaluator eme = (DefaultEventModelEvaluator)eventModel;
+        FrameProfiler prof = eme.getFrameProfiler();
+
+        if(prof == null) {
+            prof = new FrameProfiler();
+            eme.setFrameProfiler(prof);
+        }
+
+        if(profileWriter != null)
+            profileWriter.close();
+
+        profileWriter = new FrameProfileCSVWriter(prof, out);
+        profileWriter.setErrorReporter(errorReporter);
+    }
+
     /**
      * Shut down the frame thread so that the code may exit.
      */
@@ -0,0 +1,119 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.norender.browser;
+
+// External imports
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ietf.uri.ContentHandler;
+import org.ietf.uri.ContentHandlerFactory;
+
+// Local imports
+import org.web3d.net.content.VRMLContentHandlerFactory;
+
+/**
+ * Content handler factory that builds inlines and other world content for
+ * the world that asked for it, when several worlds share one JVM.
+ * <p>
+ *
+ * The URI system only allows a single content handler factory, while a
+ * {@link VRMLContentHandlerFactory} builds content for a single browser
+ * core. Each world is given its own loader threads in their own thread group,
+ * so this factory uses the thread group of the calling thread to pick the
+ * factory of the right world. Threads that do not belong to a world fall
+ * through to the previously installed factory, if any.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class WorldContentHandlerFactory extends VRMLContentHandlerFactory {
+
+    /** The factory of each world, keyed by its loader thread group */
+    private Map<ThreadGroup, VRMLContentHandlerFactory> worldFactories;
+
+    /**
+     * Create a factory with no worlds registered.
+     *
+     * @param fac The factory to delegate to for other threads, or null
+     */
+    WorldContentHandlerFactory(ContentHandlerFactory fac) {
+        super(null, null, fac);
+
+        worldFactories = new ConcurrentHashMap<>();
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by ContentHandlerFactory
+    //----------------------------------------------------------
+
+    /**
+     * Create a content handler for the given mime type, for the world that
+     * owns the calling thread.
+     *
+     * @param contentType The MIME type of the handler needed
+     * @return A valid content handler for the type or null
+     */
+    @Override
+    public ContentHandler createContentHandler(String contentType) {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        VRMLContentHandlerFactory fac = null;
+
+        if(group != null)
+            fac = worldFactories.get(group);
+
+        if(fac != null)
+            return fac.createContentHandler(contentType);
+
+        ContentHandlerFactory next = getWrappedFactory();
+
+        return (next != null) ? next.createContentHandler(contentType) : null;
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Register the factory to use for threads of the given group.
+     *
+     * @param group The thread group of the world's loader threads
+     * @param fac The factory that builds content for that world
+     */
+    void addWorld(ThreadGroup group, VRMLContentHandlerFactory fac) {
+        worldFactories.put(group, fac);
+    }
+
+    /**
+     * Move the factory of a world whose loader threads were restarted in a
+     * new thread group.
+     *
+     * @param oldGroup The thread group the threads were in
+     * @param newGroup The thread group the threads are now in
+     */
+    void replaceWorld(ThreadGroup oldGroup, ThreadGroup newGroup) {
+        VRMLContentHandlerFactory fac = worldFactories.remove(oldGroup);
+
+        if(fac != null)
+            worldFactories.put(newGroup, fac);
+    }
+
+    /**
+     * Remove a world's factory, whatever thread group it is now held for.
+     *
+     * @param fac The factory that builds content for that world
+     */
+    void removeWorld(VRMLContentHandlerFactory fac) {
+        worldFactories.values().remove(fac);
+    }
+}
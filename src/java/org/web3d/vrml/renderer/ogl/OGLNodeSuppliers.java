@@ -0,0 +1,768 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.ogl;
+
+// External imports
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Local imports
+import org.web3d.vrml.lang.VRMLNode;
+
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+import org.web3d.vrml.renderer.NodeSupplier;
+
+import org.web3d.vrml.renderer.ogl.nodes.cadgeometry.OGLCADAssembly;
+import org.web3d.vrml.renderer.ogl.nodes.cadgeometry.OGLCADFace;
+import org.web3d.vrml.renderer.ogl.nodes.cadgeometry.OGLCADLayer;
+import org.web3d.vrml.renderer.ogl.nodes.cadgeometry.OGLCADPart;
+import org.web3d.vrml.renderer.ogl.nodes.cadgeometry.OGLIndexedQuadSet;
+import org.web3d.vrml.renderer.ogl.nodes.cadgeometry.OGLQuadSet;
+
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLMetadataBoolean;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLMetadataDouble;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLMetadataFloat;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLMetadataInteger;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLMetadataSet;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLMetadataString;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLWorldInfo;
+import org.web3d.vrml.renderer.ogl.nodes.core.OGLWorldRoot;
+
+import org.web3d.vrml.renderer.ogl.nodes.dis.OGLDISEntityManager;
+import org.web3d.vrml.renderer.ogl.nodes.dis.OGLDISEntityTypeMapping;
+import org.web3d.vrml.renderer.ogl.nodes.dis.OGLEspduTransform;
+
+import org.web3d.vrml.renderer.ogl.nodes.enveffects.OGLBackground;
+import org.web3d.vrml.renderer.ogl.nodes.enveffects.OGLFog;
+import org.web3d.vrml.renderer.ogl.nodes.enveffects.OGLFogCoordinate;
+import org.web3d.vrml.renderer.ogl.nodes.enveffects.OGLLocalFog;
+import org.web3d.vrml.renderer.ogl.nodes.enveffects.OGLTextureBackground;
+
+import org.web3d.vrml.renderer.ogl.nodes.environment.OGLProximitySensor;
+import org.web3d.vrml.renderer.ogl.nodes.environment.OGLVisibilitySensor;
+
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLBooleanFilter;
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLBooleanSequencer;
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLBooleanToggle;
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLBooleanTrigger;
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLIntegerSequencer;
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLIntegerTrigger;
+import org.web3d.vrml.renderer.ogl.nodes.eventutils.OGLTimeTrigger;
+
+import org.web3d.vrml.renderer.ogl.nodes.extensions.OGLGamepadSensor;
+import org.web3d.vrml.renderer.ogl.nodes.extensions.OGLJoystickSensor;
+import org.web3d.vrml.renderer.ogl.nodes.extensions.OGLWheelSensor;
+
+import org.web3d.vrml.renderer.ogl.nodes.geom2d.OGLArc2D;
+import org.web3d.vrml.renderer.ogl.nodes.geom2d.OGLDisk2D;
+import org.web3d.vrml.renderer.ogl.nodes.geom2d.OGLPolyline2D;
+import org.web3d.vrml.renderer.ogl.nodes.geom2d.OGLPolypoint2D;
+import org.web3d.vrml.renderer.ogl.nodes.geom2d.OGLRectangle2D;
+import org.web3d.vrml.renderer.ogl.nodes.geom2d.OGLTriangleSet2D;
+
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLBox;
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLCone;
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLCylinder;
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLElevationGrid;
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLExtrusion;
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLIndexedFaceSet;
+import org.web3d.vrml.renderer.ogl.nodes.geom3d.OGLSphere;
+
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoCoordinate;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoElevationGrid;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoLOD;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoLocation;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoMetadata;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoOrigin;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoPositionInterpolator;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoTouchSensor;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoTransform;
+import org.web3d.vrml.renderer.ogl.nodes.geospatial.OGLGeoViewpoint;
+
+import org.web3d.vrml.renderer.ogl.nodes.group.OGLGroup;
+import org.web3d.vrml.renderer.ogl.nodes.group.OGLMatrixTransform;
+import org.web3d.vrml.renderer.ogl.nodes.group.OGLStaticGroup;
+import org.web3d.vrml.renderer.ogl.nodes.group.OGLSwitch;
+import org.web3d.vrml.renderer.ogl.nodes.group.OGLTransform;
+
+import org.web3d.vrml.renderer.ogl.nodes.hanim.OGLHAnimDisplacer;
+import org.web3d.vrml.renderer.ogl.nodes.hanim.OGLHAnimHumanoid;
+import org.web3d.vrml.renderer.ogl.nodes.hanim.OGLHAnimJoint;
+import org.web3d.vrml.renderer.ogl.nodes.hanim.OGLHAnimSegment;
+import org.web3d.vrml.renderer.ogl.nodes.hanim.OGLHAnimSite;
+
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLColorInterpolator;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLCoordinateInterpolator;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLCoordinateInterpolator2D;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLNormalInterpolator;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLOrientationInterpolator;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLPositionInterpolator;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLPositionInterpolator2D;
+import org.web3d.vrml.renderer.ogl.nodes.interpolator.OGLScalarInterpolator;
+
+import org.web3d.vrml.renderer.ogl.nodes.layering.OGLCustomViewport;
+import org.web3d.vrml.renderer.ogl.nodes.layering.OGLFixedViewport;
+import org.web3d.vrml.renderer.ogl.nodes.layering.OGLLayer;
+import org.web3d.vrml.renderer.ogl.nodes.layering.OGLLayerSet;
+import org.web3d.vrml.renderer.ogl.nodes.layering.OGLProportionalViewport;
+
+import org.web3d.vrml.renderer.ogl.nodes.lighting.OGLDirectionalLight;
+import org.web3d.vrml.renderer.ogl.nodes.lighting.OGLPointLight;
+import org.web3d.vrml.renderer.ogl.nodes.lighting.OGLSpotLight;
+
+import org.web3d.vrml.renderer.ogl.nodes.marker.OGLScreenMarker;
+
+import org.web3d.vrml.renderer.ogl.nodes.navigation.OGLBillboard;
+import org.web3d.vrml.renderer.ogl.nodes.navigation.OGLCollision;
+import org.web3d.vrml.renderer.ogl.nodes.navigation.OGLLOD;
+import org.web3d.vrml.renderer.ogl.nodes.navigation.OGLNavigationInfo;
+import org.web3d.vrml.renderer.ogl.nodes.navigation.OGLOrthoViewpoint;
+import org.web3d.vrml.renderer.ogl.nodes.navigation.OGLViewpoint;
+
+import org.web3d.vrml.renderer.ogl.nodes.networking.OGLAnchor;
+import org.web3d.vrml.renderer.ogl.nodes.networking.OGLInline;
+import org.web3d.vrml.renderer.ogl.nodes.networking.OGLLoadSensor;
+
+import org.web3d.vrml.renderer.ogl.nodes.nurbs.OGLContour2D;
+import org.web3d.vrml.renderer.ogl.nodes.nurbs.OGLContourPolyline2D;
+import org.web3d.vrml.renderer.ogl.nodes.nurbs.OGLNurbsCurve;
+import org.web3d.vrml.renderer.ogl.nodes.nurbs.OGLNurbsCurve2D;
+import org.web3d.vrml.renderer.ogl.nodes.nurbs.OGLNurbsPatchSurface;
+import org.web3d.vrml.renderer.ogl.nodes.nurbs.OGLNurbsTrimmedSurface;
+
+import org.web3d.vrml.renderer.ogl.nodes.particle.OGLExplosionEmitter;
+import org.web3d.vrml.renderer.ogl.nodes.particle.OGLGravityPhysicsModel;
+import org.web3d.vrml.renderer.ogl.nodes.particle.OGLParticleSystem;
+import org.web3d.vrml.renderer.ogl.nodes.particle.OGLPointEmitter;
+import org.web3d.vrml.renderer.ogl.nodes.particle.OGLPolylineEmitter;
+import org.web3d.vrml.renderer.ogl.nodes.particle.OGLWindPhysicsModel;
+
+import org.web3d.vrml.renderer.ogl.nodes.picking.OGLLinePicker;
+import org.web3d.vrml.renderer.ogl.nodes.picking.OGLPickableGroup;
+import org.web3d.vrml.renderer.ogl.nodes.picking.OGLPointPicker;
+import org.web3d.vrml.renderer.ogl.nodes.picking.OGLPrimitivePicker;
+import org.web3d.vrml.renderer.ogl.nodes.picking.OGLVolumePicker;
+
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLClipPlane;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLColor;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLColorRGBA;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLCoordinate;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLIndexedLineSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLIndexedTriangleFanSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLIndexedTriangleSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLIndexedTriangleStripSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLLineSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLNormal;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLPointSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLTriangleFanSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLTriangleSet;
+import org.web3d.vrml.renderer.ogl.nodes.render.OGLTriangleStripSet;
+
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLBallJoint;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLCollidableOffset;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLCollidableShape;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLCollisionCollection;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLCollisionSensor;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLCollisionSpace;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLContact;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLDoubleAxisHingeJoint;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLMotorJoint;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLRigidBody;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLRigidBodyCollection;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLSingleAxisHingeJoint;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLSliderJoint;
+import org.web3d.vrml.renderer.ogl.nodes.rigidphysics.OGLUniversalJoint;
+
+import org.web3d.vrml.renderer.ogl.nodes.scripting.OGLScript;
+
+import org.web3d.vrml.renderer.ogl.nodes.sensor.OGLCylinderSensor;
+import org.web3d.vrml.renderer.ogl.nodes.sensor.OGLKeySensor;
+import org.web3d.vrml.renderer.ogl.nodes.sensor.OGLPlaneSensor;
+import org.web3d.vrml.renderer.ogl.nodes.sensor.OGLSphereSensor;
+import org.web3d.vrml.renderer.ogl.nodes.sensor.OGLStringSensor;
+import org.web3d.vrml.renderer.ogl.nodes.sensor.OGLTouchSensor;
+
+import org.web3d.vrml.renderer.ogl.nodes.shape.OGLAppearance;
+import org.web3d.vrml.renderer.ogl.nodes.shape.OGLLineProperties;
+import org.web3d.vrml.renderer.ogl.nodes.shape.OGLMaterial;
+import org.web3d.vrml.renderer.ogl.nodes.shape.OGLPointProperties;
+import org.web3d.vrml.renderer.ogl.nodes.shape.OGLShape;
+import org.web3d.vrml.renderer.ogl.nodes.shape.OGLTwoSidedMaterial;
+
+import org.web3d.vrml.renderer.ogl.nodes.sound.OGLAudioClip;
+import org.web3d.vrml.renderer.ogl.nodes.sound.OGLMidiSource;
+import org.web3d.vrml.renderer.ogl.nodes.sound.OGLSound;
+
+import org.web3d.vrml.renderer.ogl.nodes.text.OGLFontStyle;
+import org.web3d.vrml.renderer.ogl.nodes.text.OGLText;
+
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLImageTexture;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLMovieTexture;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLMultiTexture;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLMultiTextureCoordinate;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLMultiTextureTransform;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLPixelTexture;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLRenderedTexture;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureCoordinate;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureCoordinate3D;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureCoordinate4D;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureCoordinateGenerator;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureProperties;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureTransform;
+import org.web3d.vrml.renderer.ogl.nodes.texture.OGLTextureTransform3D;
+
+import org.web3d.vrml.renderer.ogl.nodes.time.OGLTimeController;
+import org.web3d.vrml.renderer.ogl.nodes.time.OGLTimeSensor;
+
+/**
+ * The table of {@link NodeSupplier}s for every node class of the OpenGL renderer.
+ * <p>
+ *
+ * This is used by {@link org.web3d.vrml.renderer.DefaultNodeFactory} so
+ * that nodes can be created and copied without reflection. The table holds
+ * each node named in the component definitions under <code>config</code>
+ * that has an implementation in this renderer. A node added to a component
+ * without an entry here still works, as the factory falls back to finding
+ * the class by reflection, but it should be added here too. The BREP
+ * nodes of the CADGeometry component are left out on purpose, as they are
+ * excluded from the build and are only ever found by reflection.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class OGLNodeSuppliers {
+
+    /** The package of the cadgeometry nodes */
+    private static final String CADGEOMETRY_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.cadgeometry";
+
+    /** The package of the core nodes */
+    private static final String CORE_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.core";
+
+    /** The package of the dis nodes */
+    private static final String DIS_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.dis";
+
+    /** The package of the enveffects nodes */
+    private static final String ENVEFFECTS_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.enveffects";
+
+    /** The package of the environment nodes */
+    private static final String ENVIRONMENT_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.environment";
+
+    /** The package of the eventutils nodes */
+    private static final String EVENTUTILS_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.eventutils";
+
+    /** The package of the extensions nodes */
+    private static final String EXTENSIONS_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.extensions";
+
+    /** The package of the geom2d nodes */
+    private static final String GEOM2D_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.geom2d";
+
+    /** The package of the geom3d nodes */
+    private static final String GEOM3D_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.geom3d";
+
+    /** The package of the geospatial nodes */
+    private static final String GEOSPATIAL_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.geospatial";
+
+    /** The package of the group nodes */
+    private static final String GROUP_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.group";
+
+    /** The package of the hanim nodes */
+    private static final String HANIM_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.hanim";
+
+    /** The package of the interpolator nodes */
+    private static final String INTERPOLATOR_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.interpolator";
+
+    /** The package of the layering nodes */
+    private static final String LAYERING_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.layering";
+
+    /** The package of the lighting nodes */
+    private static final String LIGHTING_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.lighting";
+
+    /** The package of the marker nodes */
+    private static final String MARKER_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.marker";
+
+    /** The package of the navigation nodes */
+    private static final String NAVIGATION_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.navigation";
+
+    /** The package of the networking nodes */
+    private static final String NETWORKING_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.networking";
+
+    /** The package of the nurbs nodes */
+    private static final String NURBS_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.nurbs";
+
+    /** The package of the particle nodes */
+    private static final String PARTICLE_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.particle";
+
+    /** The package of the picking nodes */
+    private static final String PICKING_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.picking";
+
+    /** The package of the render nodes */
+    private static final String RENDER_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.render";
+
+    /** The package of the rigidphysics nodes */
+    private static final String RIGIDPHYSICS_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.rigidphysics";
+
+    /** The package of the scripting nodes */
+    private static final String SCRIPTING_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.scripting";
+
+    /** The package of the sensor nodes */
+    private static final String SENSOR_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.sensor";
+
+    /** The package of the shape nodes */
+    private static final String SHAPE_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.shape";
+
+    /** The package of the sound nodes */
+    private static final String SOUND_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.sound";
+
+    /** The package of the text nodes */
+    private static final String TEXT_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.text";
+
+    /** The package of the texture nodes */
+    private static final String TEXTURE_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.texture";
+
+    /** The package of the time nodes */
+    private static final String TIME_PKG =
+        "org.web3d.vrml.renderer.ogl.nodes.time";
+
+    /**
+     * Private constructor as this only holds the static table.
+     */
+    private OGLNodeSuppliers() {
+    }
+
+    /**
+     * Add the suppliers of all the nodes of this renderer to the map.
+     *
+     * @param suppliers The map to add to, keyed by fully qualified class name
+     */
+    public static void addSuppliers(Map<String, NodeSupplier> suppliers) {
+        add(suppliers, CADGEOMETRY_PKG, "OGLCADAssembly",
+            () -> new OGLCADAssembly(), n -> new OGLCADAssembly(n));
+        add(suppliers, CADGEOMETRY_PKG, "OGLCADFace",
+            () -> new OGLCADFace(), n -> new OGLCADFace(n));
+        add(suppliers, CADGEOMETRY_PKG, "OGLCADLayer",
+            () -> new OGLCADLayer(), n -> new OGLCADLayer(n));
+        add(suppliers, CADGEOMETRY_PKG, "OGLCADPart",
+            () -> new OGLCADPart(), n -> new OGLCADPart(n));
+        add(suppliers, CADGEOMETRY_PKG, "OGLIndexedQuadSet",
+            () -> new OGLIndexedQuadSet(), n -> new OGLIndexedQuadSet(n));
+        add(suppliers, CADGEOMETRY_PKG, "OGLQuadSet",
+            () -> new OGLQuadSet(), n -> new OGLQuadSet(n));
+
+        add(suppliers, CORE_PKG, "OGLMetadataBoolean",
+            () -> new OGLMetadataBoolean(), n -> new OGLMetadataBoolean(n));
+        add(suppliers, CORE_PKG, "OGLMetadataDouble",
+            () -> new OGLMetadataDouble(), n -> new OGLMetadataDouble(n));
+        add(suppliers, CORE_PKG, "OGLMetadataFloat",
+            () -> new OGLMetadataFloat(), n -> new OGLMetadataFloat(n));
+        add(suppliers, CORE_PKG, "OGLMetadataInteger",
+            () -> new OGLMetadataInteger(), n -> new OGLMetadataInteger(n));
+        add(suppliers, CORE_PKG, "OGLMetadataSet",
+            () -> new OGLMetadataSet(), n -> new OGLMetadataSet(n));
+        add(suppliers, CORE_PKG, "OGLMetadataString",
+            () -> new OGLMetadataString(), n -> new OGLMetadataString(n));
+        add(suppliers, CORE_PKG, "OGLWorldInfo",
+            () -> new OGLWorldInfo(), n -> new OGLWorldInfo(n));
+        add(suppliers, CORE_PKG, "OGLWorldRoot",
+            () -> new OGLWorldRoot(), null);
+
+        add(suppliers, DIS_PKG, "OGLDISEntityManager",
+            () -> new OGLDISEntityManager(), n -> new OGLDISEntityManager(n));
+        add(suppliers, DIS_PKG, "OGLDISEntityTypeMapping",
+            () -> new OGLDISEntityTypeMapping(), n -> new OGLDISEntityTypeMapping(n));
+        add(suppliers, DIS_PKG, "OGLEspduTransform",
+            () -> new OGLEspduTransform(), n -> new OGLEspduTransform(n));
+
+        add(suppliers, ENVEFFECTS_PKG, "OGLBackground",
+            () -> new OGLBackground(), n -> new OGLBackground(n));
+        add(suppliers, ENVEFFECTS_PKG, "OGLFog",
+            () -> new OGLFog(), n -> new OGLFog(n));
+        add(suppliers, ENVEFFECTS_PKG, "OGLFogCoordinate",
+            () -> new OGLFogCoordinate(), n -> new OGLFogCoordinate(n));
+        add(suppliers, ENVEFFECTS_PKG, "OGLLocalFog",
+            () -> new OGLLocalFog(), n -> new OGLLocalFog(n));
+        add(suppliers, ENVEFFECTS_PKG, "OGLTextureBackground",
+            () -> new OGLTextureBackground(), n -> new OGLTextureBackground(n));
+
+        add(suppliers, ENVIRONMENT_PKG, "OGLProximitySensor",
+            () -> new OGLProximitySensor(), n -> new OGLProximitySensor(n));
+        add(suppliers, ENVIRONMENT_PKG, "OGLVisibilitySensor",
+            () -> new OGLVisibilitySensor(), n -> new OGLVisibilitySensor(n));
+
+        add(suppliers, EVENTUTILS_PKG, "OGLBooleanFilter",
+            () -> new OGLBooleanFilter(), n -> new OGLBooleanFilter(n));
+        add(suppliers, EVENTUTILS_PKG, "OGLBooleanSequencer",
+            () -> new OGLBooleanSequencer(), n -> new OGLBooleanSequencer(n));
+        add(suppliers, EVENTUTILS_PKG, "OGLBooleanToggle",
+            () -> new OGLBooleanToggle(), n -> new OGLBooleanToggle(n));
+        add(suppliers, EVENTUTILS_PKG, "OGLBooleanTrigger",
+            () -> new OGLBooleanTrigger(), n -> new OGLBooleanTrigger(n));
+        add(suppliers, EVENTUTILS_PKG, "OGLIntegerSequencer",
+            () -> new OGLIntegerSequencer(), n -> new OGLIntegerSequencer(n));
+        add(suppliers, EVENTUTILS_PKG, "OGLIntegerTrigger",
+            () -> new OGLIntegerTrigger(), n -> new OGLIntegerTrigger(n));
+        add(suppliers, EVENTUTILS_PKG, "OGLTimeTrigger",
+            () -> new OGLTimeTrigger(), n -> new OGLTimeTrigger(n));
+
+        add(suppliers, EXTENSIONS_PKG, "OGLGamepadSensor",
+            () -> new OGLGamepadSensor(), n -> new OGLGamepadSensor(n));
+        add(suppliers, EXTENSIONS_PKG, "OGLJoystickSensor",
+            () -> new OGLJoystickSensor(), n -> new OGLJoystickSensor(n));
+        add(suppliers, EXTENSIONS_PKG, "OGLWheelSensor",
+            () -> new OGLWheelSensor(), n -> new OGLWheelSensor(n));
+
+        add(suppliers, GEOM2D_PKG, "OGLArc2D",
+            () -> new OGLArc2D(), n -> new OGLArc2D(n));
+        add(suppliers, GEOM2D_PKG, "OGLDisk2D",
+            () -> new OGLDisk2D(), n -> new OGLDisk2D(n));
+        add(suppliers, GEOM2D_PKG, "OGLPolyline2D",
+            () -> new OGLPolyline2D(), n -> new OGLPolyline2D(n));
+        add(suppliers, GEOM2D_PKG, "OGLPolypoint2D",
+            () -> new OGLPolypoint2D(), n -> new OGLPolypoint2D(n));
+        add(suppliers, GEOM2D_PKG, "OGLRectangle2D",
+            () -> new OGLRectangle2D(), n -> new OGLRectangle2D(n));
+        add(suppliers, GEOM2D_PKG, "OGLTriangleSet2D",
+            () -> new OGLTriangleSet2D(), n -> new OGLTriangleSet2D(n));
+
+        add(suppliers, GEOM3D_PKG, "OGLBox",
+            () -> new OGLBox(), n -> new OGLBox(n));
+        add(suppliers, GEOM3D_PKG, "OGLCone",
+            () -> new OGLCone(), n -> new OGLCone(n));
+        add(suppliers, GEOM3D_PKG, "OGLCylinder",
+            () -> new OGLCylinder(), n -> new OGLCylinder(n));
+        add(suppliers, GEOM3D_PKG, "OGLElevationGrid",
+            () -> new OGLElevationGrid(), n -> new OGLElevationGrid(n));
+        add(suppliers, GEOM3D_PKG, "OGLExtrusion",
+            () -> new OGLExtrusion(), n -> new OGLExtrusion(n));
+        add(suppliers, GEOM3D_PKG, "OGLIndexedFaceSet",
+            () -> new OGLIndexedFaceSet(), n -> new OGLIndexedFaceSet(n));
+        add(suppliers, GEOM3D_PKG, "OGLSphere",
+            () -> new OGLSphere(), n -> new OGLSphere(n));
+
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoCoordinate",
+            () -> new OGLGeoCoordinate(), n -> new OGLGeoCoordinate(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoElevationGrid",
+            () -> new OGLGeoElevationGrid(), n -> new OGLGeoElevationGrid(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoLOD",
+            () -> new OGLGeoLOD(), n -> new OGLGeoLOD(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoLocation",
+            () -> new OGLGeoLocation(), n -> new OGLGeoLocation(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoMetadata",
+            () -> new OGLGeoMetadata(), n -> new OGLGeoMetadata(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoOrigin",
+            () -> new OGLGeoOrigin(), n -> new OGLGeoOrigin(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoPositionInterpolator",
+            () -> new OGLGeoPositionInterpolator(), n -> new OGLGeoPositionInterpolator(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoTouchSensor",
+            () -> new OGLGeoTouchSensor(), n -> new OGLGeoTouchSensor(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoTransform",
+            () -> new OGLGeoTransform(), n -> new OGLGeoTransform(n));
+        add(suppliers, GEOSPATIAL_PKG, "OGLGeoViewpoint",
+            () -> new OGLGeoViewpoint(), n -> new OGLGeoViewpoint(n));
+
+        add(suppliers, GROUP_PKG, "OGLGroup",
+            () -> new OGLGroup(), n -> new OGLGroup(n));
+        add(suppliers, GROUP_PKG, "OGLMatrixTransform",
+            () -> new OGLMatrixTransform(), n -> new OGLMatrixTransform(n));
+        add(suppliers, GROUP_PKG, "OGLStaticGroup",
+            () -> new OGLStaticGroup(), n -> new OGLStaticGroup(n));
+        add(suppliers, GROUP_PKG, "OGLSwitch",
+            () -> new OGLSwitch(), n -> new OGLSwitch(n));
+        add(suppliers, GROUP_PKG, "OGLTransform",
+            () -> new OGLTransform(), n -> new OGLTransform(n));
+
+        add(suppliers, HANIM_PKG, "OGLHAnimDisplacer",
+            () -> new OGLHAnimDisplacer(), n -> new OGLHAnimDisplacer(n));
+        add(suppliers, HANIM_PKG, "OGLHAnimHumanoid",
+            () -> new OGLHAnimHumanoid(), n -> new OGLHAnimHumanoid(n));
+        add(suppliers, HANIM_PKG, "OGLHAnimJoint",
+            () -> new OGLHAnimJoint(), n -> new OGLHAnimJoint(n));
+        add(suppliers, HANIM_PKG, "OGLHAnimSegment",
+            () -> new OGLHAnimSegment(), n -> new OGLHAnimSegment(n));
+        add(suppliers, HANIM_PKG, "OGLHAnimSite",
+            () -> new OGLHAnimSite(), n -> new OGLHAnimSite(n));
+
+        add(suppliers, INTERPOLATOR_PKG, "OGLColorInterpolator",
+            () -> new OGLColorInterpolator(), n -> new OGLColorInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLCoordinateInterpolator",
+            () -> new OGLCoordinateInterpolator(), n -> new OGLCoordinateInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLCoordinateInterpolator2D",
+            () -> new OGLCoordinateInterpolator2D(), n -> new OGLCoordinateInterpolator2D(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLNormalInterpolator",
+            () -> new OGLNormalInterpolator(), n -> new OGLNormalInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLOrientationInterpolator",
+            () -> new OGLOrientationInterpolator(), n -> new OGLOrientationInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLPositionInterpolator",
+            () -> new OGLPositionInterpolator(), n -> new OGLPositionInterpolator(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLPositionInterpolator2D",
+            () -> new OGLPositionInterpolator2D(), n -> new OGLPositionInterpolator2D(n));
+        add(suppliers, INTERPOLATOR_PKG, "OGLScalarInterpolator",
+            () -> new OGLScalarInterpolator(), n -> new OGLScalarInterpolator(n));
+
+        add(suppliers, LAYERING_PKG, "OGLCustomViewport",
+            () -> new OGLCustomViewport(), n -> new OGLCustomViewport(n));
+        add(suppliers, LAYERING_PKG, "OGLFixedViewport",
+            () -> new OGLFixedViewport(), n -> new OGLFixedViewport(n));
+        add(suppliers, LAYERING_PKG, "OGLLayer",
+            () -> new OGLLayer(), n -> new OGLLayer(n));
+        add(suppliers, LAYERING_PKG, "OGLLayerSet",
+            () -> new OGLLayerSet(), n -> new OGLLayerSet(n));
+        add(suppliers, LAYERING_PKG, "OGLProportionalViewport",
+            () -> new OGLProportionalViewport(), n -> new OGLProportionalViewport(n));
+
+        add(suppliers, LIGHTING_PKG, "OGLDirectionalLight",
+            () -> new OGLDirectionalLight(), n -> new OGLDirectionalLight(n));
+        add(suppliers, LIGHTING_PKG, "OGLPointLight",
+            () -> new OGLPointLight(), n -> new OGLPointLight(n));
+        add(suppliers, LIGHTING_PKG, "OGLSpotLight",
+            () -> new OGLSpotLight(), n -> new OGLSpotLight(n));
+
+        add(suppliers, MARKER_PKG, "OGLScreenMarker",
+            () -> new OGLScreenMarker(), n -> new OGLScreenMarker(n));
+
+        add(suppliers, NAVIGATION_PKG, "OGLBillboard",
+            () -> new OGLBillboard(), n -> new OGLBillboard(n));
+        add(suppliers, NAVIGATION_PKG, "OGLCollision",
+            () -> new OGLCollision(), n -> new OGLCollision(n));
+        add(suppliers, NAVIGATION_PKG, "OGLLOD",
+            () -> new OGLLOD(), n -> new OGLLOD(n));
+        add(suppliers, NAVIGATION_PKG, "OGLNavigationInfo",
+            () -> new OGLNavigationInfo(), n -> new OGLNavigationInfo(n));
+        add(suppliers, NAVIGATION_PKG, "OGLOrthoViewpoint",
+            () -> new OGLOrthoViewpoint(), n -> new OGLOrthoViewpoint(n));
+        add(suppliers, NAVIGATION_PKG, "OGLViewpoint",
+            () -> new OGLViewpoint(), n -> new OGLViewpoint(n));
+
+        add(suppliers, NETWORKING_PKG, "OGLAnchor",
+            () -> new OGLAnchor(), n -> new OGLAnchor(n));
+        add(suppliers, NETWORKING_PKG, "OGLInline",
+            () -> new OGLInline(), n -> new OGLInline(n));
+        add(suppliers, NETWORKING_PKG, "OGLLoadSensor",
+            () -> new OGLLoadSensor(), n -> new OGLLoadSensor(n));
+
+        add(suppliers, NURBS_PKG, "OGLContour2D",
+            () -> new OGLContour2D(), null);
+        add(suppliers, NURBS_PKG, "OGLContourPolyline2D",
+            () -> new OGLContourPolyline2D(), null);
+        add(suppliers, NURBS_PKG, "OGLNurbsCurve",
+            () -> new OGLNurbsCurve(), null);
+        add(suppliers, NURBS_PKG, "OGLNurbsCurve2D",
+            () -> new OGLNurbsCurve2D(), null);
+        add(suppliers, NURBS_PKG, "OGLNurbsPatchSurface",
+            () -> new OGLNurbsPatchSurface(), null);
+        add(suppliers, NURBS_PKG, "OGLNurbsTrimmedSurface",
+            () -> new OGLNurbsTrimmedSurface(), null);
+
+        add(suppliers, PARTICLE_PKG, "OGLExplosionEmitter",
+            () -> new OGLExplosionEmitter(), n -> new OGLExplosionEmitter(n));
+        add(suppliers, PARTICLE_PKG, "OGLGravityPhysicsModel",
+            () -> new OGLGravityPhysicsModel(), n -> new OGLGravityPhysicsModel(n));
+        add(suppliers, PARTICLE_PKG, "OGLParticleSystem",
+            () -> new OGLParticleSystem(), n -> new OGLParticleSystem(n));
+        add(suppliers, PARTICLE_PKG, "OGLPointEmitter",
+            () -> new OGLPointEmitter(), n -> new OGLPointEmitter(n));
+        add(suppliers, PARTICLE_PKG, "OGLPolylineEmitter",
+            () -> new OGLPolylineEmitter(), n -> new OGLPolylineEmitter(n));
+        add(suppliers, PARTICLE_PKG, "OGLWindPhysicsModel",
+            () -> new OGLWindPhysicsModel(), n -> new OGLWindPhysicsModel(n));
+
+        add(suppliers, PICKING_PKG, "OGLLinePicker",
+            () -> new OGLLinePicker(), n -> new OGLLinePicker(n));
+        add(suppliers, PICKING_PKG, "OGLPickableGroup",
+            () -> new OGLPickableGroup(), n -> new OGLPickableGroup(n));
+        add(suppliers, PICKING_PKG, "OGLPointPicker",
+            () -> new OGLPointPicker(), n -> new OGLPointPicker(n));
+        add(suppliers, PICKING_PKG, "OGLPrimitivePicker",
+            () -> new OGLPrimitivePicker(), n -> new OGLPrimitivePicker(n));
+        add(suppliers, PICKING_PKG, "OGLVolumePicker",
+            () -> new OGLVolumePicker(), n -> new OGLVolumePicker(n));
+
+        add(suppliers, RENDER_PKG, "OGLClipPlane",
+            () -> new OGLClipPlane(), n -> new OGLClipPlane(n));
+        add(suppliers, RENDER_PKG, "OGLColor",
+            () -> new OGLColor(), n -> new OGLColor(n));
+        add(suppliers, RENDER_PKG, "OGLColorRGBA",
+            () -> new OGLColorRGBA(), n -> new OGLColorRGBA(n));
+        add(suppliers, RENDER_PKG, "OGLCoordinate",
+            () -> new OGLCoordinate(), n -> new OGLCoordinate(n));
+        add(suppliers, RENDER_PKG, "OGLIndexedLineSet",
+            () -> new OGLIndexedLineSet(), n -> new OGLIndexedLineSet(n));
+        add(suppliers, RENDER_PKG, "OGLIndexedTriangleFanSet",
+            () -> new OGLIndexedTriangleFanSet(), n -> new OGLIndexedTriangleFanSet(n));
+        add(suppliers, RENDER_PKG, "OGLIndexedTriangleSet",
+            () -> new OGLIndexedTriangleSet(), n -> new OGLIndexedTriangleSet(n));
+        add(suppliers, RENDER_PKG, "OGLIndexedTriangleStripSet",
+            () -> new OGLIndexedTriangleStripSet(), n -> new OGLIndexedTriangleStripSet(n));
+        add(suppliers, RENDER_PKG, "OGLLineSet",
+            () -> new OGLLineSet(), n -> new OGLLineSet(n));
+        add(suppliers, RENDER_PKG, "OGLNormal",
+            () -> new OGLNormal(), n -> new OGLNormal(n));
+        add(suppliers, RENDER_PKG, "OGLPointSet",
+            () -> new OGLPointSet(), n -> new OGLPointSet(n));
+        add(suppliers, RENDER_PKG, "OGLTriangleFanSet",
+            () -> new OGLTriangleFanSet(), n -> new OGLTriangleFanSet(n));
+        add(suppliers, RENDER_PKG, "OGLTriangleSet",
+            () -> new OGLTriangleSet(), n -> new OGLTriangleSet(n));
+        add(suppliers, RENDER_PKG, "OGLTriangleStripSet",
+            () -> new OGLTriangleStripSet(), n -> new OGLTriangleStripSet(n));
+
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLBallJoint",
+            () -> new OGLBallJoint(), n -> new OGLBallJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLCollidableOffset",
+            () -> new OGLCollidableOffset(), n -> new OGLCollidableOffset(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLCollidableShape",
+            () -> new OGLCollidableShape(), n -> new OGLCollidableShape(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLCollisionCollection",
+            () -> new OGLCollisionCollection(), n -> new OGLCollisionCollection(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLCollisionSensor",
+            () -> new OGLCollisionSensor(), n -> new OGLCollisionSensor(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLCollisionSpace",
+            () -> new OGLCollisionSpace(), n -> new OGLCollisionSpace(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLContact",
+            () -> new OGLContact(), n -> new OGLContact(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLDoubleAxisHingeJoint",
+            () -> new OGLDoubleAxisHingeJoint(), n -> new OGLDoubleAxisHingeJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLMotorJoint",
+            () -> new OGLMotorJoint(), n -> new OGLMotorJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLRigidBody",
+            () -> new OGLRigidBody(), n -> new OGLRigidBody(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLRigidBodyCollection",
+            () -> new OGLRigidBodyCollection(), n -> new OGLRigidBodyCollection(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLSingleAxisHingeJoint",
+            () -> new OGLSingleAxisHingeJoint(), n -> new OGLSingleAxisHingeJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLSliderJoint",
+            () -> new OGLSliderJoint(), n -> new OGLSliderJoint(n));
+        add(suppliers, RIGIDPHYSICS_PKG, "OGLUniversalJoint",
+            () -> new OGLUniversalJoint(), n -> new OGLUniversalJoint(n));
+
+        add(suppliers, SCRIPTING_PKG, "OGLScript",
+            () -> new OGLScript(), n -> new OGLScript(n));
+
+        add(suppliers, SENSOR_PKG, "OGLCylinderSensor",
+            () -> new OGLCylinderSensor(), n -> new OGLCylinderSensor(n));
+        add(suppliers, SENSOR_PKG, "OGLKeySensor",
+            () -> new OGLKeySensor(), n -> new OGLKeySensor(n));
+        add(suppliers, SENSOR_PKG, "OGLPlaneSensor",
+            () -> new OGLPlaneSensor(), n -> new OGLPlaneSensor(n));
+        add(suppliers, SENSOR_PKG, "OGLSphereSensor",
+            () -> new OGLSphereSensor(), n -> new OGLSphereSensor(n));
+        add(suppliers, SENSOR_PKG, "OGLStringSensor",
+            () -> new OGLStringSensor(), n -> new OGLStringSensor(n));
+        add(suppliers, SENSOR_PKG, "OGLTouchSensor",
+            () -> new OGLTouchSensor(), n -> new OGLTouchSensor(n));
+
+        add(suppliers, SHAPE_PKG, "OGLAppearance",
+            () -> new OGLAppearance(), n -> new OGLAppearance(n));
+        add(suppliers, SHAPE_PKG, "OGLLineProperties",
+            () -> new OGLLineProperties(), n -> new OGLLineProperties(n));
+        add(suppliers, SHAPE_PKG, "OGLMaterial",
+            () -> new OGLMaterial(), n -> new OGLMaterial(n));
+        add(suppliers, SHAPE_PKG, "OGLPointProperties",
+            () -> new OGLPointProperties(), n -> new OGLPointProperties(n));
+        add(suppliers, SHAPE_PKG, "OGLShape",
+            () -> new OGLShape(), n -> new OGLShape(n));
+        add(suppliers, SHAPE_PKG, "OGLTwoSidedMaterial",
+            () -> new OGLTwoSidedMaterial(), n -> new OGLTwoSidedMaterial(n));
+
+        add(suppliers, SOUND_PKG, "OGLAudioClip",
+            () -> new OGLAudioClip(), n -> new OGLAudioClip(n));
+        add(suppliers, SOUND_PKG, "OGLMidiSource",
+            () -> new OGLMidiSource(), n -> new OGLMidiSource(n));
+        add(suppliers, SOUND_PKG, "OGLSound",
+            () -> new OGLSound(), n -> new OGLSound(n));
+
+        add(suppliers, TEXT_PKG, "OGLFontStyle",
+            () -> new OGLFontStyle(), n -> new OGLFontStyle(n));
+        add(suppliers, TEXT_PKG, "OGLText",
+            () -> new OGLText(), n -> new OGLText(n));
+
+        add(suppliers, TEXTURE_PKG, "OGLImageTexture",
+            () -> new OGLImageTexture(), n -> new OGLImageTexture(n));
+        add(suppliers, TEXTURE_PKG, "OGLMovieTexture",
+            () -> new OGLMovieTexture(), n -> new OGLMovieTexture(n));
+        add(suppliers, TEXTURE_PKG, "OGLMultiTexture",
+            () -> new OGLMultiTexture(), n -> new OGLMultiTexture(n));
+        add(suppliers, TEXTURE_PKG, "OGLMultiTextureCoordinate",
+            () -> new OGLMultiTextureCoordinate(), n -> new OGLMultiTextureCoordinate(n));
+        add(suppliers, TEXTURE_PKG, "OGLMultiTextureTransform",
+            () -> new OGLMultiTextureTransform(), n -> new OGLMultiTextureTransform(n));
+        add(suppliers, TEXTURE_PKG, "OGLPixelTexture",
+            () -> new OGLPixelTexture(), n -> new OGLPixelTexture(n));
+        add(suppliers, TEXTURE_PKG, "OGLRenderedTexture",
+            () -> new OGLRenderedTexture(), n -> new OGLRenderedTexture(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureCoordinate",
+            () -> new OGLTextureCoordinate(), n -> new OGLTextureCoordinate(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureCoordinate3D",
+            () -> new OGLTextureCoordinate3D(), n -> new OGLTextureCoordinate3D(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureCoordinate4D",
+            () -> new OGLTextureCoordinate4D(), n -> new OGLTextureCoordinate4D(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureCoordinateGenerator",
+            () -> new OGLTextureCoordinateGenerator(), n -> new OGLTextureCoordinateGenerator(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureProperties",
+            () -> new OGLTextureProperties(), n -> new OGLTextureProperties(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureTransform",
+            () -> new OGLTextureTransform(), n -> new OGLTextureTransform(n));
+        add(suppliers, TEXTURE_PKG, "OGLTextureTransform3D",
+            () -> new OGLTextureTransform3D(), n -> new OGLTextureTransform3D(n));
+
+        add(suppliers, TIME_PKG, "OGLTimeController",
+            () -> new OGLTimeController(), n -> new OGLTimeController(n));
+        add(suppliers, TIME_PKG, "OGLTimeSensor",
+            () -> new OGLTimeSensor(), n -> new OGLTimeSensor(n));
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Add one node class to the map.
+     */
+    private static void add(Map<String, NodeSupplier> suppliers,
+                            String pkg,
+                            String className,
+                            Supplier<VRMLNode> creator,
+                            Function<VRMLNodeType, VRMLNode> copier) {
+        suppliers.put(pkg + '.' + className, new NodeSupplier(creator, copier));
+    }
+}
@@ -17,32 +17,155 @@ import java.lang.ref.WeakReference;
 
 import java.net.URL;
 
+import java.nio.ByteBuffer;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import org.j3d.aviatrix3d.Texture;
 import org.j3d.aviatrix3d.Texture2D;
 import org.j3d.aviatrix3d.Texture3D;
 
 // Local imports
-// none
+import org.web3d.util.PropertyTools;
 
 /**
- * A cache for Texture instance management where the objects stay according
- * to Java's WeakReference system.
+ * A cache for Texture instance management, with a memory budget.
+ * <p>
+ *
+ * Textures are registered under a tag, typically their URL. A texture that
+ * is registered again under the same tag with matching properties is
+ * shared. When the decoded image is also given, textures are matched by a
+ * SHA-256 hash of their content as well, so the same image under many URLs
+ * is only kept once.
+ * <p>
+ *
+ * The cache holds on to the most recently used textures until their
+ * estimated size reaches the budget. Beyond that, the least recently used
+ * textures are only held by Java's WeakReference system, so they stay
+ * shared while the scene still uses them but are otherwise left to the
+ * garbage collector.
  * <p>
  *
+ * <b>Properties</b>
+ * <p>
+ * The following properties are used by this class
+ * <ul>
+ * <li><code>org.web3d.vrml.renderer.ogl.nodes.textureCache.size</code> The
+ *    amount of memory in Kilobytes the cache may hold on to. Defaults to
+ *    65536. A value of zero or less only holds weak references.</li>
+ * </ul>
+ *
  * @author Rex Melton
- * @version $Revision: 1.1 $
+ * @version $Revision: 1.2 $
  */
 public class TextureCache {
 
+    /** Property describing the memory budget in Kilobytes */
+    private static final String SIZE_PROP =
+        "org.web3d.vrml.renderer.ogl.nodes.textureCache.size";
+
+    /** The default memory budget in Kilobytes */
+    private static final int DEFAULT_SIZE = 65536;
+
+    /** A single texture held by the cache */
+    protected static class Entry {
+
+        /** Weak reference that lasts as long as the texture is used */
+        final WeakReference<Texture> ref;
+
+        /** The texture, while held within the budget, else null */
+        Texture texture;
+
+        /** The estimated size of the texture in bytes */
+        final long size;
+
+        /** The content hash of the texture, or null if not known */
+        ContentKey key;
+
+        /** The number of tags the texture is registered under */
+        int tagCount;
+
+        Entry( Texture texture, long size ) {
+            ref = new WeakReference<>( texture );
+            this.texture = texture;
+            this.size = size;
+        }
+
+        /**
+         * Get the texture, if it has not been freed.
+         */
+        Texture get( ) {
+            return( ( texture != null ) ? texture : ref.get( ) );
+        }
+    }
+
+    /** Hash of the decoded content of a texture */
+    protected static final class ContentKey {
+
+        /** The SHA-256 hash of the content */
+        private final byte[] digest;
+
+        /** The length of the content in bytes */
+        private final int length;
+
+        ContentKey( byte[] digest, int length ) {
+            this.digest = digest;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( !( o instanceof ContentKey ) ) {
+                return( false );
+            }
+            ContentKey k = (ContentKey)o;
+            return( ( k.length == length ) &&
+                MessageDigest.isEqual( k.digest, digest ) );
+        }
+
+        @Override
+        public int hashCode( ) {
+            return( Arrays.hashCode( digest ) );
+        }
+    }
+
     /** The cache map */
-    protected HashMap<String,ArrayList<WeakReference<Texture>>> textureMap;
+    protected HashMap<String,ArrayList<Entry>> textureMap;
+
+    /** The entries of each content hash */
+    protected HashMap<ContentKey,ArrayList<Entry>> contentMap;
+
+    /** The entries held within the budget, least recently used first */
+    protected LinkedHashMap<Entry,Entry> heldEntries;
 
     /** Enabled flag */
     protected boolean enabled;
 
+    /** The most bytes to hold on to */
+    protected long maxSize;
+
+    /** The bytes currently held */
+    protected long heldSize;
+
+    /** The number of registrations that returned a cached texture */
+    protected long hitCount;
+
+    /** The number of those hits that were found by content */
+    protected long contentHitCount;
+
+    /** The number of registrations that stored a new texture */
+    protected long missCount;
+
+    /** The number of textures let go to keep within the budget */
+    protected long evictionCount;
+
     /** The instance */
     protected static TextureCache cache;
 
@@ -51,7 +174,12 @@ public class TextureCache {
      */
     protected TextureCache( ) {
         textureMap = new HashMap<>( );
+        contentMap = new HashMap<>( );
+        heldEntries = new LinkedHashMap<>( 16, 0.75f, true );
         enabled = true;
+
+        int size = PropertyTools.fetchSystemProperty( SIZE_PROP, DEFAULT_SIZE );
+        maxSize = ( size > 0 ) ? size * 1024L : 0;
     }
 
     /**
@@ -59,7 +187,7 @@ public class TextureCache {
      *
      * @return The TextureCache instance
      */
-    public static TextureCache getInstance( ) {
+    public static synchronized TextureCache getInstance( ) {
         if ( cache == null ) {
             cache = new TextureCache( );
         }
@@ -75,23 +203,24 @@ public class TextureCache {
      */
     public synchronized void release( String tag, Texture texture ) {
         if ( enabled && ( tag != null ) && ( texture != null ) ) {
-            ArrayList<WeakReference<Texture>> cacheList = textureMap.get( tag );
+            ArrayList<Entry> cacheList = textureMap.get( tag );
             if ( cacheList != null ) {
                 // the tag exists, walk through the entries looking for a match
                 for ( int i = cacheList.size( )-1; i >= 0; i-- ) {
-                    WeakReference<Texture> ref = cacheList.get( i );
-                    if ( ref == null ) {
+                    Entry entry = cacheList.get( i );
+                    Texture cachedTexture = entry.get( );
+                    if ( cachedTexture == null ) {
                         cacheList.remove( i );
-                    } else {
-                        Texture cachedTexture = ref.get( );
-                        if ( cachedTexture == null ) {
-                            cacheList.remove( i );
-                        }
-                        else if ( isMatch( cachedTexture, texture ) ) {
-                            cacheList.remove( i );
-                            break;
-                        }
+                        untag( entry );
                     }
+                    else if ( isMatch( cachedTexture, texture ) ) {
+                        cacheList.remove( i );
+                        untag( entry );
+                        break;
+                    }
+                }
+                if ( cacheList.isEmpty( ) ) {
+                    textureMap.remove( tag );
                 }
             }
         }
@@ -113,8 +242,11 @@ public class TextureCache {
     /**
      * Clear the cache.
      */
-    public void clear( ) {
+    public synchronized void clear( ) {
         textureMap.clear( );
+        contentMap.clear( );
+        heldEntries.clear( );
+        heldSize = 0;
     }
 
     /**
@@ -126,6 +258,73 @@ public class TextureCache {
         this.enabled = enabled;
     }
 
+    /**
+     * Set the most memory the cache may hold on to. If the cache is over the
+     * new budget, the least recently used textures are let go.
+     *
+     * @param bytes The budget in bytes. Zero or less only holds weak
+     * references.
+     */
+    public synchronized void setMaxSize( long bytes ) {
+        maxSize = Math.max( 0, bytes );
+        trim( );
+    }
+
+    /**
+     * Get the most memory the cache may hold on to.
+     *
+     * @return The budget in bytes
+     */
+    public synchronized long getMaxSize( ) {
+        return( maxSize );
+    }
+
+    /**
+     * Get the estimated memory held by the cache.
+     *
+     * @return The size in bytes
+     */
+    public synchronized long getSize( ) {
+        return( heldSize );
+    }
+
+    /**
+     * Get the number of registrations that returned a cached texture.
+     *
+     * @return The hit count
+     */
+    public synchronized long getHitCount( ) {
+        return( hitCount );
+    }
+
+    /**
+     * Get the number of hits that were found by matching content under a
+     * different tag.
+     *
+     * @return The content hit count
+     */
+    public synchronized long getContentHitCount( ) {
+        return( contentHitCount );
+    }
+
+    /**
+     * Get the number of registrations that stored a new texture.
+     *
+     * @return The miss count
+     */
+    public synchronized long getMissCount( ) {
+        return( missCount );
+    }
+
+    /**
+     * Get the number of textures let go to keep within the budget.
+     *
+     * @return The eviction count
+     */
+    public synchronized long getEvictionCount( ) {
+        return( evictionCount );
+    }
+
     /**
      * Register a Texture in the cache with the argument id. If the id is
      * null, the argument Texture is not cached and is returned. If a Texture
@@ -139,9 +338,24 @@ public class TextureCache {
      * @return The cached Texture
      */
     public Texture register( URL url, Texture texture ) {
+        return( register( url, texture, null ) );
+    }
+
+    /**
+     * Register a Texture in the cache with the argument id and decoded
+     * content. As {@link #register(URL, Texture)}, except that a Texture
+     * with the same content and properties is returned even if it was
+     * registered under another id.
+     *
+     * @param url The texture id
+     * @param texture The candidate texture to cache
+     * @param content The base level image of the texture, or null
+     * @return The cached Texture
+     */
+    public Texture register( URL url, Texture texture, ByteBuffer content ) {
         Texture returnTexture = texture;
         if ( url != null ) {
-            returnTexture = register( url.toExternalForm( ), texture );
+            returnTexture = register( url.toExternalForm( ), texture, content );
         }
         return( returnTexture );
     }
@@ -158,41 +372,74 @@ public class TextureCache {
      * @param texture The candidate texture to cache
      * @return The cached Texture
      */
-    public synchronized Texture register( String tag, Texture texture ) {
+    public Texture register( String tag, Texture texture ) {
+        return( register( tag, texture, null ) );
+    }
 
-        Texture returnTexture = texture;
-        if ( enabled && ( tag != null ) && ( texture != null ) ) {
-            ArrayList<WeakReference<Texture>> cacheList = textureMap.get( tag );
-            if ( cacheList == null ) {
-                // nothing has been cached yet with the argument tag
-                cacheList = new ArrayList<>( 1 );
-                cacheList.add( new WeakReference<>( texture ) );
-                textureMap.put( tag, cacheList );
-
-            } else {
-                // the tag exists, walk through the entries looking for a match
-                boolean cacheHit = false;
-                for ( int i = cacheList.size( )-1; i >= 0; i-- ) {
-                    WeakReference<Texture> ref = cacheList.get( i );
-                    if ( ref == null ) {
-                        cacheList.remove( i );
-                    } else {
-                        Texture cachedTexture = ref.get( );
-                        if ( cachedTexture == null ) {
-                            cacheList.remove( i );
-                        }
-                        else if ( isMatch( cachedTexture, texture ) ) {
-                            returnTexture = cachedTexture;
-                            cacheHit = true;
-                            break;
-                        }
-                    }
-                }
-                if ( !cacheHit ) {
-                    cacheList.add( new WeakReference<>( texture ) );
+    /**
+     * Register a Texture in the cache with the argument id and decoded
+     * content. As {@link #register(String, Texture)}, except that a Texture
+     * with the same content and properties is returned even if it was
+     * registered under another id.
+     *
+     * @param tag The texture id, typically it's URL string
+     * @param texture The candidate texture to cache
+     * @param content The base level image of the texture, or null
+     * @return The cached Texture
+     */
+    public synchronized Texture register( String tag, Texture texture,
+        ByteBuffer content ) {
+
+        if ( !enabled || ( tag == null ) || ( texture == null ) ) {
+            return( texture );
+        }
+
+        ArrayList<Entry> cacheList = textureMap.get( tag );
+        Entry entry = findMatch( cacheList, texture );
+        if ( entry != null ) {
+            hitCount++;
+            touch( entry );
+            return( entry.get( ) );
+        }
+
+        // not known under this tag, so look for the same content
+        ContentKey key = null;
+        if ( content != null ) {
+            key = hashContent( content );
+            entry = findMatch( contentMap.get( key ), texture );
+        }
+
+        if ( entry != null ) {
+            hitCount++;
+            contentHitCount++;
+            touch( entry );
+        } else {
+            missCount++;
+            long size = ( content != null ) ?
+                content.capacity( ) : estimateSize( texture );
+            entry = new Entry( texture, size );
+            hold( entry );
+
+            if ( key != null ) {
+                entry.key = key;
+                ArrayList<Entry> keyList = contentMap.get( key );
+                if ( keyList == null ) {
+                    keyList = new ArrayList<>( 1 );
+                    contentMap.put( key, keyList );
                 }
+                keyList.add( entry );
             }
         }
+
+        if ( cacheList == null ) {
+            cacheList = new ArrayList<>( 1 );
+            textureMap.put( tag, cacheList );
+        }
+        cacheList.add( entry );
+        entry.tagCount++;
+
+        Texture returnTexture = entry.get( );
+        trim( );
         return( returnTexture );
     }
 
@@ -200,6 +447,146 @@ public class TextureCache {
     // Local methods
     //------------------------------------------------------------------------
 
+    /**
+     * Find the entry in the list whose texture matches the argument,
+     * dropping any entries that have been freed along the way.
+     */
+    private Entry findMatch( ArrayList<Entry> list, Texture texture ) {
+        if ( list == null ) {
+            return( null );
+        }
+        for ( int i = list.size( )-1; i >= 0; i-- ) {
+            Entry entry = list.get( i );
+            Texture cachedTexture = entry.get( );
+            if ( cachedTexture == null ) {
+                list.remove( i );
+                dropContent( entry );
+            }
+            else if ( isMatch( cachedTexture, texture ) ) {
+                return( entry );
+            }
+        }
+        return( null );
+    }
+
+    /**
+     * Mark an entry as recently used, holding on to it again if it had been
+     * let go.
+     */
+    private void touch( Entry entry ) {
+        if ( entry.texture != null ) {
+            heldEntries.get( entry );
+        } else {
+            Texture tex = entry.ref.get( );
+            if ( tex != null ) {
+                entry.texture = tex;
+                hold( entry );
+            }
+        }
+    }
+
+    /**
+     * Add an entry to the held list.
+     */
+    private void hold( Entry entry ) {
+        heldEntries.put( entry, entry );
+        heldSize += entry.size;
+    }
+
+    /**
+     * Remove one tag from an entry, dropping the entry once it has none.
+     */
+    private void untag( Entry entry ) {
+        if ( --entry.tagCount > 0 ) {
+            return;
+        }
+        if ( heldEntries.remove( entry ) != null ) {
+            heldSize -= entry.size;
+        }
+        entry.texture = null;
+        dropContent( entry );
+    }
+
+    /**
+     * Remove an entry from the content map.
+     */
+    private void dropContent( Entry entry ) {
+        if ( entry.key != null ) {
+            ArrayList<Entry> keyList = contentMap.get( entry.key );
+            if ( keyList != null ) {
+                keyList.remove( entry );
+                if ( keyList.isEmpty( ) ) {
+                    contentMap.remove( entry.key );
+                }
+            }
+        }
+    }
+
+    /**
+     * Let go of the least recently used entries until within the budget.
+     */
+    private void trim( ) {
+        Iterator<Entry> itr = heldEntries.keySet( ).iterator( );
+        while ( ( heldSize > maxSize ) && itr.hasNext( ) ) {
+            Entry entry = itr.next( );
+            itr.remove( );
+            heldSize -= entry.size;
+            entry.texture = null;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Create the content hash of an image. SHA-256 is used so that different
+     * images are never taken to be the same, as the image itself is not kept
+     * to compare against.
+     */
+    private static ContentKey hashContent( ByteBuffer content ) {
+        ByteBuffer buf = content.duplicate( );
+        buf.clear( );
+
+        try {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+            md.update( buf );
+            return( new ContentKey( md.digest( ), content.capacity( ) ) );
+        } catch ( NoSuchAlgorithmException nsae ) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException( nsae );
+        }
+    }
+
+    /**
+     * Estimate the memory used by a texture from its dimensions and format.
+     */
+    private static long estimateSize( Texture tex ) {
+        long pixels = tex.getWidth( );
+        if ( tex instanceof Texture2D ) {
+            pixels *= ( (Texture2D)tex ).getHeight( );
+        }
+        else if ( tex instanceof Texture3D ) {
+            Texture3D tex_3D = (Texture3D)tex;
+            pixels *= (long)tex_3D.getHeight( ) * tex_3D.getDepth( );
+        }
+
+        int bpp;
+        switch ( tex.getFormat( ) ) {
+        case Texture.FORMAT_ALPHA:
+        case Texture.FORMAT_INTENSITY:
+        case Texture.FORMAT_LUMINANCE:
+            bpp = 1;
+            break;
+        case Texture.FORMAT_LUMINANCE_ALPHA:
+            bpp = 2;
+            break;
+        case Texture.FORMAT_RGB:
+            bpp = 3;
+            break;
+        default:
+            bpp = 4;
+        }
+        return( pixels * bpp );
+    }
+
     /**
      * Compare the properties of the argument Textures for a match
      */
@@ -365,7 +365,7 @@ public class OGLBackground extends BaseBackground
                 1);
 
             if ( useTextureCache ) {
-                textureList[index] = (Texture2D)cache.register( url, texture );
+                textureList[index] = (Texture2D)cache.register( url, texture, img.getBuffer( ) );
             }
             else {
                 textureList[index] = texture;
@@ -1486,6 +1486,7 @@ public class OGLAppearance extends BaseAppearance
                 || tstage.images[0] == null);
 
         TextureComponent[] comps;
+        ByteBuffer content = null;
         int len;
         int texType;
         int width;
@@ -1573,6 +1574,7 @@ public class OGLAppearance extends BaseAppearance
                         NIOBufferImage image = tstage.images[0];
                         int format = getFormat(image);
                         comps = new TextureComponent2D[1];
+                        content = image.getBuffer();
 
                         comps[0] = new ByteBufferTextureComponent2D(
                                 format,
@@ -1711,7 +1713,7 @@ public class OGLAppearance extends BaseAppearance
         //
         //////////////////////////////////////////////////////////////////////////////
         if (useTextureCache) {
-            ret_val = textureCache.register(url, ret_val);
+            ret_val = textureCache.register(url, ret_val, content);
         }
 
         return ret_val;
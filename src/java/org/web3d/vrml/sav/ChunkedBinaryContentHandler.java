@@ -0,0 +1,116 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.sav;
+
+// External imports
+// None
+
+// Local imports
+import org.web3d.vrml.lang.VRMLException;
+
+/**
+ * A binary content handler that can also receive large array field values a
+ * piece at a time.
+ * <p>
+ *
+ * Parsers that decode big arrays, such as the compressed coordinates of a
+ * binary X3D file, check for this interface. If the content handler has it,
+ * the value is sent as a call to {@link #startFieldValue(int)}, any number
+ * of <code>appendFieldValue()</code> calls and then
+ * {@link #endFieldValue()}, in place of a single <code>fieldValue()</code>
+ * call. The parser then never has the whole array in memory. All of the
+ * appended pieces are of the same primitive type. The arrays passed to the
+ * append calls belong to the parser and are reused, so the handler must copy
+ * out anything it wants to keep.
+ * <p>
+ *
+ * The calls follow a <code>startField()</code> just as a normal
+ * <code>fieldValue()</code> call does, and the next call after
+ * <code>endFieldValue()</code> will either be another
+ * <code>startField()</code> or <code>endNode()</code>.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public interface ChunkedBinaryContentHandler extends BinaryContentHandler {
+
+    /**
+     * Start a field value that will be sent in pieces.
+     *
+     * @param length The total number of values that will be sent, or -1 if
+     *    that is not known
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    void startFieldValue(int length)
+        throws SAVException, VRMLException;
+
+    /**
+     * Add the next piece of an array of integers. This would be used for
+     * MFInt32 and MFImage field types.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    void appendFieldValue(int[] value, int offset, int len)
+        throws SAVException, VRMLException;
+
+    /**
+     * Add the next piece of an array of floats. This would be used for
+     * MFFloat, MFVec2f, MFVec3f, MFColor and similar field types.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    void appendFieldValue(float[] value, int offset, int len)
+        throws SAVException, VRMLException;
+
+    /**
+     * Add the next piece of an array of doubles. This would be used for
+     * MFDouble, MFVec3d and similar field types.
+     *
+     * @param value The array holding the values
+     * @param offset The index of the first value to use in the array
+     * @param len The number of values to use from the array
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    void appendFieldValue(double[] value, int offset, int len)
+        throws SAVException, VRMLException;
+
+    /**
+     * End the field value started with {@link #startFieldValue(int)}. The
+     * field now has the complete value.
+     *
+     * @throws SAVException This call is taken at the wrong time in the
+     *   structure of the document.
+     * @throws VRMLException This call is taken at the wrong time in the
+     *   structure of the document.
+     */
+    void endFieldValue()
+        throws SAVException, VRMLException;
+}
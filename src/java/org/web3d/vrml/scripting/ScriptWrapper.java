@@ -25,7 +25,7 @@ import org.web3d.vrml.nodes.VRMLScriptNodeType;
  * <p>
  *
  * @author Justin Couch
- * @version $Revision: 1.5 $
+ * @version $Revision: 1.6 $
  */
 public interface ScriptWrapper {
 
@@ -214,6 +214,19 @@ public interface ScriptWrapper {
      */
     void eventsProcessed();
 
+    /**
+     * Check to see if the script code only works with its own fields. Such a
+     * script does not call the browser and does not read or write other
+     * nodes, so its {@link #sendEvents()} and {@link #eventsProcessed()} may
+     * be run on a thread other than the event model thread, at the same time
+     * as other such scripts. {@link #updateEventOuts()} is always called on
+     * the event model thread.
+     *
+     * @return true if the script code may be run away from the event model
+     *   thread
+     */
+    boolean isSelfContained();
+
     /**
      * Called when the Script node is deleted. We free everything here to
      * allow the GC to do its magic.
@@ -0,0 +1,163 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.ecmascript;
+
+// External imports
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+
+// Local imports
+import org.web3d.util.PropertyTools;
+
+/**
+ * Cache of compiled script source shared by all of the script wrappers.
+ * <p>
+ *
+ * By default Rhino is run in interpreted mode and each wrapper evaluates its
+ * own copy of the source. Setting the system property
+ * <code>org.web3d.vrml.scripting.ecmascript.optimizationLevel</code> to a
+ * value from 0 to 9 turns on compiled mode. Each unique source is then
+ * compiled to Java bytecode once and the one compiled script is executed in
+ * the scope of every Script node that uses that source. Compiled scripts keep
+ * no state of their own, so the cache may be shared between threads. The
+ * least recently used entries are dropped once the cache is full.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class CompiledScriptCache {
+
+    /** Property giving the Rhino optimization level to run scripts at */
+    private static final String OPTIMIZATION_LEVEL_PROP =
+        "org.web3d.vrml.scripting.ecmascript.optimizationLevel";
+
+    /** The interpreted mode optimization level */
+    private static final int INTERPRETED = -1;
+
+    /** The highest optimization level Rhino supports */
+    private static final int MAX_OPTIMIZATION_LEVEL = 9;
+
+    /** The largest number of compiled scripts held */
+    private static final int MAX_SCRIPTS = 256;
+
+    /** The optimization level scripts are run at */
+    private static volatile int optimizationLevel;
+
+    /** Compiled scripts, keyed by source name and then source */
+    private static final Map<String, CompiledEntry> scripts;
+
+    /**
+     * A cache entry. The entry is put in the cache before the source is
+     * compiled, and compiling is locked on the entry alone, so that
+     * different sources compile in parallel while the same source is only
+     * compiled once.
+     */
+    private static class CompiledEntry {
+        /** The compiled script, or null until compiled */
+        Script script;
+    }
+
+    static {
+        int level =
+            PropertyTools.fetchSystemProperty(OPTIMIZATION_LEVEL_PROP, INTERPRETED);
+
+        setOptimizationLevel(level);
+
+        scripts = new LinkedHashMap<String, CompiledEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledEntry> eldest) {
+                return size() > MAX_SCRIPTS;
+            }
+        };
+    }
+
+    /**
+     * Static class, no instances.
+     */
+    private CompiledScriptCache() {
+    }
+
+    /**
+     * Get the optimization level that contexts should be entered with.
+     *
+     * @return -1 for interpreted mode or a level from 0 to 9
+     */
+    static int getOptimizationLevel() {
+        return optimizationLevel;
+    }
+
+    /**
+     * Change the optimization level. Scripts already initialised keep the
+     * mode they were started with. Levels outside the range Rhino supports
+     * are clamped to it.
+     *
+     * @param level -1 for interpreted mode or a level from 0 to 9
+     */
+    static void setOptimizationLevel(int level) {
+        optimizationLevel =
+            Math.max(INTERPRETED, Math.min(level, MAX_OPTIMIZATION_LEVEL));
+    }
+
+    /**
+     * Check to see if scripts are compiled and shared through this cache.
+     *
+     * @return true when compiled mode was asked for
+     */
+    static boolean isCompiling() {
+        return optimizationLevel != INTERPRETED;
+    }
+
+    /**
+     * Fetch the compiled form of the source, compiling it with the given
+     * context if it has not been seen before. The cache is not locked while
+     * compiling. Source that does not compile is not cached, so the errors
+     * are reported again for every node that uses it.
+     *
+     * @param context The entered context to compile with
+     * @param source The script source
+     * @param sourceName The name used for the source in error messages
+     * @return The compiled script
+     */
+    static Script getScript(Context context, String source, String sourceName) {
+        String key = sourceName + '\n' + source;
+        CompiledEntry entry;
+
+        synchronized(scripts) {
+            entry = scripts.get(key);
+
+            if(entry == null) {
+                entry = new CompiledEntry();
+                scripts.put(key, entry);
+            }
+        }
+
+        synchronized(entry) {
+            if(entry.script == null) {
+                try {
+                    entry.script = context.compileString(source, sourceName, 1, null);
+                } finally {
+                    if(entry.script == null) {
+                        synchronized(scripts) {
+                            scripts.remove(key, entry);
+                        }
+                    }
+                }
+            }
+
+            return entry.script;
+        }
+    }
+}
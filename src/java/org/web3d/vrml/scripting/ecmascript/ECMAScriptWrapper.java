@@ -14,6 +14,7 @@ package org.web3d.vrml.scripting.ecmascript;
 
 // External imports
 import java.util.*;
+import java.util.regex.Pattern;
 
 import org.mozilla.javascript.*;
 
@@ -43,7 +44,7 @@ import org.web3d.vrml.scripting.ecmascript.x3d.Scene;
  * listing dynamically.
  *
  * @author Justin Couch
- * @version $Revision: 1.49 $
+ * @version $Revision: 1.52 $
  */
 class ECMAScriptWrapper implements ScriptWrapper {
 
@@ -53,6 +54,10 @@ class ECMAScriptWrapper implements ScriptWrapper {
     /** Representation of an empty argument list */
     private static final Object[] EMPTY_ARGS = {};
 
+    /** Names that give script code access to the browser or other nodes */
+    private static final Pattern SCENE_ACCESS =
+        Pattern.compile("\\b(Browser|SFNode|MFNode)\\b");
+
     /**
      * The standard names we don't pass into the script system. Filled in
      * by the static initializer.
@@ -128,6 +133,12 @@ class ECMAScriptWrapper implements ScriptWrapper {
      */
     private boolean sceneChanged;
 
+    /** Field objects reused for event values, null if not reused */
+    private EventValuePool eventValues;
+
+    /** True if the source never names the browser or node types */
+    private final boolean selfContained;
+
     /** Function object representing the prepareEvents method. Null if none */
     private Function prepareEventsFunction;
 
@@ -176,12 +187,13 @@ class ECMAScriptWrapper implements ScriptWrapper {
             throw new IllegalArgumentException("Bad script init. Null node");
 
         context = Context.enter();
-        context.setOptimizationLevel(-1);
+        context.setOptimizationLevel(CompiledScriptCache.getOptimizationLevel());
         Context.setCachingEnabled(true);
         context.setLanguageVersion(Context.VERSION_1_5);
 
         sourceString = sc.trim();
         sourceUrl = (url != null) ? url : INTERNAL_SOURCE;
+        selfContained = !SCENE_ACCESS.matcher(sourceString).find();
 
         float2 = new float[2];
         float3 = new float[3];
@@ -191,6 +203,7 @@ class ECMAScriptWrapper implements ScriptWrapper {
         double3 = new double[3];
 
         functionArgs = new Object[2];
+        eventValues = EventValuePool.create();
         timestampArg = new Object[1];
 
         scope = new X3DScriptContext(b, globalScope, fac);
@@ -502,7 +515,13 @@ class ECMAScriptWrapper implements ScriptWrapper {
         // been registered as properties. Ignore the return result, because
         // there is none at this point.
         try {
-            context.evaluateString(scope, sourceString, sourceUrl, 1, null);
+            if(CompiledScriptCache.isCompiling()) {
+                Script compiled =
+                    CompiledScriptCache.getScript(context, sourceString, sourceUrl);
+                compiled.exec(context, scope);
+            } else {
+                context.evaluateString(scope, sourceString, sourceUrl, 1, null);
+            }
 
             // call initialise on the script.
             Object function = scope.get("initialize", scope);
@@ -694,6 +713,15 @@ class ECMAScriptWrapper implements ScriptWrapper {
     public void queueEvent(int type, String name, float[] value, int numValid) {
         context = Context.enter();
 
+        if(eventValues != null) {
+            Object pooled = eventValues.getValue(type, name, value, numValid);
+
+            if(pooled != null) {
+                callScriptFunction(name, pooled);
+                return;
+            }
+        }
+
         Object field;
 
         switch(type) {
@@ -771,6 +799,15 @@ class ECMAScriptWrapper implements ScriptWrapper {
      */
     @Override
     public void queueEvent(int type, String name, double[] value, int numValid) {
+        if(eventValues != null) {
+            Object pooled = eventValues.getValue(type, name, value);
+
+            if(pooled != null) {
+                callScriptFunction(name, pooled);
+                return;
+            }
+        }
+
         Object field;
 
         switch(type) {
@@ -960,6 +997,18 @@ class ECMAScriptWrapper implements ScriptWrapper {
         exitContext();
     }
 
+    /**
+     * Check to see if the script code only works with its own fields. The
+     * source is taken to be self contained when it never names the Browser
+     * object or the node field types.
+     *
+     * @return true if the source does not reach outside the script
+     */
+    @Override
+    public boolean isSelfContained() {
+        return selfContained;
+    }
+
     /**
      * Called when the Script node is deleted. We free everything here to
      * allow the GC to do its magic.
@@ -1403,7 +1452,7 @@ class ECMAScriptWrapper implements ScriptWrapper {
      */
     private void enterContext() {
         context = Context.enter();
-        context.setOptimizationLevel(-1);
+        context.setOptimizationLevel(CompiledScriptCache.getOptimizationLevel());
 
         // Implementation Note:
         // Set the error reporter. This is a bit ugly checking on every method
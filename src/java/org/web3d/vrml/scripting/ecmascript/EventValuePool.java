@@ -0,0 +1,224 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.ecmascript;
+
+// External imports
+import java.util.HashMap;
+import java.util.Map;
+
+// Local imports
+import org.web3d.util.PropertyTools;
+import org.web3d.vrml.lang.FieldConstants;
+import org.web3d.vrml.scripting.ecmascript.builtin.*;
+
+/**
+ * Per-script pool of the field objects that event values are handed to the
+ * script in.
+ * <p>
+ *
+ * Normally a new field object is created for every event sent to a script,
+ * which makes a lot of garbage for scripts driven by interpolators every
+ * frame. When the system property
+ * <code>org.web3d.vrml.scripting.ecmascript.reuseEventValues</code> is set
+ * to true, each input field of a script keeps one field object that is
+ * rewritten with each new event value. A script that wants to keep a value
+ * past the end of the call must then copy it, as the object it was given
+ * changes with the next event.
+ * <p>
+ *
+ * Only the types whose values are objects to the script are pooled: the
+ * colour, rotation and vector types and the MF arrays of them. Numbers,
+ * strings, images and nodes are handed over as before. Numbers are values in
+ * ECMAScript, so a script that kept a reused number would see it change.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class EventValuePool {
+
+    /** Property turning on the reuse of event values */
+    private static final String REUSE_VALUES_PROP =
+        "org.web3d.vrml.scripting.ecmascript.reuseEventValues";
+
+    /** Should event values be reused */
+    private static volatile boolean reuseValues;
+
+    /** The field object held for each input field name */
+    private final Map<String, Object> values;
+
+    static {
+        reuseValues = PropertyTools.fetchSystemProperty(REUSE_VALUES_PROP, false);
+    }
+
+    /**
+     * Create a new, empty pool.
+     */
+    private EventValuePool() {
+        values = new HashMap<>();
+    }
+
+    /**
+     * Change whether event values are reused. Scripts already created keep
+     * the setting they were created with.
+     *
+     * @param reuse true to reuse event values
+     */
+    static void setReuseValues(boolean reuse) {
+        reuseValues = reuse;
+    }
+
+    /**
+     * Check to see if event values are reused.
+     *
+     * @return true when values are reused
+     */
+    static boolean isReusingValues() {
+        return reuseValues;
+    }
+
+    /**
+     * Create a pool for a script if the reuse of event values has been asked
+     * for.
+     *
+     * @return A new pool, or null if values are not reused
+     */
+    static EventValuePool create() {
+        return reuseValues ? new EventValuePool() : null;
+    }
+
+    /**
+     * Get the field object for a float based event value, updated to the
+     * new value.
+     *
+     * @param type The type of the field, from FieldConstants
+     * @param name The name of the field the event is for
+     * @param value The new value
+     * @param numValid The number of valid values in the array
+     * @return The field object, or null if the type is not pooled
+     */
+    Object getValue(int type, String name, float[] value, int numValid) {
+        Object held = values.get(name);
+        Object ret_val = held;
+
+        switch(type) {
+            case FieldConstants.SFCOLOR:
+                if(ret_val instanceof SFColor)
+                    ((SFColor)ret_val).setRawData(value);
+                else
+                    ret_val = new SFColor(value);
+                break;
+
+            case FieldConstants.SFCOLORRGBA:
+                if(ret_val instanceof SFColorRGBA)
+                    ((SFColorRGBA)ret_val).setRawData(value);
+                else
+                    ret_val = new SFColorRGBA(value);
+                break;
+
+            case FieldConstants.SFROTATION:
+                if(ret_val instanceof SFRotation)
+                    ((SFRotation)ret_val).setRawData(value);
+                else
+                    ret_val = new SFRotation(value);
+                break;
+
+            case FieldConstants.SFVEC2F:
+                if(ret_val instanceof SFVec2f)
+                    ((SFVec2f)ret_val).setRawData(value);
+                else
+                    ret_val = new SFVec2f(value);
+                break;
+
+            case FieldConstants.SFVEC3F:
+                if(ret_val instanceof SFVec3f)
+                    ((SFVec3f)ret_val).setRawData(value);
+                else
+                    ret_val = new SFVec3f(value);
+                break;
+
+            case FieldConstants.MFCOLOR:
+                if(ret_val instanceof MFColor)
+                    ((MFColor)ret_val).resetRawData(value, numValid);
+                else
+                    ret_val = new MFColor(value, numValid);
+                break;
+
+            case FieldConstants.MFROTATION:
+                if(ret_val instanceof MFRotation)
+                    ((MFRotation)ret_val).resetRawData(value, numValid);
+                else
+                    ret_val = new MFRotation(value, numValid);
+                break;
+
+            case FieldConstants.MFVEC2F:
+                if(ret_val instanceof MFVec2f)
+                    ((MFVec2f)ret_val).resetRawData(value, numValid);
+                else
+                    ret_val = new MFVec2f(value, numValid);
+                break;
+
+            case FieldConstants.MFVEC3F:
+                if(ret_val instanceof MFVec3f)
+                    ((MFVec3f)ret_val).resetRawData(value, numValid);
+                else
+                    ret_val = new MFVec3f(value, numValid);
+                break;
+
+            default:
+                return null;
+        }
+
+        if(ret_val != held)
+            values.put(name, ret_val);
+
+        return ret_val;
+    }
+
+    /**
+     * Get the field object for a double based event value, updated to the
+     * new value.
+     *
+     * @param type The type of the field, from FieldConstants
+     * @param name The name of the field the event is for
+     * @param value The new value
+     * @return The field object, or null if the type is not pooled
+     */
+    Object getValue(int type, String name, double[] value) {
+        Object held = values.get(name);
+        Object ret_val = held;
+
+        switch(type) {
+            case FieldConstants.SFVEC2D:
+                if(ret_val instanceof SFVec2d)
+                    ((SFVec2d)ret_val).setRawData(value);
+                else
+                    ret_val = new SFVec2d(value);
+                break;
+
+            case FieldConstants.SFVEC3D:
+                if(ret_val instanceof SFVec3d)
+                    ((SFVec3d)ret_val).setRawData(value);
+                else
+                    ret_val = new SFVec3d(value);
+                break;
+
+            default:
+                return null;
+        }
+
+        if(ret_val != held)
+            values.put(name, ret_val);
+
+        return ret_val;
+    }
+}
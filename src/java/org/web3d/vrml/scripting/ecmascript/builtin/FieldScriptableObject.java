@@ -16,6 +16,7 @@ package org.web3d.vrml.scripting.ecmascript.builtin;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.j3d.util.DefaultErrorReporter;
 
@@ -35,7 +36,7 @@ import org.mozilla.javascript.Scriptable;
  * modified.
  *
  * @author Justin Couch
- * @version $Revision: 1.6 $
+ * @version $Revision: 1.7 $
  */
 public abstract class FieldScriptableObject implements Scriptable {
 
@@ -65,6 +66,13 @@ public abstract class FieldScriptableObject implements Scriptable {
 
     private static final Object[] EMPTY_IDS = new Object[0];
 
+    /**
+     * The public methods of each field class. Class.getMethods() copies every
+     * method on each call, so it is only called once per class.
+     */
+    private static final Map<Class<?>, Method[]> CLASS_METHODS =
+        new ConcurrentHashMap<>();
+
     /** The parent scope of this object */
     private Scriptable parentScope;
 
@@ -80,7 +88,7 @@ public abstract class FieldScriptableObject implements Scriptable {
     /** Flag to say this field is read only (directOutput == true) */
     protected boolean readOnly;
 
-    /** The function objects to maintain */
+    /** The function objects to maintain. Created when the first is registered */
     private Map<String, Object> functionObjects;
 
     /**
@@ -97,7 +105,6 @@ public abstract class FieldScriptableObject implements Scriptable {
      */
     protected FieldScriptableObject(String name) {
         className = name;
-        functionObjects = new HashMap<>();
         readOnly = false;
     }
 
@@ -127,7 +134,7 @@ public abstract class FieldScriptableObject implements Scriptable {
 
     @Override
     public boolean has(String name, Scriptable start) {
-        return functionObjects.containsKey(name);
+        return (functionObjects != null) && functionObjects.containsKey(name);
     }
 
     @Override
@@ -145,7 +152,7 @@ public abstract class FieldScriptableObject implements Scriptable {
      */
     @Override
     public Object get(String name, Scriptable start) {
-        return functionObjects.get(name);
+        return (functionObjects != null) ? functionObjects.get(name) : null;
     }
 
     /**
@@ -265,6 +272,9 @@ public abstract class FieldScriptableObject implements Scriptable {
      * @param value The object to keep this as
      */
     protected void registerFunction(String name, Object value) {
+        if(functionObjects == null)
+            functionObjects = new HashMap<>();
+
         functionObjects.put(name, value);
     }
 
@@ -284,7 +294,8 @@ public abstract class FieldScriptableObject implements Scriptable {
     protected FunctionObject locateFunction(String methodName) {
         String real_name = JS_FUNCTION_PREFIX + methodName;
 
-        Method[] methods = getClass().getMethods();
+        Method[] methods =
+            CLASS_METHODS.computeIfAbsent(getClass(), Class::getMethods);
 
         Method method = null;
         for (Method m : methods) {
@@ -27,7 +27,7 @@ import org.j3d.util.HashSet;
  *  <p>
  *
  * @author Justin Couch
- * @version $Revision: 1.15 $
+ * @version $Revision: 1.16 $
  */
 public class MFRotation extends FieldScriptableObject {
 
@@ -444,6 +444,55 @@ public class MFRotation extends FieldScriptableObject {
         sizeInt.setValue(numValid);
     }
 
+    /**
+     * Replace the values with a new set from the underlying model, writing
+     * them into the element objects already held where possible. Used when
+     * the one instance is handed to a script for each new event. Unlike
+     * updateRawData(), any local changes are thrown away, including elements
+     * the script has replaced with its own objects.
+     *
+     * @param values The list of values to use
+     * @param numValid The number of valid values to copy from the array
+     */
+    public void resetRawData(float[] values, int numValid) {
+        int elements = numValid / 4;
+
+        if(dataChanged) {
+            valueList.clear();
+            dataChanged = false;
+        }
+
+        while(valueList.size() > elements)
+            valueList.remove(valueList.size() - 1);
+
+        if(workArray == null)
+            workArray = new float[4];
+
+        int idx = 0;
+        for(int i = 0; i < elements; i++) {
+            workArray[0] = values[idx++];
+            workArray[1] = values[idx++];
+            workArray[2] = values[idx++];
+            workArray[3] = values[idx++];
+
+            SFRotation n = (i < valueList.size()) ? valueList.get(i) : null;
+
+            if(n != null) {
+                n.setRawData(workArray);
+            } else {
+                n = new SFRotation(workArray);
+                n.setParentScope(this);
+
+                if(i < valueList.size())
+                    valueList.set(i, n);
+                else
+                    valueList.add(n);
+            }
+        }
+
+        sizeInt.setValue(elements);
+    }
+
     /**
      * Get the data in this node in its raw form as an array of primitives.
      *
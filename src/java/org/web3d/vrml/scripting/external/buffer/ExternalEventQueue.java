@@ -13,6 +13,12 @@
 package org.web3d.vrml.scripting.external.buffer;
 
 // External imports
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.j3d.util.DefaultErrorReporter;
 import org.j3d.util.ErrorReporter;
 import org.j3d.util.HashSet;
@@ -20,6 +26,7 @@ import org.j3d.util.HashSet;
 // Local imports
 import org.web3d.browser.BrowserCore;
 import org.web3d.util.ObjectArray;
+import org.web3d.util.PropertyTools;
 import org.web3d.vrml.nodes.VRMLNodeType;
 import org.web3d.vrml.scripting.browser.VRML97CommonBrowser;
 import org.web3d.x3d.sai.X3DField;
@@ -27,6 +34,8 @@ import org.web3d.x3d.sai.X3DFieldDefinition;
 
 import org.xj3d.core.eventmodel.ExternalView;
 
+import vrml.eai.field.EventIn;
+
 /** The ExternalEventQueue provides the update batching functionality for the
   * EAI browser and the external SAI browser.
   *  This class handles the buffering of event setValue calls and the
@@ -53,6 +62,21 @@ import org.xj3d.core.eventmodel.ExternalView;
   * The responsibility for registering the event queue with the appropriate
   * triggering mechanisms (current the EventModelEvaluator) is external
   * to this class.
+  *  <p>
+  * In coalescing mode, events sent outside of beginUpdate/endUpdate are
+  * posted to a lock free queue instead of being added under the eventLock,
+  * and when the events are processed only the last setValue for each node
+  * and field is kept.  This is for applications such as trackers which set
+  * the same fields many times a frame.  A coalesced event stays in the
+  * place of the first event for its field, so the events for other fields
+  * keep their order.  set1Value events are never coalesced, and events
+  * which are not field events (routes, node realization) are never passed
+  * by field events on either side of them.  The queue may also be given a
+  * capacity, at which point producers either wait for the next frame or
+  * have their events dropped.  The counters for the number of events
+  * coalesced and dropped are kept in both cases.  The mode is chosen with
+  * the system properties named by COALESCE_PROP, CAPACITY_PROP and
+  * OVERFLOW_PROP, or with the matching constructor.
   */
 public class ExternalEventQueue implements ExternalView, NodeRealizationProcessor {
 
@@ -61,6 +85,33 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
      */
     static final int INITIAL_EVENT_QUEUE_SIZE = 20;
 
+    /** Property for turning on coalescing mode */
+    public static final String COALESCE_PROP =
+        "org.web3d.vrml.scripting.external.buffer.coalesce";
+
+    /** Property for the capacity of a coalescing queue, 0 for unbounded */
+    public static final String CAPACITY_PROP =
+        "org.web3d.vrml.scripting.external.buffer.capacity";
+
+    /** Property for the overflow policy, either "block" or "drop" */
+    public static final String OVERFLOW_PROP =
+        "org.web3d.vrml.scripting.external.buffer.overflow";
+
+    /** Producers wait for the queue to be processed when it is full */
+    public static final int OVERFLOW_BLOCK = 0;
+
+    /** Events posted while the queue is full are discarded */
+    public static final int OVERFLOW_DROP = 1;
+
+    /** Mapping of the overflow property values to policies */
+    private static final Map<String, Integer> OVERFLOW_POLICIES;
+
+    static {
+        OVERFLOW_POLICIES = new HashMap<>();
+        OVERFLOW_POLICIES.put("block", OVERFLOW_BLOCK);
+        OVERFLOW_POLICIES.put("drop", OVERFLOW_DROP);
+    }
+
     /**
      * Used for matching set1Value calls. Since EventIn's which are targeted at
      * the same (node,id) pair are equal and have the same hashCode, this is
@@ -83,7 +134,61 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
     /**
      * Are events being processed immediately or being queued?
      */
-    private boolean queueing;
+    private volatile boolean queueing;
+
+    /**
+     * Are events posted to incomingEvents and coalesced when processed?
+     */
+    private final boolean coalescing;
+
+    /**
+     * The largest number of events waiting in incomingEvents before the
+     * overflow policy applies, or 0 for no limit.
+     */
+    private final int capacity;
+
+    /**
+     * What to do with events posted when incomingEvents is full.
+     */
+    private final int overflowPolicy;
+
+    /**
+     * The events posted in coalescing mode. Any thread may add to this, but
+     * only processEvents removes from it.
+     */
+    private final ConcurrentLinkedQueue<ExternalEvent> incomingEvents;
+
+    /**
+     * The number of events in incomingEvents.
+     */
+    private final AtomicInteger queueDepth;
+
+    /**
+     * The number of events replaced by a later event for the same field.
+     */
+    private final AtomicLong coalescedCount;
+
+    /**
+     * The number of events discarded because the queue was full.
+     */
+    private final AtomicLong droppedCount;
+
+    /**
+     * Lock which producers wait on while the queue is full.
+     */
+    private final Object capacityLock;
+
+    /**
+     * Index in eventsInProcessing of the event for each field, used while
+     * coalescing the incoming events.
+     */
+    private HashMap<ExternalEvent, Integer> coalesceSlots;
+
+    /**
+     * The thread which last processed the events. It is never made to wait
+     * for a full queue, since only it can empty the queue.
+     */
+    private volatile Thread eventThread;
 
     /**
      * The ErrorReporter to send messages to
@@ -108,11 +213,42 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
     ObjectArray eventsInProcessing;
 
     /**
-     * Basic constructor.
+     * Basic constructor. Coalescing mode is turned on with the system
+     * properties.
      *
      * @param reporter The ErrorReporter to use.
      */
     public ExternalEventQueue(ErrorReporter reporter) {
+        this(reporter,
+             PropertyTools.fetchSystemProperty(COALESCE_PROP, false),
+             PropertyTools.fetchSystemProperty(CAPACITY_PROP, 0),
+             PropertyTools.fetchSystemProperty(OVERFLOW_PROP,
+                                               OVERFLOW_BLOCK,
+                                               OVERFLOW_POLICIES));
+    }
+
+    /**
+     * Construct a queue with the given coalescing behaviour.
+     *
+     * @param reporter The ErrorReporter to use.
+     * @param coalesce true to coalesce the events for each field in a frame
+     * @param capacity The number of events which may wait in coalescing
+     *    mode before the overflow policy applies, or 0 for no limit
+     * @param overflow OVERFLOW_BLOCK or OVERFLOW_DROP
+     */
+    public ExternalEventQueue(ErrorReporter reporter,
+                              boolean coalesce,
+                              int capacity,
+                              int overflow) {
+        coalescing = coalesce;
+        this.capacity = Math.max(capacity, 0);
+        overflowPolicy = overflow;
+        incomingEvents = new ConcurrentLinkedQueue<>();
+        queueDepth = new AtomicInteger();
+        coalescedCount = new AtomicLong();
+        droppedCount = new AtomicLong();
+        capacityLock = new Object();
+        coalesceSlots = new HashMap<>();
         eventLock = new Object();
         eventQueue = new ObjectArray(INITIAL_EVENT_QUEUE_SIZE);
         conglomerativeEvents = new HashSet<>();
@@ -139,14 +275,25 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
      * isn't an error to call this multiple times, but extra calls are ignored.
      */
     public void endUpdate() {
+        Object[] batch = null;
         synchronized (eventLock) {
             if (queueing) {
                 queueing = false;
-                waitingQueue.addAll(eventQueue);
+                if (coalescing) {
+                    batch = eventQueue.toArray();
+                } else {
+                    waitingQueue.addAll(eventQueue);
+                }
                 eventQueue.clear();
                 conglomerativeEvents.clear();
             }
         }
+        // Posted outside of the lock since it may wait for a full queue
+        if (batch != null && batch.length != 0 && admit(batch.length)) {
+            for (Object event : batch) {
+                incomingEvents.add((ExternalEvent) event);
+            }
+        }
     }
 
     /**
@@ -275,18 +422,26 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
      * @param event
      */
     public void processEvent(ExternalEvent event) {
-        synchronized (eventLock) {
-            if (queueing) {
-                eventQueue.add(event);
-                if (event.isConglomerating()) {
-                    conglomerativeEvents.add(event);
-                } else {
-                    conglomerativeEvents.remove(event);
+        if (!coalescing || queueing) {
+            synchronized (eventLock) {
+                if (queueing) {
+                    eventQueue.add(event);
+                    if (event.isConglomerating()) {
+                        conglomerativeEvents.add(event);
+                    } else {
+                        conglomerativeEvents.remove(event);
+                    }
+                    return;
+                } else if (!coalescing) {
+                    waitingQueue.add(event);
+                    return;
                 }
-            } else {
-                waitingQueue.add(event);
             }
         }
+        // Coalescing mode doesn't need the eventLock to post an event
+        if (admit(1)) {
+            incomingEvents.add(event);
+        }
     }
 
     /**
@@ -299,6 +454,55 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
         realizingNodes.clear();
         waitingQueue.clear();
         eventsInProcessing.clear();
+        incomingEvents.clear();
+        queueDepth.set(0);
+        synchronized (capacityLock) {
+            capacityLock.notifyAll();
+        }
+    }
+
+    /**
+     * Is this queue coalescing events?
+     *
+     * @return true if only the last event for each field in a frame is kept
+     */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Get the number of events waiting for the next frame. Events queued
+     * between beginUpdate and endUpdate aren't counted until endUpdate.
+     *
+     * @return The number of waiting events
+     */
+    public int getQueueDepth() {
+        if (coalescing) {
+            return queueDepth.get();
+        }
+        synchronized (eventLock) {
+            return waitingQueue.size();
+        }
+    }
+
+    /**
+     * Get the number of events which were replaced by a later event for the
+     * same field before they could be processed.
+     *
+     * @return The number of coalesced events since the queue was created
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Get the number of events which were discarded because the queue was
+     * full.
+     *
+     * @return The number of dropped events since the queue was created
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
     }
 
     /***********************************************************************
@@ -317,12 +521,17 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
          to get the to event list.  This is to deal better with
          having multiple tight event loops, but since its only
          swapping buffers. */
-        synchronized (eventLock) {
-            // Just swap the buffers, since the working buffer gets
-            // cleared at the end of this method.
-            ObjectArray temp = waitingQueue;
-            waitingQueue = eventsInProcessing;
-            eventsInProcessing = temp;
+        eventThread = Thread.currentThread();
+        if (coalescing) {
+            drainIncomingEvents();
+        } else {
+            synchronized (eventLock) {
+                // Just swap the buffers, since the working buffer gets
+                // cleared at the end of this method.
+                ObjectArray temp = waitingQueue;
+                waitingQueue = eventsInProcessing;
+                eventsInProcessing = temp;
+            }
         }
         //processEvents should be the only code to use eventsInProcessing.
         int i;
@@ -354,6 +563,84 @@ public class ExternalEventQueue implements ExternalView, NodeRealizationProcesso
         errorReporter = reporter;
     }
 
+    /**
+     * Move the incoming events into eventsInProcessing, keeping only the
+     * last setValue for each field between the events that aren't for a
+     * field. Wakes any producers waiting for space.
+     */
+    private void drainIncomingEvents() {
+        int drained = 0;
+        ExternalEvent event;
+        while ((event = incomingEvents.poll()) != null) {
+            drained++;
+            if (!(event instanceof X3DField || event instanceof EventIn)) {
+                // Field events may not pass this event in either direction
+                coalesceSlots.clear();
+            } else if (event.isConglomerating()) {
+                // set1Value events keep their place, so later values for
+                // the field have to come after them.
+                coalesceSlots.remove(event);
+            } else {
+                Integer slot = coalesceSlots.get(event);
+                if (slot != null) {
+                    eventsInProcessing.set(slot, event);
+                    coalescedCount.incrementAndGet();
+                    continue;
+                }
+                coalesceSlots.put(event, eventsInProcessing.size());
+            }
+            eventsInProcessing.add(event);
+        }
+        coalesceSlots.clear();
+        if (drained != 0) {
+            queueDepth.addAndGet(-drained);
+            if (capacity != 0) {
+                synchronized (capacityLock) {
+                    capacityLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Make room for events in incomingEvents, applying the overflow policy
+     * when the queue is full. A batch is let in as a whole when there is
+     * any space so that the events of an update are never split.
+     *
+     * @param count The number of events to be added
+     * @return true if the events may be added, false if they were dropped
+     */
+    private boolean admit(int count) {
+        if (capacity == 0 || Thread.currentThread() == eventThread) {
+            queueDepth.addAndGet(count);
+            return true;
+        }
+        while (true) {
+            int depth = queueDepth.get();
+            if (depth < capacity) {
+                if (queueDepth.compareAndSet(depth, depth + count)) {
+                    return true;
+                }
+                continue;
+            }
+            if (overflowPolicy == OVERFLOW_DROP) {
+                droppedCount.addAndGet(count);
+                return false;
+            }
+            synchronized (capacityLock) {
+                try {
+                    while (queueDepth.get() >= capacity) {
+                        capacityLock.wait();
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.addAndGet(count);
+                    return false;
+                }
+            }
+        }
+    }
+
     /***********************************************************************
      * Methods for NodeRealizationProcessor
      ***********************************************************************/
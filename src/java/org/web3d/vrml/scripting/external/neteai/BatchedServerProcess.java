@@ -0,0 +1,330 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.IOException;
+
+import java.net.StandardSocketOptions;
+
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+// Local imports
+import org.web3d.browser.BrowserCore;
+import org.web3d.browser.BrowserCoreListener;
+
+import org.web3d.vrml.nodes.VRMLClock;
+import org.web3d.vrml.nodes.VRMLScene;
+import org.web3d.vrml.nodes.VRMLTimeListener;
+
+/**
+ * Serves batched connections for many clients from a single thread using
+ * non-blocking channels.
+ * <p>
+ *
+ * This is the batched counterpart of {@link ServerProcess}. One selector
+ * thread accepts connections and reads and writes the channels of all of
+ * the clients, with each connection handled by a
+ * {@link BatchedServerSession}. The process also listens to the clock so
+ * that every session can send the field changes of a frame as one message
+ * when the next frame starts. Only clients that open a batched connection
+ * are accepted.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class BatchedServerProcess
+    implements Runnable, VRMLTimeListener, BrowserCoreListener {
+
+    /** The clock for generating time stamps and frame ticks */
+    private final VRMLClock timeClock;
+
+    /** Factory for generating ServerBrowser instances */
+    private final ServerBrowserFactory serverBrowserFactory;
+
+    /** The core that loads worlds into the browser */
+    private final BrowserCore browserCore;
+
+    /** The channel to accept connections on */
+    private final ServerSocketChannel serverChannel;
+
+    /** Selector for the server channel and all client channels */
+    private final Selector selector;
+
+    /** All of the open sessions */
+    private final CopyOnWriteArrayList<BatchedServerSession> sessions;
+
+    /** Sessions with frames queued by other threads since the last select */
+    private final ConcurrentLinkedQueue<BatchedServerSession> writeRequests;
+
+    /** Reporter instance for handing out errors */
+    private volatile ErrorReporter errorReporter;
+
+    /**
+     * Create a process which will accept batched connections on a channel.
+     *
+     * @param channel The channel to accept on
+     * @param browserFactory Factory for the browser of each connection
+     * @param core The core that the browser runs on
+     * @param clock The clock that ticks once a frame
+     * @throws IOException The channel could not be set up
+     */
+    public BatchedServerProcess(ServerSocketChannel channel,
+                                ServerBrowserFactory browserFactory,
+                                BrowserCore core,
+                                VRMLClock clock)
+        throws IOException {
+
+        serverChannel = channel;
+        serverBrowserFactory = browserFactory;
+        browserCore = core;
+        timeClock = clock;
+
+        sessions = new CopyOnWriteArrayList<>();
+        writeRequests = new ConcurrentLinkedQueue<>();
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        selector = Selector.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        timeClock.addTimeListener(this);
+
+        if(browserCore != null)
+            browserCore.addCoreListener(this);
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by Runnable
+    //----------------------------------------------------------
+
+    /**
+     * Run the selector loop until the server channel is closed.
+     */
+    @Override
+    public void run() {
+        while(serverChannel.isOpen()) {
+            try {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if(!key.isValid())
+                        continue;
+
+                    if(key.isAcceptable()) {
+                        acceptConnection();
+                        continue;
+                    }
+
+                    BatchedServerSession session =
+                        (BatchedServerSession)key.attachment();
+
+                    try {
+                        if(key.isReadable() && !session.readData()) {
+                            closeSession(key);
+                            continue;
+                        }
+
+                        if(key.isValid() && key.isWritable() &&
+                           session.writeData())
+                            key.interestOps(SelectionKey.OP_READ);
+                    } catch(IOException | RuntimeException e) {
+                        e.printStackTrace(System.err);
+                        closeSession(key);
+                    }
+                }
+
+                BatchedServerSession session;
+
+                while((session = writeRequests.poll()) != null) {
+                    SelectionKey key = session.getChannel().keyFor(selector);
+
+                    if(key != null && key.isValid())
+                        key.interestOps(SelectionKey.OP_READ |
+                                        SelectionKey.OP_WRITE);
+                }
+            } catch(ClosedSelectorException cse) {
+                break;
+            } catch(IOException ioe) {
+                ioe.printStackTrace(System.err);
+            }
+        }
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by VRMLTimeListener
+    //----------------------------------------------------------
+
+    /**
+     * Send the changes of the last frame to every client.
+     *
+     * @param time The current time
+     */
+    @Override
+    public void timeClick(long time) {
+        for(BatchedServerSession session : sessions)
+            session.flush();
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by BrowserCoreListener
+    //----------------------------------------------------------
+
+    /**
+     * The clock drops its listeners when a new world is loaded, so register
+     * for frame ticks again.
+     *
+     * @param scene The scene that was loaded
+     */
+    @Override
+    public void browserInitialized(VRMLScene scene) {
+        timeClock.addTimeListener(this);
+    }
+
+    /**
+     * Ignored.
+     *
+     * @param msg The error message
+     */
+    @Override
+    public void urlLoadFailed(String msg) {
+    }
+
+    /**
+     * Ignored.
+     */
+    @Override
+    public void browserShutdown() {
+    }
+
+    /**
+     * The browser has been disposed, so stop serving.
+     */
+    @Override
+    public void browserDisposed() {
+        shutdown();
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Register an error reporter with the process so that any errors
+     * generated by the connections accepted from now on can be reported in
+     * a nice manner. Setting a value of null will clear the currently set
+     * reporter and go back to the default.
+     *
+     * @param reporter The instance to use or null
+     */
+    public void setErrorReporter(ErrorReporter reporter) {
+        if(reporter == null)
+            reporter = DefaultErrorReporter.getDefaultReporter();
+
+        errorReporter = reporter;
+    }
+
+    /**
+     * Close the server channel and all of the client connections.
+     */
+    public void shutdown() {
+        timeClock.removeTimeListener(this);
+
+        if(browserCore != null)
+            browserCore.removeCoreListener(this);
+
+        try {
+            serverChannel.close();
+
+            for(BatchedServerSession session : sessions) {
+                session.close();
+                session.getChannel().close();
+            }
+
+            sessions.clear();
+            selector.close();
+        } catch(IOException ioe) {
+            ioe.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Note that a session has frames waiting to be written. May be called
+     * from any thread.
+     *
+     * @param session The session with frames waiting
+     */
+    void requestWrite(BatchedServerSession session) {
+        writeRequests.add(session);
+        selector.wakeup();
+    }
+
+    /**
+     * Accept a new connection and start a session for it.
+     *
+     * @throws IOException The connection could not be set up
+     */
+    private void acceptConnection() throws IOException {
+        SocketChannel client = serverChannel.accept();
+
+        if(client == null)
+            return;
+
+        client.configureBlocking(false);
+        client.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+
+        BatchedServerSession session =
+            new BatchedServerSession(client,
+                                     serverBrowserFactory.createBrowserInstance(),
+                                     timeClock,
+                                     this);
+        session.setErrorReporter(errorReporter);
+
+        client.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+    }
+
+    /**
+     * Close the connection of a session.
+     *
+     * @param key The selection key of the session
+     */
+    private void closeSession(SelectionKey key) {
+        BatchedServerSession session = (BatchedServerSession)key.attachment();
+        sessions.remove(session);
+        session.close();
+        key.cancel();
+
+        try {
+            key.channel().close();
+        } catch(IOException ioe) {
+            ioe.printStackTrace(System.err);
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+import org.j3d.util.IntHashMap;
+
+import vrml.eai.event.BrowserEvent;
+
+// Local imports
+import org.web3d.vrml.nodes.VRMLClock;
+import org.web3d.vrml.nodes.VRMLNodeType;
+import org.web3d.vrml.nodes.VRMLScene;
+
+/**
+ * The server side of a single batched connection, driven by the selector
+ * thread of a {@link BatchedServerProcess}.
+ * <p>
+ *
+ * Requests arrive in frames and are handled with the same code as the
+ * normal protocol, with the replies to a frame sent back as one frame.
+ * Field changes and browser events are not written as they happen. Instead
+ * the changed fields are remembered, once each, and {@link #flush()} sends
+ * their current values as a single broadcast at the end of each frame of
+ * the event model.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class BatchedServerSession extends ServerProcessingTask {
+
+    /**
+     * A field that broadcasts changes over this connection.
+     */
+    private static class PendingField {
+
+        /** The network ID of the field */
+        final int fieldID;
+
+        /** The node holding the field */
+        VRMLNodeType node;
+
+        /** The index of the field on the node */
+        int fieldIndex;
+
+        /** Set when the field has changed since the last flush */
+        boolean pending;
+
+        /**
+         * Create an entry for a field.
+         *
+         * @param fieldID The network ID of the field
+         */
+        PendingField(int fieldID) {
+            this.fieldID = fieldID;
+        }
+    }
+
+    /** Initial size of the read buffer */
+    private static final int READ_BUFFER_SIZE = 16384;
+
+    /** Initial size of the buffers used to build frames */
+    private static final int FRAME_BUFFER_SIZE = 4096;
+
+    /** Message for a frame that is too big */
+    private static final String BAD_FRAME_MSG = "Invalid frame length: ";
+
+    /** Message when the client does not open with the batched handshake */
+    private static final String BAD_HANDSHAKE_MSG =
+        "Improper handshake on batched EAI connection. Closing it.";
+
+    /** The channel to the client */
+    private final SocketChannel channel;
+
+    /** The process that does the reading and writing */
+    private final BatchedServerProcess process;
+
+    /** Frames waiting to be written to the channel */
+    private final ConcurrentLinkedQueue<ByteBuffer> writeQueue;
+
+    /** Data read from the channel and not processed yet */
+    private ByteBuffer readBuffer;
+
+    /** Has the connection handshake been done yet */
+    private boolean handshakeDone;
+
+    /** Set once the connection has closed */
+    private volatile boolean closed;
+
+    /** Replies to the frame being processed. Selector thread only */
+    private final FrameBuffer replyBytes;
+
+    /** Stream for writing replyBytes */
+    private final DataOutputStream replyOut;
+
+    /** Codec for the field values set by the client. Selector thread only */
+    private final FieldDeltaCodec setCodec;
+
+    /** The frame being broadcast. Guarded by writeLock */
+    private final FrameBuffer broadcastBytes;
+
+    /** Stream for writing broadcastBytes */
+    private final DataOutputStream broadcastOut;
+
+    /** The value of the field being broadcast. Guarded by writeLock */
+    private final FrameBuffer valueBytes;
+
+    /** Stream for writing valueBytes */
+    private final DataOutputStream valueOut;
+
+    /** Codec for the broadcast field values. Guarded by writeLock */
+    private final FieldDeltaCodec broadcastCodec;
+
+    /** Entry for each field that has changed. Guarded by writeLock */
+    private final IntHashMap<PendingField> fieldEntries;
+
+    /** The fields changed since the last flush, in order of first change */
+    private final List<PendingField> pendingFields;
+
+    /** Browser events since the last flush. Guarded by writeLock */
+    private int[] pendingBrowserEvents;
+
+    /** The number of valid items in pendingBrowserEvents */
+    private int numBrowserEvents;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Create a new session for a connection that has just been accepted.
+     *
+     * @param channel The channel to the client
+     * @param browser The browser to process requests on
+     * @param clock The clock for generating time stamps
+     * @param process The process that reads and writes the channel
+     */
+    BatchedServerSession(SocketChannel channel,
+                         ServerBrowser browser,
+                         VRMLClock clock,
+                         BatchedServerProcess process) {
+        super(browser, clock);
+
+        this.channel = channel;
+        this.process = process;
+
+        writeQueue = new ConcurrentLinkedQueue<>();
+        readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        replyBytes = new FrameBuffer(FRAME_BUFFER_SIZE);
+        replyOut = new DataOutputStream(replyBytes);
+        setCodec = new FieldDeltaCodec();
+
+        broadcastBytes = new FrameBuffer(FRAME_BUFFER_SIZE);
+        broadcastOut = new DataOutputStream(broadcastBytes);
+        valueBytes = new FrameBuffer(FRAME_BUFFER_SIZE);
+        valueOut = new DataOutputStream(valueBytes);
+        broadcastCodec = new FieldDeltaCodec();
+
+        fieldEntries = new IntHashMap<>();
+        pendingFields = new ArrayList<>();
+        pendingBrowserEvents = new int[4];
+
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by Runnable
+    //----------------------------------------------------------
+
+    /**
+     * Not used. All of the work is done by the selector thread of the
+     * process.
+     */
+    @Override
+    public void run() {
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by FieldChangeTransmitter
+    //----------------------------------------------------------
+
+    /**
+     * Note that a field has changed. The value is sent by the next flush.
+     *
+     * @param fieldID Network field ID for this field
+     * @param node The node to get field value from
+     * @param fieldIndex The field's index on the node
+     */
+    @Override
+    public void transmitFieldChanged(int fieldID, VRMLNodeType node,
+            int fieldIndex) {
+        if (closed)
+            return;
+
+        synchronized (writeLock) {
+            PendingField entry = fieldEntries.get(fieldID);
+            if (entry == null) {
+                entry = new PendingField(fieldID);
+                fieldEntries.put(fieldID, entry);
+            }
+
+            if (!entry.pending) {
+                entry.pending = true;
+                pendingFields.add(entry);
+            }
+
+            entry.node = node;
+            entry.fieldIndex = fieldIndex;
+        }
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by BrowserCoreListener
+    //----------------------------------------------------------
+
+    /** * @see org.web3d.browser.BrowserCoreListener#browserInitialized(org.web3d.vrml.nodes.VRMLScene)  */
+    @Override
+    public void browserInitialized(VRMLScene scene) {
+        queueBrowserEvent(BrowserEvent.INITIALIZED);
+    }
+
+    /** * @see org.web3d.browser.BrowserCoreListener#urlLoadFailed(java.lang.String)  */
+    @Override
+    public void urlLoadFailed(String msg) {
+        queueBrowserEvent(BrowserEvent.URL_ERROR);
+    }
+
+    /** * @see org.web3d.browser.BrowserCoreListener#browserShutdown()  */
+    @Override
+    public void browserShutdown() {
+        queueBrowserEvent(BrowserEvent.SHUTDOWN);
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Register an error reporter with the session so that any errors
+     * generated can be reported in a nice manner. Setting a value of null
+     * will clear the currently set reporter and go back to the default.
+     *
+     * @param reporter The instance to use or null
+     */
+    void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Get the channel to the client.
+     *
+     * @return The channel
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Send everything that has changed since the last call as one frame.
+     * The field values are read now, so a field that changed several times
+     * is sent once with its latest value.
+     */
+    void flush() {
+        if (closed)
+            return;
+
+        synchronized (writeLock) {
+            int num_fields = pendingFields.size();
+
+            if (num_fields == 0 && numBrowserEvents == 0)
+                return;
+
+            broadcastBytes.reset();
+
+            try {
+                if (num_fields != 0) {
+                    broadcastOut.writeInt(
+                        NetworkProtocolConstants.EVENTOUT_CHANGED_BATCH_BROADCAST);
+                    broadcastOut.writeDouble(timeClock.getTime());
+                    broadcastOut.writeInt(num_fields);
+
+                    for (int i = 0; i < num_fields; i++) {
+                        PendingField entry = pendingFields.get(i);
+
+                        valueBytes.reset();
+                        transmitFieldValue(entry.fieldID,
+                                           entry.node,
+                                           entry.fieldIndex,
+                                           valueOut);
+
+                        broadcastOut.writeInt(entry.fieldID);
+                        broadcastCodec.writeValue(entry.fieldID,
+                                                  valueBytes.getBuffer(),
+                                                  valueBytes.size(),
+                                                  broadcastOut);
+                    }
+                }
+
+                for (int i = 0; i < numBrowserEvents; i++) {
+                    broadcastOut.writeInt(
+                        NetworkProtocolConstants.BROWSER_CHANGED_BROADCAST);
+                    broadcastOut.writeInt(pendingBrowserEvents[i]);
+                }
+            } catch (IOException ioe) {
+                // Can't happen when writing to memory
+                ioe.printStackTrace(System.err);
+                return;
+            } finally {
+                for (int i = 0; i < num_fields; i++) {
+                    PendingField entry = pendingFields.get(i);
+                    entry.pending = false;
+                    entry.node = null;
+                }
+
+                pendingFields.clear();
+                numBrowserEvents = 0;
+            }
+
+            // Queued while still locked so that the frames go out in the
+            // same order as the broadcast codec saw the values.
+            send(broadcastBytes.toFrame());
+        }
+    }
+
+    /**
+     * Read whatever data is available from the channel and process each
+     * complete frame.
+     *
+     * @return false if the connection should now be closed
+     * @throws IOException Error reading from the channel or a bad frame
+     */
+    boolean readData() throws IOException {
+        if (channel.read(readBuffer) < 0)
+            return false;
+
+        readBuffer.flip();
+
+        if (!handshakeDone) {
+            if (readBuffer.remaining() < 4) {
+                readBuffer.compact();
+                return true;
+            }
+
+            int checkByte = readBuffer.getInt();
+            if (checkByte != NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_BATCHED_CLIENT) {
+                errorReporter.warningReport(BAD_HANDSHAKE_MSG, null);
+                return false;
+            }
+
+            handshakeDone = true;
+
+            ByteBuffer reply = ByteBuffer.allocate(4);
+            reply.putInt(NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_BATCHED_SERVER);
+            reply.flip();
+            send(reply);
+        }
+
+        while (readBuffer.remaining() >= 4) {
+            int start = readBuffer.position();
+            int length = readBuffer.getInt(start);
+
+            if (length < 0 || length > NetworkProtocolConstants.MAX_FRAME_LENGTH)
+                throw new IOException(BAD_FRAME_MSG + length);
+
+            if (readBuffer.remaining() < length + 4) {
+                if (length + 4 > readBuffer.capacity()) {
+                    ByteBuffer tmp = ByteBuffer.allocate(length + 4);
+                    tmp.put(readBuffer);
+                    readBuffer = tmp;
+                    return true;
+                }
+
+                break;
+            }
+
+            processFrame(readBuffer.array(),
+                         readBuffer.arrayOffset() + start + 4,
+                         length);
+            readBuffer.position(start + length + 4);
+
+            if (!remainOpen)
+                return false;
+        }
+
+        readBuffer.compact();
+
+        return true;
+    }
+
+    /**
+     * Write as much of the waiting frames as the channel will take.
+     *
+     * @return true if everything has been written
+     * @throws IOException Error writing to the channel
+     */
+    boolean writeData() throws IOException {
+        ByteBuffer buf;
+
+        while ((buf = writeQueue.peek()) != null) {
+            channel.write(buf);
+
+            if (buf.hasRemaining())
+                return false;
+
+            writeQueue.poll();
+        }
+
+        return true;
+    }
+
+    /**
+     * The connection has closed. Stop collecting changes and drop anything
+     * not yet written.
+     */
+    void close() {
+        closed = true;
+        writeQueue.clear();
+
+        synchronized (writeLock) {
+            pendingFields.clear();
+            fieldEntries.clear();
+            numBrowserEvents = 0;
+        }
+    }
+
+    /**
+     * Process the packets of one frame and send the replies as one frame.
+     *
+     * @param data The array holding the frame
+     * @param offset The start of the frame data in the array
+     * @param length The length of the frame data
+     * @throws IOException The frame was not valid
+     */
+    private void processFrame(byte[] data, int offset, int length)
+        throws IOException {
+
+        DataInputStream dis =
+            new DataInputStream(new ByteArrayInputStream(data, offset, length));
+
+        replyBytes.reset();
+
+        while (remainOpen && dis.available() > 0) {
+            int packetType = dis.readInt();
+            int requestID = dis.readInt();
+
+            if (packetType == NetworkProtocolConstants.SET_FIELD_VALUE_BATCH_REQUEST)
+                setFieldValues(requestID, dis, replyOut);
+            else
+                processRequest(packetType, requestID, dis, replyOut);
+        }
+
+        if (replyBytes.size() != 0)
+            send(replyBytes.toFrame());
+    }
+
+    /**
+     * Set each of the field values of a batch request. All of the values
+     * are set even if some fail, and the reply reports the first failure.
+     *
+     * @param requestID The ID the client gave the request
+     * @param dis The stream to read the field values from
+     * @param dos The stream to write the reply to
+     * @throws IOException Error reading the request
+     */
+    private void setFieldValues(int requestID, DataInputStream dis,
+            DataOutputStream dos) throws IOException {
+
+        int numFields = dis.readInt();
+        Exception error = null;
+
+        for (int i = 0; i < numFields; i++) {
+            int fieldID = dis.readInt();
+            byte[] value = setCodec.readValue(fieldID, dis);
+
+            try {
+                readAndSetField(fieldID,
+                    new DataInputStream(new ByteArrayInputStream(value)));
+            } catch (IOException | RuntimeException e) {
+                if (error == null)
+                    error = e;
+            }
+        }
+
+        synchronized (writeLock) {
+            dos.writeInt(NetworkProtocolConstants.SET_FIELD_VALUE_BATCH_REPLY);
+            dos.writeInt(requestID);
+            if (error == null)
+                dos.writeByte(NetworkProtocolConstants.RESPONSE_OKAY);
+            else
+                sendErrorPacket(error, dos);
+        }
+    }
+
+    /**
+     * Remember a browser event and send it straight away, along with any
+     * field changes before it.
+     *
+     * @param type The BrowserEvent type
+     */
+    private void queueBrowserEvent(int type) {
+        synchronized (writeLock) {
+            if (numBrowserEvents == pendingBrowserEvents.length) {
+                int[] tmp = new int[numBrowserEvents * 2];
+                System.arraycopy(pendingBrowserEvents, 0, tmp, 0, numBrowserEvents);
+                pendingBrowserEvents = tmp;
+            }
+
+            pendingBrowserEvents[numBrowserEvents++] = type;
+        }
+
+        flush();
+    }
+
+    /**
+     * Queue a frame to be written by the selector thread.
+     *
+     * @param frame The frame, ready to be written
+     */
+    private void send(ByteBuffer frame) {
+        if (closed)
+            return;
+
+        writeQueue.add(frame);
+        process.requestWrite(this);
+    }
+}
@@ -12,9 +12,16 @@
 
 package org.web3d.vrml.scripting.external.neteai;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
 import java.net.Socket;
@@ -35,6 +42,10 @@ import vrml.eai.field.EventOut;
  * Access to the input stream is controlled by mutual exclusion using
  * SuspendedTaskData instances and readLock.
  *
+ * On a batched connection every request is sent as a frame, the frame
+ * lengths are removed from the input before the packets are read, and
+ * the field values set between beginFieldBatch and endFieldBatch are
+ * sent together as one request.
  */
 public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProcessor {
 
@@ -95,6 +106,135 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
         }
     }
 
+    /** Input stream that removes the frame lengths of a batched connection
+     *  so that only the packets are read.
+     */
+    private static class FrameInputStream extends FilterInputStream {
+
+        /** The number of bytes left in the current frame */
+        private int remaining;
+
+        FrameInputStream(InputStream in) {
+            super(in);
+        }
+
+        /** * @see java.io.InputStream#read()  */
+        @Override
+        public int read() throws IOException {
+            if (!nextFrame())
+                return -1;
+            int result=in.read();
+            if (result>=0)
+                remaining--;
+            return result;
+        }
+
+        /** * @see java.io.InputStream#read(byte[], int, int)  */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len==0)
+                return 0;
+            if (!nextFrame())
+                return -1;
+            int result=in.read(b,off,Math.min(len,remaining));
+            if (result>0)
+                remaining-=result;
+            return result;
+        }
+
+        /** * @see java.io.InputStream#skip(long)  */
+        @Override
+        public long skip(long n) throws IOException {
+            if (n<=0 || !nextFrame())
+                return 0;
+            long result=in.skip(Math.min(n,remaining));
+            remaining-=(int)result;
+            return result;
+        }
+
+        /** * @see java.io.InputStream#available()  */
+        @Override
+        public int available() throws IOException {
+            return Math.min(remaining,in.available());
+        }
+
+        /** * @see java.io.InputStream#markSupported()  */
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /** Read frame lengths until there is data to read.
+         * @return false if the stream ended between frames
+         */
+        private boolean nextFrame() throws IOException {
+            while (remaining==0) {
+                int length=0;
+                for (int counter=0; counter<4; counter++) {
+                    int b=in.read();
+                    if (b<0) {
+                        if (counter==0)
+                            return false;
+                        throw new EOFException();
+                    }
+                    length=(length<<8)|b;
+                }
+                if (length<0 || length>NetworkProtocolConstants.MAX_FRAME_LENGTH)
+                    throw new IOException("Invalid frame length: "+length);
+                remaining=length;
+            }
+            return true;
+        }
+    }
+
+    /** Output stream that collects the writes for a batched connection and
+     *  sends them as one frame when flushed.
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+        /** The frame being built */
+        private final FrameBuffer frame;
+
+        /** The stream to the server */
+        private final OutputStream out;
+
+        FrameOutputStream(OutputStream out) {
+            this.out=out;
+            frame=new FrameBuffer(BATCH_BUFFER_SIZE);
+        }
+
+        /** * @see java.io.OutputStream#write(int)  */
+        @Override
+        public void write(int b) {
+            frame.write(b);
+        }
+
+        /** * @see java.io.OutputStream#write(byte[], int, int)  */
+        @Override
+        public void write(byte[] b, int off, int len) {
+            frame.write(b,off,len);
+        }
+
+        /** * @see java.io.OutputStream#flush()  */
+        @Override
+        public void flush() throws IOException {
+            if (frame.size()!=0) {
+                frame.writeFrame(out);
+                frame.reset();
+            }
+        }
+
+        /** * @see java.io.OutputStream#close()  */
+        @Override
+        public void close() throws IOException {
+            flush();
+            out.close();
+        }
+    }
+
+    /** Initial size of the buffers for batched requests */
+    private static final int BATCH_BUFFER_SIZE = 4096;
+
     /** Table of blocking tasks. */
     private IntHashMap<SuspendedTaskData> blockingTaskTable;
 
@@ -135,13 +275,68 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
     /** Object to synchronize writing on */
     private final Object writeLock;
 
+    /** Is this a batched connection */
+    private final boolean batched;
+
+    /** The thread collecting field values into a batch, or null */
+    private Thread batchThread;
+
+    /** The field values of the current batch */
+    private FrameBuffer batchBytes;
+
+    /** Stream for writing batchBytes */
+    private DataOutputStream batchOut;
+
+    /** The number of field values in the current batch */
+    private int batchSize;
+
+    /** The value of the field being added to the batch */
+    private FrameBuffer valueBytes;
+
+    /** Stream for writing valueBytes */
+    private DataOutputStream valueOut;
+
+    /** Codec for the field values sent in batches */
+    private FieldDeltaCodec setCodec;
+
+    /** Codec for the field values of batched broadcasts */
+    private FieldDeltaCodec broadcastCodec;
+
     ClientProcessingTask(InetAddress addr, int port,
         NetworkStartupListener listener,
         BrowserBroadcaster broadcaster,
         NetworkEventQueue queue) throws IOException {
+        this(addr,port,listener,broadcaster,queue,false);
+    }
+
+    /**
+     * @param addr The address of the server
+     * @param port The port the server is listening on
+     * @param listener The object waiting for the connection to finish
+     * @param broadcaster Broadcaster for browser change messages
+     * @param queue The queue for set field value requests
+     * @param batched true to open a batched connection
+     * @throws IOException Unable to connect to the server
+     */
+    ClientProcessingTask(InetAddress addr, int port,
+        NetworkStartupListener listener,
+        BrowserBroadcaster broadcaster,
+        NetworkEventQueue queue,
+        boolean batched) throws IOException {
 
+        this.batched=batched;
         remainOpen=true;
         serverConnection=new Socket(addr,port);
+        // Every request waits for its reply, so don't hold small packets back
+        serverConnection.setTcpNoDelay(true);
+        if (batched) {
+            batchBytes=new FrameBuffer(BATCH_BUFFER_SIZE);
+            batchOut=new DataOutputStream(batchBytes);
+            valueBytes=new FrameBuffer(BATCH_BUFFER_SIZE);
+            valueOut=new DataOutputStream(valueBytes);
+            setCodec=new FieldDeltaCodec();
+            broadcastCodec=new FieldDeltaCodec();
+        }
         blockingTaskTable=new IntHashMap<>();
         readLock=new SuspendedTaskData(0);
         writeLock=new Object();
@@ -161,6 +356,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -197,6 +393,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(fieldID);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -248,6 +445,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeUTF(eventOut);
                 dos.writeInt(toNodeID);
                 dos.writeUTF(eventIn);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -310,6 +508,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeUTF(vrml);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -352,6 +551,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -389,6 +589,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(fieldID);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -426,6 +627,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(nodeID);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -487,6 +689,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(nodeID);
                 dos.writeUTF(fieldName);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -529,6 +732,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(nodeID);
                 dos.writeUTF(fieldName);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -567,6 +771,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(fieldID);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -616,6 +821,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeUTF(nodeName);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -657,6 +863,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(nodeID);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -695,6 +902,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(fieldID);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -755,6 +963,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                         dos.writeUTF(param);
                     }
                 }
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -813,6 +1022,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeUTF(eventOut);
                 dos.writeInt(toNodeID);
                 dos.writeUTF(eventIn);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -862,6 +1072,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                     for (int counter=0; counter<nodeIDs.length; counter++)
                         dos.writeInt(nodeIDs[counter]);
                 }
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -894,11 +1105,28 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
         try {
             try {
                 synchronized(writeLock) {
-                    dis=new DataInputStream(serverConnection.getInputStream());
-                    dos=new DataOutputStream(serverConnection.getOutputStream());
-                    dos.writeInt(NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_CLIENT);
-                    int checkByte=dis.readInt();
-                    if (checkByte!=NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_SERVER) {
+                    int checkByte;
+                    int expectedByte;
+                    if (batched) {
+                        InputStream in=new BufferedInputStream(serverConnection.getInputStream());
+                        OutputStream out=new BufferedOutputStream(serverConnection.getOutputStream());
+                        dis=new DataInputStream(in);
+                        dos=new DataOutputStream(out);
+                        dos.writeInt(NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_BATCHED_CLIENT);
+                        dos.flush();
+                        checkByte=dis.readInt();
+                        expectedByte=NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_BATCHED_SERVER;
+                        // Everything after the handshake is framed
+                        dis=new DataInputStream(new FrameInputStream(in));
+                        dos=new DataOutputStream(new FrameOutputStream(out));
+                    } else {
+                        dis=new DataInputStream(serverConnection.getInputStream());
+                        dos=new DataOutputStream(serverConnection.getOutputStream());
+                        dos.writeInt(NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_CLIENT);
+                        checkByte=dis.readInt();
+                        expectedByte=NetworkProtocolConstants.CONNECTION_MAGIC_NUMBER_SERVER;
+                    }
+                    if (checkByte!=expectedByte) {
                         System.out.println("Improper handshake.");
                         return;
                     } else {
@@ -939,6 +1167,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                             case NetworkProtocolConstants.REPLACE_WORLD_REPLY:
                             case NetworkProtocolConstants.SET_DESCRIPTION_REPLY:
                             case NetworkProtocolConstants.SET_FIELD_VALUE_REPLY:
+                            case NetworkProtocolConstants.SET_FIELD_VALUE_BATCH_REPLY:
                                 {
                                     taskID=dis.readInt();
                                     System.out.println("Client reading packet type "+packetType+" ID"+taskID);
@@ -958,6 +1187,17 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                                 fieldBroadcaster.generateFieldBroadcast(fieldID,dis);
                                 System.out.println("Done with eventOutChanged.");
                                 break;
+                            case NetworkProtocolConstants.EVENTOUT_CHANGED_BATCH_BROADCAST: {
+                                double timestamp=dis.readDouble();
+                                int numFields=dis.readInt();
+                                for (int counter=0; counter<numFields; counter++) {
+                                    int changedID=dis.readInt();
+                                    byte value[]=broadcastCodec.readValue(changedID,dis);
+                                    fieldBroadcaster.generateFieldBroadcast(changedID,timestamp,
+                                        new DataInputStream(new ByteArrayInputStream(value)));
+                                }
+                                }
+                                break;
                             case NetworkProtocolConstants.BROWSER_CHANGED_BROADCAST: {
                                 System.out.println("BrowserChanged received.");
                                 int broadcastType=dis.readInt();
@@ -983,8 +1223,83 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
         }
     }
 
+    /** Start collecting the field values set by this thread into a batch
+     *  which is sent by endFieldBatch.  Does nothing unless this is a
+     *  batched connection.
+     */
+    void beginFieldBatch() {
+        if (!batched)
+            return;
+        batchBytes.reset();
+        batchSize=0;
+        batchThread=Thread.currentThread();
+    }
+
+    /** Send the field values collected since beginFieldBatch as one request
+     *  and wait for the reply.  The server sets all of the values even if
+     *  some of them fail, and the first failure is thrown here.
+     */
+    void endFieldBatch() {
+        if (batchThread!=Thread.currentThread())
+            return;
+        batchThread=null;
+        if (batchSize==0)
+            return;
+        SuspendedTaskData data;
+        synchronized (writeLock) {
+            data=new SuspendedTaskData(NetworkProtocolConstants.SET_FIELD_VALUE_BATCH_REQUEST);
+            blockingTaskTable.put(data.getTaskID(),data);
+            try {
+                dos.writeInt(data.requestType);
+                dos.writeInt(data.getTaskID());
+                dos.writeInt(batchSize);
+                dos.write(batchBytes.getBuffer(),0,batchBytes.size());
+                dos.flush();
+            } catch (IOException ioe) {
+                blockingTaskTable.remove(data.getTaskID());
+                markAbortConnection();
+                throw new ConnectionException("Unable to send request.");
+            }
+        }
+        try {
+            data.waitForData();
+        } catch (InterruptedException ie) {
+            throw new ConnectionException("Interrupted waiting for data.");
+        }
+        try {
+            checkNormalResume(data);
+            readLock.notifyDataAvailable();
+            blockingTaskTable.remove(data.getTaskID());
+        } catch (IOException ioe) {
+            blockingTaskTable.remove(data.getTaskID());
+            markAbortConnection();
+            readLock.notifyDataAvailable();
+            throw new ConnectionException("Error reading results after resume.");
+        }
+    }
+
+    /** Is this a batched connection?
+     * @return true if field values can be sent in batches
+     */
+    boolean isBatched() {
+        return batched;
+    }
+
     @Override
     public void setFieldValue(int fieldID, EventWrapper buffer) {
+        if (batchThread==Thread.currentThread()) {
+            try {
+                valueBytes.reset();
+                buffer.writeFieldValue(valueOut);
+                batchOut.writeInt(fieldID);
+                setCodec.writeValue(fieldID,valueBytes.getBuffer(),valueBytes.size(),batchOut);
+                batchSize++;
+            } catch (IOException ioe) {
+                // Can't happen when writing to memory
+                throw new ConnectionException("Unable to buffer request.");
+            }
+            return;
+        }
         SuspendedTaskData data;
         synchronized (writeLock) {
             data=new SuspendedTaskData(NetworkProtocolConstants.SET_FIELD_VALUE_REQUEST);
@@ -994,6 +1309,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(fieldID);
                 buffer.writeFieldValue(dos);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1043,6 +1359,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 }
                 dos.writeInt(nodeID);
                 dos.writeUTF(eventIn);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1078,6 +1395,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1114,6 +1432,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1150,6 +1469,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1185,6 +1505,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1220,6 +1541,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1257,6 +1579,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
                 dos.writeUTF(desc);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1291,6 +1614,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
             try {
                 dos.writeInt(data.requestType);
                 dos.writeInt(data.getTaskID());
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -1338,6 +1662,7 @@ public class ClientProcessingTask implements Runnable, FieldAndNodeRequestProces
                 dos.writeInt(data.getTaskID());
                 dos.writeInt(fieldID);
                 dos.writeByte(component);
+                dos.flush();
             } catch (IOException ioe) {
                 blockingTaskTable.remove(data.getTaskID());
                 markAbortConnection();
@@ -34,6 +34,17 @@ public interface FieldBroadcaster {
      */
     void generateFieldBroadcast(int fieldID, DataInputStream dis) throws IOException;
 
+    /**
+     * Generate the broadcast of a field changed event for a given
+     * field ID when the time stamp has already been read.  Reads the
+     * field value off the network and then adds the field to the work list.
+     * @param fieldID The network ID of the field which changed
+     * @param timestamp The time of the change
+     * @param dis The input stream to read the field value from
+     * @throws java.io.IOException
+     */
+    void generateFieldBroadcast(int fieldID, double timestamp, DataInputStream dis) throws IOException;
+
     /**
      * Remove a listener for a given field ID
      * @param fieldID The network field ID to remove a listener from
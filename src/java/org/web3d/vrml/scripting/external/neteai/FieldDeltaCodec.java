@@ -0,0 +1,231 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.j3d.util.IntHashMap;
+
+// Local imports
+// None
+
+/**
+ * Encodes field values for one direction of a batched connection, sending
+ * only the changed parts of a value when that is smaller.
+ * <p>
+ *
+ * The codec works on the normal network encoding of a field value, as
+ * written by {@link EventWrapper#writeFieldValue} or the server, so it does
+ * not need to know the field type. The last value sent or received for each
+ * field ID is kept. When a new value has the same length as the last one,
+ * the four byte words that differ are sent as runs instead. That is what
+ * makes the updates of large MF fields, where only a few of the values
+ * change each frame, cheap. Both ends of a connection keep one codec per
+ * direction, and as the connection delivers the values in order the two
+ * stay in step.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class FieldDeltaCodec {
+
+    /** Words of overhead for each run, so equal gaps this long are merged */
+    private static final int RUN_HEADER_WORDS = 2;
+
+    /** Message for a delta with no value of the same size to apply to */
+    private static final String NO_BASE_MSG =
+        "Delta received for a field with no matching previous value: ";
+
+    /** Message for a length that can't be right */
+    private static final String BAD_LENGTH_MSG = "Invalid field value length: ";
+
+    /** Message for an unknown encoding byte */
+    private static final String BAD_ENCODING_MSG = "Unknown value encoding: ";
+
+    /** The last value seen for each field ID */
+    private final IntHashMap<byte[]> lastValues;
+
+    /** Start word and length pairs of the runs of the value being written */
+    private int[] runs;
+
+    /**
+     * Create a codec with no previous values.
+     */
+    FieldDeltaCodec() {
+        lastValues = new IntHashMap<>();
+        runs = new int[32];
+    }
+
+    /**
+     * Write a field value, as the changes from the last value written for
+     * the field if that is smaller.
+     *
+     * @param fieldID The network ID of the field
+     * @param value The network encoding of the value
+     * @param length The number of bytes of value to use
+     * @param out The stream to write the encoded value to
+     * @throws IOException The value could not be written
+     */
+    void writeValue(int fieldID, byte[] value, int length, DataOutputStream out)
+        throws IOException {
+
+        byte[] last = lastValues.get(fieldID);
+
+        if(last == null || last.length != length || (length & 3) != 0) {
+            out.writeByte(NetworkProtocolConstants.VALUE_FULL);
+            out.writeInt(length);
+            out.write(value, 0, length);
+
+            last = new byte[length];
+            System.arraycopy(value, 0, last, 0, length);
+            lastValues.put(fieldID, last);
+            return;
+        }
+
+        int words = length >> 2;
+        int num_runs = 0;
+        int delta_size = 8;
+        int i = 0;
+
+        while(i < words) {
+            if(sameWord(last, value, i)) {
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            int j = end;
+
+            while(j < words && j - end <= RUN_HEADER_WORDS) {
+                if(!sameWord(last, value, j))
+                    end = j + 1;
+                j++;
+            }
+
+            if(num_runs * 2 == runs.length) {
+                int[] tmp = new int[runs.length * 2];
+                System.arraycopy(runs, 0, tmp, 0, runs.length);
+                runs = tmp;
+            }
+
+            runs[num_runs * 2] = i;
+            runs[num_runs * 2 + 1] = end - i;
+            num_runs++;
+            delta_size += 8 + (end - i) * 4;
+            i = j;
+        }
+
+        if(delta_size < length + 4) {
+            out.writeByte(NetworkProtocolConstants.VALUE_DELTA);
+            out.writeInt(length);
+            out.writeInt(num_runs);
+
+            for(i = 0; i < num_runs; i++) {
+                int start = runs[i * 2];
+                int size = runs[i * 2 + 1];
+
+                out.writeInt(start);
+                out.writeInt(size);
+                out.write(value, start * 4, size * 4);
+            }
+        } else {
+            out.writeByte(NetworkProtocolConstants.VALUE_FULL);
+            out.writeInt(length);
+            out.write(value, 0, length);
+        }
+
+        System.arraycopy(value, 0, last, 0, length);
+    }
+
+    /**
+     * Read a field value written by {@link #writeValue}. The returned array
+     * is kept as the base for the next delta of the field and must not be
+     * changed.
+     *
+     * @param fieldID The network ID of the field
+     * @param in The stream to read the encoded value from
+     * @return The network encoding of the value
+     * @throws IOException The value could not be read or is not valid
+     */
+    byte[] readValue(int fieldID, DataInputStream in) throws IOException {
+        byte encoding = in.readByte();
+        int length = in.readInt();
+
+        if(length < 0 || length > NetworkProtocolConstants.MAX_FRAME_LENGTH)
+            throw new IOException(BAD_LENGTH_MSG + length);
+
+        byte[] ret_val;
+
+        switch(encoding) {
+            case NetworkProtocolConstants.VALUE_FULL:
+                ret_val = new byte[length];
+                in.readFully(ret_val);
+                break;
+
+            case NetworkProtocolConstants.VALUE_DELTA:
+                byte[] last = lastValues.get(fieldID);
+                if(last == null || last.length != length)
+                    throw new IOException(NO_BASE_MSG + fieldID);
+
+                ret_val = last.clone();
+
+                int num_runs = in.readInt();
+                int words = length >> 2;
+
+                for(int i = 0; i < num_runs; i++) {
+                    int start = in.readInt();
+                    int size = in.readInt();
+
+                    if(start < 0 || size < 0 || start + size > words)
+                        throw new IOException(BAD_LENGTH_MSG + size);
+
+                    in.readFully(ret_val, start * 4, size * 4);
+                }
+                break;
+
+            default:
+                throw new IOException(BAD_ENCODING_MSG + encoding);
+        }
+
+        lastValues.put(fieldID, ret_val);
+
+        return ret_val;
+    }
+
+    /**
+     * Forget the last values of all fields.
+     */
+    void clear() {
+        lastValues.clear();
+    }
+
+    /**
+     * Check whether a four byte word is the same in both arrays.
+     *
+     * @param a The first array
+     * @param b The second array
+     * @param word The index of the word to compare
+     * @return true if all four bytes match
+     */
+    private static boolean sameWord(byte[] a, byte[] b, int word) {
+        int idx = word << 2;
+
+        return a[idx] == b[idx] &&
+               a[idx + 1] == b[idx + 1] &&
+               a[idx + 2] == b[idx + 2] &&
+               a[idx + 3] == b[idx + 3];
+    }
+}
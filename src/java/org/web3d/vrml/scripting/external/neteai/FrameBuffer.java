@@ -0,0 +1,86 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+
+// Local imports
+// None
+
+/**
+ * Growable byte buffer used to build field values and frames for a batched
+ * connection without copying them.
+ * <p>
+ *
+ * A frame on the wire is the length of the frame data as an int, followed
+ * by the data. See {@link NetworkProtocolConstants}.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class FrameBuffer extends ByteArrayOutputStream {
+
+    /**
+     * Create an empty buffer with the given starting capacity.
+     *
+     * @param size The initial capacity in bytes
+     */
+    FrameBuffer(int size) {
+        super(size);
+    }
+
+    /**
+     * Get the internal array. Only the first {@link #size()} bytes are
+     * valid and the array is replaced when the buffer grows.
+     *
+     * @return The array holding the data
+     */
+    byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Copy the contents into a new buffer as a complete frame, ready to be
+     * written to a channel.
+     *
+     * @return A buffer holding the frame length and data
+     */
+    ByteBuffer toFrame() {
+        ByteBuffer ret_val = ByteBuffer.allocate(count + 4);
+        ret_val.putInt(count);
+        ret_val.put(buf, 0, count);
+        ret_val.flip();
+
+        return ret_val;
+    }
+
+    /**
+     * Write the contents to a stream as a complete frame.
+     *
+     * @param out The stream to write to
+     * @throws IOException The stream could not be written
+     */
+    void writeFrame(OutputStream out) throws IOException {
+        out.write(count >>> 24);
+        out.write(count >>> 16);
+        out.write(count >>> 8);
+        out.write(count);
+        out.write(buf, 0, count);
+        out.flush();
+    }
+}
@@ -62,10 +62,14 @@ public class GenericFieldBroadcaster implements FieldBroadcaster {
 
     @Override
     public synchronized void generateFieldBroadcast(int fieldID, DataInputStream dis) throws IOException {
+        generateFieldBroadcast(fieldID,dis.readDouble(),dis);
+    }
+
+    @Override
+    public synchronized void generateFieldBroadcast(int fieldID, double timestamp, DataInputStream dis) throws IOException {
 
         //System.out.println("Broadcast for fieldID"+fieldID);
         int fieldType=typeTable.get(fieldID);
-        double timestamp=dis.readDouble();
         EventOut field=fieldFactory.getStoredEventOut(fieldID,fieldType,dis);
 
         // Generate the broadcast.
@@ -59,9 +59,22 @@ public class NetworkBrowserClient implements Browser, NetworkStartupListener {
      * @throws IOException Indicates unable to connect to server.
      */
     NetworkBrowserClient(InetAddress addr, int port) throws IOException {
+        this(addr,port,false);
+    }
+
+    /** Create a browser client which will communicate to a server
+     *  listening at some network location.  On a batched connection
+     *  all of the fields set between beginUpdate and endUpdate are sent
+     *  as one message, and eventOut changes arrive once per frame.
+     * @param addr The address the server resides at.
+     * @param port The port the server is listening on.
+     * @param batched true to open a batched connection.
+     * @throws IOException Indicates unable to connect to server.
+     */
+    NetworkBrowserClient(InetAddress addr, int port, boolean batched) throws IOException {
         eventQueue=new NetworkEventQueue(null);
         synchronized (this) {
-            requestProcessor=new ClientProcessingTask(addr,port,this, new BrowserBroadcaster(this), eventQueue);
+            requestProcessor=new ClientProcessingTask(addr,port,this, new BrowserBroadcaster(this), eventQueue, batched);
             new Thread(requestProcessor).start();
             try {
                 while (!networkInitialized)
@@ -217,7 +230,17 @@ public class NetworkBrowserClient implements Browser, NetworkStartupListener {
 	public void endUpdate() throws InvalidBrowserException {
 	    if (requestProcessor==null)
 	        throw new InvalidBrowserException(DISPOSED_BROWSER_MESSAGE);
-	    eventQueue.endUpdate();
+	    if (requestProcessor.isBatched()) {
+	        synchronized (eventQueue.eventLock) {
+	            requestProcessor.beginFieldBatch();
+	            try {
+	                eventQueue.endUpdate();
+	            } finally {
+	                requestProcessor.endFieldBatch();
+	            }
+	        }
+	    } else
+	        eventQueue.endUpdate();
 	}
 
 	/** * @see vrml.eai.Browser#addBrowserListener(vrml.eai.event.BrowserListener)  */
@@ -16,6 +16,8 @@ import java.applet.Applet;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 
 import vrml.eai.Browser;
 import vrml.eai.BrowserFactoryImpl;
@@ -30,6 +32,13 @@ import vrml.eai.VrmlComponent;
  */
 public class NetworkBrowserFactoryImpl implements BrowserFactoryImpl {
 
+    /**
+     * Property to set to true to open batched connections, for servers
+     * created with a ServerSocketChannel.
+     */
+    public static final String BATCHED_PROP =
+        "org.web3d.vrml.scripting.external.neteai.batched";
+
     /** * @see vrml.eai.BrowserFactoryImpl#createComponent(java.lang.String[])  */
     @Override
     public VrmlComponent createComponent(String[] params)
@@ -58,8 +67,15 @@ public class NetworkBrowserFactoryImpl implements BrowserFactoryImpl {
     public Browser getBrowser(InetAddress address, int port)
             throws NotSupportedException, NoSuchBrowserException,
             UnknownHostException, ConnectionException {
+        boolean batched = AccessController.doPrivileged(
+            new PrivilegedAction<Boolean>() {
+                @Override
+                public Boolean run() {
+                    return Boolean.getBoolean(BATCHED_PROP);
+                }
+            });
         try {
-            return new NetworkBrowserClient(address,port);
+            return new NetworkBrowserClient(address,port,batched);
         } catch (UnknownHostException uhe) {
             throw uhe;
         } catch (IOException ioe) {
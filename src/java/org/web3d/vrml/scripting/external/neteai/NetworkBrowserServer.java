@@ -12,7 +12,9 @@
 
 package org.web3d.vrml.scripting.external.neteai;
 
+import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 import org.web3d.browser.BrowserCore;
 import org.web3d.vrml.nodes.VRMLClock;
@@ -29,6 +31,11 @@ public class NetworkBrowserServer implements ServerBrowserFactory {
      */
     ServerProcess acceptingProcess;
 
+    /** The process serving batched connections, if this server was created
+     *  with a channel instead of a socket.
+     */
+    BatchedServerProcess batchedProcess;
+
     /** BrowserCore for fulfilling some calls */
     BrowserCore browserCore;
 
@@ -51,6 +58,26 @@ public class NetworkBrowserServer implements ServerBrowserFactory {
         new Thread(acceptingProcess).start();
     }
 
+    /** Create a server for batched connections.  All of the clients are
+     *  served by one thread using non-blocking channels, and the eventOut
+     *  changes of each frame are sent to a client as one message.  Clients
+     *  must open a batched connection.
+     * @param channel Channel to accept connections on
+     * @param browserCore BrowserCore to use
+     * @param vrmlBrowser CommonBrowser to use
+     * @param clock Clock for generating time stamps and frame ticks.
+     * @throws IOException The channel could not be set up.
+     */
+    public NetworkBrowserServer(ServerSocketChannel channel,
+            BrowserCore browserCore,
+            VRML97CommonBrowser vrmlBrowser,
+            VRMLClock clock) throws IOException {
+        this.browserCore=browserCore;
+        this.vrmlBrowser=vrmlBrowser;
+        batchedProcess=new BatchedServerProcess(channel,this,browserCore,clock);
+        new Thread(batchedProcess).start();
+    }
+
     /**
      * @return  * @see org.web3d.vrml.scripting.external.neteai.ServerBrowserFactory#createBrowserInstance()  */
     @Override
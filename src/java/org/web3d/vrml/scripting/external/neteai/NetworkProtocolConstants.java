@@ -56,6 +56,30 @@ package org.web3d.vrml.scripting.external.neteai;
  * Strings are transmitted using the readUTF and writeUTF methods.
  * All other field types (int, float, etc.) use the appropriate
  * read and write methods on the data input/output stream.
+ *
+ * A client may instead open a batched connection by sending
+ * CONNECTION_MAGIC_NUMBER_BATCHED_CLIENT, which is answered with
+ * CONNECTION_MAGIC_NUMBER_BATCHED_SERVER.  After the handshake every
+ * message in either direction is a frame of the form
+ *  &lt;FRAME_LENGTH&gt;
+ *  &lt;FRAME_DATA&gt;
+ * where FRAME_DATA holds one or more packets in the format above.
+ * On a batched connection the client sends all of the fields set between
+ * beginUpdate and endUpdate as one SET_FIELD_VALUE_BATCH_REQUEST, and the
+ * server coalesces the eventOut changes of each frame of the event model
+ * into one EVENTOUT_CHANGED_BATCH_BROADCAST.  The field entries of both
+ * are of the form
+ *  &lt;FIELD_ID&gt;
+ *  &lt;VALUE_ENCODING&gt;
+ *  &lt;VALUE_DATA&gt;
+ * where VALUE_ENCODING is VALUE_FULL, with VALUE_DATA the length in bytes
+ * of the normal field value encoding followed by that encoding, or
+ * VALUE_DELTA, with VALUE_DATA giving the changes from the previous value
+ * sent for the same field in that direction as
+ *  &lt;LENGTH&gt;
+ *  &lt;NUMBER_OF_RUNS&gt;
+ *  &lt;RUN_START&gt; &lt;RUN_LENGTH&gt; &lt;RUN_DATA&gt; ...
+ * with the run positions and lengths counted in four byte words.
  */
 public abstract class NetworkProtocolConstants {
 
@@ -65,6 +89,12 @@ public abstract class NetworkProtocolConstants {
     /** Magic number sent by server for connection handshake */
     static final int CONNECTION_MAGIC_NUMBER_SERVER = 0x1001;
 
+    /** Magic number sent by client for a batched connection handshake */
+    static final int CONNECTION_MAGIC_NUMBER_BATCHED_CLIENT = 0x4225;
+
+    /** Magic number sent by server for a batched connection handshake */
+    static final int CONNECTION_MAGIC_NUMBER_BATCHED_SERVER = 0x1002;
+
     /** Request from client to server to register a browser listener */
     static final int ADD_BROWSER_LISTENER_REQUEST = 10;
 
@@ -221,10 +251,22 @@ public abstract class NetworkProtocolConstants {
     /** Request from client to server to shutdown system. */
     static final int SHUTDOWN_SYSTEM = 60;
 
+    /** Request from client to server to set a list of field values.
+     *  Only used on batched connections. */
+    static final int SET_FIELD_VALUE_BATCH_REQUEST = 62;
+
+    /** Response from server to client about result of a batch of field
+     *  values.  Reports the first error of the batch. */
+    static final int SET_FIELD_VALUE_BATCH_REPLY = 63;
+
     /** Notification from server to client that a registered eventOut has
      *  changed in value. */
     static final int EVENTOUT_CHANGED_BROADCAST = 70;
 
+    /** Notification from server to client of the registered eventOuts which
+     *  changed during a frame.  Only used on batched connections. */
+    static final int EVENTOUT_CHANGED_BATCH_BROADCAST = 72;
+
     /** Notification from server to client that the browser has generated
      *  a BrowserListener event */
     static final int BROWSER_CHANGED_BROADCAST = 80;
@@ -237,4 +279,13 @@ public abstract class NetworkProtocolConstants {
 
     /** Response type byte for a request which should generate an exception */
     static final byte RESPONSE_EXCEPTION = 2;
+
+    /** Field value encoding byte for a value sent in full */
+    static final byte VALUE_FULL = 0;
+
+    /** Field value encoding byte for a value sent as changed words */
+    static final byte VALUE_DELTA = 1;
+
+    /** The largest frame accepted on a batched connection */
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
 }
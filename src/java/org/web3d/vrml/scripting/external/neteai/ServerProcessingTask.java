@@ -65,7 +65,18 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
      *            The connection to deal with
      */
     ServerProcessingTask(Socket socket, ServerBrowser browser, VRMLClock clock) {
+        this(browser, clock);
         clientConnection = socket;
+    }
+
+    /**
+     * Create a new instance with no connection of its own, for use by
+     * sessions which do their own reading and writing.
+     *
+     * @param browser The browser to process requests on
+     * @param clock The clock for generating time stamps
+     */
+    ServerProcessingTask(ServerBrowser browser, VRMLClock clock) {
         remainOpen = true;
         theServerBrowser = browser;
         writeLock = new Object();
@@ -101,6 +112,33 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
                     int requestID = dis.readInt();
                     System.out.println("Server received type " + packetType
                             + " ID" + requestID);
+                    processRequest(packetType, requestID, dis, dos);
+                    System.out.println("Server done with type " + packetType
+                            + " ID" + requestID);
+                }
+            } finally {
+                if (dos != null)
+                    dos.close();
+                if (dis != null)
+                    dis.close();
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Read the data of a single request and write the reply for it.
+     *
+     * @param packetType The type of the request
+     * @param requestID The ID the client gave the request
+     * @param dis The stream to read the request data from
+     * @param dos The stream to write the reply to
+     * @throws IOException Error reading the request or writing the reply
+     */
+    void processRequest(int packetType, int requestID, DataInputStream dis,
+            DataOutputStream dos) throws IOException {
+        // The cases keep the indentation they had when they were in run()
                     switch (packetType) {
                     case NetworkProtocolConstants.ADD_EVENT_OUT_LISTENER_REQUEST:
                         {
@@ -297,7 +335,7 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
                                             .getLocalFieldID(fieldID);
                                     dos
                                             .writeByte(NetworkProtocolConstants.RESPONSE_OKAY);
-                                    transmitFieldValue(fieldID,node, localFieldID);
+                                    transmitFieldValue(fieldID,node, localFieldID, dos);
                                 } catch (InvalidNodeException ine) {
                                     sendExceptionPacket(ine, dos);
                                 } catch (IOException t) {
@@ -557,18 +595,6 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
                         System.err.println("Unhandled request received.  Packet type:"+packetType+" ID"+requestID);
                         throw new RuntimeException("Unknown request received.");
                     }
-                    System.out.println("Server done with type " + packetType
-                            + " ID" + requestID);
-                }
-            } finally {
-                if (dos != null)
-                    dos.close();
-                if (dis != null)
-                    dis.close();
-            }
-        } catch (IOException ioe) {
-            ioe.printStackTrace(System.err);
-        }
     }
 
     /**
@@ -607,7 +633,7 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
      * @param fieldID The network ID of the field
      * @param dis The input stream to read the field value from
      */
-    private void readAndSetField(int fieldID, DataInputStream dis)
+    void readAndSetField(int fieldID, DataInputStream dis)
             throws IOException {
         VRMLNodeType node = theServerBrowser.getNodeFromFieldID(fieldID);
         int fieldIndex = theServerBrowser.getLocalFieldID(fieldID);
@@ -828,7 +854,7 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
                 dos.writeInt(NetworkProtocolConstants.EVENTOUT_CHANGED_BROADCAST);
                 dos.writeInt(fieldID);
                 dos.writeDouble(timeClock.getTime());
-                transmitFieldValue(fieldID, node, fieldIndex);
+                transmitFieldValue(fieldID, node, fieldIndex, dos);
             } catch (IOException e) {
                 e.printStackTrace(System.err);
             }
@@ -840,9 +866,10 @@ class ServerProcessingTask implements Runnable, BrowserCoreListener, FieldChange
      * @param fieldID The network field ID
      * @param node The node to get the field value from
      * @param fieldIndex The index of the field to get the value of
+     * @param dos The stream to write the value to
      */
-    private void transmitFieldValue(int fieldID, VRMLNodeType node, int fieldIndex)
-            throws IOException {
+    void transmitFieldValue(int fieldID, VRMLNodeType node, int fieldIndex,
+            DataOutputStream dos) throws IOException {
         VRMLFieldData data = node.getFieldValue(fieldIndex);
         //dos.writeInt(data.dataType);
         int innerCounter=0;
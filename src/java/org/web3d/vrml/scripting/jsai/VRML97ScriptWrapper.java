@@ -46,7 +46,7 @@ import org.web3d.vrml.scripting.ScriptWrapper;
  * listing dynamically.
  *
  * @author Justin Couch
- * @version $Revision: 1.16 $
+ * @version $Revision: 1.17 $
  */
 public class VRML97ScriptWrapper implements ScriptWrapper {
 
@@ -544,6 +544,17 @@ public class VRML97ScriptWrapper implements ScriptWrapper {
         }
     }
 
+    /**
+     * Check to see if the script code only works with its own fields. VRML97
+     * Java scripts are always run on the event model thread.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isSelfContained() {
+        return false;
+    }
+
     /**
      * Called when the Script node is deleted. We free everything here to
      * allow the GC to do its magic.
@@ -30,6 +30,8 @@ import org.web3d.vrml.nodes.VRMLNodeType;
 import org.web3d.vrml.nodes.VRMLScriptNodeType;
 import org.web3d.vrml.scripting.ScriptWrapper;
 
+import org.xj3d.sai.Xj3DSelfContainedScript;
+
 /**
  * A wrapper class used to convert between the Xj3D implementation specific
  * details and the X3D spec requirements for a script.
@@ -40,7 +42,7 @@ import org.web3d.vrml.scripting.ScriptWrapper;
  * listing dynamically.
  *
  * @author Justin Couch
- * @version $Revision: 1.20 $
+ * @version $Revision: 1.21 $
  */
 public class JavaSAIScriptWrapper
     implements ScriptWrapper, FieldAccessListener {
@@ -655,6 +657,19 @@ public class JavaSAIScriptWrapper
         }
     }
 
+    /**
+     * Check to see if the script code only works with its own fields. Java
+     * code cannot be inspected, so only a script that implements
+     * {@link Xj3DSelfContainedScript} and does not set directOutput is taken
+     * to be self contained.
+     *
+     * @return true if the script opted in and directOutput is not set
+     */
+    @Override
+    public boolean isSelfContained() {
+        return (script instanceof Xj3DSelfContainedScript) && !directOutput;
+    }
+
     /**
      * Called when the Script node is deleted. We free everything here to
      * allow the GC to do its magic.
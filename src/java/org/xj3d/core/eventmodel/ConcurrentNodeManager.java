@@ -0,0 +1,75 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.core.eventmodel;
+
+// External imports
+// none
+
+// Local imports
+import org.web3d.vrml.lang.TypeConstants;
+
+/**
+ * A node manager that may be run on a worker thread at the same time as
+ * other managers it does not depend on.
+ * <p>
+ *
+ * Implementing this interface is a promise that the manager's
+ * <code>executePreEventModel()</code> and <code>executePostEventModel()</code>
+ * methods only touch the nodes it manages, plus nodes of the types it lists
+ * here. An evaluator that supports parallel execution uses the lists to find
+ * managers that do not conflict. Two managers conflict if either one writes a
+ * node type the other one reads or writes. Managers that conflict run in the
+ * order they were registered. Managers that do not implement this interface
+ * are treated as conflicting with everything, and always run on the event
+ * model thread.
+ * <p>
+ *
+ * The rendering API structures are not thread safe. A manager that calls
+ * into them directly, for example to say that bounds or geometry data have
+ * changed, lists {@link #SCENE_GRAPH_TYPE} as a written type, so that no two
+ * such managers run at the same time.
+ * <p>
+ *
+ * The add, remove and clear calls are still made from the event model thread
+ * while no manager is executing, so they need no extra locking.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public interface ConcurrentNodeManager extends NodeManager {
+
+    /**
+     * A pseudo node type standing for the rendering API scene graph. It is
+     * outside the range of the real node types.
+     */
+    int SCENE_GRAPH_TYPE = TypeConstants.LAST_NODE_TYPE_ID + 1;
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * reads during execution. These should be the constants from
+     * {@link org.web3d.vrml.lang.TypeConstants}.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    int[] getReadNodeTypes();
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * changes during execution. The managed types are always assumed to be
+     * written. These should be the constants from
+     * {@link org.web3d.vrml.lang.TypeConstants}.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    int[] getWrittenNodeTypes();
+}
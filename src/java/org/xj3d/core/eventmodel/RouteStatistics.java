@@ -0,0 +1,61 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.core.eventmodel;
+
+// External imports
+// none
+
+// Local imports
+// none
+
+/**
+ * Per-frame counters describing the route cascade of the last complete frame.
+ * <p>
+ *
+ * A frame is all the calls to route processing that share one timestamp. The
+ * values describe the most recently completed frame, so they are stable while
+ * the current frame is still being evaluated. Values are zero until the
+ * first frame has completed.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public interface RouteStatistics {
+
+    /**
+     * Get the number of route processing passes in the last frame that sent
+     * at least one event.
+     *
+     * @return The number of passes that did some work
+     */
+    int getPassCount();
+
+    /**
+     * Get the total number of individual routes that sent a value in the last
+     * frame.
+     *
+     * @return The number of routes fired
+     */
+    int getRoutesFired();
+
+    /**
+     * Get the length of the longest chain of routes fired in the last frame.
+     * A chain continues through a node, such as a script, when a route leaves
+     * it after another route has reached it earlier in the frame. Routers
+     * that do not track the route graph count each pass that did some work
+     * as one level.
+     *
+     * @return The deepest cascade seen
+     */
+    int getMaxCascadeDepth();
+}
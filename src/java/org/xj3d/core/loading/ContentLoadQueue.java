@@ -13,10 +13,16 @@
 package org.xj3d.core.loading;
 
 // External imports
-import java.util.HashMap;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Local imports
 // None
@@ -34,12 +40,34 @@ import java.util.TreeSet;
  * for details on the value of this property. This can be changed at runtime
  * and have the queue resorted by calling the {@link #requestResort()} method
  * called on this class.
+ * <p>
+ *
+ * Requests are held in one first-in, first-out list per load type, and the
+ * lists are visited in priority order. Adding, taking and removing requests
+ * does not hold a queue-wide lock, so many loader threads can work on the
+ * queue at once. A resort only reorders the lists, not the requests in them.
+ * Requests of the same type are served in the order they were added.
+ * <p>
+ *
+ * If the system property <code>org.xj3d.core.loading.queue.maxwait</code>
+ * is set to a number of milliseconds, a request that has waited longer than
+ * that is served before newer requests of a higher priority, so a steady
+ * stream of textures cannot hold back an inline for ever. By default
+ * requests are served in strict priority order.
+ * <p>
+ *
+ * The queue keeps simple statistics: the current depth, the number of
+ * requests added, served and cancelled, and how long served requests waited.
  *
  * @author Justin Couch
- * @version $Revision: 1.6 $
+ * @version $Revision: 1.7 $
  */
 public class ContentLoadQueue {
 
+    /** Property for the longest time a request may be passed over */
+    private static final String MAX_WAIT_PROP =
+        "org.xj3d.core.loading.queue.maxwait";
+
     /** Message when the URL to be loaded is either null or zero length */
     private static final String NULL_URL_MSG =
         "The URL provided to the content load queue did not contain anything.";
@@ -48,24 +76,116 @@ public class ContentLoadQueue {
     private static final String NULL_TYPE_MSG =
         "The node type constant was null. A valid type is needed.";
 
+    /** Entry state when it is waiting to be loaded */
+    private static final int STATE_QUEUED = 0;
+
+    /** Entry state when a loader has taken it */
+    private static final int STATE_TAKEN = 1;
+
+    /** Entry state when all its details were removed before loading */
+    private static final int STATE_CANCELLED = 2;
+
+    /**
+     * A request on the queue, with the time it was added. Only changed while
+     * holding the request's slot in the open request map.
+     */
+    private static class Entry {
+
+        /** The request to hand to the loader */
+        final LoadRequest request;
+
+        /** The time the request was added, from System.nanoTime() */
+        final long queueTime;
+
+        /** The list the entry is held in */
+        final TypeList list;
+
+        /** One of the STATE_ constants */
+        int state;
+
+        Entry(LoadRequest req, TypeList list) {
+            request = req;
+            this.list = list;
+            queueTime = System.nanoTime();
+            state = STATE_QUEUED;
+        }
+    }
+
+    /**
+     * The waiting requests of a single load type.
+     */
+    private static class TypeList {
+
+        /** The load type of this list */
+        final String type;
+
+        /** Entries in the order they were added. May hold stale entries */
+        final ConcurrentLinkedQueue<Entry> entries;
+
+        /** The number of live entries in the list */
+        final AtomicInteger depth;
+
+        TypeList(String type) {
+            this.type = type;
+            entries = new ConcurrentLinkedQueue<>();
+            depth = new AtomicInteger();
+        }
+    }
+
     /** A flag to indicate the class is currently undergoing a purge */
-    private boolean purging;
+    private volatile boolean purging;
 
     /** Count of threads waiting in getNext, used to ensure that a
      *  purge completes before resetting the purge flag */
-    private int numberOfWaitingThreads = 0;
+    private AtomicInteger numberOfWaitingThreads;
+
+    /** One permit for every entry put on a list */
+    private Semaphore available;
+
+    /** The list for each load type */
+    private Map<String, TypeList> typeLists;
 
-    /** List of LoadRequests to be loaded for this URL. */
-    private TreeSet<LoadRequest> loadQueue;
+    /** The type lists in the order they should be served */
+    private volatile TypeList[] servingOrder;
 
     /** The priority sorter for the loading queue. */
     private LoadPriorityComparator sorter;
 
+    /** Orders the type lists using the sorter's priorities */
+    private Comparator<TypeList> listSorter;
+
     /**
-     * The current set of URLs that are in the queue mapped to their object
-     * representation in LoadRequest.
+     * Requests that have not been taken yet, so that new details for the
+     * same URL can be merged into them. Both key and value share the request.
      */
-    private Map<LoadDetails, LoadRequest> detailsToRequestMap;
+    private Map<LoadRequest, Entry> openRequests;
+
+    /**
+     * The current set of details that are in the queue mapped to their
+     * queue entry.
+     */
+    private Map<LoadDetails, Entry> detailsToRequestMap;
+
+    /** Waiting time after which a request is served first, in nanoseconds */
+    private long maxWait;
+
+    /** The number of requests waiting */
+    private AtomicInteger depth;
+
+    /** The number of requests added */
+    private AtomicLong numAdded;
+
+    /** The number of requests handed to loaders */
+    private AtomicLong numServed;
+
+    /** The number of requests removed before loading */
+    private AtomicLong numCancelled;
+
+    /** The total time served requests waited, in nanoseconds */
+    private AtomicLong totalWait;
+
+    /** The longest time a served request waited, in nanoseconds */
+    private AtomicLong longestWait;
 
     /**
      * Create a new instance of this class. Package private to prevent direct
@@ -73,9 +193,32 @@ public class ContentLoadQueue {
      */
     ContentLoadQueue() {
         sorter = new LoadPriorityComparator();
-        loadQueue = new TreeSet<>(sorter);
-        detailsToRequestMap = new HashMap<>();
+        listSorter = (a, b) -> {
+            int p1 = sorter.getPriority(a.type);
+            int p2 = sorter.getPriority(b.type);
+
+            return (p1 != p2) ? (p1 < p2 ? -1 : 1) : a.type.compareTo(b.type);
+        };
+
+        typeLists = new ConcurrentHashMap<>();
+        servingOrder = new TypeList[0];
+        openRequests = new ConcurrentHashMap<>();
+        detailsToRequestMap = new ConcurrentHashMap<>();
+        available = new Semaphore(0);
+        numberOfWaitingThreads = new AtomicInteger();
         purging = false;
+
+        depth = new AtomicInteger();
+        numAdded = new AtomicLong();
+        numServed = new AtomicLong();
+        numCancelled = new AtomicLong();
+        totalWait = new AtomicLong();
+        longestWait = new AtomicLong();
+
+        long wait = AccessController.doPrivileged(
+            (PrivilegedAction<Long>) () -> Long.getLong(MAX_WAIT_PROP, 0));
+
+        maxWait = (wait > 0) ? wait * 1_000_000 : 0;
     }
 
     //----------------------------------------------------------
@@ -96,35 +239,45 @@ public class ContentLoadQueue {
      * @throws IllegalArgumentException Either the URL list was null/zero length,
      *   or the type was null
      */
-    public synchronized void add(String type,
-                                 String[] url,
-                                 LoadRequestHandler handler,
-                                 LoadDetails details) {
+    public void add(String type,
+                    String[] url,
+                    LoadRequestHandler handler,
+                    LoadDetails details) {
 
         if((url == null) || (url.length == 0))
             throw new IllegalArgumentException(NULL_URL_MSG);
 
+        if(type == null)
+            throw new IllegalArgumentException(NULL_TYPE_MSG);
+
         LoadRequest req = new LoadRequest();
         req.url = url;
         req.handler = handler;
         req.type = type;
 
-        synchronized(loadQueue) {
-            if (loadQueue.contains(req)) {
-                SortedSet<LoadRequest> sset = loadQueue.tailSet(req);
+        TypeList list = getTypeList(type);
+        Entry new_entry = new Entry(req, list);
 
-                req = sset.first();
+        Entry entry = openRequests.compute(req, (k, current) -> {
+            Entry ret_val = current;
 
-                req.loadList.add(details);
-            } else {
-                req.loadList.add(details);
-                loadQueue.add(req);
+            if(ret_val == null) {
+                ret_val = new_entry;
+                depth.incrementAndGet();
+                list.depth.incrementAndGet();
+                numAdded.incrementAndGet();
             }
 
-            detailsToRequestMap.put(details, req);
-        }
+            ret_val.request.loadList.add(details);
+            detailsToRequestMap.put(details, ret_val);
+
+            return ret_val;
+        });
 
-        notify();
+        if(entry == new_entry) {
+            list.entries.add(new_entry);
+            available.release();
+        }
     }
 
     /**
@@ -132,39 +285,44 @@ public class ContentLoadQueue {
      *
      * @return The next item on the queue
      */
-    public synchronized LoadRequest getNext() {
-        LoadRequest o = null;
+    public LoadRequest getNext() {
+        LoadRequest ret_val = null;
 
-        while (!purging && o == null) {
-            while (!purging && loadQueue.isEmpty()) {
-                numberOfWaitingThreads++;
+        numberOfWaitingThreads.incrementAndGet();
+
+        try {
+            while(!purging && ret_val == null) {
                 try {
-                    synchronized (this) {
-                        wait();
-                    }
-                } catch (InterruptedException e) {
+                    available.acquire();
+                } catch(InterruptedException e) {
+                    continue;
                 }
-                numberOfWaitingThreads--;
-            }
 
-            synchronized (loadQueue) {
-                if (!loadQueue.isEmpty()) {
-                    o = loadQueue.first();
-                    loadQueue.remove(o);
+                if(purging)
+                    break;
+
+                Entry entry = takeNext();
+
+                if(entry != null) {
+                    long wait = System.nanoTime() - entry.queueTime;
+
+                    numServed.incrementAndGet();
+                    totalWait.addAndGet(wait);
+
+                    long longest = longestWait.get();
+                    while(wait > longest &&
+                          !longestWait.compareAndSet(longest, wait))
+                        longest = longestWait.get();
 
-                    int num_details = o.loadList.size();
-                    for (int i = 0; i < num_details; i++) {
-                        detailsToRequestMap.remove(o.loadList.get(i));
-                    }
+                    ret_val = entry.request;
                 }
             }
+        } finally {
+            if(numberOfWaitingThreads.decrementAndGet() == 0 && purging)
+                purging = false;
         }
 
-        if (purging && (numberOfWaitingThreads == 0)) {
-            purging = false;
-        }
-
-        return o;
+        return ret_val;
     }
 
     /**
@@ -172,53 +330,80 @@ public class ContentLoadQueue {
      *
      * @return size of queue.
      */
-    public synchronized int size() {
-        return loadQueue.size();
+    public int size() {
+        return depth.get();
+    }
+
+    /**
+     * Get the number of requests waiting for a single load type.
+     *
+     * @param type The type constant from {@link LoadConstants}
+     * @return The number of requests of that type waiting
+     */
+    public int size(String type) {
+        TypeList list = typeLists.get(type);
+
+        return (list == null) ? 0 : list.depth.get();
     }
 
     /**
      * Remove all elements from queue. Also unblock those who are waiting for
      * items in the queue. They leave the getNext() method with null.
      */
-    public synchronized void purge() {
+    public void purge() {
         clear();
         purging = true;
-        notifyAll();
+
+        available.drainPermits();
+        available.release(numberOfWaitingThreads.get());
     }
 
     /**
      * Clear the queue of items. If there are users of the class that are
      * blocked while waiting for elements in the queue, they remain so.
      */
-    public synchronized void clear() {
-        loadQueue.clear();
+    public void clear() {
+        openRequests.clear();
         detailsToRequestMap.clear();
+
+        for(TypeList list : servingOrder) {
+            list.entries.clear();
+            list.depth.set(0);
+        }
+
+        depth.set(0);
     }
 
     /**
-     * Remove the given item from the queue.
+     * Remove the given item from the queue. If it was the last detail of a
+     * request that has not started loading, the whole request is cancelled.
      *
      * @param url The url of the object to be removed
      * @param details The instance of the detail to be removed from the URL
      */
     public void remove(String[] url, LoadDetails details) {
-        synchronized(loadQueue) {
-            LoadRequest req = detailsToRequestMap.get(details);
-
-            if(req == null || !req.loadList.contains(details))
-                return;
-
-            // remove from the load queue first so that we make sure we get
-            // it before the content loader snaffles it. Then go back and grab
-            // it from the hashmap.
-            if(req.loadList.size() == 1) {
-                loadQueue.remove(req);
-            } else {
-                req.loadList.remove(details);
-            }
+        Entry entry = detailsToRequestMap.get(details);
 
-            detailsToRequestMap.remove(details);
-        }
+        if(entry == null)
+            return;
+
+        openRequests.computeIfPresent(entry.request, (k, current) -> {
+            if(current != entry)
+                return current;
+
+            entry.request.loadList.remove(details);
+            detailsToRequestMap.remove(details, entry);
+
+            if(!entry.request.loadList.isEmpty())
+                return current;
+
+            entry.state = STATE_CANCELLED;
+            depth.decrementAndGet();
+            entry.list.depth.decrementAndGet();
+            numCancelled.incrementAndGet();
+
+            return null;
+        });
     }
 
     /**
@@ -227,11 +412,174 @@ public class ContentLoadQueue {
      * effect items that are currently being processed, only items that are
      * waiting to be processed.
      */
-    public void requestResort() {
+    public synchronized void requestResort() {
         sorter.updatePriorities();
-        TreeSet<LoadRequest> new_queue = new TreeSet<>(sorter);
-        new_queue.addAll(loadQueue);
 
-        loadQueue = new_queue;
+        TypeList[] order = servingOrder.clone();
+        Arrays.sort(order, listSorter);
+
+        servingOrder = order;
+    }
+
+    /**
+     * Get the number of requests added to the queue since the statistics
+     * were last reset. Details merged into a request already waiting are not
+     * counted.
+     *
+     * @return The number of requests
+     */
+    public long getAddedCount() {
+        return numAdded.get();
+    }
+
+    /**
+     * Get the number of requests handed to loaders since the statistics were
+     * last reset.
+     *
+     * @return The number of requests
+     */
+    public long getServedCount() {
+        return numServed.get();
+    }
+
+    /**
+     * Get the number of requests removed from the queue before loading since
+     * the statistics were last reset.
+     *
+     * @return The number of requests
+     */
+    public long getCancelledCount() {
+        return numCancelled.get();
+    }
+
+    /**
+     * Get the average time served requests waited on the queue.
+     *
+     * @return The time in milliseconds, or 0 if none were served
+     */
+    public double getAverageWaitTime() {
+        long served = numServed.get();
+
+        return (served == 0) ? 0 : totalWait.get() / (served * 1e6);
+    }
+
+    /**
+     * Get the longest time a served request waited on the queue.
+     *
+     * @return The time in milliseconds
+     */
+    public double getLongestWaitTime() {
+        return longestWait.get() / 1e6;
+    }
+
+    /**
+     * Reset the added, served and cancelled counts and the wait times.
+     */
+    public void resetStatistics() {
+        numAdded.set(0);
+        numServed.set(0);
+        numCancelled.set(0);
+        totalWait.set(0);
+        longestWait.set(0);
+    }
+
+    /**
+     * Find the entry that should be served next and take it off the queue.
+     *
+     * @return The entry taken, or null if there was nothing live to take
+     */
+    private Entry takeNext() {
+        TypeList[] order = servingOrder;
+
+        if(maxWait != 0) {
+            long now = System.nanoTime();
+
+            for(TypeList list : order) {
+                Entry head = list.entries.peek();
+
+                if(head != null && now - head.queueTime > maxWait) {
+                    Entry ret_val = takeFrom(list);
+                    if(ret_val != null)
+                        return ret_val;
+                }
+            }
+        }
+
+        for(TypeList list : order) {
+            Entry ret_val = takeFrom(list);
+            if(ret_val != null)
+                return ret_val;
+        }
+
+        return null;
+    }
+
+    /**
+     * Take the first live entry from the given list. Stale entries for
+     * cancelled requests are dropped on the way.
+     *
+     * @param list The list to take from
+     * @return The entry taken, or null if the list had no live entries
+     */
+    private Entry takeFrom(TypeList list) {
+        Entry entry;
+
+        while((entry = list.entries.poll()) != null) {
+            Entry taken = entry;
+
+            openRequests.computeIfPresent(taken.request, (k, current) -> {
+                if(current != taken)
+                    return current;
+
+                taken.state = STATE_TAKEN;
+
+                int size = taken.request.loadList.size();
+                for(int i = 0; i < size; i++)
+                    detailsToRequestMap.remove(taken.request.loadList.get(i),
+                                               taken);
+
+                return null;
+            });
+
+            // Only the thread that polled the entry can mark it taken
+            if(taken.state == STATE_TAKEN) {
+                depth.decrementAndGet();
+                list.depth.decrementAndGet();
+                return taken;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the list for the given type, creating it if this is the first
+     * request of that type.
+     *
+     * @param type The load type
+     * @return The list for the type
+     */
+    private TypeList getTypeList(String type) {
+        TypeList ret_val = typeLists.get(type);
+
+        if(ret_val == null) {
+            synchronized(this) {
+                ret_val = typeLists.get(type);
+
+                if(ret_val == null) {
+                    ret_val = new TypeList(type);
+
+                    TypeList[] order =
+                        Arrays.copyOf(servingOrder, servingOrder.length + 1);
+                    order[servingOrder.length] = ret_val;
+                    Arrays.sort(order, listSorter);
+
+                    servingOrder = order;
+                    typeLists.put(type, ret_val);
+                }
+            }
+        }
+
+        return ret_val;
     }
 }
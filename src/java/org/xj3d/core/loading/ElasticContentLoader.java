@@ -0,0 +1,535 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.core.loading;
+
+// External imports
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+/**
+ * A loader that runs every load request on its own task, rather than having
+ * a fixed number of threads each working through one request at a time.
+ * <p>
+ *
+ * A single dispatcher thread takes requests from the queue in priority order
+ * and hands them to one of two lanes:
+ * <ul>
+ * <li>The I/O lane is used for content that is mostly fetched rather than
+ *     decoded, such as textures, sounds and movies. It grows to as many
+ *     threads as there are requests in flight, up to a limit, and the
+ *     threads go away again when they are idle.</li>
+ * <li>The parse lane is used for content that needs a lot of CPU once it
+ *     has arrived, such as inlines, worlds, externprotos and scripts. It is
+ *     bounded, normally to the number of processors.</li>
+ * </ul>
+ * The total number of requests in flight is limited, so the requests that
+ * are still waiting stay in the queue, where they can be sorted or
+ * cancelled. The number of requests in flight against any one host is also
+ * limited. A request counts against every host in its URL list, as it may
+ * fall back to any of them. Requests over that limit are held back and
+ * started as soon as another load from the same host completes. While held
+ * back they stay in the in progress map, so that they are counted, more
+ * details for the same URL join them and they can be cancelled. A held
+ * request that has nothing left to load when its turn comes is dropped.
+ * Requests with no host, such as local files, are not limited by host.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class ElasticContentLoader implements Runnable {
+
+    /** Message for an unrecognized message */
+    private static final String UNKNOWN_ERROR_MSG =
+        "Unknown error in content loading process";
+
+    /** Seconds an idle lane thread is kept before it goes away */
+    private static final long IDLE_SECONDS = 30;
+
+    /** A request with the hosts it counts against */
+    private static class HostedLoad {
+        /** The request to load */
+        final LoadRequest request;
+
+        /** The host keys of all the URLs of the request, may be empty */
+        final String[] hosts;
+
+        HostedLoad(LoadRequest req, String[] hosts) {
+            request = req;
+            this.hosts = hosts;
+        }
+    }
+
+    /** Creates the daemon threads of a lane in the loader thread group */
+    private static class LaneThreadFactory implements ThreadFactory {
+
+        /** The group to start the threads in */
+        private final ThreadGroup group;
+
+        /** The name of each thread */
+        private final String name;
+
+        LaneThreadFactory(ThreadGroup tg, String name) {
+            group = tg;
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread th = new Thread(group, r, name);
+            th.setDaemon(true);
+
+            return th;
+        }
+    }
+
+    /** The dispatcher thread */
+    private Thread th;
+
+    /** The list of data we are fetching from */
+    private ContentLoadQueue pendingList;
+
+    /** The map of nodes we are currently loading to their loader */
+    private Map<String[], LoadRequest> inProgress;
+
+    /** The lane for fetch bound content */
+    private ExecutorService ioLane;
+
+    /** The lane for decode bound content */
+    private ExecutorService parseLane;
+
+    /** One permit for each request that may be in flight */
+    private Semaphore loadSlots;
+
+    /** The most loads in flight against one host */
+    private int hostLimit;
+
+    /**
+     * The number of loads in flight against each host, keyed by scheme, host
+     * and port. Guarded by the held list.
+     */
+    private Map<String, Integer> hostLoads;
+
+    /** Requests held back by the host limit, in the order they arrived */
+    private List<HostedLoad> held;
+
+    /** The requests currently being processed */
+    private Set<LoadRequest> running;
+
+    /** Flag indicating we should stop completely */
+    private volatile boolean processNext;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Create a loader that reads values from the given queue and stores
+     * intermediate results in the given map.
+     *
+     * @param tg The thread group to put the threads in
+     * @param pending The list holding pending items to process
+     * @param processing The map of items currently processing
+     * @param maxLoads The most requests in flight at once
+     * @param parseThreads The number of threads in the parse lane
+     * @param hostLimit The most requests in flight against one host
+     */
+    ElasticContentLoader(ThreadGroup tg,
+                         ContentLoadQueue pending,
+                         Map<String[], LoadRequest> processing,
+                         int maxLoads,
+                         int parseThreads,
+                         int hostLimit) {
+
+        pendingList = pending;
+        inProgress = processing;
+        this.hostLimit = hostLimit;
+        processNext = true;
+
+        loadSlots = new Semaphore(maxLoads);
+        hostLoads = new HashMap<>();
+        held = new LinkedList<>();
+        running = ConcurrentHashMap.newKeySet();
+
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        ThreadPoolExecutor io =
+            new ThreadPoolExecutor(maxLoads,
+                                   maxLoads,
+                                   IDLE_SECONDS,
+                                   TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<>(),
+                                   new LaneThreadFactory(tg, "Xj3D Content Loader"));
+        io.allowCoreThreadTimeOut(true);
+        ioLane = io;
+
+        ThreadPoolExecutor parse =
+            new ThreadPoolExecutor(parseThreads,
+                                   parseThreads,
+                                   IDLE_SECONDS,
+                                   TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<>(),
+                                   new LaneThreadFactory(tg, "Xj3D Content Parser"));
+        parse.allowCoreThreadTimeOut(true);
+        parseLane = parse;
+
+        // Let's get running!
+        th = new Thread(tg, this, "Xj3D Content Dispatcher");
+        th.setDaemon(true);
+        th.start();
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by Runnable
+    //----------------------------------------------------------
+
+    /**
+     * Run the dispatcher to hand content from the list to the lanes.
+     */
+    @Override
+    public void run() {
+
+        while(processNext) {
+            try {
+                loadSlots.acquire();
+            } catch(InterruptedException ie) {
+                break;
+            }
+
+            LoadRequest req = pendingList.getNext();
+
+            if((req == null) || req.loadList.isEmpty() || !processNext) {
+                loadSlots.release();
+                continue;
+            }
+
+            HostedLoad load = new HostedLoad(req, hostKeys(req));
+
+            synchronized(held) {
+                if(!hostsFree(load.hosts)) {
+                    // Held back until a load from the same host completes,
+                    // so this request does not use up a slot. It is still
+                    // registered so that it can be found and cancelled.
+                    inProgress.put(req.url, req);
+                    held.add(load);
+                    loadSlots.release();
+                    continue;
+                }
+
+                acquireHosts(load.hosts);
+            }
+
+            submit(load);
+        }
+
+        // Release thread resources
+        th = null;
+    }
+
+    //---------------------------------------------------------------
+    // Local Methods
+    //---------------------------------------------------------------
+
+    /**
+     * Is the dispatcher thread alive?
+     *
+     * @return Thread.isAlive
+     */
+    boolean isAlive() {
+        Thread t = th;
+
+        return (t != null) && t.isAlive();
+    }
+
+    /**
+     * Register an error reporter with the engine so that any errors generated
+     * by the loading of content can be reported in a nice, pretty fashion.
+     * Setting a value of null will clear the currently set reporter. If one
+     * is already set, the new value replaces the old.
+     *
+     * @param reporter The instance to use or null
+     */
+    void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(reporter == null && processNext)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Get the number of requests being processed right now.
+     *
+     * @return The number of requests in flight
+     */
+    int getActiveCount() {
+        return running.size();
+    }
+
+    /**
+     * Notification to abort loading everything currently being loaded.
+     * Requests held back by the host limit are dropped.
+     */
+    void abortCurrentFile() {
+        dropHeld();
+
+        for(LoadRequest req : running)
+            req.handler.abortCurrentFile();
+    }
+
+    /**
+     * Notification to shut down the load process entirely. As with the
+     * fixed thread loader, the caller should purge the queue <i>after</i>
+     * calling this method so that the dispatcher is released.
+     */
+    void shutdown() {
+        processNext = false;
+
+        dropHeld();
+
+        for(LoadRequest req : running)
+            req.handler.shutdown();
+
+        ioLane.shutdown();
+        parseLane.shutdown();
+
+        // Make sure a dispatcher waiting for a slot gets to see the flag
+        loadSlots.release();
+    }
+
+    /**
+     * Start a request on the lane that suits its type. The caller already
+     * holds a load slot and a place in the limit of each of the request's
+     * hosts. Both are handed on to the task.
+     *
+     * @param load The request to start
+     */
+    private void submit(HostedLoad load) {
+        ExecutorService lane =
+            isParseType(load.request.type) ? parseLane : ioLane;
+
+        try {
+            lane.execute(() -> process(load));
+        } catch(RejectedExecutionException ree) {
+            // Shutting down. Give back what we were handed.
+            inProgress.remove(load.request.url);
+
+            synchronized(held) {
+                releaseHosts(load.hosts);
+            }
+
+            loadSlots.release();
+        }
+    }
+
+    /**
+     * Process a single request and then hand its slots on.
+     *
+     * @param load The request to process
+     */
+    private void process(HostedLoad load) {
+        LoadRequest req = load.request;
+        running.add(req);
+
+        try {
+            // Register now that we are processing this object
+            inProgress.put(req.url, req);
+
+            req.handler.processLoadRequest(errorReporter,
+                                           req.url,
+                                           req.loadList);
+        } catch(Exception e) {
+            errorReporter.errorReport(UNKNOWN_ERROR_MSG, e);
+        } finally {
+            // Register now that we finished processing this object
+            inProgress.remove(req.url);
+            running.remove(req);
+        }
+
+        // Requests held back for the same hosts take over our load slot and
+        // host places rather than going back through the dispatcher.
+        List<HostedLoad> next = release(load);
+
+        for(HostedLoad n : next)
+            submit(n);
+    }
+
+    /**
+     * Give back the host places of a finished request along with its load
+     * slot, and work out which held back requests can start now. The first
+     * of those takes over the load slot, the others need a free one.
+     * Requests whose loads have all been cancelled while held back are
+     * dropped.
+     *
+     * @param load The request that has finished
+     * @return The held back requests that now own a slot and places
+     */
+    private List<HostedLoad> release(HostedLoad load) {
+        List<HostedLoad> ret_val = new ArrayList<>();
+        boolean slot_used = false;
+
+        synchronized(held) {
+            releaseHosts(load.hosts);
+
+            Iterator<HostedLoad> itr = held.iterator();
+
+            while(processNext && itr.hasNext()) {
+                HostedLoad h = itr.next();
+
+                if(h.request.loadList.isEmpty()) {
+                    itr.remove();
+                    inProgress.remove(h.request.url);
+                    continue;
+                }
+
+                if(!hostsFree(h.hosts))
+                    continue;
+
+                if(slot_used && !loadSlots.tryAcquire())
+                    break;
+
+                slot_used = true;
+                itr.remove();
+                acquireHosts(h.hosts);
+                ret_val.add(h);
+            }
+        }
+
+        if(!slot_used)
+            loadSlots.release();
+
+        return ret_val;
+    }
+
+    /**
+     * Drop all the requests held back by the host limit.
+     */
+    private void dropHeld() {
+        synchronized(held) {
+            for(HostedLoad h : held)
+                inProgress.remove(h.request.url);
+
+            held.clear();
+        }
+    }
+
+    /**
+     * Check that none of the hosts are at their limit. The caller must hold
+     * the held list lock.
+     *
+     * @param keys The host keys to check
+     * @return true if a request for all of these hosts may start
+     */
+    private boolean hostsFree(String[] keys) {
+        for(String key : keys) {
+            Integer active = hostLoads.get(key);
+
+            if(active != null && active >= hostLimit)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Take a place in the limit of each of the hosts. The caller must hold
+     * the held list lock.
+     *
+     * @param keys The host keys to take places for
+     */
+    private void acquireHosts(String[] keys) {
+        for(String key : keys)
+            hostLoads.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Give back a place in the limit of each of the hosts. The caller must
+     * hold the held list lock.
+     *
+     * @param keys The host keys to give places back for
+     */
+    private void releaseHosts(String[] keys) {
+        for(String key : keys) {
+            Integer active = hostLoads.get(key);
+
+            if(active == null || active <= 1)
+                hostLoads.remove(key);
+            else
+                hostLoads.put(key, active - 1);
+        }
+    }
+
+    /**
+     * Work out the host keys of all the URLs of a request.
+     *
+     * @param req The request to check
+     * @return The distinct scheme, host and port of each URL with a host
+     */
+    private static String[] hostKeys(LoadRequest req) {
+        Set<String> ret_val = new LinkedHashSet<>();
+
+        if(req.url != null) {
+            for(String url : req.url) {
+                if(url == null)
+                    continue;
+
+                try {
+                    URI uri = new URI(url);
+                    String host = uri.getHost();
+
+                    if(host != null)
+                        ret_val.add(uri.getScheme() + "://" +
+                                    host.toLowerCase() + ':' +
+                                    uri.getPort());
+                } catch(URISyntaxException use) {
+                    // No host to limit
+                }
+            }
+        }
+
+        return ret_val.toArray(new String[ret_val.size()]);
+    }
+
+    /**
+     * Check to see if the request type is one that needs a lot of decoding
+     * once it has been fetched.
+     *
+     * @param type The load type of the request
+     * @return true if the parse lane should be used
+     */
+    private static boolean isParseType(String type) {
+        return LoadConstants.SORT_INLINE.equals(type) ||
+               LoadConstants.SORT_LOAD_URL.equals(type) ||
+               LoadConstants.SORT_CREATE.equals(type) ||
+               LoadConstants.SORT_PROTO.equals(type) ||
+               LoadConstants.SORT_SCRIPT.equals(type);
+    }
+}
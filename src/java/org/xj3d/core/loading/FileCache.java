@@ -64,4 +64,23 @@ public interface FileCache {
      * @param content The actual Java representation of the URI's content
      */
     void cacheFile(String uri, String contentType, Object content);
+
+    /**
+     * Store the item in the cache along with the validators of the response
+     * the content was read from. Caches that do not check their items
+     * against the source treat this the same as the version without
+     * validators.
+     *
+     * @param uri The uri string for the content
+     * @param contentType A String describing the MIME type of the content
+     * @param content The actual Java representation of the URI's content
+     * @param etag The ETag header of the response, or null if none
+     * @param lastModified The Last-Modified time of the response, or 0 if
+     *    not known
+     */
+    void cacheFile(String uri,
+                   String contentType,
+                   Object content,
+                   String etag,
+                   long lastModified);
 }
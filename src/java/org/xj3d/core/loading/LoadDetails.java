@@ -50,4 +50,14 @@ public class LoadDetails {
 
         return (ld.type == null ? type == null : ld.type.equals(type));
     }
+
+    /**
+     * Return the hashcode of this object, which is based on the type.
+     *
+     * @return The hash value from this
+     */
+    @Override
+    public int hashCode() {
+        return type == null ? 0 : type.hashCode();
+    }
 }
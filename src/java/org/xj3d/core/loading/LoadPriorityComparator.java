@@ -145,6 +145,19 @@ class LoadPriorityComparator implements Comparator<LoadRequest> {
     // Local Methods
     //---------------------------------------------------------------
 
+    /**
+     * Get the priority of a load type. Lower values are loaded first. Types
+     * that are not known are loaded last.
+     *
+     * @param type The load type constant
+     * @return The priority of the type
+     */
+    int getPriority(String type) {
+        Integer p = priorityMap.get(type);
+
+        return (p == null) ? 1_000 : p;
+    }
+
     /**
      * Instruct the comparator to re-read the priority list now. This will take
      * the current value of the property and replace the existing set of
@@ -105,6 +105,6 @@ public class LoadRequest {
      */
     @Override
     public int hashCode() {
-        return url == null ? 0 : url.hashCode();
+        return url == null ? 0 : Arrays.hashCode(url);
     }
 }
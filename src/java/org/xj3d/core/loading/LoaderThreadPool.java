@@ -18,6 +18,7 @@ import java.security.PrivilegedAction;
 import java.util.HashMap;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 // Local imports
 import org.j3d.util.ErrorReporter;
@@ -38,16 +39,38 @@ import org.j3d.util.ErrorReporter;
  * - 5.
  * <p>
  *
+ * Applications that run several independent worlds in one JVM may create
+ * extra pools directly. Each has its own queue and threads, so clearing or
+ * shutting down one world's pool does not touch the loads of any other.
+ * <p>
+ *
+ * The pool may also run in an elastic mode, meant for worlds that reference
+ * a large number of remote files. Rather than a fixed number of threads each
+ * working through one request at a time, every request is started on its own
+ * task as soon as it reaches the front of the queue. Fetch bound content uses
+ * a lane that grows and shrinks with the number of loads in flight, while
+ * content that needs parsing uses a lane bounded to the thread count. The
+ * number of loads in flight against a single host is limited, so a busy
+ * server is not flooded.
+ * <p>
+ *
  * <b>Properties</b>
  * <p>
  * The following properties are used by this class
  * <ul>
  * <li><code>org.xj3d.core.loading.threads</code> The number of
- *    concurrent threads to be started to do loading.</li>
+ *    concurrent threads to be started to do loading. In elastic mode this
+ *    is the number of threads used to parse content.</li>
+ * <li><code>org.xj3d.core.loading.mode</code> <code>threads</code> for the
+ *    fixed set of loader threads (the default) or <code>elastic</code>.</li>
+ * <li><code>org.xj3d.core.loading.elastic.max</code> In elastic mode, the
+ *    most loads in flight at once. Defaults to 64.</li>
+ * <li><code>org.xj3d.core.loading.host.limit</code> In elastic mode, the
+ *    most loads in flight against one host. Defaults to 6.</li>
  * </ul>
  *
  * @author Justin Couch
- * @version $Revision: 1.6 $
+ * @version $Revision: 1.7 $
  */
 public class LoaderThreadPool {
 
@@ -55,6 +78,27 @@ public class LoaderThreadPool {
     private static final String THREAD_COUNT_PROP =
         "org.xj3d.core.loading.threads";
 
+    /** Property describing the loading mode */
+    private static final String LOAD_MODE_PROP =
+        "org.xj3d.core.loading.mode";
+
+    /** Property describing the most loads in flight in elastic mode */
+    private static final String MAX_LOADS_PROP =
+        "org.xj3d.core.loading.elastic.max";
+
+    /** Property describing the most loads in flight against one host */
+    private static final String HOST_LIMIT_PROP =
+        "org.xj3d.core.loading.host.limit";
+
+    /** Value of the mode property selecting elastic loading */
+    private static final String ELASTIC_MODE = "elastic";
+
+    /** The default most loads in flight in elastic mode */
+    private static final int DEFAULT_MAX_LOADS = 64;
+
+    /** The default most loads in flight against one host */
+    private static final int DEFAULT_HOST_LIMIT = 6;
+
     /** The default number of threads to start if none are defined */
     private static int DEFAULT_THREAD_COUNT;
 
@@ -67,6 +111,24 @@ public class LoaderThreadPool {
     /** List of all the threads we're handling */
     private ContentLoader[] loaders;
 
+    /** The loader used in elastic mode, or null */
+    private ElasticContentLoader elasticLoader;
+
+    /** In elastic mode, the most loads in flight at once */
+    private int maxLoads;
+
+    /** In elastic mode, the most loads in flight against one host */
+    private int hostLimit;
+
+    /** In elastic mode, the number of threads used to parse content */
+    private int parseThreads;
+
+    /** The thread group the threads of this pool belong to */
+    private ThreadGroup loaderGroup;
+
+    /** Told the old and new group when the threads move to a new group */
+    private BiConsumer<ThreadGroup, ThreadGroup> groupListener;
+
     /** The shared singleton instance of this class */
     private static LoaderThreadPool threadPool;
 
@@ -77,9 +139,6 @@ public class LoaderThreadPool {
      * Private constructor to prevent direct instantiation.
      */
     private LoaderThreadPool() {
-        pending = new ContentLoadQueue();
-        inProgress = Collections.synchronizedMap(new HashMap<>());
-
         if(threadGroup == null)
             threadGroup = new ThreadGroup("Xj3D Content Loaders");
 
@@ -100,11 +159,80 @@ public class LoaderThreadPool {
 
         if (size != DEFAULT_THREAD_COUNT)
             System.out.println(THREAD_COUNT_PROP + " set to: " + size);
-        loaders = new ContentLoader[size];
 
-        for(int i = size; --i >= 0;) {
-            loaders[i] = new ContentLoader(threadGroup, pending, inProgress);
+        boolean elastic = AccessController.doPrivileged((PrivilegedAction<Boolean>) () ->
+            ELASTIC_MODE.equals(System.getProperty(LOAD_MODE_PROP)));
+
+        if(elastic) {
+            maxLoads = AccessController.doPrivileged((PrivilegedAction<Integer>) () ->
+                Integer.getInteger(MAX_LOADS_PROP, DEFAULT_MAX_LOADS));
+            hostLimit = AccessController.doPrivileged((PrivilegedAction<Integer>) () ->
+                Integer.getInteger(HOST_LIMIT_PROP, DEFAULT_HOST_LIMIT));
+
+            if(maxLoads <= 0)
+                maxLoads = DEFAULT_MAX_LOADS;
+
+            if(hostLimit <= 0)
+                hostLimit = DEFAULT_HOST_LIMIT;
+        }
+
+        startLoaders(threadGroup, size);
+    }
+
+    /**
+     * Create a pool that is independent of the shared singleton, with its
+     * own queue and threads. The caller is responsible for calling
+     * {@link #shutdown()} when the pool is no longer needed.
+     *
+     * @param tg The thread group to start the threads in, or null for the
+     *    shared group
+     * @param numThreads The number of loader threads to start
+     * @throws IllegalArgumentException The number of threads is not positive
+     */
+    public LoaderThreadPool(ThreadGroup tg, int numThreads) {
+        if(numThreads <= 0)
+            throw new IllegalArgumentException("Thread count must be positive");
+
+        if(tg == null) {
+            if(threadGroup == null)
+                threadGroup = new ThreadGroup("Xj3D Content Loaders");
+
+            tg = threadGroup;
+        }
+
+        startLoaders(tg, numThreads);
+    }
+
+    /**
+     * Create an elastic pool that is independent of the shared singleton,
+     * with its own queue and threads. The caller is responsible for calling
+     * {@link #shutdown()} when the pool is no longer needed.
+     *
+     * @param tg The thread group to start the threads in, or null for the
+     *    shared group
+     * @param parseThreads The number of threads used to parse content
+     * @param maxLoads The most loads in flight at once
+     * @param hostLimit The most loads in flight against one host
+     * @throws IllegalArgumentException One of the counts is not positive
+     */
+    public LoaderThreadPool(ThreadGroup tg,
+                            int parseThreads,
+                            int maxLoads,
+                            int hostLimit) {
+        if(parseThreads <= 0 || maxLoads <= 0 || hostLimit <= 0)
+            throw new IllegalArgumentException("Counts must be positive");
+
+        if(tg == null) {
+            if(threadGroup == null)
+                threadGroup = new ThreadGroup("Xj3D Content Loaders");
+
+            tg = threadGroup;
         }
+
+        this.maxLoads = maxLoads;
+        this.hostLimit = hostLimit;
+
+        startLoaders(tg, parseThreads);
     }
 
     //----------------------------------------------------------
@@ -161,8 +289,21 @@ public class LoaderThreadPool {
      */
     public void setErrorReporter(ErrorReporter reporter) {
         for (ContentLoader loader : loaders) {
-            loader.setErrorReporter(reporter);
+            if(loader != null)
+                loader.setErrorReporter(reporter);
         }
+
+        if(elasticLoader != null)
+            elasticLoader.setErrorReporter(reporter);
+    }
+
+    /**
+     * Check to see if this pool runs in elastic mode.
+     *
+     * @return true if every request is started on its own task
+     */
+    public boolean isElastic() {
+        return maxLoads > 0;
     }
 
     /**
@@ -194,8 +335,13 @@ public class LoaderThreadPool {
     public void clear() {
         pending.purge();
 
-        for(int i = loaders.length; --i >=0; )
-            loaders[i].abortCurrentFile();
+        for(int i = loaders.length; --i >=0; ) {
+            if(loaders[i] != null)
+                loaders[i].abortCurrentFile();
+        }
+
+        if(elasticLoader != null)
+            elasticLoader.abortCurrentFile();
     }
 
     /**
@@ -205,36 +351,114 @@ public class LoaderThreadPool {
     public synchronized void shutdown() {
 
         // this will be called multiple times at shutdown
-        if ( threadPool != null ) {
-            for( int i = loaders.length; --i >= 0; ) {
+        for( int i = loaders.length; --i >= 0; ) {
 
-                if (loaders[i] != null) {
+            if (loaders[i] != null) {
 
-                    // inform the loader threads to exit
-                    loaders[i].shutdown();
-                    loaders[i] = null;
-                }
+                // inform the loader threads to exit
+                loaders[i].shutdown();
+                loaders[i] = null;
             }
-            // clear the load queue and force a release of any waiting threads
-            pending.purge();
         }
-        threadPool = null;
+
+        if(elasticLoader != null) {
+            elasticLoader.shutdown();
+            elasticLoader = null;
+        }
+
+        // clear the load queue and force a release of any waiting threads
+        pending.purge();
+
+        if(threadPool == this)
+            threadPool = null;
+    }
+
+    /**
+     * Set the listener told when the threads of an independent pool are
+     * restarted in a new thread group, so that anything registered against
+     * the old group can be moved to the new one. The listener is called with
+     * the old group and then the new one.
+     *
+     * @param listener The listener to use, or null to clear it
+     */
+    public void setThreadGroupListener(BiConsumer<ThreadGroup, ThreadGroup> listener) {
+        groupListener = listener;
     }
 
     /**
-     * Ensure all threads are running.
+     * Ensure all threads are running. If the thread group of this pool has
+     * been destroyed, the shared singleton is replaced along with the shared
+     * group, while an independent pool just starts its threads in a new group
+     * of its own and tells the thread group listener.
      */
-    public void restartThreads() {
-    	if (threadGroup.isDestroyed()) {
-    		threadGroup = null;
-    		threadPool = new LoaderThreadPool();
-    	}
+    public synchronized void restartThreads() {
+        if(loaderGroup.isDestroyed()) {
+            if(threadPool == this) {
+                threadGroup = null;
+                threadPool = new LoaderThreadPool();
+                loaderGroup = threadGroup;
+            } else {
+                ThreadGroup old_group = loaderGroup;
+                loaderGroup = new ThreadGroup(old_group.getName());
+
+                if(groupListener != null)
+                    groupListener.accept(old_group, loaderGroup);
+            }
+        }
+
+        if(isElastic()) {
+            if(elasticLoader == null || !elasticLoader.isAlive()) {
+                if(elasticLoader != null)
+                    elasticLoader.shutdown();
+
+                elasticLoader = new ElasticContentLoader(loaderGroup,
+                                                         pending,
+                                                         inProgress,
+                                                         maxLoads,
+                                                         parseThreads,
+                                                         hostLimit);
+            }
+
+            return;
+        }
+
         int size = loaders.length;
         for(int i = size; --i >= 0;) {
-            if(!loaders[i].isAlive())
-                loaders[i] = new ContentLoader(threadGroup,
+            if(loaders[i] == null || !loaders[i].isAlive())
+                loaders[i] = new ContentLoader(loaderGroup,
                 pending,
                 inProgress);
         }
     }
+
+    /**
+     * Create the queue and start the loader threads.
+     *
+     * @param tg The thread group to start the threads in
+     * @param size The number of threads to start, or of parse threads in
+     *    elastic mode
+     */
+    private void startLoaders(ThreadGroup tg, int size) {
+        pending = new ContentLoadQueue();
+        inProgress = Collections.synchronizedMap(new HashMap<>());
+        loaderGroup = tg;
+
+        if(isElastic()) {
+            parseThreads = size;
+            loaders = new ContentLoader[0];
+            elasticLoader = new ElasticContentLoader(tg,
+                                                     pending,
+                                                     inProgress,
+                                                     maxLoads,
+                                                     size,
+                                                     hostLimit);
+            return;
+        }
+
+        loaders = new ContentLoader[size];
+
+        for(int i = size; --i >= 0;) {
+            loaders[i] = new ContentLoader(tg, pending, inProgress);
+        }
+    }
 }
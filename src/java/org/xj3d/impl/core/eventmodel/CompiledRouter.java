@@ -0,0 +1,585 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.util.*;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+import org.j3d.util.HashSet;
+import org.web3d.vrml.lang.ROUTE;
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+/**
+ * A router that compiles its routes into a topologically ordered array of
+ * dispatch steps, so that a chain of routes completes in a single pass.
+ * <p>
+ *
+ * Each time updateRoutes() changes the route set, the routes are grouped by
+ * eventOut and a graph is built between eventOuts. There is an edge from
+ * eventOut A to eventOut B when a route leaving A ends at the node that owns
+ * B. The graph is walked depth first and the eventOuts are placed in reverse
+ * post-order. For an acyclic graph that is a topological order, so by the
+ * time a step is visited every step that could have changed it has already
+ * run in the same pass. Edges that close a cycle are simply not followed,
+ * which is where the loop is broken. Anything changed along such an edge is
+ * picked up in the next pass, exactly as the other routers would do.
+ * <p>
+ *
+ * Routes are still only sent when {@link VRMLNodeType#hasFieldChanged(int)}
+ * reports a change, so the event cascade semantics are the same as for
+ * {@link ListsRouter}. The difference is only in how many passes the route
+ * manager needs to make before nothing is left to do.
+ * <p>
+ *
+ * The cascade depth is tracked from the routes that actually fire. When the
+ * routes of a step are sent, every step of the destination nodes is told the
+ * length of the chain that reached it, and this carries over to later passes
+ * of the same frame. A script output sent in a later pass therefore continues
+ * the chain of the event that made the script run, without counting the part
+ * of the chain before the script twice. A frame is all the calls that share
+ * one timestamp.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class CompiledRouter implements CountingRouter {
+
+    /** The default initial size of the array of routes */
+    private static final int DEFAULT_SIZE = 32;
+
+    /** Increment of the array size when we need to increase */
+    private static final int ARRAY_INC = 8;
+
+    /** One eventOut and the routes leaving it */
+    private static final class DispatchStep {
+
+        /** Reference to the source node of this route */
+        VRMLNodeType srcNode;
+
+        /** Index of the source field of this route */
+        int srcIndex;
+
+        /** The routes leaving this eventOut */
+        RouteHolder[] routes;
+
+        /** The number of valid routes in the array */
+        int numRoutes;
+
+        /** Length of the longest chain of fired routes that reached this
+         *  step's node in the frame given by chainFrame */
+        int chainDepth;
+
+        /** The frame that chainDepth belongs to */
+        int chainFrame;
+
+        /** Positions in the step array of the steps this step sends to */
+        int[] targets;
+
+        /** Indices of steps that this step sends to. Only used in compile */
+        int[] successors;
+
+        /**
+         * Construct a new step for the given node and field.
+         *
+         * @param node The source node
+         * @param index The source field index
+         */
+        DispatchStep(VRMLNodeType node, int index) {
+            srcNode = node;
+            srcIndex = index;
+            routes = new RouteHolder[2];
+        }
+
+        /**
+         * Add a route to the list leaving this eventOut.
+         *
+         * @param rh The route to add
+         */
+        void addRoute(RouteHolder rh) {
+            if(numRoutes == routes.length) {
+                RouteHolder[] tmp = new RouteHolder[numRoutes + ARRAY_INC];
+                System.arraycopy(routes, 0, tmp, 0, numRoutes);
+                routes = tmp;
+            }
+
+            routes[numRoutes++] = rh;
+        }
+    }
+
+    /** The set of all routes held by this manager */
+    private HashSet<RouteHolder> routeSet;
+
+    /** Set of all routes waiting to be added */
+    private HashSet<RouteHolder> routesToAdd;
+
+    /** Set of all routes waiting to be removed */
+    private HashSet<RouteHolder> routesToRemove;
+
+    /** The compiled steps, in dispatch order */
+    private DispatchStep[] steps;
+
+    /** The number of valid steps in the array */
+    private int numSteps;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /** The number of routes sent in the last call to processRoutes() */
+    private int lastRoutesFired;
+
+    /** The longest chain of fired routes so far in the current frame */
+    private int lastCascadeDepth;
+
+    /** The timestamp of the current frame */
+    private double frameTimestamp;
+
+    /** Counter identifying the current frame, for the step chain depths */
+    private int frameId;
+
+    /** Temporary array for reading out the route set */
+    private RouteHolder[] routeTmp;
+
+    /**
+     * Create and initialise a route manager instance
+     */
+    public CompiledRouter() {
+        routeSet = new HashSet<>();
+        routesToAdd = new HashSet<>();
+        routesToRemove = new HashSet<>();
+
+        steps = new DispatchStep[DEFAULT_SIZE];
+        numSteps = 0;
+
+        routeTmp = new RouteHolder[DEFAULT_SIZE];
+
+        frameTimestamp = Double.NaN;
+
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    //-------------------------------------------------------------
+    // Methods defined by Router
+    //-------------------------------------------------------------
+
+    /**
+     * Register an error reporter with the engine so that any errors generated
+     * by the loading of script code can be reported in a nice, pretty fashion.
+     * Setting a value of null will clear the currently set reporter. If one
+     * is already set, the new value replaces the old.
+     *
+     * @param reporter The instance to use or null
+     */
+    @Override
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        // Reset the default only if we are not shutting down the system.
+        if(reporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Walk the compiled steps once, in order, sending the routes of every
+     * eventOut that has changed.
+     *
+     * @param timestamp The timestamp for when these routes should be executed
+     * @return false No event outs needed processing this call
+     */
+    @Override
+    public boolean processRoutes(double timestamp) {
+
+        if(timestamp != frameTimestamp) {
+            frameTimestamp = timestamp;
+            frameId++;
+            lastCascadeDepth = 0;
+        }
+
+        int fired = 0;
+        int depth = lastCascadeDepth;
+
+        for(int i = 0; i < numSteps; i++) {
+            DispatchStep step = steps[i];
+
+            if(step.srcNode.hasFieldChanged(step.srcIndex)) {
+                RouteHolder[] routes = step.routes;
+                int size = step.numRoutes;
+
+                for(int j = 0; j < size; j++)
+                    routes[j].sendRoute(timestamp);
+
+                fired += size;
+
+                int chain = (step.chainFrame == frameId) ? step.chainDepth + 1 : 1;
+
+                int[] targets = step.targets;
+
+                if(targets != null) {
+                    for(int j = 0; j < targets.length; j++) {
+                        DispatchStep next = steps[targets[j]];
+
+                        if(next.chainFrame != frameId || next.chainDepth < chain) {
+                            next.chainFrame = frameId;
+                            next.chainDepth = chain;
+                        }
+                    }
+                }
+
+                if(chain > depth)
+                    depth = chain;
+            }
+        }
+
+        lastRoutesFired = fired;
+        lastCascadeDepth = depth;
+
+        return fired != 0;
+    }
+
+    /**
+     * Add a route to the system. If the route exists in the system, this
+     * silently ignores the request.
+     *
+     * @param srcNode The source node of the route
+     * @param srcIndex The index of the source field
+     * @param destNode The destination node of the route
+     * @param destIndex The index of the destination field
+     */
+    @Override
+    public void addRoute(VRMLNodeType srcNode,
+                         int srcIndex,
+                         VRMLNodeType destNode,
+                         int destIndex) {
+
+        RouteHolder holder = new RouteHolder();
+        holder.srcNode = srcNode;
+        holder.srcIndex = srcIndex;
+        holder.destNode = destNode;
+        holder.destIndex = destIndex;
+
+        if(routeSet.contains(holder) || routesToAdd.contains(holder))
+            return;
+
+        if(routesToRemove.contains(holder)) {
+            routesToRemove.remove(holder);
+            return;
+        }
+
+        routesToAdd.add(holder);
+    }
+
+    /**
+     * A request to bulk add routes to this router. Typically used when we're
+     * bringing back online a router having previously cleared.
+     *
+     * @param routes List of all the ROUTE objects to add
+     */
+    @Override
+    public void addRoutes(List<ROUTE> routes) {
+        int size = routes.size();
+
+        for(int i = 0; i < size; i++) {
+            ROUTE rt = routes.get(i);
+
+            addRoute((VRMLNodeType)rt.getSourceNode(),
+                     rt.getSourceIndex(),
+                     (VRMLNodeType)rt.getDestinationNode(),
+                     rt.getDestinationIndex());
+        }
+    }
+
+    /**
+     * Remove a route from the system. If the route does not exist in the
+     * system, this silently ignores the request.
+     *
+     * @param srcNode The source node of the route
+     * @param srcIndex The index of the source field
+     * @param destNode The destination node of the route
+     * @param destIndex The index of the destination field
+     */
+    @Override
+    public void removeRoute(VRMLNodeType srcNode,
+                            int srcIndex,
+                            VRMLNodeType destNode,
+                            int destIndex) {
+
+        RouteHolder holder = new RouteHolder();
+        holder.srcNode = srcNode;
+        holder.srcIndex = srcIndex;
+        holder.destNode = destNode;
+        holder.destIndex = destIndex;
+
+        if(!routeSet.contains(holder) || routesToRemove.contains(holder))
+            return;
+
+        if(routesToAdd.contains(holder)) {
+            routesToAdd.remove(holder);
+            return;
+        }
+
+        routesToRemove.add(holder);
+    }
+
+    /**
+     * Apply the pending route changes and, if anything changed, recompile
+     * the dispatch order.
+     */
+    @Override
+    public void updateRoutes() {
+
+        // No point generating extra garbage if not needed
+        if(routesToRemove.isEmpty() && routesToAdd.isEmpty())
+            return;
+
+        routeSet.removeAll(routesToRemove);
+        routeSet.addAll(routesToAdd);
+
+        routesToAdd.clear();
+        routesToRemove.clear();
+
+        compile();
+    }
+
+    /**
+     * Clear all the routes currently being managed here. The space this router
+     * represents is being deleted.
+     */
+    @Override
+    public void clear() {
+        routeSet.clear();
+        routesToAdd.clear();
+        routesToRemove.clear();
+
+        for(int i = 0; i < numSteps; i++)
+            steps[i] = null;
+
+        numSteps = 0;
+    }
+
+    //-------------------------------------------------------------
+    // Methods defined by CountingRouter
+    //-------------------------------------------------------------
+
+    @Override
+    public int getLastRoutesFired() {
+        return lastRoutesFired;
+    }
+
+    @Override
+    public int getLastCascadeDepth() {
+        return lastCascadeDepth;
+    }
+
+    //-------------------------------------------------------------
+    // Local Methods
+    //-------------------------------------------------------------
+
+    /**
+     * Rebuild the ordered step array from the current route set.
+     */
+    private void compile() {
+
+        // Group the routes by eventOut
+        Map<EventOutHolder, DispatchStep> step_map = new HashMap<>();
+        EventOutHolder tester = new EventOutHolder();
+
+        int num_routes = routeSet.size();
+
+        if(routeTmp.length < num_routes) {
+            int reqd = (num_routes >= routeTmp.length + ARRAY_INC) ?
+                       num_routes :
+                       routeTmp.length + ARRAY_INC;
+
+            routeTmp = new RouteHolder[reqd];
+        }
+
+        routeSet.toArray(routeTmp);
+
+        for(int i = 0; i < num_routes; i++) {
+            RouteHolder rh = routeTmp[i];
+            routeTmp[i] = null;
+
+            tester.srcNode = rh.srcNode;
+            tester.srcIndex = rh.srcIndex;
+
+            DispatchStep step = step_map.get(tester);
+
+            if(step == null) {
+                EventOutHolder eoh = new EventOutHolder();
+                eoh.srcNode = rh.srcNode;
+                eoh.srcIndex = rh.srcIndex;
+
+                step = new DispatchStep(rh.srcNode, rh.srcIndex);
+                step_map.put(eoh, step);
+            }
+
+            step.addRoute(rh);
+        }
+
+        int count = step_map.size();
+        DispatchStep[] unordered = new DispatchStep[count];
+        step_map.values().toArray(unordered);
+
+        // Index the steps by the node that owns the eventOut, so that we can
+        // find what a route feeds into.
+        Map<VRMLNodeType, int[]> node_steps = new IdentityHashMap<>();
+
+        for(int i = 0; i < count; i++) {
+            VRMLNodeType node = unordered[i].srcNode;
+            int[] list = node_steps.get(node);
+
+            if(list == null) {
+                list = new int[] { i };
+            } else {
+                int[] tmp = new int[list.length + 1];
+                System.arraycopy(list, 0, tmp, 0, list.length);
+                tmp[list.length] = i;
+                list = tmp;
+            }
+
+            node_steps.put(node, list);
+        }
+
+        // Build the successor lists. A destination node that is reached by
+        // several routes from the one eventOut only needs the edge once.
+        Set<VRMLNodeType> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for(int i = 0; i < count; i++) {
+            DispatchStep step = unordered[i];
+            int num_succ = 0;
+            int[] succ = null;
+
+            seen.clear();
+
+            for(int j = 0; j < step.numRoutes; j++) {
+                VRMLNodeType dest = step.routes[j].destNode;
+
+                if(!seen.add(dest))
+                    continue;
+
+                int[] targets = node_steps.get(dest);
+
+                if(targets == null)
+                    continue;
+
+                if(succ == null) {
+                    succ = new int[targets.length];
+                } else if(num_succ + targets.length > succ.length) {
+                    int[] tmp = new int[num_succ + targets.length];
+                    System.arraycopy(succ, 0, tmp, 0, num_succ);
+                    succ = tmp;
+                }
+
+                System.arraycopy(targets, 0, succ, num_succ, targets.length);
+                num_succ += targets.length;
+            }
+
+            if(succ != null && succ.length != num_succ) {
+                int[] tmp = new int[num_succ];
+                System.arraycopy(succ, 0, tmp, 0, num_succ);
+                succ = tmp;
+            }
+
+            step.successors = succ;
+        }
+
+        int[] order = reversePostOrder(unordered);
+
+        if(steps.length < count) {
+            int reqd = (count >= steps.length + ARRAY_INC) ?
+                       count :
+                       steps.length + ARRAY_INC;
+
+            steps = new DispatchStep[reqd];
+        }
+
+        // Position of each unordered step in the final order, so that the
+        // successors can be turned into positions in the step array.
+        int[] position = new int[count];
+
+        for(int i = 0; i < count; i++)
+            position[order[i]] = i;
+
+        for(int i = 0; i < count; i++) {
+            DispatchStep step = unordered[order[i]];
+            steps[i] = step;
+
+            int[] succ = step.successors;
+            step.successors = null;
+            step.targets = null;
+
+            if(succ == null)
+                continue;
+
+            for(int j = 0; j < succ.length; j++)
+                succ[j] = position[succ[j]];
+
+            step.targets = succ;
+        }
+
+        for(int i = count; i < numSteps; i++)
+            steps[i] = null;
+
+        numSteps = count;
+    }
+
+    /**
+     * Generate the reverse post-order of a depth first walk over the steps.
+     * Uses an explicit stack as route chains may be very long.
+     *
+     * @param graph The steps with their successor lists filled in
+     * @return The step indices in dispatch order
+     */
+    private int[] reversePostOrder(DispatchStep[] graph) {
+        int count = graph.length;
+        int[] order = new int[count];
+        int out = count;
+
+        boolean[] visited = new boolean[count];
+        int[] stack = new int[count];
+        int[] edge_pos = new int[count];
+
+        for(int root = 0; root < count; root++) {
+            if(visited[root])
+                continue;
+
+            int top = 0;
+            stack[0] = root;
+            edge_pos[0] = 0;
+            visited[root] = true;
+
+            while(top >= 0) {
+                int current = stack[top];
+                int[] succ = graph[current].successors;
+
+                if(succ != null && edge_pos[top] < succ.length) {
+                    int next = succ[edge_pos[top]++];
+
+                    if(!visited[next]) {
+                        visited[next] = true;
+                        top++;
+                        stack[top] = next;
+                        edge_pos[top] = 0;
+                    }
+                } else {
+                    order[--out] = current;
+                    top--;
+                }
+            }
+        }
+
+        return order;
+    }
+}
@@ -0,0 +1,48 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+// none
+
+// Local imports
+import org.xj3d.core.eventmodel.Router;
+
+/**
+ * A router that keeps count of the work done in its last processRoutes()
+ * call, so that {@link DefaultRouteManager} can report cascade statistics.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+interface CountingRouter extends Router {
+
+    /**
+     * Get the number of individual routes that sent a value during the last
+     * call to processRoutes().
+     *
+     * @return The number of routes fired in the last pass
+     */
+    int getLastRoutesFired();
+
+    /**
+     * Get the length of the longest chain of routes fired so far in the
+     * current frame, up to and including the last call to processRoutes().
+     * A frame is all the calls that share one timestamp. A router with no
+     * knowledge of the route graph returns the number of calls in the frame
+     * that fired something.
+     *
+     * @return The cascade depth of the frame so far
+     */
+    int getLastCascadeDepth();
+}
@@ -13,10 +13,13 @@
 package org.xj3d.impl.core.eventmodel;
 
 // Export imports
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 // Local imports
 import org.web3d.vrml.lang.*;
@@ -64,6 +67,20 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
     private static final int[] LAYER_NODE_TYPES = {
         TypeConstants.LayerNodeType};
 
+    /**
+     * Property name that turns on frame profiling when set to true. The
+     * profiler is registered with the platform MBean server.
+     */
+    public static final String PROFILE_PROP = "org.xj3d.eventmodel.profile";
+
+    /**
+     * Property name that, when set to true, runs node managers that
+     * implement {@link ConcurrentNodeManager} in parallel on the common
+     * fork/join pool.
+     */
+    public static final String PARALLEL_MANAGERS_PROP =
+        "org.xj3d.eventmodel.parallel.managers";
+
     /** Number of items to create in the initial array size */
     private static final int NUM_NODES = 32;
 
@@ -209,6 +226,18 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
     /** Map of node type id to NodeObserver instances for that node */
     private IntHashMap<List<NodeObserver>> nodeObserverMap;
 
+    /** Frame timing collector. Null when profiling is off */
+    private FrameProfiler profiler;
+
+    /** Pool for parallel node managers. Null to run them in order */
+    private ForkJoinPool managerPool;
+
+    /** Parallel schedule of the pre-event managers, if a pool is set */
+    private NodeManagerScheduler preEventScheduler;
+
+    /** Parallel schedule of the post-event managers, if a pool is set */
+    private NodeManagerScheduler postEventScheduler;
+
     /**
      * Construct a new instance of the evaluator.
      */
@@ -240,6 +269,26 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         layerToRendererMap = new HashMap<>();
 
         nodeObserverMap = new IntHashMap<>();
+
+        boolean[] props = AccessController.doPrivileged(
+            new PrivilegedAction<boolean[]>() {
+                @Override
+                public boolean[] run() {
+                    boolean[] ret_val = new boolean[2];
+                    ret_val[0] = Boolean.getBoolean(PROFILE_PROP);
+                    ret_val[1] = Boolean.getBoolean(PARALLEL_MANAGERS_PROP);
+                    return ret_val;
+                }
+            });
+
+        if(props[0]) {
+            FrameProfiler prof = new FrameProfiler();
+            prof.registerMBean(Integer.toHexString(hashCode()));
+            setFrameProfiler(prof);
+        }
+
+        if(props[1])
+            managerPool = ForkJoinPool.commonPool();
     }
 
     //----------------------------------------------------------
@@ -326,6 +375,12 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         numPreEventManagers = int_cnt;
         numPostEventManagers = ext_cnt;
 
+        if(profiler != null)
+            updateProfilerManagers();
+
+        if(managerPool != null)
+            buildManagerSchedules();
+
         // Always create the default layer first up.
         layerManagers = new LayerManager[1];
         layerManagers[0] = layerManagerFactory.createLayerManager();
@@ -406,6 +461,9 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         }
 
         viewpointManager.shutdown();
+
+        if(profiler != null)
+            profiler.unregisterMBean();
     }
 
     /**
@@ -433,6 +491,14 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         contentLoader.setErrorReporter(errorReporter);
         layerManagerFactory.setErrorReporter(errorReporter);
 
+        if(profiler != null)
+            profiler.setErrorReporter(errorReporter);
+
+        if(preEventScheduler != null) {
+            preEventScheduler.setErrorReporter(errorReporter);
+            postEventScheduler.setErrorReporter(errorReporter);
+        }
+
         for(int i = 0; i < numValidLayerManagers; i++)
             layerManagers[i].setErrorReporter(errorReporter);
 
@@ -690,10 +756,102 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         }
     }
 
+    //----------------------------------------------------------
+    // Local public methods
+    //----------------------------------------------------------
+
+    /**
+     * Set the profiler used to time each frame. Setting null turns profiling
+     * off, in which case the only cost per frame is a null check.
+     *
+     * @param prof The profiler to use, or null
+     */
+    public void setFrameProfiler(FrameProfiler prof) {
+        profiler = prof;
+
+        if(prof != null) {
+            prof.setErrorReporter(errorReporter);
+            updateProfilerManagers();
+        }
+    }
+
+    /**
+     * Get the profiler currently timing frames.
+     *
+     * @return The current profiler, or null if profiling is off
+     */
+    public FrameProfiler getFrameProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Set the pool used to run node managers in parallel. Only managers that
+     * implement {@link ConcurrentNodeManager} and do not conflict with each
+     * other run at the same time. All managers have finished before route
+     * processing starts. Setting null runs every manager in order on the
+     * event model thread, which is the default.
+     *
+     * @param pool The pool to use, or null
+     */
+    public void setNodeManagerPool(ForkJoinPool pool) {
+        managerPool = pool;
+
+        if(pool == null) {
+            preEventScheduler = null;
+            postEventScheduler = null;
+        } else if(preEventManagers != null) {
+            buildManagerSchedules();
+        }
+    }
+
+    /**
+     * Get the pool currently used to run node managers in parallel.
+     *
+     * @return The pool, or null if managers run in order
+     */
+    public ForkJoinPool getNodeManagerPool() {
+        return managerPool;
+    }
+
     //----------------------------------------------------------
     // Local convenience methods
     //----------------------------------------------------------
 
+    /**
+     * Work out which managers can run in parallel with the current pool.
+     */
+    private void buildManagerSchedules() {
+        preEventScheduler = new NodeManagerScheduler(managerPool,
+                                                     preEventManagers,
+                                                     numPreEventManagers,
+                                                     true);
+        postEventScheduler = new NodeManagerScheduler(managerPool,
+                                                      postEventManagers,
+                                                      numPostEventManagers,
+                                                      false);
+
+        preEventScheduler.setErrorReporter(errorReporter);
+        postEventScheduler.setErrorReporter(errorReporter);
+    }
+
+    /**
+     * Tell the profiler the names of the managers, pre-event managers first.
+     * These match the indices used when timing each manager.
+     */
+    private void updateProfilerManagers() {
+        String[] names =
+            new String[numPreEventManagers + numPostEventManagers];
+
+        for(int i = 0; i < numPreEventManagers; i++)
+            names[i] = preEventManagers[i].getClass().getSimpleName();
+
+        for(int i = 0; i < numPostEventManagers; i++)
+            names[numPreEventManagers + i] =
+                postEventManagers[i].getClass().getSimpleName();
+
+        profiler.setManagerNames(names);
+    }
+
     /**
      * Finish setting the scene at the right time.
      *
@@ -849,6 +1007,10 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
      */
     private void evaluateRunning(long time) {
 
+        FrameProfiler prof = profiler;
+        if(prof != null)
+            prof.beginFrame(time);
+
         if(pendingViewpoint != null) {
             pendingViewpoint.setBind(true, true, time);
             pendingViewpoint = null;
@@ -899,6 +1061,9 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_SYNC);
+
         // The step numbers here are taken from the X3D Part 2 specification.
         // ISO/IEC 17775-2 4.8.2 Event model evaluation order
         // 1. Update camera based on currently bound Viewpoint's position
@@ -909,6 +1074,9 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_SENSORS);
+
         // Treat these a sensor nodes for event model
         processPreEventManagers(time);
         processNodeObservers();
@@ -916,6 +1084,9 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_PRE_EVENT);
+
         for (ExternalView view : externalViews) {
             if(shutdownNow)
                 return;
@@ -926,6 +1097,9 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_EXTERNAL);
+
         // 4. Call the prepareEvents script service for all live script
         //    nodes in the scene.
         double vrml_time = time * 0.001;
@@ -934,17 +1108,26 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_SCRIPTS);
+
         // 5. Evaluate routes.
         routeManager.processRoutes(vrml_time);
 
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_ROUTES);
+
         scriptManager.processEvents();
 
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_SCRIPTS);
+
         loadScenes(stateManager.getAddedScenes());
 
         if(shutdownNow)
@@ -984,7 +1167,15 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
             }
         }
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_LOADING);
+
         do {
+            // Charges the previous loop test to routing. Nothing on the
+            // first time through.
+            if(prof != null)
+                prof.endPhase(FrameProfiler.PHASE_ROUTES);
+
             // 6. Call the shutdown service on scripts that have received
             //    set_url events or are being removed from the scene
             scriptManager.shutdownActiveScripts();
@@ -1082,6 +1273,9 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
             if(shutdownNow)
                 return;
 
+            if(prof != null)
+                prof.endPhase(FrameProfiler.PHASE_CASCADE);
+
             // 11. If any events were generated from steps 5 through 10,
             //     go to step 5 and continue.
         } while(routeManager.processRoutes(vrml_time));
@@ -1090,11 +1284,17 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_ROUTES);
+
         processPostEventManagers(time);
 
         if(shutdownNow)
             return;
 
+        if(prof != null)
+            prof.endPhase(FrameProfiler.PHASE_POST_EVENT);
+
         // Finally set up the rendered order of layers on screen.
         if(layer_set != null) {
             int num_order = layer_set.getNumRenderedLayers();
@@ -1184,6 +1384,11 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
             return;
 
         processSynchronisedNodes(false);
+
+        if(prof != null) {
+            prof.endPhase(FrameProfiler.PHASE_LAYERS);
+            prof.endFrame();
+        }
     }
 
     /**
@@ -1369,37 +1574,39 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
      * @param time The timestamp of "now"
      */
     private void processPreEventManagers(long time) {
-        for(int i = 0; i < numPreEventManagers && !shutdownNow; i++) {
-            int[] types = preEventManagers[i].getManagedNodeTypes();
-
-            if(shutdownNow)
-                return;
-
-            for(int j = 0; j < types.length; j++) {
-                NodeArray nodes = stateManager.getRemovedNodes(types[j]);
-
-                int size = nodes.size();
-                for(int k = 0; k < size; k++) {
-                    VRMLNodeType n = (VRMLNodeType)nodes.get(k);
-                    preEventManagers[i].removeManagedNode(n);
-                }
+        if(preEventScheduler != null) {
+            for(int i = 0; i < numPreEventManagers; i++) {
+                updateManagedNodes(preEventManagers[i]);
 
                 if(shutdownNow)
                     return;
+            }
 
-                nodes = stateManager.getAddedNodes(types[j]);
-                size = nodes.size();
+            preEventScheduler.execute(time);
 
-                for(int k = 0; k < size; k++) {
-                    VRMLNodeType n = (VRMLNodeType)nodes.get(k);
-                    preEventManagers[i].addManagedNode(n);
-                }
+            FrameProfiler prof = profiler;
+            if(prof != null) {
+                for(int i = 0; i < numPreEventManagers; i++)
+                    prof.managerTime(i, preEventScheduler.getElapsedTime(i));
             }
 
+            return;
+        }
+
+        for(int i = 0; i < numPreEventManagers && !shutdownNow; i++) {
+            updateManagedNodes(preEventManagers[i]);
+
             if(shutdownNow)
                 return;
 
-            preEventManagers[i].executePreEventModel(time);
+            FrameProfiler prof = profiler;
+            if(prof != null) {
+                long start = System.nanoTime();
+                preEventManagers[i].executePreEventModel(time);
+                prof.managerTime(i, System.nanoTime() - start);
+            } else {
+                preEventManagers[i].executePreEventModel(time);
+            }
         }
     }
 
@@ -1409,42 +1616,75 @@ public class DefaultEventModelEvaluator implements EventModelEvaluator {
      * @param time The timesstamp of "now"
      */
     private void processPostEventManagers(long time) {
+        if(postEventScheduler != null) {
+            for(int i = 0; i < numPostEventManagers; i++) {
+                updateManagedNodes(postEventManagers[i]);
+
+                if(shutdownNow)
+                    return;
+            }
+
+            postEventScheduler.execute(time);
+
+            FrameProfiler prof = profiler;
+            if(prof != null) {
+                for(int i = 0; i < numPostEventManagers; i++)
+                    prof.managerTime(numPreEventManagers + i,
+                                     postEventScheduler.getElapsedTime(i));
+            }
+
+            return;
+        }
 
         for(int i = 0; i < numPostEventManagers && !shutdownNow; i++) {
-            int[] types = postEventManagers[i].getManagedNodeTypes();
+            updateManagedNodes(postEventManagers[i]);
 
             if(shutdownNow)
                 return;
 
-            for(int j = 0; j < types.length; j++) {
-                NodeArray nodes = stateManager.getRemovedNodes(types[j]);
+            FrameProfiler prof = profiler;
+            if(prof != null) {
+                long start = System.nanoTime();
+                postEventManagers[i].executePostEventModel(time);
+                prof.managerTime(numPreEventManagers + i,
+                                 System.nanoTime() - start);
+            } else {
+                postEventManagers[i].executePostEventModel(time);
+            }
+        }
+    }
 
-                int size = nodes.size();
-                for(int k = 0; k < size; k++) {
-                    VRMLNodeType n = (VRMLNodeType)nodes.get(k);
-                    postEventManagers[i].removeManagedNode(n);
-                }
+    /**
+     * Pass the nodes of the manager's types that were removed and added
+     * this frame to the manager. Returns early if a shutdown is requested.
+     *
+     * @param mgr The manager to update
+     */
+    private void updateManagedNodes(NodeManager mgr) {
+        int[] types = mgr.getManagedNodeTypes();
 
-                if(shutdownNow)
-                    return;
+        for(int j = 0; j < types.length; j++) {
+            NodeArray nodes = stateManager.getRemovedNodes(types[j]);
 
-                nodes = stateManager.getAddedNodes(types[j]);
-                size = nodes.size();
+            int size = nodes.size();
+            for(int k = 0; k < size; k++) {
+                VRMLNodeType n = (VRMLNodeType)nodes.get(k);
+                mgr.removeManagedNode(n);
+            }
 
-                for(int k = 0; k < size; k++) {
-                    VRMLNodeType n = (VRMLNodeType)nodes.get(k);
-                    postEventManagers[i].addManagedNode(n);
-                }
+            if(shutdownNow)
+                return;
 
-                if(shutdownNow)
-                    return;
+            nodes = stateManager.getAddedNodes(types[j]);
+            size = nodes.size();
 
+            for(int k = 0; k < size; k++) {
+                VRMLNodeType n = (VRMLNodeType)nodes.get(k);
+                mgr.addManagedNode(n);
             }
 
             if(shutdownNow)
                 return;
-
-            postEventManagers[i].executePostEventModel(time);
         }
     }
 
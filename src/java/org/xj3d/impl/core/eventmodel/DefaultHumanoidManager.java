@@ -25,7 +25,7 @@ import org.web3d.vrml.nodes.VRMLNodeType;
 import org.web3d.vrml.nodes.VRMLHAnimHumanoidNodeType;
 import org.web3d.vrml.util.NodeArray;
 
-import org.xj3d.core.eventmodel.NodeManager;
+import org.xj3d.core.eventmodel.ConcurrentNodeManager;
 
 /**
  * Manager for HAnimHumanoid nodes and their contained sets of children.
@@ -36,13 +36,26 @@ import org.xj3d.core.eventmodel.NodeManager;
  * @author Justin Couch
  * @version $Revision: 1.2 $
  */
-public class DefaultHumanoidManager implements NodeManager {
+public class DefaultHumanoidManager implements ConcurrentNodeManager {
 
     /** List of managed node types */
     private static final int[] MANAGED_NODE_TYPES = {
         TypeConstants.HumanoidNodeType
     };
 
+    /**
+     * Node types changed when the skin is deformed. The geometry using the
+     * skin coordinates passes the change on to the rendering API.
+     */
+    private static final int[] WRITTEN_NODE_TYPES = {
+        TypeConstants.CoordinateNodeType,
+        TypeConstants.NormalNodeType,
+        ConcurrentNodeManager.SCENE_GRAPH_TYPE
+    };
+
+    /** Node types touched other than the managed types */
+    private static final int[] NO_NODE_TYPES = new int[0];
+
     /** Reporter instance for handing out errors */
     private ErrorReporter errorReporter;
 
@@ -57,6 +70,32 @@ public class DefaultHumanoidManager implements NodeManager {
         errorReporter = DefaultErrorReporter.getDefaultReporter();
     }
 
+    //-------------------------------------------------------------
+    // Methods defined by ConcurrentNodeManager
+    //-------------------------------------------------------------
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * reads during execution.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    @Override
+    public int[] getReadNodeTypes() {
+        return NO_NODE_TYPES;
+    }
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * changes during execution.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    @Override
+    public int[] getWrittenNodeTypes() {
+        return WRITTEN_NODE_TYPES;
+    }
+
     //-------------------------------------------------------------
     // Methods defined by NodeManager
     //-------------------------------------------------------------
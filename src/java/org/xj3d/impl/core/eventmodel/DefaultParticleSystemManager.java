@@ -26,7 +26,7 @@ import org.web3d.vrml.nodes.VRMLNodeType;
 import org.web3d.vrml.nodes.VRMLParticleSystemNodeType;
 import org.web3d.vrml.util.NodeArray;
 
-import org.xj3d.core.eventmodel.NodeManager;
+import org.xj3d.core.eventmodel.ConcurrentNodeManager;
 
 /**
  * Manager for ParticleSystem nodes and their contained sets of children.
@@ -41,13 +41,21 @@ import org.xj3d.core.eventmodel.NodeManager;
  * @author Justin Couch
  * @version $Revision: 1.2 $
  */
-public class DefaultParticleSystemManager implements NodeManager {
+public class DefaultParticleSystemManager implements ConcurrentNodeManager {
 
     /** List of managed node types */
     private static final int[] MANAGED_NODE_TYPES = {
         TypeConstants.ParticleSystemNodeType
     };
 
+    /** The particle systems update their rendering API geometry */
+    private static final int[] WRITTEN_NODE_TYPES = {
+        ConcurrentNodeManager.SCENE_GRAPH_TYPE
+    };
+
+    /** Node types read other than the managed types */
+    private static final int[] NO_NODE_TYPES = new int[0];
+
     /** Reporter instance for handing out errors */
     private ErrorReporter errorReporter;
 
@@ -66,6 +74,32 @@ public class DefaultParticleSystemManager implements NodeManager {
         errorReporter = DefaultErrorReporter.getDefaultReporter();
     }
 
+    //-------------------------------------------------------------
+    // Methods defined by ConcurrentNodeManager
+    //-------------------------------------------------------------
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * reads during execution.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    @Override
+    public int[] getReadNodeTypes() {
+        return NO_NODE_TYPES;
+    }
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * changes during execution.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    @Override
+    public int[] getWrittenNodeTypes() {
+        return WRITTEN_NODE_TYPES;
+    }
+
     //-------------------------------------------------------------
     // Methods defined by NodeManager
     //-------------------------------------------------------------
@@ -32,7 +32,7 @@ import org.web3d.vrml.lang.TypeConstants;
 import org.web3d.vrml.nodes.*;
 import org.web3d.vrml.util.NodeArray;
 
-import org.xj3d.core.eventmodel.NodeManager;
+import org.xj3d.core.eventmodel.ConcurrentNodeManager;
 
 /**
  * Manager for the rigid body physics model nodes.
@@ -55,7 +55,7 @@ import org.xj3d.core.eventmodel.NodeManager;
  * @author Justin Couch
  * @version $Revision: 1.7 $
  */
-public class DefaultRigidBodyPhysicsManager implements NodeManager {
+public class DefaultRigidBodyPhysicsManager implements ConcurrentNodeManager {
 
     /** List of managed node types */
     private static final int[] MANAGED_NODE_TYPES = {
@@ -67,6 +67,14 @@ public class DefaultRigidBodyPhysicsManager implements NodeManager {
         TypeConstants.nBodyCollisionSensorNodeType
     };
 
+    /** The collidables update the rendering API structures from ODE */
+    private static final int[] WRITTEN_NODE_TYPES = {
+        ConcurrentNodeManager.SCENE_GRAPH_TYPE
+    };
+
+    /** Node types read other than the managed types */
+    private static final int[] NO_NODE_TYPES = new int[0];
+
     /** Average out the timesteps every so often */
     private static final int RECALC_INTERVAL = 10;
 
@@ -191,6 +199,32 @@ public class DefaultRigidBodyPhysicsManager implements NodeManager {
         errorReporter = DefaultErrorReporter.getDefaultReporter();
     }
 
+    //-------------------------------------------------------------
+    // Methods defined by ConcurrentNodeManager
+    //-------------------------------------------------------------
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * reads during execution.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    @Override
+    public int[] getReadNodeTypes() {
+        return NO_NODE_TYPES;
+    }
+
+    /**
+     * Get the node types, other than the managed types, that this manager
+     * changes during execution.
+     *
+     * @return A list of node type identifiers, possibly empty
+     */
+    @Override
+    public int[] getWrittenNodeTypes() {
+        return WRITTEN_NODE_TYPES;
+    }
+
     //-------------------------------------------------------------
     // Methods defined by NodeManager
     //-------------------------------------------------------------
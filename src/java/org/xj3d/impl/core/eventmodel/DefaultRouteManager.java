@@ -28,6 +28,7 @@ import org.web3d.vrml.lang.*;
 import org.xj3d.core.eventmodel.Router;
 import org.xj3d.core.eventmodel.RouterFactory;
 import org.xj3d.core.eventmodel.RouteManager;
+import org.xj3d.core.eventmodel.RouteStatistics;
 
 /**
  * A manager of high-level route organisation based on execution spaces.
@@ -56,11 +57,22 @@ import org.xj3d.core.eventmodel.RouteManager;
  * <p>
  *
  * Implementation is not particularly efficient in this version...
+ * <p>
+ *
+ * The manager also keeps per-frame cascade counters, available through the
+ * {@link RouteStatistics} interface. A new frame is recognised by a change in
+ * the timestamp passed to processRoutes(). Routers from this package report
+ * how many routes they fired and how deep the cascade has gone so far in the
+ * frame. With a {@link CompiledRouterFactory} the depth is the length of the
+ * longest chain of routes that actually fired, followed across passes through
+ * the nodes, such as scripts, that they reach. Other routers count each pass
+ * that did some work as one level. The frame's depth is the deepest reported
+ * by any of the routers.
  *
  * @author Justin Couch
  * @version $Revision: 1.2 $
  */
-public class DefaultRouteManager implements RouteManager {
+public class DefaultRouteManager implements RouteManager, RouteStatistics {
 
     /** The default initial size of the array of routes */
     private static final int DEFAULT_SIZE = 32;
@@ -101,6 +113,27 @@ public class DefaultRouteManager implements RouteManager {
     /** Temporary array used to fetch the values out of the spacesToX sets */
     private VRMLExecutionSpace[] tmpSpaceVals;
 
+    /** The timestamp of the frame currently being counted */
+    private double frameTimestamp;
+
+    /** Passes that did some work in the current frame */
+    private int framePasses;
+
+    /** Routes fired so far in the current frame */
+    private int frameRoutesFired;
+
+    /** Cascade depth reached so far in the current frame */
+    private int frameCascadeDepth;
+
+    /** Passes that did some work in the last complete frame */
+    private int lastPasses;
+
+    /** Routes fired in the last complete frame */
+    private int lastRoutesFired;
+
+    /** Deepest cascade in the last complete frame */
+    private int lastCascadeDepth;
+
     /**
      * Create a new instance of the execution space manager to run all the
      * routing.
@@ -119,6 +152,8 @@ public class DefaultRouteManager implements RouteManager {
 
         tmpSpaceVals = new VRMLExecutionSpace[DEFAULT_SIZE];
 
+        frameTimestamp = Double.NaN;
+
         errorReporter = DefaultErrorReporter.getDefaultReporter();
     }
 
@@ -165,16 +200,45 @@ public class DefaultRouteManager implements RouteManager {
     @Override
     public boolean processRoutes(double timestamp) {
 
+        if(timestamp != frameTimestamp) {
+            if(!Double.isNaN(frameTimestamp)) {
+                lastPasses = framePasses;
+                lastRoutesFired = frameRoutesFired;
+                lastCascadeDepth = frameCascadeDepth;
+            }
+
+            frameTimestamp = timestamp;
+            framePasses = 0;
+            frameRoutesFired = 0;
+            frameCascadeDepth = 0;
+        }
+
         boolean ret_val = false;
 
         for(int i = 0; i < numRouters; i++) {
             if(routerInUse[i]) {
-                boolean curr = routers[i].processRoutes(timestamp);
+                Router router = routers[i];
+                boolean curr = router.processRoutes(timestamp);
+                int depth;
+
+                if(router instanceof CountingRouter) {
+                    CountingRouter cr = (CountingRouter)router;
+                    frameRoutesFired += cr.getLastRoutesFired();
+                    depth = cr.getLastCascadeDepth();
+                } else {
+                    depth = curr ? framePasses + 1 : 0;
+                }
+
+                if(depth > frameCascadeDepth)
+                    frameCascadeDepth = depth;
 
                 ret_val = ret_val || curr;
             }
         }
 
+        if(ret_val)
+            framePasses++;
+
         return ret_val;
     }
 
@@ -392,6 +456,42 @@ public class DefaultRouteManager implements RouteManager {
         spacesToRemove.clear();
     }
 
+    //----------------------------------------------------------
+    // Methods defined by RouteStatistics
+    //----------------------------------------------------------
+
+    /**
+     * Get the number of route processing passes in the last frame that sent
+     * at least one event.
+     *
+     * @return The number of passes that did some work
+     */
+    @Override
+    public int getPassCount() {
+        return lastPasses;
+    }
+
+    /**
+     * Get the total number of individual routes that sent a value in the last
+     * frame.
+     *
+     * @return The number of routes fired
+     */
+    @Override
+    public int getRoutesFired() {
+        return lastRoutesFired;
+    }
+
+    /**
+     * Get the length of the longest chain of routes fired in the last frame.
+     *
+     * @return The deepest cascade seen
+     */
+    @Override
+    public int getMaxCascadeDepth() {
+        return lastCascadeDepth;
+    }
+
     //----------------------------------------------------------
     // Local methods
     //----------------------------------------------------------
@@ -13,6 +13,11 @@
 package org.xj3d.impl.core.eventmodel;
 
 // External imports
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import java.util.concurrent.ForkJoinPool;
+
 import org.j3d.util.DefaultErrorReporter;
 import org.j3d.util.ErrorReporter;
 import org.j3d.util.HashSet;
@@ -33,12 +38,24 @@ import org.xj3d.core.loading.ScriptLoadStatusListener;
  * and X3D semantics.
  * <p>
  *
+ * By default every script is run in order on the event model thread. When a
+ * pool is set, scripts that report themselves as self contained have their
+ * user code run in parallel, and their outputs are then passed on in script
+ * order before any routes are processed. See {@link ScriptScheduler}.
+ *
  * @author Justin Couch
- * @version $Revision: 1.2 $
+ * @version $Revision: 1.3 $
  */
 public class DefaultScriptManager
     implements ScriptManager, VRMLUrlListener, ScriptLoadStatusListener {
 
+    /**
+     * Property name that, when set to true, runs self contained scripts in
+     * parallel on the common fork/join pool.
+     */
+    public static final String PARALLEL_SCRIPTS_PROP =
+        "org.xj3d.eventmodel.parallel.scripts";
+
     /** Reporter instance for handing out errors */
     private ErrorReporter errorReporter;
 
@@ -69,6 +86,9 @@ public class DefaultScriptManager
     /** Mutex used the processed nodes list */
     private final Object processedListMutex;
 
+    /** Runs self contained scripts in parallel. Null to run them in order */
+    private ScriptScheduler scheduler;
+
     /**
      * Construct a new instance of the script manager
      */
@@ -87,6 +107,43 @@ public class DefaultScriptManager
         allScripts = new HashSet<>();
 
         errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        Boolean parallel = AccessController.doPrivileged(
+            new PrivilegedAction<Boolean>() {
+                @Override
+                public Boolean run() {
+                    return Boolean.getBoolean(PARALLEL_SCRIPTS_PROP);
+                }
+            });
+
+        if(parallel)
+            setScriptPool(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Set the pool used to run self contained scripts in parallel. All of
+     * the scripts have finished and their outputs have been passed on before
+     * either of the processing calls return. Setting null runs every script
+     * in order on the event model thread, which is the default.
+     *
+     * @param pool The pool to use, or null
+     */
+    public void setScriptPool(ForkJoinPool pool) {
+        if(pool == null) {
+            scheduler = null;
+        } else {
+            scheduler = new ScriptScheduler(pool);
+            scheduler.setErrorReporter(errorReporter);
+        }
+    }
+
+    /**
+     * Get the pool currently used to run self contained scripts in parallel.
+     *
+     * @return The pool, or null if scripts run in order
+     */
+    public ForkJoinPool getScriptPool() {
+        return (scheduler == null) ? null : scheduler.getPool();
     }
 
     //-------------------------------------------------------------
@@ -165,6 +222,9 @@ public class DefaultScriptManager
 
         if(loader != null)
             loader.setErrorReporter(errorReporter);
+
+        if(scheduler != null)
+            scheduler.setErrorReporter(errorReporter);
     }
 
     /**
@@ -292,6 +352,11 @@ public class DefaultScriptManager
      */
     @Override
     public void processEvents() {
+        if(scheduler != null) {
+            scheduler.processEvents(activeScripts);
+            return;
+        }
+
         int size = activeScripts.size();
 
         for(int i = 0; i < size; i++) {
@@ -306,6 +371,11 @@ public class DefaultScriptManager
      */
     @Override
     public void eventsProcessed() {
+        if(scheduler != null) {
+            scheduler.eventsProcessed(activeScripts);
+            return;
+        }
+
         int size = activeScripts.size();
 
         for(int i = 0; i < size; i++) {
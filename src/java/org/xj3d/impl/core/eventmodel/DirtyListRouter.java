@@ -0,0 +1,565 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.util.*;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+import org.j3d.util.HashSet;
+import org.web3d.vrml.lang.ROUTE;
+import org.web3d.vrml.nodes.VRMLNodeListener;
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+/**
+ * A router that only visits the eventOuts that have actually changed, rather
+ * than scanning every registered eventOut on each pass.
+ * <p>
+ *
+ * Routes are grouped by eventOut in the same way as {@link ListsRouter}. The
+ * difference is that this router registers a {@link VRMLNodeListener} with
+ * each source node. When a node marks a routed field as changed, the listener
+ * places the eventOut on an intrusive singly linked worklist. The
+ * processRoutes() call then only walks that list. Each eventOut is queued at
+ * most once, no matter how many times it changes before the next pass.
+ * <p>
+ *
+ * Cascade and loop-breaking behaviour is unchanged. Routes are still only sent
+ * when {@link VRMLNodeType#hasFieldChanged(int)} reports a change, so the
+ * per-node change flags remain the single source of truth. Values that change
+ * while a pass is running are queued for the following pass, which the route
+ * manager performs because this pass reports that it sent events.
+ * <p>
+ *
+ * Newly added eventOuts are queued once when updateRoutes() is called so that
+ * values set before the route existed are not lost.
+ * <p>
+ *
+ * An eventOut changed by a route sent during a pass always waits for the next
+ * pass here. {@link ListsRouter} sends it in the same pass if it comes later
+ * in its scan, which depends on hash order. Within a running frame the route
+ * manager keeps making passes, so both routers fire the same routes. The
+ * difference shows at startup, where the event model makes one pass only.
+ * There ListsRouter may send a value, such as the first value_changed of an
+ * interpolator driven by a TimeSensor, into a script that does not get to
+ * process it, and the value is lost. This router sends it in the first frame
+ * instead, where it is delivered.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class DirtyListRouter implements CountingRouter {
+
+    /** The default initial size of the array of routes */
+    private static final int DEFAULT_SIZE = 32;
+
+    /** Increment of the array size when we need to increase */
+    private static final int ARRAY_INC = 8;
+
+    /**
+     * An eventOut with the routes leaving it. Doubles as a link in the
+     * worklist so that queueing never allocates.
+     */
+    private static final class DirtySource {
+
+        /** Reference to the source node of this route */
+        VRMLNodeType srcNode;
+
+        /** Index of the source field of this route */
+        int srcIndex;
+
+        /** The routes leaving this eventOut */
+        RouteHolder[] routes;
+
+        /** The number of valid routes in the array */
+        int numRoutes;
+
+        /** True when this holder is currently sitting in the worklist */
+        boolean queued;
+
+        /** The next item in the worklist */
+        DirtySource next;
+
+        /**
+         * Construct a new holder for the given node and field.
+         *
+         * @param node The source node
+         * @param index The source field index
+         */
+        DirtySource(VRMLNodeType node, int index) {
+            srcNode = node;
+            srcIndex = index;
+            routes = new RouteHolder[2];
+        }
+
+        /**
+         * Add a route to the list leaving this eventOut.
+         *
+         * @param rh The route to add
+         */
+        void addRoute(RouteHolder rh) {
+            if(numRoutes == routes.length) {
+                RouteHolder[] tmp = new RouteHolder[numRoutes + ARRAY_INC];
+                System.arraycopy(routes, 0, tmp, 0, numRoutes);
+                routes = tmp;
+            }
+
+            routes[numRoutes++] = rh;
+        }
+
+        /**
+         * Remove a route from the list leaving this eventOut.
+         *
+         * @param rh The route to remove
+         */
+        void removeRoute(RouteHolder rh) {
+            for(int i = 0; i < numRoutes; i++) {
+                if(routes[i].equals(rh)) {
+                    System.arraycopy(routes, i + 1, routes, i, numRoutes - i - 1);
+                    routes[--numRoutes] = null;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Listener registered with each source node. Maps the changed field index
+     * to the eventOut holder and queues it.
+     */
+    private final class SourceListener implements VRMLNodeListener {
+
+        /** The node this listener is registered with */
+        final VRMLNodeType node;
+
+        /** Holders indexed by field index. Sparse, mostly null */
+        DirtySource[] sources;
+
+        /** The number of non-null entries in the sources array */
+        int sourceCount;
+
+        /**
+         * Construct a new listener for the given node.
+         *
+         * @param node The node to listen to
+         */
+        SourceListener(VRMLNodeType node) {
+            this.node = node;
+            sources = new DirtySource[0];
+        }
+
+        @Override
+        public void fieldChanged(int index) {
+            if(index < 0 || index >= sources.length)
+                return;
+
+            DirtySource ds = sources[index];
+
+            if(ds != null)
+                enqueue(ds);
+        }
+
+        /**
+         * Fetch the holder for the given field, creating it if needed.
+         *
+         * @param index The field index
+         * @return The holder for that field
+         */
+        DirtySource getSource(int index) {
+            if(index >= sources.length) {
+                DirtySource[] tmp = new DirtySource[index + 1];
+                System.arraycopy(sources, 0, tmp, 0, sources.length);
+                sources = tmp;
+            }
+
+            DirtySource ds = sources[index];
+
+            if(ds == null) {
+                ds = new DirtySource(node, index);
+                sources[index] = ds;
+                sourceCount++;
+            }
+
+            return ds;
+        }
+    }
+
+    /** The set of all routes held by this manager */
+    private HashSet<RouteHolder> routeSet;
+
+    /** Set of all routes waiting to be added */
+    private HashSet<RouteHolder> routesToAdd;
+
+    /** Set of all routes waiting to be removed */
+    private HashSet<RouteHolder> routesToRemove;
+
+    /** Map of source node to the listener registered with it */
+    private Map<VRMLNodeType, SourceListener> listenerMap;
+
+    /** Head of the worklist of changed eventOuts. Guarded by queueLock */
+    private DirtySource queueHead;
+
+    /** Tail of the worklist of changed eventOuts. Guarded by queueLock */
+    private DirtySource queueTail;
+
+    /** Lock for the worklist, as fields may be changed off this thread */
+    private final Object queueLock;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /** Temporary array for processing routes added & removed */
+    private RouteHolder[] routeTmp;
+
+    /** The number of routes sent in the last call to processRoutes() */
+    private int lastRoutesFired;
+
+    /** The timestamp of the current frame */
+    private double frameTimestamp;
+
+    /** Calls to processRoutes() in the current frame that sent something */
+    private int framePasses;
+
+    /**
+     * Create and initialise a route manager instance
+     */
+    public DirtyListRouter() {
+        routeSet = new HashSet<>();
+        routesToAdd = new HashSet<>();
+        routesToRemove = new HashSet<>();
+
+        listenerMap = new IdentityHashMap<>();
+        queueLock = new Object();
+
+        routeTmp = new RouteHolder[DEFAULT_SIZE];
+
+        frameTimestamp = Double.NaN;
+
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    //-------------------------------------------------------------
+    // Methods defined by Router
+    //-------------------------------------------------------------
+
+    /**
+     * Register an error reporter with the engine so that any errors generated
+     * by the loading of script code can be reported in a nice, pretty fashion.
+     * Setting a value of null will clear the currently set reporter. If one
+     * is already set, the new value replaces the old.
+     *
+     * @param reporter The instance to use or null
+     */
+    @Override
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        // Reset the default only if we are not shutting down the system.
+        if(reporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Process the eventOuts that have been marked as changed since the last
+     * call. Anything changed as a result of this pass is left for the next.
+     *
+     * @param timestamp The timestamp for when these routes should be executed
+     * @return false No event outs needed processing this call
+     */
+    @Override
+    public boolean processRoutes(double timestamp) {
+
+        if(timestamp != frameTimestamp) {
+            frameTimestamp = timestamp;
+            framePasses = 0;
+        }
+
+        DirtySource ds;
+
+        synchronized(queueLock) {
+            ds = queueHead;
+            queueHead = null;
+            queueTail = null;
+        }
+
+        boolean routeSetToProcess = false;
+        int fired = 0;
+
+        while(ds != null) {
+            DirtySource next = ds.next;
+            ds.next = null;
+            ds.queued = false;
+
+            if(ds.numRoutes != 0 && ds.srcNode.hasFieldChanged(ds.srcIndex)) {
+                RouteHolder[] routes = ds.routes;
+                int size = ds.numRoutes;
+
+                for(int j = 0; j < size; j++)
+                    routes[j].sendRoute(timestamp);
+
+                fired += size;
+                routeSetToProcess = true;
+            }
+
+            ds = next;
+        }
+
+        lastRoutesFired = fired;
+
+        if(fired != 0)
+            framePasses++;
+
+        return routeSetToProcess;
+    }
+
+    /**
+     * Add a route to the system. If the route exists in the system, this
+     * silently ignores the request.
+     *
+     * @param srcNode The source node of the route
+     * @param srcIndex The index of the source field
+     * @param destNode The destination node of the route
+     * @param destIndex The index of the destination field
+     */
+    @Override
+    public void addRoute(VRMLNodeType srcNode,
+                         int srcIndex,
+                         VRMLNodeType destNode,
+                         int destIndex) {
+
+        RouteHolder holder = new RouteHolder();
+        holder.srcNode = srcNode;
+        holder.srcIndex = srcIndex;
+        holder.destNode = destNode;
+        holder.destIndex = destIndex;
+
+        if(routeSet.contains(holder) || routesToAdd.contains(holder))
+            return;
+
+        if(routesToRemove.contains(holder)) {
+            routesToRemove.remove(holder);
+            return;
+        }
+
+        routesToAdd.add(holder);
+    }
+
+    /**
+     * A request to bulk add routes to this router. Typically used when we're
+     * bringing back online a router having previously cleared.
+     *
+     * @param routes List of all the ROUTE objects to add
+     */
+    @Override
+    public void addRoutes(List<ROUTE> routes) {
+        int size = routes.size();
+
+        for(int i = 0; i < size; i++) {
+            ROUTE rt = routes.get(i);
+
+            addRoute((VRMLNodeType)rt.getSourceNode(),
+                     rt.getSourceIndex(),
+                     (VRMLNodeType)rt.getDestinationNode(),
+                     rt.getDestinationIndex());
+        }
+    }
+
+    /**
+     * Remove a route from the system. If the route does not exist in the
+     * system, this silently ignores the request.
+     *
+     * @param srcNode The source node of the route
+     * @param srcIndex The index of the source field
+     * @param destNode The destination node of the route
+     * @param destIndex The index of the destination field
+     */
+    @Override
+    public void removeRoute(VRMLNodeType srcNode,
+                            int srcIndex,
+                            VRMLNodeType destNode,
+                            int destIndex) {
+
+        RouteHolder holder = new RouteHolder();
+        holder.srcNode = srcNode;
+        holder.srcIndex = srcIndex;
+        holder.destNode = destNode;
+        holder.destIndex = destIndex;
+
+        if(!routeSet.contains(holder) || routesToRemove.contains(holder))
+            return;
+
+        if(routesToAdd.contains(holder)) {
+            routesToAdd.remove(holder);
+            return;
+        }
+
+        routesToRemove.add(holder);
+    }
+
+    @Override
+    public void updateRoutes() {
+
+        // No point generating extra garbage if not needed
+        if(routesToRemove.isEmpty() && routesToAdd.isEmpty())
+            return;
+
+        routeSet.removeAll(routesToRemove);
+        routeSet.addAll(routesToAdd);
+
+        int size = routesToRemove.size();
+        ensureTmpCapacity(size);
+        routesToRemove.toArray(routeTmp);
+
+        for(int i = 0; i < size; i++) {
+            RouteHolder rh = routeTmp[i];
+            routeTmp[i] = null;
+
+            SourceListener sl = listenerMap.get(rh.srcNode);
+
+            if(sl == null || rh.srcIndex >= sl.sources.length)
+                continue;
+
+            DirtySource ds = sl.sources[rh.srcIndex];
+
+            if(ds == null)
+                continue;
+
+            ds.removeRoute(rh);
+
+            // Leave a queued holder in place; it is skipped when empty and
+            // unlinked at the next pass.
+            if(ds.numRoutes == 0) {
+                sl.sources[rh.srcIndex] = null;
+                sl.sourceCount--;
+
+                if(sl.sourceCount == 0) {
+                    sl.node.removeNodeListener(sl);
+                    listenerMap.remove(sl.node);
+                }
+            }
+        }
+
+        size = routesToAdd.size();
+        ensureTmpCapacity(size);
+        routesToAdd.toArray(routeTmp);
+
+        for(int i = 0; i < size; i++) {
+            RouteHolder rh = routeTmp[i];
+            routeTmp[i] = null;
+
+            SourceListener sl = listenerMap.get(rh.srcNode);
+
+            if(sl == null) {
+                sl = new SourceListener(rh.srcNode);
+                listenerMap.put(rh.srcNode, sl);
+                rh.srcNode.addNodeListener(sl);
+            }
+
+            DirtySource ds = sl.getSource(rh.srcIndex);
+            ds.addRoute(rh);
+
+            // The value may have changed before anyone was listening
+            enqueue(ds);
+        }
+
+        routesToAdd.clear();
+        routesToRemove.clear();
+    }
+
+    /**
+     * Clear all the routes currently being managed here. The space this router
+     * represents is being deleted.
+     */
+    @Override
+    public void clear() {
+        routeSet.clear();
+        routesToAdd.clear();
+        routesToRemove.clear();
+
+        for(SourceListener sl : listenerMap.values())
+            sl.node.removeNodeListener(sl);
+
+        listenerMap.clear();
+
+        synchronized(queueLock) {
+            DirtySource ds = queueHead;
+
+            while(ds != null) {
+                DirtySource next = ds.next;
+                ds.next = null;
+                ds.queued = false;
+                ds = next;
+            }
+
+            queueHead = null;
+            queueTail = null;
+        }
+    }
+
+    //-------------------------------------------------------------
+    // Methods defined by CountingRouter
+    //-------------------------------------------------------------
+
+    @Override
+    public int getLastRoutesFired() {
+        return lastRoutesFired;
+    }
+
+    @Override
+    public int getLastCascadeDepth() {
+        return framePasses;
+    }
+
+    //-------------------------------------------------------------
+    // Local Methods
+    //-------------------------------------------------------------
+
+    /**
+     * Place the eventOut at the end of the worklist, unless it is already
+     * waiting there.
+     *
+     * @param ds The eventOut holder to queue
+     */
+    private void enqueue(DirtySource ds) {
+        synchronized(queueLock) {
+            if(ds.queued)
+                return;
+
+            ds.queued = true;
+
+            if(queueTail == null)
+                queueHead = ds;
+            else
+                queueTail.next = ds;
+
+            queueTail = ds;
+        }
+    }
+
+    /**
+     * Make sure the temporary route array can hold the given number of items.
+     *
+     * @param size The number of items required
+     */
+    private void ensureTmpCapacity(int size) {
+        if(routeTmp.length < size) {
+            int reqd = (size >= routeTmp.length + ARRAY_INC) ?
+                       size :
+                       routeTmp.length + ARRAY_INC;
+
+            routeTmp = new RouteHolder[reqd];
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+// None
+
+// Local imports
+import org.xj3d.core.eventmodel.Router;
+import org.xj3d.core.eventmodel.RouterFactory;
+
+/**
+ * A factory for generating {@link DirtyListRouter} instances.
+ * <p>
+ *
+ * Select this factory with the <code>org.xj3d.router.factory.class</code>
+ * property, or by handing it to the route manager directly, for scenes with
+ * many routes of which only a few fire in any given frame.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class DirtyListRouterFactory implements RouterFactory {
+
+    /**
+     * Create a new Router instance for use by the caller.
+     *
+     * @return A new instance of the router object
+     */
+    @Override
+    public Router newRouter() {
+        return new DirtyListRouter();
+    }
+}
@@ -0,0 +1,145 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.io.IOException;
+import java.io.Writer;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+/**
+ * Frame profile listener that streams every profiled frame to a CSV file.
+ * <p>
+ *
+ * Nothing is written during a normal frame. The frames are left in the
+ * profiler's ring buffer and written out as a block each time the buffer is
+ * about to wrap, so the writer costs nothing for most frames and no frames
+ * are lost. Any frames still in the buffer are written by {@link #close()}.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class FrameProfileCSVWriter implements FrameProfileListener {
+
+    /** The profiler we are writing frames from */
+    private final FrameProfiler profiler;
+
+    /** Where the values go */
+    private final Writer output;
+
+    /** The first frame that has not been written yet */
+    private long nextFrame;
+
+    /** True once the header line has been written */
+    private boolean headerWritten;
+
+    /** Set when the stream has failed so we stop trying */
+    private boolean failed;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Construct a writer for the given profiler and register it as a
+     * listener.
+     *
+     * @param prof The profiler to write values from
+     * @param out The stream to write to
+     */
+    public FrameProfileCSVWriter(FrameProfiler prof, Writer out) {
+        profiler = prof;
+        output = out;
+        nextFrame = prof.getFrameCount();
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        prof.addFrameProfileListener(this);
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by FrameProfileListener
+    //----------------------------------------------------------
+
+    /**
+     * Notification that a frame has been completely profiled.
+     *
+     * @param prof The profiler holding the frame values
+     * @param frame The sequence number of the frame that just completed
+     */
+    @Override
+    public void frameProfiled(FrameProfiler prof, long frame) {
+        // A reset restarts the numbering.
+        if(frame < nextFrame)
+            nextFrame = frame;
+
+        if(frame + 1 - nextFrame >= prof.getCapacity())
+            flush();
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Register an error reporter with the writer so that any IO errors
+     * can be reported. Setting a value of null will clear the currently set
+     * reporter.
+     *
+     * @param reporter The instance to use or null
+     */
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Write all frames that have completed since the last write.
+     */
+    public synchronized void flush() {
+        if(failed)
+            return;
+
+        try {
+            if(!headerWritten) {
+                profiler.writeCSVHeader(output);
+                headerWritten = true;
+            }
+
+            long end = profiler.getFrameCount();
+            profiler.writeCSV(output, nextFrame, end);
+            nextFrame = end;
+            output.flush();
+        } catch(IOException ioe) {
+            failed = true;
+            errorReporter.warningReport("Unable to write frame profile", ioe);
+        }
+    }
+
+    /**
+     * Write any remaining frames, stop listening and close the stream.
+     */
+    public synchronized void close() {
+        profiler.removeFrameProfileListener(this);
+        flush();
+
+        try {
+            output.close();
+        } catch(IOException ioe) {
+            errorReporter.warningReport("Unable to close frame profile", ioe);
+        }
+    }
+}
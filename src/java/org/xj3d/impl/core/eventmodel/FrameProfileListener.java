@@ -0,0 +1,42 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+// none
+
+// Local imports
+// none
+
+/**
+ * Listener for the completion of each profiled frame of the event model.
+ * <p>
+ *
+ * The callback is made from the event model thread at the end of the frame,
+ * so implementations should do as little work as possible. The values for
+ * the frame remain in the profiler's ring buffer until it wraps, so a
+ * listener may batch its work and only read the buffer every so often.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public interface FrameProfileListener {
+
+    /**
+     * Notification that a frame has been completely profiled.
+     *
+     * @param profiler The profiler holding the frame values
+     * @param frame The sequence number of the frame that just completed
+     */
+    void frameProfiled(FrameProfiler profiler, long frame);
+}
@@ -0,0 +1,658 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+/**
+ * Nanosecond timing of the phases of each event model frame.
+ * <p>
+ *
+ * The evaluator calls {@link #beginFrame(long)} at the start of each frame,
+ * {@link #endPhase(int)} as each phase of the evaluation order completes and
+ * {@link #endFrame()} at the end. Time between two marks is charged to the
+ * phase named by the second mark, so a phase that runs several times in a
+ * frame (such as routing during the cascade loop) accumulates. Each node
+ * manager is also timed individually.
+ * <p>
+ *
+ * All values go into ring buffers that are allocated up front, so profiling
+ * a frame allocates nothing. The buffers hold the last <code>capacity</code>
+ * frames. Older frames are overwritten. Listeners that want every frame
+ * should read the buffer at least once per lap, which
+ * {@link FrameProfileCSVWriter} does.
+ * <p>
+ *
+ * The profiler is not thread safe. The values are written by the event model
+ * thread. Readers on other threads, such as JMX, may see a frame that is
+ * partly written, which is fine for monitoring.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class FrameProfiler implements FrameProfilerMBean {
+
+    /** Viewpoint, layer set and external synchronised node processing */
+    public static final int PHASE_SYNC = 0;
+
+    /** User input to the sensor manager */
+    public static final int PHASE_SENSORS = 1;
+
+    /** Pre-event node managers and node observers */
+    public static final int PHASE_PRE_EVENT = 2;
+
+    /** External views such as the SAI and EAI */
+    public static final int PHASE_EXTERNAL = 3;
+
+    /** Script prepareEvents and processEvents */
+    public static final int PHASE_SCRIPTS = 4;
+
+    /** All route processing passes */
+    public static final int PHASE_ROUTES = 5;
+
+    /** Queueing of newly added scenes, URLs and externprotos */
+    public static final int PHASE_LOADING = 6;
+
+    /** The cascade loop bookkeeping other than routing */
+    public static final int PHASE_CASCADE = 7;
+
+    /** Post-event node managers */
+    public static final int PHASE_POST_EVENT = 8;
+
+    /** Layer render order, view matrices and the end of frame sync */
+    public static final int PHASE_LAYERS = 9;
+
+    /** The whole frame */
+    public static final int PHASE_TOTAL = 10;
+
+    /** The number of phases, including the total */
+    public static final int NUM_PHASES = 11;
+
+    /** Default number of frames held in the ring buffer */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Names of the phases, used for CSV columns and JMX */
+    private static final String[] PHASE_NAMES = {
+        "sync",
+        "sensors",
+        "preEvent",
+        "external",
+        "scripts",
+        "routes",
+        "loading",
+        "cascade",
+        "postEvent",
+        "layers",
+        "total"
+    };
+
+    /** Domain and type used to register with the platform MBean server */
+    private static final String MBEAN_NAME_PREFIX =
+        "org.xj3d:type=FrameProfiler,name=";
+
+    /** Message when the capacity is not positive */
+    private static final String BAD_CAPACITY_MSG =
+        "The frame profiler capacity must be greater than zero";
+
+    /** Number of frames the ring buffers hold */
+    private final int capacity;
+
+    /** Simulation time of each frame in the buffer */
+    private final long[] frameTimes;
+
+    /** Phase nanoseconds, NUM_PHASES values per frame */
+    private final long[] phaseTimes;
+
+    /** Manager nanoseconds, numManagers values per frame */
+    private long[] managerTimes;
+
+    /** Names of the node managers being timed */
+    private String[] managerNames;
+
+    /** The number of node managers being timed */
+    private int numManagers;
+
+    /** Sequence number of the frame being profiled */
+    private long currentFrame;
+
+    /** Index of the start of the current frame in the ring */
+    private int currentSlot;
+
+    /** Time of the start of the current frame */
+    private long frameStart;
+
+    /** Time of the last phase mark */
+    private long lastMark;
+
+    /** True between beginFrame and endFrame */
+    private boolean inFrame;
+
+    /** Set by other threads to ask for a reset at the next frame start */
+    private volatile boolean resetRequested;
+
+    /** The current listeners. Replaced, never modified, when changed */
+    private volatile FrameProfileListener[] listeners;
+
+    /** The name this instance is registered under, if any */
+    private ObjectName mbeanName;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Construct a profiler holding the default number of frames.
+     */
+    public FrameProfiler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct a profiler holding the given number of frames.
+     *
+     * @param capacity The number of frames to keep
+     * @throws IllegalArgumentException The capacity is not positive
+     */
+    public FrameProfiler(int capacity) {
+        if(capacity <= 0)
+            throw new IllegalArgumentException(BAD_CAPACITY_MSG);
+
+        this.capacity = capacity;
+
+        frameTimes = new long[capacity];
+        phaseTimes = new long[capacity * NUM_PHASES];
+        managerTimes = new long[0];
+        managerNames = new String[0];
+        listeners = new FrameProfileListener[0];
+
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by FrameProfilerMBean
+    //----------------------------------------------------------
+
+    /**
+     * Get the number of frames profiled since the last reset.
+     *
+     * @return The number of completed frames
+     */
+    @Override
+    public long getFrameCount() {
+        return currentFrame;
+    }
+
+    /**
+     * Get the total time taken by the last completed frame.
+     *
+     * @return The frame time in milliseconds
+     */
+    @Override
+    public double getLastFrameMillis() {
+        long last = currentFrame - 1;
+        return (last < 0) ? 0 : getPhaseTime(last, PHASE_TOTAL) * 1e-6;
+    }
+
+    /**
+     * Get the average total frame time.
+     *
+     * @return The frame time in milliseconds
+     */
+    @Override
+    public double getAverageFrameMillis() {
+        return getAveragePhaseTime(PHASE_TOTAL) * 1e-6;
+    }
+
+    /**
+     * Get the names of the phases, in the same order as the averages.
+     *
+     * @return The phase names
+     */
+    @Override
+    public String[] getPhaseNames() {
+        return PHASE_NAMES.clone();
+    }
+
+    /**
+     * Get the average time spent in each phase.
+     *
+     * @return The phase times in milliseconds
+     */
+    @Override
+    public double[] getAveragePhaseMillis() {
+        double[] ret_val = new double[NUM_PHASES];
+        for(int i = 0; i < NUM_PHASES; i++)
+            ret_val[i] = getAveragePhaseTime(i) * 1e-6;
+
+        return ret_val;
+    }
+
+    /**
+     * Get the names of the node managers, in the same order as the averages.
+     *
+     * @return The manager names
+     */
+    @Override
+    public String[] getManagerNames() {
+        return managerNames.clone();
+    }
+
+    /**
+     * Get the average time spent in each node manager.
+     *
+     * @return The manager times in milliseconds
+     */
+    @Override
+    public double[] getAverageManagerMillis() {
+        int num_mgrs = numManagers;
+        double[] ret_val = new double[num_mgrs];
+        for(int i = 0; i < num_mgrs; i++)
+            ret_val[i] = getAverageManagerTime(i) * 1e-6;
+
+        return ret_val;
+    }
+
+    /**
+     * Throw away all the collected values and start counting again. The reset
+     * happens at the start of the next frame so that it is safe to call from
+     * any thread.
+     */
+    @Override
+    public void reset() {
+        resetRequested = true;
+    }
+
+    //----------------------------------------------------------
+    // Methods used by the event model evaluator
+    //----------------------------------------------------------
+
+    /**
+     * Set the names of the node managers that will be timed. Indices used in
+     * {@link #managerTime(int, long)} refer to this list. This resizes the
+     * ring buffers, so should only be called when the managers change, not
+     * per frame.
+     *
+     * @param names The names of the managers, in index order
+     */
+    public void setManagerNames(String[] names) {
+        int num = (names == null) ? 0 : names.length;
+
+        managerNames = new String[num];
+        if(num != 0)
+            System.arraycopy(names, 0, managerNames, 0, num);
+
+        managerTimes = new long[capacity * num];
+        numManagers = num;
+    }
+
+    /**
+     * Start timing a new frame.
+     *
+     * @param time The simulation timestamp of the frame in milliseconds
+     */
+    public void beginFrame(long time) {
+        if(resetRequested) {
+            resetRequested = false;
+            currentFrame = 0;
+        }
+
+        int slot = (int)(currentFrame % capacity);
+        frameTimes[slot] = time;
+
+        int p = slot * NUM_PHASES;
+        for(int i = 0; i < NUM_PHASES; i++)
+            phaseTimes[p + i] = 0;
+
+        int m = slot * numManagers;
+        for(int i = 0; i < numManagers; i++)
+            managerTimes[m + i] = 0;
+
+        currentSlot = slot;
+        inFrame = true;
+        frameStart = System.nanoTime();
+        lastMark = frameStart;
+    }
+
+    /**
+     * Charge the time since the last mark to the given phase.
+     *
+     * @param phase One of the PHASE_ constants, other than PHASE_TOTAL
+     */
+    public void endPhase(int phase) {
+        long now = System.nanoTime();
+        phaseTimes[currentSlot * NUM_PHASES + phase] += now - lastMark;
+        lastMark = now;
+    }
+
+    /**
+     * Add time taken by a single node manager to the current frame.
+     *
+     * @param manager The index of the manager
+     * @param nanos The time taken in nanoseconds
+     */
+    public void managerTime(int manager, long nanos) {
+        if(manager < numManagers)
+            managerTimes[currentSlot * numManagers + manager] += nanos;
+    }
+
+    /**
+     * Finish the current frame and notify the listeners. A frame that was
+     * abandoned part way through, such as by a shutdown, is not counted.
+     */
+    public void endFrame() {
+        if(!inFrame)
+            return;
+
+        long now = System.nanoTime();
+        phaseTimes[currentSlot * NUM_PHASES + PHASE_TOTAL] = now - frameStart;
+        inFrame = false;
+
+        long frame = currentFrame++;
+
+        FrameProfileListener[] l = listeners;
+        for(int i = 0; i < l.length; i++) {
+            try {
+                l[i].frameProfiled(this, frame);
+            } catch(Exception e) {
+                errorReporter.warningReport("Error sending frame profile", e);
+            }
+        }
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Register an error reporter with the profiler so that any errors
+     * generated by listeners can be reported in a nice, pretty fashion.
+     * Setting a value of null will clear the currently set reporter.
+     *
+     * @param reporter The instance to use or null
+     */
+    public void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Add a listener for completed frames. Adding the same instance twice
+     * is ignored.
+     *
+     * @param l The listener to add
+     */
+    public synchronized void addFrameProfileListener(FrameProfileListener l) {
+        FrameProfileListener[] current = listeners;
+        for(int i = 0; i < current.length; i++) {
+            if(current[i] == l)
+                return;
+        }
+
+        FrameProfileListener[] tmp =
+            new FrameProfileListener[current.length + 1];
+        System.arraycopy(current, 0, tmp, 0, current.length);
+        tmp[current.length] = l;
+        listeners = tmp;
+    }
+
+    /**
+     * Remove a listener for completed frames. If it is not registered, the
+     * request is ignored.
+     *
+     * @param l The listener to remove
+     */
+    public synchronized void removeFrameProfileListener(FrameProfileListener l) {
+        FrameProfileListener[] current = listeners;
+        for(int i = 0; i < current.length; i++) {
+            if(current[i] == l) {
+                FrameProfileListener[] tmp =
+                    new FrameProfileListener[current.length - 1];
+                System.arraycopy(current, 0, tmp, 0, i);
+                System.arraycopy(current,
+                                 i + 1,
+                                 tmp,
+                                 i,
+                                 current.length - i - 1);
+                listeners = tmp;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the number of frames the ring buffer holds.
+     *
+     * @return The capacity in frames
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the sequence number of the oldest frame still held in the buffer.
+     *
+     * @return The oldest available frame
+     */
+    public long getOldestFrame() {
+        return Math.max(0, currentFrame - capacity);
+    }
+
+    /**
+     * Get the number of node managers being timed.
+     *
+     * @return The number of managers
+     */
+    public int getNumManagers() {
+        return numManagers;
+    }
+
+    /**
+     * Get the name of a single phase.
+     *
+     * @param phase One of the PHASE_ constants
+     * @return The name used for that phase
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * Get the simulation time of a frame still held in the buffer.
+     *
+     * @param frame The frame sequence number
+     * @return The simulation time in milliseconds
+     */
+    public long getFrameTime(long frame) {
+        return frameTimes[(int)(frame % capacity)];
+    }
+
+    /**
+     * Get the time spent in a phase for a frame still held in the buffer.
+     *
+     * @param frame The frame sequence number
+     * @param phase One of the PHASE_ constants
+     * @return The time in nanoseconds
+     */
+    public long getPhaseTime(long frame, int phase) {
+        return phaseTimes[(int)(frame % capacity) * NUM_PHASES + phase];
+    }
+
+    /**
+     * Get the time spent in a node manager for a frame still held in the
+     * buffer.
+     *
+     * @param frame The frame sequence number
+     * @param manager The index of the manager
+     * @return The time in nanoseconds
+     */
+    public long getManagerTime(long frame, int manager) {
+        return managerTimes[(int)(frame % capacity) * numManagers + manager];
+    }
+
+    /**
+     * Get the average time of a phase over the frames in the buffer.
+     *
+     * @param phase One of the PHASE_ constants
+     * @return The average time in nanoseconds
+     */
+    public double getAveragePhaseTime(int phase) {
+        long end = currentFrame;
+        long start = Math.max(0, end - capacity);
+        if(end == start)
+            return 0;
+
+        long sum = 0;
+        for(long f = start; f < end; f++)
+            sum += getPhaseTime(f, phase);
+
+        return sum / (double)(end - start);
+    }
+
+    /**
+     * Get the average time of a node manager over the frames in the buffer.
+     *
+     * @param manager The index of the manager
+     * @return The average time in nanoseconds
+     */
+    public double getAverageManagerTime(int manager) {
+        long end = currentFrame;
+        long start = Math.max(0, end - capacity);
+        if(end == start)
+            return 0;
+
+        long sum = 0;
+        for(long f = start; f < end; f++)
+            sum += getManagerTime(f, manager);
+
+        return sum / (double)(end - start);
+    }
+
+    /**
+     * Write the CSV column header line.
+     *
+     * @param out The stream to write to
+     * @throws IOException The write failed
+     */
+    public void writeCSVHeader(Writer out) throws IOException {
+        out.write("frame,time");
+        for(int i = 0; i < NUM_PHASES; i++) {
+            out.write(',');
+            out.write(PHASE_NAMES[i]);
+        }
+
+        for(int i = 0; i < numManagers; i++) {
+            out.write(',');
+            out.write(managerNames[i]);
+        }
+
+        out.write('\n');
+    }
+
+    /**
+     * Write one CSV line per frame for the given range of frames. Frames that
+     * are no longer in the buffer are skipped. Times are in nanoseconds.
+     *
+     * @param out The stream to write to
+     * @param start The first frame to write
+     * @param end One past the last frame to write
+     * @throws IOException The write failed
+     */
+    public void writeCSV(Writer out, long start, long end) throws IOException {
+        start = Math.max(start, getOldestFrame());
+        end = Math.min(end, currentFrame);
+
+        for(long f = start; f < end; f++) {
+            out.write(Long.toString(f));
+            out.write(',');
+            out.write(Long.toString(getFrameTime(f)));
+
+            for(int i = 0; i < NUM_PHASES; i++) {
+                out.write(',');
+                out.write(Long.toString(getPhaseTime(f, i)));
+            }
+
+            for(int i = 0; i < numManagers; i++) {
+                out.write(',');
+                out.write(Long.toString(getManagerTime(f, i)));
+            }
+
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Write the header and every frame in the buffer as CSV.
+     *
+     * @param out The stream to write to
+     * @throws IOException The write failed
+     */
+    public void writeCSV(Writer out) throws IOException {
+        writeCSVHeader(out);
+        writeCSV(out, getOldestFrame(), currentFrame);
+    }
+
+    /**
+     * Register this profiler with the platform MBean server. If it is
+     * already registered, the request is ignored.
+     *
+     * @param name The value of the name key in the object name
+     * @return true if the profiler is now registered
+     */
+    public synchronized boolean registerMBean(String name) {
+        if(mbeanName != null)
+            return true;
+
+        try {
+            ObjectName obj_name = new ObjectName(MBEAN_NAME_PREFIX +
+                                                 ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, obj_name);
+            mbeanName = obj_name;
+        } catch(JMException e) {
+            errorReporter.warningReport("Unable to register frame profiler", e);
+        }
+
+        return mbeanName != null;
+    }
+
+    /**
+     * Remove this profiler from the platform MBean server. If it is not
+     * registered, the request is ignored.
+     */
+    public synchronized void unregisterMBean() {
+        if(mbeanName == null)
+            return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(mbeanName);
+        } catch(JMException e) {
+            errorReporter.warningReport("Unable to unregister frame profiler",
+                                        e);
+        }
+
+        mbeanName = null;
+    }
+}
@@ -0,0 +1,86 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+// none
+
+// Local imports
+// none
+
+/**
+ * JMX management interface of the {@link FrameProfiler}.
+ * <p>
+ *
+ * All times are in milliseconds and averaged over the frames currently held
+ * in the profiler's ring buffer.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public interface FrameProfilerMBean {
+
+    /**
+     * Get the number of frames profiled since the last reset.
+     *
+     * @return The number of completed frames
+     */
+    long getFrameCount();
+
+    /**
+     * Get the total time taken by the last completed frame.
+     *
+     * @return The frame time in milliseconds
+     */
+    double getLastFrameMillis();
+
+    /**
+     * Get the average total frame time.
+     *
+     * @return The frame time in milliseconds
+     */
+    double getAverageFrameMillis();
+
+    /**
+     * Get the names of the phases, in the same order as the averages.
+     *
+     * @return The phase names
+     */
+    String[] getPhaseNames();
+
+    /**
+     * Get the average time spent in each phase.
+     *
+     * @return The phase times in milliseconds
+     */
+    double[] getAveragePhaseMillis();
+
+    /**
+     * Get the names of the node managers, in the same order as the averages.
+     *
+     * @return The manager names
+     */
+    String[] getManagerNames();
+
+    /**
+     * Get the average time spent in each node manager.
+     *
+     * @return The manager times in milliseconds
+     */
+    double[] getAverageManagerMillis();
+
+    /**
+     * Throw away all the collected values and start counting again.
+     */
+    void reset();
+}
@@ -22,8 +22,6 @@ import org.j3d.util.HashSet;
 import org.web3d.vrml.lang.ROUTE;
 import org.web3d.vrml.nodes.VRMLNodeType;
 
-import org.xj3d.core.eventmodel.Router;
-
 /**
  * The manager of route information that handles routeSet by collecting together
  * all routeSet for a particular eventOut and processing it as a single handle.
@@ -41,7 +39,7 @@ import org.xj3d.core.eventmodel.Router;
  * @author Justin Couch
  * @version $Revision: 1.2 $
  */
-public class ListsRouter implements Router {
+public class ListsRouter implements CountingRouter {
 
     /** The default initial size of the array of routes */
     private static final int DEFAULT_SIZE = 32;
@@ -73,6 +71,15 @@ public class ListsRouter implements Router {
     /** Temporary array for processing routes added & removed */
     private RouteHolder[] routeTmp;
 
+    /** The number of routes sent in the last call to processRoutes() */
+    private int lastRoutesFired;
+
+    /** The timestamp of the current frame */
+    private double frameTimestamp;
+
+    /** Calls to processRoutes() in the current frame that sent something */
+    private int framePasses;
+
     /**
      * Create and initialise a route manager instance
      */
@@ -88,6 +95,8 @@ public class ListsRouter implements Router {
         routeList = new EventOutHolder[DEFAULT_SIZE];
         routeTmp = new RouteHolder[DEFAULT_SIZE];
 
+        frameTimestamp = Double.NaN;
+
         errorReporter = DefaultErrorReporter.getDefaultReporter();
     }
 
@@ -121,10 +130,18 @@ public class ListsRouter implements Router {
     @Override
     public boolean processRoutes(double timestamp) {
 
+        if(timestamp != frameTimestamp) {
+            frameTimestamp = timestamp;
+            framePasses = 0;
+        }
+
+        lastRoutesFired = 0;
+
         if(sourceCount <= 0)
             return false;
 
         boolean routeSetToProcess = false;
+        int fired = 0;
 
         // run through the routes
         for(int i = 0; i < sourceCount; i++) {
@@ -137,10 +154,16 @@ public class ListsRouter implements Router {
                     rh.sendRoute(timestamp);
                 }
 
+                fired += size;
                 routeSetToProcess = true;
             }
         }
 
+        lastRoutesFired = fired;
+
+        if(fired != 0)
+            framePasses++;
+
         return routeSetToProcess;
     }
 
@@ -342,4 +365,18 @@ public class ListsRouter implements Router {
 
         sourceCount = 0;
     }
+
+    //-------------------------------------------------------------
+    // Methods defined by CountingRouter
+    //-------------------------------------------------------------
+
+    @Override
+    public int getLastRoutesFired() {
+        return lastRoutesFired;
+    }
+
+    @Override
+    public int getLastCascadeDepth() {
+        return framePasses;
+    }
 }
@@ -0,0 +1,324 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+import org.xj3d.core.eventmodel.ConcurrentNodeManager;
+import org.xj3d.core.eventmodel.NodeManager;
+
+/**
+ * Runs one list of node managers, either the pre-event or the post-event
+ * list, with independent managers running in parallel on a fork/join pool.
+ * <p>
+ *
+ * When constructed, the managers are sorted into levels. A manager goes in
+ * the level after the last earlier manager it conflicts with, as described
+ * in {@link ConcurrentNodeManager}, so registration order is kept between
+ * managers that conflict. Each level runs in parallel and must finish before
+ * the next one starts. {@link #execute(long)} returns only when all managers
+ * are done, which is the barrier the evaluator needs before routing.
+ * <p>
+ *
+ * A level with a single manager is run directly on the calling thread. All
+ * task objects are created up front and reused every frame.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class NodeManagerScheduler {
+
+    /**
+     * Runs a single manager and records how long it took.
+     */
+    private class ManagerAction extends RecursiveAction {
+
+        /** The manager to run */
+        private final NodeManager manager;
+
+        /** Time the manager took in the last frame, in nanoseconds */
+        long elapsed;
+
+        /**
+         * Create an action for the given manager.
+         *
+         * @param mgr The manager to run
+         */
+        ManagerAction(NodeManager mgr) {
+            manager = mgr;
+        }
+
+        @Override
+        protected void compute() {
+            long start = System.nanoTime();
+
+            try {
+                if(preEvent)
+                    manager.executePreEventModel(frameTime);
+                else
+                    manager.executePostEventModel(frameTime);
+            } catch(Exception e) {
+                errorReporter.errorReport(EXECUTE_ERR_MSG +
+                                          manager.getClass().getName(), e);
+            }
+
+            elapsed = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Runs all the managers of a level in parallel.
+     */
+    private static class LevelAction extends RecursiveAction {
+
+        /** The managers in this level */
+        private final ManagerAction[] actions;
+
+        /**
+         * Create an action for the given level.
+         *
+         * @param actions The managers to run together
+         */
+        LevelAction(ManagerAction[] actions) {
+            this.actions = actions;
+        }
+
+        @Override
+        protected void compute() {
+            for(int i = 1; i < actions.length; i++)
+                actions[i].fork();
+
+            actions[0].compute();
+
+            for(int i = actions.length - 1; i > 0; i--)
+                actions[i].join();
+        }
+
+        /**
+         * Clear the completion state so this and the manager actions can run
+         * again.
+         */
+        void reset() {
+            reinitialize();
+            for(int i = 1; i < actions.length; i++)
+                actions[i].reinitialize();
+        }
+    }
+
+    /** Message when a manager throws during execution */
+    private static final String EXECUTE_ERR_MSG =
+        "Error executing node manager ";
+
+    /** The pool to run levels on */
+    private final ForkJoinPool pool;
+
+    /** True to call the pre-event execute method, false for post */
+    private final boolean preEvent;
+
+    /** One action per manager, in manager order */
+    private final ManagerAction[] managerActions;
+
+    /** The managers of each level. Single manager levels have no action */
+    private final LevelAction[] levels;
+
+    /** The single manager of each level that has only one */
+    private final ManagerAction[] singles;
+
+    /** The level of each manager, in manager order */
+    private final int[] managerLevels;
+
+    /** The time passed to the managers this frame */
+    private long frameTime;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Build the schedule for the given managers.
+     *
+     * @param pool The pool to run parallel levels on
+     * @param managers The managers, in registration order
+     * @param num The number of valid managers in the array
+     * @param pre true for the pre-event list, false for the post-event list
+     */
+    NodeManagerScheduler(ForkJoinPool pool,
+                         NodeManager[] managers,
+                         int num,
+                         boolean pre) {
+
+        this.pool = pool;
+        preEvent = pre;
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+
+        managerActions = new ManagerAction[num];
+        for(int i = 0; i < num; i++)
+            managerActions[i] = new ManagerAction(managers[i]);
+
+        int[] level = new int[num];
+        int num_levels = 0;
+        managerLevels = level;
+
+        for(int i = 0; i < num; i++) {
+            int lvl = 0;
+            for(int j = 0; j < i; j++) {
+                if(level[j] >= lvl && conflicts(managers[i], managers[j]))
+                    lvl = level[j] + 1;
+            }
+
+            level[i] = lvl;
+            if(lvl >= num_levels)
+                num_levels = lvl + 1;
+        }
+
+        levels = new LevelAction[num_levels];
+        singles = new ManagerAction[num_levels];
+
+        for(int l = 0; l < num_levels; l++) {
+            int count = 0;
+            for(int i = 0; i < num; i++) {
+                if(level[i] == l)
+                    count++;
+            }
+
+            ManagerAction[] acts = new ManagerAction[count];
+            count = 0;
+            for(int i = 0; i < num; i++) {
+                if(level[i] == l)
+                    acts[count++] = managerActions[i];
+            }
+
+            if(count == 1)
+                singles[l] = acts[0];
+            else
+                levels[l] = new LevelAction(acts);
+        }
+    }
+
+    /**
+     * Register an error reporter for errors thrown by the managers.
+     *
+     * @param reporter The instance to use or null
+     */
+    void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Get the number of levels in the schedule. If this is the same as the
+     * number of managers, nothing runs in parallel.
+     *
+     * @return The number of levels
+     */
+    int getNumLevels() {
+        return levels.length;
+    }
+
+    /**
+     * Get the level a manager was placed in. Managers in the same level may
+     * run at the same time.
+     *
+     * @param index The index of the manager in the original list
+     * @return The level, starting at zero
+     */
+    int getLevel(int index) {
+        return managerLevels[index];
+    }
+
+    /**
+     * Run all the managers for this frame. Does not return until all of
+     * them have finished.
+     *
+     * @param time The timestamp of this frame to evaluate
+     */
+    void execute(long time) {
+        frameTime = time;
+
+        for(int l = 0; l < levels.length; l++) {
+            if(singles[l] != null) {
+                singles[l].compute();
+            } else {
+                LevelAction level = levels[l];
+                level.reset();
+                pool.invoke(level);
+            }
+        }
+    }
+
+    /**
+     * Get the time a manager took during the last call to execute.
+     *
+     * @param index The index of the manager in the original list
+     * @return The time in nanoseconds
+     */
+    long getElapsedTime(int index) {
+        return managerActions[index].elapsed;
+    }
+
+    /**
+     * Check whether two managers must not run at the same time.
+     *
+     * @param a The first manager
+     * @param b The second manager
+     * @return true if they conflict
+     */
+    private static boolean conflicts(NodeManager a, NodeManager b) {
+        if(!(a instanceof ConcurrentNodeManager) ||
+           !(b instanceof ConcurrentNodeManager))
+            return true;
+
+        ConcurrentNodeManager ca = (ConcurrentNodeManager)a;
+        ConcurrentNodeManager cb = (ConcurrentNodeManager)b;
+
+        int[] a_writes = a.getManagedNodeTypes();
+        int[] b_writes = b.getManagedNodeTypes();
+
+        return intersects(a_writes, b_writes) ||
+               intersects(a_writes, cb.getReadNodeTypes()) ||
+               intersects(a_writes, cb.getWrittenNodeTypes()) ||
+               intersects(ca.getWrittenNodeTypes(), b_writes) ||
+               intersects(ca.getWrittenNodeTypes(), cb.getReadNodeTypes()) ||
+               intersects(ca.getWrittenNodeTypes(), cb.getWrittenNodeTypes()) ||
+               intersects(ca.getReadNodeTypes(), b_writes) ||
+               intersects(ca.getReadNodeTypes(), cb.getWrittenNodeTypes());
+    }
+
+    /**
+     * Check whether two lists of node types share any entry.
+     *
+     * @param a The first list, may be null
+     * @param b The second list, may be null
+     * @return true if at least one type is in both
+     */
+    private static boolean intersects(int[] a, int[] b) {
+        if(a == null || b == null)
+            return false;
+
+        for(int i = 0; i < a.length; i++) {
+            for(int j = 0; j < b.length; j++) {
+                if(a[i] == b[j])
+                    return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,255 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.vrml.nodes.VRMLScriptNodeType;
+import org.web3d.vrml.util.NodeArray;
+
+/**
+ * Runs the user code of the active scripts, with self contained scripts
+ * running in parallel on a fork/join pool.
+ * <p>
+ *
+ * Each pass has two halves. First the user code of every script that
+ * reports {@link VRMLScriptNodeType#isSelfContained()} is run at the same
+ * time on the pool, and the pass waits for all of them to finish. Then, on
+ * the calling thread and in the order of the script list, the outputs of
+ * those scripts are copied to their nodes and every other script is run in
+ * full. The values the route manager sees are therefore the same from frame
+ * to frame no matter how the pool ran the scripts.
+ * <p>
+ *
+ * The only change in ordering is that all self contained scripts have run
+ * before any of the others in that pass. A self contained script does not
+ * look at the rest of the scene, so this can only be seen when a
+ * directOutput script writes straight to the inputs of a self contained one.
+ * All task objects are kept and reused between passes.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class ScriptScheduler {
+
+    /**
+     * Runs the user code of a single script.
+     */
+    private class ScriptAction extends RecursiveAction {
+
+        /** The script to run. Only set during a pass */
+        VRMLScriptNodeType script;
+
+        /** True to send events, false to call eventsProcessed */
+        boolean sendEvents;
+
+        /** Set when the outputs of the script need to be updated */
+        boolean outputChanged;
+
+        @Override
+        protected void compute() {
+            try {
+                if(sendEvents) {
+                    outputChanged = script.sendScriptEvents();
+                } else {
+                    script.scriptEventsProcessed();
+                    outputChanged = true;
+                }
+            } catch(Exception e) {
+                errorReporter.errorReport(SCRIPT_ERR_MSG, e);
+                outputChanged = false;
+            }
+        }
+    }
+
+    /**
+     * Runs the first few script actions in parallel.
+     */
+    private class BatchAction extends RecursiveAction {
+
+        /** The number of actions to run */
+        int count;
+
+        @Override
+        protected void compute() {
+            for(int i = 1; i < count; i++)
+                actions[i].fork();
+
+            actions[0].compute();
+
+            for(int i = count - 1; i > 0; i--)
+                actions[i].join();
+        }
+    }
+
+    /** Message when the user code of a script throws */
+    private static final String SCRIPT_ERR_MSG =
+        "Error running script code on the script pool";
+
+    /** The number of slots to start with */
+    private static final int INITIAL_SIZE = 16;
+
+    /** The pool to run the scripts on */
+    private final ForkJoinPool pool;
+
+    /** The action that runs a batch of scripts */
+    private final BatchAction batch;
+
+    /** Script actions, one per self contained script in this pass */
+    private ScriptAction[] actions;
+
+    /** The action of each script in list order, null if run in order */
+    private ScriptAction[] listActions;
+
+    /** Reporter instance for handing out errors */
+    private ErrorReporter errorReporter;
+
+    /**
+     * Create a scheduler that runs on the given pool.
+     *
+     * @param pool The pool to run self contained scripts on
+     */
+    ScriptScheduler(ForkJoinPool pool) {
+        this.pool = pool;
+
+        batch = new BatchAction();
+        actions = new ScriptAction[0];
+        listActions = new ScriptAction[INITIAL_SIZE];
+        errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Register an error reporter for errors thrown by the scripts.
+     *
+     * @param reporter The instance to use or null
+     */
+    void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+
+        if(errorReporter == null)
+            errorReporter = DefaultErrorReporter.getDefaultReporter();
+    }
+
+    /**
+     * Get the pool that the scripts are run on.
+     *
+     * @return The pool
+     */
+    ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Send the pending events of each script to the user code and pass the
+     * changed outputs on to the script nodes. Does not return until all the
+     * scripts have finished.
+     *
+     * @param scripts The active scripts, in the order they are processed
+     */
+    void processEvents(NodeArray scripts) {
+        runScripts(scripts, true);
+    }
+
+    /**
+     * Call eventsProcessed on the user code of each script and pass the
+     * changed outputs on to the script nodes. Does not return until all the
+     * scripts have finished.
+     *
+     * @param scripts The active scripts, in the order they are processed
+     */
+    void eventsProcessed(NodeArray scripts) {
+        runScripts(scripts, false);
+    }
+
+    /**
+     * Run one pass over the scripts.
+     *
+     * @param scripts The active scripts, in the order they are processed
+     * @param send true to send events, false to call eventsProcessed
+     */
+    private void runScripts(NodeArray scripts, boolean send) {
+        int size = scripts.size();
+
+        if(listActions.length < size)
+            listActions = new ScriptAction[size];
+
+        int num_parallel = 0;
+
+        for(int i = 0; i < size; i++) {
+            VRMLScriptNodeType scr = (VRMLScriptNodeType)scripts.get(i);
+
+            if(!scr.isSelfContained()) {
+                listActions[i] = null;
+                continue;
+            }
+
+            if(num_parallel == actions.length)
+                growActions();
+
+            ScriptAction act = actions[num_parallel++];
+            act.reinitialize();
+            act.script = scr;
+            act.sendEvents = send;
+            listActions[i] = act;
+        }
+
+        if(num_parallel == 1) {
+            actions[0].compute();
+        } else if(num_parallel > 1) {
+            batch.reinitialize();
+            batch.count = num_parallel;
+            pool.invoke(batch);
+        }
+
+        for(int i = 0; i < size; i++) {
+            ScriptAction act = listActions[i];
+
+            if(act == null) {
+                VRMLScriptNodeType scr = (VRMLScriptNodeType)scripts.get(i);
+
+                if(send)
+                    scr.processEvents();
+                else
+                    scr.eventsProcessed();
+            } else {
+                if(act.outputChanged)
+                    act.script.updateEventOuts();
+
+                act.script = null;
+                listActions[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Make room for more script actions.
+     */
+    private void growActions() {
+        int old_size = actions.length;
+        int new_size = (old_size == 0) ? INITIAL_SIZE : old_size * 2;
+
+        ScriptAction[] tmp = new ScriptAction[new_size];
+        System.arraycopy(actions, 0, tmp, 0, old_size);
+
+        for(int i = old_size; i < new_size; i++)
+            tmp[i] = new ScriptAction();
+
+        actions = tmp;
+    }
+}
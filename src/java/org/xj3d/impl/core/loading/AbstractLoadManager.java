@@ -70,7 +70,17 @@ public abstract class AbstractLoadManager
      * ready to work.
      */
     protected AbstractLoadManager() {
-        loaderPool = LoaderThreadPool.getLoaderThreadPool();
+        this(LoaderThreadPool.getLoaderThreadPool());
+    }
+
+    /**
+     * Create a new load manager that queues its work on the given pool
+     * rather than the shared one.
+     *
+     * @param pool The thread pool to load content with
+     */
+    protected AbstractLoadManager(LoaderThreadPool pool) {
+        loaderPool = pool;
         pending = loaderPool.getWaitingList();
         inProgress = loaderPool.getProgressMap();
     }
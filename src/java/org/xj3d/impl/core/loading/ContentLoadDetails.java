@@ -61,4 +61,15 @@ class ContentLoadDetails extends LoadDetails {
 
         return (ld.node == node) && (ld.fieldIndex == fieldIndex);
     }
+
+    /**
+     * Return the hashcode of this object, based on the node instance and
+     * field index so that it matches equals().
+     *
+     * @return The hash value from this
+     */
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(node) * 31 + fieldIndex;
+    }
 }
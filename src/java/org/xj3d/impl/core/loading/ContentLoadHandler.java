@@ -273,6 +273,8 @@ class ContentLoadHandler extends BaseLoadHandler
         URL[] source_urls;
         String mime_type;
         Object content;
+        String etag;
+        long last_modified;
 
         try {
             URI uri = URIUtils.createURI(fileUri);
@@ -342,6 +344,8 @@ class ContentLoadHandler extends BaseLoadHandler
                 }
 
                 content = currentConnection.getContent();
+                etag = currentConnection.getHeaderField("ETag");
+                last_modified = currentConnection.getLastModified();
                 currentConnection.close();
 
                 if(content == null)
@@ -389,7 +393,11 @@ class ContentLoadHandler extends BaseLoadHandler
 
                     // Images are already cached as Texture Objects
                     if (mime_type.indexOf("image") != 0)
-                        fileCache.cacheFile(fileUri, mime_type, content);
+                        fileCache.cacheFile(fileUri,
+                                            mime_type,
+                                            content,
+                                            etag,
+                                            last_modified);
                 }
                 // Yippee! made it. Break out of the loop and exit
                 // the load process.
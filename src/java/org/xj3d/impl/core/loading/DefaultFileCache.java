@@ -54,4 +54,23 @@ public class DefaultFileCache implements FileCache {
     public void cacheFile(String uri, String contentType, Object content) {
         // do nothing
     }
+
+    /**
+     * Store the item in the cache. Request is ignored
+     *
+     * @param uri The uri string for the content
+     * @param contentType A String describing the MIME type of the content
+     * @param content The actual Java representation of the URI's content
+     * @param etag The ETag header of the response, or null if none
+     * @param lastModified The Last-Modified time of the response, or 0 if
+     *    not known
+     */
+    @Override
+    public void cacheFile(String uri,
+                          String contentType,
+                          Object content,
+                          String etag,
+                          long lastModified) {
+        // do nothing
+    }
 }
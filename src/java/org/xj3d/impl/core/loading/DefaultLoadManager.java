@@ -17,6 +17,7 @@ package org.xj3d.impl.core.loading;
 
 // Local imports
 import org.xj3d.core.loading.FileCache;
+import org.xj3d.core.loading.LoaderThreadPool;
 
 /**
  * A simplistic manager for loading files that does no caching.
@@ -47,6 +48,16 @@ public class DefaultLoadManager extends AbstractLoadManager {
     public DefaultLoadManager() {
     }
 
+    /**
+     * Create a new load manager that loads content with the given thread
+     * pool rather than the shared one.
+     *
+     * @param pool The thread pool to load content with
+     */
+    public DefaultLoadManager(LoaderThreadPool pool) {
+        super(pool);
+    }
+
     //--------------------------------------------------------------
     // Methods defined by AbstractLoadManager
     //--------------------------------------------------------------
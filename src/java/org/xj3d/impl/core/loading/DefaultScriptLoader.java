@@ -59,8 +59,18 @@ public class DefaultScriptLoader implements ScriptLoader {
      * Create a new script loader that represents the given browser.
      */
     public DefaultScriptLoader() {
+        this(LoaderThreadPool.getLoaderThreadPool());
+    }
+
+    /**
+     * Create a new script loader that loads scripts with the given thread
+     * pool rather than the shared one.
+     *
+     * @param pool The thread pool to load scripts with
+     */
+    public DefaultScriptLoader(LoaderThreadPool pool) {
         engineMap = new IntHashMap<>();
-        loaderPool = LoaderThreadPool.getLoaderThreadPool();
+        loaderPool = pool;
         pending = loaderPool.getWaitingList();
         inProgress = loaderPool.getProgressMap();
     }
@@ -40,12 +40,19 @@ import org.xj3d.core.loading.WorldLoader;
  *
  * The default implementation does a lot of caching of internal structures to
  * try to save on both memory consumption and startup time wherever possible.
+ * When a snapshot directory is set, worlds that have not changed since they
+ * were last loaded are read from a binary snapshot. See
+ * {@link SceneSnapshotCache} for the details.
  *
  * @author Justin Couch
- * @version $Revision: 1.4 $
+ * @version $Revision: 1.5 $
  */
 class DefaultWorldLoader implements WorldLoader {
 
+    /** Message when a snapshot could not be loaded */
+    private static final String BAD_SNAPSHOT_MSG =
+        "Unable to load the scene snapshot, so parsing the source of ";
+
     /** Map for the renderer to scene builder mapping */
     private static IntHashMap<SceneBuilderFactory> builderFactoryMap;
 
@@ -126,43 +133,26 @@ class DefaultWorldLoader implements WorldLoader {
                              boolean ignoreHeader)
         throws IOException, VRMLParseException {
 
-        int renderer = core.getRendererType();
-
-        SceneBuilder bldr = getBuilder(renderer);
-
-        if(bldr == null)
-            throw new VRMLException ("Unable to find a builder to locate " +
-                                     "SceneBuilder instance");
-
-        VRMLParserFactory parser = getParserFactory(renderer);
-
-        if(parser == null)
-            throw new VRMLException("Unable to find a builder to locate " +
-                                    "Parser instance");
-
-        bldr.reset();
-        bldr.setFrameStateManager(stateManager);
-        bldr.setErrorReporter(errorReporter);
-
-        VRMLReader vrml_reader = parser.newVRMLReader();
-
-        vrml_reader.setHeaderIgnore(ignoreHeader);
-        vrml_reader.setContentHandler(bldr);
-        vrml_reader.setScriptHandler(bldr);
-        vrml_reader.setProtoHandler(bldr);
-        vrml_reader.setRouteHandler(bldr);
-        vrml_reader.setErrorReporter(errorReporter);
+        SceneSnapshotCache snapshots =
+            SceneSnapshotCache.getInstance(errorReporter);
 
-        vrml_reader.parse(source);
+        if(snapshots == null)
+            return parse(core, source, ignoreHeader);
 
-        VRMLScene scene = bldr.getScene();
-        bldr.releaseScene();
+        SceneSnapshotCache.Entry entry = snapshots.open(source);
 
-        VRMLNodeType rootSpace = (VRMLNodeType) scene.getRootNode();
-        rootSpace.setFrameStateManager(stateManager);
+        if(entry.hasSnapshot()) {
+            try {
+                return parse(core, entry.getSnapshotSource(), ignoreHeader);
+            } catch(IOException | VRMLException e) {
+                errorReporter.warningReport(BAD_SNAPSHOT_MSG + source.getURL(),
+                                            e);
+                entry.discardSnapshot();
+            }
+        }
 
-        // release back to the cache
-        releaseBuilder(renderer, bldr);
+        VRMLScene scene = parse(core, entry.getSource(), ignoreHeader);
+        entry.store(scene, errorReporter);
 
         return scene;
     }
@@ -257,6 +247,64 @@ class DefaultWorldLoader implements WorldLoader {
     // Local Methods
     //-----------------------------------------------------------------------
 
+    /**
+     * Parse the source with a scene builder and parser for the renderer of
+     * the core.
+     *
+     * @param core The browser core needed for obtaining information
+     * @param source The source to take the content from
+     * @param ignoreHeader true to not check the file header
+     * @return The completely loaded scene
+     * @throws IOException There was an I/OError reading the file
+     * @throws VRMLParseException Some parsing error occurred during this
+     *    scene processing
+     */
+    private VRMLScene parse(BrowserCore core,
+                            InputSource source,
+                            boolean ignoreHeader)
+        throws IOException, VRMLParseException {
+
+        int renderer = core.getRendererType();
+
+        SceneBuilder bldr = getBuilder(renderer);
+
+        if(bldr == null)
+            throw new VRMLException ("Unable to find a builder to locate " +
+                                     "SceneBuilder instance");
+
+        VRMLParserFactory parser = getParserFactory(renderer);
+
+        if(parser == null)
+            throw new VRMLException("Unable to find a builder to locate " +
+                                    "Parser instance");
+
+        bldr.reset();
+        bldr.setFrameStateManager(stateManager);
+        bldr.setErrorReporter(errorReporter);
+
+        VRMLReader vrml_reader = parser.newVRMLReader();
+
+        vrml_reader.setHeaderIgnore(ignoreHeader);
+        vrml_reader.setContentHandler(bldr);
+        vrml_reader.setScriptHandler(bldr);
+        vrml_reader.setProtoHandler(bldr);
+        vrml_reader.setRouteHandler(bldr);
+        vrml_reader.setErrorReporter(errorReporter);
+
+        vrml_reader.parse(source);
+
+        VRMLScene scene = bldr.getScene();
+        bldr.releaseScene();
+
+        VRMLNodeType rootSpace = (VRMLNodeType) scene.getRootNode();
+        rootSpace.setFrameStateManager(stateManager);
+
+        // release back to the cache
+        releaseBuilder(renderer, bldr);
+
+        return scene;
+    }
+
     /**
      * Register an error reporter with the engine so that any errors generated
      * by the loading of script code can be reported in a nice, pretty fashion.
@@ -97,11 +97,28 @@ public class DefaultWorldLoaderManager implements WorldLoaderManager, BrowserCor
     public DefaultWorldLoaderManager(BrowserCore core,
         FrameStateManager fsm,
         RouteManager rm) {
+        this(core, fsm, rm, LoaderThreadPool.getLoaderThreadPool());
+    }
+
+    /**
+     * Construct a new instance of the world loader that uses the given
+     * frame state manager and queues loadURL and createURL requests on the
+     * given thread pool rather than the shared one.
+     *
+     * @param core The core of the browser for fetching info from
+     * @param fsm The state manager for this loader to use
+     * @param rm The route manager for createURL requests
+     * @param pool The thread pool to load worlds with
+     */
+    public DefaultWorldLoaderManager(BrowserCore core,
+        FrameStateManager fsm,
+        RouteManager rm,
+        LoaderThreadPool pool) {
         stateManager = fsm;
         browserCore = core;
         routeManager = rm;
 
-        loaderPool = LoaderThreadPool.getLoaderThreadPool();
+        loaderPool = pool;
 
         availableLoaders = new LinkedList<>();
         allLoaders = new HashSet<>();
@@ -0,0 +1,149 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.loading;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+
+import org.xj3d.core.loading.FileCache;
+import org.xj3d.core.loading.LoaderThreadPool;
+
+/**
+ * A manager for loading files that are external to the currently loading file
+ * eg Textures, inlines and protos, that keeps a cache on the local disk.
+ * <p>
+ *
+ * The cache is a {@link DiskFileCache}, shared by every instance of this
+ * class. As it lives on disk, it survives a restart of the application, and
+ * several applications on one machine may use the same directory. If the
+ * directory cannot be used, no caching is performed.
+ *
+ * <b>Properties</b>
+ * <p>
+ * The following properties are used by this class
+ * <ul>
+ * <li><code>org.web3d.vrml.nodes.loader.cache.disk.dir</code> The directory
+ *     to keep the cache in. Defaults to <code>.xj3d/cache</code> in the
+ *     user's home directory.
+ * </li>
+ * <li><code>org.web3d.vrml.nodes.loader.cache.disk.size</code> The amount of
+ *     disk space in Kilobytes (integer value) to allocate to the cache.
+ *     Defaults to 65536. If the value is zero or less, no caching is
+ *     performed.
+ * </li>
+ * </ul>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class DiskCacheLoadManager extends AbstractLoadManager {
+
+    /** Property defining the cache directory */
+    private static final String DIR_PROP =
+        "org.web3d.vrml.nodes.loader.cache.disk.dir";
+
+    /** Property defining the cache size in Kilobytes */
+    private static final String SIZE_PROP =
+        "org.web3d.vrml.nodes.loader.cache.disk.size";
+
+    /** The default cache size in Kilobytes */
+    private static final int DEFAULT_SIZE = 65536;
+
+    /** Message when the cache directory cannot be used */
+    private static final String NO_DIR_MSG =
+        "Unable to use the disk cache directory, so no caching is performed: ";
+
+    /**
+     * The cache that we use. Everyone joins in in order to get maximum
+     * amount of caching.
+     */
+    private static FileCache cache;
+
+    /**
+     * Create a new load manager initialised with the content loading threads
+     * ready to work.
+     */
+    public DiskCacheLoadManager() {
+        initCache();
+    }
+
+    /**
+     * Create a new load manager that loads content with the given thread
+     * pool rather than the shared one.
+     *
+     * @param pool The thread pool to load content with
+     */
+    public DiskCacheLoadManager(LoaderThreadPool pool) {
+        super(pool);
+
+        initCache();
+    }
+
+    //--------------------------------------------------------------
+    // Methods defined by AbstractLoadManager
+    //--------------------------------------------------------------
+
+    /**
+     * Request to fetch the cache used by the derived type.
+     *
+     * @return The file cache instance
+     */
+    @Override
+    protected FileCache getCache() {
+        return cache;
+    }
+
+    //--------------------------------------------------------------
+    // Local Methods
+    //--------------------------------------------------------------
+
+    /**
+     * Create the shared cache from the properties, if not done already.
+     */
+    private static synchronized void initCache() {
+        if(cache != null)
+            return;
+
+        String dir = AccessController.doPrivileged((PrivilegedAction<String>) () -> {
+            String d = System.getProperty(DIR_PROP);
+
+            if(d == null)
+                d = System.getProperty("user.home") + File.separator +
+                    ".xj3d" + File.separator + "cache";
+
+            return d;
+        });
+
+        int size = AccessController.doPrivileged((PrivilegedAction<Integer>) () ->
+            Integer.getInteger(SIZE_PROP, DEFAULT_SIZE));
+
+        if(size <= 0) {
+            cache = new DefaultFileCache();
+            return;
+        }
+
+        try {
+            cache = new DiskFileCache(new File(dir), size * 1024L);
+        } catch(IOException | SecurityException e) {
+            DefaultErrorReporter.getDefaultReporter().warningReport(NO_DIR_MSG + dir, e);
+            cache = new DefaultFileCache();
+        }
+    }
+}
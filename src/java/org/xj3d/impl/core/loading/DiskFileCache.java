@@ -0,0 +1,764 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.loading;
+
+// External imports
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local imports
+import org.xj3d.core.loading.CacheDetails;
+import org.xj3d.core.loading.FileCache;
+
+/**
+ * A file cache that keeps its items in a local directory, so that they
+ * survive a restart of the application.
+ * <p>
+ *
+ * Each item is held in its own file, named by a hash of its URI. The file
+ * holds the content, a hash of the content and the details needed to check
+ * the item is still current:
+ * <ul>
+ * <li>For <code>file:</code> URLs, the modification time and length of the
+ *     source file.</li>
+ * <li>For <code>http:</code> and <code>https:</code> URLs, the ETag and
+ *     Last-Modified headers of the response the content was read from,
+ *     as given by the loader. These are checked with a
+ *     conditional request once the revalidation interval has passed. If the
+ *     server cannot be reached, the cached item is used.</li>
+ * </ul>
+ * Items that fail the check, or whose content no longer matches its hash,
+ * are removed.
+ * <p>
+ *
+ * Only content that can be stored as plain bytes is cached: strings, such
+ * as script and shader source, and byte arrays. Anything else is ignored,
+ * in the same way that the other caches ignore images.
+ * <p>
+ *
+ * The total size of the directory is kept under a budget. When it goes over,
+ * the least recently used items are removed until it is back under. Using an
+ * item sets the modification time of its file, so the order is shared by
+ * every user of the directory.
+ * <p>
+ *
+ * Several JVMs may share one directory. Items are written to a temporary
+ * file and then renamed into place, so a reader only ever sees a complete
+ * item, and eviction holds a file lock on the directory.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class DiskFileCache implements FileCache {
+
+    /** Marker at the start of every item file */
+    private static final int MAGIC = 0x58334443;
+
+    /** The version of the item file format */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The extension of item files */
+    private static final String ITEM_EXT = ".xc";
+
+    /** The extension of files being written */
+    private static final String TEMP_EXT = ".tmp";
+
+    /** The name of the file locked during eviction */
+    private static final String LOCK_FILE = "cache.lock";
+
+    /** Kind marker for string content */
+    private static final byte KIND_STRING = 'S';
+
+    /** Kind marker for byte array content */
+    private static final byte KIND_BYTES = 'B';
+
+    /** Eviction frees space down to this fraction of the budget */
+    private static final double LOW_WATER = 0.9;
+
+    /** Temporary files older than this, in ms, were abandoned */
+    private static final long TEMP_EXPIRY = 3_600_000;
+
+    /** Timeout for connections used to check http items, in ms */
+    private static final int CHECK_TIMEOUT = 5000;
+
+    /** The default time between checks of an http item, in ms */
+    public static final long DEFAULT_REVALIDATE_INTERVAL = 60_000;
+
+    /**
+     * Objects to lock on within this JVM for each directory, as a file lock
+     * cannot be held twice by one JVM.
+     */
+    private static final Map<Path, Object> DIR_LOCKS =
+        new ConcurrentHashMap<>();
+
+    /** The details of a single cached item */
+    private static class Item {
+        String uri;
+        String contentType;
+        String etag;
+        long lastModified;
+        long sourceTime;
+        long sourceLength;
+        byte kind;
+        byte[] data;
+    }
+
+    /** The directory holding the items */
+    private final Path directory;
+
+    /** The most bytes the directory may hold */
+    private final long maxSize;
+
+    /** The object that serialises eviction of the directory in this JVM */
+    private final Object dirLock;
+
+    /** The approximate number of bytes in the directory */
+    private final AtomicLong size;
+
+    /** The last time each http item was checked by this JVM */
+    private final Map<String, Long> lastChecked;
+
+    /** The time between checks of an http item, in ms */
+    private long revalidateInterval;
+
+    /** The number of requests answered from the cache */
+    private final AtomicLong hits;
+
+    /** The number of requests not answered from the cache */
+    private final AtomicLong misses;
+
+    /** The number of items removed to keep under the budget */
+    private final AtomicLong evictions;
+
+    /**
+     * Construct a cache using the given directory. The directory is created
+     * if needed.
+     *
+     * @param dir The directory to keep the items in
+     * @param maxSize The most bytes the directory may hold
+     * @throws IOException The directory could not be created
+     * @throws IllegalArgumentException The size is not positive
+     */
+    public DiskFileCache(File dir, long maxSize) throws IOException {
+        if(maxSize <= 0)
+            throw new IllegalArgumentException("Cache size must be positive");
+
+        Files.createDirectories(dir.toPath());
+
+        directory = dir.toPath().toRealPath();
+        this.maxSize = maxSize;
+        dirLock = DIR_LOCKS.computeIfAbsent(directory, d -> new Object());
+        size = new AtomicLong(scanSize());
+        lastChecked = new ConcurrentHashMap<>();
+        revalidateInterval = DEFAULT_REVALIDATE_INTERVAL;
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+    }
+
+    //----------------------------------------------------------
+    // Methods defined by FileCache
+    //----------------------------------------------------------
+
+    /**
+     * Check the cache for the file nominated by this URI string. If the
+     * item is found but is out of date, it is removed.
+     *
+     * @param uri The uri to check for
+     * @return The details of the item in cache or null
+     */
+    @Override
+    public CacheDetails checkForFile(String uri) {
+        Path file = itemPath(uri);
+        Item item = readItem(file);
+
+        if(item == null || !item.uri.equals(uri)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if(!isCurrent(item)) {
+            deleteItem(file);
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(file,
+                FileTime.fromMillis(System.currentTimeMillis()));
+        } catch(IOException ioe) {
+            // Removed by someone else in the meantime. We still have the
+            // content, so use it.
+        }
+
+        hits.incrementAndGet();
+
+        Object content = (item.kind == KIND_STRING) ?
+            new String(item.data, StandardCharsets.UTF_8) :
+            item.data;
+
+        return new DefaultCacheDetails(uri, item.contentType, content);
+    }
+
+    /**
+     * Store the item in the cache. Content that cannot be stored as bytes
+     * is ignored. Without validators, an http item is only used until the
+     * revalidation interval has passed.
+     *
+     * @param uri The uri string for the content
+     * @param contentType A String describing the MIME type of the content
+     * @param content The actual Java representation of the URI's content
+     */
+    @Override
+    public void cacheFile(String uri, String contentType, Object content) {
+        cacheFile(uri, contentType, content, null, 0);
+    }
+
+    /**
+     * Store the item in the cache along with the validators of the response
+     * the content was read from. Content that cannot be stored as bytes is
+     * ignored.
+     *
+     * @param uri The uri string for the content
+     * @param contentType A String describing the MIME type of the content
+     * @param content The actual Java representation of the URI's content
+     * @param etag The ETag header of the response, or null if none
+     * @param lastModified The Last-Modified time of the response, or 0 if
+     *    not known
+     */
+    @Override
+    public void cacheFile(String uri,
+                          String contentType,
+                          Object content,
+                          String etag,
+                          long lastModified) {
+        Item item = new Item();
+
+        if(content instanceof String) {
+            item.kind = KIND_STRING;
+            item.data = ((String)content).getBytes(StandardCharsets.UTF_8);
+        } else if(content instanceof byte[]) {
+            item.kind = KIND_BYTES;
+            item.data = (byte[])content;
+        } else {
+            return;
+        }
+
+        if(item.data.length > maxSize)
+            return;
+
+        item.uri = uri;
+        item.contentType = (contentType == null) ? "" : contentType;
+        item.etag = "";
+        item.sourceTime = -1;
+        item.sourceLength = -1;
+
+        if(uri.startsWith("file:")) {
+            File src = toFile(uri);
+
+            if(src != null) {
+                item.sourceTime = src.lastModified();
+                item.sourceLength = src.length();
+            }
+        } else if(isHttp(uri)) {
+            item.etag = (etag == null) ? "" : etag;
+            item.lastModified = Math.max(0, lastModified);
+        }
+
+        Path file = itemPath(uri);
+
+        try {
+            long old_size = fileSize(file);
+            long new_size = writeItem(file, item);
+
+            if(isHttp(uri))
+                lastChecked.put(uri, System.currentTimeMillis());
+
+            if(size.addAndGet(new_size - old_size) > maxSize)
+                evict();
+        } catch(IOException ioe) {
+            // Could not write it, so it just does not get cached.
+        }
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Set the time between checks that an http item is still current. A
+     * value of zero checks on every use.
+     *
+     * @param interval The time in milliseconds
+     */
+    public void setRevalidateInterval(long interval) {
+        revalidateInterval = Math.max(0, interval);
+    }
+
+    /**
+     * Get the approximate number of bytes held in the directory.
+     *
+     * @return The size in bytes
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Get the number of requests answered from the cache.
+     *
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of requests not answered from the cache.
+     *
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of items removed to keep under the size budget.
+     *
+     * @return The eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Remove every item from the directory.
+     */
+    public void clear() {
+        synchronized(dirLock) {
+            try(FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+                for(Path file : listItems())
+                    deleteItem(file);
+            } catch(IOException ioe) {
+                // Leave what we could not remove
+            }
+
+            size.set(scanSize());
+            lastChecked.clear();
+        }
+    }
+
+    /**
+     * Remove the least recently used items until the directory is under its
+     * budget again.
+     */
+    private void evict() {
+        synchronized(dirLock) {
+            try(FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+                List<Path> items = listItems();
+                int num_items = items.size();
+                long[] times = new long[num_items];
+                long[] sizes = new long[num_items];
+                Integer[] order = new Integer[num_items];
+                long total = 0;
+
+                for(int i = 0; i < num_items; i++) {
+                    Path file = items.get(i);
+
+                    try {
+                        times[i] = Files.getLastModifiedTime(file).toMillis();
+                        sizes[i] = Files.size(file);
+                    } catch(IOException ioe) {
+                        times[i] = Long.MAX_VALUE;
+                        sizes[i] = 0;
+                    }
+
+                    total += sizes[i];
+                    order[i] = i;
+                }
+
+                if(total > maxSize) {
+                    Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+
+                    long target = (long)(maxSize * LOW_WATER);
+
+                    for(int i = 0; i < num_items && total > target; i++) {
+                        int idx = order[i];
+
+                        if(deleteItem(items.get(idx))) {
+                            total -= sizes[idx];
+                            evictions.incrementAndGet();
+                        }
+                    }
+                }
+
+                size.set(total);
+            } catch(IOException ioe) {
+                // Try again on the next store
+            }
+        }
+    }
+
+    /**
+     * Check that an item still matches its source.
+     *
+     * @param item The item to check
+     * @return true if the item may be used
+     */
+    private boolean isCurrent(Item item) {
+        String uri = item.uri;
+
+        if(uri.startsWith("file:")) {
+            File src = toFile(uri);
+
+            return (src != null) &&
+                   src.lastModified() == item.sourceTime &&
+                   src.length() == item.sourceLength;
+        }
+
+        if(!isHttp(uri))
+            return true;
+
+        long now = System.currentTimeMillis();
+        Long checked = lastChecked.get(uri);
+
+        if(checked != null && now - checked < revalidateInterval)
+            return true;
+
+        boolean current;
+
+        try {
+            HttpURLConnection conn =
+                (HttpURLConnection)new URL(uri).openConnection();
+            conn.setRequestMethod("HEAD");
+            conn.setConnectTimeout(CHECK_TIMEOUT);
+            conn.setReadTimeout(CHECK_TIMEOUT);
+            conn.setUseCaches(false);
+
+            if(!item.etag.isEmpty())
+                conn.setRequestProperty("If-None-Match", item.etag);
+
+            if(item.lastModified > 0)
+                conn.setIfModifiedSince(item.lastModified);
+
+            int code = conn.getResponseCode();
+
+            if(code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                current = true;
+            } else if(code == HttpURLConnection.HTTP_OK) {
+                String etag = conn.getHeaderField("ETag");
+
+                if(etag != null && !item.etag.isEmpty())
+                    current = etag.equals(item.etag);
+                else if(item.lastModified > 0)
+                    current = (conn.getLastModified() == item.lastModified);
+                else
+                    current = false;
+            } else {
+                current = false;
+            }
+
+            conn.disconnect();
+        } catch(IOException | ClassCastException e) {
+            // The server can't be reached, so the copy we have is the best
+            // there is.
+            current = true;
+        }
+
+        if(current)
+            lastChecked.put(uri, now);
+        else
+            lastChecked.remove(uri);
+
+        return current;
+    }
+
+    /**
+     * Read an item file.
+     *
+     * @param file The file to read
+     * @return The item, or null if it is missing or damaged
+     */
+    private Item readItem(Path file) {
+        Item item = new Item();
+
+        try(InputStream is = Files.newInputStream(file);
+            DataInputStream dis =
+                new DataInputStream(new BufferedInputStream(is))) {
+
+            if(dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+                deleteItem(file);
+                return null;
+            }
+
+            item.uri = dis.readUTF();
+            item.contentType = dis.readUTF();
+            item.etag = dis.readUTF();
+            item.lastModified = dis.readLong();
+            item.sourceTime = dis.readLong();
+            item.sourceLength = dis.readLong();
+            item.kind = dis.readByte();
+
+            byte[] hash = new byte[32];
+            dis.readFully(hash);
+
+            int len = dis.readInt();
+
+            if(len < 0 || len > maxSize) {
+                deleteItem(file);
+                return null;
+            }
+
+            item.data = new byte[len];
+            dis.readFully(item.data);
+
+            if(!MessageDigest.isEqual(hash, digest(item.data))) {
+                deleteItem(file);
+                return null;
+            }
+        } catch(NoSuchFileException nsfe) {
+            return null;
+        } catch(IOException ioe) {
+            deleteItem(file);
+            return null;
+        }
+
+        return item;
+    }
+
+    /**
+     * Write an item to a temporary file and move it into place.
+     *
+     * @param file The final name of the item
+     * @param item The item to write
+     * @return The size of the file written
+     * @throws IOException The item could not be written
+     */
+    private long writeItem(Path file, Item item) throws IOException {
+        Path tmp = Files.createTempFile(directory, "item", TEMP_EXT);
+
+        try {
+            try(OutputStream os = Files.newOutputStream(tmp);
+                DataOutputStream dos =
+                    new DataOutputStream(new BufferedOutputStream(os))) {
+
+                dos.writeInt(MAGIC);
+                dos.writeInt(FORMAT_VERSION);
+                dos.writeUTF(item.uri);
+                dos.writeUTF(item.contentType);
+                dos.writeUTF(item.etag);
+                dos.writeLong(item.lastModified);
+                dos.writeLong(item.sourceTime);
+                dos.writeLong(item.sourceLength);
+                dos.writeByte(item.kind);
+                dos.write(digest(item.data));
+                dos.writeInt(item.data.length);
+                dos.write(item.data);
+            }
+
+            long len = Files.size(tmp);
+
+            try {
+                Files.move(tmp, file,
+                           StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch(AtomicMoveNotSupportedException amnse) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return len;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * List the item files in the directory, removing abandoned temporary
+     * files along the way.
+     *
+     * @return The item files
+     * @throws IOException The directory could not be read
+     */
+    private List<Path> listItems() throws IOException {
+        List<Path> ret_val = new ArrayList<>();
+        long expired = System.currentTimeMillis() - TEMP_EXPIRY;
+
+        try(DirectoryStream<Path> dir = Files.newDirectoryStream(directory)) {
+            for(Path file : dir) {
+                String name = file.getFileName().toString();
+
+                if(name.endsWith(ITEM_EXT)) {
+                    ret_val.add(file);
+                } else if(name.endsWith(TEMP_EXT)) {
+                    try {
+                        if(Files.getLastModifiedTime(file).toMillis() < expired)
+                            Files.deleteIfExists(file);
+                    } catch(IOException ioe) {
+                        // Someone else got it
+                    }
+                }
+            }
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Add up the size of all the items in the directory.
+     *
+     * @return The total size in bytes
+     */
+    private long scanSize() {
+        long total = 0;
+
+        try {
+            for(Path file : listItems())
+                total += fileSize(file);
+        } catch(IOException ioe) {
+            // Start from empty
+        }
+
+        return total;
+    }
+
+    /**
+     * Open the file that is locked while the directory is changed.
+     *
+     * @return The channel of the lock file
+     * @throws IOException The file could not be opened
+     */
+    private FileChannel openLock() throws IOException {
+        return FileChannel.open(directory.resolve(LOCK_FILE),
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Get the path of the item file for a URI.
+     *
+     * @param uri The URI of the item
+     * @return The path of the file it is kept in
+     */
+    private Path itemPath(String uri) {
+        byte[] hash = digest(uri.getBytes(StandardCharsets.UTF_8));
+        StringBuilder buf = new StringBuilder(hash.length * 2 + ITEM_EXT.length());
+
+        for(byte b : hash) {
+            buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+            buf.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        buf.append(ITEM_EXT);
+
+        return directory.resolve(buf.toString());
+    }
+
+    /**
+     * Delete an item file.
+     *
+     * @param file The file to delete
+     * @return true if the file was deleted by this call
+     */
+    private boolean deleteItem(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch(IOException ioe) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the size of a file, or 0 if it does not exist.
+     *
+     * @param file The file to check
+     * @return The size in bytes
+     */
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch(IOException ioe) {
+            return 0;
+        }
+    }
+
+    /**
+     * Convert a file URL to a file.
+     *
+     * @param uri The URL to convert
+     * @return The file, or null if the URL is not valid
+     */
+    private static File toFile(String uri) {
+        try {
+            return new File(new URL(uri).toURI());
+        } catch(IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check to see if the URI is fetched over http.
+     *
+     * @param uri The URI to check
+     * @return true if the scheme is http or https
+     */
+    private static boolean isHttp(String uri) {
+        return uri.startsWith("http:") || uri.startsWith("https:");
+    }
+
+    /**
+     * Create the SHA-256 hash of some bytes.
+     *
+     * @param data The bytes to hash
+     * @return The 32 byte hash
+     */
+    private static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch(NoSuchAlgorithmException nsae) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+}
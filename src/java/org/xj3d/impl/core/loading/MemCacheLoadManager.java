@@ -17,6 +17,7 @@ package org.xj3d.impl.core.loading;
 
 // Local imports
 import org.xj3d.core.loading.FileCache;
+import org.xj3d.core.loading.LoaderThreadPool;
 
 /**
  * A manager for loading files that are external to the currently loading file
@@ -66,6 +67,16 @@ public class MemCacheLoadManager extends AbstractLoadManager {
     public MemCacheLoadManager() {
     }
 
+    /**
+     * Create a new load manager that loads content with the given thread
+     * pool rather than the shared one.
+     *
+     * @param pool The thread pool to load content with
+     */
+    public MemCacheLoadManager(LoaderThreadPool pool) {
+        super(pool);
+    }
+
     //--------------------------------------------------------------
     // Methods defined by AbstractLoadManager
     //--------------------------------------------------------------
@@ -0,0 +1,568 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.loading;
+
+// External imports
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Local imports
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.util.PropertyTools;
+
+import org.web3d.vrml.export.Exporter;
+import org.web3d.vrml.export.X3DBinaryRetainedDirectExporter;
+import org.web3d.vrml.export.X3DBinarySerializer;
+
+import org.web3d.vrml.nodes.VRMLScene;
+
+import org.web3d.vrml.parser.VRMLParserFactory;
+
+import org.web3d.vrml.sav.InputSource;
+import org.web3d.vrml.sav.VRMLReader;
+
+/**
+ * A cache of compiled snapshots of world files, so that a world that has not
+ * changed since it was last loaded can be read from the compact binary form
+ * rather than parsed from its text.
+ * <p>
+ *
+ * After a world in the XML or classic X3D encoding is loaded, the content
+ * is converted to the X3D binary encoding on a background thread and kept
+ * on disk, along with a SHA-256 hash of the source bytes. The next load of
+ * the same URL hashes the source again, and if it matches, the snapshot is
+ * parsed in its place. Numbers in the snapshot are held as binary arrays,
+ * so none of the tokenizing and string field parsing of the text is done.
+ * When the source has changed the hash differs, so the source is parsed
+ * normally and a new snapshot is written over the old one.
+ * <p>
+ *
+ * There is one snapshot file for each URL, named by a hash of the URL. The
+ * file holds a short header with the source hash, then the binary encoded
+ * scene. Files are written to a temporary name and renamed into place, so
+ * a reader never sees a part written snapshot. Binary and VRML97 sources
+ * are not snapshotted: the first are already in the binary form and the
+ * second would need upgrading to X3D on the way.
+ * <p>
+ *
+ * <b>Properties</b>
+ * <p>
+ * The following properties are used by this class
+ * <ul>
+ * <li><code>org.xj3d.core.loading.snapshot.dir</code> The directory to keep
+ *     the snapshots in. There is no default; when it is not set no
+ *     snapshots are used.
+ * </li>
+ * </ul>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+class SceneSnapshotCache {
+
+    /** Property defining the snapshot directory */
+    private static final String DIR_PROP = "org.xj3d.core.loading.snapshot.dir";
+
+    /** Marker at the start of every snapshot file */
+    private static final int MAGIC = 0x58335353;
+
+    /**
+     * The version of the snapshot format. It is included in the source hash
+     * so that snapshots written by other versions never match.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The extension of snapshot files */
+    private static final String SNAPSHOT_EXT = ".xs";
+
+    /** The extension of files being written */
+    private static final String TEMP_EXT = ".tmp";
+
+    /** The time to wait for snapshots to be written at shutdown, in seconds */
+    private static final int SHUTDOWN_WAIT = 30;
+
+    /** The number of bytes looked at to find the encoding of a source */
+    private static final int SNIFF_SIZE = 64;
+
+    /** Message when the snapshot directory cannot be used */
+    private static final String NO_DIR_MSG =
+        "Unable to use the scene snapshot directory, so no snapshots are used: ";
+
+    /** Message when a snapshot could not be written */
+    private static final String WRITE_FAILED_MSG =
+        "Unable to write the scene snapshot for ";
+
+    /** The shared instance, or null if snapshots are not used */
+    private static SceneSnapshotCache instance;
+
+    /** Has the shared instance been looked for yet */
+    private static boolean instanceChecked;
+
+    /** The directory the snapshots are kept in */
+    private final Path directory;
+
+    /** The thread that writes snapshots */
+    private final ExecutorService writer;
+
+    /**
+     * The source of one world, read into memory, and the snapshot for it if
+     * there is a current one.
+     */
+    class Entry {
+
+        /** The source the world was asked for from */
+        private final InputSource original;
+
+        /** The bytes of the source, or null if it is not snapshotted */
+        private final byte[] content;
+
+        /** The hash of the source bytes */
+        private final byte[] sourceHash;
+
+        /** The snapshot file */
+        private final Path file;
+
+        /** Is there a current snapshot for the source */
+        private boolean snapshotValid;
+
+        /**
+         * Create an entry for a source that is not snapshotted.
+         */
+        Entry(InputSource original) {
+            this(original, null, null, null);
+        }
+
+        /**
+         * Create an entry for a source that may be snapshotted.
+         */
+        Entry(InputSource original, byte[] content, byte[] sourceHash, Path file) {
+            this.original = original;
+            this.content = content;
+            this.sourceHash = sourceHash;
+            this.file = file;
+        }
+
+        /**
+         * Check to see if a current snapshot of the source exists.
+         *
+         * @return true if {@link #getSnapshotSource()} can be used
+         */
+        boolean hasSnapshot() {
+            return snapshotValid;
+        }
+
+        /**
+         * Get the snapshot to parse in place of the source. It has the same
+         * URLs as the source, so anything relative is resolved in the same
+         * way.
+         *
+         * @return A source reading the binary snapshot
+         * @throws IOException The snapshot could not be opened
+         */
+        InputSource getSnapshotSource() throws IOException {
+            InputStream is = new BufferedInputStream(Files.newInputStream(file));
+
+            try {
+                readHeader(is);
+            } catch(IOException ioe) {
+                is.close();
+                throw ioe;
+            }
+
+            return new InputSource(original.getBaseURL(), is, original.getURL());
+        }
+
+        /**
+         * Get the source to parse when there is no snapshot, or it could not
+         * be used. This reads the bytes held in memory, as the original
+         * stream has already been read.
+         *
+         * @return The source to parse
+         */
+        InputSource getSource() {
+            if(content == null)
+                return original;
+
+            InputSource ret_val =
+                new InputSource(original.getBaseURL(),
+                                new ByteArrayInputStream(content),
+                                original.getURL());
+            ret_val.setContentType(original.getContentType());
+
+            return ret_val;
+        }
+
+        /**
+         * The snapshot could not be parsed, so remove it. A new one is
+         * written once the source has been loaded.
+         */
+        void discardSnapshot() {
+            snapshotValid = false;
+
+            try {
+                Files.deleteIfExists(file);
+            } catch(IOException ioe) {
+                // It is replaced when the new snapshot is written anyway
+            }
+        }
+
+        /**
+         * The source has been loaded, so write a snapshot of it if there
+         * is not already a current one. The snapshot is written on another
+         * thread, so this returns straight away.
+         *
+         * @param scene The scene that was loaded from the source
+         * @param reporter The reporter for any errors writing the snapshot
+         */
+        void store(VRMLScene scene, final ErrorReporter reporter) {
+            if(content == null || snapshotValid)
+                return;
+
+            final int major = scene.getSpecificationMajorVersion();
+            final int minor = scene.getSpecificationMinorVersion();
+
+            writer.execute(() -> {
+                try {
+                    writeSnapshot(this, major, minor, reporter);
+                } catch(Exception e) {
+                    reporter.warningReport(WRITE_FAILED_MSG + original.getURL(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Create a cache that keeps the snapshots in the given directory.
+     *
+     * @param dir The directory to use, which must exist
+     */
+    SceneSnapshotCache(Path dir) {
+        directory = dir;
+
+        ThreadPoolExecutor tpe =
+            new ThreadPoolExecutor(1,
+                                   1,
+                                   30,
+                                   TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<>(),
+                                   r -> {
+                                       Thread th = new Thread(r, "Xj3D Scene Snapshot");
+                                       th.setDaemon(true);
+                                       th.setPriority(Thread.MIN_PRIORITY);
+                                       return th;
+                                   });
+        tpe.allowCoreThreadTimeOut(true);
+        writer = tpe;
+    }
+
+    /**
+     * Get the shared cache, set up from the system properties.
+     *
+     * @param reporter The reporter for problems with the directory
+     * @return The cache, or null if snapshots are not used
+     */
+    static synchronized SceneSnapshotCache getInstance(ErrorReporter reporter) {
+        if(!instanceChecked) {
+            instanceChecked = true;
+
+            String dir_name = PropertyTools.fetchSystemProperty(DIR_PROP, null);
+
+            if(dir_name != null && !dir_name.isEmpty()) {
+                try {
+                    Path dir = Paths.get(dir_name);
+                    Files.createDirectories(dir);
+                    instance = new SceneSnapshotCache(dir);
+                } catch(IOException | RuntimeException e) {
+                    reporter.warningReport(NO_DIR_MSG + dir_name, e);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Read the source and look for a current snapshot of it. The source
+     * stream is read to the end when it can be snapshotted, so afterwards
+     * the world must be loaded from the entry, not the source.
+     *
+     * @param source The source the world is to be loaded from
+     * @return The entry for the source
+     * @throws IOException The source could not be read
+     */
+    Entry open(InputSource source) throws IOException {
+        String url = source.getURL();
+
+        if(url == null || url.endsWith(".x3db"))
+            return new Entry(source);
+
+        InputStream is = new BufferedInputStream(source.getByteStream());
+
+        is.mark(SNIFF_SIZE);
+        byte[] start = new byte[SNIFF_SIZE];
+        int len = readFully(is, start);
+        is.reset();
+
+        if(!isX3DText(start, len)) {
+            InputSource ret_val = new InputSource(source.getBaseURL(), is, url);
+            ret_val.setContentType(source.getContentType());
+            return new Entry(ret_val);
+        }
+
+        byte[] content = readAll(is);
+        byte[] hash = sourceHash(content);
+
+        Entry ret_val = new Entry(source, content, hash, snapshotPath(url));
+        ret_val.snapshotValid = isCurrent(ret_val.file, hash);
+
+        return ret_val;
+    }
+
+    /**
+     * Stop writing snapshots. Waits a short time for any that are queued to
+     * be written first.
+     */
+    void shutdown() {
+        writer.shutdown();
+
+        try {
+            writer.awaitTermination(SHUTDOWN_WAIT, TimeUnit.SECONDS);
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //----------------------------------------------------------
+    // Local Methods
+    //----------------------------------------------------------
+
+    /**
+     * Convert the source of the entry to the binary encoding and write it to
+     * its snapshot file.
+     */
+    private void writeSnapshot(Entry entry,
+                               int major,
+                               int minor,
+                               ErrorReporter reporter)
+        throws IOException {
+
+        Path temp = Files.createTempFile(directory, "snapshot", TEMP_EXT);
+
+        try {
+            try (OutputStream os =
+                     new BufferedOutputStream(Files.newOutputStream(temp))) {
+
+                DataOutputStream dos = new DataOutputStream(os);
+                dos.writeInt(MAGIC);
+                dos.writeInt(FORMAT_VERSION);
+                dos.write(entry.sourceHash);
+                dos.flush();
+
+                // Exact floats, so the snapshot loads the same values as
+                // the source.
+                Exporter exporter =
+                    new X3DBinaryRetainedDirectExporter(os,
+                                                        major,
+                                                        minor,
+                                                        reporter,
+                                                        X3DBinarySerializer.METHOD_FASTEST_PARSING,
+                                                        0);
+
+                VRMLParserFactory fac = VRMLParserFactory.newVRMLParserFactory();
+                VRMLReader reader = fac.newVRMLReader();
+
+                reader.setContentHandler(exporter);
+                reader.setRouteHandler(exporter);
+                reader.setScriptHandler(exporter);
+                reader.setProtoHandler(exporter);
+                reader.setErrorReporter(reporter);
+
+                reader.parse(entry.getSource());
+            }
+
+            try {
+                Files.move(temp,
+                           entry.file,
+                           StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch(AtomicMoveNotSupportedException amnse) {
+                Files.move(temp, entry.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Check the snapshot file exists and was made from a source with the
+     * given hash.
+     */
+    private boolean isCurrent(Path file, byte[] hash) {
+        if(!Files.isRegularFile(file))
+            return false;
+
+        try (InputStream is = Files.newInputStream(file)) {
+            return Arrays.equals(hash, readHeader(is));
+        } catch(IOException ioe) {
+            return false;
+        }
+    }
+
+    /**
+     * Read the header of a snapshot, leaving the stream at the start of the
+     * binary encoded scene.
+     *
+     * @return The hash of the source the snapshot was made from
+     * @throws IOException The header is not valid
+     */
+    private static byte[] readHeader(InputStream is) throws IOException {
+        DataInputStream dis = new DataInputStream(is);
+
+        if(dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION)
+            throw new IOException("Not a scene snapshot");
+
+        byte[] ret_val = new byte[32];
+        dis.readFully(ret_val);
+
+        return ret_val;
+    }
+
+    /**
+     * Check the start of a source to see if it is X3D in the XML or classic
+     * encoding, the two that are snapshotted.
+     */
+    private static boolean isX3DText(byte[] start, int len) {
+        int i = 0;
+
+        // Skip a UTF-8 byte order mark
+        if(len >= 3 && (start[0] & 255) == 0xEF && (start[1] & 255) == 0xBB &&
+           (start[2] & 255) == 0xBF)
+            i = 3;
+
+        while(i < len && Character.isWhitespace(start[i]))
+            i++;
+
+        if(i == len)
+            return false;
+
+        if(start[i] == '<')
+            return true;
+
+        String header = new String(start, i, len - i, StandardCharsets.ISO_8859_1);
+
+        return header.startsWith("#X3D");
+    }
+
+    /**
+     * Get the path of the snapshot for a URL.
+     */
+    private Path snapshotPath(String url) {
+        byte[] hash = digest(url.getBytes(StandardCharsets.UTF_8), null);
+        StringBuilder buf = new StringBuilder(hash.length * 2 + SNAPSHOT_EXT.length());
+
+        for(byte b : hash) {
+            buf.append(Character.forDigit((b >> 4) & 15, 16));
+            buf.append(Character.forDigit(b & 15, 16));
+        }
+
+        buf.append(SNAPSHOT_EXT);
+
+        return directory.resolve(buf.toString());
+    }
+
+    /**
+     * Create the hash that identifies the source. It includes the format
+     * version, so snapshots of another version are never current.
+     */
+    private static byte[] sourceHash(byte[] content) {
+        byte[] version = { 0, 0, 0, (byte)FORMAT_VERSION };
+
+        return digest(content, version);
+    }
+
+    /**
+     * Create the SHA-256 hash of some bytes, with an optional prefix.
+     */
+    private static byte[] digest(byte[] data, byte[] prefix) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+
+            if(prefix != null)
+                md.update(prefix);
+
+            return md.digest(data);
+        } catch(NoSuchAlgorithmException nsae) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * Read as many bytes as will fit in the buffer, stopping early only at
+     * the end of the stream.
+     *
+     * @return The number of bytes read
+     */
+    private static int readFully(InputStream is, byte[] buf) throws IOException {
+        int len = 0;
+
+        while(len < buf.length) {
+            int n = is.read(buf, len, buf.length - len);
+
+            if(n < 0)
+                break;
+
+            len += n;
+        }
+
+        return len;
+    }
+
+    /**
+     * Read the rest of a stream into memory.
+     */
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(65536);
+        byte[] buf = new byte[65536];
+        int n;
+
+        while((n = is.read(buf)) > 0)
+            bos.write(buf, 0, n);
+
+        return bos.toByteArray();
+    }
+}
@@ -248,6 +248,8 @@ class ScriptLoadHandler extends BaseLoadHandler
         URL[] source_urls;
         String mime_type;
         Object content;
+        String etag;
+        long last_modified;
 
         // Check the URL for ending in ./class. If this is the case, then
         // create a URLClassLoader and use that rather than going through the
@@ -362,6 +364,8 @@ class ScriptLoadHandler extends BaseLoadHandler
                     continue;
                 }
                 content = currentConnection.getContent();
+                etag = currentConnection.getHeaderField("ETag");
+                last_modified = currentConnection.getLastModified();
                 currentConnection.close();
                 if(content == null)
                     continue;
@@ -388,7 +392,11 @@ class ScriptLoadHandler extends BaseLoadHandler
                     continue;
                 if(terminateCurrent)
                     break;
-                fileCache.cacheFile(fileUri, mime_type, content);
+                fileCache.cacheFile(fileUri,
+                                    mime_type,
+                                    content,
+                                    etag,
+                                    last_modified);
                 if(terminateCurrent)
                     break;
                 // Yippee! made it. Break out of the loop and exit
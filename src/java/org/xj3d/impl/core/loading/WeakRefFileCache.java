@@ -103,4 +103,24 @@ public class WeakRefFileCache implements FileCache {
             contentMap.put(uri, contentType);
         }
     }
+
+    /**
+     * Store the item in the cache. Items are kept in memory only as long as
+     * they are used, so the validators are not needed.
+     *
+     * @param uri The uri string for the content
+     * @param contentType A String describing the MIME type of the content
+     * @param content The actual Java representation of the URI's content
+     * @param etag The ETag header of the response, or null if none
+     * @param lastModified The Last-Modified time of the response, or 0 if
+     *    not known
+     */
+    @Override
+    public void cacheFile(String uri,
+                          String contentType,
+                          Object content,
+                          String etag,
+                          long lastModified) {
+        cacheFile(uri, contentType, content);
+    }
 }
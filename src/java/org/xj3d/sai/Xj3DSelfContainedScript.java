@@ -0,0 +1,41 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ *****************************************************************************/
+
+package org.xj3d.sai;
+
+// External imports
+// None
+
+// Local imports
+import org.web3d.x3d.sai.X3DScriptImplementation;
+
+/**
+ * Marker for a Java script that only works with its own fields.
+ * <p>
+ *
+ * Java code cannot be inspected, so a Java script is always run on the event
+ * model thread unless it implements this interface. A script that implements
+ * it promises that, outside of <code>initialize()</code> and
+ * <code>shutdown()</code>, it does not call the browser and does not read or
+ * write any other node. When parallel script execution is turned on, the
+ * <code>eventsProcessed()</code> call of such a script may then be made on
+ * another thread, at the same time as other self contained scripts.
+ * <p>
+ *
+ * The Script node must also have directOutput and mustEvaluate FALSE and no
+ * SFNode or MFNode fields.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public interface Xj3DSelfContainedScript extends X3DScriptImplementation {
+}
@@ -14,11 +14,16 @@ public class TestAllTestSuite extends TestSuite {
 
         suite.addTest(TestCompressionToolsTestSuite.suite());
         suite.addTest(TestContentLoaderTestSuite.suite());
+        suite.addTest(TestEventModelTestSuite.suite());
+        suite.addTest(TestExternalEventBufferTestSuite.suite());
         suite.addTest(TestFiltersTestSuite.suite());
         suite.addTest(TestJaxpResolversTestSuite.suite());
+        suite.addTest(TestNetworkEAITestSuite.suite());
+        suite.addTest(TestNodeFactoryTestSuite.suite());
         suite.addTest(TestProtoBuilderTestSuite.suite());
         suite.addTest(TestVRML97FieldParserTestSuite.suite());
         suite.addTest(TestWeb3DUtilTestSuite.suite());
+        suite.addTest(TestX3DFieldParserTestSuite.suite());
 
         return suite;
     }
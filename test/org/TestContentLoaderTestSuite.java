@@ -6,6 +6,7 @@ import junit.framework.Test;
 
 // Internal Tests
 import org.xj3d.core.loading.*;
+import org.xj3d.impl.core.loading.*;
 
 /**
  * Top level test suite for the core loading package
@@ -17,6 +18,9 @@ public class TestContentLoaderTestSuite extends TestSuite {
         TestSuite suite = new TestSuite("Content Loader Tests");
 
         suite.addTest(TestContentLoader.suite());
+        suite.addTest(TestContentLoadQueue.suite());
+        suite.addTest(TestDiskFileCache.suite());
+        suite.addTest(TestSceneSnapshotCache.suite());
 
         return suite;
     }
@@ -0,0 +1,31 @@
+package org;
+
+// External Tests
+import junit.framework.TestSuite;
+import junit.framework.Test;
+
+// Internal Tests
+import org.xj3d.impl.core.eventmodel.*;
+import org.web3d.vrml.scripting.ecmascript.TestCompiledScriptCache;
+import org.web3d.vrml.scripting.ecmascript.TestEventValuePool;
+
+/**
+ * Top level test suite for the core event model package
+ * @author Xj3D Team
+ * @version
+ */
+public class TestEventModelTestSuite extends TestSuite {
+    public static Test suite() {
+        TestSuite suite = new TestSuite("Event Model Tests");
+
+        suite.addTest(TestDirtyListRouter.suite());
+        suite.addTest(TestRouteStatistics.suite());
+        suite.addTest(TestNodeManagerScheduler.suite());
+        suite.addTest(TestScriptScheduler.suite());
+        suite.addTest(TestCompiledScriptCache.suite());
+        suite.addTest(TestEventValuePool.suite());
+
+        return suite;
+    }
+
+}
\ No newline at end of file
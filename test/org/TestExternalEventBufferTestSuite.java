@@ -0,0 +1,24 @@
+package org;
+
+// External Tests
+import junit.framework.TestSuite;
+import junit.framework.Test;
+
+// Internal Tests
+import org.web3d.vrml.scripting.external.buffer.*;
+
+/**
+ * Top level test suite for the external event buffer package
+ * @author Xj3D Team
+ * @version
+ */
+public class TestExternalEventBufferTestSuite extends TestSuite {
+    public static Test suite() {
+        TestSuite suite = new TestSuite("External Event Buffer Tests");
+
+        suite.addTest(TestExternalEventQueue.suite());
+
+        return suite;
+    }
+
+}
@@ -30,6 +30,9 @@ public class TestFiltersTestSuite extends TestSuite {
         TestSuite suite = new TestSuite("Filter Tests");
 
         suite.addTest(TestAbsScaleFilter.suite());
+        suite.addTest(TestBatchFilter.suite());
+        suite.addTest(TestStreamingImporters.suite());
+        suite.addTest(TestPipelinedFilters.suite());
         //suite.addTest(TestAppearanceReplacerFilter.suite());
         suite.addTest(TestCenterFilter.suite());
         suite.addTest(TestColladaFilter.suite());
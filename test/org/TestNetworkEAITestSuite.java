@@ -0,0 +1,25 @@
+package org;
+
+// External Tests
+import junit.framework.TestSuite;
+import junit.framework.Test;
+
+// Internal Tests
+import org.web3d.vrml.scripting.external.neteai.*;
+
+/**
+ * Top level test suite for the networked EAI package
+ * @author Xj3D Team
+ * @version
+ */
+public class TestNetworkEAITestSuite extends TestSuite {
+    public static Test suite() {
+        TestSuite suite = new TestSuite("Networked EAI Tests");
+
+        suite.addTest(TestFieldDeltaCodec.suite());
+        suite.addTest(TestFrameBuffer.suite());
+
+        return suite;
+    }
+
+}
@@ -0,0 +1,30 @@
+package org;
+
+// External Tests
+import junit.framework.TestSuite;
+import junit.framework.Test;
+
+// Internal Tests
+import org.web3d.vrml.renderer.TestNodeSuppliers;
+import org.web3d.vrml.renderer.TestSharedFieldValues;
+import org.web3d.vrml.renderer.TestParallelFieldParser;
+import org.web3d.vrml.renderer.ogl.nodes.TestTextureCache;
+
+/**
+ * Top level test suite for the node factory
+ * @author Xj3D Team
+ * @version
+ */
+public class TestNodeFactoryTestSuite extends TestSuite {
+    public static Test suite() {
+        TestSuite suite = new TestSuite("Node Factory Tests");
+
+        suite.addTest(TestNodeSuppliers.suite());
+        suite.addTest(TestSharedFieldValues.suite());
+        suite.addTest(TestParallelFieldParser.suite());
+        suite.addTest(TestTextureCache.suite());
+
+        return suite;
+    }
+
+}
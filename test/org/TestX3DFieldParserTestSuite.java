@@ -0,0 +1,28 @@
+package org;
+
+// External Tests
+import junit.framework.TestSuite;
+import junit.framework.Test;
+
+// Internal Tests
+import org.web3d.parser.x3d.TestChunkedArrayData;
+import org.web3d.parser.x3d.TestMappedFileInputStream;
+import org.web3d.parser.x3d.TestX3DFieldReader;
+
+/**
+ * Top level test suite for the X3D field parser package
+ * @author Xj3D Team
+ * @version
+ */
+public class TestX3DFieldParserTestSuite extends TestSuite {
+    public static Test suite() {
+        TestSuite suite = new TestSuite("X3D Field Parser Tests");
+
+        suite.addTest(TestX3DFieldReader.suite());
+        suite.addTest(TestChunkedArrayData.suite());
+        suite.addTest(TestMappedFileInputStream.suite());
+
+        return suite;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+import java.io.StringReader;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Local imports
+// None
+
+/**
+ * Simple timing of the numeric fast path of the X3DFieldReader against the
+ * JavaCC field parser, using CAD sized coordinate and index attributes.
+ * <p>
+ *
+ * Usage: <code>FieldReaderBenchmark [points [threads]]</code>. The default
+ * is one million points, about 25MB of coordinate text, read by as many
+ * threads as there are processors. Each test is run several times so that
+ * the later times are for compiled code.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class FieldReaderBenchmark {
+
+    /** The number of times each test is run */
+    private static final int RUNS = 5;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args The number of points and threads to use
+     * @throws Exception A parse or thread failed
+     */
+    public static void main(String[] args) throws Exception {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int threads = args.length > 1 ?
+            Integer.parseInt(args[1]) :
+            Runtime.getRuntime().availableProcessors();
+
+        String coords = makeCoords(points);
+        String index = makeIndex(points);
+
+        System.out.println("Coordinate text " + (coords.length() >> 10) +
+                           "KB, index text " + (index.length() >> 10) + "KB");
+
+        final X3DFieldReader reader = new X3DFieldReader();
+
+        for(int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            reader.MFVec3f(coords);
+            long fast = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            new X3DFieldParser(new StringReader(coords)).MFVec3f();
+            long javacc = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            reader.MFInt32(index);
+            long fast_int = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            new X3DFieldParser(new StringReader(index)).MFInt32();
+            long javacc_int = System.nanoTime() - start;
+
+            System.out.printf("Run %d  MFVec3f fast %6.1fms javacc %6.1fms  " +
+                              "MFInt32 fast %6.1fms javacc %6.1fms%n",
+                              i, fast / 1e6, javacc / 1e6,
+                              fast_int / 1e6, javacc_int / 1e6);
+        }
+
+        // Many attributes read at once by one shared reader, as happens
+        // when several files load together.
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for(int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Future<?>[] jobs = new Future<?>[threads];
+
+            for(int j = 0; j < threads; j++)
+                jobs[j] = pool.submit(() -> reader.MFVec3f(coords));
+
+            for(Future<?> job : jobs)
+                job.get();
+
+            System.out.printf("Run %d  %d threads sharing one reader %6.1fms%n",
+                              i, threads, (System.nanoTime() - start) / 1e6);
+        }
+
+        pool.shutdown();
+    }
+
+    /**
+     * Make a coordinate attribute in the style written by CAD exporters.
+     */
+    private static String makeCoords(int points) {
+        Random random = new Random(1);
+        StringBuilder buf = new StringBuilder(points * 26);
+
+        for(int i = 0; i < points; i++) {
+            for(int j = 0; j < 3; j++) {
+                buf.append(String.format("%.6f", random.nextDouble() * 200 - 100));
+                buf.append(' ');
+            }
+
+            buf.append(i % 8 == 7 ? ",\n" : ", ");
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * Make a triangle index attribute for the given number of points.
+     */
+    private static String makeIndex(int points) {
+        Random random = new Random(2);
+        StringBuilder buf = new StringBuilder(points * 28);
+
+        for(int i = 0; i < points; i++) {
+            buf.append(random.nextInt(points)).append(' ');
+            buf.append(random.nextInt(points)).append(' ');
+            buf.append(random.nextInt(points)).append(" -1 ");
+        }
+
+        return buf.toString();
+    }
+}
@@ -0,0 +1,247 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.web3d.vrml.sav.ChunkedBinaryContentHandler;
+import org.web3d.vrml.sav.Locator;
+
+/**
+ * A test case to check that big compressed arrays decoded in pieces give
+ * exactly the values of the whole array decoders.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestChunkedArrayData extends TestCase {
+
+    /** Number of values in the test arrays, a bit over a few chunks */
+    private static final int LENGTH = 3 * 65536 + 7;
+
+    /**
+     * Content handler that gathers up the chunked values.
+     */
+    private static class Gatherer implements ChunkedBinaryContentHandler {
+        int expected = -2;
+        int count;
+        int[] ints;
+        float[] floats;
+        boolean ended;
+
+        @Override
+        public void startFieldValue(int length) {
+            expected = length;
+            ints = new int[length];
+            floats = new float[length];
+        }
+
+        @Override
+        public void appendFieldValue(int[] value, int offset, int len) {
+            System.arraycopy(value, offset, ints, count, len);
+            count += len;
+        }
+
+        @Override
+        public void appendFieldValue(float[] value, int offset, int len) {
+            System.arraycopy(value, offset, floats, count, len);
+            count += len;
+        }
+
+        @Override
+        public void appendFieldValue(double[] value, int offset, int len) {
+            fail("Unexpected doubles");
+        }
+
+        @Override
+        public void endFieldValue() {
+            ended = true;
+        }
+
+        // Nothing else is used by the chunked data
+        @Override public void fieldValue(int value) {}
+        @Override public void fieldValue(int[] value, int len) {}
+        @Override public void fieldValue(boolean value) {}
+        @Override public void fieldValue(boolean[] value, int len) {}
+        @Override public void fieldValue(float value) {}
+        @Override public void fieldValue(float[] value, int len) {}
+        @Override public void fieldValue(long value) {}
+        @Override public void fieldValue(long[] value, int len) {}
+        @Override public void fieldValue(double value) {}
+        @Override public void fieldValue(double[] value, int len) {}
+        @Override public void fieldValue(String value) {}
+        @Override public void fieldValue(String[] value, int len) {}
+        @Override public void setDocumentLocator(Locator loc) {}
+        @Override public void startDocument(String uri, String url, String encoding,
+                                            String type, String version,
+                                            String comment) {}
+        @Override public void profileDecl(String profileName) {}
+        @Override public void componentDecl(String componentName) {}
+        @Override public void metaDecl(String key, String value) {}
+        @Override public void importDecl(String inline, String exported, String imported) {}
+        @Override public void exportDecl(String defName, String exported) {}
+        @Override public void endDocument() {}
+        @Override public void startNode(String name, String defName) {}
+        @Override public void endNode() {}
+        @Override public void startField(String name) {}
+        @Override public void useDecl(String defName) {}
+        @Override public void endField() {}
+    }
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestChunkedArrayData(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestChunkedArrayData("testQuantizedFloats"));
+        suite.addTest(new TestChunkedArrayData("testDeltaInts"));
+        suite.addTest(new TestChunkedArrayData("testSmallArrays"));
+
+        return suite;
+    }
+
+    /**
+     * Check the quantized float arrays decode the same in pieces.
+     *
+     * @throws Exception The encoding or decoding failed
+     */
+    public void testQuantizedFloats() throws Exception {
+        Random random = new Random(7);
+        float[] values = new float[LENGTH];
+
+        for(int i = 0; i < LENGTH; i++)
+            values[i] = random.nextFloat() * 200 - 100;
+
+        QuantizedzlibFloatArrayAlgorithm algorithm =
+            new QuantizedzlibFloatArrayAlgorithm();
+
+        byte[] encoded = encode(b -> algorithm.encodeToOutputStream(values, b));
+
+        float[] expected = (float[])algorithm.decodeFromBytes(encoded, 0, encoded.length);
+
+        algorithm.setChunkedDecoding(true);
+        Object data = algorithm.decodeFromBytes(encoded, 0, encoded.length);
+
+        assertTrue("Not chunked", data instanceof ChunkedArrayData);
+        assertTrue("Whole array differs",
+                   Arrays.equals(expected, (float[])ChunkedArrayData.resolve(data)));
+
+        Gatherer handler = new Gatherer();
+        ((ChunkedArrayData)data).deliver(handler);
+
+        assertEquals("Wrong length given", LENGTH, handler.expected);
+        assertEquals("Wrong count sent", LENGTH, handler.count);
+        assertTrue("Not ended", handler.ended);
+        assertTrue("Chunked values differ", Arrays.equals(expected, handler.floats));
+    }
+
+    /**
+     * Check the delta int arrays, in the form of a triangle index, decode
+     * the same in pieces.
+     *
+     * @throws Exception The encoding or decoding failed
+     */
+    public void testDeltaInts() throws Exception {
+        Random random = new Random(8);
+        int[] values = new int[LENGTH];
+
+        for(int i = 0; i < LENGTH; i++)
+            values[i] = (i & 3) == 3 ? -1 : i / 4 + random.nextInt(50);
+
+        DeltazlibIntArrayAlgorithm algorithm = new DeltazlibIntArrayAlgorithm();
+
+        byte[] encoded = encode(b -> algorithm.encodeToOutputStream(values, b));
+
+        int[] expected = (int[])algorithm.decodeFromBytes(encoded, 0, encoded.length);
+        assertTrue("Encoding does not round trip", Arrays.equals(values, expected));
+
+        algorithm.setChunkedDecoding(true);
+        Object data = algorithm.decodeFromBytes(encoded, 0, encoded.length);
+
+        assertTrue("Not chunked", data instanceof ChunkedArrayData);
+        assertTrue("Whole array differs",
+                   Arrays.equals(expected, (int[])ChunkedArrayData.resolve(data)));
+
+        Gatherer handler = new Gatherer();
+        ((ChunkedArrayData)data).deliver(handler);
+
+        assertEquals("Wrong count sent", LENGTH, handler.count);
+        assertTrue("Chunked values differ", Arrays.equals(expected, handler.ints));
+    }
+
+    /**
+     * Check small arrays are still decoded straight away.
+     *
+     * @throws Exception The encoding or decoding failed
+     */
+    public void testSmallArrays() throws Exception {
+        int[] values = { 0, 1, 2, -1, 2, 3, 0, -1 };
+
+        DeltazlibIntArrayAlgorithm algorithm = new DeltazlibIntArrayAlgorithm();
+        algorithm.setChunkedDecoding(true);
+
+        byte[] encoded = encode(b -> algorithm.encodeToOutputStream(values, b));
+        Object data = algorithm.decodeFromBytes(encoded, 0, encoded.length);
+
+        assertTrue("Small array not decoded", data instanceof int[]);
+        assertTrue("Wrong values", Arrays.equals(values, (int[])data));
+    }
+
+    /**
+     * Something that writes encoded bytes.
+     */
+    private interface Encoder {
+        void encode(ByteArrayOutputStream out) throws IOException;
+    }
+
+    /**
+     * Run an encoder and return the bytes it wrote.
+     */
+    private static byte[] encode(Encoder enc) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        enc.encode(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,150 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+// None
+
+/**
+ * A test case to check the memory mapped file stream reads the same bytes
+ * as the file holds, across the boundaries of its mapped windows.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestMappedFileInputStream extends TestCase {
+
+    /** Size of the mapped windows, small to make many of them */
+    private static final int WINDOW_SIZE = 1000;
+
+    /** The bytes written to the test file */
+    private byte[] contents;
+
+    /** The test file */
+    private File file;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestMappedFileInputStream(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestMappedFileInputStream("testRead"));
+        suite.addTest(new TestMappedFileInputStream("testSkipAndReset"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        contents = new byte[10 * WINDOW_SIZE + 123];
+        new Random(3).nextBytes(contents);
+
+        file = File.createTempFile("xj3d", ".x3db");
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(contents);
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Check reading the whole file in odd sized pieces and single bytes.
+     *
+     * @throws IOException The file could not be read
+     */
+    public void testRead() throws IOException {
+        try (MappedFileInputStream in =
+                 new MappedFileInputStream(file, WINDOW_SIZE)) {
+
+            assertEquals("Wrong length", contents.length, in.length());
+            assertEquals("First byte", contents[0] & 255, in.read());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[777];
+            int n;
+
+            while((n = in.read(buf, 0, buf.length)) > 0)
+                out.write(buf, 0, n);
+
+            assertTrue("Wrong bytes read",
+                       Arrays.equals(Arrays.copyOfRange(contents, 1, contents.length),
+                                     out.toByteArray()));
+            assertEquals("Not at end", -1, in.read());
+        }
+    }
+
+    /**
+     * Check skipping over windows and resetting to a mark in an earlier one.
+     *
+     * @throws IOException The file could not be read
+     */
+    public void testSkipAndReset() throws IOException {
+        try (MappedFileInputStream in =
+                 new MappedFileInputStream(file, WINDOW_SIZE)) {
+
+            assertEquals("Short skip", 1500, in.skip(1500));
+            in.mark(0);
+
+            assertEquals("Long skip", 5000, in.skip(5000));
+            assertEquals("Byte after skip", contents[6500] & 255, in.read());
+
+            in.reset();
+            assertEquals("Byte after reset", contents[1500] & 255, in.read());
+
+            assertEquals("Skip past end",
+                         contents.length - 1501,
+                         in.skip(contents.length));
+            assertEquals("Not at end", -1, in.read());
+            assertEquals("Bytes available", 0, in.available());
+        }
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,347 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.parser.x3d;
+
+// External imports
+import java.io.StringReader;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.web3d.vrml.lang.InvalidFieldFormatException;
+
+/**
+ * A test case to check that the numeric fast path of the X3DFieldReader
+ * gives exactly the values of the JavaCC field parser.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestX3DFieldReader extends TestCase {
+
+    /** Float values in the forms found in files */
+    private static final String[] FLOATS = {
+        "1 2 3",
+        "[1.0, 2.0, 3.5]",
+        "  [ -0 .5 -.25 ]  ",
+        "1e3,2E-3,\n-3.5e+2",
+        "0.1 0.2 0.3",
+        "3.4028235e38 1.4e-45 1.17549435e-38",
+        "123456789012345678901234 0.000000000000000000000000001 1e-30",
+        "1.00000005960464477539062500 1.0000001788139343261718750 0",
+        "16777217 33554435 1f",
+        "0.333333333333333333333333 -7.0000000000000000001 1.5d",
+        "1e,2,3",
+        "1 2 3 # comment",
+        "1 2 [3]",
+        "+1 2 3",
+        "1.2.3 4 5",
+        "1 2 3 4",
+        "",
+        "[]",
+        "a b c",
+        "0x10 1 2",
+        "1 2 3]",
+        "[1 2 3",
+    };
+
+    /** Colour values, which must lie between 0 and 1 */
+    private static final String[] COLORS = {
+        "0 0.5 1",
+        "[1 1 1, 0 0 0]",
+        "1.5 0 0",
+        "-0.1 0 0",
+        "1.0000000001 0 0",
+    };
+
+    /** Int values in the forms found in files */
+    private static final String[] INTS = {
+        "0 1 2 -1",
+        "[0, 1, 2, -1]",
+        "2147483647 -2147483648",
+        "2147483648",
+        "0xFF 0x7fffffff 0xFFFFFFFF",
+        "0xFFFFFFFFFFFFFFFF",
+        "0x1FFFFFFFF",
+        "1.5",
+        "-",
+        "",
+        "1 2 # comment",
+    };
+
+    /** Image values */
+    private static final String[] IMAGES = {
+        "2 1 3 0xFF0000 0x00FF00",
+        " 1 1 1 255 ",
+        "[1 1 1 255]",
+        "1 1",
+    };
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestX3DFieldReader(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestX3DFieldReader("testFloatFields"));
+        suite.addTest(new TestX3DFieldReader("testDoubleFields"));
+        suite.addTest(new TestX3DFieldReader("testColorFields"));
+        suite.addTest(new TestX3DFieldReader("testIntFields"));
+        suite.addTest(new TestX3DFieldReader("testRandomValues"));
+
+        return suite;
+    }
+
+    /**
+     * Check the float vector fields against the JavaCC parser.
+     */
+    public void testFloatFields() {
+        X3DFieldReader reader = new X3DFieldReader();
+
+        for(String value : FLOATS) {
+            float[] expected = null;
+
+            try {
+                expected = parser(value).MFFloat();
+            } catch(ParseException | TokenMgrError | NumberFormatException e) {
+                // Expected is still null
+            }
+
+            try {
+                assertFloats(value, expected, reader.MFFloat(value));
+            } catch(InvalidFieldFormatException iffe) {
+                assertNull("Valid value rejected: " + value, expected);
+            }
+
+            try {
+                expected = parser(value).MFVec3f();
+            } catch(ParseException | TokenMgrError | NumberFormatException e) {
+                expected = null;
+            }
+
+            try {
+                assertFloats(value, expected, reader.MFVec3f(value));
+            } catch(InvalidFieldFormatException iffe) {
+                assertNull("Valid value rejected: " + value, expected);
+            }
+        }
+    }
+
+    /**
+     * Check the double vector fields against the JavaCC parser.
+     */
+    public void testDoubleFields() {
+        X3DFieldReader reader = new X3DFieldReader();
+
+        for(String value : FLOATS) {
+            double[] expected = null;
+
+            try {
+                expected = parser(value).MFVec3d();
+            } catch(ParseException | TokenMgrError | NumberFormatException e) {
+                // Expected is still null
+            }
+
+            try {
+                double[] result = reader.MFVec3d(value);
+
+                assertNotNull("Invalid value accepted: " + value, expected);
+                assertTrue("Wrong values for " + value,
+                           Arrays.equals(expected, result));
+            } catch(InvalidFieldFormatException iffe) {
+                assertNull("Valid value rejected: " + value, expected);
+            }
+        }
+    }
+
+    /**
+     * Check the range limits of colour fields.
+     */
+    public void testColorFields() {
+        X3DFieldReader reader = new X3DFieldReader();
+
+        for(String value : COLORS) {
+            float[] expected = null;
+
+            try {
+                expected = parser(value).MFColor();
+            } catch(ParseException | TokenMgrError | NumberFormatException e) {
+                // Expected is still null
+            }
+
+            try {
+                assertFloats(value, expected, reader.MFColor(value));
+            } catch(InvalidFieldFormatException iffe) {
+                assertNull("Valid value rejected: " + value, expected);
+            }
+        }
+    }
+
+    /**
+     * Check the int and image fields against the JavaCC parser.
+     */
+    public void testIntFields() {
+        X3DFieldReader reader = new X3DFieldReader();
+
+        for(String value : INTS) {
+            int[] expected = null;
+
+            try {
+                expected = parser(value).MFInt32();
+            } catch(ParseException | TokenMgrError | NumberFormatException e) {
+                // Expected is still null
+            }
+
+            try {
+                int[] result = reader.MFInt32(value);
+
+                assertNotNull("Invalid value accepted: " + value, expected);
+                assertTrue("Wrong values for " + value,
+                           Arrays.equals(expected, result));
+            } catch(InvalidFieldFormatException iffe) {
+                assertNull("Valid value rejected: " + value, expected);
+            }
+        }
+
+        for(String value : IMAGES) {
+            int[] expected = null;
+
+            try {
+                expected = parser(value).MFImage();
+            } catch(ParseException | TokenMgrError | NumberFormatException e) {
+                // Expected is still null
+            }
+
+            try {
+                int[] result = reader.MFImage(value);
+
+                assertNotNull("Invalid value accepted: " + value, expected);
+                assertTrue("Wrong values for " + value,
+                           Arrays.equals(expected, result));
+            } catch(InvalidFieldFormatException iffe) {
+                assertNull("Valid value rejected: " + value, expected);
+            }
+        }
+    }
+
+    /**
+     * Check many random values, written in several ways, convert to the
+     * same bits as the Java library.
+     *
+     * @throws InvalidFieldFormatException A value was not parsed
+     */
+    public void testRandomValues() throws InvalidFieldFormatException {
+        X3DFieldReader reader = new X3DFieldReader();
+        Random random = new Random(42);
+        StringBuilder buf = new StringBuilder();
+
+        for(int i = 0; i < 30000; i++) {
+            switch(i % 5) {
+                case 0:
+                    buf.append(random.nextFloat() * 1000 - 500);
+                    break;
+
+                case 1:
+                    buf.append(String.format("%.6f", random.nextDouble() * 20 - 10));
+                    break;
+
+                case 2:
+                    buf.append(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+                    break;
+
+                case 3:
+                    // Values close to a float half way point
+                    double f = random.nextFloat();
+                    double ulp = Math.ulp((float)f);
+                    buf.append(new java.math.BigDecimal(f + ulp / 2).toPlainString());
+                    break;
+
+                default:
+                    buf.append(random.nextInt(100000));
+            }
+
+            buf.append(i % 7 == 0 ? ", " : " ");
+        }
+
+        String value = buf.toString();
+        String[] tokens = value.split("[ ,]+");
+
+        float[] floats = reader.MFFloat(value);
+        double[] doubles = reader.MFDouble(value);
+
+        assertEquals("Wrong float count", tokens.length, floats.length);
+        assertEquals("Wrong double count", tokens.length, doubles.length);
+
+        for(int i = 0; i < tokens.length; i++) {
+            assertEquals("Float differs for " + tokens[i],
+                         Float.floatToIntBits(Float.parseFloat(tokens[i])),
+                         Float.floatToIntBits(floats[i]));
+            assertEquals("Double differs for " + tokens[i],
+                         Double.doubleToLongBits(Double.parseDouble(tokens[i])),
+                         Double.doubleToLongBits(doubles[i]));
+        }
+    }
+
+    /**
+     * Create a JavaCC parser for a value.
+     *
+     * @param value The value to parse
+     * @return A parser ready to read the value
+     */
+    private static X3DFieldParser parser(String value) {
+        return new X3DFieldParser(new StringReader(value));
+    }
+
+    /**
+     * Check the reader's float values exactly match the parser's.
+     *
+     * @param value The value that was parsed
+     * @param expected The parser's values, or null if it failed
+     * @param result The reader's values
+     */
+    private static void assertFloats(String value,
+                                     float[] expected,
+                                     float[] result) {
+        assertNotNull("Invalid value accepted: " + value, expected);
+        assertTrue("Wrong values for " + value + ": " +
+                   Arrays.toString(result) + " not " +
+                   Arrays.toString(expected),
+                   Arrays.equals(expected, result));
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
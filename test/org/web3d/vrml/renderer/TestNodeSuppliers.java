@@ -0,0 +1,135 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer;
+
+// External imports
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.web3d.vrml.lang.VRMLNode;
+import org.web3d.vrml.lang.VRMLNodeFactory;
+
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+import org.web3d.vrml.renderer.norender.NRNodeSuppliers;
+import org.web3d.vrml.renderer.ogl.OGLNodeSuppliers;
+
+/**
+ * A test case to check the tables of node suppliers match the node classes
+ * that the factory would otherwise find by reflection.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestNodeSuppliers extends TestCase {
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestNodeSuppliers(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestNodeSuppliers("testTables"));
+        suite.addTest(new TestNodeSuppliers("testFactory"));
+
+        return suite;
+    }
+
+    /**
+     * Check every entry of both tables names a real class and has a copy
+     * function exactly when the class has a copy constructor.
+     *
+     * @throws Exception A class could not be found
+     */
+    public void testTables() throws Exception {
+        Map<String, NodeSupplier> suppliers = new HashMap<>();
+        NRNodeSuppliers.addSuppliers(suppliers);
+        OGLNodeSuppliers.addSuppliers(suppliers);
+
+        assertTrue("Too few suppliers", suppliers.size() > 300);
+
+        ClassLoader loader = getClass().getClassLoader();
+
+        for(Map.Entry<String, NodeSupplier> e : suppliers.entrySet()) {
+            Class<?> cl = Class.forName(e.getKey(), false, loader);
+
+            boolean copy_con = true;
+
+            try {
+                cl.getConstructor(VRMLNodeType.class);
+            } catch(NoSuchMethodException nsme) {
+                copy_con = false;
+            }
+
+            assertEquals("Copy mismatch for " + e.getKey(),
+                         copy_con,
+                         e.getValue().canCopy());
+        }
+    }
+
+    /**
+     * Check the null renderer factory creates and copies the same classes
+     * through the suppliers as through reflection.
+     *
+     * @throws Exception A node could not be created
+     */
+    public void testFactory() throws Exception {
+        VRMLNodeFactory fac =
+            DefaultNodeFactory.newInstance(DefaultNodeFactory.NULL_RENDERER);
+        fac.setSpecVersion(3, 3);
+        fac.setProfile("Immersive");
+
+        Map<String, NodeSupplier> suppliers = new HashMap<>();
+        NRNodeSuppliers.addSuppliers(suppliers);
+
+        String[] names = { "Transform", "Shape", "Box", "Material", "TimeSensor" };
+
+        for(String name : names) {
+            VRMLNode node = fac.createVRMLNode(name, false);
+
+            assertNotNull("No node for " + name, node);
+            assertTrue("No supplier for " + name,
+                       suppliers.containsKey(node.getClass().getName()));
+
+            VRMLNode copy = fac.createVRMLNode(node, false);
+
+            assertEquals("Wrong copy class", node.getClass(), copy.getClass());
+        }
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
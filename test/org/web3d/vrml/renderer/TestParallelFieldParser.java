@@ -0,0 +1,386 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer;
+
+// External imports
+import java.io.ByteArrayInputStream;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.vrml.lang.FieldConstants;
+import org.web3d.vrml.lang.VRMLFieldDeclaration;
+import org.web3d.vrml.lang.VRMLNode;
+
+import org.web3d.vrml.nodes.VRMLFieldData;
+import org.web3d.vrml.nodes.VRMLNodeType;
+import org.web3d.vrml.nodes.VRMLScene;
+
+import org.web3d.vrml.parser.VRMLParserFactory;
+
+import org.web3d.vrml.renderer.norender.NRSceneBuilderFactory;
+
+import org.web3d.vrml.sav.InputSource;
+import org.web3d.vrml.sav.VRMLReader;
+
+import org.xj3d.core.loading.SceneBuilder;
+
+/**
+ * A test case to check that parsing large field values in parallel gives
+ * the same scene, and the same errors, as parsing them in line.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestParallelFieldParser extends TestCase {
+
+    /**
+     * Reporter that records the warnings and errors from a parse.
+     */
+    private static class RecordingReporter implements ErrorReporter {
+
+        /** The reported messages, in order */
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void partialReport(String msg) {
+        }
+
+        @Override
+        public void messageReport(String msg) {
+        }
+
+        @Override
+        public void warningReport(String msg, Throwable e) {
+            record("Warning", msg, e);
+        }
+
+        @Override
+        public void errorReport(String msg, Throwable e) {
+            record("Error", msg, e);
+        }
+
+        @Override
+        public void fatalErrorReport(String msg, Throwable e) {
+            record("Fatal", msg, e);
+        }
+
+        /**
+         * Record one report.
+         */
+        private void record(String level, String msg, Throwable e) {
+            String txt = level + ": " + msg;
+            if(e != null)
+                txt += " " + e.getMessage();
+
+            messages.add(txt);
+        }
+    }
+
+    /**
+     * A scene with numeric MF values before, between and after child nodes,
+     * and a field given twice.
+     */
+    private static final String SCENE =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Interchange\n" +
+        "DEF S Shape {\n" +
+        "  geometry DEF IFS IndexedFaceSet {\n" +
+        "    coordIndex [ 0 1 2 -1 2 3 0 -1 ]\n" +
+        "    texCoordIndex [ 0 1 2 -1 2 3 0 -1 ]\n" +
+        "    coord DEF C Coordinate {\n" +
+        "      point [ 0 0 0, 1 0 0, 1 1 0, 0 1 0 ]\n" +
+        "    }\n" +
+        "    colorIndex [ 0 1 ]\n" +
+        "    color DEF COL Color { color [ 1 0 0, 0 1 0 ] }\n" +
+        "    texCoord DEF TC TextureCoordinate {\n" +
+        "      point [ 0 0, 1 0, 1 1, 0 1 ]\n" +
+        "    }\n" +
+        "    colorIndex [ 1 0 ]\n" +
+        "    colorPerVertex FALSE\n" +
+        "  }\n" +
+        "}\n" +
+        "DEF PI PositionInterpolator {\n" +
+        "  key [ 0 0.5 1 ]\n" +
+        "  keyValue [ 0 0 0, 1 1 1, 2 2 2 ]\n" +
+        "}\n" +
+        "DEF G Group {\n" +
+        "  children [\n" +
+        "    Shape { geometry IndexedLineSet { coordIndex [ 0 1 ] coord USE C } }\n" +
+        "  ]\n" +
+        "}\n";
+
+    /** A scene with a bad value in a field that would be parsed in parallel */
+    private static final String BAD_SCENE =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Interchange\n" +
+        "Shape {\n" +
+        "  geometry IndexedFaceSet {\n" +
+        "    coordIndex [ 0 1 2 -1 ]\n" +
+        "    texCoordIndex [ 0 1.5 2 -1 ]\n" +
+        "    coord Coordinate { point [ 0 0 0, 1 0 0, 1 1 0 ] }\n" +
+        "  }\n" +
+        "}\n";
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestParallelFieldParser(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestParallelFieldParser("testSameFieldValues"));
+        suite.addTest(new TestParallelFieldParser("testSameError"));
+
+        return suite;
+    }
+
+    @Override
+    public void tearDown() {
+        ParallelFieldParser.setParallelSize(0);
+    }
+
+    /**
+     * Every DEFed node has the same field values either way.
+     *
+     * @throws Exception The scene could not be parsed
+     */
+    public void testSameFieldValues() throws Exception {
+        Map<String, String> in_line = describe(parse(SCENE, 0));
+        Map<String, String> parallel = describe(parse(SCENE, 1));
+
+        assertTrue("Coordinates not parsed",
+                   in_line.get("C").contains("[0.0, 0.0, 0.0, 1.0"));
+        assertTrue("Second colorIndex not kept " + in_line.get("IFS"),
+                   in_line.get("IFS").contains("colorIndex=2:[1, 0]"));
+
+        assertEquals("Different nodes", in_line.keySet(), parallel.keySet());
+
+        for(String def : in_line.keySet())
+            assertEquals("Node " + def + " differs",
+                         in_line.get(def),
+                         parallel.get(def));
+    }
+
+    /**
+     * A bad value is reported with the same message, line and column either
+     * way.
+     *
+     * @throws Exception The scene failed in some unexpected way
+     */
+    public void testSameError() throws Exception {
+        List<String> in_line = parseErrors(BAD_SCENE, 0);
+        List<String> parallel = parseErrors(BAD_SCENE, 1);
+
+        assertEquals("Wrong error count " + in_line, 1, in_line.size());
+        // The position the in-line parser has always reported for the value
+        assertTrue("Wrong position in error: " + in_line,
+                   in_line.get(0).contains("Line 5 column 32"));
+        assertEquals("Different error", in_line, parallel);
+    }
+
+    /**
+     * Parse the document with the given parallel size.
+     *
+     * @param doc The document to parse
+     * @param size The value length to parse in parallel, 0 for none
+     * @return The parsed scene
+     * @throws Exception The scene could not be parsed
+     */
+    private VRMLScene parse(String doc, int size) throws Exception {
+        return parse(doc, size, new RecordingReporter());
+    }
+
+    /**
+     * Parse the document with the given parallel size, sending warnings and
+     * errors to the given reporter.
+     *
+     * @param doc The document to parse
+     * @param size The value length to parse in parallel, 0 for none
+     * @param reporter The reporter for the reader and builder
+     * @return The parsed scene
+     * @throws Exception The scene could not be parsed
+     */
+    private VRMLScene parse(String doc, int size, ErrorReporter reporter)
+        throws Exception {
+
+        ParallelFieldParser.setParallelSize(size);
+
+        NRSceneBuilderFactory fac =
+            new NRSceneBuilderFactory(false, true, true, true, true, true, true);
+        SceneBuilder builder = fac.createBuilder();
+        builder.setErrorReporter(reporter);
+
+        VRMLReader reader = VRMLParserFactory.newVRMLParserFactory().newVRMLReader();
+        reader.setContentHandler(builder);
+        reader.setScriptHandler(builder);
+        reader.setProtoHandler(builder);
+        reader.setRouteHandler(builder);
+        reader.setErrorReporter(reporter);
+
+        byte[] bytes = doc.getBytes(StandardCharsets.UTF_8);
+        reader.parse(new InputSource("file:///",
+                                     new ByteArrayInputStream(bytes)));
+
+        return builder.getScene();
+    }
+
+    /**
+     * Parse a document that should have errors and collect them.
+     *
+     * @param doc The document to parse
+     * @param size The value length to parse in parallel, 0 for none
+     * @return The reported warnings and errors, in order, followed by the
+     *    exception that stopped the parse, if any
+     */
+    private List<String> parseErrors(String doc, int size) {
+        RecordingReporter reporter = new RecordingReporter();
+
+        try {
+            parse(doc, size, reporter);
+        } catch(Exception e) {
+            reporter.messages.add("Thrown: " + e);
+        }
+
+        return reporter.messages;
+    }
+
+    /**
+     * Describe the fields of every DEFed node in the scene.
+     *
+     * @param scene The scene to describe
+     * @return The description of each node, keyed by DEF name
+     */
+    private Map<String, String> describe(VRMLScene scene) throws Exception {
+        Map<String, String> ret_val = new TreeMap<>();
+
+        for(Map.Entry<String, VRMLNode> e : scene.getDEFNodes().entrySet())
+            ret_val.put(e.getKey(), describe((VRMLNodeType)e.getValue()));
+
+        return ret_val;
+    }
+
+    /**
+     * Describe all the fields of one node.
+     */
+    private String describe(VRMLNodeType node) throws Exception {
+        StringBuilder buf = new StringBuilder(node.getVRMLNodeName());
+        int num_fields = node.getNumFields();
+
+        for(int i = 0; i < num_fields; i++) {
+            VRMLFieldDeclaration decl = node.getFieldDeclaration(i);
+
+            if(decl == null)
+                continue;
+
+            int access = decl.getAccessType();
+
+            if(access == FieldConstants.EVENTIN ||
+               access == FieldConstants.EVENTOUT)
+                continue;
+
+            VRMLFieldData data = node.getFieldValue(i);
+
+            buf.append('\n');
+            buf.append(decl.getName());
+            buf.append('=');
+            buf.append(describe(data));
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * Describe a single field value.
+     */
+    private String describe(VRMLFieldData data) {
+        if(data == null)
+            return "null";
+
+        String ret_val = data.numElements + ":";
+
+        switch(data.dataType) {
+            case VRMLFieldData.BOOLEAN_DATA:
+                return ret_val + data.booleanValue;
+            case VRMLFieldData.INT_DATA:
+                return ret_val + data.intValue;
+            case VRMLFieldData.LONG_DATA:
+                return ret_val + data.longValue;
+            case VRMLFieldData.FLOAT_DATA:
+                return ret_val + data.floatValue;
+            case VRMLFieldData.DOUBLE_DATA:
+                return ret_val + data.doubleValue;
+            case VRMLFieldData.STRING_DATA:
+                return ret_val + data.stringValue;
+            case VRMLFieldData.NODE_DATA:
+                return ret_val + nodeName(data.nodeValue);
+            case VRMLFieldData.BOOLEAN_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.booleanArrayValues);
+            case VRMLFieldData.INT_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.intArrayValues);
+            case VRMLFieldData.LONG_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.longArrayValues);
+            case VRMLFieldData.FLOAT_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.floatArrayValues);
+            case VRMLFieldData.DOUBLE_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.doubleArrayValues);
+            case VRMLFieldData.STRING_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.stringArrayValues);
+            case VRMLFieldData.NODE_ARRAY_DATA:
+                StringBuilder buf = new StringBuilder(ret_val);
+                for(int i = 0; i < data.numElements; i++)
+                    buf.append(nodeName(data.nodeArrayValues[i])).append(' ');
+                return buf.toString();
+            default:
+                return ret_val + "?";
+        }
+    }
+
+    /**
+     * Get the name of a node, or null.
+     */
+    private String nodeName(VRMLNode node) {
+        return (node == null) ? "null" : node.getVRMLNodeName();
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,122 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer;
+
+// External imports
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.web3d.vrml.lang.VRMLNodeFactory;
+
+import org.web3d.vrml.nodes.VRMLCoordinateNodeType;
+
+/**
+ * A test case to check that copied nodes share their array field values
+ * until one of the nodes is changed, and that a change to one is never seen
+ * by the other.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestSharedFieldValues extends TestCase {
+
+    /** The points given to the source coordinate */
+    private static final float[] POINTS = { 1, 2, 3, 4, 5, 6 };
+
+    /** The factory used to create and copy nodes */
+    private VRMLNodeFactory factory;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestSharedFieldValues(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestSharedFieldValues("testCopyWritten"));
+        suite.addTest(new TestSharedFieldValues("testSourceWritten"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        factory = DefaultNodeFactory.newInstance(DefaultNodeFactory.NULL_RENDERER);
+        factory.setSpecVersion(3, 3);
+        factory.setProfile("Interchange");
+    }
+
+    /**
+     * Check a copy shares the points and gets its own array when written.
+     */
+    public void testCopyWritten() {
+        VRMLCoordinateNodeType src = createCoordinate();
+        VRMLCoordinateNodeType copy =
+            (VRMLCoordinateNodeType)factory.createVRMLNode(src, false);
+
+        assertSame("Points not shared", src.getPointRef(), copy.getPointRef());
+
+        copy.setPoint(new float[] { 9, 9, 9 }, 3);
+
+        assertEquals("Source changed", 2f, src.getPointRef()[1]);
+        assertEquals("Source size changed", 6, src.getNumPoints());
+        assertEquals("Copy not changed", 9f, copy.getPointRef()[1]);
+    }
+
+    /**
+     * Check the source gets its own array when written after being copied.
+     */
+    public void testSourceWritten() {
+        VRMLCoordinateNodeType src = createCoordinate();
+        VRMLCoordinateNodeType copy =
+            (VRMLCoordinateNodeType)factory.createVRMLNode(src, false);
+
+        src.setPoint(new float[] { 7, 7, 7 }, 3);
+
+        assertEquals("Copy changed", 2f, copy.getPointRef()[1]);
+        assertEquals("Source not changed", 7f, src.getPointRef()[1]);
+    }
+
+    /**
+     * Create a coordinate node holding the test points.
+     */
+    private VRMLCoordinateNodeType createCoordinate() {
+        VRMLCoordinateNodeType ret_val =
+            (VRMLCoordinateNodeType)factory.createVRMLNode("Coordinate", false);
+        ret_val.setPoint(POINTS, POINTS.length);
+
+        return ret_val;
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,265 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.renderer.ogl.nodes;
+
+// External imports
+import java.nio.ByteBuffer;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import org.j3d.aviatrix3d.ByteTextureComponent2D;
+import org.j3d.aviatrix3d.Texture;
+import org.j3d.aviatrix3d.Texture2D;
+import org.j3d.aviatrix3d.TextureComponent;
+
+// Local imports
+// None
+
+/**
+ * A test case to check that the texture cache shares textures by tag and by
+ * content, keeps to its memory budget and counts what it does.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestTextureCache extends TestCase {
+
+    /** Width and height of the test textures */
+    private static final int SIZE = 4;
+
+    /** Bytes in the content of one RGB test texture */
+    private static final int CONTENT_SIZE = SIZE * SIZE * 3;
+
+    /** The cache under test */
+    private TextureCache cache;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestTextureCache(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestTextureCache("testSameTag"));
+        suite.addTest(new TestTextureCache("testContentDedupe"));
+        suite.addTest(new TestTextureCache("testBudget"));
+        suite.addTest(new TestTextureCache("testRelease"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() {
+        cache = new TextureCache();
+        cache.setMaxSize(CONTENT_SIZE * 100);
+    }
+
+    /**
+     * A texture registered again under the same tag is shared only if its
+     * properties match.
+     */
+    public void testSameTag() {
+        Texture first = texture(SIZE, 1);
+        Texture second = texture(SIZE, 1);
+        Texture other_size = texture(SIZE * 2, 1);
+
+        assertSame("New texture not kept", first, cache.register("a", first));
+        assertSame("Texture not shared", first, cache.register("a", second));
+        assertSame("Different size shared",
+                   other_size,
+                   cache.register("a", other_size));
+
+        assertEquals("Wrong hit count", 1, cache.getHitCount());
+        assertEquals("Wrong miss count", 2, cache.getMissCount());
+        assertEquals("Wrong content hit count", 0, cache.getContentHitCount());
+
+        assertEquals("Wrong estimated size",
+                     CONTENT_SIZE + CONTENT_SIZE * 4,
+                     cache.getSize());
+
+        // Disabled caches pass everything straight through
+        cache.setEnabled(false);
+        assertSame("Disabled cache shared", second, cache.register("a", second));
+    }
+
+    /**
+     * The same image under another tag is shared, while a different image of
+     * the same size is not.
+     */
+    public void testContentDedupe() {
+        Texture first = texture(SIZE, 1);
+        Texture same = texture(SIZE, 1);
+        Texture different = texture(SIZE, 2);
+
+        assertSame("New texture not kept",
+                   first,
+                   cache.register("a", first, content(1)));
+        assertSame("Same content not shared",
+                   first,
+                   cache.register("b", same, content(1)));
+        assertSame("Different content shared",
+                   different,
+                   cache.register("c", different, content(2)));
+
+        assertEquals("Wrong hit count", 1, cache.getHitCount());
+        assertEquals("Wrong content hit count", 1, cache.getContentHitCount());
+        assertEquals("Wrong miss count", 2, cache.getMissCount());
+        assertEquals("Shared content counted twice",
+                     CONTENT_SIZE * 2,
+                     cache.getSize());
+
+        // Content differing in one byte is not the same
+        ByteBuffer almost = content(1);
+        almost.put(CONTENT_SIZE - 1, (byte)0);
+        Texture last = texture(SIZE, 1);
+
+        assertSame("Nearly the same content shared",
+                   last,
+                   cache.register("d", last, almost));
+    }
+
+    /**
+     * Beyond the budget, the least recently used textures are let go.
+     */
+    public void testBudget() {
+        cache.setMaxSize(CONTENT_SIZE * 2);
+
+        Texture first = texture(SIZE, 1);
+        Texture second = texture(SIZE, 2);
+        Texture third = texture(SIZE, 3);
+
+        cache.register("a", first, content(1));
+        cache.register("b", second, content(2));
+
+        // Use the first again so the second is the least recently used
+        cache.register("a", texture(SIZE, 1), content(1));
+        cache.register("c", third, content(3));
+
+        assertEquals("Wrong eviction count", 1, cache.getEvictionCount());
+        assertEquals("Over budget", CONTENT_SIZE * 2, cache.getSize());
+        assertTrue("Recently used texture let go", isHeld(first));
+        assertFalse("Least recently used texture kept", isHeld(second));
+        assertTrue("New texture let go", isHeld(third));
+
+        // Still shared while something else holds it
+        assertSame("Let go texture not shared while in use",
+                   second,
+                   cache.register("b", texture(SIZE, 2), content(2)));
+        assertTrue("Used texture not held again", isHeld(second));
+
+        cache.setMaxSize(0);
+        assertEquals("Nothing should be held", 0, cache.getSize());
+        assertEquals("Wrong eviction count", 4, cache.getEvictionCount());
+    }
+
+    /**
+     * A texture shared by content stays until the last tag is released.
+     */
+    public void testRelease() {
+        Texture first = texture(SIZE, 1);
+
+        cache.register("a", first, content(1));
+        cache.register("b", texture(SIZE, 1), content(1));
+
+        cache.release("a", first);
+        assertEquals("Released while still tagged", CONTENT_SIZE, cache.getSize());
+        assertSame("Content lost while still tagged",
+                   first,
+                   cache.register("c", texture(SIZE, 1), content(1)));
+
+        cache.release("b", first);
+        cache.release("c", first);
+        assertEquals("Not released", 0, cache.getSize());
+
+        Texture next = texture(SIZE, 1);
+        assertSame("Released texture returned",
+                   next,
+                   cache.register("a", next, content(1)));
+
+        // Releasing an unknown texture is ignored
+        cache.release("x", first);
+        cache.release("a", texture(SIZE * 2, 1));
+        assertEquals("Wrong size after ignored release",
+                     CONTENT_SIZE,
+                     cache.getSize());
+    }
+
+    /**
+     * Check whether the cache is holding on to a texture within its budget.
+     */
+    private boolean isHeld(Texture tex) {
+        for(TextureCache.Entry e : cache.heldEntries.keySet()) {
+            if(e.texture == tex)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Create an RGB test texture.
+     *
+     * @param size The width and height
+     * @param fill The value of every byte of the image
+     */
+    private static Texture texture(int size, int fill) {
+        byte[] pixels = new byte[size * size * 3];
+        Arrays.fill(pixels, (byte)fill);
+
+        ByteTextureComponent2D img =
+            new ByteTextureComponent2D(TextureComponent.FORMAT_RGB,
+                                       size,
+                                       size,
+                                       pixels);
+
+        return new Texture2D(Texture.FORMAT_RGB, img);
+    }
+
+    /**
+     * Create the content of an RGB test texture.
+     *
+     * @param fill The value of every byte of the image
+     */
+    private static ByteBuffer content(int fill) {
+        ByteBuffer ret_val = ByteBuffer.allocate(CONTENT_SIZE);
+
+        for(int i = 0; i < CONTENT_SIZE; i++)
+            ret_val.put(i, (byte)fill);
+
+        return ret_val;
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,170 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.ecmascript;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.management.ManagementFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+// Local imports
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+
+/**
+ * Measures the memory allocated to deliver events to ECMAScript Script nodes
+ * in steady state.
+ * <p>
+ *
+ * Usage: <code>ScriptEventBenchmark [scripts [frames]]</code>. Each script
+ * is sent an SFFloat, an SFVec3f and an MFVec3f event every frame from
+ * interpolators. The same world is then run with the routes to the scripts
+ * removed, and the difference in bytes allocated by the stepping thread is
+ * reported per event. Run it with and without
+ * <code>-Dorg.web3d.vrml.scripting.ecmascript.reuseEventValues=true</code>
+ * to compare the pooled event values with new values for every event. The
+ * <code>config/xj3d.properties</code> resource must be on the classpath.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class ScriptEventBenchmark {
+
+    /** The number of events sent to each script per frame */
+    private static final int EVENTS_PER_FRAME = 3;
+
+    /** The number of frames run before measuring */
+    private static final int WARMUP_FRAMES = 2000;
+
+    /** Wall clock time given to the loaders to initialise the scripts */
+    private static final long LOAD_WAIT_MS = 3000;
+
+    /** The number of points in the MFVec3f events */
+    private static final int NUM_POINTS = 16;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args The number of scripts and frames to use
+     * @throws Exception The world could not be written or loaded
+     */
+    public static void main(String[] args) throws Exception {
+        int scripts = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        File routed = writeWorld(scripts, true);
+        File unrouted = writeWorld(scripts, false);
+
+        try {
+            double with_events = measure(routed, frames);
+            double without_events = measure(unrouted, frames);
+
+            double per_event =
+                (with_events - without_events) / (scripts * EVENTS_PER_FRAME);
+
+            System.out.println("Bytes per frame with events: " + (long)with_events);
+            System.out.println("Bytes per frame without events: " + (long)without_events);
+            System.out.println("Bytes per script event: " + Math.round(per_event));
+        } finally {
+            routed.delete();
+            unrouted.delete();
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Load a world, run it until the scripts are running and then return the
+     * average bytes allocated by this thread per frame.
+     */
+    private static double measure(File world, int frames) throws Exception {
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long thread_id = Thread.currentThread().getId();
+
+        NRHeadlessRunner runner = new NRHeadlessRunner();
+        runner.setTimeStep(10);
+        runner.loadWorld(world.toURI().toString());
+
+        long end = System.currentTimeMillis() + LOAD_WAIT_MS;
+        while(System.currentTimeMillis() < end) {
+            runner.step();
+            Thread.sleep(10);
+        }
+
+        for(int i = 0; i < WARMUP_FRAMES; i++)
+            runner.step();
+
+        long start_bytes = bean.getThreadAllocatedBytes(thread_id);
+        long start = System.nanoTime();
+
+        for(int i = 0; i < frames; i++)
+            runner.step();
+
+        long time = System.nanoTime() - start;
+        long bytes = bean.getThreadAllocatedBytes(thread_id) - start_bytes;
+
+        System.out.println(world.getName() + ": " + (time / 1000000) + "ms for " +
+                           frames + " frames");
+
+        return bytes / (double)frames;
+    }
+
+    /**
+     * Write the test world to a temporary file.
+     *
+     * @param scripts The number of Script nodes
+     * @param routed true to route the interpolators to the scripts
+     */
+    private static File writeWorld(int scripts, boolean routed) throws IOException {
+        StringBuilder buf = new StringBuilder("#X3D V3.0 utf8\nPROFILE Immersive\n");
+
+        buf.append("DEF T TimeSensor { loop TRUE cycleInterval 1 }\n");
+        buf.append("DEF P PositionInterpolator { key [ 0 1 ] keyValue [ 0 0 0, 1 2 3 ] }\n");
+        buf.append("DEF C CoordinateInterpolator { key [ 0 1 ] keyValue [");
+
+        for(int i = 0; i < NUM_POINTS * 2; i++)
+            buf.append(i).append(" 0 ").append(-i).append(", ");
+
+        buf.append("] }\n");
+        buf.append("ROUTE T.fraction_changed TO P.set_fraction\n");
+        buf.append("ROUTE T.fraction_changed TO C.set_fraction\n");
+
+        for(int i = 0; i < scripts; i++) {
+            buf.append("DEF S").append(i).append(" Script {\n");
+            buf.append(" inputOnly SFFloat set_fraction\n");
+            buf.append(" inputOnly SFVec3f set_position\n");
+            buf.append(" inputOnly MFVec3f set_points\n");
+            buf.append(" url \"ecmascript:\n");
+            buf.append("  function initialize() { sum = 0; }\n");
+            buf.append("  function set_fraction(f, t) { sum += f; }\n");
+            buf.append("  function set_position(v, t) { sum += v.x; }\n");
+            buf.append("  function set_points(v, t) { sum += v.length; }\n");
+            buf.append(" \"\n}\n");
+
+            if(routed) {
+                buf.append("ROUTE T.fraction_changed TO S").append(i).append(".set_fraction\n");
+                buf.append("ROUTE P.value_changed TO S").append(i).append(".set_position\n");
+                buf.append("ROUTE C.value_changed TO S").append(i).append(".set_points\n");
+            }
+        }
+
+        File ret_val = File.createTempFile(routed ? "routed" : "unrouted", ".x3dv");
+        Files.write(ret_val.toPath(), buf.toString().getBytes(StandardCharsets.UTF_8));
+
+        return ret_val;
+    }
+}
@@ -0,0 +1,276 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.ecmascript;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+
+import org.xj3d.core.loading.LoaderThreadPool;
+
+/**
+ * A test case to check that Script nodes sharing one compiled script still
+ * keep their own state, and that source which does not compile is reported
+ * for every node that uses it.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestCompiledScriptCache extends TestCase {
+
+    /** Script body shared by both counting scripts */
+    private static final String COUNT_SOURCE =
+        "  url \"ecmascript:\n" +
+        "    var count = 0;\n" +
+        "    function set_in(value, t) { count += step; out = count; }\n" +
+        "  \"\n";
+
+    /**
+     * Two scripts with the same source that count up by their own step
+     * every frame.
+     */
+    private static final String STATE_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF A Script {\n" +
+        "  initializeOnly SFInt32 step 1\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFInt32 out\n" +
+        COUNT_SOURCE +
+        "}\n" +
+        "DEF B Script {\n" +
+        "  initializeOnly SFInt32 step 100\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFInt32 out\n" +
+        COUNT_SOURCE +
+        "}\n" +
+        "ROUTE TS.fraction_changed TO A.set_in\n" +
+        "ROUTE TS.fraction_changed TO B.set_in\n";
+
+    /** Script body that does not compile */
+    private static final String BROKEN_SOURCE =
+        "  url \"ecmascript:\n" +
+        "    function set_in(value, t) { out = ; }\n" +
+        "  \"\n";
+
+    /** The error Rhino reports for the broken source */
+    private static final String SYNTAX_ERROR = "missing } after function body";
+
+    /** Two scripts with the same broken source */
+    private static final String BROKEN_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF A Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFInt32 out\n" +
+        BROKEN_SOURCE +
+        "}\n" +
+        "DEF B Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFInt32 out\n" +
+        BROKEN_SOURCE +
+        "}\n";
+
+    /**
+     * Reporter that records the errors reported.
+     */
+    private static class ErrorRecorder implements ErrorReporter {
+
+        /** The error messages */
+        final List<String> errors =
+            Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void partialReport(String msg) {
+        }
+
+        @Override
+        public void messageReport(String msg) {
+        }
+
+        @Override
+        public void warningReport(String msg, Throwable e) {
+        }
+
+        @Override
+        public void errorReport(String msg, Throwable e) {
+            errors.add(msg);
+        }
+
+        @Override
+        public void fatalErrorReport(String msg, Throwable e) {
+            errors.add(msg);
+        }
+    }
+
+    /** The number of frames to run */
+    private static final int NUM_FRAMES = 5;
+
+    /** The optimization level to run compiled scripts at */
+    private static final int COMPILED_LEVEL = 0;
+
+    /** The longest time to wait for the scripts to load, in milliseconds */
+    private static final long LOAD_TIMEOUT = 10000;
+
+    /** The world file */
+    private File worldFile;
+
+    /** The optimization level before the test */
+    private int startLevel;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestCompiledScriptCache(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestCompiledScriptCache("testSeparateState"));
+        suite.addTest(new TestCompiledScriptCache("testErrorForEveryNode"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        worldFile = File.createTempFile("xj3dcompiled", ".x3dv");
+        startLevel = CompiledScriptCache.getOptimizationLevel();
+        CompiledScriptCache.setOptimizationLevel(COMPILED_LEVEL);
+    }
+
+    @Override
+    public void tearDown() {
+        CompiledScriptCache.setOptimizationLevel(startLevel);
+        worldFile.delete();
+    }
+
+    /**
+     * Each script counts in its own scope, although both run the one
+     * compiled script.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testSeparateState() throws Exception {
+        assertTrue("Not compiling", CompiledScriptCache.isCompiling());
+
+        String out = runWorld(STATE_WORLD, null);
+
+        assertTrue("A lost its state:\n" + out,
+                   out.contains(",A.out," + NUM_FRAMES + "\n"));
+        assertTrue("B lost its state:\n" + out,
+                   out.contains(",B.out," + NUM_FRAMES * 100 + "\n"));
+    }
+
+    /**
+     * Source that does not compile is reported for each node using it, not
+     * just the first.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testErrorForEveryNode() throws Exception {
+        ErrorRecorder reporter = new ErrorRecorder();
+        runWorld(BROKEN_WORLD, reporter);
+
+        int reported = 0;
+        synchronized(reporter.errors) {
+            for(String msg : reporter.errors) {
+                if(msg.contains(SYNTAX_ERROR))
+                    reported++;
+            }
+        }
+
+        assertEquals("Syntax error not reported for each node " +
+                     reporter.errors,
+                     2,
+                     reported);
+    }
+
+    /**
+     * Load the world, wait for its scripts, then step it and record the
+     * outputs of both scripts.
+     *
+     * @param world The world source
+     * @param reporter The reporter for the runner, or null for the default
+     * @return The captured values of all frames
+     * @throws Exception The world could not be run
+     */
+    private String runWorld(String world, ErrorReporter reporter)
+        throws Exception {
+
+        Files.write(worldFile.toPath(), world.getBytes(StandardCharsets.UTF_8));
+
+        LoaderThreadPool pool = new LoaderThreadPool(null, 2);
+        NRHeadlessRunner runner = new NRHeadlessRunner(pool);
+
+        try {
+            if(reporter != null)
+                runner.setErrorReporter(reporter);
+
+            StringWriter out = new StringWriter();
+            runner.addFieldCapture("A", "out");
+            runner.addFieldCapture("B", "out");
+            runner.setCaptureOutput(out);
+            runner.loadWorld(worldFile.toURI().toString());
+
+            assertTrue("Content not loaded", runner.waitForLoads(LOAD_TIMEOUT));
+
+            runner.step();
+            out.getBuffer().setLength(0);
+
+            for(int i = 0; i < NUM_FRAMES; i++)
+                runner.step();
+
+            return out.toString();
+        } finally {
+            runner.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,448 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.ecmascript;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import org.mozilla.javascript.Scriptable;
+
+// Local imports
+import org.web3d.vrml.lang.FieldConstants;
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+import org.web3d.vrml.scripting.ecmascript.builtin.*;
+
+import org.xj3d.core.loading.LoaderThreadPool;
+
+/**
+ * A test case to check that the MF field objects reused for event values
+ * hold the same value as new ones would, as events shrink and grow them and
+ * as scripts replace their elements.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestEventValuePool extends TestCase {
+
+    /** The pooled MF types */
+    private static final int[] MF_TYPES = {
+        FieldConstants.MFCOLOR,
+        FieldConstants.MFROTATION,
+        FieldConstants.MFVEC2F,
+        FieldConstants.MFVEC3F
+    };
+
+    /** Element counts of the events sent, shrinking and growing */
+    private static final int[] EVENT_SIZES = { 3, 1, 4, 0, 2, 5 };
+
+    /**
+     * A script sending MF values of a different length each frame to a
+     * script that logs them. The logging script replaces some elements and
+     * grows the arrays it is given, then logs them again.
+     */
+    private static final String REUSE_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF GEN Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly MFColor color\n" +
+        "  outputOnly MFRotation rotation\n" +
+        "  outputOnly MFVec2f vec2\n" +
+        "  outputOnly MFVec3f vec3\n" +
+        "  url \"ecmascript:\n" +
+        "    var frame = 0;\n" +
+        "    function set_in(value, t) {\n" +
+        "      frame++;\n" +
+        "      var n = (frame * 2) % 5;\n" +
+        "      var c = new MFColor();\n" +
+        "      var r = new MFRotation();\n" +
+        "      var v2 = new MFVec2f();\n" +
+        "      var v3 = new MFVec3f();\n" +
+        "      for(var i = 0; i < n; i++) {\n" +
+        "        var f = (frame + i) / 10;\n" +
+        "        c[i] = new SFColor(f, 0.5, 1 - f);\n" +
+        "        r[i] = new SFRotation(0, 1, 0, f);\n" +
+        "        v2[i] = new SFVec2f(f, i);\n" +
+        "        v3[i] = new SFVec3f(i, f, frame);\n" +
+        "      }\n" +
+        "      color = c;\n" +
+        "      rotation = r;\n" +
+        "      vec2 = v2;\n" +
+        "      vec3 = v3;\n" +
+        "    }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF LOG Script {\n" +
+        "  inputOnly MFColor set_color\n" +
+        "  inputOnly MFRotation set_rotation\n" +
+        "  inputOnly MFVec2f set_vec2\n" +
+        "  inputOnly MFVec3f set_vec3\n" +
+        "  outputOnly SFString color\n" +
+        "  outputOnly SFString rotation\n" +
+        "  outputOnly SFString vec2\n" +
+        "  outputOnly SFString vec3\n" +
+        "  url \"ecmascript:\n" +
+        "    function describe(v) {\n" +
+        "      var s = v.length + ': ' + v.toString();\n" +
+        "      if(v.length > 1)\n" +
+        "        v[0] = v[v.length - 1];\n" +
+        "      var grown = v[v.length + 1];\n" +
+        "      return s + '| ' + v.length + ': ' + v.toString();\n" +
+        "    }\n" +
+        "    function set_color(v, t) { color = describe(v); }\n" +
+        "    function set_rotation(v, t) { rotation = describe(v); }\n" +
+        "    function set_vec2(v, t) { vec2 = describe(v); }\n" +
+        "    function set_vec3(v, t) { vec3 = describe(v); }\n" +
+        "  \"\n" +
+        "}\n" +
+        "ROUTE TS.fraction_changed TO GEN.set_in\n" +
+        "ROUTE GEN.color TO LOG.set_color\n" +
+        "ROUTE GEN.rotation TO LOG.set_rotation\n" +
+        "ROUTE GEN.vec2 TO LOG.set_vec2\n" +
+        "ROUTE GEN.vec3 TO LOG.set_vec3\n";
+
+    /** The fields of the logging script to capture */
+    private static final String[] LOG_FIELDS = {
+        "color", "rotation", "vec2", "vec3"
+    };
+
+    /** The number of frames to compare */
+    private static final int NUM_FRAMES = 10;
+
+    /** The longest time to wait for the scripts to load, in milliseconds */
+    private static final long LOAD_TIMEOUT = 10000;
+
+    /** The world file */
+    private File worldFile;
+
+    /** Whether values were reused before the test */
+    private boolean startReuse;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestEventValuePool(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestEventValuePool("testShrinkAndGrow"));
+        suite.addTest(new TestEventValuePool("testReplacedElements"));
+        suite.addTest(new TestEventValuePool("testSameOutput"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        worldFile = File.createTempFile("xj3dvalues", ".x3dv");
+        startReuse = EventValuePool.isReusingValues();
+        EventValuePool.setReuseValues(true);
+    }
+
+    @Override
+    public void tearDown() {
+        EventValuePool.setReuseValues(startReuse);
+        worldFile.delete();
+    }
+
+    /**
+     * One field object is kept for each field and holds exactly each new
+     * value, whether it has more or fewer elements than the last.
+     */
+    public void testShrinkAndGrow() {
+        for(int type : MF_TYPES) {
+            EventValuePool pool = EventValuePool.create();
+            Object first = null;
+
+            for(int i = 0; i < EVENT_SIZES.length; i++) {
+                float[] value = values(type, EVENT_SIZES[i], i);
+                Object field =
+                    pool.getValue(type, "set_value", value, value.length);
+
+                if(first == null)
+                    first = field;
+
+                assertSame("Field object not reused for " + type, first, field);
+                assertValue("Event " + i + " of " + type, type, value, field);
+            }
+        }
+    }
+
+    /**
+     * Elements the script put in an array are its own, so the next event
+     * does not write over them, and the array holds just the new value.
+     */
+    public void testReplacedElements() {
+        for(int type : MF_TYPES) {
+            EventValuePool pool = EventValuePool.create();
+
+            float[] value = values(type, 3, 0);
+            Scriptable field =
+                (Scriptable)pool.getValue(type, "set_value", value, value.length);
+
+            // As for v[1] = new SFVec3f(...) and v[5] in a script
+            float[] replaced_value = values(type, 1, 9);
+            Scriptable replaced = element(type, replaced_value);
+            field.put(1, field, replaced);
+            field.get(5, field);
+
+            value = values(type, 2, 1);
+            Object next =
+                pool.getValue(type, "set_value", value, value.length);
+
+            assertSame("Field object not reused for " + type, field, next);
+            assertValue("After replace of " + type, type, value, next);
+            assertNotSame("Replaced element reused for " + type,
+                          replaced,
+                          field.get(1, field));
+            assertTrue("Replaced element changed for " + type,
+                       Arrays.equals(replaced_value,
+                                     elementData(type, replaced)));
+
+            // And the elements after that are reused again
+            Object element = field.get(0, field);
+            value = values(type, 2, 2);
+            pool.getValue(type, "set_value", value, value.length);
+
+            assertSame("Element not reused for " + type,
+                       element,
+                       field.get(0, field));
+            assertValue("After reuse of " + type, type, value, field);
+        }
+    }
+
+    /**
+     * A script that reads, changes and grows the arrays it is sent logs the
+     * same values whether the field objects are reused or not.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testSameOutput() throws Exception {
+        Files.write(worldFile.toPath(),
+                    REUSE_WORLD.getBytes(StandardCharsets.UTF_8));
+
+        EventValuePool.setReuseValues(false);
+        String[] fresh = runWorld();
+
+        EventValuePool.setReuseValues(true);
+        String[] reused = runWorld();
+
+        String last = fresh[NUM_FRAMES - 1];
+        for(String field : LOG_FIELDS)
+            assertTrue("Nothing logged for " + field + ": " + last,
+                       last.contains("LOG." + field));
+
+        for(int i = 0; i < NUM_FRAMES; i++)
+            assertEquals("Frame " + i + " differs", fresh[i], reused[i]);
+    }
+
+    /**
+     * Load the world, wait for its scripts, then step it and record the
+     * logged values each frame.
+     *
+     * @return The captured values of each frame
+     * @throws Exception The world could not be run
+     */
+    private String[] runWorld() throws Exception {
+        LoaderThreadPool pool = new LoaderThreadPool(null, 1);
+        NRHeadlessRunner runner = new NRHeadlessRunner(pool);
+
+        try {
+            StringWriter out = new StringWriter();
+            for(String field : LOG_FIELDS)
+                runner.addFieldCapture("LOG", field);
+
+            runner.setCaptureOutput(out);
+            runner.loadWorld(worldFile.toURI().toString());
+
+            assertTrue("Content not loaded", runner.waitForLoads(LOAD_TIMEOUT));
+
+            runner.step();
+
+            String[] ret_val = new String[NUM_FRAMES];
+
+            for(int i = 0; i < NUM_FRAMES; i++) {
+                out.getBuffer().setLength(0);
+                runner.step();
+
+                // Drop the time so only the values are compared
+                ret_val[i] = out.toString().replaceAll("(?m)^[^,]*,", "");
+            }
+
+            return ret_val;
+        } finally {
+            runner.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Check that a field object holds the given value.
+     */
+    private static void assertValue(String msg,
+                                    int type,
+                                    float[] expected,
+                                    Object field) {
+        int size = elementSize(type);
+        Scriptable s = (Scriptable)field;
+
+        assertEquals(msg + " wrong length",
+                     expected.length / size,
+                     ((Number)s.get("length", s)).intValue());
+
+        assertTrue(msg + " wrong raw data",
+                   Arrays.equals(expected, rawData(field)));
+
+        for(int i = 0; i < expected.length / size; i++) {
+            float[] element = Arrays.copyOfRange(expected,
+                                                 i * size,
+                                                 (i + 1) * size);
+
+            assertTrue(msg + " wrong element " + i,
+                       Arrays.equals(element,
+                                     elementData(type, s.get(i, s))));
+        }
+    }
+
+    /**
+     * Create the flat data of an event value.
+     *
+     * @param type The field type
+     * @param count The number of elements
+     * @param base A number making this value differ from others
+     */
+    private static float[] values(int type, int count, int base) {
+        int size = elementSize(type);
+        float[] ret_val = new float[count * size];
+
+        for(int i = 0; i < count; i++) {
+            for(int j = 0; j < size; j++)
+                ret_val[i * size + j] = (base * 10 + i + j) / 100f;
+
+            // Keep rotation axes normalised
+            if(type == FieldConstants.MFROTATION) {
+                ret_val[i * size] = 0;
+                ret_val[i * size + 1] = 1;
+                ret_val[i * size + 2] = 0;
+            }
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * The number of floats in each element of the field type.
+     */
+    private static int elementSize(int type) {
+        switch(type) {
+            case FieldConstants.MFROTATION:
+                return 4;
+
+            case FieldConstants.MFVEC2F:
+                return 2;
+
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Create a single element of the field type.
+     */
+    private static Scriptable element(int type, float[] value) {
+        switch(type) {
+            case FieldConstants.MFCOLOR:
+                return new SFColor(value);
+
+            case FieldConstants.MFROTATION:
+                return new SFRotation(value);
+
+            case FieldConstants.MFVEC2F:
+                return new SFVec2f(value);
+
+            default:
+                return new SFVec3f(value);
+        }
+    }
+
+    /**
+     * Fetch the value of a single element of the field type.
+     */
+    private static float[] elementData(int type, Object element) {
+        float[] ret_val = new float[elementSize(type)];
+
+        switch(type) {
+            case FieldConstants.MFCOLOR:
+                ((SFColor)element).getRawData(ret_val);
+                break;
+
+            case FieldConstants.MFROTATION:
+                ((SFRotation)element).getRawData(ret_val);
+                break;
+
+            case FieldConstants.MFVEC2F:
+                ((SFVec2f)element).getRawData(ret_val);
+                break;
+
+            default:
+                ((SFVec3f)element).getRawData(ret_val);
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Fetch the flat data of an MF field object.
+     */
+    private static float[] rawData(Object field) {
+        if(field instanceof MFColor)
+            return ((MFColor)field).getRawData();
+        else if(field instanceof MFRotation)
+            return ((MFRotation)field).getRawData();
+        else if(field instanceof MFVec2f)
+            return ((MFVec2f)field).getRawData();
+        else
+            return ((MFVec3f)field).getRawData();
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
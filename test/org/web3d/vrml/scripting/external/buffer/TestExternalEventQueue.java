@@ -0,0 +1,376 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.buffer;
+
+// External imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import vrml.eai.field.EventIn;
+
+/**
+ * A test case to check the coalescing and bounded modes of the external
+ * event queue.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestExternalEventQueue extends TestCase {
+
+    /**
+     * A field event. Events for the same node and field are equal, as the
+     * real EventIn classes are.
+     */
+    private class FieldEvent extends EventIn implements ExternalEvent {
+
+        /** The node the event is for */
+        private final String node;
+
+        /** The field the event is for */
+        private final String field;
+
+        /** The value sent */
+        private final String value;
+
+        /** True for a set1Value event */
+        private final boolean set1Value;
+
+        FieldEvent(String node, String field, String value, boolean set1) {
+            super(SFFloat);
+
+            this.node = node;
+            this.field = field;
+            this.value = value;
+            set1Value = set1;
+        }
+
+        @Override
+        public void doEvent() {
+            log.add(node + "." + field + "=" + value);
+        }
+
+        @Override
+        public boolean isConglomerating() {
+            return set1Value;
+        }
+
+        @Override
+        public void setUserData(Object data) {
+        }
+
+        @Override
+        public Object getUserData() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof FieldEvent))
+                return false;
+
+            FieldEvent e = (FieldEvent)o;
+            return node.equals(e.node) && field.equals(e.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return node.hashCode() * 31 + field.hashCode();
+        }
+    }
+
+    /**
+     * An event that is not for a field, such as adding a route or realizing
+     * a node.
+     */
+    private class BrowserEvent implements ExternalEvent {
+
+        /** The name logged for the event */
+        private final String name;
+
+        BrowserEvent(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void doEvent() {
+            log.add(name);
+        }
+
+        @Override
+        public boolean isConglomerating() {
+            return false;
+        }
+    }
+
+    /** Time to wait for another thread, in milliseconds */
+    private static final int THREAD_TIMEOUT = 5000;
+
+    /** The events run by the queue, in order */
+    private List<String> log;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestExternalEventQueue(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestExternalEventQueue("testLastSetValueWins"));
+        suite.addTest(new TestExternalEventQueue("testSet1ValueNotCoalesced"));
+        suite.addTest(new TestExternalEventQueue("testBrowserEventsAreBarriers"));
+        suite.addTest(new TestExternalEventQueue("testDropPolicy"));
+        suite.addTest(new TestExternalEventQueue("testBlockedProducerReleased"));
+        suite.addTest(new TestExternalEventQueue("testEventThreadNeverBlocks"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() {
+        log = new ArrayList<>();
+    }
+
+    /**
+     * Only the last setValue for each node and field is run, in the place of
+     * the first one, so the other fields keep their order.
+     */
+    public void testLastSetValueWins() {
+        ExternalEventQueue queue = createQueue(0, ExternalEventQueue.OVERFLOW_BLOCK);
+
+        queue.processEvent(setValue("A", "x", "1"));
+        queue.processEvent(setValue("B", "y", "1"));
+        queue.processEvent(setValue("A", "x", "2"));
+        queue.processEvent(setValue("A", "z", "1"));
+        queue.processEvent(setValue("C", "x", "1"));
+        queue.processEvent(setValue("A", "x", "3"));
+
+        assertEquals("Wrong depth", 6, queue.getQueueDepth());
+
+        queue.processEvents();
+
+        assertLog("A.x=3", "B.y=1", "A.z=1", "C.x=1");
+        assertEquals("Wrong coalesced count", 2, queue.getCoalescedCount());
+        assertEquals("Events left behind", 0, queue.getQueueDepth());
+
+        // Nothing is carried over to the next frame
+        log.clear();
+        queue.processEvent(setValue("A", "x", "4"));
+        queue.processEvents();
+
+        assertLog("A.x=4");
+    }
+
+    /**
+     * set1Value events are never merged, and a setValue after one is not
+     * moved in front of it.
+     */
+    public void testSet1ValueNotCoalesced() {
+        ExternalEventQueue queue = createQueue(0, ExternalEventQueue.OVERFLOW_BLOCK);
+
+        queue.processEvent(setValue("A", "x", "1"));
+        queue.processEvent(set1Value("A", "x", "[0]5"));
+        queue.processEvent(set1Value("A", "x", "[0]6"));
+        queue.processEvent(setValue("A", "x", "2"));
+        queue.processEvent(setValue("A", "x", "3"));
+        queue.processEvents();
+
+        assertLog("A.x=1", "A.x=[0]5", "A.x=[0]6", "A.x=3");
+        assertEquals("Wrong coalesced count", 1, queue.getCoalescedCount());
+    }
+
+    /**
+     * Field events are never moved past a route or realization event in
+     * either direction.
+     */
+    public void testBrowserEventsAreBarriers() {
+        ExternalEventQueue queue = createQueue(0, ExternalEventQueue.OVERFLOW_BLOCK);
+
+        queue.processEvent(setValue("A", "x", "1"));
+        queue.processEvent(setValue("A", "x", "2"));
+        queue.processEvent(new BrowserEvent("addRoute"));
+        queue.processEvent(setValue("A", "x", "3"));
+        queue.processEvent(setValue("B", "y", "1"));
+        queue.processEvent(new BrowserEvent("realize"));
+        queue.processEvent(setValue("B", "y", "2"));
+        queue.processEvent(setValue("A", "x", "4"));
+        queue.processEvent(setValue("B", "y", "3"));
+        queue.processEvents();
+
+        assertLog("A.x=2",
+                  "addRoute",
+                  "A.x=3",
+                  "B.y=1",
+                  "realize",
+                  "B.y=3",
+                  "A.x=4");
+        assertEquals("Wrong coalesced count", 2, queue.getCoalescedCount());
+    }
+
+    /**
+     * With the drop policy, events posted to a full queue are discarded and
+     * counted.
+     */
+    public void testDropPolicy() {
+        ExternalEventQueue queue = createQueue(2, ExternalEventQueue.OVERFLOW_DROP);
+
+        queue.processEvent(setValue("A", "x", "1"));
+        queue.processEvent(setValue("B", "x", "1"));
+        queue.processEvent(setValue("C", "x", "1"));
+        queue.processEvent(new BrowserEvent("addRoute"));
+
+        assertEquals("Wrong dropped count", 2, queue.getDroppedCount());
+        assertEquals("Wrong depth", 2, queue.getQueueDepth());
+
+        queue.processEvents();
+
+        assertLog("A.x=1", "B.x=1");
+        assertEquals("Wrong dropped count", 2, queue.getDroppedCount());
+    }
+
+    /**
+     * With the block policy, a producer posting to a full queue waits until
+     * the events are processed.
+     *
+     * @throws Exception The producer could not be waited for
+     */
+    public void testBlockedProducerReleased() throws Exception {
+        final ExternalEventQueue queue =
+            createQueue(1, ExternalEventQueue.OVERFLOW_BLOCK);
+
+        Thread producer = new Thread(() -> {
+            queue.processEvent(setValue("A", "x", "1"));
+            queue.processEvent(setValue("B", "x", "1"));
+        });
+
+        producer.start();
+
+        long end = System.currentTimeMillis() + THREAD_TIMEOUT;
+        while(producer.getState() != Thread.State.WAITING &&
+              System.currentTimeMillis() < end)
+            Thread.sleep(10);
+
+        assertEquals("Producer not blocked",
+                     Thread.State.WAITING,
+                     producer.getState());
+        assertEquals("Wrong depth", 1, queue.getQueueDepth());
+
+        queue.processEvents();
+
+        producer.join(THREAD_TIMEOUT);
+        assertFalse("Producer not released", producer.isAlive());
+
+        queue.processEvents();
+
+        assertLog("A.x=1", "B.x=1");
+        assertEquals("Events dropped", 0, queue.getDroppedCount());
+    }
+
+    /**
+     * The thread that processes the events is never made to wait, even when
+     * the queue is full, as only it can empty the queue.
+     *
+     * @throws Exception The event thread could not be waited for
+     */
+    public void testEventThreadNeverBlocks() throws Exception {
+        final ExternalEventQueue queue =
+            createQueue(1, ExternalEventQueue.OVERFLOW_BLOCK);
+
+        Thread event_thread = new Thread(() -> {
+            queue.processEvents();
+
+            queue.processEvent(setValue("A", "x", "1"));
+            queue.processEvent(setValue("B", "x", "1"));
+            queue.processEvent(new BrowserEvent("addRoute"));
+        });
+
+        event_thread.start();
+        event_thread.join(THREAD_TIMEOUT);
+
+        if(event_thread.isAlive()) {
+            // Let the thread go before failing
+            queue.clear();
+            fail("Event thread blocked on a full queue");
+        }
+
+        assertEquals("Wrong depth", 3, queue.getQueueDepth());
+        assertEquals("Events dropped", 0, queue.getDroppedCount());
+
+        queue.processEvents();
+
+        assertLog("A.x=1", "B.x=1", "addRoute");
+    }
+
+    /**
+     * Create a coalescing queue.
+     *
+     * @param capacity The capacity, or 0 for no limit
+     * @param overflow The overflow policy
+     * @return A new queue
+     */
+    private ExternalEventQueue createQueue(int capacity, int overflow) {
+        ExternalEventQueue queue =
+            new ExternalEventQueue(null, true, capacity, overflow);
+
+        assertTrue("Queue not coalescing", queue.isCoalescing());
+
+        return queue;
+    }
+
+    /**
+     * Create a setValue event.
+     */
+    private FieldEvent setValue(String node, String field, String value) {
+        return new FieldEvent(node, field, value, false);
+    }
+
+    /**
+     * Create a set1Value event.
+     */
+    private FieldEvent set1Value(String node, String field, String value) {
+        return new FieldEvent(node, field, value, true);
+    }
+
+    /**
+     * Check the events the queue ran.
+     *
+     * @param expected The logged events, in order
+     */
+    private void assertLog(String... expected) {
+        assertEquals("Wrong events", Arrays.asList(expected), log);
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
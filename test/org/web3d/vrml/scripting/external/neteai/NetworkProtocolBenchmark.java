@@ -0,0 +1,311 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import vrml.eai.Browser;
+import vrml.eai.Node;
+import vrml.eai.event.VrmlEvent;
+import vrml.eai.event.VrmlEventListener;
+import vrml.eai.field.EventInMFFloat;
+import vrml.eai.field.EventInSFVec3f;
+import vrml.eai.field.EventOut;
+
+// Local imports
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+
+/**
+ * Compares the normal and batched network EAI protocols over loopback.
+ * <p>
+ *
+ * Usage: <code>NetworkProtocolBenchmark [clients [fields [points]]]</code>.
+ * A headless world is served with both protocols at once. The latency test
+ * times a beginUpdate/endUpdate pair that sets one field and then one that
+ * sets the given number of fields, plus a large MFFloat with one changed
+ * value. The throughput test connects the given number of clients, each
+ * listening to a Coordinate of the given number of points of which only a
+ * few move, and times how long it takes to run the frames and deliver every
+ * change to every client. The logging of both protocols is turned off while
+ * measuring.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class NetworkProtocolBenchmark {
+
+    /** The number of updates timed for each latency test */
+    private static final int LATENCY_UPDATES = 200;
+
+    /** The number of updates run before timing */
+    private static final int WARMUP_UPDATES = 50;
+
+    /** The number of frames run for the throughput test */
+    private static final int FRAMES = 500;
+
+    /** The number of coordinates that move during the animation */
+    private static final int MOVING_POINTS = 8;
+
+    /** The number of values in the MFFloat that is set */
+    private static final int MF_SIZE = 1000;
+
+    /** The longest time to wait for the clients to catch up */
+    private static final long RECEIVE_TIMEOUT_MS = 120000;
+
+    /**
+     * Counts the events delivered to a client.
+     */
+    private static class EventCounter implements VrmlEventListener {
+
+        /** The number of events received */
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void eventOutChanged(VrmlEvent evt) {
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args The number of clients, fields and points to use
+     * @throws Exception The world could not be written or served
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int fields = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int points = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        File world = writeWorld(fields, points);
+        PrintStream results = System.out;
+
+        try {
+            NRHeadlessRunner runner = new NRHeadlessRunner();
+            runner.setTimeStep(10);
+            runner.loadWorld(world.toURI().toString());
+            runner.step();
+
+            InetAddress loopback = InetAddress.getLoopbackAddress();
+
+            ServerSocket socket = new ServerSocket(0, 50, loopback);
+            new NetworkBrowserServer(socket,
+                                     runner.getCore(),
+                                     null,
+                                     runner.getClock());
+
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(loopback, 0));
+            new NetworkBrowserServer(channel,
+                                     runner.getCore(),
+                                     null,
+                                     runner.getClock());
+
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            }));
+
+            int[] ports = { socket.getLocalPort(), channel.socket().getLocalPort() };
+            String[] names = { "normal", "batched" };
+
+            for(int i = 0; i < 2; i++) {
+                Browser[] browsers = new Browser[clients];
+
+                for(int j = 0; j < clients; j++)
+                    browsers[j] = new NetworkBrowserClient(loopback, ports[i], i == 1);
+
+                results.println(names[i] + " protocol:");
+
+                double one = measureLatency(browsers[0], 1);
+                double many = measureLatency(browsers[0], fields);
+                double mf = measureMFLatency(browsers[0]);
+
+                results.println("  1 field update: " + format(one) + " us");
+                results.println("  " + fields + " field update: " + format(many) + " us");
+                results.println("  " + MF_SIZE + " value MFFloat update: " +
+                                format(mf) + " us");
+
+                long time = measureThroughput(runner, browsers);
+
+                results.println("  " + FRAMES + " frames of " + points +
+                                " points to " + clients + " clients: " +
+                                (time / 1000000) + " ms, " +
+                                format(FRAMES * 1e9 / time) + " frames/s");
+            }
+        } finally {
+            System.setOut(results);
+            world.delete();
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Time updates that each set a number of SFVec3f fields.
+     *
+     * @return The average time of an update in microseconds
+     */
+    private static double measureLatency(Browser browser, int numFields) {
+        EventInSFVec3f[] inputs = new EventInSFVec3f[numFields];
+
+        for(int i = 0; i < numFields; i++) {
+            Node node = browser.getNode("X" + i);
+            inputs[i] = (EventInSFVec3f)node.getEventIn("set_translation");
+        }
+
+        float[] value = new float[3];
+        long start = 0;
+
+        for(int i = 0; i < WARMUP_UPDATES + LATENCY_UPDATES; i++) {
+            if(i == WARMUP_UPDATES)
+                start = System.nanoTime();
+
+            value[0] = i;
+
+            browser.beginUpdate();
+
+            for(int j = 0; j < numFields; j++)
+                inputs[j].setValue(value);
+
+            browser.endUpdate();
+        }
+
+        return (System.nanoTime() - start) / (LATENCY_UPDATES * 1000.0);
+    }
+
+    /**
+     * Time updates that set a large MFFloat with one value changed.
+     *
+     * @return The average time of an update in microseconds
+     */
+    private static double measureMFLatency(Browser browser) {
+        Node node = browser.getNode("S");
+        EventInMFFloat input = (EventInMFFloat)node.getEventIn("set_key");
+
+        float[] value = new float[MF_SIZE];
+        for(int i = 0; i < MF_SIZE; i++)
+            value[i] = i;
+
+        long start = 0;
+
+        for(int i = 0; i < WARMUP_UPDATES + LATENCY_UPDATES; i++) {
+            if(i == WARMUP_UPDATES)
+                start = System.nanoTime();
+
+            value[MF_SIZE - 1] = MF_SIZE + i;
+
+            browser.beginUpdate();
+            input.setValue(value);
+            browser.endUpdate();
+        }
+
+        return (System.nanoTime() - start) / (LATENCY_UPDATES * 1000.0);
+    }
+
+    /**
+     * Run frames with every client listening to the moving coordinates.
+     *
+     * @return The time taken to run the frames and deliver every change
+     */
+    private static long measureThroughput(NRHeadlessRunner runner,
+                                          Browser[] browsers)
+        throws InterruptedException {
+
+        EventCounter[] counters = new EventCounter[browsers.length];
+        EventOut[] outputs = new EventOut[browsers.length];
+
+        for(int i = 0; i < browsers.length; i++) {
+            counters[i] = new EventCounter();
+            outputs[i] = browsers[i].getNode("OUT").getEventOut("point_changed");
+            outputs[i].addVrmlEventListener(counters[i]);
+        }
+
+        // One extra frame so that the batched protocol sends the last one
+        long start = System.nanoTime();
+
+        for(int i = 0; i <= FRAMES; i++)
+            runner.step();
+
+        long end = System.currentTimeMillis() + RECEIVE_TIMEOUT_MS;
+
+        for(EventCounter counter : counters) {
+            while(counter.count.get() < FRAMES &&
+                  System.currentTimeMillis() < end)
+                Thread.sleep(1);
+        }
+
+        long ret_val = System.nanoTime() - start;
+
+        for(int i = 0; i < browsers.length; i++)
+            outputs[i].removeVrmlEventListener(counters[i]);
+
+        return ret_val;
+    }
+
+    /**
+     * Format a number to one decimal place.
+     */
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 10) / 10.0);
+    }
+
+    /**
+     * Write the test world to a temporary file.
+     *
+     * @param fields The number of Transforms to set
+     * @param points The number of points in the animated Coordinate
+     */
+    private static File writeWorld(int fields, int points) throws IOException {
+        StringBuilder buf = new StringBuilder("#X3D V3.0 utf8\nPROFILE Immersive\n");
+
+        buf.append("DEF T TimeSensor { loop TRUE cycleInterval 1 }\n");
+        buf.append("DEF CI CoordinateInterpolator { key [ 0 1 ] keyValue [");
+
+        for(int key = 0; key < 2; key++) {
+            for(int i = 0; i < points; i++) {
+                int offset = (key == 1 && i < MOVING_POINTS) ? 10 : 0;
+                buf.append(i).append(' ').append(offset).append(" 0, ");
+            }
+        }
+
+        buf.append("] }\n");
+        buf.append("Shape { geometry PointSet { coord DEF OUT Coordinate { } } }\n");
+        buf.append("DEF S ScalarInterpolator { }\n");
+        buf.append("ROUTE T.fraction_changed TO CI.set_fraction\n");
+        buf.append("ROUTE CI.value_changed TO OUT.set_point\n");
+
+        for(int i = 0; i < fields; i++)
+            buf.append("DEF X").append(i).append(" Transform { }\n");
+
+        File ret_val = File.createTempFile("neteai", ".x3dv");
+        Files.write(ret_val.toPath(), buf.toString().getBytes(StandardCharsets.UTF_8));
+
+        return ret_val;
+    }
+}
@@ -0,0 +1,303 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+// None
+
+/**
+ * A test case to check that field values written by one delta codec are
+ * read back unchanged by another.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestFieldDeltaCodec extends TestCase {
+
+    /** Field ID used for most tests */
+    private static final int FIELD_ID = 7;
+
+    /** Number of floats in the test values */
+    private static final int NUM_FLOATS = 300;
+
+    /** The codec writing values */
+    private FieldDeltaCodec writer;
+
+    /** The codec reading values */
+    private FieldDeltaCodec reader;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestFieldDeltaCodec(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestFieldDeltaCodec("testFullValue"));
+        suite.addTest(new TestFieldDeltaCodec("testSameLengthDelta"));
+        suite.addTest(new TestFieldDeltaCodec("testLengthChange"));
+        suite.addTest(new TestFieldDeltaCodec("testDeltaWithoutBase"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() {
+        writer = new FieldDeltaCodec();
+        reader = new FieldDeltaCodec();
+    }
+
+    /**
+     * The first value of a field, and any value that is not whole words, is
+     * sent in full.
+     *
+     * @throws Exception The value could not be encoded or decoded
+     */
+    public void testFullValue() throws Exception {
+        byte[] value = floats(0);
+        byte[] encoded = encode(FIELD_ID, value);
+
+        assertEquals("First value not full",
+                     NetworkProtocolConstants.VALUE_FULL,
+                     encoded[0]);
+        assertEquals("Wrong full size", value.length + 5, encoded.length);
+        assertRoundTrip(FIELD_ID, value, encoded);
+
+        byte[] odd = { 1, 2, 3, 4, 5, 6 };
+        encoded = encode(FIELD_ID + 1, odd);
+        assertRoundTrip(FIELD_ID + 1, odd, encoded);
+
+        odd = new byte[] { 1, 2, 9, 4, 5, 6 };
+        encoded = encode(FIELD_ID + 1, odd);
+        assertEquals("Partial word value not full",
+                     NetworkProtocolConstants.VALUE_FULL,
+                     encoded[0]);
+        assertRoundTrip(FIELD_ID + 1, odd, encoded);
+    }
+
+    /**
+     * A value of the same length as the last one is sent as the changed
+     * words only, whether nothing, a few or scattered values change.
+     *
+     * @throws Exception The value could not be encoded or decoded
+     */
+    public void testSameLengthDelta() throws Exception {
+        byte[] value = floats(0);
+        assertRoundTrip(FIELD_ID, value, encode(FIELD_ID, value));
+
+        // Unchanged
+        byte[] encoded = encode(FIELD_ID, value);
+        assertEquals("Unchanged value not a delta",
+                     NetworkProtocolConstants.VALUE_DELTA,
+                     encoded[0]);
+        assertRoundTrip(FIELD_ID, value, encoded);
+
+        // A few values, two of them close enough to share a run
+        value = floats(0, 10, 12, 299);
+        encoded = encode(FIELD_ID, value);
+        assertEquals("Small change not a delta",
+                     NetworkProtocolConstants.VALUE_DELTA,
+                     encoded[0]);
+        assertTrue("Delta not smaller: " + encoded.length,
+                   encoded.length < value.length / 4);
+        assertRoundTrip(FIELD_ID, value, encoded);
+
+        // Back to the first value, which needs the latest value as the base
+        value = floats(0);
+        assertRoundTrip(FIELD_ID, value, encode(FIELD_ID, value));
+
+        // Everything changed is cheaper sent in full
+        value = floats(1);
+        encoded = encode(FIELD_ID, value);
+        assertEquals("Full change not full",
+                     NetworkProtocolConstants.VALUE_FULL,
+                     encoded[0]);
+        assertRoundTrip(FIELD_ID, value, encoded);
+    }
+
+    /**
+     * A value of a different length is sent in full and becomes the base
+     * for the next delta.
+     *
+     * @throws Exception The value could not be encoded or decoded
+     */
+    public void testLengthChange() throws Exception {
+        byte[] value = floats(0);
+        assertRoundTrip(FIELD_ID, value, encode(FIELD_ID, value));
+
+        value = Arrays.copyOf(value, value.length + 12);
+        byte[] encoded = encode(FIELD_ID, value);
+        assertEquals("Longer value not full",
+                     NetworkProtocolConstants.VALUE_FULL,
+                     encoded[0]);
+        assertRoundTrip(FIELD_ID, value, encoded);
+
+        value = Arrays.copyOf(value, 8);
+        assertRoundTrip(FIELD_ID, value, encode(FIELD_ID, value));
+
+        value = floats(0, 5);
+        assertRoundTrip(FIELD_ID, value, encode(FIELD_ID, value));
+
+        value = floats(0, 5, 6);
+        encoded = encode(FIELD_ID, value);
+        assertEquals("Delta after length change not used",
+                     NetworkProtocolConstants.VALUE_DELTA,
+                     encoded[0]);
+        assertRoundTrip(FIELD_ID, value, encoded);
+    }
+
+    /**
+     * A delta the reader has no matching previous value for is an error,
+     * not a silently wrong value.
+     *
+     * @throws Exception The value could not be encoded
+     */
+    public void testDeltaWithoutBase() throws Exception {
+        encode(FIELD_ID, floats(0));
+        byte[] delta = encode(FIELD_ID, floats(0, 3));
+
+        assertEquals("Not a delta",
+                     NetworkProtocolConstants.VALUE_DELTA,
+                     delta[0]);
+
+        assertDecodeFails("No previous value", FIELD_ID, delta);
+
+        // A base for another field doesn't count either
+        reader.readValue(FIELD_ID + 1, stream(encodeWith(new FieldDeltaCodec(),
+                                                         FIELD_ID + 1,
+                                                         floats(0))));
+        assertDecodeFails("Other field used", FIELD_ID, delta);
+
+        // Nor does one of another length
+        byte[] short_value = Arrays.copyOf(floats(0), 16);
+        reader.readValue(FIELD_ID, stream(encodeWith(new FieldDeltaCodec(),
+                                                     FIELD_ID,
+                                                     short_value)));
+        assertDecodeFails("Different length used", FIELD_ID, delta);
+    }
+
+    /**
+     * Check that decoding a value throws an IOException.
+     */
+    private void assertDecodeFails(String msg, int fieldID, byte[] encoded) {
+        try {
+            reader.readValue(fieldID, stream(encoded));
+            fail(msg);
+        } catch(IOException ioe) {
+            // Expected
+        }
+    }
+
+    /**
+     * Decode a value and check it matches what was written.
+     */
+    private void assertRoundTrip(int fieldID, byte[] expected, byte[] encoded)
+        throws IOException {
+
+        DataInputStream in = stream(encoded);
+        byte[] decoded = reader.readValue(fieldID, in);
+
+        assertTrue("Value changed in round trip",
+                   Arrays.equals(expected, decoded));
+        assertEquals("Encoded value not all read", 0, in.available());
+    }
+
+    /**
+     * Encode a value with the test writer.
+     */
+    private byte[] encode(int fieldID, byte[] value) throws IOException {
+        return encodeWith(writer, fieldID, value);
+    }
+
+    /**
+     * Encode a value with the given codec.
+     */
+    private static byte[] encodeWith(FieldDeltaCodec codec,
+                                     int fieldID,
+                                     byte[] value)
+        throws IOException {
+
+        FrameBuffer buf = new FrameBuffer(64);
+        DataOutputStream out = new DataOutputStream(buf);
+
+        codec.writeValue(fieldID, value, value.length, out);
+        out.flush();
+
+        return buf.toByteArray();
+    }
+
+    /**
+     * Create a stream to read encoded data from.
+     */
+    private static DataInputStream stream(byte[] data) {
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Create the network encoding of an MFFloat value.
+     *
+     * @param base Added to every value
+     * @param changed Indices of the values to make different
+     * @return The encoded value
+     */
+    private static byte[] floats(int base, int... changed) throws IOException {
+        float[] data = new float[NUM_FLOATS];
+        for(int i = 0; i < NUM_FLOATS; i++)
+            data[i] = i + base;
+
+        for(int i = 0; i < changed.length; i++)
+            data[changed[i]] = -data[changed[i]] - 1;
+
+        FrameBuffer buf = new FrameBuffer(NUM_FLOATS * 4 + 4);
+        DataOutputStream out = new DataOutputStream(buf);
+
+        out.writeInt(NUM_FLOATS);
+        for(int i = 0; i < NUM_FLOATS; i++)
+            out.writeFloat(data[i]);
+
+        out.flush();
+
+        return buf.toByteArray();
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,201 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.web3d.vrml.scripting.external.neteai;
+
+// External imports
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import java.nio.ByteBuffer;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+// None
+
+/**
+ * A test case to check that frames built in a frame buffer are read back
+ * with the right length and data.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestFrameBuffer extends TestCase {
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestFrameBuffer(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestFrameBuffer("testToFrame"));
+        suite.addTest(new TestFrameBuffer("testWriteFrame"));
+        suite.addTest(new TestFrameBuffer("testGrowAndReset"));
+        suite.addTest(new TestFrameBuffer("testEncodedValues"));
+
+        return suite;
+    }
+
+    /**
+     * The frame holds the length followed by the data, ready to write.
+     */
+    public void testToFrame() {
+        FrameBuffer buf = new FrameBuffer(16);
+        byte[] data = bytes(10);
+        buf.write(data, 0, data.length);
+
+        ByteBuffer frame = buf.toFrame();
+
+        assertEquals("Frame not ready to write", 0, frame.position());
+        assertEquals("Wrong frame size", data.length + 4, frame.remaining());
+        assertEquals("Wrong frame length", data.length, frame.getInt());
+
+        byte[] read = new byte[frame.remaining()];
+        frame.get(read);
+        assertTrue("Wrong frame data", Arrays.equals(data, read));
+
+        // An empty frame is just the length
+        frame = new FrameBuffer(16).toFrame();
+        assertEquals("Wrong empty frame size", 4, frame.remaining());
+        assertEquals("Wrong empty frame length", 0, frame.getInt());
+    }
+
+    /**
+     * Writing a frame to a stream gives the same bytes as building it.
+     *
+     * @throws Exception The frame could not be written
+     */
+    public void testWriteFrame() throws Exception {
+        FrameBuffer buf = new FrameBuffer(16);
+        byte[] data = bytes(300);
+        buf.write(data, 0, data.length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buf.writeFrame(out);
+        byte[] written = out.toByteArray();
+
+        ByteBuffer frame = buf.toFrame();
+        byte[] built = new byte[frame.remaining()];
+        frame.get(built);
+
+        assertTrue("Written frame differs", Arrays.equals(built, written));
+
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(written));
+        assertEquals("Wrong frame length", data.length, in.readInt());
+    }
+
+    /**
+     * The buffer grows past its starting size, and reset leaves it ready to
+     * build the next frame.
+     */
+    public void testGrowAndReset() {
+        FrameBuffer buf = new FrameBuffer(4);
+        byte[] data = bytes(1000);
+        buf.write(data, 0, data.length);
+
+        assertEquals("Wrong size", data.length, buf.size());
+        assertTrue("Buffer not grown", buf.getBuffer().length >= data.length);
+        assertTrue("Wrong buffer contents",
+                   Arrays.equals(data,
+                                 Arrays.copyOf(buf.getBuffer(), buf.size())));
+
+        buf.reset();
+        byte[] next = { 9, 8, 7 };
+        buf.write(next, 0, next.length);
+
+        ByteBuffer frame = buf.toFrame();
+        assertEquals("Old data kept", next.length, frame.getInt());
+        assertEquals("Wrong data after reset", 9, frame.get());
+    }
+
+    /**
+     * Field values encoded into a frame are all read back from it.
+     *
+     * @throws Exception The values could not be encoded or decoded
+     */
+    public void testEncodedValues() throws Exception {
+        FieldDeltaCodec writer = new FieldDeltaCodec();
+        FieldDeltaCodec reader = new FieldDeltaCodec();
+
+        byte[] first = bytes(400);
+        byte[] second = first.clone();
+        second[101] = -1;
+
+        FrameBuffer buf = new FrameBuffer(64);
+        DataOutputStream out = new DataOutputStream(buf);
+
+        out.writeInt(2);
+        out.writeInt(1);
+        writer.writeValue(1, first, first.length, out);
+        out.writeInt(1);
+        writer.writeValue(1, second, second.length, out);
+        out.flush();
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        buf.writeFrame(wire);
+
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(wire.toByteArray()));
+
+        assertEquals("Wrong frame length", buf.size(), in.readInt());
+        assertEquals("Wrong value count", 2, in.readInt());
+
+        assertEquals("Wrong field", 1, in.readInt());
+        assertTrue("First value differs",
+                   Arrays.equals(first, reader.readValue(1, in)));
+
+        assertEquals("Wrong field", 1, in.readInt());
+        assertTrue("Second value differs",
+                   Arrays.equals(second, reader.readValue(1, in)));
+
+        assertEquals("Frame not all read", 0, in.available());
+    }
+
+    /**
+     * Create some test data.
+     */
+    private static byte[] bytes(int length) {
+        byte[] ret_val = new byte[length];
+        for(int i = 0; i < length; i++)
+            ret_val[i] = (byte)(i * 7);
+
+        return ret_val;
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
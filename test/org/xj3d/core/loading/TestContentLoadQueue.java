@@ -0,0 +1,251 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.core.loading;
+
+// External imports
+import java.util.Vector;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import org.j3d.util.ErrorReporter;
+
+// Local imports
+// None
+
+/**
+ * A test case to check the ordering, merging and cancellation of the
+ * ContentLoadQueue.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestContentLoadQueue extends TestCase {
+
+    /** Handler that does nothing, for the queue to carry around */
+    private static class NullHandler implements LoadRequestHandler {
+        @Override
+        public void processLoadRequest(ErrorReporter reporter,
+                                       String[] url,
+                                       Vector<LoadDetails> loadList) {
+        }
+
+        @Override
+        public void abortCurrentFile() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    /** Details that are only equal to themselves */
+    private static class TestDetails extends LoadDetails {
+        @Override
+        public boolean equals(Object o) {
+            return o == this;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    /** Handler shared by all requests */
+    private LoadRequestHandler handler;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestContentLoadQueue(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestContentLoadQueue("testPriorityOrder"));
+        suite.addTest(new TestContentLoadQueue("testMerge"));
+        suite.addTest(new TestContentLoadQueue("testCancel"));
+        suite.addTest(new TestContentLoadQueue("testResort"));
+        suite.addTest(new TestContentLoadQueue("testPurge"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() {
+        handler = new NullHandler();
+        System.clearProperty(LoadConstants.SORT_ORDER_PROP);
+    }
+
+    @Override
+    public void tearDown() {
+        System.clearProperty(LoadConstants.SORT_ORDER_PROP);
+    }
+
+    /**
+     * Check that requests come out by type priority, and in the order they
+     * were added within a type.
+     */
+    public void testPriorityOrder() {
+        ContentLoadQueue queue = new ContentLoadQueue();
+
+        queue.add(LoadConstants.SORT_INLINE, urls("b.x3d"), handler,
+                  new TestDetails());
+        queue.add(LoadConstants.SORT_INLINE, urls("a.x3d"), handler,
+                  new TestDetails());
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler,
+                  new TestDetails());
+        queue.add(LoadConstants.SORT_LOAD_URL, urls("w.x3d"), handler,
+                  new TestDetails());
+
+        assertEquals("Wrong queue size", 4, queue.size());
+        assertEquals("Wrong inline depth", 2,
+                     queue.size(LoadConstants.SORT_INLINE));
+
+        assertEquals("loadURL not first", "w.x3d", queue.getNext().url[0]);
+        assertEquals("Texture not second", "t.png", queue.getNext().url[0]);
+        assertEquals("Inlines out of order", "b.x3d", queue.getNext().url[0]);
+        assertEquals("Inlines out of order", "a.x3d", queue.getNext().url[0]);
+
+        assertEquals("Queue not empty", 0, queue.size());
+        assertEquals("Wrong served count", 4, queue.getServedCount());
+        assertTrue("Negative wait time", queue.getAverageWaitTime() >= 0);
+    }
+
+    /**
+     * Check that requests for the same URL are merged into one.
+     */
+    public void testMerge() {
+        ContentLoadQueue queue = new ContentLoadQueue();
+        LoadDetails d1 = new TestDetails();
+        LoadDetails d2 = new TestDetails();
+
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler, d1);
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler, d2);
+
+        assertEquals("Requests not merged", 1, queue.size());
+        assertEquals("Wrong added count", 1, queue.getAddedCount());
+
+        LoadRequest req = queue.getNext();
+        assertEquals("Details not merged", 2, req.loadList.size());
+
+        // Once taken, a new request for the same URL is separate
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler,
+                  new TestDetails());
+
+        assertEquals("Taken request reused", 1, queue.size());
+        assertEquals("Taken request changed", 2, req.loadList.size());
+    }
+
+    /**
+     * Check that removing all the details of a request cancels it.
+     */
+    public void testCancel() {
+        ContentLoadQueue queue = new ContentLoadQueue();
+        LoadDetails d1 = new TestDetails();
+        LoadDetails d2 = new TestDetails();
+        LoadDetails d3 = new TestDetails();
+
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler, d1);
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler, d2);
+        queue.add(LoadConstants.SORT_INLINE, urls("i.x3d"), handler, d3);
+
+        queue.remove(urls("t.png"), d1);
+        assertEquals("Request cancelled too early", 2, queue.size());
+
+        queue.remove(urls("t.png"), d2);
+        assertEquals("Request not cancelled", 1, queue.size());
+        assertEquals("Wrong cancelled count", 1, queue.getCancelledCount());
+
+        assertEquals("Cancelled request served", "i.x3d",
+                     queue.getNext().url[0]);
+        assertEquals("Queue not empty", 0, queue.size());
+    }
+
+    /**
+     * Check that a resort changes the order of waiting requests.
+     */
+    public void testResort() {
+        ContentLoadQueue queue = new ContentLoadQueue();
+
+        queue.add(LoadConstants.SORT_INLINE, urls("i.x3d"), handler,
+                  new TestDetails());
+        queue.add(LoadConstants.SORT_TEXTURE, urls("t.png"), handler,
+                  new TestDetails());
+
+        System.setProperty(LoadConstants.SORT_ORDER_PROP,
+                           LoadConstants.SORT_INLINE + ',' +
+                           LoadConstants.SORT_TEXTURE);
+        queue.requestResort();
+
+        assertEquals("Resort ignored", "i.x3d", queue.getNext().url[0]);
+        assertEquals("Resort lost request", "t.png", queue.getNext().url[0]);
+    }
+
+    /**
+     * Check that a purge releases a blocked thread with null.
+     *
+     * @throws InterruptedException The test was interrupted
+     */
+    public void testPurge() throws InterruptedException {
+        final ContentLoadQueue queue = new ContentLoadQueue();
+        final LoadRequest[] result = { new LoadRequest() };
+
+        Thread th = new Thread(() -> {
+            result[0] = queue.getNext();
+        });
+
+        th.start();
+
+        // Give the thread a chance to block
+        while(th.getState() != Thread.State.WAITING && th.isAlive())
+            Thread.yield();
+
+        queue.purge();
+        th.join(5000);
+
+        assertFalse("Thread still blocked", th.isAlive());
+        assertNull("Purge returned a request", result[0]);
+    }
+
+    /**
+     * Convenience method to make a URL list.
+     *
+     * @param url The single URL
+     * @return The list holding the URL
+     */
+    private static String[] urls(String url) {
+        return new String[] { url };
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
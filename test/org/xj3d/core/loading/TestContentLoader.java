@@ -15,12 +15,20 @@ package org.xj3d.core.loading;
 // External imports
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 
+import org.j3d.util.ErrorReporter;
+
 // Local imports
 // None
 
@@ -51,6 +59,10 @@ public class TestContentLoader extends TestCase {
     public static Test suite() {
         TestSuite suite = new TestSuite();
         suite.addTest(new TestContentLoader("testThreads"));
+        suite.addTest(new TestContentLoader("testElastic"));
+        suite.addTest(new TestContentLoader("testElasticHeld"));
+        suite.addTest(new TestContentLoader("testElasticFallbackHosts"));
+        suite.addTest(new TestContentLoader("testRestartGroup"));
 
         return suite;
     }
@@ -83,6 +95,259 @@ public class TestContentLoader extends TestCase {
         assertFalse("Loader thread is still active", loader.isAlive());
     }
 
+    /**
+     * Test that an independent pool whose thread group was destroyed
+     * restarts its threads in a new group and says which one.
+     *
+     * @throws InterruptedException The test was interrupted
+     */
+    public void testRestartGroup() throws InterruptedException {
+        ThreadGroup tg = new ThreadGroup("TestContentLoader restart group");
+        LoaderThreadPool pool = new LoaderThreadPool(tg, 2);
+
+        final ThreadGroup[] moved = new ThreadGroup[2];
+        pool.setThreadGroupListener((oldGroup, newGroup) -> {
+            moved[0] = oldGroup;
+            moved[1] = newGroup;
+        });
+
+        pool.shutdown();
+
+        long end = System.currentTimeMillis() + 5000;
+        while(tg.activeCount() > 0 && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+
+        tg.destroy();
+        pool.restartThreads();
+
+        try {
+            assertSame("Listener not given the old group", tg, moved[0]);
+            assertNotNull("Listener not told", moved[1]);
+            assertNotSame("Destroyed group reused", tg, moved[1]);
+            assertEquals("Threads not started in the new group",
+                         2,
+                         moved[1].activeCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that the elastic loader processes everything it is given, with
+     * no more than the host limit in flight against one host.
+     *
+     * @throws InterruptedException The test was interrupted
+     */
+    public void testElastic() throws InterruptedException {
+        Map<String[], LoadRequest> progress_map = new ConcurrentHashMap<>();
+        ContentLoadQueue queue = new ContentLoadQueue();
+        ThreadGroup tg = new ThreadGroup("TestContentLoader elastic group");
+
+        final int num_remote = 12;
+        final int num_local = 4;
+        final int host_limit = 2;
+
+        final CountDownLatch done = new CountDownLatch(num_remote + num_local);
+        final AtomicInteger host_active = new AtomicInteger();
+        final AtomicInteger host_max = new AtomicInteger();
+
+        LoadRequestHandler handler = new LoadRequestHandler() {
+            @Override
+            public void processLoadRequest(ErrorReporter reporter,
+                                           String[] url,
+                                           Vector<LoadDetails> loadList) {
+                boolean remote = url[0].startsWith("http:");
+
+                if(remote) {
+                    int active = host_active.incrementAndGet();
+                    host_max.accumulateAndGet(active, Math::max);
+                }
+
+                try {
+                    Thread.sleep(10);
+                } catch(InterruptedException ie) {
+                }
+
+                if(remote)
+                    host_active.decrementAndGet();
+
+                done.countDown();
+            }
+
+            @Override
+            public void abortCurrentFile() {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        ElasticContentLoader loader =
+            new ElasticContentLoader(tg, queue, progress_map, 8, 1, host_limit);
+
+        for(int i = 0; i < num_remote; i++) {
+            String[] url = { "http://www.example.com/tex" + i + ".png" };
+            queue.add(LoadConstants.SORT_TEXTURE, url, handler, new LoadDetails());
+        }
+
+        for(int i = 0; i < num_local; i++) {
+            String[] url = { "file:/tmp/world" + i + ".x3d" };
+            queue.add(LoadConstants.SORT_INLINE, url, handler, new LoadDetails());
+        }
+
+        assertTrue("Not all requests processed", done.await(10, TimeUnit.SECONDS));
+        assertTrue("Host limit exceeded", host_max.get() <= host_limit);
+
+        loader.shutdown();
+        queue.purge();
+
+        while (loader.isAlive()) {
+            Thread.yield();
+        }
+
+        assertFalse("Dispatcher thread is still active", loader.isAlive());
+    }
+
+    /**
+     * Test that requests held back by the host limit are still in the
+     * progress map, where they can be joined and cancelled, and that a
+     * cancelled request is not loaded once the host is free.
+     *
+     * @throws InterruptedException The test was interrupted
+     */
+    public void testElasticHeld() throws InterruptedException {
+        Map<String[], LoadRequest> progress_map = new ConcurrentHashMap<>();
+        ContentLoadQueue queue = new ContentLoadQueue();
+        ThreadGroup tg = new ThreadGroup("TestContentLoader held group");
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final Set<String> loaded = ConcurrentHashMap.newKeySet();
+
+        LoadRequestHandler handler = new LoadRequestHandler() {
+            @Override
+            public void processLoadRequest(ErrorReporter reporter,
+                                           String[] url,
+                                           Vector<LoadDetails> loadList) {
+                loaded.add(url[0]);
+                started.countDown();
+
+                try {
+                    blocked.await(10, TimeUnit.SECONDS);
+                } catch(InterruptedException ie) {
+                }
+            }
+
+            @Override
+            public void abortCurrentFile() {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        ElasticContentLoader loader =
+            new ElasticContentLoader(tg, queue, progress_map, 8, 1, 1);
+
+        String[] first = { "http://www.example.com/first.png" };
+        String[] kept = { "http://www.example.com/kept.png" };
+        String[] cancelled = { "http://www.example.com/cancelled.png" };
+
+        queue.add(LoadConstants.SORT_TEXTURE, first, handler, new LoadDetails());
+        assertTrue("First request not started", started.await(10, TimeUnit.SECONDS));
+
+        queue.add(LoadConstants.SORT_TEXTURE, kept, handler, new LoadDetails());
+        queue.add(LoadConstants.SORT_TEXTURE, cancelled, handler, new LoadDetails());
+
+        long end = System.currentTimeMillis() + 10000;
+        while(progress_map.size() < 3 && System.currentTimeMillis() < end)
+            Thread.sleep(5);
+
+        assertEquals("Held requests not in progress", 3, progress_map.size());
+        assertEquals("Wrong number of requests in flight", 1, loader.getActiveCount());
+
+        // Cancel the same way the load managers do
+        progress_map.get(cancelled).loadList.clear();
+
+        blocked.countDown();
+
+        end = System.currentTimeMillis() + 10000;
+        while(!progress_map.isEmpty() && System.currentTimeMillis() < end)
+            Thread.sleep(5);
+
+        assertTrue("Requests left in progress", progress_map.isEmpty());
+        assertTrue("Held request not loaded", loaded.contains(kept[0]));
+        assertFalse("Cancelled request loaded", loaded.contains(cancelled[0]));
+
+        loader.shutdown();
+        queue.purge();
+    }
+
+    /**
+     * Test that a request counts against the hosts of all its URLs, as it
+     * may fall back to any of them.
+     *
+     * @throws InterruptedException The test was interrupted
+     */
+    public void testElasticFallbackHosts() throws InterruptedException {
+        Map<String[], LoadRequest> progress_map = new ConcurrentHashMap<>();
+        ContentLoadQueue queue = new ContentLoadQueue();
+        ThreadGroup tg = new ThreadGroup("TestContentLoader fallback group");
+
+        final int num_requests = 6;
+
+        final CountDownLatch done = new CountDownLatch(num_requests);
+        final AtomicInteger mirror_active = new AtomicInteger();
+        final AtomicInteger mirror_max = new AtomicInteger();
+
+        LoadRequestHandler handler = new LoadRequestHandler() {
+            @Override
+            public void processLoadRequest(ErrorReporter reporter,
+                                           String[] url,
+                                           Vector<LoadDetails> loadList) {
+                int active = mirror_active.incrementAndGet();
+                mirror_max.accumulateAndGet(active, Math::max);
+
+                try {
+                    Thread.sleep(10);
+                } catch(InterruptedException ie) {
+                }
+
+                mirror_active.decrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void abortCurrentFile() {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        ElasticContentLoader loader =
+            new ElasticContentLoader(tg, queue, progress_map, 8, 1, 1);
+
+        // Every request may end up at the mirror, whatever its first host
+        for(int i = 0; i < num_requests; i++) {
+            String[] url = {
+                "http://host" + i + ".example.com/tex.png",
+                "http://mirror.example.com/tex" + i + ".png"
+            };
+
+            queue.add(LoadConstants.SORT_TEXTURE, url, handler, new LoadDetails());
+        }
+
+        assertTrue("Not all requests processed", done.await(10, TimeUnit.SECONDS));
+        assertEquals("Fallback host limit exceeded", 1, mirror_max.get());
+
+        loader.shutdown();
+        queue.purge();
+    }
+
     /**
      * Main method to kick everything off with.
      * @param argv
@@ -0,0 +1,267 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+
+import org.xj3d.core.eventmodel.RouteStatistics;
+import org.xj3d.core.eventmodel.RouterFactory;
+import org.xj3d.core.loading.LoaderThreadPool;
+
+/**
+ * A test case to check that the dirty list router fires the same routes, and
+ * so produces the same field values, as the lists router on a world with a
+ * cascade of routes through several scripts.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestDirtyListRouter extends TestCase {
+
+    /** A time sensor driving a chain of scripts, with a fan out */
+    private static final String WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF SI ScalarInterpolator { key [ 0 1 ] keyValue [ 0 10 ] }\n" +
+        "DEF S1 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v + 1; }\"\n" +
+        "}\n" +
+        "DEF S2 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v * 2; }\"\n" +
+        "}\n" +
+        "DEF S3 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v - 3; }\"\n" +
+        "}\n" +
+        "DEF SI2 ScalarInterpolator { key [ 0 100 ] keyValue [ 0 100 ] }\n" +
+        "DEF PI PositionInterpolator { key [ 0 1 ] keyValue [ 0 0 0 1 2 3 ] }\n" +
+        "DEF T Transform { }\n" +
+        "ROUTE TS.fraction_changed TO SI.set_fraction\n" +
+        "ROUTE TS.fraction_changed TO PI.set_fraction\n" +
+        "ROUTE PI.value_changed TO T.set_translation\n" +
+        "ROUTE SI.value_changed TO S1.set_in\n" +
+        "ROUTE S1.out TO S2.set_in\n" +
+        "ROUTE S2.out TO S3.set_in\n" +
+        "ROUTE S3.out TO SI2.set_fraction\n";
+
+    /** An inlined world that animates a node and exports it */
+    private static final String INLINED_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF SI ScalarInterpolator { key [ 0 1 ] keyValue [ 0 10 ] }\n" +
+        "ROUTE TS.fraction_changed TO SI.set_fraction\n" +
+        "EXPORT SI AS VALUE\n";
+
+    /** A world that routes from a node imported from an inline */
+    private static final String IMPORT_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF IN Inline { url \"%s\" }\n" +
+        "IMPORT IN.VALUE AS IV\n" +
+        "DEF S1 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v + 1; }\"\n" +
+        "}\n" +
+        "DEF SI2 ScalarInterpolator { key [ 0 100 ] keyValue [ 0 100 ] }\n" +
+        "ROUTE IV.value_changed TO S1.set_in\n" +
+        "ROUTE S1.out TO SI2.set_fraction\n";
+
+    /** The DEF and field names captured from the world */
+    private static final String[][] CAPTURES = {
+        { "S3", "out" },
+        { "SI2", "value_changed" },
+        { "T", "translation" }
+    };
+
+    /** The DEF and field names captured from the import world */
+    private static final String[][] IMPORT_CAPTURES = {
+        { "S1", "out" },
+        { "SI2", "value_changed" }
+    };
+
+    /** The number of frames to run */
+    private static final int NUM_FRAMES = 20;
+
+    /** The longest time to wait for the scripts to load, in milliseconds */
+    private static final long LOAD_TIMEOUT = 10000;
+
+    /** The world file */
+    private File worldFile;
+
+    /** The world file that imports from an inline */
+    private File importFile;
+
+    /** The world inlined by the import world */
+    private File inlinedFile;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestDirtyListRouter(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestDirtyListRouter("testSameAsListsRouter"));
+        suite.addTest(new TestDirtyListRouter("testImportedNode"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        worldFile = File.createTempFile("xj3droute", ".x3dv");
+        Files.write(worldFile.toPath(), WORLD.getBytes(StandardCharsets.UTF_8));
+
+        inlinedFile = File.createTempFile("xj3dinline", ".x3dv");
+        Files.write(inlinedFile.toPath(),
+                    INLINED_WORLD.getBytes(StandardCharsets.UTF_8));
+
+        String world =
+            String.format(IMPORT_WORLD, inlinedFile.toURI().toString());
+
+        importFile = File.createTempFile("xj3dimport", ".x3dv");
+        Files.write(importFile.toPath(), world.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void tearDown() {
+        worldFile.delete();
+        importFile.delete();
+        inlinedFile.delete();
+    }
+
+    /**
+     * Run the world with both routers and compare the routes fired and the
+     * captured values frame by frame. The first frame is left out, as the
+     * one pass made when the world starts may leave a route for the next
+     * frame with one router and not the other.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testSameAsListsRouter() throws Exception {
+        String[] lists = runWorld(new ListsRouterFactory(), worldFile, CAPTURES);
+        String[] dirty = runWorld(new DirtyListRouterFactory(), worldFile, CAPTURES);
+
+        assertTrue("Scripts never ran", lists[NUM_FRAMES - 1].contains("S3.out"));
+
+        for(int i = 1; i < NUM_FRAMES; i++)
+            assertEquals("Frame " + i + " differs", lists[i], dirty[i]);
+    }
+
+    /**
+     * Run a world with a ROUTE from a node imported from an inline through
+     * both routers, and compare them as for the plain world.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testImportedNode() throws Exception {
+        String[] lists =
+            runWorld(new ListsRouterFactory(), importFile, IMPORT_CAPTURES);
+        String[] dirty =
+            runWorld(new DirtyListRouterFactory(), importFile, IMPORT_CAPTURES);
+
+        assertTrue("Imported node never routed",
+                   lists[NUM_FRAMES - 1].contains("SI2.value_changed"));
+
+        for(int i = 1; i < NUM_FRAMES; i++)
+            assertEquals("Frame " + i + " differs", lists[i], dirty[i]);
+    }
+
+    /**
+     * Load the world, wait for its scripts, then step it and record each
+     * frame.
+     *
+     * @param fac The factory for the routers to use
+     * @param world The world to run
+     * @param captures The DEF and field name of each field to capture
+     * @return One line per frame, with the routes fired and captured values
+     * @throws Exception The world could not be run
+     */
+    private String[] runWorld(RouterFactory fac, File world, String[][] captures)
+        throws Exception {
+
+        LoaderThreadPool pool = new LoaderThreadPool(null, 1);
+        NRHeadlessRunner runner = new NRHeadlessRunner(pool, fac);
+
+        try {
+            StringWriter out = new StringWriter();
+
+            for(String[] capture : captures)
+                runner.addFieldCapture(capture[0], capture[1]);
+
+            runner.setCaptureOutput(out);
+            runner.loadWorld(world.toURI().toString());
+
+            assertTrue("Content not loaded", runner.waitForLoads(LOAD_TIMEOUT));
+
+            RouteStatistics stats =
+                (RouteStatistics)runner.getEventModel().getRouteManager();
+            String[] ret_val = new String[NUM_FRAMES];
+
+            // Statistics are for the last complete frame, so one step late
+            runner.step();
+
+            for(int i = 0; i < NUM_FRAMES; i++) {
+                out.getBuffer().setLength(0);
+                runner.step();
+                ret_val[i] = stats.getRoutesFired() + " " + out;
+            }
+
+            return ret_val;
+        } finally {
+            runner.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,365 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.vrml.lang.ComponentInfo;
+import org.web3d.vrml.lang.TypeConstants;
+import org.web3d.vrml.nodes.VRMLClock;
+import org.web3d.vrml.nodes.VRMLNodeType;
+
+import org.xj3d.core.eventmodel.ConcurrentNodeManager;
+import org.xj3d.core.eventmodel.NodeManager;
+
+/**
+ * A test case to check how the node manager scheduler sorts managers into
+ * levels, and that each level runs all of its managers.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestNodeManagerScheduler extends TestCase {
+
+    /**
+     * A manager that only declares the types it manages and counts how many
+     * times it was run.
+     */
+    private static class StubManager implements NodeManager {
+
+        /** The managed types */
+        private final int[] managed;
+
+        /** Number of times executed */
+        final AtomicInteger runs = new AtomicInteger();
+
+        StubManager(int... managed) {
+            this.managed = managed;
+        }
+
+        @Override
+        public void setErrorReporter(ErrorReporter reporter) {
+        }
+
+        @Override
+        public ComponentInfo[] getSupportedComponents() {
+            return new ComponentInfo[0];
+        }
+
+        @Override
+        public void setVRMLClock(VRMLClock clk) {
+        }
+
+        @Override
+        public int[] getManagedNodeTypes() {
+            return managed;
+        }
+
+        @Override
+        public boolean evaluatePreEventModel() {
+            return true;
+        }
+
+        @Override
+        public boolean evaluatePostEventModel() {
+            return false;
+        }
+
+        @Override
+        public void addManagedNode(VRMLNodeType node) {
+        }
+
+        @Override
+        public void removeManagedNode(VRMLNodeType node) {
+        }
+
+        @Override
+        public void executePreEventModel(long time) {
+            runs.incrementAndGet();
+        }
+
+        @Override
+        public void executePostEventModel(long time) {
+        }
+
+        @Override
+        public void resetTimeZero() {
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public boolean initialize() {
+            return true;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    /**
+     * A stub manager that also declares the other types it reads and writes.
+     */
+    private static class StubConcurrentManager extends StubManager
+        implements ConcurrentNodeManager {
+
+        /** The other types read */
+        private final int[] read;
+
+        /** The other types written */
+        private final int[] written;
+
+        StubConcurrentManager(int[] managed, int[] read, int[] written) {
+            super(managed);
+            this.read = read;
+            this.written = written;
+        }
+
+        @Override
+        public int[] getReadNodeTypes() {
+            return read;
+        }
+
+        @Override
+        public int[] getWrittenNodeTypes() {
+            return written;
+        }
+    }
+
+    /** Empty list of types */
+    private static final int[] NONE = new int[0];
+
+    /** The pool to run levels on */
+    private ForkJoinPool pool;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestNodeManagerScheduler(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestNodeManagerScheduler("testIndependentManagers"));
+        suite.addTest(new TestNodeManagerScheduler("testPlainManagerConflicts"));
+        suite.addTest(new TestNodeManagerScheduler("testHumanoidWriters"));
+        suite.addTest(new TestNodeManagerScheduler("testReadAfterWrite"));
+        suite.addTest(new TestNodeManagerScheduler("testSceneGraphWriters"));
+        suite.addTest(new TestNodeManagerScheduler("testExecuteRunsAll"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @Override
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Managers with no types in common all go in the first level.
+     */
+    public void testIndependentManagers() {
+        NodeManager[] mgrs = {
+            new DefaultHumanoidManager(),
+            concurrent(TypeConstants.ParticleSystemNodeType, NONE, NONE),
+            concurrent(TypeConstants.TextureNodeType, NONE, NONE)
+        };
+
+        NodeManagerScheduler sched = new NodeManagerScheduler(pool, mgrs, 3, true);
+
+        assertEquals("Wrong level count", 1, sched.getNumLevels());
+        for(int i = 0; i < mgrs.length; i++)
+            assertEquals("Wrong level for " + i, 0, sched.getLevel(i));
+    }
+
+    /**
+     * A manager that does not implement ConcurrentNodeManager can't say what
+     * it touches, so it conflicts with everything before and after it, even
+     * managers of unrelated types.
+     */
+    public void testPlainManagerConflicts() {
+        NodeManager[] mgrs = {
+            concurrent(TypeConstants.TextureNodeType, NONE, NONE),
+            new StubManager(TypeConstants.ParticleSystemNodeType),
+            concurrent(TypeConstants.HumanoidNodeType, NONE, NONE),
+            concurrent(TypeConstants.Texture3DNodeType, NONE, NONE)
+        };
+
+        NodeManagerScheduler sched = new NodeManagerScheduler(pool, mgrs, 4, true);
+
+        assertEquals("Wrong level count", 3, sched.getNumLevels());
+        assertEquals("First manager", 0, sched.getLevel(0));
+        assertEquals("Plain manager not after first", 1, sched.getLevel(1));
+        assertEquals("Third manager not after plain", 2, sched.getLevel(2));
+        assertEquals("Independent managers split", 2, sched.getLevel(3));
+
+        // Two plain managers of different types still conflict.
+        mgrs = new NodeManager[] {
+            new StubManager(TypeConstants.TextureNodeType),
+            new StubManager(TypeConstants.ParticleSystemNodeType)
+        };
+
+        sched = new NodeManagerScheduler(pool, mgrs, 2, true);
+        assertEquals("Plain managers ran together", 2, sched.getNumLevels());
+    }
+
+    /**
+     * The humanoid manager writes Coordinate and Normal nodes, so a manager
+     * that manages or writes either type runs after it when registered after
+     * it, and before it when registered before it.
+     */
+    public void testHumanoidWriters() {
+        int[] normal = { TypeConstants.NormalNodeType };
+
+        NodeManager[] mgrs = {
+            new DefaultHumanoidManager(),
+            concurrent(TypeConstants.CoordinateNodeType, NONE, NONE),
+            concurrent(TypeConstants.TextureNodeType, NONE, normal),
+            concurrent(TypeConstants.ParticleSystemNodeType, NONE, NONE)
+        };
+
+        NodeManagerScheduler sched = new NodeManagerScheduler(pool, mgrs, 4, true);
+
+        assertEquals("Humanoid level", 0, sched.getLevel(0));
+        assertTrue("Coordinate manager not serialised",
+                   sched.getLevel(1) > sched.getLevel(0));
+        assertTrue("Normal writer not serialised",
+                   sched.getLevel(2) > sched.getLevel(0));
+        assertEquals("Independent manager not parallel to humanoid",
+                     0,
+                     sched.getLevel(3));
+
+        mgrs = new NodeManager[] {
+            concurrent(TypeConstants.TextureNodeType, NONE, normal),
+            new DefaultHumanoidManager()
+        };
+
+        sched = new NodeManagerScheduler(pool, mgrs, 2, true);
+        assertEquals("Registration order not kept", 0, sched.getLevel(0));
+        assertEquals("Registration order not kept", 1, sched.getLevel(1));
+    }
+
+    /**
+     * A manager that reads a type another manager writes is serialised, but
+     * two readers of the same type are not.
+     */
+    public void testReadAfterWrite() {
+        int[] coord = { TypeConstants.CoordinateNodeType };
+
+        NodeManager[] mgrs = {
+            concurrent(TypeConstants.TextureNodeType, coord, NONE),
+            concurrent(TypeConstants.Texture3DNodeType, coord, NONE),
+            new DefaultHumanoidManager()
+        };
+
+        NodeManagerScheduler sched = new NodeManagerScheduler(pool, mgrs, 3, true);
+
+        assertEquals("Readers split", 0, sched.getLevel(0));
+        assertEquals("Readers split", 0, sched.getLevel(1));
+        assertEquals("Writer not after readers", 1, sched.getLevel(2));
+        assertEquals("Wrong level count", 2, sched.getNumLevels());
+    }
+
+    /**
+     * The humanoid, particle system and rigid body managers all call into
+     * the rendering API, so no two of them share a level, while a manager
+     * that leaves the scene graph alone still runs alongside them. The
+     * physics manager needs the native ODE libraries, so a stub that
+     * declares the same types stands in for it.
+     */
+    public void testSceneGraphWriters() {
+        int[] scene_graph = { ConcurrentNodeManager.SCENE_GRAPH_TYPE };
+
+        NodeManager[] mgrs = {
+            new DefaultHumanoidManager(),
+            new DefaultParticleSystemManager(),
+            concurrent(TypeConstants.RigidBodyCollectionNodeType, NONE, scene_graph),
+            concurrent(TypeConstants.TextureNodeType, NONE, NONE)
+        };
+
+        NodeManagerScheduler sched = new NodeManagerScheduler(pool, mgrs, 4, true);
+
+        assertEquals("Wrong level count", 3, sched.getNumLevels());
+        assertEquals("Humanoid level", 0, sched.getLevel(0));
+        assertEquals("Particles not after humanoid", 1, sched.getLevel(1));
+        assertEquals("Physics not after particles", 2, sched.getLevel(2));
+        assertEquals("Independent manager not parallel", 0, sched.getLevel(3));
+    }
+
+    /**
+     * Every manager is run exactly once per call, whether it is alone in its
+     * level or shares it.
+     */
+    public void testExecuteRunsAll() {
+        StubManager[] mgrs = {
+            concurrent(TypeConstants.TextureNodeType, NONE, NONE),
+            concurrent(TypeConstants.Texture3DNodeType, NONE, NONE),
+            concurrent(TypeConstants.ParticleSystemNodeType, NONE, NONE),
+            new StubManager(TypeConstants.HumanoidNodeType),
+            concurrent(TypeConstants.CoordinateNodeType, NONE, NONE)
+        };
+
+        NodeManagerScheduler sched = new NodeManagerScheduler(pool, mgrs, 5, true);
+        assertEquals("Wrong level count", 3, sched.getNumLevels());
+
+        for(int frame = 1; frame <= 3; frame++) {
+            sched.execute(frame * 10);
+
+            for(int i = 0; i < mgrs.length; i++)
+                assertEquals("Manager " + i + " wrong run count",
+                             frame,
+                             mgrs[i].runs.get());
+        }
+    }
+
+    /**
+     * Convenience method to create a concurrent stub managing one type.
+     */
+    private static StubManager concurrent(int type, int[] read, int[] written) {
+        return new StubConcurrentManager(new int[] { type }, read, written);
+    }
+
+    /**
+     * Main method to kick everything off with.
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
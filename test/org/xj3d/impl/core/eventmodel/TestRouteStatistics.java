@@ -0,0 +1,213 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+
+import org.xj3d.core.eventmodel.RouteStatistics;
+import org.xj3d.core.eventmodel.RouterFactory;
+import org.xj3d.core.loading.LoaderThreadPool;
+
+/**
+ * A test case to check the per-frame cascade statistics of the route manager
+ * on a world with a known chain of routes.
+ * <p>
+ *
+ * The longest chain is TimeSensor, interpolator, three scripts and a last
+ * interpolator, which is five routes. A second, shorter chain of two routes
+ * runs alongside, so seven routes fire each frame.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestRouteStatistics extends TestCase {
+
+    /** A time sensor driving a chain of scripts, with a short side chain */
+    private static final String WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF SI ScalarInterpolator { key [ 0 1 ] keyValue [ 0 10 ] }\n" +
+        "DEF S1 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v + 1; }\"\n" +
+        "}\n" +
+        "DEF S2 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v * 2; }\"\n" +
+        "}\n" +
+        "DEF S3 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript: function set_in(v, t) { out = v - 3; }\"\n" +
+        "}\n" +
+        "DEF SI2 ScalarInterpolator { key [ 0 100 ] keyValue [ 0 100 ] }\n" +
+        "DEF PI PositionInterpolator { key [ 0 1 ] keyValue [ 0 0 0 1 2 3 ] }\n" +
+        "DEF T Transform { }\n" +
+        "ROUTE TS.fraction_changed TO SI.set_fraction\n" +
+        "ROUTE TS.fraction_changed TO PI.set_fraction\n" +
+        "ROUTE PI.value_changed TO T.set_translation\n" +
+        "ROUTE SI.value_changed TO S1.set_in\n" +
+        "ROUTE S1.out TO S2.set_in\n" +
+        "ROUTE S2.out TO S3.set_in\n" +
+        "ROUTE S3.out TO SI2.set_fraction\n";
+
+    /** The number of routes that fire each frame */
+    private static final int ROUTES_PER_FRAME = 7;
+
+    /** The length of the longest chain of routes */
+    private static final int CHAIN_LENGTH = 5;
+
+    /** The longest time to wait for the scripts to load, in milliseconds */
+    private static final long LOAD_TIMEOUT = 10000;
+
+    /** The world file */
+    private File worldFile;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestRouteStatistics(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestRouteStatistics("testCompiledRouter"));
+        suite.addTest(new TestRouteStatistics("testDirtyListRouter"));
+        suite.addTest(new TestRouteStatistics("testListsRouter"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        worldFile = File.createTempFile("xj3dstats", ".x3dv");
+        Files.write(worldFile.toPath(), WORLD.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void tearDown() {
+        worldFile.delete();
+    }
+
+    /**
+     * The compiled router sends the chain up to the first script in one
+     * pass, then needs a pass for each script output. The depth is the real
+     * length of the chain, not a sum over the passes.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testCompiledRouter() throws Exception {
+        int[] stats = runWorld(new CompiledRouterFactory());
+
+        assertEquals("Wrong pass count", 4, stats[0]);
+        assertEquals("Wrong routes fired", ROUTES_PER_FRAME, stats[1]);
+        assertEquals("Wrong depth", CHAIN_LENGTH, stats[2]);
+    }
+
+    /**
+     * The dirty list router needs one pass for each link of the chain and
+     * counts each pass as one level.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testDirtyListRouter() throws Exception {
+        int[] stats = runWorld(new DirtyListRouterFactory());
+
+        assertEquals("Wrong pass count", CHAIN_LENGTH, stats[0]);
+        assertEquals("Wrong routes fired", ROUTES_PER_FRAME, stats[1]);
+        assertEquals("Wrong depth", CHAIN_LENGTH, stats[2]);
+    }
+
+    /**
+     * The lists router may send the first two links in one pass, depending
+     * on the order it holds the eventOuts in. It counts each pass as one
+     * level.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testListsRouter() throws Exception {
+        int[] stats = runWorld(new ListsRouterFactory());
+
+        assertTrue("Wrong pass count " + stats[0],
+                   stats[0] == CHAIN_LENGTH - 1 || stats[0] == CHAIN_LENGTH);
+        assertEquals("Wrong routes fired", ROUTES_PER_FRAME, stats[1]);
+        assertEquals("Depth is not the pass count", stats[0], stats[2]);
+    }
+
+    /**
+     * Load the world, wait for its scripts, run a few frames and return the
+     * statistics of the last complete one.
+     *
+     * @param fac The factory for the routers to use
+     * @return The pass count, routes fired and cascade depth
+     * @throws Exception The world could not be run
+     */
+    private int[] runWorld(RouterFactory fac) throws Exception {
+        LoaderThreadPool pool = new LoaderThreadPool(null, 1);
+        NRHeadlessRunner runner = new NRHeadlessRunner(pool, fac);
+
+        try {
+            runner.loadWorld(worldFile.toURI().toString());
+
+            assertTrue("Content not loaded", runner.waitForLoads(LOAD_TIMEOUT));
+
+            for(int i = 0; i < 4; i++)
+                runner.step();
+
+            RouteStatistics stats =
+                (RouteStatistics)runner.getEventModel().getRouteManager();
+
+            return new int[] {
+                stats.getPassCount(),
+                stats.getRoutesFired(),
+                stats.getMaxCascadeDepth()
+            };
+        } finally {
+            runner.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,434 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.eventmodel;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.j3d.util.ErrorReporter;
+
+import org.web3d.vrml.renderer.norender.browser.NRHeadlessRunner;
+import org.web3d.vrml.scripting.sai.JavaSAIScriptWrapper;
+
+import org.web3d.x3d.sai.Browser;
+import org.web3d.x3d.sai.X3DField;
+import org.web3d.x3d.sai.X3DScriptImplementation;
+import org.web3d.x3d.sai.X3DScriptNode;
+
+import org.xj3d.core.loading.LoaderThreadPool;
+import org.xj3d.sai.Xj3DSelfContainedScript;
+
+/**
+ * A test case to check that running self contained scripts on a pool
+ * changes neither the events the rest of the scene sees nor where scripts
+ * that reach outside themselves are run.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestScriptScheduler extends TestCase {
+
+    /**
+     * Several self contained scripts, one fed by another, all sending to a
+     * directOutput script that logs the order its events arrive in during
+     * each frame. The outputs are set in eventsProcessed(), which is the
+     * part that runs on the pool.
+     */
+    private static final String ORDER_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF A Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript:\n" +
+        "    var v = 0;\n" +
+        "    function set_in(value, t) { v = value; }\n" +
+        "    function eventsProcessed() { out = v + 1; }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF B Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript:\n" +
+        "    var v = 0;\n" +
+        "    function set_in(value, t) { v = value; }\n" +
+        "    function eventsProcessed() { out = v * 2; }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF C Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript:\n" +
+        "    var v = 0;\n" +
+        "    function set_in(value, t) { v = value; }\n" +
+        "    function eventsProcessed() { out = v - 3; }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF D Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript:\n" +
+        "    var v = 0;\n" +
+        "    function set_in(value, t) { v = value; }\n" +
+        "    function eventsProcessed() { out = v * v; }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF LOG Script {\n" +
+        "  directOutput TRUE\n" +
+        "  inputOnly SFFloat set_a\n" +
+        "  inputOnly SFFloat set_b\n" +
+        "  inputOnly SFFloat set_c\n" +
+        "  inputOnly SFFloat set_d\n" +
+        "  outputOnly SFString log\n" +
+        "  url \"ecmascript:\n" +
+        "    var l = '';\n" +
+        "    var last = -1;\n" +
+        "    function add(s, t) {\n" +
+        "      if(t != last) { l = ''; last = t; }\n" +
+        "      l += s + ' ';\n" +
+        "      log = l;\n" +
+        "    }\n" +
+        "    function set_a(v, t) { add('a' + v, t); }\n" +
+        "    function set_b(v, t) { add('b' + v, t); }\n" +
+        "    function set_c(v, t) { add('c' + v, t); }\n" +
+        "    function set_d(v, t) { add('d' + v, t); }\n" +
+        "  \"\n" +
+        "}\n" +
+        "ROUTE TS.fraction_changed TO A.set_in\n" +
+        "ROUTE TS.fraction_changed TO C.set_in\n" +
+        "ROUTE TS.fraction_changed TO D.set_in\n" +
+        "ROUTE A.out TO B.set_in\n" +
+        "ROUTE A.out TO LOG.set_a\n" +
+        "ROUTE B.out TO LOG.set_b\n" +
+        "ROUTE C.out TO LOG.set_c\n" +
+        "ROUTE D.out TO LOG.set_d\n";
+
+    /**
+     * Two self contained scripts, and one that names Browser to print from
+     * eventsProcessed(), so that the message reaches the error reporter from
+     * the thread that ran it.
+     */
+    private static final String THREAD_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "DEF TS TimeSensor { loop TRUE cycleInterval 1 }\n" +
+        "DEF P1 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript:\n" +
+        "    var v = 0;\n" +
+        "    function set_in(value, t) { v = value; }\n" +
+        "    function eventsProcessed() { out = v * 2; }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF P2 Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFFloat out\n" +
+        "  url \"ecmascript:\n" +
+        "    var v = 0;\n" +
+        "    function set_in(value, t) { v = value; }\n" +
+        "    function eventsProcessed() { out = v * 2; }\n" +
+        "  \"\n" +
+        "}\n" +
+        "DEF BR Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  url \"ecmascript:\n" +
+        "    function set_in(v, t) { }\n" +
+        "    function eventsProcessed() { Browser.println('BR ran'); }\n" +
+        "  \"\n" +
+        "}\n" +
+        "ROUTE TS.fraction_changed TO P1.set_in\n" +
+        "ROUTE TS.fraction_changed TO P2.set_in\n" +
+        "ROUTE TS.fraction_changed TO BR.set_in\n";
+
+    /**
+     * Reporter that records the threads the Browser script printed from.
+     */
+    private static class ThreadReporter implements ErrorReporter {
+
+        /** Names of the threads the script printed from */
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void partialReport(String msg) {
+        }
+
+        @Override
+        public void messageReport(String msg) {
+            if(msg.contains("BR ran"))
+                threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void warningReport(String msg, Throwable e) {
+        }
+
+        @Override
+        public void errorReport(String msg, Throwable e) {
+        }
+
+        @Override
+        public void fatalErrorReport(String msg, Throwable e) {
+        }
+    }
+
+    /**
+     * Java script that does not opt in to running on the pool.
+     */
+    private static class PlainScript implements X3DScriptImplementation {
+        @Override
+        public void setBrowser(Browser browser) {
+        }
+
+        @Override
+        public void setFields(X3DScriptNode externalView,
+                              Map<String, X3DField> fields) {
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void eventsProcessed() {
+        }
+    }
+
+    /**
+     * Java script that says it only works with its own fields.
+     */
+    private static class SelfContainedScript extends PlainScript
+        implements Xj3DSelfContainedScript {
+    }
+
+    /** The number of frames to compare */
+    private static final int NUM_FRAMES = 10;
+
+    /** The number of times to run the world with the pool on */
+    private static final int PARALLEL_RUNS = 3;
+
+    /** The longest time to wait for the scripts to load, in milliseconds */
+    private static final long LOAD_TIMEOUT = 10000;
+
+    /** The world file */
+    private File worldFile;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestScriptScheduler(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestScriptScheduler("testJavaScriptOptIn"));
+        suite.addTest(new TestScriptScheduler("testSameEventOrder"));
+        suite.addTest(new TestScriptScheduler("testBrowserScriptOnCaller"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        worldFile = File.createTempFile("xj3dscripts", ".x3dv");
+    }
+
+    @Override
+    public void tearDown() {
+        worldFile.delete();
+    }
+
+    /**
+     * Java code cannot be inspected, so a Java script is only run on the
+     * pool when it implements the marker interface.
+     */
+    public void testJavaScriptOptIn() {
+        JavaSAIScriptWrapper plain = new JavaSAIScriptWrapper(new PlainScript());
+        JavaSAIScriptWrapper marked =
+            new JavaSAIScriptWrapper(new SelfContainedScript());
+
+        assertFalse("Plain Java script is self contained",
+                    plain.isSelfContained());
+        assertTrue("Marked Java script is not self contained",
+                   marked.isSelfContained());
+    }
+
+    /**
+     * The logging script sees the same events in the same order whether the
+     * self contained scripts run on the pool or not.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testSameEventOrder() throws Exception {
+        writeWorld(ORDER_WORLD);
+
+        String[] serial = runWorld(null, null, "LOG", "log");
+
+        String last = serial[NUM_FRAMES - 1];
+        assertTrue("Not all scripts logged: " + last,
+                   last.contains("a") && last.contains("b") &&
+                   last.contains("c") && last.contains("d"));
+
+        for(int run = 0; run < PARALLEL_RUNS; run++) {
+            String[] parallel =
+                runWorld(new ForkJoinPool(4), null, "LOG", "log");
+
+            for(int i = 0; i < NUM_FRAMES; i++)
+                assertEquals("Run " + run + " frame " + i + " differs",
+                             serial[i],
+                             parallel[i]);
+        }
+    }
+
+    /**
+     * With the pool on, the script that names Browser is run on the thread
+     * that steps the world, while the self contained ones are handed to the
+     * pool.
+     *
+     * @throws Exception The world could not be run
+     */
+    public void testBrowserScriptOnCaller() throws Exception {
+        writeWorld(THREAD_WORLD);
+
+        AtomicInteger pool_threads = new AtomicInteger();
+        ForkJoinPool script_pool = new ForkJoinPool(
+            2,
+            p -> {
+                pool_threads.incrementAndGet();
+                return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            },
+            null,
+            false);
+
+        ThreadReporter reporter = new ThreadReporter();
+        String[] out = runWorld(script_pool, reporter, "P1", "out");
+
+        String caller = Thread.currentThread().getName();
+
+        assertTrue("Self contained script never ran",
+                   out[NUM_FRAMES - 1].contains("P1.out"));
+        assertTrue("Self contained scripts never used the pool",
+                   pool_threads.get() > 0);
+        assertEquals("Browser script ran off the caller " + reporter.threads,
+                     Collections.singleton(caller),
+                     reporter.threads);
+    }
+
+    /**
+     * Write out the world to the temporary file.
+     *
+     * @param world The world source
+     * @throws IOException The file could not be written
+     */
+    private void writeWorld(String world) throws IOException {
+        Files.write(worldFile.toPath(), world.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Load the world, wait for its scripts, then step it and record one
+     * field each frame. The dirty list router is used as it sends events in
+     * the order their sources changed. The other routers order events from
+     * different sources by identity hash, which changes from run to run
+     * whether or not the pool is used.
+     *
+     * @param scriptPool The pool for self contained scripts, or null
+     * @param reporter The reporter for the runner, or null for the default
+     * @param defName The DEF name of the node to capture
+     * @param fieldName The field to capture
+     * @return The captured value of each frame
+     * @throws Exception The world could not be run
+     */
+    private String[] runWorld(ForkJoinPool scriptPool,
+                              ErrorReporter reporter,
+                              String defName,
+                              String fieldName)
+        throws Exception {
+
+        LoaderThreadPool pool = new LoaderThreadPool(null, 1);
+        NRHeadlessRunner runner = new NRHeadlessRunner(pool, new DirtyListRouterFactory());
+
+        try {
+            if(reporter != null)
+                runner.setErrorReporter(reporter);
+
+            DefaultScriptManager s_mgr =
+                (DefaultScriptManager)runner.getEventModel().getScriptManager();
+            s_mgr.setScriptPool(scriptPool);
+
+            StringWriter out = new StringWriter();
+            runner.addFieldCapture(defName, fieldName);
+            runner.setCaptureOutput(out);
+            runner.loadWorld(worldFile.toURI().toString());
+
+            assertTrue("Content not loaded", runner.waitForLoads(LOAD_TIMEOUT));
+
+            runner.step();
+
+            String[] ret_val = new String[NUM_FRAMES];
+
+            for(int i = 0; i < NUM_FRAMES; i++) {
+                out.getBuffer().setLength(0);
+                runner.step();
+                ret_val[i] = out.toString();
+            }
+
+            return ret_val;
+        } finally {
+            runner.shutdown();
+            pool.shutdown();
+
+            if(scriptPool != null)
+                scriptPool.shutdown();
+        }
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
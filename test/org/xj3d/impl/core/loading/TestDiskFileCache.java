@@ -0,0 +1,352 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.loading;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.net.InetSocketAddress;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.xj3d.core.loading.CacheDetails;
+
+/**
+ * A test case to check the storage, validation and eviction of the
+ * DiskFileCache.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestDiskFileCache extends TestCase {
+
+    /** The directory the cache is kept in */
+    private File cacheDir;
+
+    /** The directory source files are written to */
+    private File sourceDir;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestDiskFileCache(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestDiskFileCache("testFileValidation"));
+        suite.addTest(new TestDiskFileCache("testPersistence"));
+        suite.addTest(new TestDiskFileCache("testEviction"));
+        suite.addTest(new TestDiskFileCache("testDamagedItem"));
+        suite.addTest(new TestDiskFileCache("testHttpValidation"));
+        suite.addTest(new TestDiskFileCache("testHttpNoValidators"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("xj3dcache").toFile();
+        sourceDir = Files.createTempDirectory("xj3dsrc").toFile();
+    }
+
+    @Override
+    public void tearDown() {
+        deleteAll(cacheDir);
+        deleteAll(sourceDir);
+    }
+
+    /**
+     * Check that a file item is used until its source changes.
+     *
+     * @throws IOException A file could not be written
+     */
+    public void testFileValidation() throws IOException {
+        DiskFileCache cache = new DiskFileCache(cacheDir, 1 << 20);
+        File src = writeSource("script.js", "function initialize() {}");
+        String uri = src.toURI().toString();
+
+        assertNull("Empty cache hit", cache.checkForFile(uri));
+
+        cache.cacheFile(uri, "application/javascript", "function initialize() {}");
+
+        CacheDetails details = cache.checkForFile(uri);
+        assertNotNull("Item not cached", details);
+        assertEquals("Wrong content", "function initialize() {}",
+                     details.getContent());
+        assertEquals("Wrong type", "application/javascript",
+                     details.getContentType());
+
+        writeSource("script.js", "function initialize() { changed(); }");
+
+        assertNull("Stale item used", cache.checkForFile(uri));
+        assertEquals("Wrong hit count", 1, cache.getHitCount());
+        assertEquals("Wrong miss count", 2, cache.getMissCount());
+    }
+
+    /**
+     * Check that items survive a new cache being made on the directory.
+     *
+     * @throws IOException A file could not be written
+     */
+    public void testPersistence() throws IOException {
+        File src = writeSource("data.bin", "abc");
+        String uri = src.toURI().toString();
+        byte[] data = { 1, 2, 3 };
+
+        DiskFileCache cache = new DiskFileCache(cacheDir, 1 << 20);
+        cache.cacheFile(uri, "application/octet-stream", data);
+
+        DiskFileCache second = new DiskFileCache(cacheDir, 1 << 20);
+        CacheDetails details = second.checkForFile(uri);
+
+        assertNotNull("Item not persisted", details);
+        assertTrue("Wrong content type", details.getContent() instanceof byte[]);
+        assertEquals("Wrong content length", 3,
+                     ((byte[])details.getContent()).length);
+        assertTrue("Size not recovered", second.getSize() > 0);
+
+        // Not storable as bytes, so ignored
+        cache.cacheFile(uri + "#x", "application/octet-stream", new Object());
+        assertNull("Object content stored", second.checkForFile(uri + "#x"));
+    }
+
+    /**
+     * Check that the least recently used items are removed to stay under
+     * the budget.
+     *
+     * @throws Exception A file could not be written or the sleep failed
+     */
+    public void testEviction() throws Exception {
+        DiskFileCache cache = new DiskFileCache(cacheDir, 8192);
+        String[] uris = new String[12];
+        StringBuilder buf = new StringBuilder();
+
+        for(int i = 0; i < 1000; i++)
+            buf.append('x');
+
+        String text = buf.toString();
+
+        for(int i = 0; i < uris.length; i++) {
+            uris[i] = writeSource("s" + i + ".txt", text).toURI().toString();
+            cache.cacheFile(uris[i], "text/plain", text);
+
+            // Keep the first one in use
+            if(i > 0)
+                cache.checkForFile(uris[0]);
+
+            Thread.sleep(20);
+        }
+
+        assertTrue("Over budget", cache.getSize() <= 8192);
+        assertTrue("Nothing evicted", cache.getEvictionCount() > 0);
+        assertNotNull("Recently used item evicted", cache.checkForFile(uris[0]));
+        assertNotNull("Newest item evicted",
+                      cache.checkForFile(uris[uris.length - 1]));
+        assertNull("Oldest unused item kept", cache.checkForFile(uris[1]));
+    }
+
+    /**
+     * Check that a damaged item is removed rather than used.
+     *
+     * @throws IOException A file could not be written
+     */
+    public void testDamagedItem() throws IOException {
+        DiskFileCache cache = new DiskFileCache(cacheDir, 1 << 20);
+        String uri = writeSource("shader.glsl", "void main() {}").toURI().toString();
+
+        cache.cacheFile(uri, "text/plain", "void main() {}");
+
+        try(DirectoryStream<Path> dir = Files.newDirectoryStream(cacheDir.toPath(), "*.xc")) {
+            for(Path item : dir) {
+                byte[] data = Files.readAllBytes(item);
+                data[data.length - 1] ^= 0xFF;
+                Files.write(item, data);
+            }
+        }
+
+        assertNull("Damaged item used", cache.checkForFile(uri));
+
+        try(DirectoryStream<Path> dir = Files.newDirectoryStream(cacheDir.toPath(), "*.xc")) {
+            assertFalse("Damaged item kept", dir.iterator().hasNext());
+        }
+    }
+
+    /**
+     * Check that http items are checked against the ETag of the response
+     * they were read from, and that storing them asks the server nothing.
+     *
+     * @throws IOException The server could not be started
+     */
+    public void testHttpValidation() throws IOException {
+        final String[] etag = { "\"v1\"" };
+        final AtomicInteger requests = new AtomicInteger();
+
+        HttpServer server = startServer(etag, requests);
+
+        try {
+            String uri = "http://127.0.0.1:" + server.getAddress().getPort() +
+                         "/script.js";
+
+            DiskFileCache cache = new DiskFileCache(cacheDir, 1 << 20);
+            cache.setRevalidateInterval(0);
+            cache.cacheFile(uri, "application/javascript", "x", etag[0], 0);
+
+            assertEquals("Server asked while storing", 0, requests.get());
+            assertNotNull("Unchanged item not used", cache.checkForFile(uri));
+
+            etag[0] = "\"v2\"";
+
+            assertNull("Changed item used", cache.checkForFile(uri));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Check that an http item stored without validators is used until the
+     * revalidation interval passes, and then fetched again.
+     *
+     * @throws IOException The server could not be started
+     */
+    public void testHttpNoValidators() throws IOException {
+        final String[] etag = { "\"v1\"" };
+        final AtomicInteger requests = new AtomicInteger();
+
+        HttpServer server = startServer(etag, requests);
+
+        try {
+            String uri = "http://127.0.0.1:" + server.getAddress().getPort() +
+                         "/script.js";
+
+            DiskFileCache cache = new DiskFileCache(cacheDir, 1 << 20);
+            cache.setRevalidateInterval(60000);
+            cache.cacheFile(uri, "application/javascript", "x");
+
+            assertEquals("Server asked while storing", 0, requests.get());
+            assertNotNull("Item not used within interval",
+                          cache.checkForFile(uri));
+
+            cache.setRevalidateInterval(0);
+
+            assertNull("Item without validators used",
+                       cache.checkForFile(uri));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Start a server for /script.js that answers conditional requests for
+     * the current ETag.
+     *
+     * @param etag Holder of the current ETag
+     * @param requests Count of the requests made
+     * @return The started server
+     * @throws IOException The server could not be started
+     */
+    private static HttpServer startServer(final String[] etag,
+                                          final AtomicInteger requests)
+        throws IOException {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/script.js", exchange -> {
+            requests.incrementAndGet();
+
+            String match = exchange.getRequestHeaders().getFirst("If-None-Match");
+            exchange.getResponseHeaders().add("ETag", etag[0]);
+
+            if(etag[0].equals(match)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else if("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                byte[] body = "x".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+
+                try(OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+
+            exchange.close();
+        });
+        server.start();
+
+        return server;
+    }
+
+    /**
+     * Write a source file.
+     *
+     * @param name The name of the file
+     * @param text The text to write
+     * @return The file written
+     * @throws IOException The file could not be written
+     */
+    private File writeSource(String name, String text) throws IOException {
+        File file = new File(sourceDir, name);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    /**
+     * Delete a directory and everything in it.
+     *
+     * @param dir The directory to delete
+     */
+    private static void deleteAll(File dir) {
+        File[] files = dir.listFiles();
+
+        if(files != null) {
+            for(File f : files)
+                f.delete();
+        }
+
+        dir.delete();
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
@@ -0,0 +1,509 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package org.xj3d.impl.core.loading;
+
+// External imports
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+// Local imports
+import org.j3d.util.DefaultErrorReporter;
+
+import org.web3d.vrml.lang.FieldConstants;
+import org.web3d.vrml.lang.ROUTE;
+import org.web3d.vrml.lang.VRMLFieldDeclaration;
+import org.web3d.vrml.lang.VRMLNode;
+
+import org.web3d.vrml.nodes.VRMLFieldData;
+import org.web3d.vrml.nodes.VRMLNodeType;
+import org.web3d.vrml.nodes.VRMLProtoInstance;
+import org.web3d.vrml.nodes.VRMLScene;
+
+import org.web3d.vrml.parser.VRMLParserFactory;
+
+import org.web3d.vrml.renderer.norender.NRSceneBuilderFactory;
+
+import org.web3d.vrml.sav.InputSource;
+import org.web3d.vrml.sav.VRMLReader;
+
+import org.xj3d.core.loading.SceneBuilder;
+
+/**
+ * A test case to check that scene snapshots are written, used while the
+ * source is unchanged and ignored once it changes.
+ * <p>
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestSceneSnapshotCache extends TestCase {
+
+    /** A small world in the classic encoding */
+    private static final String WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Interchange\n" +
+        "DEF S Shape { geometry Box { size 1 2 3 } }\n";
+
+    /**
+     * A world in the classic encoding with META, a PROTO using IS, Scripts,
+     * ROUTEs and DEF/USE.
+     */
+    private static final String FULL_WORLD =
+        "#X3D V3.2 utf8\n" +
+        "PROFILE Immersive\n" +
+        "META \"title\" \"Snapshot test\"\n" +
+        "META \"creator\" \"Xj3D\"\n" +
+        "PROTO Foo [\n" +
+        "  inputOutput SFVec3f f 1 1 1\n" +
+        "  inputOnly SFFloat set_size\n" +
+        "  inputOutput MFNode kids []\n" +
+        "]\n" +
+        "{\n" +
+        "  DEF PT Transform {\n" +
+        "    scale IS f\n" +
+        "    children IS kids\n" +
+        "  }\n" +
+        "  DEF PS Script {\n" +
+        "    inputOnly SFFloat set_size IS set_size\n" +
+        "    outputOnly SFVec3f size_changed\n" +
+        "    url \"ecmascript: function set_size(v) { size_changed = new SFVec3f(v, v, v); }\"\n" +
+        "  }\n" +
+        "  ROUTE PS.size_changed TO PT.set_scale\n" +
+        "}\n" +
+        "DEF F Foo { f 2 2 2 kids [ DEF SH Shape { geometry Box { size 1 2 3 } } ] }\n" +
+        "DEF T TimeSensor { loop TRUE cycleInterval 4 }\n" +
+        "DEF S Script {\n" +
+        "  inputOnly SFFloat set_in\n" +
+        "  outputOnly SFVec3f out\n" +
+        "  initializeOnly SFNode shape USE SH\n" +
+        "  initializeOnly MFFloat values [ 0.1 0.25 1e-7 3.3333333 ]\n" +
+        "  url \"ecmascript: function set_in(v) { out = new SFVec3f(v, v, v); }\"\n" +
+        "}\n" +
+        "DEF G Transform {\n" +
+        "  translation 1 0 0.3\n" +
+        "  rotation 0 1 0 0.785398\n" +
+        "  children [ USE SH ]\n" +
+        "}\n" +
+        "ROUTE T.fraction_changed TO S.set_in\n" +
+        "ROUTE S.out TO F.f\n" +
+        "ROUTE T.fraction_changed TO F.set_size\n";
+
+    /** The directory the snapshots are kept in */
+    private File snapshotDir;
+
+    /** The directory source files are written to */
+    private File sourceDir;
+
+    /**
+     * Create an instance of the test case for this particular test
+     * name.
+     *
+     * @param name The name of the test method to be run
+     */
+    public TestSceneSnapshotCache(String name) {
+        super(name);
+    }
+
+    /**
+     * Fetch the suite of tests for this test class to perform.
+     *
+     * @return A collection of all the tests to be run
+     */
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new TestSceneSnapshotCache("testSnapshotUsed"));
+        suite.addTest(new TestSceneSnapshotCache("testSnapshotMatchesSource"));
+        suite.addTest(new TestSceneSnapshotCache("testOtherEncodings"));
+
+        return suite;
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        snapshotDir = Files.createTempDirectory("xj3dsnap").toFile();
+        sourceDir = Files.createTempDirectory("xj3dsrc").toFile();
+    }
+
+    @Override
+    public void tearDown() {
+        deleteAll(snapshotDir);
+        deleteAll(sourceDir);
+    }
+
+    /**
+     * Check a snapshot is written after a load and used until the source
+     * changes.
+     *
+     * @throws Exception A file could not be read, written or parsed
+     */
+    public void testSnapshotUsed() throws Exception {
+        File src = writeSource("world.x3dv", WORLD);
+
+        SceneSnapshotCache cache = new SceneSnapshotCache(snapshotDir.toPath());
+        SceneSnapshotCache.Entry entry = cache.open(source(src));
+
+        assertFalse("Snapshot before any load", entry.hasSnapshot());
+        assertEquals("Source not kept", WORLD, readAll(entry.getSource()));
+
+        entry.store(parse(source(src)),
+                    DefaultErrorReporter.getDefaultReporter());
+        cache.shutdown();
+
+        cache = new SceneSnapshotCache(snapshotDir.toPath());
+        entry = cache.open(source(src));
+
+        assertTrue("Snapshot not used", entry.hasSnapshot());
+
+        InputSource snap = entry.getSnapshotSource();
+        assertEquals("Wrong snapshot URL", src.toURI().toString(), snap.getURL());
+        snap.close();
+
+        writeSource("world.x3dv", WORLD + "Group {}\n");
+        entry = cache.open(source(src));
+
+        assertFalse("Stale snapshot used", entry.hasSnapshot());
+
+        cache.shutdown();
+    }
+
+    /**
+     * Check that the scene loaded from a snapshot is the same, field by
+     * field, as the one loaded from the source.
+     *
+     * @throws Exception A file could not be read, written or parsed
+     */
+    public void testSnapshotMatchesSource() throws Exception {
+        File src = writeSource("full.x3dv", FULL_WORLD);
+
+        SceneSnapshotCache cache = new SceneSnapshotCache(snapshotDir.toPath());
+        SceneSnapshotCache.Entry entry = cache.open(source(src));
+
+        VRMLScene from_source = parse(entry.getSource());
+        entry.store(from_source, DefaultErrorReporter.getDefaultReporter());
+        cache.shutdown();
+
+        cache = new SceneSnapshotCache(snapshotDir.toPath());
+        entry = cache.open(source(src));
+
+        assertTrue("Snapshot not written", entry.hasSnapshot());
+
+        VRMLScene from_snapshot = parse(entry.getSnapshotSource());
+        cache.shutdown();
+
+        Map<String, String> meta = from_source.getMetaData().getMetaData();
+        assertEquals("Source META not read", "Snapshot test", meta.get("title"));
+        assertEquals("Different META",
+                     meta,
+                     from_snapshot.getMetaData().getMetaData());
+
+        assertEquals("Different PROTOs",
+                     from_source.getProtos().keySet(),
+                     from_snapshot.getProtos().keySet());
+
+        Map<String, String> nodes = describe(from_source);
+        assertEquals("Different DEF names",
+                     nodes.keySet(),
+                     describe(from_snapshot).keySet());
+        assertTrue("IS value not set " + nodes.get("F"),
+                   nodes.get("F").contains("scale SFVec3f=1:[2.0, 2.0, 2.0]"));
+
+        for(Map.Entry<String, String> e : nodes.entrySet())
+            assertEquals("Node " + e.getKey() + " differs",
+                         e.getValue(),
+                         describe(from_snapshot).get(e.getKey()));
+
+        assertEquals("Different ROUTEs",
+                     describeRoutes(from_source),
+                     describeRoutes(from_snapshot));
+        assertEquals("Wrong ROUTE count", 3, from_snapshot.getRoutes().size());
+
+        // USE gives the same node, not a copy
+        Map<String, VRMLNode> defs = from_snapshot.getDEFNodes();
+        VRMLNodeType group = (VRMLNodeType)defs.get("G");
+        VRMLFieldData kids =
+            group.getFieldValue(group.getFieldIndex("children"));
+
+        assertSame("USE not kept", defs.get("SH"), kids.nodeArrayValues[0]);
+    }
+
+    /**
+     * Check sources that are not X3D text are passed straight through.
+     *
+     * @throws Exception A file could not be read, written or parsed
+     */
+    public void testOtherEncodings() throws Exception {
+        String vrml = "#VRML V2.0 utf8\nShape {}\n";
+        File src = writeSource("world.wrl", vrml);
+
+        SceneSnapshotCache cache = new SceneSnapshotCache(snapshotDir.toPath());
+        SceneSnapshotCache.Entry entry = cache.open(source(src));
+
+        assertFalse("VRML97 snapshot", entry.hasSnapshot());
+        assertEquals("Source changed", vrml, readAll(entry.getSource()));
+
+        entry.store(parse(source(src)),
+                    DefaultErrorReporter.getDefaultReporter());
+        cache.shutdown();
+
+        assertEquals("Snapshot written", 0, snapshotDir.list().length);
+    }
+
+    /**
+     * Create a source that reads the given file.
+     */
+    private static InputSource source(File file) throws IOException {
+        String url = file.toURI().toString();
+        String base = file.getParentFile().toURI().toString();
+
+        return new InputSource(base, Files.newInputStream(file.toPath()), url);
+    }
+
+    /**
+     * Parse a source into a scene, as the world loader would.
+     */
+    private static VRMLScene parse(InputSource source) throws IOException {
+        NRSceneBuilderFactory fac =
+            new NRSceneBuilderFactory(false, true, true, true, true, true, true);
+        SceneBuilder builder = fac.createBuilder();
+
+        VRMLReader reader = VRMLParserFactory.newVRMLParserFactory().newVRMLReader();
+        reader.setContentHandler(builder);
+        reader.setScriptHandler(builder);
+        reader.setProtoHandler(builder);
+        reader.setRouteHandler(builder);
+
+        try {
+            reader.parse(source);
+        } finally {
+            source.close();
+        }
+
+        return builder.getScene();
+    }
+
+    /**
+     * Describe the fields of every DEFed node in the scene. Node values are
+     * given by DEF name where they have one. A PROTO instance also has the
+     * fields of the first node of its body.
+     *
+     * @param scene The scene to describe
+     * @return The description of each node, keyed by DEF name
+     */
+    private static Map<String, String> describe(VRMLScene scene) {
+        Map<VRMLNode, String> names = new IdentityHashMap<>();
+        for(Map.Entry<String, VRMLNode> e : scene.getDEFNodes().entrySet())
+            names.put(e.getValue(), e.getKey());
+
+        Map<String, String> ret_val = new TreeMap<>();
+
+        for(Map.Entry<String, VRMLNode> e : scene.getDEFNodes().entrySet()) {
+            VRMLNodeType node = (VRMLNodeType)e.getValue();
+            String desc = describe(node, names);
+
+            if(node instanceof VRMLProtoInstance) {
+                VRMLNodeType impl =
+                    ((VRMLProtoInstance)node).getImplementationNode();
+                desc += "\nbody " + describe(impl, names);
+            }
+
+            ret_val.put(e.getKey(), desc);
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Describe all the fields of one node, in name order. Script fields may
+     * be declared in a different order by the encodings, so the index of a
+     * field is not part of the description.
+     */
+    private static String describe(VRMLNodeType node, Map<VRMLNode, String> names) {
+        if(node == null)
+            return "null";
+
+        TreeMap<String, String> fields = new TreeMap<>();
+        int num_fields = node.getNumFields();
+
+        for(int i = 0; i < num_fields; i++) {
+            VRMLFieldDeclaration decl = node.getFieldDeclaration(i);
+
+            if(decl == null)
+                continue;
+
+            String desc = decl.getFieldTypeString();
+
+            int access = decl.getAccessType();
+            if(access != FieldConstants.EVENTIN &&
+               access != FieldConstants.EVENTOUT)
+                desc += "=" + describe(node.getFieldValue(i), names);
+
+            fields.put(decl.getName(), desc);
+        }
+
+        StringBuilder buf = new StringBuilder(node.getVRMLNodeName());
+
+        for(Map.Entry<String, String> e : fields.entrySet()) {
+            buf.append('\n');
+            buf.append(e.getKey());
+            buf.append(' ');
+            buf.append(e.getValue());
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * Describe a single field value.
+     */
+    private static String describe(VRMLFieldData data, Map<VRMLNode, String> names) {
+        if(data == null)
+            return "null";
+
+        // Only arrays have a count, it is not always set for single values
+        String ret_val = data.numElements + ":";
+
+        switch(data.dataType) {
+            case VRMLFieldData.BOOLEAN_DATA:
+                return String.valueOf(data.booleanValue);
+            case VRMLFieldData.INT_DATA:
+                return String.valueOf(data.intValue);
+            case VRMLFieldData.LONG_DATA:
+                return String.valueOf(data.longValue);
+            case VRMLFieldData.FLOAT_DATA:
+                return String.valueOf(data.floatValue);
+            case VRMLFieldData.DOUBLE_DATA:
+                return String.valueOf(data.doubleValue);
+            case VRMLFieldData.STRING_DATA:
+                return data.stringValue;
+            case VRMLFieldData.NODE_DATA:
+                return nodeName(data.nodeValue, names);
+            case VRMLFieldData.BOOLEAN_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.booleanArrayValues);
+            case VRMLFieldData.INT_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.intArrayValues);
+            case VRMLFieldData.LONG_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.longArrayValues);
+            case VRMLFieldData.FLOAT_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.floatArrayValues);
+            case VRMLFieldData.DOUBLE_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.doubleArrayValues);
+            case VRMLFieldData.STRING_ARRAY_DATA:
+                return ret_val + Arrays.toString(data.stringArrayValues);
+            case VRMLFieldData.NODE_ARRAY_DATA:
+                StringBuilder buf = new StringBuilder(ret_val);
+                for(int i = 0; i < data.numElements; i++)
+                    buf.append(nodeName(data.nodeArrayValues[i], names)).append(' ');
+                return buf.toString();
+            default:
+                return ret_val + "?";
+        }
+    }
+
+    /**
+     * Describe the ROUTEs of the scene by node DEF name and field name.
+     */
+    private static TreeSet<String> describeRoutes(VRMLScene scene) {
+        Map<VRMLNode, String> names = new IdentityHashMap<>();
+        for(Map.Entry<String, VRMLNode> e : scene.getDEFNodes().entrySet())
+            names.put(e.getValue(), e.getKey());
+
+        TreeSet<String> ret_val = new TreeSet<>();
+
+        for(ROUTE r : scene.getRoutes()) {
+            VRMLNode src = r.getSourceNode();
+            VRMLNode dest = r.getDestinationNode();
+
+            ret_val.add(names.get(src) + "." +
+                        src.getFieldDeclaration(r.getSourceIndex()).getName() +
+                        " TO " + names.get(dest) + "." +
+                        dest.getFieldDeclaration(r.getDestinationIndex()).getName());
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Get the DEF name of a node, or its type if it has none.
+     */
+    private static String nodeName(VRMLNode node, Map<VRMLNode, String> names) {
+        if(node == null)
+            return "null";
+
+        String name = names.get(node);
+
+        return (name != null) ? name : node.getVRMLNodeName();
+    }
+
+    /**
+     * Read the whole of a source as text.
+     */
+    private static String readAll(InputSource source) throws IOException {
+        try(InputStream is = source.getByteStream()) {
+            byte[] buf = new byte[4096];
+            StringBuilder ret_val = new StringBuilder();
+            int n;
+
+            while((n = is.read(buf)) > 0)
+                ret_val.append(new String(buf, 0, n, StandardCharsets.UTF_8));
+
+            return ret_val.toString();
+        }
+    }
+
+    /**
+     * Write a source file.
+     */
+    private File writeSource(String name, String text) throws IOException {
+        File file = new File(sourceDir, name);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    /**
+     * Delete a directory and everything in it.
+     */
+    private static void deleteAll(File dir) {
+        File[] files = dir.listFiles();
+
+        if(files != null) {
+            for(File f : files)
+                f.delete();
+        }
+
+        dir.delete();
+    }
+
+    /**
+     * Main method to kick everything off with.
+     * @param argv
+     */
+    public static void main(String[] argv) {
+        TestRunner.run(suite());
+    }
+}
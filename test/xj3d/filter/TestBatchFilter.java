@@ -0,0 +1,115 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package xj3d.filter;
+
+// External Imports
+import java.io.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+// Internal Imports
+// None
+
+/**
+ * Test the batch mode of the filter over directories and manifests.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestBatchFilter extends TestCase {
+
+    /**
+     * The directory containing the files to pass through the filter
+     */
+    public static final String PARSETEST = "parsetest/filter/Transform";
+
+    /** The directory the output is written to */
+    private File outputDir;
+
+    /**
+     * Creates a test suite consisting of all the methods that start with
+     * "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestBatchFilter.class);
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        outputDir = Files.createTempDirectory("xj3dbatch").toFile();
+    }
+
+    @Override
+    public void tearDown() {
+        File[] files = outputDir.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+
+        outputDir.delete();
+    }
+
+    /**
+     * Check every file in a directory is written to the output directory.
+     */
+    public void testDirectory() {
+        String[] args = {
+            "Identity", PARSETEST, outputDir.getPath(),
+            "-batch", "-threads", "2", "-outputType", "x3db"
+        };
+
+        int err_code = CDFFilter.executeFilters(args, false, null, null);
+
+        assertEquals("Batch failed", FilterExitCodes.SUCCESS, err_code);
+
+        String[] inputs = new File(PARSETEST).list();
+        for (String in : inputs) {
+            String out = in.substring(0, in.lastIndexOf('.')) + ".x3db";
+            assertTrue("Missing output for " + in, new File(outputDir, out).isFile());
+        }
+    }
+
+    /**
+     * Check a missing file in a manifest is reported without stopping the
+     * other files.
+     *
+     * @throws IOException The manifest could not be written
+     */
+    public void testManifestFailure() throws IOException {
+        File good = new File(PARSETEST, "NoExistingData.x3dv");
+        File manifest = new File(outputDir, "manifest.txt");
+
+        String list = "# Test manifest\n" +
+                      "missing.x3dv\n" +
+                      good.getAbsolutePath() + "\tits.x3d\n";
+
+        Files.write(manifest.toPath(), list.getBytes(StandardCharsets.UTF_8));
+
+        String[] args = {
+            "Identity", manifest.getPath(), outputDir.getPath(), "-batch"
+        };
+
+        int err_code = CDFFilter.executeFilters(args, false, null, null);
+
+        assertEquals("Wrong exit code", FilterExitCodes.FILE_NOT_FOUND, err_code);
+        assertTrue("Good file not written", new File(outputDir, "its.x3d").isFile());
+    }
+}
@@ -0,0 +1,245 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package xj3d.filter;
+
+// External Imports
+import java.io.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+// Internal Imports
+// None
+
+/**
+ * Test that the pipelined geometry filters write the same output as when
+ * each node is processed in line.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestPipelinedFilters extends TestCase {
+
+    /** The number of shapes in the generated files */
+    private static final int NUM_SHAPES = 40;
+
+    /** The grid size of each generated shape */
+    private static final int GRID = 6;
+
+    /** The directory the input and output is written to */
+    private File workDir;
+
+    /**
+     * Creates a test suite consisting of all the methods that start with
+     * "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestPipelinedFilters.class);
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("xj3dpipeline").toFile();
+    }
+
+    @Override
+    public void tearDown() {
+        File[] files = workDir.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+
+        workDir.delete();
+    }
+
+    /**
+     * Check face sets with normals and texture coordinates are converted to
+     * the same triangle sets by the pipeline.
+     *
+     * @throws IOException The files could not be written or read
+     */
+    public void testIFSToITS() throws IOException {
+        File input = writeScene("faces.x3dv", false);
+
+        byte[] inline = convert("IFSToITS", input, "inline.x3d");
+        byte[] pipelined = convert("IFSToITS", input, "pipelined.x3d",
+                                   "-pipeline", "-pipelineThreads", "3");
+
+        String out = new String(inline, StandardCharsets.UTF_8);
+        assertEquals("Not all shapes converted",
+                     NUM_SHAPES, out.split("<IndexedTriangleSet").length - 1);
+        assertTrue("Pipelined output differs", Arrays.equals(inline, pipelined));
+    }
+
+    /**
+     * Check triangle sets with duplicate points, some sharing coordinates
+     * through USE, are reindexed the same way by the pipeline.
+     *
+     * @throws IOException The files could not be written or read
+     */
+    public void testReindex() throws IOException {
+        File input = writeScene("triangles.x3dv", true);
+
+        byte[] inline = convert("ReIndex", input, "inline.x3d");
+        byte[] pipelined = convert("ReIndex", input, "pipelined.x3d",
+                                   "-pipeline", "-pipelineThreads", "3");
+
+        assertTrue("Pipelined output differs", Arrays.equals(inline, pipelined));
+    }
+
+    /**
+     * Run a filter over a file and return the X3D written.
+     */
+    private byte[] convert(String filter, File input, String output, String... extra)
+        throws IOException {
+
+        File out = new File(workDir, output);
+
+        String[] args = new String[3 + extra.length];
+        args[0] = filter;
+        args[1] = input.getPath();
+        args[2] = out.getPath();
+        System.arraycopy(extra, 0, args, 3, extra.length);
+
+        int err_code = CDFFilter.executeFilters(args, false, null, null);
+
+        assertEquals(filter + " failed", FilterExitCodes.SUCCESS, err_code);
+
+        return Files.readAllBytes(out.toPath());
+    }
+
+    /**
+     * Write a scene of grid shapes. Face sets have per corner normal and
+     * texture coordinate indices. Triangle sets repeat each corner point,
+     * and every third one uses the coordinates of the one before.
+     *
+     * @param name The file name
+     * @param triangles true for triangle sets, false for face sets
+     * @return The file written
+     */
+    private File writeScene(String name, boolean triangles) throws IOException {
+        StringBuilder buf = new StringBuilder("#X3D V3.0 utf8\nPROFILE Immersive\n");
+
+        for (int s = 0; s < NUM_SHAPES; s++) {
+            buf.append("Transform { translation ").append(s).append(" 0 0 children Shape {\n");
+
+            if (triangles) {
+                appendTriangleSet(buf, s);
+            } else {
+                appendFaceSet(buf, s);
+            }
+
+            buf.append("}}\n");
+        }
+
+        File ret_val = new File(workDir, name);
+        Files.write(ret_val.toPath(), buf.toString().getBytes(StandardCharsets.UTF_8));
+
+        return ret_val;
+    }
+
+    /**
+     * Add a face set of quads with its own normal and texture indices.
+     */
+    private void appendFaceSet(StringBuilder buf, int shape) {
+        buf.append("geometry IndexedFaceSet {\ncoordIndex [");
+        appendQuads(buf, 0);
+        buf.append("]\nnormalIndex [");
+        appendQuads(buf, shape % 3);
+        buf.append("]\ntexCoordIndex [");
+        appendQuads(buf, 1);
+        buf.append("]\ncoord Coordinate { point [");
+
+        for (int y = 0; y <= GRID; y++) {
+            for (int x = 0; x <= GRID; x++) {
+                buf.append(x).append(' ').append(y).append(' ').append(shape).append(", ");
+            }
+        }
+
+        buf.append("] }\nnormal Normal { vector [");
+        for (int i = 0; i < (GRID + 1) * (GRID + 1) + 2; i++) {
+            buf.append("0 0 1, 0 1 0, ");
+        }
+
+        buf.append("] }\ntexCoord TextureCoordinate { point [");
+        for (int i = 0; i < (GRID + 1) * (GRID + 1) + 1; i++) {
+            buf.append(i % 7).append(' ').append(i % 5).append(", ");
+        }
+
+        buf.append("] }\n}\n");
+    }
+
+    /**
+     * Add the -1 terminated index of the quads of the grid, each index
+     * moved up by the given offset.
+     */
+    private void appendQuads(StringBuilder buf, int offset) {
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                int v = y * (GRID + 1) + x + offset;
+                buf.append(v).append(' ').append(v + 1).append(' ');
+                buf.append(v + GRID + 2).append(' ').append(v + GRID + 1).append(" -1 ");
+            }
+        }
+    }
+
+    /**
+     * Add a triangle set that gives every triangle its own points.
+     */
+    private void appendTriangleSet(StringBuilder buf, int shape) {
+        buf.append("geometry IndexedTriangleSet {\nindex [");
+
+        int num_tri = GRID * GRID * 2;
+        for (int i = 0; i < num_tri * 3; i++) {
+            buf.append(i).append(' ');
+        }
+
+        buf.append("]\ncoord ");
+
+        if (shape % 3 == 2) {
+            buf.append("USE C").append(shape - 1).append("\n}\n");
+            return;
+        }
+
+        buf.append("DEF C").append(shape).append(" Coordinate { point [");
+
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                appendPoint(buf, x, y);
+                appendPoint(buf, x + 1, y);
+                appendPoint(buf, x, y + 1);
+                appendPoint(buf, x + 1, y);
+                appendPoint(buf, x + 1, y + 1);
+                appendPoint(buf, x, y + 1);
+            }
+        }
+
+        buf.append("] }\n}\n");
+    }
+
+    /**
+     * Add one point of the grid.
+     */
+    private void appendPoint(StringBuilder buf, int x, int y) {
+        buf.append(x).append(' ').append(y).append(" 0, ");
+    }
+}
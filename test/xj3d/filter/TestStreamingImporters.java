@@ -0,0 +1,164 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package xj3d.filter;
+
+// External Imports
+import java.io.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+// Internal Imports
+// None
+
+/**
+ * Test the STL and OBJ importers that read their input as a stream.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class TestStreamingImporters extends TestCase {
+
+    /** The directory the input and output is written to */
+    private File workDir;
+
+    /**
+     * Creates a test suite consisting of all the methods that start with
+     * "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestStreamingImporters.class);
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("xj3dimport").toFile();
+    }
+
+    @Override
+    public void tearDown() {
+        File[] files = workDir.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+
+        workDir.delete();
+    }
+
+    /**
+     * Check a binary STL file gives its coordinates and normals, with a
+     * missing normal worked out from the triangle.
+     *
+     * @throws IOException The files could not be written or read
+     */
+    public void testBinarySTL() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(84 + 2 * 50);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(80);
+        buf.putInt(2);
+
+        float[][] facets = {
+            { 0, 0, 1,  0, 0, 0,  2, 0, 0,  0, 2, 0 },
+            { 0, 0, 0,  0, 0, 0,  0, 2, 0,  0, 0, 2 },
+        };
+
+        for (float[] facet : facets) {
+            for (float f : facet) {
+                buf.putFloat(f);
+            }
+
+            buf.putShort((short)0);
+        }
+
+        File input = new File(workDir, "tri.stl");
+        Files.write(input.toPath(), buf.array());
+
+        String out = convert(input);
+
+        assertTrue("Wrong coordinates", out.contains("point='0 0 0 2 0 0 0 2 0 0 0 0 0 2 0 0 0 2'"));
+        assertTrue("Wrong normals", out.contains("vector='0 0 1 4 0 0'"));
+    }
+
+    /**
+     * Check an OBJ file with relative indices and two groups gives a Shape
+     * per group, each using only its own vertices.
+     *
+     * @throws IOException The files could not be written or read
+     */
+    public void testOBJ() throws IOException {
+        String obj = "# Test file\n" +
+                     "v 0 0 0\n" +
+                     "v 1 0 0\n" +
+                     "v 1.5e0 1 0\n" +
+                     "vn 0 0 1\n" +
+                     "g first\n" +
+                     "f 1//1 2//1 -1//-1\n" +
+                     "g second\n" +
+                     "v 0 1 -0.25\n" +
+                     "f 2 3 4\n" +
+                     "f 1 2\n";
+
+        File input = new File(workDir, "quad.obj");
+        Files.write(input.toPath(), obj.getBytes(StandardCharsets.UTF_8));
+
+        String out = convert(input);
+
+        assertTrue("Wrong first shape", out.contains("coordIndex='0 1 2 -1' normalIndex='0 0 0 -1'"));
+        assertTrue("Wrong second points", out.contains("point='1 0 0 1.5 1 0 0 1 -.25'"));
+        assertEquals("Wrong shape count", 2, out.split("<Shape>").length - 1);
+    }
+
+    /**
+     * Check a face that uses a vertex not yet read stops the conversion.
+     *
+     * @throws IOException The file could not be written
+     */
+    public void testOBJBadIndex() throws IOException {
+        String obj = "v 0 0 0\nf 1 2 3\n";
+
+        File input = new File(workDir, "bad.obj");
+        Files.write(input.toPath(), obj.getBytes(StandardCharsets.UTF_8));
+
+        String[] args = {
+            "Identity", input.getPath(), new File(workDir, "bad.x3d").getPath()
+        };
+
+        int err_code = CDFFilter.executeFilters(args, false, null, null);
+
+        assertEquals("Wrong exit code", FilterExitCodes.INVALID_INPUT_FILE, err_code);
+    }
+
+    /**
+     * Run the identity filter over a file and return the X3D written.
+     */
+    private String convert(File input) throws IOException {
+        File output = new File(workDir, "out.x3d");
+
+        String[] args = { "Identity", input.getPath(), output.getPath() };
+
+        int err_code = CDFFilter.executeFilters(args, false, null, null);
+
+        assertEquals("Conversion failed", FilterExitCodes.SUCCESS, err_code);
+
+        return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+    }
+}
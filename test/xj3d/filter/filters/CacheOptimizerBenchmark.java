@@ -0,0 +1,203 @@
+/*****************************************************************************
+ *                        Web3d.org Copyright (c) 2001 - 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package xj3d.filter.filters;
+
+// External imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Local imports
+// None
+
+/**
+ * Simple timing of the Forsyth vertex cache optimizer, with the average
+ * cache miss ratio (ACMR) of the index lists before and after.
+ * <p>
+ *
+ * Usage: <code>CacheOptimizerBenchmark [gridSize [parts [threads]]]</code>.
+ * A grid of gridSize by gridSize quads is optimized in its natural row
+ * order and with its triangles shuffled. Then an assembly of the given
+ * number of small parts is optimized one part at a time, and again with
+ * the parts spread over a pool of threads, as the pipelined filters do.
+ * Each test is run several times so that the later times are for
+ * compiled code.
+ *
+ * @author Xj3D Team
+ * @version $Revision: 1.1 $
+ */
+public class CacheOptimizerBenchmark {
+
+    /** The number of times each test is run */
+    private static final int RUNS = 5;
+
+    /** The cache sizes to measure the ACMR for */
+    private static final int[] CACHE_SIZES = { 3, 16, 32 };
+
+    /** The grid size of each part of the assembly */
+    private static final int PART_SIZE = 24;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args The grid size, number of parts and threads to use
+     * @throws Exception A thread failed
+     */
+    public static void main(String[] args) throws Exception {
+        int grid = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int parts = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int threads = args.length > 2 ?
+            Integer.parseInt(args[2]) :
+            Runtime.getRuntime().availableProcessors();
+
+        int[] rows = makeGrid(grid);
+        int[] shuffled = rows.clone();
+        shuffleTriangles(shuffled, new Random(42));
+
+        System.out.println("Grid of " + (rows.length / 3) + " triangles");
+
+        reportACMR("rows", rows, grid);
+        reportACMR("shuffled", shuffled, grid);
+
+        ForsythCacheOptimizer fco = new ForsythCacheOptimizer();
+        int num_vertex = (grid + 1) * (grid + 1);
+        int[] out = new int[rows.length];
+
+        for(int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            fco.optimizeFaces(shuffled, shuffled.length, num_vertex, out, 32);
+            long time = System.nanoTime() - start;
+
+            System.out.println("Run " + i + ": " + (time / 1000000) + "ms, " +
+                               rate(shuffled.length / 3, time) + " triangles/s");
+        }
+
+        List<int[]> assembly = new ArrayList<>(parts);
+        Random rand = new Random(7);
+        for(int i = 0; i < parts; i++) {
+            int[] part = makeGrid(PART_SIZE);
+            shuffleTriangles(part, rand);
+            assembly.add(part);
+        }
+
+        int part_tris = parts * (PART_SIZE * PART_SIZE * 2);
+        System.out.println("Assembly of " + parts + " parts, " + part_tris +
+                           " triangles, " + threads + " threads");
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try {
+            for(int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                for(int[] part : assembly)
+                    optimize(part);
+                long serial = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                List<Future<int[]>> results = new ArrayList<>(parts);
+                for(int[] part : assembly)
+                    results.add(pool.submit(() -> optimize(part)));
+                for(Future<int[]> f : results)
+                    f.get();
+                long parallel = System.nanoTime() - start;
+
+                System.out.println("Run " + i + ": serial " +
+                                   rate(part_tris, serial) + " triangles/s, parallel " +
+                                   rate(part_tris, parallel) + " triangles/s");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Print the ACMR of an index list before and after optimizing it for
+     * each of the cache sizes.
+     */
+    private static void reportACMR(String name, int[] index, int grid) {
+        int num_vertex = (grid + 1) * (grid + 1);
+        ForsythCacheOptimizer fco = new ForsythCacheOptimizer();
+
+        for(int size : CACHE_SIZES) {
+            int[] out = new int[index.length];
+            fco.optimizeFaces(index, index.length, num_vertex, out, size);
+
+            float before = ForsythCacheOptimizer.calculateACMR(index, index.length, size);
+            float after = ForsythCacheOptimizer.calculateACMR(out, out.length, size);
+
+            System.out.println("ACMR " + name + " cache " + size + ": " +
+                               before + " -> " + after);
+        }
+    }
+
+    /**
+     * Optimize one part for the cache size the filter uses.
+     */
+    private static int[] optimize(int[] index) {
+        int num_vertex = (PART_SIZE + 1) * (PART_SIZE + 1);
+        int[] out = new int[index.length];
+
+        new ForsythCacheOptimizer().optimizeFaces(index, index.length, num_vertex, out, 3);
+
+        return out;
+    }
+
+    /**
+     * Create the index list of a grid of quads, two triangles each, in row
+     * order.
+     */
+    private static int[] makeGrid(int size) {
+        int[] ret_val = new int[size * size * 6];
+        int idx = 0;
+
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+
+                ret_val[idx++] = v;
+                ret_val[idx++] = v + 1;
+                ret_val[idx++] = v + size + 1;
+
+                ret_val[idx++] = v + 1;
+                ret_val[idx++] = v + size + 2;
+                ret_val[idx++] = v + size + 1;
+            }
+        }
+
+        return ret_val;
+    }
+
+    /**
+     * Put the triangles of an index list in a random order.
+     */
+    private static void shuffleTriangles(int[] index, Random rand) {
+        for(int i = index.length / 3 - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+
+            for(int k = 0; k < 3; k++) {
+                int tmp = index[i * 3 + k];
+                index[i * 3 + k] = index[j * 3 + k];
+                index[j * 3 + k] = tmp;
+            }
+        }
+    }
+
+    /**
+     * Work out a rate per second.
+     */
+    private static long rate(long count, long nanos) {
+        return nanos == 0 ? 0 : count * 1000000000L / nanos;
+    }
+}